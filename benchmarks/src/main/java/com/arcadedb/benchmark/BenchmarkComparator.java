@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.benchmark;
+
+import com.arcadedb.serializer.json.JSONArray;
+import com.arcadedb.serializer.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files produced with {@code -rf json -rff <file>} and reports, for every benchmark (and
+ * parameter combination) found in both, the relative change of the primary score. A change is a regression when it
+ * goes in the bad direction by more than the threshold: lower throughput for {@code thrpt}, higher time for the
+ * other modes. The exit code is 1 when at least one regression is found, so CI can fail the build on it.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar com.arcadedb.benchmark.BenchmarkComparator <baseline.json> <current.json>
+ * [thresholdPercent (default 10)]}
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class BenchmarkComparator {
+  public static final double DEFAULT_THRESHOLD_PERCENT = 10D;
+
+  public record Score(String mode, double score, double error, String unit) {
+    public boolean higherIsBetter() {
+      return "thrpt".equals(mode);
+    }
+  }
+
+  public static void main(final String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: BenchmarkComparator <baseline.json> <current.json> [thresholdPercent]");
+      System.exit(2);
+    }
+
+    final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+    final Map<String, Score> baseline = load(Path.of(args[0]));
+    final Map<String, Score> current = load(Path.of(args[1]));
+
+    final int regressions = compare(baseline, current, threshold);
+    if (regressions > 0) {
+      System.out.printf("%nFOUND %d REGRESSION(S) ABOVE %.1f%%%n", regressions, threshold);
+      System.exit(1);
+    }
+  }
+
+  public static Map<String, Score> load(final Path file) throws IOException {
+    final JSONArray results = new JSONArray(Files.readString(file));
+    final Map<String, Score> scores = new TreeMap<>();
+    for (int i = 0; i < results.length(); i++) {
+      final JSONObject result = results.getJSONObject(i);
+      final JSONObject metric = result.getJSONObject("primaryMetric");
+      scores.put(key(result), new Score(result.getString("mode"), metric.getDouble("score"),
+          metric.getDouble("scoreError", 0D), metric.getString("scoreUnit", "")));
+    }
+    return scores;
+  }
+
+  /**
+   * Prints one line per benchmark present in both result sets and returns the number of regressions.
+   */
+  public static int compare(final Map<String, Score> baseline, final Map<String, Score> current,
+      final double thresholdPercent) {
+    int regressions = 0;
+    System.out.printf("%-80s %15s %15s %9s%n", "BENCHMARK", "BASELINE", "CURRENT", "CHANGE");
+    for (final Map.Entry<String, Score> entry : baseline.entrySet()) {
+      final Score before = entry.getValue();
+      final Score after = current.get(entry.getKey());
+      if (after == null || before.score() == 0D)
+        continue;
+
+      final double change = (after.score() - before.score()) * 100D / before.score();
+      final boolean regression = before.higherIsBetter() ? change < -thresholdPercent : change > thresholdPercent;
+      if (regression)
+        ++regressions;
+
+      System.out.printf("%-80s %15.3f %15.3f %+8.1f%% %s%s%n", entry.getKey(), before.score(), after.score(), change,
+          after.unit(), regression ? "  <-- REGRESSION" : "");
+    }
+
+    for (final String key : current.keySet())
+      if (!baseline.containsKey(key))
+        System.out.printf("%-80s %15s %15.3f (new)%n", key, "-", current.get(key).score());
+
+    return regressions;
+  }
+
+  private static String key(final JSONObject result) {
+    final String benchmark = result.getString("benchmark");
+    if (!result.has("params"))
+      return benchmark;
+
+    final JSONObject params = result.getJSONObject("params");
+    final Map<String, Object> sorted = new TreeMap<>(params.toMap());
+    final StringBuilder key = new StringBuilder(benchmark);
+    for (final Map.Entry<String, Object> param : sorted.entrySet())
+      key.append(key.length() == benchmark.length() ? ":" : ",").append(param.getKey()).append('=').append(param.getValue());
+    return key.toString();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.benchmark;
+
+import com.arcadedb.database.Binary;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.MutableDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization and deserialization of a document with a mix of scalar, string, list and map properties through
+ * the database's {@link com.arcadedb.serializer.BinarySerializer}.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinarySerializerBenchmark extends DatabaseBenchmarkState {
+  private MutableDocument document;
+  private Binary          serialized;
+
+  @Override
+  protected void populate(final Database database) {
+    database.getSchema().createDocumentType("Doc", 1);
+
+    document = database.newDocument("Doc");
+    document.set("id", 42L).set("name", "Jay").set("surname", "Miner").set("active", true).set("score", 97.5D)
+        .set("tags", List.of("amiga", "chipset", "agnus", "denise", "paula"))
+        .set("address", Map.of("city", "Prescott", "state", "AZ", "zip", 86301))
+        .set("bio", "Integrated circuit designer, known as the father of the Amiga. ".repeat(4));
+
+    serialized = this.database.getSerializer().serialize(this.database, document);
+  }
+
+  @Benchmark
+  public Binary serialize() {
+    return database.getSerializer().serialize(database, document);
+  }
+
+  @Benchmark
+  public Map<String, Object> deserialize() {
+    serialized.position(0);
+    serialized.getByte(); // SKIP THE RECORD TYPE
+    return database.getSerializer().deserializeProperties(database, serialized, null, null);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.benchmark;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.utility.FileUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+
+/**
+ * Base class for the benchmark states that need a database: creates a fresh embedded database per trial under
+ * {@code target/benchmark-databases} and drops it at the end, so trials never see each other's data.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public abstract class DatabaseBenchmarkState {
+  protected static final String ROOT_PATH = "target/benchmark-databases";
+
+  protected DatabaseInternal database;
+
+  @Setup(Level.Trial)
+  public void setupDatabase() throws Exception {
+    configure();
+
+    final String path = ROOT_PATH + File.separator + getClass().getSimpleName() + "-" + System.nanoTime();
+    FileUtils.deleteRecursively(new File(path));
+    database = (DatabaseInternal) new DatabaseFactory(path).create();
+    populate(database);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownDatabase() {
+    if (database != null) {
+      if (database.isTransactionActive())
+        database.rollback();
+      database.drop();
+      database = null;
+    }
+    GlobalConfiguration.resetAll();
+  }
+
+  /**
+   * Hook to change the {@link GlobalConfiguration} before the database is created. Default is no-op.
+   */
+  protected void configure() {
+  }
+
+  /**
+   * Creates the schema and the data the benchmark works on.
+   */
+  protected abstract void populate(Database database) throws Exception;
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.benchmark;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.database.RID;
+import com.arcadedb.graph.MutableVertex;
+import com.arcadedb.graph.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Edge traversal on a random graph with a fixed out-degree: one hop over the adjacent vertices, two hops, and the
+ * edge count that only walks the edge segments.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphTraversalBenchmark extends DatabaseBenchmarkState {
+  private static final int VERTICES = 20_000;
+
+  @Param({ "10", "100" })
+  public int degree;
+
+  private RID[] vertices;
+
+  @Override
+  protected void populate(final Database database) {
+    database.getSchema().createVertexType("Node");
+    database.getSchema().createEdgeType("Link");
+
+    vertices = new RID[VERTICES];
+    database.transaction(() -> {
+      for (int i = 0; i < VERTICES; i++)
+        vertices[i] = database.newVertex("Node").set("id", i).save().getIdentity();
+    });
+
+    // FIXED SEED: EVERY RUN TRAVERSES THE SAME GRAPH
+    final Random random = new Random(VERTICES);
+    for (int from = 0; from < VERTICES; from += 1_000) {
+      final int batchStart = from;
+      database.transaction(() -> {
+        for (int i = batchStart; i < Math.min(batchStart + 1_000, VERTICES); i++) {
+          final MutableVertex vertex = database.lookupByRID(vertices[i], true).asVertex().modify();
+          for (int e = 0; e < degree; e++)
+            vertex.newEdge("Link", vertices[random.nextInt(VERTICES)]);
+        }
+      });
+    }
+  }
+
+  @Benchmark
+  public long oneHop() {
+    long count = 0;
+    for (final Vertex neighbor : randomVertex().getVertices(Vertex.DIRECTION.OUT, "Link"))
+      count += neighbor.getIdentity().getPosition();
+    return count;
+  }
+
+  @Benchmark
+  public long twoHops() {
+    long count = 0;
+    for (final Vertex neighbor : randomVertex().getVertices(Vertex.DIRECTION.OUT, "Link"))
+      count += neighbor.countEdges(Vertex.DIRECTION.OUT, "Link");
+    return count;
+  }
+
+  @Benchmark
+  public long countEdges() {
+    return randomVertex().countEdges(Vertex.DIRECTION.BOTH, "Link");
+  }
+
+  private Vertex randomVertex() {
+    return database.lookupByRID(vertices[ThreadLocalRandom.current().nextInt(VERTICES)], true).asVertex();
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.benchmark;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.database.RID;
+import com.arcadedb.index.IndexCursor;
+import com.arcadedb.index.TypeIndex;
+import com.arcadedb.index.lsm.LSMTreeIndex;
+import com.arcadedb.schema.DocumentType;
+import com.arcadedb.schema.Schema;
+import com.arcadedb.schema.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point put, point get and short range scans on the bucket {@link LSMTreeIndex} of a non-unique {@code LONG} property.
+ * Keys are put straight into the index, without the records behind them. Puts are
+ * committed every {@link #BATCH} operations; gets and ranges run on the pre-loaded keys outside any transaction.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LSMTreeIndexBenchmark extends DatabaseBenchmarkState {
+  private static final int KEYS       = 500_000;
+  private static final int BATCH      = 1_000;
+  private static final int RANGE_SIZE = 100;
+
+  private LSMTreeIndex index;
+  private long         nextKey;
+  private int          pending;
+
+  @Override
+  protected void populate(final Database database) {
+    final DocumentType type = database.getSchema().createDocumentType("Item", 1);
+    type.createProperty("key", Type.LONG);
+    final TypeIndex typeIndex = type.createTypeIndex(Schema.INDEX_TYPE.LSM_TREE, false, "key");
+    index = (LSMTreeIndex) typeIndex.getIndexesOnBuckets()[0];
+
+    database.transaction(() -> {
+      for (long i = 0; i < KEYS; i++)
+        index.put(new Object[] { i }, new RID[] { new RID(1, i) });
+    });
+    nextKey = KEYS;
+  }
+
+  @TearDown(Level.Iteration)
+  public void commitPending() {
+    if (database.isTransactionActive())
+      database.commit();
+    pending = 0;
+  }
+
+  @Benchmark
+  public void put() {
+    if (!database.isTransactionActive())
+      database.begin();
+
+    final long key = nextKey++;
+    index.put(new Object[] { key }, new RID[] { new RID(1, key) });
+
+    if (++pending == BATCH) {
+      database.commit();
+      pending = 0;
+    }
+  }
+
+  @Benchmark
+  public void get(final Blackhole blackhole) {
+    final IndexCursor cursor = index.get(new Object[] { ThreadLocalRandom.current().nextLong(KEYS) });
+    while (cursor.hasNext())
+      blackhole.consume(cursor.next());
+  }
+
+  @Benchmark
+  public void range(final Blackhole blackhole) {
+    final long from = ThreadLocalRandom.current().nextLong(KEYS - RANGE_SIZE);
+    final IndexCursor cursor = index.range(true, new Object[] { from }, true, new Object[] { from + RANGE_SIZE }, false);
+    while (cursor.hasNext())
+      blackhole.consume(cursor.next());
+  }
+}
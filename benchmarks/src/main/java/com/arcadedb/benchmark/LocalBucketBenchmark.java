@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.benchmark;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.database.RID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record create, read and update through the bucket of a document type. Writes are committed every
+ * {@link #BATCH} operations, so the figures include the amortized commit but are not dominated by it (see
+ * {@link WALCommitBenchmark} for the commit path alone). Reads run outside any transaction, so they go through the
+ * page cache and the deserializer instead of the transaction's record cache.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalBucketBenchmark extends DatabaseBenchmarkState {
+  private static final int RECORDS = 100_000;
+  private static final int BATCH   = 1_000;
+
+  private RID[] rids;
+  private int   pending;
+
+  @Override
+  protected void populate(final Database database) {
+    database.getSchema().createDocumentType("Doc", 1);
+    rids = new RID[RECORDS];
+    database.transaction(() -> {
+      for (int i = 0; i < RECORDS; i++)
+        rids[i] = newDocument(database, i).save().getIdentity();
+    });
+  }
+
+  @TearDown(Level.Iteration)
+  public void commitPending() {
+    if (database.isTransactionActive())
+      database.commit();
+    pending = 0;
+  }
+
+  @Benchmark
+  public RID create() {
+    final RID rid = newDocument(inTransaction(), ThreadLocalRandom.current().nextInt()).save().getIdentity();
+    batchCompleted();
+    return rid;
+  }
+
+  @Benchmark
+  public Object read() {
+    final Document doc = database.lookupByRID(randomRID(), true).asDocument();
+    return doc.get("name");
+  }
+
+  @Benchmark
+  public RID update() {
+    final MutableDocument doc = inTransaction().lookupByRID(randomRID(), true).asDocument().modify();
+    doc.set("counter", doc.getLong("counter") + 1).save();
+    batchCompleted();
+    return doc.getIdentity();
+  }
+
+  private static MutableDocument newDocument(final Database database, final int i) {
+    return database.newDocument("Doc").set("id", i).set("name", "name-" + i).set("surname", "surname-" + i)
+        .set("counter", 0L).set("score", i * 0.5D);
+  }
+
+  private Database inTransaction() {
+    if (!database.isTransactionActive())
+      database.begin();
+    return database;
+  }
+
+  private void batchCompleted() {
+    if (++pending == BATCH) {
+      database.commit();
+      pending = 0;
+    }
+  }
+
+  private RID randomRID() {
+    return rids[ThreadLocalRandom.current().nextInt(RECORDS)];
+  }
+}
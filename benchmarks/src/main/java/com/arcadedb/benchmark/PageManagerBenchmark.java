@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.benchmark;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.engine.ImmutablePage;
+import com.arcadedb.engine.LocalBucket;
+import com.arcadedb.engine.PageId;
+import com.arcadedb.engine.PageManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Page cache lookups through {@link PageManager#getImmutablePage(PageId, int, boolean, boolean)}. With
+ * {@code cache=hot} the whole bucket fits the page cache, so every call is a hit; with {@code cache=evicting} the
+ * cache is sized to a fraction of the bucket, so most calls load the page from disk and evict older pages.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageManagerBenchmark extends DatabaseBenchmarkState {
+  private static final int RECORDS = 200_000;
+
+  @Param({ "hot", "evicting" })
+  public String cache;
+
+  private int fileId;
+  private int pageSize;
+  private int totalPages;
+
+  @Override
+  protected void configure() {
+    // THE BUCKET TAKES ~40MB: 2MB OF CACHE FORCES A MISS (AND AN EVICTION) ON MOST LOOKUPS
+    GlobalConfiguration.MAX_PAGE_RAM.setValue("evicting".equals(cache) ? 2L : 1024L);
+  }
+
+  @Override
+  protected void populate(final Database database) {
+    database.getSchema().createDocumentType("Page", 1);
+    final String padding = "x".repeat(160);
+    database.transaction(() -> {
+      for (int i = 0; i < RECORDS; i++) {
+        final MutableDocument doc = database.newDocument("Page");
+        doc.set("id", i).set("padding", padding).save();
+      }
+    });
+
+    final LocalBucket bucket = (LocalBucket) database.getSchema().getType("Page").getBuckets(false).getFirst();
+    fileId = bucket.getFileId();
+    pageSize = bucket.getPageSize();
+    totalPages = bucket.getTotalPages();
+  }
+
+  @Benchmark
+  public ImmutablePage getPage() throws IOException {
+    final int pageNumber = ThreadLocalRandom.current().nextInt(totalPages);
+    return PageManager.INSTANCE.getImmutablePage(new PageId(database, fileId, pageNumber), pageSize, false, false);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.benchmark;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Database;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end commit of small transactions, so the WAL append and (with {@code walFlush > 0}) the WAL sync dominate.
+ * {@code commitConcurrent} runs the same commit from several threads to measure how well appends and syncs are
+ * shared between concurrent committers.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WALCommitBenchmark extends DatabaseBenchmarkState {
+  /**
+   * Same values as {@link GlobalConfiguration#TX_WAL_FLUSH}: 0 = no flush, 1 = flush without metadata, 2 = full flush.
+   */
+  @Param({ "0", "2" })
+  public int walFlush;
+
+  @Param({ "1", "10" })
+  public int recordsPerTx;
+
+  @Override
+  protected void configure() {
+    GlobalConfiguration.TX_WAL_FLUSH.setValue(walFlush);
+  }
+
+  @Override
+  protected void populate(final Database database) {
+    // ONE BUCKET PER CORE, SO CONCURRENT COMMITTERS CONTEND ON THE WAL RATHER THAN ON THE SAME BUCKET PAGE
+    database.getSchema().createDocumentType("Tx", Runtime.getRuntime().availableProcessors());
+  }
+
+  @Benchmark
+  public void commit() {
+    commitTransaction();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void commitConcurrent() {
+    commitTransaction();
+  }
+
+  private void commitTransaction() {
+    database.transaction(() -> {
+      final int value = ThreadLocalRandom.current().nextInt();
+      for (int i = 0; i < recordsPerTx; i++)
+        database.newDocument("Tx").set("value", value).set("i", i).save();
+    });
+  }
+}
@@ -59,6 +59,7 @@ import com.arcadedb.schema.Property;
 import com.arcadedb.schema.Schema;
 import com.arcadedb.server.ArcadeDBServer;
 import com.arcadedb.server.network.PreAuthConnectionGate;
+import com.arcadedb.server.network.WireProtocolConnections;
 import com.arcadedb.server.HAServerPlugin;
 import com.arcadedb.server.security.ServerSecurityException;
 import com.arcadedb.server.security.ServerSecurityUser;
@@ -96,7 +97,7 @@ import static com.arcadedb.query.opencypher.executor.steps.FinalProjectionStep.P
  * Handles a single BOLT protocol connection.
  * Implements the BOLT server state machine and processes client messages.
  */
-public class BoltNetworkExecutor extends Thread {
+public class BoltNetworkExecutor implements Runnable {
   // BOLT magic bytes
   private static final byte[] BOLT_MAGIC = { 0x60, 0x60, (byte) 0xB0, 0x17 };
 
@@ -175,7 +176,6 @@ public class BoltNetworkExecutor extends Thread {
 
   public BoltNetworkExecutor(final ArcadeDBServer server, final Socket socket, final BoltNetworkListener listener,
       final BoltSslHelper sslHelper, final PreAuthConnectionGate.Ticket preAuthTicket) {
-    super("BOLT-" + socket.getRemoteSocketAddress());
     this.server = server;
     this.socket = socket;
     this.listener = listener;
@@ -232,7 +232,10 @@ public class BoltNetworkExecutor extends Thread {
             LogManager.instance().log(this, Level.FINE, "BOLT << %s (state=%s)", message, state);
           }
 
-          processMessage(message);
+          try (final WireProtocolConnections.Request ignored = WireProtocolConnections.beginRequest(
+              listener != null ? listener.getConnections() : null)) {
+            processMessage(message);
+          }
 
         } catch (final EOFException | SocketException e) {
           // Client disconnected
@@ -25,6 +25,7 @@ import com.arcadedb.server.ArcadeDBServer;
 import com.arcadedb.server.ServerException;
 import com.arcadedb.server.network.PreAuthConnectionGate;
 import com.arcadedb.server.network.ServerSocketFactory;
+import com.arcadedb.server.network.WireProtocolConnections;
 
 import java.io.IOException;
 import java.net.BindException;
@@ -39,7 +40,8 @@ import java.util.logging.Level;
 
 /**
  * TCP listener for Neo4j BOLT protocol connections.
- * Accepts incoming connections and spawns BoltNetworkExecutor threads to handle them.
+ * Accepts incoming connections and serves each one with a BoltNetworkExecutor, on the thread the shared
+ * {@link WireProtocolConnections} layer starts for it.
  */
 public class BoltNetworkListener extends Thread {
   private static final int BOLT_PROTOCOL_VERSION = 4; // BOLT v4.4
@@ -53,6 +55,7 @@ public class BoltNetworkListener extends Thread {
   private final    int                                 maxConnections;
   /** Bounds how many accepted connections can sit un-authenticated at once (issue #6412). */
   private final    PreAuthConnectionGate               preAuthGate = new PreAuthConnectionGate("BOLT");
+  private final    WireProtocolConnections             connections = new WireProtocolConnections("bolt");
 
   public BoltNetworkListener(final ArcadeDBServer server,
       final ServerSocketFactory socketFactory,
@@ -115,7 +118,12 @@ public class BoltNetworkListener extends Thread {
           try {
             final BoltNetworkExecutor connection = new BoltNetworkExecutor(server, socket, this, sslHelper, ticket);
             activeConnections.add(connection);
-            connection.start();
+            try {
+              connections.start("BOLT-" + socket.getRemoteSocketAddress(), connection);
+            } catch (final RuntimeException | Error e) {
+              activeConnections.remove(connection);
+              throw e;
+            }
           } catch (final Exception e) {
             // The executor never started, so nothing will hand the permit back for it.
             ticket.release();
@@ -137,6 +145,10 @@ public class BoltNetworkListener extends Thread {
     }
   }
 
+  WireProtocolConnections getConnections() {
+    return connections;
+  }
+
   /**
    * Called by BoltNetworkExecutor when a connection is closed.
    */
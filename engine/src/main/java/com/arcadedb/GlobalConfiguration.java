@@ -238,9 +238,32 @@ public enum GlobalConfiguration {
       "Number of concurrent files to use for tx log. 0 (default) = available cores", Integer.class,
       Math.max(Runtime.getRuntime().availableProcessors(), 1)),
 
+  TX_WAL_GROUP_COMMIT("arcadedb.txWalGroupCommit", SCOPE.DATABASE,
+      "Group commit: when txWalFlush is 1 or 2, concurrent commits on the same WAL file share one fsync issued by a leader committer instead of each forcing the file on its own. Durability is unchanged: a commit returns only after a force covering its WAL record",
+      Boolean.class, false),
+
+  TX_WAL_GROUP_COMMIT_WINDOW("arcadedb.txWalGroupCommitWindow", SCOPE.DATABASE,
+      "Microseconds the group commit leader waits for more committers before issuing the fsync. 0 = no wait, only the commits that arrive while a fsync is in progress are grouped",
+      Integer.class, 100),
+
+  TX_WAL_GROUP_COMMIT_MAX_BATCH("arcadedb.txWalGroupCommitMaxBatch", SCOPE.DATABASE,
+      "Maximum number of pending commits after which the group commit leader stops waiting and issues the fsync", Integer.class, 64),
+
   FREE_PAGE_RAM("arcadedb.freePageRAM", SCOPE.DATABASE, "Percentage (0-100) of memory to free when Page RAM is full", Integer.class,
       50),
 
+  READ_ONLY_MEMORY_MAPPED("arcadedb.readOnlyMemoryMapped", SCOPE.DATABASE,
+      "Memory map the files of the databases opened in read-only mode, so a page cache miss is a copy from the OS page cache instead of a read system call. Useful for read-only copies of large databases that fit in the OS page cache. Read when a file is opened",
+      Boolean.class, false),
+
+  PAGE_CACHE_POLICY("arcadedb.pageCachePolicy", SCOPE.JVM,
+      "Policy of the page cache. 'clock' (default) evicts with a sharded CLOCK and, once the cache is full, admits a page read from disk only if it is accessed more often than the page it would replace, so full scans do not flush the hot index pages. 'lru' is the previous policy, which sorts the whole cache by last access on every eviction. Read when the first database is opened",
+      String.class, "clock", Set.of("clock", "lru")),
+
+  PAGE_READ_AHEAD("arcadedb.pageReadAhead", SCOPE.JVM,
+      "Maximum number of pages read in the background ahead of a sequential scan (buckets and index ranges). The window starts small and adapts to how many of the pages read ahead the scan actually finds in the cache. 0 disables read-ahead. Read when the first database is opened",
+      Integer.class, 64),
+
   TYPE_DEFAULT_BUCKETS("arcadedb.typeDefaultBuckets", SCOPE.DATABASE, "Default number of buckets to create per type", Integer.class,
       1),
 
@@ -259,6 +282,10 @@ public enum GlobalConfiguration {
       "Maximum number of distinct values one TimeSeries type's tag dictionary may hold. TAG columns are dictionary-encoded in the mutable row so each occupies a 4-byte id instead of a reserved 258-byte slot; the dictionary is kept in RAM, so this caps its footprint and turns a mis-declared high-cardinality TAG into a clear error instead of unbounded growth. Default is 1M distinct values, roughly 100MB",
       Integer.class, 1_000_000),
 
+  BUCKET_PAGE_COMPRESSION("arcadedb.bucketPageCompression", SCOPE.DATABASE,
+      "Codec used to compress the pages of new buckets when they are written to disk: 'none', 'lz4' (fast) or 'dictionary' (DEFLATE with a dictionary trained on the first pages of the bucket, smaller but slower). Pages are always uncompressed in the page cache. The codec is stored in the bucket file, so changing this setting affects only the buckets created afterwards",
+      String.class, "none", Set.of("none", "lz4", "dictionary")),
+
   BUCKET_REUSE_SPACE_MODE("arcadedb.bucketReuseSpaceMode", SCOPE.DATABASE,
       "How to reuse space in pages. 'high' = more space saved, but slower opening and update/delete time. 'medium' to still reuse space without the initial scan at opening time. 'low' for faster performance, but less space reused. Default is 'high'",
       String.class, "high", Set.of("low", "medium", "high")),
@@ -840,6 +867,30 @@ public enum GlobalConfiguration {
         return Math.max(500_000L, maxHeap / 2048);
       }),
 
+  QUERY_SPILL_TO_DISK("arcadedb.querySpillToDisk", SCOPE.DATABASE,
+      "When the in-heap limit queryMaxHeapElementsAllowedPerOp is exceeded, spill to the 'temp' directory under the database path instead of failing the query. ORDER BY writes sorted runs merged while fetched, GROUP BY and DISTINCT write hash partitions processed one at a time",
+      Boolean.class, false),
+
+  QUERY_SPILL_PARTITIONS("arcadedb.querySpillPartitions", SCOPE.DATABASE,
+      "Number of hash partitions GROUP BY and DISTINCT spill to once over the in-heap limit (see querySpillToDisk). Each partition must fit the in-heap limit, otherwise it is partitioned again",
+      Integer.class, 64),
+
+  QUERY_RESULT_CACHE("arcadedb.queryResultCache", SCOPE.DATABASE,
+      "Cache the results of repeated SQL and OpenCypher read queries executed outside a transaction. An entry is invalidated when a committed transaction modifies a bucket or index the query read. Single queries can opt in or out with the /*+ CACHE */ and /*+ NO_CACHE */ hints",
+      Boolean.class, false),
+
+  QUERY_RESULT_CACHE_MAX_SIZE("arcadedb.queryResultCacheMaxSize", SCOPE.DATABASE,
+      "Maximum size in bytes of the query result cache (see queryResultCache). The least recently used entries are evicted first",
+      Long.class, 64L * 1024 * 1024),
+
+  QUERY_RESULT_CACHE_MAX_ROWS("arcadedb.queryResultCacheMaxRows", SCOPE.DATABASE,
+      "Maximum number of results of a single query to store in the query result cache (see queryResultCache). Queries returning more results are not cached",
+      Integer.class, 10_000),
+
+  MATERIALIZED_VIEW_INCREMENTAL_MAX_CHANGES("arcadedb.materializedViewIncrementalMaxChanges", SCOPE.DATABASE,
+      "Maximum number of source records a single transaction can change while an INCREMENTAL materialized view still applies the changes as a delta. Above this number the view is rebuilt with a full refresh instead",
+      Integer.class, 10_000),
+
   QUERY_MAX_RANGE_SIZE("arcadedb.queryMaxRangeSize", SCOPE.DATABASE, """
       Maximum number of elements a range() expression is allowed to produce. If exceeded, the query is rejected with a \
       client error before any element is generated. Negative number means no limit (the hard limit of 2147483647 elements, \
@@ -950,10 +1001,34 @@ public enum GlobalConfiguration {
   INDEX_COMPACTION_MIN_PAGES_SCHEDULE("arcadedb.indexCompactionMinPagesSchedule", SCOPE.DATABASE,
       "Minimum number of mutable pages for an index to be schedule for automatic compaction. 0 = disabled", Integer.class, 10),
 
+  INDEX_MEMTABLE_MAX_ENTRIES("arcadedb.indexMemtableMaxEntries", SCOPE.DATABASE,
+      "Maximum number of values each mutable LSM index keeps in its sorted in-memory copy of the sealed mutable pages, so point lookups and uniqueness checks do not binary-search every page written since the last compaction. 0 = disabled",
+      Integer.class, 262144),
+
   INDEX_COMPACTION_FULL_SERIES("arcadedb.indexCompactionFullSeriesThreshold", SCOPE.DATABASE,
       "Number of compacted series at which an index compaction runs as a full compaction: every existing series is merged together with the mutable pages into a single fresh series, deletions are resolved and dead entries dropped. Keeps delete-heavy indexes from accumulating unbounded tombstone runs and series. 0 = disabled",
       Integer.class, 10),
 
+  INDEX_COMPACTION_LEVEL_RATIO("arcadedb.indexCompactionLevelRatio", SCOPE.DATABASE,
+      """
+      Size ratio between the compacted levels of an LSM index. Incremental compactions append series to level 1; a full \
+      compaction rewrites them together with level 2 (the base written by the previous full compaction). Once the series \
+      threshold is reached the full compaction is still deferred until level 1 holds at least 1/ratio of the base pages \
+      (or the series count reaches threshold * ratio), so a large base is not rewritten for a small delta. 0 or 1 = \
+      series count only""",
+      Integer.class, 10),
+
+  INDEX_COMPACTION_PARALLELISM("arcadedb.indexCompactionParallelism", SCOPE.DATABASE,
+      """
+      Maximum number of key ranges a full index compaction merges in parallel. Each range is written by its own thread \
+      into its own series, so only indexes large enough to give every range several series are split. 0 = half of the \
+      available cores, 1 = serial merge""",
+      Integer.class, 0),
+
+  INDEX_COMPACTION_IO_RATE("arcadedb.indexCompactionIORate", SCOPE.DATABASE,
+      "Maximum I/O rate of index compactions, in MB/s, counting pages read and written. Keeps background merges from starving foreground queries. 0 = unlimited",
+      Long.class, 0),
+
   INDEX_BLOOM_FILTER_RATE("arcadedb.indexBloomFilterRate", SCOPE.DATABASE,
       """
       Target false-positive rate of the bloom filter an index compaction writes for each compacted series of an LSM \
@@ -1145,6 +1220,16 @@ public enum GlobalConfiguration {
       immediately and goes back to accepting. The cap is per listener, so a flood against one protocol cannot use
       up the budget that lets clients of another log in. 0 means unlimited.""", Integer.class, 500),
 
+  NETWORK_VIRTUAL_THREADS("arcadedb.network.virtualThreads", SCOPE.SERVER, """
+      Runs each connection of the binary wire-protocol listeners (Postgres, Redis, BOLT) on a virtual thread instead of a \
+      platform thread. An idle pooled connection then costs a few hundred bytes of heap instead of a thread stack. Set \
+      to false to go back to one platform thread per connection. Default is true""", Boolean.class, true),
+
+  NETWORK_MAX_CONCURRENT_REQUESTS("arcadedb.network.maxConcurrentRequests", SCOPE.SERVER, """
+      Maximum number of requests each binary wire-protocol listener (Postgres, Redis, BOLT) executes at the same time. \
+      Connections are cheap once they run on virtual threads, so this is what bounds the CPU the listener can ask for: \
+      requests past the cap wait for a free slot and are reported as queued. 0 means unlimited""", Integer.class, 0),
+
   NETWORK_USE_SSL("arcadedb.ssl.enabled", SCOPE.SERVER, "Use SSL for client connections", Boolean.class, false),
 
   NETWORK_SSL_KEYSTORE("arcadedb.ssl.keyStore", SCOPE.SERVER, "Path where the SSL certificates are stored", String.class, null),
@@ -1932,6 +2017,10 @@ public enum GlobalConfiguration {
       "Maximum size in bytes accepted for a single bind-message parameter value on the Postgres wire protocol. Values declaring a larger size are rejected before allocation. Default is 16MB",
       Integer.class, 16 * 1024 * 1024),
 
+  POSTGRES_COPY_BATCH_SIZE("arcadedb.postgres.copyBatchSize", SCOPE.SERVER,
+      "Number of rows COPY ... FROM STDIN commits per transaction when it runs outside an explicit transaction. Default is 10000",
+      Integer.class, 10_000),
+
   // BOLT (Neo4j)
   BOLT_PORT("arcadedb.bolt.port", SCOPE.SERVER,
       "TCP/IP port number used for incoming connections for BOLT plugin. Default is 7687", Integer.class, 7687),
@@ -2034,6 +2123,23 @@ public enum GlobalConfiguration {
       declared bytes are actually sent. Default is 536870912 (512MB).""",
       Integer.class, 536_870_912),
 
+  REDIS_MAX_MEMORY("arcadedb.redis.maxMemory", SCOPE.SERVER, """
+      Memory budget in bytes of the server-wide keyspace that Redis RAM commands (SET, GET, INCR, ...) use when a \
+      key is not bound to a database. The size of an entry is estimated from its key and value. Past the budget, \
+      keys are evicted according to arcadedb.redis.evictionPolicy. 0 means unlimited. Default is 67108864 (64MB).""",
+      Long.class, 64L * 1024 * 1024),
+
+  REDIS_EVICTION_POLICY("arcadedb.redis.evictionPolicy", SCOPE.SERVER, """
+      What the Redis keyspace does once arcadedb.redis.maxMemory is reached. 'lru' (default) evicts the least \
+      recently used key among a sample, 'lfu' the least frequently used one, 'noeviction' rejects writes with an \
+      OOM error until keys expire or are deleted.""",
+      String.class, "lru", Set.of("lru", "lfu", "noeviction")),
+
+  REDIS_EVICTION_SAMPLES("arcadedb.redis.evictionSamples", SCOPE.SERVER, """
+      Number of keys the Redis keyspace samples to pick each eviction victim, as Redis' maxmemory-samples. More \
+      samples approximate true LRU/LFU better at a higher CPU cost. Default is 5.""",
+      Integer.class, 5),
+
   // MONGO
   MONGO_PORT("arcadedb.mongo.port", SCOPE.SERVER,
       "TCP/IP port number used for incoming connections for Mongo plugin. Default is 27017", Integer.class, 27017),
@@ -2041,6 +2147,10 @@ public enum GlobalConfiguration {
   MONGO_HOST("arcadedb.mongo.host", SCOPE.SERVER,
       "TCP/IP host name used for incoming connections for Mongo plugin. Default is '0.0.0.0'", String.class, "0.0.0.0"),
 
+  MONGO_BATCH_SIZE("arcadedb.mongo.batchSize", SCOPE.SERVER,
+      "Number of documents returned in the first batch of a Mongo cursor when the client does not specify one. The rest is fetched with getMore. Default is 101",
+      Integer.class, 101),
+
   GAV_USE_WHEN_STALE("arcadedb.gavUseWhenStale", SCOPE.DATABASE,
       """
       When true, the query planner uses stale Graph Analytical Views (GAV/CSR) for traversals instead of falling back to OLTP. \
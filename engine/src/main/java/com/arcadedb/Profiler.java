@@ -309,6 +309,18 @@ public class Profiler {
     json.put("evictionRuns", new JSONObject().put("count", evictionRuns));
     json.put("pagesEvicted", new JSONObject().put("count", pagesEvicted));
     json.put("readCachePages", new JSONObject().put("count", readCachePages));
+    // The page cache policy's own view of the cache: a full scan shows up as rejections, not as a collapse of the hit
+    // ratio, and second chances are the hot pages the eviction hand walked past.
+    json.put("pageCachePolicy", pStats.cachePolicy);
+    json.put("pageCacheAdmissions", new JSONObject().put("count", pStats.cacheAdmissions));
+    json.put("pageCacheRejections", new JSONObject().put("count", pStats.cacheRejections));
+    json.put("pageCacheSecondChances", new JSONObject().put("count", pStats.cacheSecondChances));
+    // Read-ahead of sequential scans: misses are scan accesses to pages read ahead that were not in the cache any more
+    json.put("readAheadBatches", new JSONObject().put("count", pStats.readAheadBatches));
+    json.put("readAheadPages", new JSONObject().put("count", pStats.readAheadPages));
+    json.put("readAheadHits", new JSONObject().put("count", pStats.readAheadHits));
+    json.put("readAheadMisses", new JSONObject().put("count", pStats.readAheadMisses));
+    json.put("readAheadDroppedBatches", new JSONObject().put("count", pStats.readAheadDroppedBatches));
     json.put("writeCachePages", new JSONObject().put("count", writeCachePages));
     json.put("indexCompactions", new JSONObject().put("count", indexCompactions));
 
@@ -486,6 +498,11 @@ public class Profiler {
         FileUtils.getSizeAsString(readCacheUsed), readCachePages,
         FileUtils.getSizeAsString(cacheMax), pagesRead, FileUtils.getSizeAsString(pagesReadSize), pagesWritten,
         FileUtils.getSizeAsString(pagesWrittenSize)));
+      buffer.append("%n    policy=%s admissions=%d rejections=%d secondChances=%d".formatted(pStats.cachePolicy,
+        pStats.cacheAdmissions, pStats.cacheRejections, pStats.cacheSecondChances));
+      buffer.append("%n    readAhead maxPages=%d batches=%d pages=%d hits=%d misses=%d droppedBatches=%d".formatted(
+        pStats.readAheadMaxPages, pStats.readAheadBatches, pStats.readAheadPages, pStats.readAheadHits,
+        pStats.readAheadMisses, pStats.readAheadDroppedBatches));
 
       buffer.append(
         "%n DB databases=%d asyncParallelLevel=%d asyncQueue=%d writeTx=%d readTx=%d txRollbacks=%d queries=%d commands=%d".formatted(
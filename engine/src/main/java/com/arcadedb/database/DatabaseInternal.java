@@ -29,6 +29,7 @@ import com.arcadedb.exception.TransactionException;
 import com.arcadedb.exception.ValidationException;
 import com.arcadedb.graph.Edge;
 import com.arcadedb.graph.GraphEngine;
+import com.arcadedb.query.QueryResultCache;
 import com.arcadedb.query.opencypher.optimizer.statistics.GraphStatisticsCache;
 import com.arcadedb.query.opencypher.query.CypherPlanCache;
 import com.arcadedb.query.opencypher.query.CypherStatementCache;
@@ -249,6 +250,8 @@ public interface DatabaseInternal extends Database {
 
   CypherPlanCache getCypherPlanCache();
 
+  QueryResultCache getQueryResultCache();
+
   GraphStatisticsCache getGraphStatisticsCache();
 
   <RET> RET recordFileChanges(final Callable<Object> callback);
@@ -73,6 +73,7 @@ import com.arcadedb.index.TypeIndex;
 import com.arcadedb.index.hash.HashIndexBucket;
 import com.arcadedb.index.lsm.LSMTreeIndexBloomFilter;
 import com.arcadedb.index.lsm.LSMTreeIndexCompacted;
+import com.arcadedb.index.lsm.LSMTreeIndexCompactionThrottle;
 import com.arcadedb.index.lsm.LSMTreeIndexMutable;
 import com.arcadedb.index.sparsevector.SparseSegmentComponent;
 import com.arcadedb.index.vector.LSMVectorIndex;
@@ -80,6 +81,7 @@ import com.arcadedb.index.vector.LSMVectorIndexGraphFile;
 import com.arcadedb.log.LogManager;
 import com.arcadedb.query.QueryEngine;
 import com.arcadedb.query.QueryEngineManager;
+import com.arcadedb.query.QueryResultCache;
 import com.arcadedb.query.opencypher.optimizer.statistics.GraphStatisticsCache;
 import com.arcadedb.query.opencypher.query.CypherPlanCache;
 import com.arcadedb.query.opencypher.query.CypherStatementCache;
@@ -187,6 +189,7 @@ public class LocalDatabase extends RWLockContext implements DatabaseInternal {
   }
 
   public final       AtomicLong                                indexCompactions          = new AtomicLong();
+  public final       LSMTreeIndexCompactionThrottle            indexCompactionThrottle   = new LSMTreeIndexCompactionThrottle();
   protected final    String                                    name;
   protected final    ComponentFile.MODE                        mode;
   protected final    ContextConfiguration                      configuration;
@@ -210,6 +213,7 @@ public class LocalDatabase extends RWLockContext implements DatabaseInternal {
   private final      ExecutionPlanCache                        executionPlanCache;
   private final      CypherStatementCache                      cypherStatementCache;
   private final      CypherPlanCache                           cypherPlanCache;
+  private final      QueryResultCache                          queryResultCache;
   private final      GraphStatisticsCache                      graphStatisticsCache      = new GraphStatisticsCache();
   private final      File                                      configurationFile;
   private            DatabaseInternal                          wrappedDatabaseInstance   = this;
@@ -247,6 +251,7 @@ public class LocalDatabase extends RWLockContext implements DatabaseInternal {
           new CypherStatementCache(configuration.getValueAsInteger(GlobalConfiguration.OPENCYPHER_STATEMENT_CACHE));
       this.cypherPlanCache = new CypherPlanCache(this,
           configuration.getValueAsInteger(GlobalConfiguration.OPENCYPHER_PLAN_CACHE));
+      this.queryResultCache = new QueryResultCache(this);
 
       if (path.endsWith(File.separator))
         databasePath = path.substring(0, path.length() - 1);
@@ -527,6 +532,8 @@ public class LocalDatabase extends RWLockContext implements DatabaseInternal {
   public Map<String, Object> getStats() {
     final Map<String, Object> map = stats.toMap();
     map.put("indexCompactions", indexCompactions.get());
+    map.put("indexCompactionThrottledMs", indexCompactionThrottle.getThrottledMs());
+    map.putAll(queryResultCache.getStats());
     return map;
   }
 
@@ -2058,7 +2065,8 @@ public class LocalDatabase extends RWLockContext implements DatabaseInternal {
     stats.queries.incrementAndGet();
     final long start = QueryMetricsRecorder.Holder.startNanos();
     try (final QueryTracer.Span span = QueryTracer.Holder.begin(name, language, "query", query)) {
-      return getQueryEngine(language).query(query, new ContextConfiguration());
+      return queryResultCache.execute(language, query, null,
+          () -> getQueryEngine(language).query(query, new ContextConfiguration()));
     } finally {
       QueryMetricsRecorder.Holder.record(start, name, language, "query");
     }
@@ -2070,7 +2078,8 @@ public class LocalDatabase extends RWLockContext implements DatabaseInternal {
     stats.queries.incrementAndGet();
     final long start = QueryMetricsRecorder.Holder.startNanos();
     try (final QueryTracer.Span span = QueryTracer.Holder.begin(name, language, "query", query)) {
-      return getQueryEngine(language).query(query, new ContextConfiguration(), parameters);
+      return queryResultCache.execute(language, query, parameters,
+          () -> getQueryEngine(language).query(query, new ContextConfiguration(), parameters));
     } finally {
       QueryMetricsRecorder.Holder.record(start, name, language, "query");
     }
@@ -2082,7 +2091,8 @@ public class LocalDatabase extends RWLockContext implements DatabaseInternal {
     stats.queries.incrementAndGet();
     final long start = QueryMetricsRecorder.Holder.startNanos();
     try (final QueryTracer.Span span = QueryTracer.Holder.begin(name, language, "query", query)) {
-      return getQueryEngine(language).query(query, new ContextConfiguration(), parameters);
+      return queryResultCache.execute(language, query, parameters,
+          () -> getQueryEngine(language).query(query, new ContextConfiguration(), parameters));
     } finally {
       QueryMetricsRecorder.Holder.record(start, name, language, "query");
     }
@@ -2259,6 +2269,11 @@ public class LocalDatabase extends RWLockContext implements DatabaseInternal {
     return cypherPlanCache;
   }
 
+  @Override
+  public QueryResultCache getQueryResultCache() {
+    return queryResultCache;
+  }
+
   @Override
   public GraphStatisticsCache getGraphStatisticsCache() {
     return graphStatisticsCache;
@@ -42,6 +42,7 @@ import com.arcadedb.index.IndexInternal;
 import com.arcadedb.index.TypeIndex;
 import com.arcadedb.index.lsm.LSMTreeIndexAbstract;
 import com.arcadedb.log.LogManager;
+import com.arcadedb.query.QueryResultCache;
 import com.arcadedb.schema.LocalSchema;
 import com.arcadedb.utility.IntHashSet;
 import com.arcadedb.utility.IntIntHashMap;
@@ -579,6 +580,8 @@ public class TransactionContext implements Transaction {
    * Looks for the page in the TX context first, then delegates to the database.
    */
   public BasePage getPage(final PageId pageId, final int size) throws IOException {
+    QueryResultCache.trackRead(pageId.getFileId());
+
     BasePage page = null;
 
     if (modifiedPages != null)
@@ -1939,6 +1942,11 @@ public class TransactionContext implements Transaction {
           .log(this, Level.FINE, "Unknown exception during commit (threadId=%d)", e, Thread.currentThread().threadId());
       throw new TransactionException("Transaction error on commit", e);
     } finally {
+      if ((committed || walAppended) && lockedFiles != null)
+        // THE PUBLISHED PAGES CHANGED THE RESULTS OF THE CACHED QUERIES THAT READ THESE FILES. INVALIDATE BEFORE RELEASING
+        // THE LOCKS, SO A QUERY RUNNING CONCURRENTLY CANNOT CACHE ANY STALE RESULT AFTER THIS POINT
+        database.getQueryResultCache().invalidate(lockedFiles);
+
       if (committed)
         resetAndFireCallbacks();
       else if (walAppended) {
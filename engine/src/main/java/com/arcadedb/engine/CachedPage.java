@@ -37,6 +37,8 @@ public class CachedPage {
   private final int    size;
   private       int    version;
   private       long   lastAccessed = System.currentTimeMillis();
+  // CLOCK REFERENCE COUNTER, SEE ClockPageCachePolicy. UPDATED WITHOUT SYNCHRONIZATION: A LOST UPDATE ONLY COSTS A LAP
+  private       int    references;
 
   public CachedPage(final MutablePage page, final boolean copyBuffer) {
     this.pageId = page.pageId;
@@ -91,6 +93,27 @@ public class CachedPage {
     lastAccessed = System.currentTimeMillis();
   }
 
+  void reference(final int maxReferences) {
+    if (references < maxReferences)
+      ++references;
+  }
+
+  boolean consumeReference() {
+    if (references > 0) {
+      --references;
+      return true;
+    }
+    return false;
+  }
+
+  int getReferences() {
+    return references;
+  }
+
+  void inheritReferences(final CachedPage previous) {
+    references = previous.references;
+  }
+
   public PageId getPageId() {
     return pageId;
   }
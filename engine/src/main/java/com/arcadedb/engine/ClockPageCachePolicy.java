@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.database.BasicDatabase;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scan-resistant page cache policy: a sharded generalized CLOCK for eviction with a TinyLFU filter for admission.
+ * <p>
+ * <b>Eviction.</b> The cached pages are split across power-of-two shards by page id, each with its own ring and lock.
+ * A hit only bumps a small per-page reference counter (up to {@link #MAX_REFERENCES}); the eviction hand walks the ring
+ * and either consumes one reference, giving the page another lap, or evicts it. The work of a run is therefore
+ * proportional to the pages it frees, not to the size of the cache, and nothing is sorted or copied. Only one thread
+ * evicts at a time and the others go on without waiting for it, so a full cache does not stall every loader thread.
+ * <p>
+ * <b>Admission.</b> Once the cache is full a page read from disk is cached only if the {@link PageCacheFrequencySketch}
+ * says it is accessed more often than the page the hand would evict next. A full scan of a large type reads each page
+ * once, so its pages lose that comparison against the index and dictionary pages that are hit all the time, and they
+ * are served without displacing them.
+ * <p>
+ * The rings hold page ids rather than the pages, so a page replaced by a newer version keeps its slot. An id whose page
+ * left the cache by another path (a dropped file, a closed database) is discarded the next time the hand reaches it,
+ * and the ring is compacted when stale ids pile up.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class ClockPageCachePolicy implements PageCachePolicy {
+  public static final String NAME           = "clock";
+  static final        int    MAX_REFERENCES = 3;
+  private static final int   MIN_COMPACTION = 1024;
+
+  private final ConcurrentMap<PageId, CachedPage> cache;
+  private final Shard[]                           shards;
+  private final int                               shardMask;
+  private final PageCacheFrequencySketch          sketch;
+  private final AtomicInteger                     hand          = new AtomicInteger();
+  private final AtomicBoolean                     evicting      = new AtomicBoolean();
+  private final AtomicLong                        admissions    = new AtomicLong();
+  private final AtomicLong                        rejections    = new AtomicLong();
+  private final AtomicLong                        secondChances = new AtomicLong();
+
+  private static final class Shard {
+    final ReentrantLock      lock = new ReentrantLock();
+    final ArrayDeque<PageId> ring = new ArrayDeque<>();
+    int compactionThreshold = MIN_COMPACTION;
+  }
+
+  /**
+   * @param cache         the page manager's read cache, consulted to tell live ids from stale ones
+   * @param expectedPages how many pages the cache holds when full, used to size the frequency sketch
+   */
+  public ClockPageCachePolicy(final ConcurrentMap<PageId, CachedPage> cache, final long expectedPages) {
+    this.cache = cache;
+    final int totalShards = Math.min(256, Integer.highestOneBit(Math.max(4, Runtime.getRuntime().availableProcessors() * 4) - 1) << 1);
+    this.shards = new Shard[totalShards];
+    for (int i = 0; i < totalShards; i++)
+      shards[i] = new Shard();
+    this.shardMask = totalShards - 1;
+    this.sketch = new PageCacheFrequencySketch(expectedPages);
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public void recordAccess(final PageId pageId) {
+    sketch.increment(pageId.hashCode());
+  }
+
+  @Override
+  public void onHit(final CachedPage page) {
+    page.reference(MAX_REFERENCES);
+  }
+
+  @Override
+  public void onInsert(final CachedPage page) {
+    final Shard shard = shardOf(page.getPageId());
+    shard.lock.lock();
+    try {
+      shard.ring.addLast(page.getPageId());
+      if (shard.ring.size() > shard.compactionThreshold)
+        compact(shard);
+    } finally {
+      shard.lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean admit(final CachedPage candidate) {
+    final Shard shard = shardOf(candidate.getPageId());
+    final PageId victim;
+    shard.lock.lock();
+    try {
+      victim = shard.ring.peekFirst();
+    } finally {
+      shard.lock.unlock();
+    }
+
+    if (victim == null || sketch.frequency(candidate.getPageId().hashCode()) > sketch.frequency(victim.hashCode())) {
+      admissions.incrementAndGet();
+      return true;
+    }
+
+    rejections.incrementAndGet();
+    return false;
+  }
+
+  @Override
+  public long evict(final long ramToFree, final Collection<CachedPage> residents, final Evictor evictor) {
+    if (!evicting.compareAndSet(false, true))
+      // ANOTHER THREAD IS ALREADY FREEING RAM: DO NOT WAIT FOR IT
+      return -1L;
+
+    try {
+      long freed = 0L;
+      // THE FIRST LAP ASKS EACH SHARD FOR ITS SHARE, THE NEXT ONES MAKE UP FOR THE SHARDS THAT HAD LESS. A PAGE LOSES ONE
+      // REFERENCE PER LAP, SO AFTER MAX_REFERENCES + 1 LAPS EVEN A CACHE OF ONLY HOT PAGES HAS GIVEN UP ITS VICTIMS
+      for (int lap = 0; lap <= MAX_REFERENCES && freed < ramToFree; lap++) {
+        final int start = hand.getAndIncrement();
+        for (int i = 0; i < shards.length && freed < ramToFree; i++) {
+          final long remaining = ramToFree - freed;
+          final long target = lap == 0 ? Math.min(remaining, ramToFree / shards.length + 1) : remaining;
+          final Shard shard = shards[(start + i) & shardMask];
+          shard.lock.lock();
+          try {
+            freed += sweep(shard, target, evictor);
+          } finally {
+            shard.lock.unlock();
+          }
+        }
+      }
+      return freed;
+    } finally {
+      evicting.set(false);
+    }
+  }
+
+  /**
+   * Drops the ids of the database eagerly, so the rings do not keep a closed database instance reachable until the hand
+   * gets to them.
+   */
+  @Override
+  public void removeAllPagesOfDatabase(final BasicDatabase database) {
+    for (final Shard shard : shards) {
+      shard.lock.lock();
+      try {
+        shard.ring.removeIf(pageId -> pageId.getDatabase().equals(database));
+      } finally {
+        shard.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (final Shard shard : shards) {
+      shard.lock.lock();
+      try {
+        shard.ring.clear();
+        shard.compactionThreshold = MIN_COMPACTION;
+      } finally {
+        shard.lock.unlock();
+      }
+    }
+    sketch.clear();
+  }
+
+  @Override
+  public long getAdmissions() {
+    return admissions.get();
+  }
+
+  @Override
+  public long getRejections() {
+    return rejections.get();
+  }
+
+  @Override
+  public long getSecondChances() {
+    return secondChances.get();
+  }
+
+  /**
+   * Advances the hand of one shard by at most one revolution, so a call costs at most the size of the shard even when
+   * every page in it is hot.
+   */
+  private long sweep(final Shard shard, final long target, final Evictor evictor) {
+    final ArrayDeque<PageId> ring = shard.ring;
+    long freed = 0L;
+    for (int steps = ring.size(); freed < target && steps > 0 && !ring.isEmpty(); --steps) {
+      final PageId pageId = ring.pollFirst();
+      final CachedPage page = cache.get(pageId);
+      if (page == null)
+        // STALE: THE PAGE LEFT THE CACHE BY ANOTHER PATH
+        continue;
+
+      if (page.consumeReference()) {
+        secondChances.incrementAndGet();
+        ring.addLast(pageId);
+        continue;
+      }
+
+      final long released = evictor.evict(page);
+      if (released > 0)
+        freed += released;
+      else if (cache.containsKey(pageId))
+        // REPLACED BY A NEWER VERSION IN THE MEANTIME: KEEP TRACKING IT
+        ring.addLast(pageId);
+    }
+    return freed;
+  }
+
+  /**
+   * Drops the stale and duplicated ids. Runs when the ring has doubled since the last compaction, so its cost amortizes
+   * to a constant per insert.
+   */
+  private void compact(final Shard shard) {
+    final Set<PageId> seen = new HashSet<>(shard.ring.size());
+    shard.ring.removeIf(pageId -> !cache.containsKey(pageId) || !seen.add(pageId));
+    shard.compactionThreshold = Math.max(MIN_COMPACTION, shard.ring.size() * 2);
+  }
+
+  private Shard shardOf(final PageId pageId) {
+    final int h = pageId.hashCode();
+    return shards[(h ^ (h >>> 16)) & shardMask];
+  }
+}
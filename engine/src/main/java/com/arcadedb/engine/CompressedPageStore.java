@@ -0,0 +1,569 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Physical layout of a paginated file whose pages are compressed with a {@link PageCodec}. Pages have a variable physical
+ * length, so they cannot live at {@code pageNumber * pageSize}: the file is a header followed by slots, each holding one
+ * page, and the position of every page is kept in memory in a page-offset map rebuilt from the slot headers when the file
+ * is opened.
+ * <p>
+ * Layout:
+ * <pre>
+ * header: magic (int) | format version (byte) | codec (byte), padded to {@link #SLOT_ALIGNMENT}
+ * slot:   page number (int) | capacity (int) | payload length (int) | encoding (byte) | sequence (long) | crc32 (int) | payload
+ * </pre>
+ * Slots are aligned to {@link #SLOT_ALIGNMENT} bytes. A page is never overwritten in place: every write goes to a free
+ * slot large enough or to the end of the file, and the previous slot of the page is freed only once the new one has been
+ * written. A crash in the middle of a write therefore leaves the previous version of the page intact; on open the slot
+ * with the highest sequence and a valid checksum wins. The magic is a negative int, a value the version of the first page
+ * of an uncompressed file can never have.
+ * <p>
+ * The dictionary of the {@link PageCodec#DICTIONARY} codec is trained on the first {@link #DICTIONARY_SAMPLE_PAGES} pages
+ * written and stored in its own slot (page number {@link #DICTIONARY_PAGE}); the pages written before it exists are
+ * compressed with plain DEFLATE.
+ */
+public class CompressedPageStore {
+  public static final  int    MAGIC                   = 0xACDBC0DE;
+  public static final  int    SLOT_ALIGNMENT          = 256;
+  private static final byte   FORMAT_VERSION          = 1;
+  private static final int    SLOT_HEADER_SIZE        = 32;
+  private static final int    DICTIONARY_PAGE         = -1;
+  private static final int    DICTIONARY_SAMPLE_PAGES = 8;
+  private static final int    DICTIONARY_MAX_SIZE     = 32 * 1024;
+  private static final int    DICTIONARY_SEGMENT      = 16;
+  private static final byte   ENCODING_STORED         = 0;
+  private static final byte   ENCODING_LZ4            = 1;
+  private static final byte   ENCODING_DEFLATE        = 2;
+  private static final byte   ENCODING_DEFLATE_DICT   = 3;
+  private static final LZ4Factory LZ4_FACTORY         = LZ4Factory.fastestInstance();
+
+  private final    String                            fileName;
+  private final    int                               pageSize;
+  private final    PageCodec                         codec;
+  private final    LZ4Compressor                     lz4Compressor   = LZ4_FACTORY.fastCompressor();
+  private final    LZ4FastDecompressor               lz4Decompressor = LZ4_FACTORY.fastDecompressor();
+  private volatile AtomicReferenceArray<Slot>        slots;
+  private final    TreeMap<Integer, ArrayDeque<Long>> freeSlots      = new TreeMap<>();
+  private volatile byte[]                            dictionary;
+  private          List<byte[]>                      dictionarySamples;
+  private          long                              end;
+  private          long                              sequence;
+  private volatile int                               totalPages;
+  private          long                              storedPages;
+  private          long                              compressedBytes;
+  private          long                              freeBytes;
+
+  private record Slot(long offset, int capacity, int length, long sequence) {
+  }
+
+  private record Encoded(byte encoding, byte[] payload, int length) {
+  }
+
+  private CompressedPageStore(final String fileName, final int pageSize, final PageCodec codec) {
+    this.fileName = fileName;
+    this.pageSize = pageSize;
+    this.codec = codec;
+    this.slots = new AtomicReferenceArray<>(16);
+    if (codec == PageCodec.DICTIONARY)
+      this.dictionarySamples = new ArrayList<>(DICTIONARY_SAMPLE_PAGES);
+  }
+
+  /**
+   * Returns true if the file starts with the header of a compressed file.
+   */
+  public static boolean isCompressed(final FileChannel channel) throws IOException {
+    if (channel.size() < Integer.BYTES)
+      return false;
+    final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+    readFully(channel, buffer, 0);
+    return buffer.getInt(0) == MAGIC;
+  }
+
+  /**
+   * Writes the header of a new, empty, compressed file.
+   */
+  public static CompressedPageStore create(final FileChannel channel, final String fileName, final int pageSize,
+      final PageCodec codec) throws IOException {
+    if (codec == PageCodec.NONE)
+      throw new IllegalArgumentException("Codec NONE does not use a compressed layout");
+    if (channel.size() > 0)
+      throw new IOException("Cannot compress the pages of file '" + fileName + "' because it is not empty");
+
+    final ByteBuffer header = ByteBuffer.allocate(SLOT_ALIGNMENT);
+    header.putInt(MAGIC).put(FORMAT_VERSION).put(codec.id);
+    header.clear();
+    writeFully(channel, header, 0);
+
+    final CompressedPageStore store = new CompressedPageStore(fileName, pageSize, codec);
+    store.end = SLOT_ALIGNMENT;
+    return store;
+  }
+
+  /**
+   * Loads the page-offset map of an existing compressed file by scanning its slot headers.
+   */
+  public static CompressedPageStore load(final FileChannel channel, final String fileName, final int pageSize)
+      throws IOException {
+    final ByteBuffer header = ByteBuffer.allocate(6);
+    readFully(channel, header, 0);
+    if (header.getInt(0) != MAGIC)
+      throw new IOException("File '" + fileName + "' is not a compressed paginated file");
+    if (header.get(4) != FORMAT_VERSION)
+      throw new IOException("Unsupported format version " + header.get(4) + " of compressed file '" + fileName + "'");
+
+    final CompressedPageStore store = new CompressedPageStore(fileName, pageSize, PageCodec.getById(header.get(5)));
+    store.scan(channel);
+    return store;
+  }
+
+  public PageCodec getCodec() {
+    return codec;
+  }
+
+  public int getTotalPages() {
+    return totalPages;
+  }
+
+  /**
+   * Returns the physical size of the file: the header and all the slots, free ones included.
+   */
+  public synchronized long getPhysicalSize() {
+    return end;
+  }
+
+  /**
+   * Per-file compression metrics. The ratio is the logical size (pages x page size) divided by the physical size.
+   */
+  public synchronized Map<String, Object> getStats() {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    final long logicalSize = (long) totalPages * pageSize;
+    map.put("pageCompression", codec.name().toLowerCase(Locale.ENGLISH));
+    map.put("logicalSize", logicalSize);
+    map.put("physicalSize", end);
+    map.put("compressedSize", compressedBytes);
+    map.put("freeSize", freeBytes);
+    map.put("compressionRatio", end > 0 ? Math.round(logicalSize * 100D / end) / 100D : 0D);
+    map.put("storedPages", storedPages);
+    map.put("dictionarySize", dictionary != null ? dictionary.length : 0);
+    return map;
+  }
+
+  /**
+   * Compresses the page and writes it to a new slot, then frees the previous slot of the page.
+   *
+   * @param page the page content, {@code pageSize} bytes from position 0
+   */
+  public void write(final FileChannel channel, final int pageNumber, final ByteBuffer page) throws IOException {
+    final byte[] raw = new byte[pageSize];
+    page.get(0, raw, 0, pageSize);
+
+    collectDictionarySample(channel, raw);
+
+    final Encoded encoded = encode(raw);
+    final CRC32 crc = new CRC32();
+    crc.update(encoded.payload, 0, encoded.length);
+
+    final Slot slot;
+    synchronized (this) {
+      slot = allocate(align(SLOT_HEADER_SIZE + encoded.length), encoded.length, ++sequence);
+    }
+
+    final ByteBuffer buffer = ByteBuffer.allocate(SLOT_HEADER_SIZE + encoded.length);
+    buffer.putInt(pageNumber).putInt(slot.capacity).putInt(encoded.length).put(encoded.encoding).put(new byte[3])
+        .putLong(slot.sequence).putInt((int) crc.getValue()).putInt(0);
+    buffer.put(encoded.payload, 0, encoded.length);
+    buffer.clear();
+    writeFully(channel, buffer, slot.offset);
+
+    synchronized (this) {
+      final Slot previous = getSlot(pageNumber);
+      if (previous != null && previous.sequence > slot.sequence) {
+        // A CONCURRENT WRITE OF THE SAME PAGE COMPLETED AFTER THIS ONE
+        free(slot);
+        return;
+      }
+      setSlot(pageNumber, slot);
+      if (previous != null) {
+        free(previous);
+        compressedBytes -= previous.length;
+        --storedPages;
+      }
+      compressedBytes += slot.length;
+      ++storedPages;
+    }
+  }
+
+  /**
+   * Reads and decompresses the page into {@code target}, starting from its current position. A page never written reads
+   * as zeros, like the hole of a sparse file.
+   */
+  public void read(final FileChannel channel, final int pageNumber, final ByteBuffer target) throws IOException {
+    for (int attempt = 0; attempt < 3; attempt++) {
+      final Slot slot = getSlot(pageNumber);
+      if (slot == null) {
+        target.put(new byte[pageSize]);
+        return;
+      }
+
+      final ByteBuffer buffer = ByteBuffer.allocate(SLOT_HEADER_SIZE + slot.length);
+      readFully(channel, buffer, slot.offset);
+      if (buffer.getInt(0) != pageNumber || buffer.getLong(16) != slot.sequence)
+        // THE SLOT HAS BEEN FREED AND REUSED WHILE READING IT: THE PAGE HAS A NEWER SLOT
+        continue;
+
+      final byte[] payload = new byte[slot.length];
+      buffer.get(SLOT_HEADER_SIZE, payload, 0, slot.length);
+
+      final CRC32 crc = new CRC32();
+      crc.update(payload);
+      if ((int) crc.getValue() != buffer.getInt(24))
+        throw new IOException("Corrupted page " + pageNumber + " in file '" + fileName + "': checksum mismatch");
+
+      target.put(decode(buffer.get(12), payload, pageNumber));
+      return;
+    }
+    throw new IOException("Cannot read page " + pageNumber + " from file '" + fileName + "': it is being moved");
+  }
+
+  private Slot getSlot(final int pageNumber) {
+    final AtomicReferenceArray<Slot> array = slots;
+    return pageNumber < array.length() ? array.get(pageNumber) : null;
+  }
+
+  private void setSlot(final int pageNumber, final Slot slot) {
+    AtomicReferenceArray<Slot> array = slots;
+    if (pageNumber >= array.length()) {
+      final AtomicReferenceArray<Slot> newArray = new AtomicReferenceArray<>(Math.max(pageNumber + 1, array.length() * 2));
+      for (int i = 0; i < array.length(); i++)
+        newArray.set(i, array.get(i));
+      slots = array = newArray;
+    }
+    array.set(pageNumber, slot);
+    if (pageNumber >= totalPages)
+      totalPages = pageNumber + 1;
+  }
+
+  /**
+   * Best fit among the free slots, as long as it does not waste more than half of it, otherwise appends a new slot at the
+   * end of the file.
+   */
+  private Slot allocate(final int capacity, final int length, final long slotSequence) {
+    final Map.Entry<Integer, ArrayDeque<Long>> free = freeSlots.ceilingEntry(capacity);
+    if (free != null && free.getKey() <= capacity * 2) {
+      final long offset = free.getValue().poll();
+      if (free.getValue().isEmpty())
+        freeSlots.remove(free.getKey());
+      freeBytes -= free.getKey();
+      return new Slot(offset, free.getKey(), length, slotSequence);
+    }
+
+    final Slot slot = new Slot(end, capacity, length, slotSequence);
+    end += capacity;
+    return slot;
+  }
+
+  private void free(final Slot slot) {
+    freeSlots.computeIfAbsent(slot.capacity, k -> new ArrayDeque<>()).add(slot.offset);
+    freeBytes += slot.capacity;
+  }
+
+  private void scan(final FileChannel channel) throws IOException {
+    final long size = channel.size();
+    final Map<Integer, List<Slot>> duplicates = new HashMap<>();
+    final ByteBuffer header = ByteBuffer.allocate(SLOT_HEADER_SIZE);
+    Slot dictionarySlot = null;
+
+    long pos = SLOT_ALIGNMENT;
+    while (pos + SLOT_HEADER_SIZE <= size) {
+      header.clear();
+      readFully(channel, header, pos);
+      final int pageNumber = header.getInt(0);
+      final int capacity = header.getInt(4);
+      final int length = header.getInt(8);
+      // ONLY THE HEADER AND THE PAYLOAD ARE WRITTEN, SO THE LAST SLOT CAN END BEFORE ITS CAPACITY
+      if (capacity < SLOT_HEADER_SIZE || capacity % SLOT_ALIGNMENT != 0 || length < 0 || SLOT_HEADER_SIZE + length > capacity
+          || pos + SLOT_HEADER_SIZE + length > size)
+        // TRUNCATED TAIL OF A WRITE INTERRUPTED BY A CRASH: THE SPACE IS REUSED BY THE NEXT APPEND
+        break;
+
+      final Slot slot = new Slot(pos, capacity, length, header.getLong(16));
+      if (slot.sequence > sequence)
+        sequence = slot.sequence;
+
+      if (pageNumber == DICTIONARY_PAGE) {
+        if (dictionarySlot == null || slot.sequence > dictionarySlot.sequence)
+          dictionarySlot = slot;
+      } else if (pageNumber >= 0) {
+        final Slot current = getSlot(pageNumber);
+        if (current == null)
+          setSlot(pageNumber, slot);
+        else {
+          final List<Slot> candidates = duplicates.computeIfAbsent(pageNumber, k -> new ArrayList<>(List.of(current)));
+          candidates.add(slot);
+        }
+      }
+      pos += capacity;
+    }
+    end = pos;
+
+    if (dictionarySlot != null) {
+      final ByteBuffer buffer = ByteBuffer.allocate(dictionarySlot.length);
+      readFully(channel, buffer, dictionarySlot.offset + SLOT_HEADER_SIZE);
+      dictionary = buffer.array();
+    }
+    if (dictionarySamples != null && dictionary != null)
+      dictionarySamples = null;
+
+    // A PAGE WITH MORE THAN ONE SLOT: THE NEWEST WITH A VALID CHECKSUM WINS, THE OTHERS ARE FREE
+    for (final Map.Entry<Integer, List<Slot>> entry : duplicates.entrySet()) {
+      final List<Slot> candidates = entry.getValue();
+      candidates.sort((a, b) -> Long.compare(b.sequence, a.sequence));
+      Slot winner = null;
+      for (final Slot candidate : candidates)
+        if (winner == null && isValid(channel, candidate))
+          winner = candidate;
+      if (winner == null)
+        winner = candidates.getFirst();
+      setSlot(entry.getKey(), winner);
+    }
+
+    final Set<Long> used = new HashSet<>();
+    for (int i = 0; i < slots.length(); i++) {
+      final Slot slot = slots.get(i);
+      if (slot != null) {
+        used.add(slot.offset);
+        compressedBytes += slot.length;
+        ++storedPages;
+      }
+    }
+    if (dictionarySlot != null)
+      used.add(dictionarySlot.offset);
+    for (final List<Slot> candidates : duplicates.values())
+      for (final Slot candidate : candidates)
+        if (!used.contains(candidate.offset))
+          free(candidate);
+  }
+
+  private boolean isValid(final FileChannel channel, final Slot slot) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(SLOT_HEADER_SIZE + slot.length);
+    readFully(channel, buffer, slot.offset);
+    final CRC32 crc = new CRC32();
+    crc.update(buffer.array(), SLOT_HEADER_SIZE, slot.length);
+    return (int) crc.getValue() == buffer.getInt(24);
+  }
+
+  private Encoded encode(final byte[] raw) {
+    byte[] payload;
+    int length;
+    byte encoding;
+    if (codec == PageCodec.LZ4) {
+      payload = new byte[lz4Compressor.maxCompressedLength(raw.length)];
+      length = lz4Compressor.compress(raw, 0, raw.length, payload, 0, payload.length);
+      encoding = ENCODING_LZ4;
+    } else {
+      final byte[] dict = dictionary;
+      final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      try {
+        if (dict != null)
+          deflater.setDictionary(dict);
+        deflater.setInput(raw);
+        deflater.finish();
+        payload = new byte[raw.length + 64];
+        length = 0;
+        while (!deflater.finished() && length < payload.length)
+          length += deflater.deflate(payload, length, payload.length - length);
+        if (!deflater.finished())
+          length = Integer.MAX_VALUE;
+      } finally {
+        deflater.end();
+      }
+      encoding = dict != null ? ENCODING_DEFLATE_DICT : ENCODING_DEFLATE;
+    }
+
+    if (length >= raw.length)
+      // INCOMPRESSIBLE PAGE
+      return new Encoded(ENCODING_STORED, raw, raw.length);
+    return new Encoded(encoding, payload, length);
+  }
+
+  private byte[] decode(final byte encoding, final byte[] payload, final int pageNumber) throws IOException {
+    switch (encoding) {
+    case ENCODING_STORED:
+      return payload;
+    case ENCODING_LZ4: {
+      final byte[] raw = new byte[pageSize];
+      lz4Decompressor.decompress(payload, 0, raw, 0, pageSize);
+      return raw;
+    }
+    case ENCODING_DEFLATE:
+    case ENCODING_DEFLATE_DICT: {
+      final byte[] raw = new byte[pageSize];
+      final Inflater inflater = new Inflater(true);
+      try {
+        if (encoding == ENCODING_DEFLATE_DICT) {
+          if (dictionary == null)
+            throw new IOException("Missing dictionary to decompress page " + pageNumber + " of file '" + fileName + "'");
+          inflater.setDictionary(dictionary);
+        }
+        inflater.setInput(payload);
+        int length = 0;
+        while (length < pageSize && !inflater.finished()) {
+          final int inflated = inflater.inflate(raw, length, pageSize - length);
+          if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+            break;
+          length += inflated;
+        }
+        if (length != pageSize)
+          throw new IOException("Corrupted page " + pageNumber + " in file '" + fileName + "': decompressed to " + length + " bytes");
+      } catch (final DataFormatException e) {
+        throw new IOException("Corrupted page " + pageNumber + " in file '" + fileName + "'", e);
+      } finally {
+        inflater.end();
+      }
+      return raw;
+    }
+    default:
+      throw new IOException("Unknown encoding " + encoding + " of page " + pageNumber + " in file '" + fileName + "'");
+    }
+  }
+
+  /**
+   * Collects the first pages written as samples and, once there are enough of them, trains the dictionary and persists it
+   * in its own slot. Runs at most once per file.
+   */
+  private void collectDictionarySample(final FileChannel channel, final byte[] raw) throws IOException {
+    if (dictionarySamples == null)
+      return;
+
+    final byte[] trained;
+    synchronized (this) {
+      if (dictionarySamples == null)
+        return;
+      dictionarySamples.add(raw.clone());
+      if (dictionarySamples.size() < DICTIONARY_SAMPLE_PAGES)
+        return;
+      trained = trainDictionary(dictionarySamples);
+      dictionarySamples = null;
+    }
+
+    final Slot slot;
+    synchronized (this) {
+      slot = allocate(align(SLOT_HEADER_SIZE + trained.length), trained.length, ++sequence);
+    }
+    final CRC32 crc = new CRC32();
+    crc.update(trained);
+    final ByteBuffer buffer = ByteBuffer.allocate(SLOT_HEADER_SIZE + trained.length);
+    buffer.putInt(DICTIONARY_PAGE).putInt(slot.capacity).putInt(trained.length).put(ENCODING_STORED).put(new byte[3])
+        .putLong(slot.sequence).putInt((int) crc.getValue()).putInt(0);
+    buffer.put(trained);
+    buffer.clear();
+    writeFully(channel, buffer, slot.offset);
+
+    // ONLY THE PAGES WRITTEN FROM NOW ON USE IT: THE DICTIONARY MUST BE ON DISK BEFORE ANY PAGE DEPENDING ON IT
+    dictionary = trained;
+  }
+
+  /**
+   * Builds a DEFLATE preset dictionary from the segments that recur most across the sample pages. Segments made of a single
+   * repeated byte (the zeroed free space of a page) are skipped because DEFLATE already compresses them to nothing. The most
+   * frequent segments go at the end of the dictionary, where DEFLATE reaches them with the shortest distances.
+   */
+  static byte[] trainDictionary(final List<byte[]> samples) {
+    final Map<String, int[]> counts = new HashMap<>();
+    for (final byte[] sample : samples) {
+      final Set<String> seenInSample = new HashSet<>();
+      for (int i = 0; i + DICTIONARY_SEGMENT <= sample.length; i += DICTIONARY_SEGMENT / 2) {
+        if (isUniform(sample, i))
+          continue;
+        final String segment = new String(sample, i, DICTIONARY_SEGMENT, StandardCharsets.ISO_8859_1);
+        final int[] count = counts.computeIfAbsent(segment, k -> new int[2]);
+        count[0]++;
+        if (seenInSample.add(segment))
+          // NUMBER OF PAGES THE SEGMENT APPEARS IN
+          count[1]++;
+      }
+    }
+
+    final List<Map.Entry<String, int[]>> ranked = new ArrayList<>();
+    for (final Map.Entry<String, int[]> entry : counts.entrySet())
+      if (entry.getValue()[1] > 1 || entry.getValue()[0] > 2)
+        ranked.add(entry);
+    ranked.sort((a, b) -> Integer.compare(b.getValue()[0] * b.getValue()[1], a.getValue()[0] * a.getValue()[1]));
+
+    final int segments = Math.min(ranked.size(), DICTIONARY_MAX_SIZE / DICTIONARY_SEGMENT);
+    final byte[] dictionary = new byte[segments * DICTIONARY_SEGMENT];
+    for (int i = 0; i < segments; i++) {
+      final byte[] segment = ranked.get(i).getKey().getBytes(StandardCharsets.ISO_8859_1);
+      System.arraycopy(segment, 0, dictionary, dictionary.length - (i + 1) * DICTIONARY_SEGMENT, DICTIONARY_SEGMENT);
+    }
+    return dictionary.length > 0 ? dictionary : Arrays.copyOf(samples.getFirst(), Math.min(DICTIONARY_MAX_SIZE,
+        samples.getFirst().length));
+  }
+
+  private static boolean isUniform(final byte[] sample, final int offset) {
+    for (int i = offset + 1; i < offset + DICTIONARY_SEGMENT; i++)
+      if (sample[i] != sample[offset])
+        return false;
+    return true;
+  }
+
+  private static int align(final int size) {
+    return (size + SLOT_ALIGNMENT - 1) / SLOT_ALIGNMENT * SLOT_ALIGNMENT;
+  }
+
+  private static void readFully(final FileChannel channel, final ByteBuffer buffer, long pos) throws IOException {
+    while (buffer.hasRemaining()) {
+      final int r = channel.read(buffer, pos);
+      if (r < 0)
+        throw new IOException("Unexpected EOF reading compressed file at position " + pos);
+      pos += r;
+    }
+  }
+
+  private static void writeFully(final FileChannel channel, final ByteBuffer buffer, long pos) throws IOException {
+    while (buffer.hasRemaining())
+      pos += channel.write(buffer, pos);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.database.BasicDatabase;
+
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * The original page cache policy: every page is admitted and, when the cache is full, all the cached pages are sorted
+ * by last access and the oldest ones are evicted. The cost of an eviction run grows with the size of the cache and a
+ * full scan of a large type evicts the hot pages along with everything else, so this is kept only for compatibility.
+ * Use {@link ClockPageCachePolicy} instead.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class LRUPageCachePolicy implements PageCachePolicy {
+  public static final String NAME = "lru";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public void recordAccess(final PageId pageId) {
+  }
+
+  @Override
+  public void onHit(final CachedPage page) {
+    page.updateLastAccesses();
+  }
+
+  @Override
+  public void onInsert(final CachedPage page) {
+  }
+
+  @Override
+  public boolean admit(final CachedPage candidate) {
+    return true;
+  }
+
+  @Override
+  public synchronized long evict(final long ramToFree, final Collection<CachedPage> residents, final Evictor evictor) {
+    // ORDER PAGES BY LAST ACCESS + SIZE
+    final TreeSet<CachedPage> pagesOrderedByAge = new TreeSet<>((o1, o2) -> {
+      final int lastAccessed = Long.compare(o1.getLastAccessed(), o2.getLastAccessed());
+      if (lastAccessed != 0)
+        return lastAccessed;
+
+      // SAME TIMESTAMP, CHECK THE PAGE SIZE: LARGER PAGE SHOULD BE REMOVED FIRST THAN OTHERS
+      final int pageSize = -Long.compare(o1.getPhysicalSize(), o2.getPhysicalSize());
+      if (pageSize != 0)
+        return pageSize;
+
+      return o1.getPageId().compareTo(o2.getPageId());
+    });
+
+    pagesOrderedByAge.addAll(residents);
+
+    // REMOVE OLDEST PAGES FROM RAM
+    long freedRAM = 0;
+    for (final CachedPage page : pagesOrderedByAge) {
+      freedRAM += evictor.evict(page);
+      if (freedRAM > ramToFree)
+        break;
+    }
+    return freedRAM;
+  }
+
+  @Override
+  public void removeAllPagesOfDatabase(final BasicDatabase database) {
+  }
+
+  @Override
+  public void clear() {
+  }
+
+  @Override
+  public long getAdmissions() {
+    return 0;
+  }
+
+  @Override
+  public long getRejections() {
+    return 0;
+  }
+
+  @Override
+  public long getSecondChances() {
+    return 0;
+  }
+}
@@ -35,6 +35,7 @@ import com.arcadedb.exception.DatabaseOperationException;
 import com.arcadedb.exception.RecordNotFoundException;
 import com.arcadedb.graph.EdgeSegment;
 import com.arcadedb.log.LogManager;
+import com.arcadedb.query.QueryResultCache;
 import com.arcadedb.schema.DocumentType;
 import com.arcadedb.schema.LocalEdgeType;
 import com.arcadedb.schema.LocalVertexType;
@@ -1031,6 +1032,8 @@ public class LocalBucket extends PaginatedComponent implements Bucket {
   @Override
   public long count() {
     database.checkPermissionsOnFile(fileId, SecurityDatabaseUser.ACCESS.READ_RECORD);
+    // THE CACHED COUNTER BELOW DOES NOT READ ANY PAGE
+    QueryResultCache.trackRead(fileId);
 
     final TransactionContext transaction = database.getTransactionIfExists();
 
@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import java.util.Arrays;
+
+/**
+ * Approximate access frequency of the pages, used by {@link ClockPageCachePolicy} to refuse a page that is colder than
+ * the one it would push out (the TinyLFU admission filter). It is a count-min sketch of 4 rows of 4-bit counters
+ * packed in longs, one long per page the cache can hold: a cache of a million pages costs 8 MB of sketch regardless of
+ * how many distinct pages go through it. Every {@code sampleSize} increments all the counters are halved, so the history ages and a page that was
+ * hot an hour ago does not stay protected forever.
+ * <p>
+ * Updates are deliberately not atomic: a lost increment under contention only makes an estimate slightly lower, and
+ * the sketch is never used for anything that needs to be exact.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+final class PageCacheFrequencySketch {
+  private static final long[] SEEDS      = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+      0xcbf29ce484222325L };
+  private static final long   RESET_MASK = 0x7777777777777777L;
+  private static final int    MAX_COUNT  = 15;
+
+  private final long[] table;
+  private final int    tableMask;
+  private final int    sampleSize;
+  private       int    additions;
+
+  PageCacheFrequencySketch(final long expectedEntries) {
+    final int entries = (int) Math.min(1 << 24, Math.max(1024L, expectedEntries));
+    // ONE LONG HOLDS 16 COUNTERS: 4 ROWS X 4 COUNTERS, SO ONE LONG PER EXPECTED ENTRY IS 4 COUNTERS PER ROW
+    this.table = new long[Integer.highestOneBit(entries - 1) << 1];
+    this.tableMask = table.length - 1;
+    this.sampleSize = 10 * entries;
+  }
+
+  int frequency(final int hashCode) {
+    final int hash = spread(hashCode);
+    int frequency = MAX_COUNT;
+    for (int row = 0; row < 4; row++) {
+      final int index = indexOf(hash, row);
+      final int offset = counterOffset(hash, row);
+      frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xfL));
+    }
+    return frequency;
+  }
+
+  void increment(final int hashCode) {
+    final int hash = spread(hashCode);
+    boolean added = false;
+    for (int row = 0; row < 4; row++) {
+      final int index = indexOf(hash, row);
+      final int offset = counterOffset(hash, row);
+      final long value = table[index];
+      if (((value >>> offset) & 0xfL) < MAX_COUNT) {
+        table[index] = value + (1L << offset);
+        added = true;
+      }
+    }
+
+    if (added && ++additions >= sampleSize)
+      reset();
+  }
+
+  void clear() {
+    Arrays.fill(table, 0L);
+    additions = 0;
+  }
+
+  /**
+   * Halves every counter. The cost is proportional to the table, but it runs once every {@code sampleSize} increments,
+   * so it amortizes to a constant per access.
+   */
+  private void reset() {
+    for (int i = 0; i < table.length; i++)
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    additions = additions >>> 1;
+  }
+
+  private int indexOf(final int hash, final int row) {
+    long h = (hash + SEEDS[row]) * SEEDS[row];
+    h += h >>> 32;
+    return (int) h & tableMask;
+  }
+
+  /**
+   * Each row owns 16 bits of every long: 4 counters of 4 bits, one of them picked by 2 bits of the hash.
+   */
+  private static int counterOffset(final int hash, final int row) {
+    return (row << 4) + (((hash >>> (row << 3)) & 3) << 2);
+  }
+
+  private static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.database.BasicDatabase;
+
+import java.util.Collection;
+
+/**
+ * Decides which pages of the {@link PageManager} read cache are admitted and which are evicted when the cache reaches
+ * {@code arcadedb.maxPageRAM}. The cache itself stays the {@link PageManager}'s map: a policy only tracks the pages it
+ * is told about and hands victims back through a {@link Evictor}, which removes them from the map and keeps the RAM
+ * accounting. That keeps the version-monotonic put and the RAM counter in one place whatever policy is configured.
+ * <p>
+ * Select the implementation with {@code arcadedb.pageCachePolicy}.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public interface PageCachePolicy {
+  /**
+   * Removes one page from the read cache on behalf of the policy.
+   */
+  interface Evictor {
+    /**
+     * Removes {@code page} only if it is still the instance in the cache.
+     *
+     * @return the RAM freed, 0 when the page was already gone or had been replaced by a newer version
+     */
+    long evict(CachedPage page);
+  }
+
+  String getName();
+
+  /**
+   * Called for every page access, hit or miss, before the page is looked up.
+   */
+  void recordAccess(PageId pageId);
+
+  /**
+   * Called on a cache hit.
+   */
+  void onHit(CachedPage page);
+
+  /**
+   * Called after {@code page} has been stored in the cache.
+   */
+  void onInsert(CachedPage page);
+
+  /**
+   * Asked only for pages read from disk while the cache is full. Returning false keeps the page out of the cache: the
+   * caller still uses it, it is just not retained. Committed pages are never subject to admission.
+   */
+  boolean admit(CachedPage candidate);
+
+  /**
+   * Frees at least {@code ramToFree} bytes when possible.
+   *
+   * @param residents the pages currently in the cache, for the policies that need to look at all of them
+   *
+   * @return the RAM actually freed, or a negative value when another thread is already evicting and this call did
+   *     nothing
+   */
+  long evict(long ramToFree, Collection<CachedPage> residents, Evictor evictor);
+
+  /**
+   * Forgets every page of a database that is being closed.
+   */
+  void removeAllPagesOfDatabase(BasicDatabase database);
+
+  /**
+   * Forgets every tracked page. Called when the page manager shuts down.
+   */
+  void clear();
+
+  long getAdmissions();
+
+  long getRejections();
+
+  long getSecondChances();
+}
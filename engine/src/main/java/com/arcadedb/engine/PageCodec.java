@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.exception.ConfigurationException;
+
+import java.util.Locale;
+
+/**
+ * Codec applied to the pages of a bucket file when they are written to disk. Pages are always kept uncompressed in the
+ * page cache: only the physical representation in the file changes. See {@link CompressedPageStore} for the file layout.
+ */
+public enum PageCodec {
+  /**
+   * Pages are stored at their full page size, at offset {@code pageNumber * pageSize}. The default.
+   */
+  NONE(0),
+
+  /**
+   * Every page is compressed on its own with LZ4: fast enough to be invisible on a cold read.
+   */
+  LZ4(1),
+
+  /**
+   * Pages are compressed with DEFLATE and a preset dictionary trained on the first pages written to the file. Slower than
+   * LZ4, but the dictionary captures what the pages of a bucket have in common (repeated values, record layouts), which a
+   * single page is too small to learn.
+   */
+  DICTIONARY(2);
+
+  public final byte id;
+
+  PageCodec(final int id) {
+    this.id = (byte) id;
+  }
+
+  public static PageCodec getById(final byte id) {
+    for (final PageCodec codec : values())
+      if (codec.id == id)
+        return codec;
+    throw new IllegalArgumentException("Unknown page codec id " + id);
+  }
+
+  public static PageCodec getByName(final String name) {
+    if (name == null || name.isEmpty())
+      return NONE;
+    try {
+      return valueOf(name.toUpperCase(Locale.ENGLISH));
+    } catch (final IllegalArgumentException e) {
+      throw new ConfigurationException("Unknown page codec '" + name + "'. Supported: none, lz4, dictionary");
+    }
+  }
+}
@@ -29,6 +29,7 @@ import com.arcadedb.exception.DatabaseIsClosedException;
 import com.arcadedb.exception.DatabaseMetadataException;
 import com.arcadedb.exception.PageSnapshotException;
 import com.arcadedb.log.LogManager;
+import com.arcadedb.query.QueryResultCache;
 import com.arcadedb.utility.CallableNoReturn;
 import com.arcadedb.utility.CodeUtils;
 import com.arcadedb.utility.ExcludeFromJacocoGeneratedReport;
@@ -124,6 +125,11 @@ public class PageManager extends LockContext {
   // database-publication happens-before for cross-thread visibility of the startup() writes.
   private volatile PageManagerFlushThread             flushThread;
   private volatile int                                freePageRAM;
+  // Written together with readCache under the same lifecycle invariant (#5070).
+  private volatile PageCachePolicy                    cachePolicy;
+  // NULL WHEN arcadedb.pageReadAhead IS 0
+  private volatile PageReadAhead                      readAhead;
+  private final    PageCachePolicy.Evictor            cacheEvictor                          = this::evictPageFromCache;
 
   /**
    * #6075: the point-in-time snapshot windows currently open, {@code null} when there is none anywhere in the JVM -
@@ -215,6 +221,14 @@ public class PageManager extends LockContext {
     public long evictionRuns;
     public long pagesEvicted;
     public int  readCachePages;
+    /** The configured {@code arcadedb.pageCachePolicy}, so the three counters below can be read against it. */
+    public String cachePolicy;
+    /** Pages read from disk with the cache full that the policy let in. Always 0 with the {@code lru} policy. */
+    public long   cacheAdmissions;
+    /** Pages read from disk with the cache full that the policy kept out, typically the pages of a full scan. */
+    public long   cacheRejections;
+    /** Pages the eviction hand spared because they had been hit since its previous lap. */
+    public long   cacheSecondChances;
     /**
      * #6116: the point-in-time snapshot windows (#6075) as an operator sees them. The five instantaneous readings go
      * up AND down with the lifetime of a window, so they are gauges; the three totals below them are counters. A
@@ -261,6 +275,17 @@ public class PageManager extends LockContext {
     public long   deferredRAMBytes;
     /** See {@link PageManager#getFlushQueueWaits()} (#6259): commits held waiting for room in the flush queue. */
     public long   flushQueueWaits;
+    /**
+     * Read-ahead of sequential scans ({@link PageReadAhead}). Hits and misses count the accesses of a scan to the pages
+     * read ahead for it: a miss means the page was not in the cache when the scan got there, either because the batch
+     * was late or because the cache policy did not keep it. Batches are dropped when the read-ahead queue is full.
+     */
+    public int    readAheadMaxPages;
+    public long   readAheadBatches;
+    public long   readAheadPages;
+    public long   readAheadHits;
+    public long   readAheadMisses;
+    public long   readAheadDroppedBatches;
   }
 
   private PageManager() {
@@ -340,13 +365,20 @@ public class PageManager extends LockContext {
   private void startup() {
     final ContextConfiguration configuration = new ContextConfiguration();
     this.freePageRAM = configuration.getValueAsInteger(GlobalConfiguration.FREE_PAGE_RAM);
-    this.readCache = new ConcurrentHashMap<>(configuration.getValueAsInteger(GlobalConfiguration.INITIAL_PAGE_CACHE_SIZE));
 
     this.maxRAM = configuration.getValueAsLong(GlobalConfiguration.MAX_PAGE_RAM) * 1024 * 1024;
     if (this.maxRAM < 0)
       throw new ConfigurationException(
           GlobalConfiguration.MAX_PAGE_RAM.getKey() + " configuration is invalid (" + (maxRAM / (1024 * 1024)) + " MB)");
 
+    final ConcurrentMap<PageId, CachedPage> cache = new ConcurrentHashMap<>(
+        configuration.getValueAsInteger(GlobalConfiguration.INITIAL_PAGE_CACHE_SIZE));
+    this.cachePolicy = createCachePolicy(configuration, cache);
+    this.readCache = cache;
+
+    final int readAheadPages = configuration.getValueAsInteger(GlobalConfiguration.PAGE_READ_AHEAD);
+    this.readAhead = readAheadPages > 0 ? new PageReadAhead(this, readAheadPages) : null;
+
     flushThread = new PageManagerFlushThread(this, configuration);
     flushThread.start();
   }
@@ -384,12 +416,30 @@ public class PageManager extends LockContext {
       }
     }
 
+    final PageReadAhead ahead = readAhead;
+    if (ahead != null) {
+      readAhead = null;
+      ahead.close();
+    }
+
     if (readCache != null)
       // close() is a reachable test/emergency API and may run before any startup() (#5070).
       readCache.clear();
+    if (cachePolicy != null)
+      cachePolicy.clear();
     totalReadCacheRAM.set(0L);
   }
 
+  private PageCachePolicy createCachePolicy(final ContextConfiguration configuration,
+      final ConcurrentMap<PageId, CachedPage> cache) {
+    final String policy = configuration.getValueAsString(GlobalConfiguration.PAGE_CACHE_POLICY);
+    if (LRUPageCachePolicy.NAME.equalsIgnoreCase(policy))
+      return new LRUPageCachePolicy();
+
+    final int pageSize = Math.max(1, configuration.getValueAsInteger(GlobalConfiguration.BUCKET_DEFAULT_PAGE_SIZE));
+    return new ClockPageCachePolicy(cache, maxRAM / pageSize);
+  }
+
   public void removeAllReadPagesOfDatabase(final Database database) {
     for (final CachedPage p : readCache.values()) {
       final PageId pageId = p.getPageId();
@@ -399,6 +449,14 @@ public class PageManager extends LockContext {
         // driving totalReadCacheRAM negative and permanently disabling eviction (unbounded cache growth).
         removePageFromCache(pageId);
     }
+
+    final PageCachePolicy policy = cachePolicy;
+    if (policy != null)
+      policy.removeAllPagesOfDatabase(database);
+
+    final PageReadAhead ahead = readAhead;
+    if (ahead != null)
+      ahead.removeAllStreamsOfDatabase(database);
   }
 
   /** @return true when everything reached the disk; false when the bounded wait gave up (see #4928). */
@@ -1017,6 +1075,7 @@ public class PageManager extends LockContext {
 
   public ImmutablePage getImmutablePage(final PageId pageId, final int pageSize, final boolean isNew,
       final boolean createIfNotExists) throws IOException {
+    QueryResultCache.trackRead(pageId.getFileId());
     final CachedPage page = getCachedPage(pageId, pageSize, isNew, createIfNotExists);
     if (page != null)
       // RETURN ALWAYS A VIEW OF THE PAGE. THIS PREVENTS CONCURRENCY ON THE BUFFER POSITION
@@ -1123,7 +1182,7 @@ public class PageManager extends LockContext {
         // @TODO: TEMPORARY PATCH TO OVERCOME THE ISSUE OF PAGES NOT UPDATED IN THE FILE MANAGER
         final Component component = page.pageId.getDatabase().getSchema().getFileById(page.pageId.getFileId());
         if (component instanceof LocalBucket b) {
-          final int realPages = (int) (file.getSize() / b.pageSize);
+          final int realPages = (int) ((PaginatedComponentFile) file).getTotalPages();
           try {
             if (realPages > b.pageCount.get()) {
               LogManager.instance().log(this, Level.SEVERE,
@@ -1278,7 +1337,7 @@ public class PageManager extends LockContext {
   }
 
   public void overwritePage(final MutablePage page) throws IOException {
-    readCache.remove(page.pageId);
+    removePageFromCache(page.pageId);
 
     flushPage(page);
 
@@ -1363,6 +1422,13 @@ public class PageManager extends LockContext {
     // open. When no database has been opened yet (e.g. a profiler snapshot taken at server
     // startup) they're still null - report empty cache/queue rather than NPE.
     stats.readCachePages = readCache != null ? readCache.size() : 0;
+    final PageCachePolicy policy = cachePolicy;
+    if (policy != null) {
+      stats.cachePolicy = policy.getName();
+      stats.cacheAdmissions = policy.getAdmissions();
+      stats.cacheRejections = policy.getRejections();
+      stats.cacheSecondChances = policy.getSecondChances();
+    }
     stats.pagesRead = totalPagesRead.get();
     stats.pagesReadSize = totalPagesReadSize.get();
     stats.pagesWritten = totalPagesWritten.get();
@@ -1390,6 +1456,15 @@ public class PageManager extends LockContext {
     stats.snapshotBarriersInexact = totalSnapshotBarriersInexact.get();
     stats.deferredRAMBytes = getDeferredRAMBytes();
     stats.flushQueueWaits = getFlushQueueWaits();
+    final PageReadAhead ahead = readAhead;
+    if (ahead != null) {
+      stats.readAheadMaxPages = ahead.getMaxWindow();
+      stats.readAheadBatches = ahead.getBatches();
+      stats.readAheadPages = ahead.getPagesRead();
+      stats.readAheadHits = ahead.getHits();
+      stats.readAheadMisses = ahead.getMisses();
+      stats.readAheadDroppedBatches = ahead.getDroppedBatches();
+    }
     collectSnapshotGauges(stats);
     return stats;
   }
@@ -1576,13 +1651,85 @@ public class PageManager extends LockContext {
     }
   }
 
+  /**
+   * Background half of {@link PageReadAhead}: reads up to {@code count} pages starting from {@code from} with one call per
+   * run of consecutive pages, and caches them under the same admission rule as {@link #loadPage}. Pages already in the
+   * cache or still in the flush queue are skipped, and a run stops at the first page whose I/O slot another thread holds,
+   * so a batch never reads a page while it is being written.
+   *
+   * @return the number of pages read from disk
+   */
+  int readAhead(final DatabaseInternal database, final int fileId, final int pageSize, final int from, final int count)
+      throws IOException {
+    final ConcurrentMap<PageId, CachedPage> cache = readCache;
+    final PageManagerFlushThread flush = flushThread;
+    if (cache == null || flush == null || !database.isOpen() || !database.getFileManager().existsFile(fileId))
+      return 0;
+
+    final ComponentFile componentFile = database.getFileManager().getFile(fileId);
+    if (!(componentFile instanceof PaginatedComponentFile file) || file.getPageSize() != pageSize)
+      return 0;
+
+    final int to = (int) Math.min((long) from + count, file.getTotalPages());
+    final List<PageId> run = new ArrayList<>(Math.max(0, to - from));
+    int read = 0;
+    for (int pageNumber = from; pageNumber < to; ) {
+      run.clear();
+      while (pageNumber < to) {
+        final PageId pageId = new PageId(database, fileId, pageNumber);
+        if (cache.containsKey(pageId) || flush.getCachedPageFromMutablePageInQueue(pageId) != null
+            || pendingFlushPages.putIfAbsent(pageId, Boolean.FALSE) != null) {
+          if (run.isEmpty())
+            // NOTHING TO READ FOR THIS PAGE: SKIP IT
+            ++pageNumber;
+          break;
+        }
+        run.add(pageId);
+        ++pageNumber;
+      }
+
+      if (run.isEmpty())
+        continue;
+
+      final CachedPage[] pages = new CachedPage[run.size()];
+      try {
+        final ByteBuffer buffer = ByteBuffer.allocate(run.size() * pageSize);
+        file.readPages(run.getFirst().getPageNumber(), run.size(), buffer);
+        for (int i = 0; i < pages.length; i++) {
+          pages[i] = new CachedPage(this, run.get(i), pageSize);
+          pages[i].getByteBuffer().put(0, buffer, i * pageSize, pageSize);
+          pages[i].loadMetadata();
+        }
+      } finally {
+        for (final PageId pageId : run)
+          pendingFlushPages.remove(pageId);
+      }
+
+      if (!database.isOpen() || !database.getFileManager().existsFile(fileId)
+          || database.getFileManager().getFile(fileId) != file)
+        // CLOSED OR DROPPED WHILE READING: THE PAGES MUST NOT OUTLIVE IT IN THE CACHE
+        return read;
+
+      for (final CachedPage page : pages) {
+        totalPagesRead.incrementAndGet();
+        totalPagesReadSize.addAndGet(page.getPhysicalSize());
+        if (totalReadCacheRAM.get() < maxRAM || cachePolicy.admit(page))
+          putPageInReadCache(page);
+      }
+      read += pages.length;
+    }
+    return read;
+  }
+
   private CachedPage loadPage(final PageId pageId, final int size, final boolean createIfNotExists, final boolean cache)
       throws IOException {
     final DatabaseInternal database = (DatabaseInternal) pageId.getDatabase();
 
     // ASSURE THE PAGE IS NOT IN THE FLUSHING QUEUE
     CachedPage page = flushThread.getCachedPageFromMutablePageInQueue(pageId);
+    boolean fromDisk = false;
     if (page == null) {
+      fromDisk = true;
       final PaginatedComponentFile file = (PaginatedComponentFile) database.getFileManager().getFile(pageId.getFileId());
 
       final boolean isNewPage = pageId.getPageNumber() >= file.getTotalPages();
@@ -1608,7 +1755,9 @@ public class PageManager extends LockContext {
     totalPagesRead.incrementAndGet();
     totalPagesReadSize.addAndGet(page.getPhysicalSize());
 
-    if (cache)
+    if (cache && (!fromDisk || totalReadCacheRAM.get() < maxRAM || cachePolicy.admit(page)))
+      // ONCE THE CACHE IS FULL THE POLICY DECIDES WHETHER A PAGE READ FROM DISK IS WORTH KEEPING. A PAGE FROM THE FLUSH
+      // QUEUE IS NOT ON DISK YET, SO IT IS ALWAYS CACHED
       putPageInReadCache(page);
 
     return page;
@@ -1668,51 +1817,21 @@ public class PageManager extends LockContext {
     evictOldestPages(ramToFree, totalRAM);
   }
 
-  private synchronized void evictOldestPages(final long ramToFree, final long totalRAM) {
-    evictionRuns.incrementAndGet();
-
-    LogManager.instance()
-        .log(this, Level.FINE, "Reached max RAM for page cache. Freeing pages from cache (target=%d current=%d max=%d threadId=%d)",
-            null, ramToFree, totalRAM, maxRAM, Thread.currentThread().threadId());
-
-    // GET THE <DISPOSE_PAGES_PER_CYCLE> OLDEST PAGES
-    // ORDER PAGES BY LAST ACCESS + SIZE
-    final TreeSet<CachedPage> pagesOrderedByAge = new TreeSet<>((o1, o2) -> {
-      final int lastAccessed = Long.compare(o1.getLastAccessed(), o2.getLastAccessed());
-      if (lastAccessed != 0)
-        return lastAccessed;
-
-      // SAME TIMESTAMP, CHECK THE PAGE SIZE: LARGER PAGE SHOULD BE REMOVED FIRST THAN OTHERS
-      final int pageSize = -Long.compare(o1.getPhysicalSize(), o2.getPhysicalSize());
-      if (pageSize != 0)
-        return pageSize;
-
-      return o1.getPageId().compareTo(o2.getPageId());
-    });
-
-    pagesOrderedByAge.addAll(readCache.values());
-
-    // REMOVE OLDEST PAGES FROM RAM
-    long freedRAM = 0;
-    for (final CachedPage page : pagesOrderedByAge) {
-      final CachedPage removedPage = readCache.remove(page.getPageId());
-      if (removedPage != null) {
-        // Account the entry ACTUALLY removed, not the TreeSet snapshot: the version-monotonic put can swap
-        // a same-PageId entry for a different instance between the snapshot and this remove (#4925/#4933).
-        freedRAM += removedPage.getPhysicalSize();
-        totalReadCacheRAM.addAndGet(-1L * removedPage.getPhysicalSize());
-        pagesEvicted.incrementAndGet();
+  private void evictOldestPages(final long ramToFree, final long totalRAM) {
+    final long freedRAM = cachePolicy.evict(ramToFree, readCache.values(), cacheEvictor);
+    if (freedRAM < 0)
+      // ANOTHER THREAD IS ALREADY EVICTING
+      return;
 
-        if (freedRAM > ramToFree)
-          break;
-      }
-    }
+    evictionRuns.incrementAndGet();
 
     final long newTotalRAM = totalReadCacheRAM.get();
 
     LogManager.instance()
-        .log(this, Level.FINE, "Freed %s RAM (current=%s max=%s threadId=%d)", null, FileUtils.getSizeAsString(freedRAM),
-            FileUtils.getSizeAsString(newTotalRAM), FileUtils.getSizeAsString(maxRAM), Thread.currentThread().threadId());
+        .log(this, Level.FINE, "Reached max RAM for page cache. Freed %s RAM (policy=%s target=%s previous=%s current=%s max=%s threadId=%d)",
+            null, FileUtils.getSizeAsString(freedRAM), cachePolicy.getName(), FileUtils.getSizeAsString(ramToFree),
+            FileUtils.getSizeAsString(totalRAM), FileUtils.getSizeAsString(newTotalRAM), FileUtils.getSizeAsString(maxRAM),
+            Thread.currentThread().threadId());
 
     if (newTotalRAM > maxRAM)
       LogManager.instance().log(this, Level.WARNING, "Cannot free pages in RAM (current=%s > max=%s threadId=%d)", null,
@@ -1721,21 +1840,37 @@ public class PageManager extends LockContext {
     lastCheckForRAM = System.currentTimeMillis();
   }
 
-  // Reused per-thread slot for the RAM delta decided inside VERSION_MONOTONIC_MERGE: keeps the put hot
-  // path allocation-free (a capturing lambda + holder array per call would rely on escape analysis that is
-  // not guaranteed under a megamorphic merge call site).
-  private static final ThreadLocal<long[]> PUT_RAM_DELTA = ThreadLocal.withInitial(() -> new long[1]);
+  /**
+   * Removes a victim chosen by the cache policy. The removal is conditional on the page still being the cached one, so
+   * a newer version put concurrently survives, and the accounting is driven by what was actually removed (#4933).
+   */
+  private long evictPageFromCache(final CachedPage page) {
+    if (!readCache.remove(page.getPageId(), page))
+      return 0L;
+    totalReadCacheRAM.addAndGet(-1L * page.getPhysicalSize());
+    pagesEvicted.incrementAndGet();
+    return page.getPhysicalSize();
+  }
+
+  // Reused per-thread slots for the RAM delta decided inside VERSION_MONOTONIC_MERGE (index 0) and for whether the
+  // merge replaced an existing entry (index 1): keeps the put hot path allocation-free (a capturing lambda + holder
+  // array per call would rely on escape analysis that is not guaranteed under a megamorphic merge call site).
+  private static final ThreadLocal<long[]> PUT_RAM_DELTA = ThreadLocal.withInitial(() -> new long[2]);
 
   // #4925: version-monotonic merge. Keeps whichever version is newer; an EQUAL version replaces on purpose
   // (identical content, freshest instance, zero RAM delta). Static and non-capturing: merge() hands the new
   // page in as the second argument, so this function allocates nothing per call.
   private static final BiFunction<CachedPage, CachedPage, CachedPage> VERSION_MONOTONIC_MERGE = (prev, cur) -> {
+    final long[] slots = PUT_RAM_DELTA.get();
+    slots[1] = 1;
     if (cur.getVersion() >= prev.getVersion()) {
-      PUT_RAM_DELTA.get()[0] = cur.getPhysicalSize() - prev.getPhysicalSize();
+      slots[0] = cur.getPhysicalSize() - prev.getPhysicalSize();
+      // A NEW VERSION OF A HOT PAGE IS STILL HOT: IT TAKES OVER THE CACHE POLICY'S STATE
+      cur.inheritReferences(prev);
       return cur;
     }
     // STALE WRITE ATTEMPT: KEEP THE NEWER CACHED VERSION, NO ACCOUNTING CHANGE
-    PUT_RAM_DELTA.get()[0] = 0;
+    slots[0] = 0;
     return prev;
   };
 
@@ -1748,9 +1883,13 @@ public class PageManager extends LockContext {
     final long[] ramDelta = PUT_RAM_DELTA.get();
     // Default covers the absent-key case: merge() inserts the page WITHOUT invoking the remapping function.
     ramDelta[0] = page.getPhysicalSize();
+    ramDelta[1] = 0;
     readCache.merge(page.getPageId(), page, VERSION_MONOTONIC_MERGE);
     if (ramDelta[0] != 0)
       totalReadCacheRAM.addAndGet(ramDelta[0]);
+    if (ramDelta[1] == 0)
+      // A NEW ENTRY: A REPLACED ONE IS ALREADY TRACKED BY THE POLICY UNDER THE SAME PAGE ID
+      cachePolicy.onInsert(page);
 
     checkForPageDisposal();
   }
@@ -1771,7 +1910,14 @@ public class PageManager extends LockContext {
       throws IOException {
     checkForPageDisposal();
 
+    cachePolicy.recordAccess(pageId);
     CachedPage page = readCache.get(pageId);
+
+    final PageReadAhead ahead = readAhead;
+    if (ahead != null && !isNew)
+      // BEFORE THE SYNCHRONOUS LOAD OF A MISS, SO THE BATCH OF THE NEXT PAGES OVERLAPS WITH IT
+      ahead.onAccess(pageId, pageSize, page != null);
+
     if (page == null) {
       // #4958: count the miss BEFORE returning the freshly loaded page. The counter used to be bumped
       // only on the page-not-found fall-through below, so cacheMiss stayed at ~0 forever and the
@@ -1787,7 +1933,7 @@ public class PageManager extends LockContext {
 
     } else {
       cacheHits.incrementAndGet();
-      page.updateLastAccesses();
+      cachePolicy.onHit(page);
     }
 
     if (page == null)
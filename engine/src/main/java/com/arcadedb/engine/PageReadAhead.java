@@ -0,0 +1,264 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.database.BasicDatabase;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.log.LogManager;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Read-ahead of sequential page scans. {@link PageManager} reports every page access; when the accesses to a file
+ * walk its pages in order (forward, like a bucket scan, or backward, like a descending index range) the next pages
+ * are read in the background in one batch, so the scan finds them in the cache instead of paying a synchronous read
+ * per page.
+ * <p>
+ * The detection is per file: one stream per (database, file) remembers the last page accessed, the direction and how
+ * far ahead it already asked for. The window starts at {@link #INITIAL_WINDOW} pages and is resized on every batch
+ * from the hit rate of the previous one: it doubles (up to {@code arcadedb.pageReadAhead}) while the scan consumes
+ * what was read for it, and halves when the pages were gone by the time the scan got there, typically because the
+ * cache is full and the policy did not admit them. Even a page the cache turned down was brought into the OS page
+ * cache, so the synchronous read that follows is a copy rather than a disk access.
+ * <p>
+ * Read-ahead is best effort: the work queue is bounded and a batch that does not fit is dropped, and any failure of a
+ * background read (a file closed or dropped meanwhile) only means the scan reads the page itself.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+final class PageReadAhead {
+  static final int INITIAL_WINDOW = 4;
+  // SEQUENTIAL ACCESSES IN A ROW BEFORE THE FIRST BATCH IS ISSUED
+  static final int TRIGGER        = 2;
+  private static final int MAX_STREAMS = 4_096;
+  private static final int QUEUE_SIZE  = 256;
+
+  private final PageManager                          pageManager;
+  private final int                                  maxWindow;
+  private final int                                  initialWindow;
+  private final ThreadPoolExecutor                   executor;
+  private final ConcurrentHashMap<StreamKey, Stream> streams        = new ConcurrentHashMap<>();
+  private final AtomicLong                           batches        = new AtomicLong();
+  private final AtomicLong                           pagesRead      = new AtomicLong();
+  private final AtomicLong                           hits           = new AtomicLong();
+  private final AtomicLong                           misses         = new AtomicLong();
+  private final AtomicLong                           droppedBatches = new AtomicLong();
+
+  private record StreamKey(BasicDatabase database, int fileId) {
+  }
+
+  /**
+   * Guarded by its own monitor: a stream is touched by the scanning thread on every access and by the background
+   * batch when it completes.
+   */
+  private static final class Stream {
+    int     lastPage  = -1;
+    int     direction;
+    int     sequential;
+    int     window;
+    // PAGES ALREADY REQUESTED: (lastPage, requestedUpTo] FORWARD, [requestedUpTo, lastPage) BACKWARD
+    int     requestedUpTo;
+    boolean inFlight;
+    int     batchHits;
+    int     batchMisses;
+
+    Stream(final int window) {
+      this.window = window;
+    }
+  }
+
+  PageReadAhead(final PageManager pageManager, final int maxWindow) {
+    this.pageManager = pageManager;
+    this.maxWindow = maxWindow;
+    this.initialWindow = Math.min(INITIAL_WINDOW, maxWindow);
+
+    final int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    final AtomicInteger counter = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+      final Thread t = new Thread(r, "ArcadeDB-ReadAhead-" + counter.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Called by {@link PageManager} on every read of an existing page.
+   *
+   * @param hit true if the page was found in the cache
+   */
+  void onAccess(final PageId pageId, final int pageSize, final boolean hit) {
+    final int page = pageId.getPageNumber();
+    final StreamKey key = new StreamKey(pageId.getDatabase(), pageId.getFileId());
+    Stream stream = streams.get(key);
+    if (stream == null) {
+      if (streams.size() >= MAX_STREAMS)
+        // FILES NOT SCANNED ANY MORE: START OVER RATHER THAN TRACK THEM FOREVER
+        streams.clear();
+      stream = streams.computeIfAbsent(key, k -> new Stream(initialWindow));
+    }
+
+    final int from;
+    final int count;
+    synchronized (stream) {
+      if (page == stream.lastPage)
+        // SAME PAGE AGAIN (E.G. SEVERAL RECORDS READ FROM IT): NOT A MOVE
+        return;
+
+      final int step = page - stream.lastPage;
+      if (stream.lastPage > -1 && (step == 1 || step == -1) && (stream.sequential == 0 || step == stream.direction)) {
+        stream.direction = step;
+        stream.sequential++;
+      } else {
+        // RANDOM ACCESS OR A NEW SCAN: FORGET WHAT WAS REQUESTED FOR THE PREVIOUS POSITION
+        stream.sequential = 0;
+        stream.direction = 0;
+        stream.requestedUpTo = page;
+        stream.window = Math.max(stream.window, initialWindow);
+      }
+      stream.lastPage = page;
+
+      if (stream.sequential == 0)
+        return;
+
+      if (isRequested(stream, page)) {
+        if (hit) {
+          stream.batchHits++;
+          hits.incrementAndGet();
+        } else {
+          stream.batchMisses++;
+          misses.incrementAndGet();
+        }
+      }
+
+      if (stream.sequential < TRIGGER || stream.inFlight)
+        return;
+
+      final int ahead = (stream.requestedUpTo - page) * stream.direction;
+      if (ahead > stream.window / 2)
+        // STILL ENOUGH PAGES REQUESTED AHEAD OF THE SCAN
+        return;
+
+      resize(stream);
+
+      final int first = ahead > 0 ? stream.requestedUpTo + stream.direction : page + stream.direction;
+      final int last = page + stream.window * stream.direction;
+      if (stream.direction > 0) {
+        from = first;
+        count = last - first + 1;
+      } else {
+        from = Math.max(0, last);
+        count = first - from + 1;
+      }
+      if (count <= 0 || (stream.direction < 0 && first < 0))
+        return;
+
+      stream.requestedUpTo = last;
+      stream.inFlight = true;
+    }
+
+    submit(stream, pageId, pageSize, from, count);
+  }
+
+  void removeAllStreamsOfDatabase(final BasicDatabase database) {
+    streams.keySet().removeIf(k -> k.database().equals(database));
+  }
+
+  void close() {
+    executor.shutdownNow();
+    streams.clear();
+  }
+
+  int getMaxWindow() {
+    return maxWindow;
+  }
+
+  long getBatches() {
+    return batches.get();
+  }
+
+  long getPagesRead() {
+    return pagesRead.get();
+  }
+
+  long getHits() {
+    return hits.get();
+  }
+
+  long getMisses() {
+    return misses.get();
+  }
+
+  long getDroppedBatches() {
+    return droppedBatches.get();
+  }
+
+  private void submit(final Stream stream, final PageId pageId, final int pageSize, final int from, final int count) {
+    final DatabaseInternal database = (DatabaseInternal) pageId.getDatabase();
+    final int fileId = pageId.getFileId();
+    try {
+      executor.execute(() -> {
+        try {
+          final int read = pageManager.readAhead(database, fileId, pageSize, from, count);
+          if (read > 0) {
+            batches.incrementAndGet();
+            pagesRead.addAndGet(read);
+          }
+        } catch (final Throwable e) {
+          // THE SCAN READS THE PAGES ITSELF
+          LogManager.instance()
+              .log(this, Level.FINE, "Error on reading ahead %d pages from page %d of file %d", e, count, from, fileId);
+        } finally {
+          synchronized (stream) {
+            stream.inFlight = false;
+          }
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      // QUEUE FULL OR EXECUTOR SHUT DOWN
+      droppedBatches.incrementAndGet();
+      synchronized (stream) {
+        stream.inFlight = false;
+      }
+    }
+  }
+
+  private static boolean isRequested(final Stream stream, final int page) {
+    return stream.direction > 0 ? page <= stream.requestedUpTo : page >= stream.requestedUpTo;
+  }
+
+  private void resize(final Stream stream) {
+    final int total = stream.batchHits + stream.batchMisses;
+    if (total > 0) {
+      if (stream.batchHits * 4 >= total * 3)
+        stream.window = Math.min(maxWindow, stream.window * 2);
+      else if (stream.batchHits * 4 < total)
+        stream.window = Math.max(1, stream.window / 2);
+    }
+    stream.batchHits = 0;
+    stream.batchMisses = 0;
+  }
+}
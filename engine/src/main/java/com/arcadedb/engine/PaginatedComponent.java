@@ -129,7 +129,8 @@ public abstract class PaginatedComponent extends Component {
       // NEW FILE, CREATE HEADER PAGE
       pageCount.set(0);
     else
-      pageCount.set((int) (fileSize / pageSize));
+      // NOT fileSize / pageSize: THE PAGES OF A COMPRESSED FILE HAVE A VARIABLE PHYSICAL SIZE
+      pageCount.set((int) file.getTotalPages());
     reservedPageCounter.set(pageCount.get());
   }
 
@@ -18,6 +18,8 @@
  */
 package com.arcadedb.engine;
 
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.exception.DatabaseOperationException;
 import com.arcadedb.log.LogManager;
 
 import java.io.File;
@@ -29,11 +31,13 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.spi.AbstractInterruptibleChannel;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.Map;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.zip.CRC32;
@@ -45,6 +49,28 @@ public class PaginatedComponentFile extends ComponentFile {
   private                 int              pageSize;
   private static volatile boolean          warningPrinted = false;
 
+  /**
+   * Largest region mapped at once. A {@link MappedByteBuffer} is indexed by int, so a file is mapped as a sequence of
+   * regions, each a whole number of pages so that no page straddles two of them.
+   */
+  private static final long MAX_MAPPED_REGION = 1L << 30;
+
+  /**
+   * The read-only mapping of the file, {@code null} unless the file was opened {@link MODE#READ_ONLY} with
+   * {@code arcadedb.readOnlyMemoryMapped} enabled. Pages inside it are copied straight from the OS page cache, with no
+   * {@code pread} per page; pages beyond it (the file grew after it was mapped) are read from the channel as usual.
+   * Swapped under the WRITE lock together with the channel.
+   */
+  private MappedByteBuffer[] mappedRegions;
+  private int                pagesPerMappedRegion;
+  private long               mappedPages;
+
+  /**
+   * The page-offset map of a file whose pages are compressed with a {@link PageCodec}, {@code null} for the plain layout
+   * where page N is at {@code N * pageSize}. Detected from the header of the file when it is opened.
+   */
+  private CompressedPageStore compressedPages;
+
   /**
    * Guards the {@link #channel}/{@link #file} fields against concurrent I/O while they are swapped.
    * I/O methods (read/write/force/...) acquire the shared READ lock, so independent pages still run
@@ -136,6 +162,10 @@ public class PaginatedComponentFile extends ComponentFile {
     try {
       LogManager.instance().log(this, Level.FINE, "Closing file %s (id=%d)...", null, filePath, fileId);
 
+      // THE MAPPING IS RELEASED BY THE GC: THERE IS NO SUPPORTED WAY TO UNMAP IT EXPLICITLY
+      mappedRegions = null;
+      mappedPages = 0;
+
       if (channel != null) {
         channel.close();
         channel = null;
@@ -210,6 +240,9 @@ public class PaginatedComponentFile extends ComponentFile {
   }
 
   public long getTotalPages() throws IOException {
+    if (compressedPages != null)
+      return compressedPages.getTotalPages();
+
     channelLock.readLock().lock();
     try {
       return channel.size() / pageSize;
@@ -225,6 +258,16 @@ public class PaginatedComponentFile extends ComponentFile {
 
       final ByteBuffer buffer = ByteBuffer.allocate(getPageSize());
 
+      if (compressedPages != null) {
+        // CHECKSUM OF THE UNCOMPRESSED CONTENT: IT DOES NOT DEPEND ON WHERE THE SLOTS ENDED UP IN THE FILE
+        for (int i = 0; i < compressedPages.getTotalPages(); i++) {
+          buffer.clear();
+          compressedPages.read(channel, i, buffer);
+          crc.update(buffer.array(), 0, pageSize);
+        }
+        return crc.getValue();
+      }
+
       final long totalPages = channel.size() / pageSize;
       for (int i = 0; i < totalPages; i++) {
         buffer.clear();
@@ -269,9 +312,13 @@ public class PaginatedComponentFile extends ComponentFile {
       // NO NEED TO SYNCHRONIZE THE BUFFER BECAUSE MUTABLE PAGES ARE NOT SHARED
       buffer.clear();
       try {
-        long pos = page.getPhysicalSize() * (long) pageNumber;
-        while (buffer.hasRemaining())
-          pos += channel.write(buffer, pos);
+        if (compressedPages != null)
+          compressedPages.write(channel, pageNumber, buffer);
+        else {
+          long pos = page.getPhysicalSize() * (long) pageNumber;
+          while (buffer.hasRemaining())
+            pos += channel.write(buffer, pos);
+        }
       } catch (final ClosedChannelException e) {
         LogManager.instance().log(this, Level.SEVERE, "File '%s' was closed on write. Reopen it and retry...", null, fileName);
         // ClosedByInterruptException leaves the interrupted flag set; clear it so the reopened channel
@@ -280,9 +327,13 @@ public class PaginatedComponentFile extends ComponentFile {
         try {
           reopenChannelUnderWriteLock();
           buffer.clear();
-          long pos = page.getPhysicalSize() * (long) pageNumber;
-          while (buffer.hasRemaining())
-            pos += channel.write(buffer, pos);
+          if (compressedPages != null)
+            compressedPages.write(channel, pageNumber, buffer);
+          else {
+            long pos = page.getPhysicalSize() * (long) pageNumber;
+            while (buffer.hasRemaining())
+              pos += channel.write(buffer, pos);
+          }
         } finally {
           if (wasInterrupted)
             Thread.currentThread().interrupt();
@@ -330,13 +381,24 @@ public class PaginatedComponentFile extends ComponentFile {
       final ByteBuffer buffer = page.getByteBuffer();
       buffer.clear();
 
+      if (pageNumber < mappedPages && page.getPhysicalSize() == pageSize) {
+        // ABSOLUTE BULK COPY: IT DOES NOT TOUCH THE POSITION OF THE SHARED MAPPED BUFFER, SO CONCURRENT READERS ARE SAFE
+        final MappedByteBuffer region = mappedRegions[pageNumber / pagesPerMappedRegion];
+        buffer.put(0, region, (pageNumber % pagesPerMappedRegion) * pageSize, pageSize);
+        return;
+      }
+
       try {
-        long pos = page.getPhysicalSize() * (long) pageNumber;
-        while (buffer.hasRemaining()) {
-          final int r = channel.read(buffer, pos);
-          if (r < 0)
-            throw new IOException("Unexpected EOF reading page " + pageNumber + " from file '" + getFileName() + "'");
-          pos += r;
+        if (compressedPages != null)
+          compressedPages.read(channel, pageNumber, buffer);
+        else {
+          long pos = page.getPhysicalSize() * (long) pageNumber;
+          while (buffer.hasRemaining()) {
+            final int r = channel.read(buffer, pos);
+            if (r < 0)
+              throw new IOException("Unexpected EOF reading page " + pageNumber + " from file '" + getFileName() + "'");
+            pos += r;
+          }
         }
       } catch (final ClosedChannelException e) {
         LogManager.instance().log(this, Level.SEVERE, "File '%s' was closed on read. Reopen it and retry...", null, fileName);
@@ -346,12 +408,16 @@ public class PaginatedComponentFile extends ComponentFile {
         try {
           reopenChannelUnderWriteLock();
           buffer.clear();
-          long pos = page.getPhysicalSize() * (long) pageNumber;
-          while (buffer.hasRemaining()) {
-            final int r = channel.read(buffer, pos);
-            if (r < 0)
-              throw new IOException("Unexpected EOF reading page " + pageNumber + " from file '" + getFileName() + "'");
-            pos += r;
+          if (compressedPages != null)
+            compressedPages.read(channel, pageNumber, buffer);
+          else {
+            long pos = page.getPhysicalSize() * (long) pageNumber;
+            while (buffer.hasRemaining()) {
+              final int r = channel.read(buffer, pos);
+              if (r < 0)
+                throw new IOException("Unexpected EOF reading page " + pageNumber + " from file '" + getFileName() + "'");
+              pos += r;
+            }
           }
         } finally {
           if (wasInterrupted)
@@ -389,6 +455,12 @@ public class PaginatedComponentFile extends ComponentFile {
         throw new IllegalArgumentException(
             "Cannot read pages from " + fromPageNumber + " because the file '" + getFileName() + "' is closed");
 
+      if (compressedPages != null) {
+        for (int i = 0; i < pages; i++)
+          compressedPages.read(channel, fromPageNumber + i, buf);
+        return;
+      }
+
       long pos = pageSize * (long) fromPageNumber;
       while (buf.hasRemaining()) {
         final int r = channel.read(buf, pos);
@@ -407,6 +479,11 @@ public class PaginatedComponentFile extends ComponentFile {
     channelLock.readLock().lock();
     try {
       buf.clear();
+      if (compressedPages != null) {
+        compressedPages.read(channel, pageNum, buf);
+        return;
+      }
+
       long pos = pageSize * (long) pageNum;
       while (buf.hasRemaining()) {
         final int r = channel.read(buf, pos);
@@ -423,6 +500,41 @@ public class PaginatedComponentFile extends ComponentFile {
     return pageSize;
   }
 
+  /**
+   * Returns true if the pages are read from a memory mapping of the file instead of the channel.
+   */
+  public boolean isMemoryMapped() {
+    return mappedRegions != null;
+  }
+
+  public PageCodec getPageCodec() {
+    return compressedPages != null ? compressedPages.getCodec() : PageCodec.NONE;
+  }
+
+  /**
+   * Switches a new, empty file to the compressed layout. The codec is written in the header of the file, so it is kept
+   * across restarts regardless of the configuration in use then.
+   */
+  public void setPageCodec(final PageCodec codec) throws IOException {
+    if (codec == PageCodec.NONE || compressedPages != null)
+      return;
+
+    channelLock.writeLock().lock();
+    try {
+      compressedPages = CompressedPageStore.create(channel, fileName, pageSize, codec);
+    } finally {
+      channelLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the compression metrics of the file (logical and physical size, ratio, ...), or {@code null} if its pages are
+   * not compressed.
+   */
+  public Map<String, Object> getCompressionStats() {
+    return compressedPages != null ? compressedPages.getStats() : null;
+  }
+
   @Override
   protected void open(final String filePath, final MODE mode) throws FileNotFoundException {
     this.filePath = filePath;
@@ -464,6 +576,48 @@ public class PaginatedComponentFile extends ComponentFile {
     this.channel = this.file.getChannel();
     doNotCloseOnInterrupt(this.channel);
     this.open = true;
+
+    // ON A REOPEN (RENAME, CLOSED CHANNEL) THE PAGE-OFFSET MAP ALREADY LOADED IS STILL VALID
+    if (compressedPages == null)
+      try {
+        if (CompressedPageStore.isCompressed(channel))
+          compressedPages = CompressedPageStore.load(channel, fileName, pageSize);
+      } catch (final IOException e) {
+        throw new DatabaseOperationException("Error on loading the compressed pages of file '" + filePath + "'", e);
+      }
+
+    if (mode == MODE.READ_ONLY && compressedPages == null && GlobalConfiguration.READ_ONLY_MEMORY_MAPPED.getValueAsBoolean())
+      mapFile();
+  }
+
+  /**
+   * Maps the whole file read-only. A failure (address space exhausted, a file system that does not support mapping)
+   * is not fatal: the file keeps working through the channel.
+   */
+  private void mapFile() {
+    try {
+      final long totalPages = channel.size() / pageSize;
+      if (totalPages == 0)
+        return;
+
+      final int pagesPerRegion = (int) Math.max(1, MAX_MAPPED_REGION / pageSize);
+      final int totalRegions = (int) ((totalPages + pagesPerRegion - 1) / pagesPerRegion);
+      final MappedByteBuffer[] regions = new MappedByteBuffer[totalRegions];
+      for (int i = 0; i < totalRegions; i++) {
+        final long offset = (long) i * pagesPerRegion * pageSize;
+        final long length = Math.min((long) pagesPerRegion, totalPages - (long) i * pagesPerRegion) * pageSize;
+        regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+      }
+
+      this.pagesPerMappedRegion = pagesPerRegion;
+      this.mappedRegions = regions;
+      this.mappedPages = totalPages;
+    } catch (final IOException | RuntimeException e) {
+      LogManager.instance()
+          .log(this, Level.WARNING, "Cannot memory map file '%s', reading it through the file channel instead", e, fileName);
+      this.mappedRegions = null;
+      this.mappedPages = 0;
+    }
   }
 
   private void doNotCloseOnInterrupt(final FileChannel fc) {
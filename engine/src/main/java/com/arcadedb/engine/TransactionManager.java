@@ -67,6 +67,10 @@ public class TransactionManager {
   private final LockManager<Integer, Object> fileIdsLockManager  = new LockManager<>();
   private final AtomicLong                   statsPagesWritten   = new AtomicLong();
   private final AtomicLong                   statsBytesWritten   = new AtomicLong();
+  private final boolean                      groupCommit;
+  private final long                         groupCommitWindowNanos;
+  private final int                          groupCommitMaxBatch;
+  private final WALGroupCommitStats          groupCommitStats    = new WALGroupCommitStats();
   /**
    * Held SHARED for the whole of {@link #applyChanges}, and EXCLUSIVELY by the snapshot t0 barrier
    * ({@code PageManager.openSnapshot}, issue #6075). Replicated and crash-recovery replay is the one writer that
@@ -82,6 +86,12 @@ public class TransactionManager {
 
     this.logContext = LogManager.instance().getContext();
 
+    this.groupCommit = database.getConfiguration().getValueAsBoolean(GlobalConfiguration.TX_WAL_GROUP_COMMIT);
+    this.groupCommitWindowNanos =
+        database.getConfiguration().getValueAsInteger(GlobalConfiguration.TX_WAL_GROUP_COMMIT_WINDOW) * 1_000L;
+    this.groupCommitMaxBatch = Math.max(1,
+        database.getConfiguration().getValueAsInteger(GlobalConfiguration.TX_WAL_GROUP_COMMIT_MAX_BATCH));
+
     // Restore the last assigned transaction id from disk (written on the previous close). Lets
     // freshly-opened databases that have no pending WAL still report a meaningful recency value to
     // the HA bootstrap protocol (issue #4147). Falls through to 0 when the file is missing
@@ -243,6 +253,11 @@ public class TransactionManager {
 
   public void writeTransactionToWAL(final List<MutablePage> pages, final WALFile.FlushType sync, final long txId,
       final Binary bufferChanges) {
+    if (groupCommit && sync != WALFile.FlushType.NO) {
+      writeTransactionToWALGroupCommit(pages, sync, txId, bufferChanges);
+      return;
+    }
+
     final long begin = System.currentTimeMillis();
 
     while (true) {
@@ -270,6 +285,46 @@ public class TransactionManager {
     }
   }
 
+  /**
+   * Group commit variant of {@link #writeTransactionToWAL}: the append is serialized on the WAL file as usual, then the
+   * fsync is shared with the other committers of the same file (see {@link WALFile#groupSync}), outside the file's
+   * monitor so the next transactions can append while the force is in progress.
+   */
+  private void writeTransactionToWALGroupCommit(final List<MutablePage> pages, final WALFile.FlushType sync, final long txId,
+      final Binary bufferChanges) {
+    final long begin = System.currentTimeMillis();
+    final long[] position = new long[1];
+
+    while (true) {
+      final WALFile file = activeWALFilePool[(int) (Thread.currentThread().threadId() % activeWALFilePool.length)];
+
+      if (file != null && file.acquire(() -> {
+        position[0] = file.appendTransaction(pages, txId, bufferChanges);
+        return null;
+      })) {
+        file.groupSync(position[0], sync, groupCommitWindowNanos, groupCommitMaxBatch, groupCommitStats);
+        break;
+      }
+
+      if (System.currentTimeMillis() - begin > WRITE_WAL_TIMEOUT)
+        throw new TransactionException("Timeout on writing transaction to WAL");
+
+      try {
+        Thread.sleep(10);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        // SAME AS writeTransactionToWAL (#4938): NOTHING HAS BEEN APPENDED YET, FAIL LOUD
+        throw new TransactionException("Interrupted while writing transaction " + txId + " to the WAL", e);
+      }
+    }
+
+    try {
+      database.executeCallbacks(DatabaseInternal.CALLBACK_EVENT.TX_AFTER_WAL_WRITE);
+    } catch (final IOException e) {
+      throw new WALException("Error on executing callbacks after writing transaction " + txId + " to the WAL", e);
+    }
+  }
+
   public void notifyPageFlushed(final MutablePage page) {
     // takeWALFile (not get) so the ack is released exactly once even when this races the file-dropped
     // flush branch or the dropped-file batch purge on the same page (#4928).
@@ -484,6 +539,12 @@ public class TransactionManager {
 
     map.put("pagesWritten", pagesWritten);
     map.put("bytesWritten", bytesWritten);
+
+    map.put("groupCommit", groupCommit);
+    map.put("groupCommitForces", groupCommitStats.getForces());
+    map.put("groupCommitCommits", groupCommitStats.getCommits());
+    map.put("groupCommitBatchSizeHistogram", groupCommitStats.getBatchSizeHistogram());
+    map.put("groupCommitWaitTimeMicrosHistogram", groupCommitStats.getWaitTimeHistogram());
     return map;
   }
 
@@ -993,10 +1054,11 @@ public class TransactionManager {
       for (int i = 0; i < activeWALFilePool.length; ++i) {
         final WALFile file = activeWALFilePool[i];
         try {
-          if (file != null && file.isOpen() && file.getSize() > MAX_LOG_FILE_SIZE) {
+          if (file != null && file.isOpen() && (file.getSize() > MAX_LOG_FILE_SIZE || file.isFailed())) {
+            // A FAILED FILE REFUSES ANY FURTHER APPEND (SEE WALFile.isFailed()): REPLACE IT LIKE A FULL ONE
             LogManager.instance().log(this, Level.FINE,
-                "WAL file '%s' reached maximum size (%d), set it as inactive, waiting for the drop (page2flush=%d)", null, file,
-                MAX_LOG_FILE_SIZE, file.getPendingPagesToFlush());
+                "WAL file '%s' reached maximum size (%d) or failed, set it as inactive, waiting for the drop (page2flush=%d)", null,
+                file, MAX_LOG_FILE_SIZE, file.getPendingPagesToFlush());
             activeWALFilePool[i] = database.getWALFileFactory()
                 .newInstance(database.getDatabasePath() + "/txlog_" + logFileCounter.getAndIncrement() + ".wal");
 
@@ -33,11 +33,16 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 
 public class WALFile extends LockContext {
@@ -57,14 +62,36 @@ public class WALFile extends LockContext {
 
   public static final long MAGIC_NUMBER = 9371515385058702L;
 
-  private final    RandomAccessFile file;
-  private final    String           filePath;
-  private final    FileChannel      channel;
-  private volatile boolean          active            = true;
-  private volatile boolean          open;
-  private final    AtomicInteger    pagesToFlush      = new AtomicInteger();
-  private          long             statsPagesWritten = 0;
-  private          long             statsBytesWritten = 0;
+  // UPPER BOUND OF THE BUFFERS OF ONE GATHERING WRITE (IOV_MAX IS 1024 ON LINUX)
+  private static final int MAX_RECORDS_PER_WRITE = 1024;
+
+  private final    RandomAccessFile                        file;
+  private final    String                                  filePath;
+  private final    FileChannel                             channel;
+  private volatile boolean                                 active             = true;
+  private volatile boolean                                 open;
+  private final    AtomicInteger                           pagesToFlush       = new AtomicInteger();
+  private final    AtomicLong                              statsPagesWritten  = new AtomicLong();
+  private final    AtomicLong                              statsBytesWritten  = new AtomicLong();
+  // acquire() TAKES THE READ LOCK, SO APPENDERS RUN CONCURRENTLY. setActive()/close() TAKE THE WRITE LOCK TO WAIT FOR THEM
+  private final    ReentrantReadWriteLock                  activeLock         = new ReentrantReadWriteLock();
+  // APPEND PATH: EACH RECORD RESERVES ITS REGION FROM reservedPosition AND PUBLISHES ITS BUFFER IN pendingAppends. THE
+  // FIRST APPENDER THAT FINDS NO WRITE IN PROGRESS WRITES THE CONTIGUOUS RUN OF PUBLISHED RECORDS AFTER appendedPosition
+  private final    AtomicLong                              reservedPosition;
+  private final    ConcurrentSkipListMap<Long, ByteBuffer> pendingAppends     = new ConcurrentSkipListMap<>();
+  private final    AtomicBoolean                           writeInProgress    = new AtomicBoolean();
+  private final    Object                                  appendLock         = new Object();
+  private volatile IOException                             appendFailure;
+  // FILE POSITION UP TO WHICH EVERY RESERVED RECORD HAS BEEN WRITTEN, AND NUMBER OF THOSE RECORDS. UPDATED UNDER appendLock
+  private volatile long                                    appendedPosition;
+  private volatile long                                    appendedCommits    = 0;
+  // GROUP COMMIT (TX_WAL_GROUP_COMMIT): THE FSYNC IS SHARED THROUGH syncLock
+  private final    Object                                  syncLock           = new Object();
+  private          long                                    syncedPosition     = 0;
+  private          long                                    syncedFullPosition = 0;
+  private          long                                    syncedCommits      = 0;
+  private          boolean                                 syncInProgress     = false;
+  private          boolean                                 pendingFullSync    = false;
 
   public static class WALTransaction {
     public long      txId;
@@ -95,23 +122,34 @@ public class WALFile extends LockContext {
     this.filePath = filePath;
     this.file = new RandomAccessFile(filePath, "rw");
     this.channel = file.getChannel();
+    try {
+      this.appendedPosition = channel.size();
+    } catch (final IOException e) {
+      throw new WALException("Error on opening WAL file " + filePath, e);
+    }
+    this.reservedPosition = new AtomicLong(appendedPosition);
     this.open = true;
   }
 
-  public synchronized void close() throws IOException {
-    this.open = false;
-    if (channel != null)
-      channel.close();
-
-    if (file != null)
-      file.close();
+  public void close() throws IOException {
+    activeLock.writeLock().lock();
+    try {
+      this.open = false;
+      if (channel != null)
+        channel.close();
+
+      if (file != null)
+        file.close();
+    } finally {
+      activeLock.writeLock().unlock();
+    }
   }
 
   public boolean isOpen() {
     return open;
   }
 
-  public synchronized void drop() throws IOException {
+  public void drop() throws IOException {
     close();
     FileUtils.deleteFile(new File(filePath));
   }
@@ -126,26 +164,43 @@ public class WALFile extends LockContext {
 
   /**
    * If the WAL is still active, execute the callback. This avoids closing a file where a thread is still writing to it.
+   * Callbacks of different threads run concurrently: {@link #appendTransaction} orders their records in the file.
    *
    * @return true if acquired, otherwise false
    */
-  public synchronized boolean acquire(final Callable<Object> callable) {
-    if (!active || !open)
-      return false;
-
+  public boolean acquire(final Callable<Object> callable) {
+    activeLock.readLock().lock();
     try {
+      if (!active || !open)
+        return false;
+
       callable.call();
     } catch (final RuntimeException e) {
       throw e;
     } catch (final Exception e) {
       throw new WALException("Error on writing to WAL file " + filePath, e);
+    } finally {
+      activeLock.readLock().unlock();
     }
 
     return true;
   }
 
-  public synchronized void setActive(final boolean active) {
-    this.active = active;
+  public void setActive(final boolean active) {
+    activeLock.writeLock().lock();
+    try {
+      this.active = active;
+    } finally {
+      activeLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns true if a write to the file failed. The records reserved after the failed one can never be written in order,
+   * so the file refuses any further append and must be replaced with a new one.
+   */
+  public boolean isFailed() {
+    return appendFailure != null;
   }
 
   public WALTransaction getTransaction(long pos) {
@@ -411,29 +466,133 @@ public class WALFile extends LockContext {
 
   public void writeTransactionToFile(final DatabaseInternal database, final List<MutablePage> pages, final FlushType sync, final WALFile file, final long txId,
       final Binary buffer) throws IOException {
+    file.appendTransaction(pages, txId, buffer);
 
+    if (sync == FlushType.YES_NOMETADATA)
+      channel.force(false);
+    else if (sync == FlushType.YES_FULL)
+      channel.force(true);
+
+    database.executeCallbacks(DatabaseInternal.CALLBACK_EVENT.TX_AFTER_WAL_WRITE);
+  }
+
+  /**
+   * Appends the transaction to the file without forcing it to disk. Must be called inside {@link #acquire(Callable)}.
+   *
+   * @return the position in the file right after the transaction, to pass to {@link #groupSync}
+   */
+  public long appendTransaction(final List<MutablePage> pages, final long txId, final Binary buffer) throws IOException {
     LogManager.instance()
         .log(this, Level.FINE, "Appending WAL for txId=%d (size=%d file=%s threadId=%d)", null, txId, buffer.size(), filePath, Thread.currentThread().threadId());
 
-    file.append(buffer.getByteBuffer());
+    final long endPosition = append(buffer.getByteBuffer());
 
     // WRITE ALL PAGES SEGMENTS
     for (final MutablePage newPage : pages) {
       // SET THE WAL FILE TO NOTIFY LATER WHEN THE PAGE HAS BEEN FLUSHED
-      newPage.setWALFile(file);
+      newPage.setWALFile(this);
 
       pagesToFlush.incrementAndGet();
-      statsPagesWritten++;
     }
 
-    statsBytesWritten += buffer.size();
+    statsPagesWritten.addAndGet(pages.size());
+    statsBytesWritten.addAndGet(buffer.size());
+    return endPosition;
+  }
 
-    if (sync == FlushType.YES_NOMETADATA)
-      channel.force(false);
-    else if (sync == FlushType.YES_FULL)
-      channel.force(true);
+  /**
+   * Group commit: returns once the file is durable up to {@code position}. The first committer that finds no force in
+   * progress becomes the leader: it waits up to {@code windowNanos} for more committers (or until {@code maxBatch} of
+   * them have appended), then issues one {@code force()} covering everything appended so far and releases all the
+   * waiters it covered. The others wait for a leader's force to cover their position, or take over as the next
+   * leader. A full (metadata) sync is issued if any committer in the batch asked for {@link FlushType#YES_FULL}.
+   * Must be called AFTER {@link #acquire(Callable)} has returned, so appends can keep going during the force.
+   */
+  public void groupSync(final long position, final FlushType sync, final long windowNanos, final int maxBatch,
+      final WALGroupCommitStats stats) {
+    if (sync == FlushType.NO)
+      return;
 
-    database.executeCallbacks(DatabaseInternal.CALLBACK_EVENT.TX_AFTER_WAL_WRITE);
+    final long begin = System.nanoTime();
+    final boolean full = sync == FlushType.YES_FULL;
+    boolean interrupted = false;
+
+    try {
+      // A COMMIT PAST THE WAL APPEND CANNOT BE ABANDONED: WAITS ARE UNINTERRUPTIBLE, THE FLAG IS RESTORED AT THE END
+      while (true) {
+        synchronized (syncLock) {
+          if (full)
+            pendingFullSync = true;
+          if (appendedCommits - syncedCommits >= maxBatch)
+            syncLock.notifyAll();
+
+          while ((full ? syncedFullPosition : syncedPosition) < position && syncInProgress)
+            try {
+              syncLock.wait();
+            } catch (final InterruptedException e) {
+              interrupted = true;
+            }
+
+          if ((full ? syncedFullPosition : syncedPosition) >= position) {
+            stats.recordWait(System.nanoTime() - begin);
+            return;
+          }
+
+          // BECOME THE LEADER
+          syncInProgress = true;
+
+          if (windowNanos > 0) {
+            final long deadline = System.nanoTime() + windowNanos;
+            long remaining;
+            while (appendedCommits - syncedCommits < maxBatch && (remaining = deadline - System.nanoTime()) > 0)
+              try {
+                syncLock.wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+              } catch (final InterruptedException e) {
+                interrupted = true;
+              }
+          }
+        }
+
+        final long target;
+        final long commits;
+        synchronized (appendLock) {
+          // READ BOTH UNDER THE APPEND MONITOR SO THE COMMIT COUNT MATCHES THE POSITION
+          target = appendedPosition;
+          commits = appendedCommits;
+        }
+
+        final boolean metadata;
+        synchronized (syncLock) {
+          metadata = pendingFullSync;
+          pendingFullSync = false;
+        }
+
+        boolean synced = false;
+        try {
+          channel.force(metadata);
+          synced = true;
+        } catch (final IOException e) {
+          throw new WALException("Error on flushing WAL file " + filePath, e);
+        } finally {
+          synchronized (syncLock) {
+            if (synced) {
+              stats.recordBatch(commits - syncedCommits);
+              syncedPosition = Math.max(syncedPosition, target);
+              if (metadata)
+                syncedFullPosition = Math.max(syncedFullPosition, target);
+              syncedCommits = Math.max(syncedCommits, commits);
+            } else if (metadata)
+              // LET THE NEXT LEADER ISSUE THE FULL SYNC ON BEHALF OF THE WAITERS
+              pendingFullSync = true;
+            syncInProgress = false;
+            syncLock.notifyAll();
+          }
+        }
+      }
+    } finally {
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    }
   }
 
   public void notifyPageFlushed() {
@@ -455,8 +614,8 @@ public class WALFile extends LockContext {
 
   public Map<String, Object> getStats() {
     final Map<String, Object> map = new HashMap<>();
-    map.put("pagesWritten", statsPagesWritten);
-    map.put("bytesWritten", statsBytesWritten);
+    map.put("pagesWritten", statsPagesWritten.get());
+    map.put("bytesWritten", statsBytesWritten.get());
     return map;
   }
 
@@ -497,15 +656,105 @@ public class WALFile extends LockContext {
     }
   }
 
-  protected void append(final ByteBuffer buffer) throws IOException {
+  /**
+   * Appends a record and returns once it has been written (not forced) to the file. The region of the record is reserved
+   * with an atomic counter, so concurrent appenders get disjoint regions in the order they reserved them. The file only
+   * ever receives the contiguous run of records that follows the last written position: a record reserved after one that
+   * is still being published waits for it instead of being written past a hole, because after a crash a hole in the
+   * middle of the log is indistinguishable from a corrupt record and aborts the recovery (#4508). Whichever appender finds
+   * no write in progress writes all the records published so far with one gathering write, on behalf of the others.
+   *
+   * @return the position in the file right after the record
+   */
+  protected long append(final ByteBuffer buffer) throws IOException {
     buffer.rewind();
-    // #4958: loop until the buffer is fully written. A single channel.write may write only part of the
-    // record, leaving a torn entry that the #4508 gap detector would then flag as corruption.
-    // Single-writer assumption (same as the pre-loop code that wrote at channel.size() once): appends to a
-    // WALFile are externally serialized by acquire(); two concurrent appenders would both seed writePos from
-    // the same channel.size() and interleave. The local writePos only tolerates PARTIAL writes, not writers.
-    long writePos = channel.size();
-    while (buffer.hasRemaining())
-      writePos += channel.write(buffer, writePos);
+    final IOException failure = appendFailure;
+    if (failure != null)
+      throw new IOException("WAL file " + filePath + " cannot be appended after a previous write failure", failure);
+
+    final long start = reservedPosition.getAndAdd(buffer.remaining());
+    final long end = start + buffer.remaining();
+    pendingAppends.put(start, buffer);
+
+    boolean interrupted = false;
+    try {
+      while (appendedPosition < end) {
+        if (appendFailure != null)
+          throw new IOException("WAL file " + filePath + " cannot be appended after a previous write failure", appendFailure);
+
+        if (writeInProgress.compareAndSet(false, true)) {
+          final boolean written;
+          try {
+            written = writePendingAppends();
+          } finally {
+            writeInProgress.set(false);
+            synchronized (appendLock) {
+              appendLock.notifyAll();
+            }
+          }
+          if (!written)
+            // THE NEXT RECORD IS RESERVED BUT NOT PUBLISHED YET: ITS APPENDER IS BETWEEN THE TWO STATEMENTS ABOVE
+            Thread.onSpinWait();
+        } else
+          synchronized (appendLock) {
+            while (writeInProgress.get() && appendedPosition < end)
+              try {
+                appendLock.wait();
+              } catch (final InterruptedException e) {
+                // THE RECORD IS ALREADY RESERVED: LEAVING NOW WOULD BLOCK EVERY APPEND AFTER IT
+                interrupted = true;
+              }
+          }
+      }
+    } finally {
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    }
+    return end;
+  }
+
+  /**
+   * Writes the contiguous run of published records that starts at {@link #appendedPosition}. Called by one thread at a
+   * time (see {@link #writeInProgress}).
+   *
+   * @return false if there was nothing to write
+   */
+  private boolean writePendingAppends() throws IOException {
+    final long from = appendedPosition;
+    final List<ByteBuffer> run = new ArrayList<>();
+    long to = from;
+    for (ByteBuffer next; run.size() < MAX_RECORDS_PER_WRITE && (next = pendingAppends.get(to)) != null; ) {
+      next.rewind();
+      run.add(next);
+      to += next.remaining();
+    }
+    if (run.isEmpty())
+      return false;
+
+    try {
+      // ONLY THE WRITING THREAD MOVES THE POSITION OF THE CHANNEL, READERS USE POSITIONAL READS
+      final ByteBuffer[] buffers = run.toArray(new ByteBuffer[0]);
+      channel.position(from);
+      long written = 0;
+      while (written < to - from)
+        // #4958: LOOP UNTIL THE RUN IS FULLY WRITTEN, A PARTIAL WRITE WOULD LEAVE A TORN RECORD
+        written += channel.write(buffers);
+    } catch (final IOException e) {
+      // THE RECORDS OF THE RUN (AND ALL THE ONES RESERVED AFTER THEM) CAN NO LONGER BE WRITTEN IN ORDER
+      appendFailure = e;
+      throw e;
+    }
+
+    long position = from;
+    for (final ByteBuffer b : run) {
+      pendingAppends.remove(position);
+      position += b.limit();
+    }
+
+    synchronized (appendLock) {
+      appendedPosition = to;
+      appendedCommits += run.size();
+    }
+    return true;
   }
 }
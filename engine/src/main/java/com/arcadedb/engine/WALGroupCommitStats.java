@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograms of the WAL group commit: how many commits each shared {@code force()} made durable, and how long each
+ * committer waited for its commit to become durable. Buckets are powers of two, so recording is one atomic increment.
+ */
+public class WALGroupCommitStats {
+  private static final int             BUCKETS   = 16;
+  private final        AtomicLongArray batchSize = new AtomicLongArray(BUCKETS);
+  private final        AtomicLongArray waitTime  = new AtomicLongArray(BUCKETS);
+
+  public void recordBatch(final long commits) {
+    batchSize.incrementAndGet(bucket(commits));
+  }
+
+  public void recordWait(final long nanos) {
+    waitTime.incrementAndGet(bucket(nanos / 1_000));
+  }
+
+  public long getForces() {
+    return total(batchSize);
+  }
+
+  public long getCommits() {
+    return total(waitTime);
+  }
+
+  /**
+   * Returns the batch size histogram keyed by the bucket upper bound (number of commits per force).
+   */
+  public Map<String, Long> getBatchSizeHistogram() {
+    return toMap(batchSize);
+  }
+
+  /**
+   * Returns the wait time histogram keyed by the bucket upper bound in microseconds.
+   */
+  public Map<String, Long> getWaitTimeHistogram() {
+    return toMap(waitTime);
+  }
+
+  static int bucket(final long value) {
+    if (value <= 1)
+      return 0;
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value - 1));
+  }
+
+  private static long total(final AtomicLongArray histogram) {
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++)
+      total += histogram.get(i);
+    return total;
+  }
+
+  private static Map<String, Long> toMap(final AtomicLongArray histogram) {
+    final Map<String, Long> map = new LinkedHashMap<>();
+    for (int i = 0; i < BUCKETS; i++) {
+      final long count = histogram.get(i);
+      if (count > 0)
+        map.put(i == BUCKETS - 1 ? ">" + (1L << (BUCKETS - 2)) : "<=" + (1L << i), count);
+    }
+    return map;
+  }
+}
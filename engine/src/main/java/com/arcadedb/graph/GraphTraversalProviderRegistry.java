@@ -22,6 +22,7 @@ import com.arcadedb.database.Database;
 import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.graph.olap.GraphAnalyticalView;
 import com.arcadedb.log.LogManager;
+import com.arcadedb.query.QueryResultCache;
 
 import java.util.Collections;
 import java.util.List;
@@ -94,8 +95,11 @@ public class GraphTraversalProviderRegistry {
     final Database key = unwrap(database);
     synchronized (REGISTRY) {
       final CopyOnWriteArrayList<GraphTraversalProvider> list = REGISTRY.get(key);
+      if (list == null)
+        return Collections.emptyList();
+      QueryResultCache.markUncacheable();
       // CopyOnWriteArrayList's iterator already returns a snapshot — no need to copy into a new ArrayList
-      return list != null ? Collections.unmodifiableList(list) : Collections.emptyList();
+      return Collections.unmodifiableList(list);
     }
   }
 
@@ -118,6 +122,8 @@ public class GraphTraversalProviderRegistry {
     }
     if (list == null)
       return null;
+    // The providers serve in-memory data the query result cache cannot track per file
+    QueryResultCache.markUncacheable();
     // CopyOnWriteArrayList iteration is safe outside the lock
     for (final GraphTraversalProvider provider : list) {
       if (!provider.isReady())
@@ -73,6 +73,14 @@ public class NeighborView {
     return neighbors[offsets[nodeId] + index];
   }
 
+  /**
+   * Returns the offsets array, {@code nodeCount + 1} long: the neighbors of {@code v} are at
+   * {@code [offsets[v], offsets[v + 1])}. Do NOT modify — this may be the CSR's internal buffer.
+   */
+  public int[] offsets() {
+    return offsets;
+  }
+
   /**
    * Returns the packed neighbor array. Do NOT modify — this may be the CSR's internal buffer.
    */
@@ -0,0 +1,449 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.graph.olap;
+
+import java.util.Arrays;
+
+/**
+ * Modularity-based community detection on a {@link CommunityGraph}: Louvain and Leiden, over primitive arrays only.
+ * <p>
+ * Both repeat two phases until the partition stops improving. The local-moving phase sweeps the nodes and moves
+ * each into the neighbouring community with the best modularity gain; community weights live in a {@code double[]}
+ * indexed by community, the weight from a node to each neighbouring community is summed in a reusable per-thread
+ * {@link CommunityWeights}, so a move is O(degree). The aggregation phase then builds the next level as a new
+ * in-memory CSR with one node per community ({@link CommunityGraph#aggregate}), and the levels are composed back onto
+ * the original nodes at the end.
+ * <p>
+ * On a graph of at least {@value #PARALLEL_MOVE_THRESHOLD} nodes the sweep is parallel: the level is colored once
+ * (greedy, no two neighbours share a color), then within a color every node picks its community on a thread of the
+ * query-engine pool against the same snapshot - neighbours are never in the same color, so no node's choice depends
+ * on another one made in the same round - and the moves are applied between colors. The answer therefore depends on
+ * the graph, not on the number of threads. Smaller levels are swept sequentially, moving every node as soon as it is
+ * scored, which is the classic formulation.
+ * <p>
+ * Leiden adds a refinement phase between the two (Traag, Waltman and van Eck): each community is split again into
+ * sub-communities grown by merging well-connected singletons only, and it is the refined partition that gets
+ * aggregated, with the unrefined one as the starting point of the next level. That is what guarantees every
+ * community it returns is connected, which Louvain does not. Communities are refined independently of one another,
+ * so that phase runs in parallel too. Merges pick the best gain rather than a random one among the positive gains.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public final class CommunityDetection {
+  /**
+   * Working set per node of the original graph, in bytes: the membership and community arrays, the community
+   * weights, the move decisions and the coloring. A caller with a memory budget adds
+   * {@link CommunityGraph#BYTES_PER_NODE} and {@link CommunityGraph#BYTES_PER_ENTRY} for the aggregated levels.
+   */
+  public static final long BYTES_PER_NODE = 4 * 4 + 2 * 8 + 3 * 4;
+
+  static final int PARALLEL_MOVE_THRESHOLD = 8192;
+
+  /**
+   * Outcome of a run.
+   *
+   * @param communities    community of every node, numbered from 0 in order of first appearance
+   * @param communityCount number of distinct communities
+   * @param modularity     modularity of the partition at the requested resolution
+   * @param levels         number of levels that moved at least one node
+   */
+  public record Partition(int[] communities, int communityCount, double modularity, int levels) {
+  }
+
+  private CommunityDetection() {
+  }
+
+  /**
+   * Louvain method (Blondel et al.).
+   *
+   * @param maxLevels     maximum number of aggregation levels
+   * @param maxIterations maximum number of local-moving sweeps per level
+   * @param tolerance     a level stops sweeping once a sweep improves modularity by less than this
+   * @param resolution    resolution parameter (gamma): higher values favour smaller communities
+   * @param checkpoint    called on the calling thread before every level, sweep and color; throws to abort
+   */
+  public static Partition louvain(final CommunityGraph graph, final int maxLevels, final int maxIterations,
+      final double tolerance, final double resolution, final WorkCheckpoint checkpoint) {
+    return detect(graph, maxLevels, maxIterations, tolerance, resolution, false, checkpoint);
+  }
+
+  /**
+   * Leiden algorithm: {@link #louvain} with the refinement phase between local moving and aggregation.
+   */
+  public static Partition leiden(final CommunityGraph graph, final int maxLevels, final int maxIterations,
+      final double tolerance, final double resolution, final WorkCheckpoint checkpoint) {
+    return detect(graph, maxLevels, maxIterations, tolerance, resolution, true, checkpoint);
+  }
+
+  private static Partition detect(final CommunityGraph graph, final int maxLevels, final int maxIterations,
+      final double tolerance, final double resolution, final boolean refine, final WorkCheckpoint checkpoint) {
+    final int n = graph.nodeCount();
+    // membership[v]: the node of the current level that original node v has been aggregated into
+    final int[] membership = identity(n);
+    CommunityGraph level = graph;
+    int[] community = identity(n);
+    int levels = 0;
+
+    for (int l = 0; l < maxLevels; l++) {
+      checkpoint.check();
+      if (!moveNodes(level, community, maxIterations, tolerance, resolution, checkpoint))
+        break;
+      levels++;
+
+      final int communityCount = compact(community);
+      final int[] aggregateBy;
+      final int aggregateCount;
+      if (refine) {
+        aggregateBy = refine(level, community, communityCount, resolution);
+        aggregateCount = compact(aggregateBy);
+      } else {
+        aggregateBy = community;
+        aggregateCount = communityCount;
+      }
+      if (aggregateCount == level.nodeCount())
+        // nothing merged: the next level would be this one again
+        break;
+
+      for (int v = 0; v < n; v++)
+        membership[v] = aggregateBy[membership[v]];
+
+      final int[] next = new int[aggregateCount];
+      if (refine)
+        // every refined community lies inside one community, which is where its aggregate node starts from
+        for (int v = 0; v < level.nodeCount(); v++)
+          next[aggregateBy[v]] = community[v];
+      else
+        for (int c = 0; c < aggregateCount; c++)
+          next[c] = c;
+
+      checkpoint.check();
+      level = level.aggregate(aggregateBy, aggregateCount);
+      community = next;
+    }
+
+    final int count = compact(community);
+    final double modularity = level.modularity(community, resolution);
+    final int[] result = new int[n];
+    for (int v = 0; v < n; v++)
+      result[v] = community[membership[v]];
+    // renumber by the original nodes, so ids follow their order and not the order of the last level
+    compact(result);
+    return new Partition(result, count, modularity, levels);
+  }
+
+  // --- Local moving ---
+
+  /**
+   * Sweeps the nodes of one level until no node moves, a sweep gains less than {@code tolerance} or
+   * {@code maxIterations} sweeps have run. Updates {@code community} in place.
+   *
+   * @return whether any node moved
+   */
+  private static boolean moveNodes(final CommunityGraph level, final int[] community, final int maxIterations,
+      final double tolerance, final double resolution, final WorkCheckpoint checkpoint) {
+    final int n = level.nodeCount();
+    final double m2 = level.totalWeight();
+    if (m2 == 0)
+      return false;
+
+    final double[] communityWeights = new double[n];
+    for (int v = 0; v < n; v++)
+      communityWeights[community[v]] += level.nodeWeight(v);
+
+    final int[] colorOffsets;
+    final int[] colorNodes;
+    final int[] target;
+    final double[] gain;
+    if (n >= PARALLEL_MOVE_THRESHOLD && GraphAlgorithms.getParallelism() > 1) {
+      colorNodes = new int[n];
+      colorOffsets = color(level, colorNodes);
+      target = new int[n];
+      gain = new double[n];
+    } else {
+      colorOffsets = null;
+      colorNodes = null;
+      target = null;
+      gain = null;
+    }
+
+    boolean moved = false;
+    final CommunityWeights weights = new CommunityWeights();
+    for (int iteration = 0; iteration < maxIterations; iteration++) {
+      checkpoint.check();
+      int moves = 0;
+      double sweepGain = 0;
+
+      if (colorOffsets == null) {
+        for (int v = 0; v < n; v++) {
+          final int from = community[v];
+          final int to = bestCommunity(level, v, community, communityWeights, resolution, weights);
+          if (to != from) {
+            sweepGain += moveGain(level, v, from, to, communityWeights, resolution, weights);
+            communityWeights[from] -= level.nodeWeight(v);
+            communityWeights[to] += level.nodeWeight(v);
+            community[v] = to;
+            moves++;
+          }
+        }
+      } else {
+        for (int c = 0; c + 1 < colorOffsets.length; c++) {
+          checkpoint.check();
+          final int base = colorOffsets[c];
+          // decide in parallel against the state left by the previous colors...
+          GraphAlgorithms.parallelForRange(colorOffsets[c + 1] - base, (start, end) -> {
+            final CommunityWeights local = new CommunityWeights();
+            for (int i = base + start; i < base + end; i++) {
+              final int v = colorNodes[i];
+              final int to = bestCommunity(level, v, community, communityWeights, resolution, local);
+              target[v] = to;
+              gain[v] = to != community[v] ? moveGain(level, v, community[v], to, communityWeights, resolution, local) : 0;
+            }
+          });
+          // ...then apply, so the next color sees these moves
+          for (int i = base; i < colorOffsets[c + 1]; i++) {
+            final int v = colorNodes[i];
+            final int from = community[v];
+            final int to = target[v];
+            if (to != from) {
+              sweepGain += gain[v];
+              communityWeights[from] -= level.nodeWeight(v);
+              communityWeights[to] += level.nodeWeight(v);
+              community[v] = to;
+              moves++;
+            }
+          }
+        }
+      }
+
+      if (moves == 0)
+        break;
+      moved = true;
+      if (sweepGain < tolerance)
+        break;
+    }
+    return moved;
+  }
+
+  /**
+   * Community of the neighbourhood of {@code v} with the best gain for it, its own community included - taken as if
+   * {@code v} had already left it. Leaves the weights from {@code v} to each neighbouring community in
+   * {@code weights}.
+   */
+  private static int bestCommunity(final CommunityGraph level, final int v, final int[] community,
+      final double[] communityWeights, final double resolution, final CommunityWeights weights) {
+    weights.clear();
+    for (int j = level.offset(v), end = level.offsetEnd(v); j < end; j++) {
+      final int u = level.neighbor(j);
+      if (u != v)
+        weights.add(community[u], level.weight(j));
+    }
+
+    final int own = community[v];
+    final double k = level.nodeWeight(v);
+    final double scale = resolution * k / level.totalWeight();
+    int best = own;
+    double bestScore = weights.get(own) - scale * (communityWeights[own] - k);
+    for (int i = 0; i < weights.size(); i++) {
+      final int c = weights.community(i);
+      if (c == own)
+        continue;
+      final double score = weights.weight(i) - scale * communityWeights[c];
+      if (score > bestScore) {
+        bestScore = score;
+        best = c;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Modularity gained by moving {@code v} from {@code from} to {@code to}, with {@code weights} as left by
+   * {@link #bestCommunity}.
+   */
+  private static double moveGain(final CommunityGraph level, final int v, final int from, final int to,
+      final double[] communityWeights, final double resolution, final CommunityWeights weights) {
+    final double m2 = level.totalWeight();
+    final double k = level.nodeWeight(v);
+    final double scale = resolution * k / m2;
+    final double into = weights.get(to) - scale * communityWeights[to];
+    final double stay = weights.get(from) - scale * (communityWeights[from] - k);
+    return 2 * (into - stay) / m2;
+  }
+
+  /**
+   * Greedy distance-1 coloring: every node takes the smallest color none of its already colored neighbours has.
+   * Fills {@code colorNodes} with the nodes grouped by color and returns the offsets of the groups.
+   */
+  private static int[] color(final CommunityGraph level, final int[] colorNodes) {
+    final int n = level.nodeCount();
+    final int[] color = new int[n];
+    Arrays.fill(color, -1);
+    int[] taken = new int[64]; // taken[c] == v + 1: color c is used by a neighbour of v
+    int colors = 0;
+    for (int v = 0; v < n; v++) {
+      for (int j = level.offset(v), end = level.offsetEnd(v); j < end; j++) {
+        final int c = color[level.neighbor(j)];
+        if (c >= 0)
+          taken[c] = v + 1;
+      }
+      int c = 0;
+      while (c < colors && taken[c] == v + 1)
+        c++;
+      color[v] = c;
+      if (c == colors) {
+        colors++;
+        if (colors == taken.length)
+          taken = Arrays.copyOf(taken, colors * 2);
+      }
+    }
+
+    final int[] offsets = new int[colors + 1];
+    for (int v = 0; v < n; v++)
+      offsets[color[v] + 1]++;
+    for (int c = 0; c < colors; c++)
+      offsets[c + 1] += offsets[c];
+    final int[] cursor = Arrays.copyOf(offsets, colors);
+    for (int v = 0; v < n; v++)
+      colorNodes[cursor[color[v]]++] = v;
+    return offsets;
+  }
+
+  // --- Refinement (Leiden) ---
+
+  /**
+   * Splits every community into well-connected sub-communities. Each starts as singletons; a singleton that is
+   * well connected to the rest of its community joins the neighbouring sub-community of the same community with the
+   * best non-negative gain, provided that sub-community is itself well connected. Nodes that already took part in a
+   * merge stay put, so a sub-community only ever grows by nodes attached to it, which is what keeps it connected.
+   *
+   * @return the refined partition, one id per node (a node id of the level, not compacted)
+   */
+  private static int[] refine(final CommunityGraph level, final int[] community, final int communityCount,
+      final double resolution) {
+    final int n = level.nodeCount();
+    final double m2 = level.totalWeight();
+    final int[] refined = identity(n);
+    if (m2 == 0)
+      return refined;
+
+    final int[] memberOffsets = new int[communityCount + 1];
+    for (int v = 0; v < n; v++)
+      memberOffsets[community[v] + 1]++;
+    for (int c = 0; c < communityCount; c++)
+      memberOffsets[c + 1] += memberOffsets[c];
+    final int[] members = new int[n];
+    final int[] cursor = Arrays.copyOf(memberOffsets, communityCount);
+    for (int v = 0; v < n; v++)
+      members[cursor[community[v]]++] = v;
+
+    // per refined community (indexed by the node that seeded it): its weight, and the weight of its edges to the rest
+    // of its community; both only ever touched by the thread refining that community
+    final double[] refinedWeights = new double[n];
+    final double[] externalWeights = new double[n];
+    final boolean[] singleton = new boolean[n];
+
+    GraphAlgorithms.parallelForRange(communityCount, (start, end) -> {
+      final CommunityWeights weights = new CommunityWeights();
+      for (int c = start; c < end; c++) {
+        final int from = memberOffsets[c];
+        final int to = memberOffsets[c + 1];
+        if (to - from == 1)
+          continue;
+
+        double total = 0;
+        for (int i = from; i < to; i++) {
+          final int v = members[i];
+          total += level.nodeWeight(v);
+          refinedWeights[v] = level.nodeWeight(v);
+          singleton[v] = true;
+          double external = 0;
+          for (int j = level.offset(v), e = level.offsetEnd(v); j < e; j++) {
+            final int u = level.neighbor(j);
+            if (u != v && community[u] == c)
+              external += level.weight(j);
+          }
+          externalWeights[v] = external;
+        }
+
+        for (int i = from; i < to; i++) {
+          final int v = members[i];
+          if (!singleton[v])
+            continue;
+          final double k = level.nodeWeight(v);
+          if (externalWeights[v] < resolution * k * (total - k) / m2)
+            continue;
+
+          weights.clear();
+          for (int j = level.offset(v), e = level.offsetEnd(v); j < e; j++) {
+            final int u = level.neighbor(j);
+            if (u != v && community[u] == c)
+              weights.add(refined[u], level.weight(j));
+          }
+
+          int best = -1;
+          double bestScore = 0;
+          for (int w = 0; w < weights.size(); w++) {
+            final int r = weights.community(w);
+            if (externalWeights[r] < resolution * refinedWeights[r] * (total - refinedWeights[r]) / m2)
+              continue;
+            final double score = weights.weight(w) - resolution * k * refinedWeights[r] / m2;
+            if (score >= bestScore && (best < 0 || score > bestScore)) {
+              bestScore = score;
+              best = r;
+            }
+          }
+          if (best >= 0) {
+            refined[v] = best;
+            refinedWeights[best] += k;
+            externalWeights[best] += externalWeights[v] - 2 * weights.get(best);
+            singleton[best] = false;
+            singleton[v] = false;
+          }
+        }
+      }
+    });
+    return refined;
+  }
+
+  // --- Helpers ---
+
+  /**
+   * Renumbers the ids in {@code ids}, each in {@code [0, ids.length)}, to {@code [0, count)} in order of first
+   * appearance, and returns {@code count}.
+   */
+  static int compact(final int[] ids) {
+    final int[] remap = new int[ids.length];
+    Arrays.fill(remap, -1);
+    int count = 0;
+    for (int i = 0; i < ids.length; i++) {
+      final int id = ids[i];
+      if (remap[id] < 0)
+        remap[id] = count++;
+      ids[i] = remap[id];
+    }
+    return count;
+  }
+
+  private static int[] identity(final int n) {
+    final int[] ids = new int[n];
+    for (int i = 0; i < n; i++)
+      ids[i] = i;
+    return ids;
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.graph.olap;
+
+import com.arcadedb.graph.NeighborView;
+
+/**
+ * Undirected, weighted graph in CSR layout, the input of {@link CommunityDetection} and the shape each of its levels
+ * is aggregated into.
+ * <p>
+ * Every edge is listed from both endpoints, so the neighbours of v are {@code neighbors[offsets[v] .. offsets[v+1])}
+ * with the weight at the same position (unit weights when the weight array is {@code null}). A self-loop is a
+ * neighbour equal to the node itself: on an aggregated level it carries the weight of all the edges inside the
+ * community the node stands for, both directions included, which is what keeps the modularity of a level equal to
+ * the modularity of the partition it represents on the original graph.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public final class CommunityGraph {
+  /** Bytes per node of a level: offset and node weight. */
+  public static final long BYTES_PER_NODE = 4 + 8;
+
+  /** Bytes per adjacency entry of an aggregated level: neighbour and weight. */
+  public static final long BYTES_PER_ENTRY = 4 + 8;
+
+  private final int      nodeCount;
+  private final int[]    offsets;
+  private final int[]    neighbors;
+  private final double[] weights;
+  private final double[] nodeWeights;
+  private final double   totalWeight;
+
+  /**
+   * Unit-weight graph over a {@link com.arcadedb.graph.Vertex.DIRECTION#BOTH BOTH} adjacency, which already lists every edge from both of
+   * its endpoints. The view's arrays are shared, not copied.
+   */
+  public CommunityGraph(final NeighborView both) {
+    this(both.nodeCount(), both.offsets(), both.neighbors(), null);
+  }
+
+  /**
+   * @param offsets   {@code nodeCount + 1} offsets into {@code neighbors}
+   * @param neighbors neighbours of every node, each edge listed from both endpoints
+   * @param weights   weight of the entry at the same position, or {@code null} for unit weights
+   */
+  public CommunityGraph(final int nodeCount, final int[] offsets, final int[] neighbors, final double[] weights) {
+    this.nodeCount = nodeCount;
+    this.offsets = offsets;
+    this.neighbors = neighbors;
+    this.weights = weights;
+    this.nodeWeights = new double[nodeCount];
+
+    double total = 0;
+    for (int v = 0; v < nodeCount; v++) {
+      double k;
+      if (weights == null)
+        k = offsets[v + 1] - offsets[v];
+      else {
+        k = 0;
+        for (int j = offsets[v], end = offsets[v + 1]; j < end; j++)
+          k += weights[j];
+      }
+      nodeWeights[v] = k;
+      total += k;
+    }
+    this.totalWeight = total;
+  }
+
+  /**
+   * Packs per-node rows, such as a {@code GraphData.weightedAdjacency(BOTH)}, into one graph.
+   */
+  public static CommunityGraph of(final int[][] neighbors, final double[][] weights) {
+    final int n = neighbors.length;
+    final int[] offsets = new int[n + 1];
+    for (int v = 0; v < n; v++)
+      offsets[v + 1] = offsets[v] + neighbors[v].length;
+    final int[] packed = new int[offsets[n]];
+    final double[] packedWeights = new double[offsets[n]];
+    for (int v = 0; v < n; v++) {
+      System.arraycopy(neighbors[v], 0, packed, offsets[v], neighbors[v].length);
+      System.arraycopy(weights[v], 0, packedWeights, offsets[v], weights[v].length);
+    }
+    return new CommunityGraph(n, offsets, packed, packedWeights);
+  }
+
+  public int nodeCount() {
+    return nodeCount;
+  }
+
+  /** Number of adjacency entries: twice the edges, self-loops once per listing. */
+  public int entryCount() {
+    return offsets[nodeCount];
+  }
+
+  public int offset(final int v) {
+    return offsets[v];
+  }
+
+  public int offsetEnd(final int v) {
+    return offsets[v + 1];
+  }
+
+  public int neighbor(final int entry) {
+    return neighbors[entry];
+  }
+
+  public double weight(final int entry) {
+    return weights == null ? 1.0 : weights[entry];
+  }
+
+  /** Weighted degree of {@code v}, its self-loop included. */
+  public double nodeWeight(final int v) {
+    return nodeWeights[v];
+  }
+
+  /** Sum of all the node weights, that is twice the total edge weight (2m). */
+  public double totalWeight() {
+    return totalWeight;
+  }
+
+  /**
+   * Next level of the hierarchy: one node per community of {@code partition}, linked by the summed weight of the
+   * edges between their members, and a self-loop holding the weight inside the community.
+   * <p>
+   * Members are bucketed by community first, then every community merges the rows of its members on its own, so the
+   * rows are built in parallel: once to size them, once more to fill them in place - twice the work of a single pass,
+   * but without a temporary row per community.
+   *
+   * @param partition community of every node, compacted to {@code [0, count)}
+   */
+  CommunityGraph aggregate(final int[] partition, final int count) {
+    final int[] memberOffsets = new int[count + 1];
+    for (int v = 0; v < nodeCount; v++)
+      memberOffsets[partition[v] + 1]++;
+    for (int c = 0; c < count; c++)
+      memberOffsets[c + 1] += memberOffsets[c];
+    final int[] members = new int[nodeCount];
+    final int[] cursor = new int[count];
+    for (int v = 0; v < nodeCount; v++) {
+      final int c = partition[v];
+      members[memberOffsets[c] + cursor[c]++] = v;
+    }
+
+    final int[] rowOffsets = new int[count + 1];
+    GraphAlgorithms.parallelForRange(count, (start, end) -> {
+      final CommunityWeights row = new CommunityWeights();
+      for (int c = start; c < end; c++)
+        rowOffsets[c + 1] = mergeRow(c, partition, members, memberOffsets, row).size();
+    });
+    for (int c = 0; c < count; c++)
+      rowOffsets[c + 1] += rowOffsets[c];
+
+    final int[] rowNeighbors = new int[rowOffsets[count]];
+    final double[] rowWeights = new double[rowOffsets[count]];
+    GraphAlgorithms.parallelForRange(count, (start, end) -> {
+      final CommunityWeights row = new CommunityWeights();
+      for (int c = start; c < end; c++) {
+        mergeRow(c, partition, members, memberOffsets, row);
+        for (int i = 0, base = rowOffsets[c]; i < row.size(); i++) {
+          rowNeighbors[base + i] = row.community(i);
+          rowWeights[base + i] = row.weight(i);
+        }
+      }
+    });
+    return new CommunityGraph(count, rowOffsets, rowNeighbors, rowWeights);
+  }
+
+  private CommunityWeights mergeRow(final int c, final int[] partition, final int[] members, final int[] memberOffsets,
+      final CommunityWeights row) {
+    row.clear();
+    for (int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++) {
+      final int v = members[i];
+      for (int j = offsets[v], end = offsets[v + 1]; j < end; j++)
+        row.add(partition[neighbors[j]], weight(j));
+    }
+    return row;
+  }
+
+  /**
+   * Modularity of a partition: {@code Q = sum_c [ in_c / 2m - resolution * (tot_c / 2m)^2 ]}, with {@code in_c} the
+   * weight of the entries inside community c and {@code tot_c} the weight of its nodes. Zero on a graph with no edge.
+   *
+   * @param communities community of every node, each in {@code [0, nodeCount)}
+   */
+  public double modularity(final int[] communities, final double resolution) {
+    if (totalWeight == 0)
+      return 0.0;
+
+    final double[] internal = new double[nodeCount];
+    final double[] total = new double[nodeCount];
+    for (int v = 0; v < nodeCount; v++) {
+      final int c = communities[v];
+      total[c] += nodeWeights[v];
+      for (int j = offsets[v], end = offsets[v + 1]; j < end; j++)
+        if (communities[neighbors[j]] == c)
+          internal[c] += weight(j);
+    }
+
+    double q = 0;
+    for (int c = 0; c < nodeCount; c++)
+      if (total[c] > 0)
+        q += internal[c] / totalWeight - resolution * (total[c] / totalWeight) * (total[c] / totalWeight);
+    return q;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.graph.olap;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread accumulator of edge weight by community, the inner loop of {@link CommunityDetection}: one node's (or
+ * one community's) neighbourhood is summed here, then read back in insertion order. Open addressing over primitive
+ * arrays that grow with the largest neighbourhood seen and are reused for the next one, so scoring a node allocates
+ * nothing and costs in proportion to its degree rather than to the node count.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+final class CommunityWeights {
+  private int[]    slots       = new int[16]; // position + 1 in the dense arrays, 0 = free
+  private int[]    communities = new int[8];
+  private double[] weights     = new double[8];
+  private int      size;
+
+  void clear() {
+    if (size == 0)
+      return;
+    if (size * 4 > slots.length)
+      Arrays.fill(slots, 0);
+    else {
+      // only the runs holding a key are dirty: a small neighbourhood after a large one must not pay for the whole
+      // table. Every used slot sits in the occupied run that starts at its key's home slot, so clearing each of those
+      // runs up to the first free slot clears them all.
+      final int mask = slots.length - 1;
+      for (int i = 0; i < size; i++)
+        for (int slot = hash(communities[i]) & mask; slots[slot] != 0; slot = (slot + 1) & mask)
+          slots[slot] = 0;
+    }
+    size = 0;
+  }
+
+  void add(final int community, final double weight) {
+    final int mask = slots.length - 1;
+    int slot = hash(community) & mask;
+    while (slots[slot] != 0) {
+      final int position = slots[slot] - 1;
+      if (communities[position] == community) {
+        weights[position] += weight;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (size == communities.length) {
+      communities = Arrays.copyOf(communities, size * 2);
+      weights = Arrays.copyOf(weights, size * 2);
+    }
+    communities[size] = community;
+    weights[size] = weight;
+    slots[slot] = ++size;
+    if (size * 2 > slots.length)
+      rehash();
+  }
+
+  /** Accumulated weight towards {@code community}, 0 when it was never added. */
+  double get(final int community) {
+    final int mask = slots.length - 1;
+    int slot = hash(community) & mask;
+    while (slots[slot] != 0) {
+      final int position = slots[slot] - 1;
+      if (communities[position] == community)
+        return weights[position];
+      slot = (slot + 1) & mask;
+    }
+    return 0.0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int community(final int i) {
+    return communities[i];
+  }
+
+  double weight(final int i) {
+    return weights[i];
+  }
+
+  private void rehash() {
+    slots = new int[slots.length * 2];
+    final int mask = slots.length - 1;
+    for (int i = 0; i < size; i++) {
+      int slot = hash(communities[i]) & mask;
+      while (slots[slot] != 0)
+        slot = (slot + 1) & mask;
+      slots[slot] = i + 1;
+    }
+  }
+
+  private static int hash(final int key) {
+    final int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -19,6 +19,7 @@
 package com.arcadedb.graph.olap;
 
 import com.arcadedb.exception.CommandExecutionException;
+import com.arcadedb.graph.NeighborView;
 import com.arcadedb.graph.Vertex;
 import com.arcadedb.graph.Vertex.DIRECTION;
 
@@ -27,11 +28,14 @@ import com.arcadedb.query.QueryEngineManager;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.PriorityQueue;
+import java.util.SplittableRandom;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.BiConsumer;
 
@@ -51,6 +55,8 @@ import java.util.function.BiConsumer;
  *   <li>{@link #shortestPathAll} — parallel BFS for single-source shortest paths to all nodes</li>
  *   <li>{@link #labelPropagation} — synchronous parallel community detection via label propagation</li>
  *   <li>{@link #localClusteringCoefficient} — parallel triangle counting for LCC</li>
+ *   <li>{@link #betweenness}, {@link #closeness}, {@link #harmonic}, {@link #eccentricity} — source-parallel BFS
+ *   centralities, exact or estimated from random pivots</li>
  * </ul>
  *
  * @author Luca Garulli (l.garulli@arcadedata.com)
@@ -1444,6 +1450,422 @@ public final class GraphAlgorithms {
     return lcc;
   }
 
+  // --- Centrality (Parallel Multi-Source BFS) ---
+
+  /**
+   * Per-thread working set of {@link #betweenness}, in bytes per node: BFS distance and visit order ({@code int}),
+   * path count, dependency and the thread's partial scores ({@code double}). A caller with a memory budget prices
+   * {@code workers x nodes x} this before it picks {@code maxWorkers}.
+   */
+  public static final long BETWEENNESS_BYTES_PER_NODE = 2 * 4 + 3 * 8;
+
+  /**
+   * Per-thread working set of the BFS behind {@link #closeness}, {@link #harmonic} and {@link #eccentricity}, in bytes
+   * per node: distance and queue, plus the two accumulators a sampled run keeps per thread.
+   */
+  public static final long DISTANCE_BFS_BYTES_PER_NODE = 2 * 4 + 2 * 8;
+
+  // below this many node+edge visits summed over all sources one thread is faster than starting the others
+  private static final long PARALLEL_SOURCES_THRESHOLD = 1L << 20;
+  private static final int  SOURCE_BATCH               = 8;
+
+  /**
+   * Number of threads the parallel kernels use at most: one per available core.
+   */
+  public static int getParallelism() {
+    return PARALLELISM;
+  }
+
+  /**
+   * Betweenness centrality with Brandes' algorithm, one BFS and one dependency accumulation per source.
+   * <p>
+   * Sources are independent, so they are handed out in small batches to up to {@code maxWorkers} threads of the
+   * query-engine pool, each with its own BFS state and partial scores, and the partials are summed at the end. The
+   * dependency pass walks the BFS order backwards and reads the successors of each node out of the same adjacency
+   * (a neighbour one level further), so neither predecessor lists nor the reverse adjacency are needed, and only the
+   * nodes a source reached are reset before the next one.
+   * <p>
+   * With {@code samplingSize} between 1 and n - 1 only that many random pivots are used as sources and the scores are
+   * scaled by n / samplingSize (Brandes and Pich): an unbiased estimate at a fraction of the cost.
+   *
+   * @param adj          adjacency in the traversal direction
+   * @param samplingSize number of random pivots, or 0 (or >= n) for the exact scores
+   * @param seed         seed of the pivot selection
+   * @param maxWorkers   upper bound of threads, see {@link #BETWEENNESS_BYTES_PER_NODE}
+   * @param checkpoint   called between sources on the calling thread; throws to abort
+   * @return raw (not normalized) scores indexed by dense node ID
+   */
+  public static double[] betweenness(final NeighborView adj, final int samplingSize, final long seed, final int maxWorkers,
+      final WorkCheckpoint checkpoint) {
+    final int n = adj.nodeCount();
+    if (n == 0)
+      return new double[0];
+
+    final int[] sources = samplePivots(n, samplingSize, seed);
+    final int sourceCount = sources != null ? sources.length : n;
+    final int workers = sourceWorkers(adj, sourceCount, maxWorkers);
+    final double[][] partials = new double[workers][];
+    final int[] offsets = adj.offsets();
+    final int[] nbrs = adj.neighbors();
+
+    forEachSource(sourceCount, workers, checkpoint, (worker, cursor, aborted, calling) -> {
+      final int[] dist = new int[n];
+      Arrays.fill(dist, -1);
+      final int[] order = new int[n];
+      final double[] sigma = new double[n];
+      final double[] delta = new double[n];
+      final double[] partial = new double[n];
+      partials[worker] = partial;
+
+      for (int b; (b = cursor.getAndAdd(SOURCE_BATCH)) < sourceCount && !aborted.get(); ) {
+        for (int i = b, e = Math.min(b + SOURCE_BATCH, sourceCount); i < e; i++) {
+          if (calling)
+            checkpoint.check();
+          final int s = sources != null ? sources[i] : i;
+
+          // forward: BFS counting the shortest paths
+          int tail = 0;
+          order[tail++] = s;
+          dist[s] = 0;
+          sigma[s] = 1.0;
+          for (int head = 0; head < tail; head++) {
+            final int v = order[head];
+            final int next = dist[v] + 1;
+            for (int j = offsets[v], end = offsets[v + 1]; j < end; j++) {
+              final int w = nbrs[j];
+              if (dist[w] < 0) {
+                dist[w] = next;
+                order[tail++] = w;
+              }
+              if (dist[w] == next)
+                sigma[w] += sigma[v];
+            }
+          }
+
+          // backward: farthest nodes first, every successor's dependency is final when its predecessors read it
+          for (int k = tail - 1; k >= 0; k--) {
+            final int v = order[k];
+            final int next = dist[v] + 1;
+            double sum = 0.0;
+            for (int j = offsets[v], end = offsets[v + 1]; j < end; j++) {
+              final int w = nbrs[j];
+              if (dist[w] == next)
+                sum += (1.0 + delta[w]) / sigma[w];
+            }
+            delta[v] = sigma[v] * sum;
+            if (v != s)
+              partial[v] += delta[v];
+          }
+
+          for (int k = 0; k < tail; k++) {
+            final int v = order[k];
+            dist[v] = -1;
+            sigma[v] = 0.0;
+            delta[v] = 0.0;
+          }
+        }
+      }
+    });
+
+    final double scale = sources != null ? (double) n / sourceCount : 1.0;
+    return sumPartials(partials, n, scale);
+  }
+
+  /**
+   * Closeness centrality: the number of nodes a node reaches divided by the sum of their distances, times the
+   * reached fraction of the graph when {@code normalized} (Wasserman-Faust), 0 for a node reaching nothing.
+   * <p>
+   * The exact scores run one BFS per node, spread over up to {@code maxWorkers} threads like {@link #betweenness}.
+   * With {@code samplingSize} between 1 and n - 1 (Eppstein-Wang) only that many random pivots are traversed, over
+   * the {@code reverse} adjacency: that yields the distance from every node to each pivot, and the reached count and
+   * distance sum of every node are estimated from its pivots.
+   *
+   * @param adj          adjacency in the traversal direction
+   * @param reverse      adjacency in the opposite direction, only read when sampling
+   * @param samplingSize number of random pivots, or 0 (or >= n) for the exact scores
+   * @return scores indexed by dense node ID
+   */
+  public static double[] closeness(final NeighborView adj, final NeighborView reverse, final boolean normalized,
+      final int samplingSize, final long seed, final int maxWorkers, final WorkCheckpoint checkpoint) {
+    final int n = adj.nodeCount();
+    final double[] scores = new double[n];
+    if (n == 0)
+      return scores;
+
+    final int[] pivots = samplePivots(n, samplingSize, seed);
+    if (pivots == null) {
+      distancesFromEverySource(adj, maxWorkers, checkpoint, (source, reached, distanceSum, harmonicSum, maxDistance) -> {
+        if (reached > 0 && distanceSum > 0) {
+          scores[source] = (double) reached / distanceSum;
+          if (normalized && n > 1)
+            scores[source] *= (double) reached / (n - 1);
+        }
+      });
+      return scores;
+    }
+
+    // both estimates scale by n / pivots, so their ratio is the pivots' own; only the reached fraction needs scaling
+    final double[][] estimate = distancesToPivots(reverse, pivots, false, maxWorkers, checkpoint);
+    final double scale = (double) n / pivots.length;
+    for (int v = 0; v < n; v++)
+      if (estimate[0][v] > 0 && estimate[1][v] > 0) {
+        scores[v] = estimate[0][v] / estimate[1][v];
+        if (normalized && n > 1)
+          scores[v] *= Math.min(estimate[0][v] * scale, n - 1) / (n - 1);
+      }
+    return scores;
+  }
+
+  /**
+   * Harmonic centrality: the sum of the reciprocal distances to every reached node, divided by n - 1 when
+   * {@code normalized}. Exact and sampled runs as in {@link #closeness}.
+   *
+   * @return scores indexed by dense node ID
+   */
+  public static double[] harmonic(final NeighborView adj, final NeighborView reverse, final boolean normalized,
+      final int samplingSize, final long seed, final int maxWorkers, final WorkCheckpoint checkpoint) {
+    final int n = adj.nodeCount();
+    final double[] scores = new double[n];
+    if (n == 0)
+      return scores;
+
+    final double norm = normalized && n > 1 ? 1.0 / (n - 1) : 1.0;
+    final int[] pivots = samplePivots(n, samplingSize, seed);
+    if (pivots == null) {
+      distancesFromEverySource(adj, maxWorkers, checkpoint,
+          (source, reached, distanceSum, harmonicSum, maxDistance) -> scores[source] = harmonicSum * norm);
+      return scores;
+    }
+
+    final double[][] estimate = distancesToPivots(reverse, pivots, true, maxWorkers, checkpoint);
+    final double scale = (double) n / pivots.length * norm;
+    for (int v = 0; v < n; v++)
+      scores[v] = estimate[1][v] * scale;
+    return scores;
+  }
+
+  /**
+   * Eccentricity: the distance to the farthest node each node reaches, one BFS per node on up to {@code maxWorkers}
+   * threads. Always exact, because pivots only bound an eccentricity from below.
+   *
+   * @return eccentricities indexed by dense node ID
+   */
+  public static int[] eccentricity(final NeighborView adj, final int maxWorkers, final WorkCheckpoint checkpoint) {
+    final int[] ecc = new int[adj.nodeCount()];
+    distancesFromEverySource(adj, maxWorkers, checkpoint,
+        (source, reached, distanceSum, harmonicSum, maxDistance) -> ecc[source] = maxDistance);
+    return ecc;
+  }
+
+  @FunctionalInterface
+  private interface SourceDistances {
+    void accept(int source, int reached, long distanceSum, double harmonicSum, int maxDistance);
+  }
+
+  @FunctionalInterface
+  private interface SourceWorker {
+    void run(int worker, AtomicInteger cursor, AtomicBoolean aborted, boolean callingThread);
+  }
+
+  /**
+   * One BFS from every node, reporting the distance aggregates of each source. Sources write disjoint slots, so the
+   * consumer needs no synchronization.
+   */
+  private static void distancesFromEverySource(final NeighborView adj, final int maxWorkers, final WorkCheckpoint checkpoint,
+      final SourceDistances consumer) {
+    final int n = adj.nodeCount();
+    if (n == 0)
+      return;
+    final int[] offsets = adj.offsets();
+    final int[] nbrs = adj.neighbors();
+
+    forEachSource(n, sourceWorkers(adj, n, maxWorkers), checkpoint, (worker, cursor, aborted, calling) -> {
+      final int[] dist = new int[n];
+      Arrays.fill(dist, -1);
+      final int[] queue = new int[n];
+
+      for (int b; (b = cursor.getAndAdd(SOURCE_BATCH)) < n && !aborted.get(); ) {
+        for (int s = b, e = Math.min(b + SOURCE_BATCH, n); s < e; s++) {
+          if (calling)
+            checkpoint.check();
+          int tail = 0;
+          queue[tail++] = s;
+          dist[s] = 0;
+          long distanceSum = 0;
+          double harmonicSum = 0.0;
+          int maxDistance = 0;
+          for (int head = 0; head < tail; head++) {
+            final int u = queue[head];
+            final int next = dist[u] + 1;
+            for (int j = offsets[u], end = offsets[u + 1]; j < end; j++) {
+              final int v = nbrs[j];
+              if (dist[v] < 0) {
+                dist[v] = next;
+                queue[tail++] = v;
+                distanceSum += next;
+                harmonicSum += 1.0 / next;
+                maxDistance = next;
+              }
+            }
+          }
+          consumer.accept(s, tail - 1, distanceSum, harmonicSum, maxDistance);
+
+          for (int k = 0; k < tail; k++)
+            dist[queue[k]] = -1;
+        }
+      }
+    });
+  }
+
+  /**
+   * One BFS from every pivot over the reverse adjacency, accumulating for every node the distances to the pivots it
+   * reaches: {@code [0]} the number of pivots, {@code [1]} the distance sum, or the reciprocal distance sum when
+   * {@code harmonic}. Each thread accumulates into its own arrays, merged at the end.
+   */
+  private static double[][] distancesToPivots(final NeighborView reverse, final int[] pivots, final boolean harmonic,
+      final int maxWorkers, final WorkCheckpoint checkpoint) {
+    final int n = reverse.nodeCount();
+    final int[] offsets = reverse.offsets();
+    final int[] nbrs = reverse.neighbors();
+    final int workers = sourceWorkers(reverse, pivots.length, maxWorkers);
+    final double[][] counts = new double[workers][];
+    final double[][] sums = new double[workers][];
+
+    forEachSource(pivots.length, workers, checkpoint, (worker, cursor, aborted, calling) -> {
+      final int[] dist = new int[n];
+      Arrays.fill(dist, -1);
+      final int[] queue = new int[n];
+      final double[] count = new double[n];
+      final double[] sum = new double[n];
+      counts[worker] = count;
+      sums[worker] = sum;
+
+      for (int b; (b = cursor.getAndAdd(SOURCE_BATCH)) < pivots.length && !aborted.get(); ) {
+        for (int i = b, e = Math.min(b + SOURCE_BATCH, pivots.length); i < e; i++) {
+          if (calling)
+            checkpoint.check();
+          final int p = pivots[i];
+          int tail = 0;
+          queue[tail++] = p;
+          dist[p] = 0;
+          for (int head = 0; head < tail; head++) {
+            final int u = queue[head];
+            final int next = dist[u] + 1;
+            for (int j = offsets[u], end = offsets[u + 1]; j < end; j++) {
+              final int v = nbrs[j];
+              if (dist[v] < 0) {
+                dist[v] = next;
+                queue[tail++] = v;
+                count[v]++;
+                sum[v] += harmonic ? 1.0 / next : next;
+              }
+            }
+          }
+          for (int k = 0; k < tail; k++)
+            dist[queue[k]] = -1;
+        }
+      }
+    });
+
+    return new double[][] { sumPartials(counts, n, 1.0), sumPartials(sums, n, 1.0) };
+  }
+
+  /**
+   * Hands {@code sourceCount} sources out to {@code workers} threads: worker 0 is the calling thread, the only one
+   * that runs the {@link WorkCheckpoint}, the others come from the query-engine pool. Any failure, the checkpoint's
+   * abort included, raises a flag every worker tests before its next batch, and the call returns only once all of
+   * them have stopped, so no partial work outlives it.
+   */
+  private static void forEachSource(final int sourceCount, final int workers, final WorkCheckpoint checkpoint,
+      final SourceWorker work) {
+    final AtomicInteger cursor = new AtomicInteger();
+    final AtomicBoolean aborted = new AtomicBoolean();
+    if (workers <= 1) {
+      work.run(0, cursor, aborted, true);
+      return;
+    }
+
+    final ExecutorService executor = QueryEngineManager.getInstance().getExecutorService();
+    final Future<?>[] futures = new Future<?>[workers - 1];
+    int launched = 0;
+    try {
+      for (int w = 1; w < workers; w++) {
+        final int worker = w;
+        futures[launched++] = executor.submit(() -> {
+          try {
+            work.run(worker, cursor, aborted, false);
+          } catch (final RuntimeException | Error e) {
+            aborted.set(true);
+            throw e;
+          }
+        });
+      }
+      work.run(0, cursor, aborted, true);
+    } catch (final RuntimeException | Error e) {
+      aborted.set(true);
+      // the others stop at their next batch: wait for them, their own outcome is irrelevant now
+      for (int i = 0; i < launched; i++) {
+        try {
+          futures[i].get();
+        } catch (final InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          break;
+        } catch (final Exception ignore) {
+          // ALREADY FAILING WITH THE CALLER'S EXCEPTION
+        }
+      }
+      throw e;
+    }
+    awaitFutures(futures, launched);
+  }
+
+  /**
+   * Threads worth starting for {@code sourceCount} traversals of {@code adj}: one when the whole run is small, else
+   * up to the cores and the caller's bound, and never more than there are batches of sources.
+   */
+  private static int sourceWorkers(final NeighborView adj, final int sourceCount, final int maxWorkers) {
+    final long work = (long) sourceCount * ((long) adj.nodeCount() + adj.edgeCount());
+    if (work < PARALLEL_SOURCES_THRESHOLD)
+      return 1;
+    final int batches = (sourceCount + SOURCE_BATCH - 1) / SOURCE_BATCH;
+    return Math.max(1, Math.min(Math.min(PARALLELISM, maxWorkers), batches));
+  }
+
+  /**
+   * Picks {@code k} distinct nodes out of {@code n} (Floyd's algorithm, one bit per node), sorted. Null when
+   * {@code k} asks for no sampling: not positive, or not smaller than {@code n}.
+   */
+  static int[] samplePivots(final int n, final int k, final long seed) {
+    if (k <= 0 || k >= n)
+      return null;
+    final SplittableRandom random = new SplittableRandom(seed);
+    final BitSet chosen = new BitSet(n);
+    for (int j = n - k; j < n; j++) {
+      final int t = random.nextInt(j + 1);
+      chosen.set(chosen.get(t) ? j : t);
+    }
+    final int[] pivots = new int[k];
+    for (int i = 0, v = chosen.nextSetBit(0); v >= 0; v = chosen.nextSetBit(v + 1))
+      pivots[i++] = v;
+    return pivots;
+  }
+
+  private static double[] sumPartials(final double[][] partials, final int n, final double scale) {
+    final double[] total = partials[0];
+    parallelForRange(n, (start, end) -> {
+      for (int p = 1; p < partials.length; p++) {
+        final double[] partial = partials[p];
+        if (partial != null)
+          for (int v = start; v < end; v++)
+            total[v] += partial[v];
+      }
+      if (scale != 1.0)
+        for (int v = start; v < end; v++)
+          total[v] *= scale;
+    });
+    return total;
+  }
+
   // --- Helpers ---
 
   private static String[] resolveEdgeTypes(final GraphAnalyticalView view, final String... edgeTypes) {
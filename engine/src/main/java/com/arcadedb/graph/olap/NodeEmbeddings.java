@@ -0,0 +1,591 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.graph.olap;
+
+import com.arcadedb.graph.NeighborView;
+import com.arcadedb.graph.olap.simd.GraphOlapVectorOps;
+import com.arcadedb.graph.olap.simd.GraphOlapVectorOpsProvider;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Node-embedding kernels over a {@link NeighborView}: FastRP, the Node2Vec random walks and Skip-gram model,
+ * GraphSAGE and HashGNN.
+ * <p>
+ * Every embedding matrix is one contiguous {@code float[nodeCount * dimension]}, row {@code i} starting at
+ * {@code i * dimension}, so a neighbour's row is a single cache-friendly run and no per-node array header is paid. The
+ * row arithmetic - dot products, scaled accumulation, normalisation - goes through {@link GraphOlapVectorOps}, which is
+ * backed by the {@code jdk.incubator.vector} implementation when the module is available.
+ * <p>
+ * Per-node work runs through {@link GraphAlgorithms#parallelForRange}. Randomness is drawn per node (or per walk) from
+ * a stream derived from the seed and the node, never from a shared generator, so a seeded run returns the same
+ * embeddings whatever the number of threads. The Skip-gram training is the exception: it updates rows shared between
+ * walks, so it stays sequential and deterministic.
+ * <p>
+ * The {@link WorkCheckpoint} is called on the calling thread only, about every 1024 units of work; when it throws,
+ * the other chunks stop at their next poll and the exception is rethrown once they have.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public final class NodeEmbeddings {
+  private static final GraphOlapVectorOps OPS = GraphOlapVectorOpsProvider.getInstance();
+
+  private static final int  CHECK_INTERVAL_MASK = 1023;
+  private static final long CHECK_INTERVAL      = CHECK_INTERVAL_MASK + 1;
+
+  private NodeEmbeddings() {
+  }
+
+  /**
+   * Fast Random Projection: a sparse ternary projection (Achlioptas) propagated {@code iterations} times, each node
+   * mixing its own row with the degree-normalised sum of its neighbours' rows, then L2-normalised.
+   *
+   * @param normalization degree-normalisation exponent: neighbour {@code j} of {@code i} weighs
+   *                      {@code deg(i)^-a * deg(j)^-a}
+   * @param selfInfluence weight of the node's own previous row against its neighbourhood
+   * @param seed          random seed, negative for a random one
+   *
+   * @return the {@code nodeCount x dimensions} embedding matrix
+   */
+  public static float[] fastRP(final NeighborView view, final int dimensions, final int iterations,
+      final double normalization, final double selfInfluence, final long seed, final WorkCheckpoint checkpoint) {
+    final int n = view.nodeCount();
+    final long base = baseSeed(seed);
+    final float val = (float) Math.sqrt(3.0);
+
+    final float[] projection = new float[matrixLength(n, dimensions)];
+    parallelRows(n, 1, checkpoint, () -> (i, progress) -> {
+      final SplittableRandom rng = nodeRandom(base, i);
+      final int row = i * dimensions;
+      for (int d = 0; d < dimensions; d++) {
+        // +sqrt(3) with p=1/6, -sqrt(3) with p=1/6, 0 otherwise
+        final int r = rng.nextInt(6);
+        if (r == 0)
+          projection[row + d] = val;
+        else if (r == 1)
+          projection[row + d] = -val;
+      }
+      normalizeRow(projection, row, dimensions);
+    });
+
+    // deg^-a once per node rather than one Math.pow per edge and iteration
+    final float[] degreeWeight = new float[n];
+    for (int i = 0; i < n; i++) {
+      final int deg = view.degree(i);
+      degreeWeight[i] = normalization == 0.0 || deg == 0 ? 1f : (float) Math.pow(deg, -normalization);
+    }
+
+    final int[] offsets = view.offsets();
+    final int[] neighbors = view.neighbors();
+    final float self = (float) selfInfluence;
+    float[] embed = projection;
+    float[] next = new float[embed.length];
+    for (int iter = 0; iter < iterations; iter++) {
+      checkpoint.check();
+      final float[] current = embed;
+      final float[] target = next;
+      parallelRows(n, 1, checkpoint, () -> (i, progress) -> {
+        final int row = i * dimensions;
+        if (offsets[i] == offsets[i + 1]) {
+          // isolated node: keep its own row
+          System.arraycopy(current, row, target, row, dimensions);
+          return;
+        }
+        Arrays.fill(target, row, row + dimensions, 0f);
+        if (self != 0f)
+          OPS.axpyFloat(self, current, row, target, row, dimensions);
+        final float nw = (1f - self) * degreeWeight[i];
+        for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+          final int j = neighbors[k];
+          OPS.axpyFloat(nw * degreeWeight[j], current, j * dimensions, target, row, dimensions);
+        }
+        normalizeRow(target, row, dimensions);
+      });
+      next = current;
+      embed = target;
+    }
+    return embed;
+  }
+
+  /**
+   * Node2Vec second-order random walks (Grover and Leskovec): {@code walksPerNode} walks of {@code walkLength} steps
+   * from every node, walk {@code w} of node {@code v} at index {@code v * walksPerNode + w}. From {@code curr}, having
+   * come from {@code prev}, a neighbour {@code x} is weighted {@code 1/p} if it is {@code prev}, {@code 1} if it is
+   * also a neighbour of {@code prev} and {@code 1/q} otherwise; a node without neighbours repeats itself. With
+   * {@code p = q = 1} every weight is 1 and a step is a uniform draw.
+   *
+   * @param seed random seed, negative for a random one
+   */
+  public static int[][] randomWalks(final NeighborView view, final int walksPerNode, final int walkLength,
+      final double p, final double q, final long seed, final WorkCheckpoint checkpoint) {
+    final int n = view.nodeCount();
+    final int totalWalks = Math.multiplyExact(n, walksPerNode);
+    final long base = baseSeed(seed);
+    final int[] offsets = view.offsets();
+    final boolean uniform = p == 1.0 && q == 1.0;
+    // The biased step asks "is x a neighbour of prev" once per candidate: sorted rows answer in O(log degree).
+    final int[] neighbors = uniform ? view.neighbors() : sortedRows(view, checkpoint);
+    final double returnWeight = 1.0 / p;
+    final double outWeight = 1.0 / q;
+
+    final int[][] walks = new int[totalWalks][];
+    parallelRows(totalWalks, walkLength, checkpoint, () -> (w, progress) -> {
+      final int v = w / walksPerNode;
+      final int[] walk = new int[walkLength];
+      walks[w] = walk;
+      walk[0] = v;
+      if (walkLength == 1 || offsets[v] == offsets[v + 1]) {
+        Arrays.fill(walk, v);
+        return;
+      }
+      final SplittableRandom rng = nodeRandom(base, w);
+      walk[1] = neighbors[offsets[v] + rng.nextInt(offsets[v + 1] - offsets[v])];
+      for (int step = 2; step < walkLength; step++) {
+        // walkLength has no ceiling of its own, so one walk is polled too and not only between walks
+        if ((step & CHECK_INTERVAL_MASK) == 0)
+          progress.advance(0);
+        final int prev = walk[step - 2];
+        final int curr = walk[step - 1];
+        final int start = offsets[curr];
+        final int end = offsets[curr + 1];
+        if (start == end)
+          walk[step] = curr;
+        else if (uniform)
+          walk[step] = neighbors[start + rng.nextInt(end - start)];
+        else {
+          // two passes over the row instead of a weight array per step: one for the total, one to sample
+          double total = 0.0;
+          for (int k = start; k < end; k++)
+            total += stepWeight(neighbors, offsets, prev, neighbors[k], returnWeight, outWeight);
+          double r = rng.nextDouble() * total;
+          int chosen = neighbors[end - 1];
+          for (int k = start; k < end - 1; k++) {
+            r -= stepWeight(neighbors, offsets, prev, neighbors[k], returnWeight, outWeight);
+            if (r <= 0) {
+              chosen = neighbors[k];
+              break;
+            }
+          }
+          walk[step] = chosen;
+        }
+      }
+    });
+    return walks;
+  }
+
+  /**
+   * Skip-gram with negative sampling (word2vec) over {@code walks}, with a learning rate decaying linearly per epoch.
+   * Sequential: every pair updates the context row of a node that other walks share.
+   *
+   * @param window     context window radius, at most the walk length
+   * @param seed       random seed, negative for a random one
+   * @param checkpoint called about every 1024 positions, context pairs and negative samples
+   *
+   * @return the L2-normalised {@code nodeCount x dimensions} input embedding matrix
+   */
+  public static float[] skipGram(final int nodeCount, final int[][] walks, final int dimensions, final int epochs,
+      final int window, final int negSamples, final double learningRate, final long seed,
+      final WorkCheckpoint checkpoint) {
+    final SplittableRandom rng = new SplittableRandom(baseSeed(seed));
+    final int totalWalks = walks.length;
+    final float[] input = new float[matrixLength(nodeCount, dimensions)];
+    // context rows start at zero, as in word2vec
+    final float[] context = new float[input.length];
+    final double scale = 1.0 / Math.sqrt(dimensions);
+    for (int i = 0; i < input.length; i++) {
+      checkPeriodically(checkpoint, i);
+      input[i] = (float) ((rng.nextDouble() * 2.0 - 1.0) * scale);
+    }
+
+    final int[] walkOrder = new int[totalWalks];
+    for (int i = 0; i < totalWalks; i++) {
+      checkPeriodically(checkpoint, i);
+      walkOrder[i] = i;
+    }
+
+    final float[] grad = new float[dimensions];
+    for (int epoch = 0; epoch < epochs; epoch++) {
+      for (int i = totalWalks - 1; i > 0; i--) {
+        checkPeriodically(checkpoint, i);
+        final int j = rng.nextInt(i + 1);
+        final int tmp = walkOrder[i];
+        walkOrder[i] = walkOrder[j];
+        walkOrder[j] = tmp;
+      }
+      final double lr = learningRate * (1.0 - (double) epoch / epochs);
+
+      for (final int walkIdx : walkOrder) {
+        checkpoint.check();
+        final int[] walk = walks[walkIdx];
+        final int walkLength = walk.length;
+        for (int pos = 0; pos < walkLength; pos++) {
+          final int centerNode = walk[pos];
+          final int center = centerNode * dimensions;
+          Arrays.fill(grad, 0f);
+
+          final int winStart = Math.max(0, pos - window);
+          final int winEnd = (int) Math.min(walkLength - 1L, pos + (long) window);
+          for (int ctx = winStart; ctx <= winEnd; ctx++) {
+            // a window as wide as the walk makes one walk O(walkLength^2): the pair loop is what bounds latency
+            checkPeriodically(checkpoint, ctx);
+            if (ctx == pos)
+              continue;
+            final int ctxNode = walk[ctx];
+            train(input, center, context, ctxNode * dimensions, grad, dimensions, lr, true);
+
+            for (int ns = 0; ns < negSamples; ns++) {
+              // ns restarts per pair, so this polls once per pair as well: a small negSamples stays responsive
+              checkPeriodically(checkpoint, ns);
+              int neg = rng.nextInt(nodeCount);
+              if (neg == centerNode || neg == ctxNode)
+                neg = (neg + 1) % nodeCount;
+              train(input, center, context, neg * dimensions, grad, dimensions, lr, false);
+            }
+          }
+          OPS.axpyFloat(1f, grad, 0, input, center, dimensions);
+        }
+      }
+    }
+
+    for (int i = 0; i < nodeCount; i++) {
+      checkPeriodically(checkpoint, i);
+      normalizeRow(input, i * dimensions, dimensions);
+    }
+    return input;
+  }
+
+  /**
+   * Width of the initial GraphSAGE feature rows for an output of {@code embeddingDimension}: never below 16, so the
+   * structural feature is not drowned by too few noise features.
+   */
+  public static int graphSageInputDimension(final int embeddingDimension) {
+    return Math.max(embeddingDimension, 16);
+  }
+
+  /**
+   * Unsupervised GraphSAGE (Hamilton et al.): rows start as {@code [log-normalised degree, Gaussian noise...]} and
+   * each of the {@code layers} rounds concatenates a node's row with the mean of its neighbours' rows, projects it
+   * through a random Xavier-initialised matrix, applies ReLU and L2-normalises. The projection is applied as two dot
+   * products per output, one against each half of the concatenation, so the concatenated row is never materialised.
+   *
+   * @param seed random seed, negative for a random one
+   *
+   * @return the {@code nodeCount x embeddingDimension} embedding matrix
+   */
+  public static float[] graphSage(final NeighborView view, final int embeddingDimension, final int layers,
+      final long seed, final WorkCheckpoint checkpoint) {
+    final int n = view.nodeCount();
+    final int[] offsets = view.offsets();
+    final int[] neighbors = view.neighbors();
+    final long base = baseSeed(seed);
+    final int initDim = graphSageInputDimension(embeddingDimension);
+
+    int maxDeg = 0;
+    for (int i = 0; i < n; i++)
+      maxDeg = Math.max(maxDeg, view.degree(i));
+    final double logMaxDeg = maxDeg > 0 ? Math.log1p(maxDeg) : 1.0;
+
+    final float[] features = new float[matrixLength(n, initDim)];
+    parallelRows(n, 1, checkpoint, () -> (i, progress) -> {
+      final SplittableRandom rng = nodeRandom(base, i);
+      final int row = i * initDim;
+      features[row] = (float) (Math.log1p(view.degree(i)) / logMaxDeg);
+      for (int d = 1; d < initDim; d++)
+        features[row + d] = (float) (rng.nextGaussian() * 0.1);
+      normalizeRow(features, row, initDim);
+    });
+
+    // one generator for the projections, drawn on the calling thread: they are shared by every node of a layer
+    final SplittableRandom rng = new SplittableRandom(base);
+    float[] embed = features;
+    int curDim = initDim;
+    for (int layer = 0; layer < layers; layer++) {
+      checkpoint.check();
+      final int inDim = curDim;
+      final int concatDim = inDim * 2;
+      final double projScale = Math.sqrt(2.0 / (concatDim + embeddingDimension));
+      final float[] projection = new float[embeddingDimension * concatDim];
+      for (int j = 0; j < projection.length; j++)
+        projection[j] = (float) (rng.nextGaussian() * projScale);
+
+      final float[] current = embed;
+      final float[] next = new float[matrixLength(n, embeddingDimension)];
+      parallelRows(n, 1, checkpoint, () -> {
+        final float[] agg = new float[inDim];
+        return (i, progress) -> {
+          final int row = i * inDim;
+          final int deg = offsets[i + 1] - offsets[i];
+          if (deg > 0) {
+            Arrays.fill(agg, 0f);
+            for (int k = offsets[i]; k < offsets[i + 1]; k++)
+              OPS.axpyFloat(1f, current, neighbors[k] * inDim, agg, 0, inDim);
+            OPS.scaleFloat(agg, 0, inDim, 1f / deg);
+          } else
+            System.arraycopy(current, row, agg, 0, inDim);
+
+          final int out = i * embeddingDimension;
+          for (int o = 0; o < embeddingDimension; o++) {
+            final int w = o * concatDim;
+            final float sum = OPS.dotFloat(projection, w, current, row, inDim) + OPS.dotFloat(projection, w + inDim, agg, 0,
+                inDim);
+            next[out + o] = Math.max(0f, sum);
+          }
+          normalizeRow(next, out, embeddingDimension);
+        };
+      });
+      embed = next;
+      curDim = embeddingDimension;
+    }
+    return embed;
+  }
+
+  /**
+   * Width of the HashGNN feature bit sets for an output of {@code embeddingDimension}: four times over-parameterised
+   * for hash quality, and never below 64.
+   */
+  public static int hashGnnFeatureCount(final int embeddingDimension) {
+    return Math.max(embeddingDimension * 4, 64);
+  }
+
+  /**
+   * HashGNN: every node starts with a random set of 1/8 of {@link #hashGnnFeatureCount} features, ORs in its
+   * neighbours' sets {@code iterations} times, and is then reduced to {@code embeddingDimension} MinHash values
+   * {@code min((a * f + b) mod features) / features} over its set features, L2-normalised. The feature sets are
+   * {@code long} bit sets laid out flat, so a message-passing round is word-wide ORs, and the reduction visits only
+   * the features a node actually has.
+   *
+   * @param seed random seed, negative for a random one
+   *
+   * @return the {@code nodeCount x embeddingDimension} embedding matrix
+   */
+  public static float[] hashGnn(final NeighborView view, final int embeddingDimension, final int iterations,
+      final long seed, final WorkCheckpoint checkpoint) {
+    final int n = view.nodeCount();
+    final int[] offsets = view.offsets();
+    final int[] neighbors = view.neighbors();
+    final long base = baseSeed(seed);
+    final int numFeatures = hashGnnFeatureCount(embeddingDimension);
+    final int words = (numFeatures + 63) >>> 6;
+
+    final long[] initial = new long[matrixLength(n, words)];
+    parallelRows(n, 1, checkpoint, () -> (i, progress) -> {
+      final SplittableRandom rng = nodeRandom(base, i);
+      final int row = i * words;
+      // 12.5% density, by rejection over the bits already set
+      for (int set = 0, target = numFeatures / 8; set < target; ) {
+        final int bit = rng.nextInt(numFeatures);
+        final int word = row + (bit >>> 6);
+        final long mask = 1L << bit;
+        if ((initial[word] & mask) == 0) {
+          initial[word] |= mask;
+          set++;
+        }
+      }
+    });
+
+    // h_d(x) = (a * x + b) mod numFeatures, with an odd a
+    final SplittableRandom rng = new SplittableRandom(base);
+    final int[] hashA = new int[embeddingDimension];
+    final int[] hashB = new int[embeddingDimension];
+    for (int d = 0; d < embeddingDimension; d++) {
+      hashA[d] = rng.nextInt(numFeatures / 2) * 2 + 1;
+      hashB[d] = rng.nextInt(numFeatures);
+    }
+
+    long[] features = initial;
+    long[] next = new long[features.length];
+    for (int iter = 0; iter < iterations; iter++) {
+      checkpoint.check();
+      final long[] current = features;
+      final long[] target = next;
+      parallelRows(n, 1, checkpoint, () -> (i, progress) -> {
+        final int row = i * words;
+        System.arraycopy(current, row, target, row, words);
+        for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+          final int other = neighbors[k] * words;
+          for (int w = 0; w < words; w++)
+            target[row + w] |= current[other + w];
+        }
+      });
+      next = current;
+      features = target;
+    }
+
+    // The reduction is where a call spends its time - embeddingDimension x (set features) per node - so the poll is
+    // weighted by the dimension: one per 1024 (node, dimension) pairs, not one per 1024 nodes.
+    final long[] finalFeatures = features;
+    final float[] embeddings = new float[matrixLength(n, embeddingDimension)];
+    parallelRows(n, embeddingDimension, checkpoint, () -> {
+      final int[] setBits = new int[numFeatures];
+      return (i, progress) -> {
+        int count = 0;
+        for (int w = 0, row = i * words; w < words; w++)
+          for (long bits = finalFeatures[row + w]; bits != 0; bits &= bits - 1)
+            setBits[count++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+
+        final int out = i * embeddingDimension;
+        if (count > 0)
+          for (int d = 0; d < embeddingDimension; d++) {
+            final int a = hashA[d], b = hashB[d];
+            int minHash = Integer.MAX_VALUE;
+            for (int k = 0; k < count; k++) {
+              // a and f are both below numFeatures, so the product cannot overflow
+              final int h = (a * setBits[k] + b) % numFeatures;
+              if (h < minHash)
+                minHash = h;
+            }
+            embeddings[out + d] = (float) minHash / numFeatures;
+          }
+        normalizeRow(embeddings, out, embeddingDimension);
+      };
+    });
+    return embeddings;
+  }
+
+  /**
+   * Length of a flat {@code rows x columns} matrix, or an {@link IllegalArgumentException} when it exceeds what a
+   * Java array can hold.
+   */
+  public static int matrixLength(final int rows, final int columns) {
+    final long length = (long) rows * columns;
+    if (length > Integer.MAX_VALUE)
+      throw new IllegalArgumentException(
+          "A matrix of " + rows + " x " + columns + " needs " + length + " entries, more than the " + Integer.MAX_VALUE
+              + " a Java array can hold");
+    return (int) length;
+  }
+
+  /** Scales {@code length} floats from {@code offset} to unit L2 length; no-op on a zero row. */
+  static void normalizeRow(final float[] matrix, final int offset, final int length) {
+    final float norm = (float) Math.sqrt(OPS.dotFloat(matrix, offset, matrix, offset, length));
+    if (norm > 0f)
+      OPS.scaleFloat(matrix, offset, length, 1f / norm);
+  }
+
+  private static void train(final float[] input, final int center, final float[] context, final int ctx,
+      final float[] grad, final int dimensions, final double lr, final boolean positive) {
+    final double score = OPS.dotFloat(input, center, context, ctx, dimensions);
+    final float g = (float) (positive ? lr * (1.0 - sigmoid(score)) : -lr * sigmoid(score));
+    OPS.axpyFloat(g, context, ctx, grad, 0, dimensions);
+    OPS.axpyFloat(g, input, center, context, ctx, dimensions);
+  }
+
+  private static double sigmoid(final double x) {
+    return 1.0 / (1.0 + Math.exp(-x));
+  }
+
+  private static double stepWeight(final int[] sortedNeighbors, final int[] offsets, final int prev, final int x,
+      final double returnWeight, final double outWeight) {
+    if (x == prev)
+      return returnWeight;
+    return Arrays.binarySearch(sortedNeighbors, offsets[prev], offsets[prev + 1], x) >= 0 ? 1.0 : outWeight;
+  }
+
+  private static int[] sortedRows(final NeighborView view, final WorkCheckpoint checkpoint) {
+    final int[] offsets = view.offsets();
+    final int[] sorted = Arrays.copyOf(view.neighbors(), offsets[view.nodeCount()]);
+    parallelRows(view.nodeCount(), 1, checkpoint, () -> (i, progress) -> Arrays.sort(sorted, offsets[i], offsets[i + 1]));
+    return sorted;
+  }
+
+  private static void checkPeriodically(final WorkCheckpoint checkpoint, final int counter) {
+    if ((counter & CHECK_INTERVAL_MASK) == 0)
+      checkpoint.check();
+  }
+
+  private static long baseSeed(final long seed) {
+    return seed >= 0 ? seed : ThreadLocalRandom.current().nextLong();
+  }
+
+  /** An independent stream per node (or walk), so the result does not depend on which thread drew it. */
+  private static SplittableRandom nodeRandom(final long base, final int index) {
+    long z = base + (index + 1L) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return new SplittableRandom(z ^ (z >>> 31));
+  }
+
+  /**
+   * Runs {@code kernel} over the rows {@code [0, n)} in parallel, one kernel instance (and so one set of scratch
+   * buffers) per chunk. {@code unitsPerRow} weights the polling: the checkpoint is called on the calling thread every
+   * 1024 units, and a failure there - or any exception in a chunk - stops the other chunks at their next poll.
+   */
+  private static void parallelRows(final int n, final long unitsPerRow, final WorkCheckpoint checkpoint,
+      final Supplier<RowKernel> kernel) {
+    final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    GraphAlgorithms.parallelForRange(n, (start, end) -> {
+      final Progress progress = new Progress(start == 0 ? checkpoint : null, failure);
+      final RowKernel rows = kernel.get();
+      try {
+        for (int i = start; i < end; i++) {
+          progress.advance(unitsPerRow);
+          rows.run(i, progress);
+        }
+      } catch (final Aborted e) {
+        // another chunk failed first
+      } catch (final RuntimeException e) {
+        failure.compareAndSet(null, e);
+      }
+    });
+    final RuntimeException e = failure.get();
+    if (e != null)
+      throw e;
+  }
+
+  @FunctionalInterface
+  private interface RowKernel {
+    void run(int row, Progress progress);
+  }
+
+  /** Per-chunk polling state; the checkpoint is only set on the chunk of the calling thread. */
+  private static final class Progress {
+    private final WorkCheckpoint                     checkpoint;
+    private final AtomicReference<RuntimeException> failure;
+    private       long                               pending = CHECK_INTERVAL;
+
+    private Progress(final WorkCheckpoint checkpoint, final AtomicReference<RuntimeException> failure) {
+      this.checkpoint = checkpoint;
+      this.failure = failure;
+    }
+
+    /** Accounts {@code units} of work and polls once 1024 have accumulated; {@code advance(0)} just polls. */
+    void advance(final long units) {
+      pending += units;
+      if (units > 0 && pending < CHECK_INTERVAL)
+        return;
+      pending = 0;
+      if (failure.get() != null)
+        throw Aborted.INSTANCE;
+      if (checkpoint != null)
+        checkpoint.check();
+    }
+  }
+
+  private static final class Aborted extends RuntimeException {
+    private static final Aborted INSTANCE = new Aborted();
+
+    private Aborted() {
+      super(null, null, false, false);
+    }
+  }
+}
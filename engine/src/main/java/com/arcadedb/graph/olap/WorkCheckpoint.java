@@ -42,9 +42,10 @@ public interface WorkCheckpoint {
   };
 
   /**
-   * Throws to abort the algorithm, or returns to let it continue. Called from the calling thread between two
-   * iterations, never from inside a parallel chunk, so an implementation does not have to be thread-safe and the
-   * exception it throws propagates straight to the caller of the kernel.
+   * Throws to abort the algorithm, or returns to let it continue. Called from the calling thread only - between two
+   * iterations, or between two sources of the share a multi-source kernel runs on the calling thread itself - never
+   * from a pool thread, so an implementation does not have to be thread-safe and the exception it throws propagates
+   * straight to the caller of the kernel.
    */
   void check();
 }
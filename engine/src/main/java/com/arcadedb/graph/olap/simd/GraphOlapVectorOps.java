@@ -27,6 +27,7 @@ package com.arcadedb.graph.olap.simd;
  *   <li><b>Gather</b>: indexed reads from source arrays (for selective column scans)</li>
  *   <li><b>Aggregation</b>: sum/min/max reductions over primitive arrays</li>
  *   <li><b>Bitmask</b>: AND/OR/NOT/popcount on long[] null bitsets</li>
+ *   <li><b>Dense float</b>: dot product, axpy and scaling over rows of flat float[] matrices (node embeddings)</li>
  * </ul>
  */
 public interface GraphOlapVectorOps {
@@ -90,6 +91,23 @@ public interface GraphOlapVectorOps {
    */
   int bitmaskPopcount(long[] bitmask, int length);
 
+  // ── Dense float operations (embedding rows) ────────────────────────────
+
+  /**
+   * Dot product of two float ranges: {@code sum(a[aOffset + i] * b[bOffset + i])} for {@code i} in {@code [0, length)}.
+   */
+  float dotFloat(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+  /**
+   * Scaled accumulation: {@code y[yOffset + i] += alpha * x[xOffset + i]} for {@code i} in {@code [0, length)}.
+   */
+  void axpyFloat(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length);
+
+  /**
+   * In-place scaling: {@code data[offset + i] *= factor} for {@code i} in {@code [0, length)}.
+   */
+  void scaleFloat(float[] data, int offset, int length, float factor);
+
   // ── Null mask extraction ───────────────────────────────────────────────
 
   /**
@@ -49,6 +49,11 @@ public final class GraphOlapVectorOpsProvider {
       if (sumResult != 6.0)
         throw new IllegalStateException("SIMD sum smoke test failed: expected 6.0 but got " + sumResult);
 
+      // Smoke test dense float (embedding kernels)
+      final float dotResult = ops.dotFloat(new float[] { 1f, 2f, 3f }, 0, new float[] { 4f, 5f, 6f }, 0, 3);
+      if (dotResult != 32f)
+        throw new IllegalStateException("SIMD float dot smoke test failed: expected 32.0 but got " + dotResult);
+
       simd = true;
       LogManager.instance().log(GraphOlapVectorOpsProvider.class, Level.INFO, "Graph-OLAP SIMD vector ops enabled");
     } catch (final Exception | LinkageError t) {
@@ -151,6 +151,29 @@ public final class ScalarGraphOlapVectorOps implements GraphOlapVectorOps {
     return count;
   }
 
+  // ── Dense float operations ─────────────────────────────────────────────
+
+  @Override
+  public float dotFloat(final float[] a, final int aOffset, final float[] b, final int bOffset, final int length) {
+    float s = 0;
+    for (int i = 0; i < length; i++)
+      s += a[aOffset + i] * b[bOffset + i];
+    return s;
+  }
+
+  @Override
+  public void axpyFloat(final float alpha, final float[] x, final int xOffset, final float[] y, final int yOffset,
+      final int length) {
+    for (int i = 0; i < length; i++)
+      y[yOffset + i] += alpha * x[xOffset + i];
+  }
+
+  @Override
+  public void scaleFloat(final float[] data, final int offset, final int length, final float factor) {
+    for (int i = offset, end = offset + length; i < end; i++)
+      data[i] *= factor;
+  }
+
   // ── Null mask extraction ───────────────────────────────────────────────
 
   @Override
@@ -19,6 +19,7 @@
 package com.arcadedb.graph.olap.simd;
 
 import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
 import jdk.incubator.vector.IntVector;
 import jdk.incubator.vector.LongVector;
 import jdk.incubator.vector.VectorOperators;
@@ -33,6 +34,7 @@ import jdk.incubator.vector.VectorSpecies;
  *   <li><b>Gather</b>: uses {@code IntVector/DoubleVector.fromArray} with index maps for SIMD scatter-gather</li>
  *   <li><b>Aggregation</b>: uses {@code reduceLanes()} for parallel sum/min/max</li>
  *   <li><b>Bitmask</b>: uses {@code LongVector} for bulk bitwise AND/OR/NOT</li>
+ *   <li><b>Dense float</b>: uses {@code FloatVector.fma()} for embedding dot products and axpy updates</li>
  * </ul>
  * <p>
  * Null mask extraction delegates to scalar fallback since bit-level addressing
@@ -43,6 +45,7 @@ public final class SimdGraphOlapVectorOps implements GraphOlapVectorOps {
   private static final VectorSpecies<Integer> INT_SPECIES    = IntVector.SPECIES_PREFERRED;
   private static final VectorSpecies<Long>    LONG_SPECIES   = LongVector.SPECIES_PREFERRED;
   private static final VectorSpecies<Double>  DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Float>   FLOAT_SPECIES  = FloatVector.SPECIES_PREFERRED;
 
   private static final ScalarGraphOlapVectorOps SCALAR = new ScalarGraphOlapVectorOps();
 
@@ -308,6 +311,46 @@ public final class SimdGraphOlapVectorOps implements GraphOlapVectorOps {
     return count;
   }
 
+  // ── Dense float operations (SIMD fused multiply-add) ───────────────────
+
+  @Override
+  public float dotFloat(final float[] a, final int aOffset, final float[] b, final int bOffset, final int length) {
+    final int lanes = FLOAT_SPECIES.length();
+    FloatVector acc = FloatVector.zero(FLOAT_SPECIES);
+    int i = 0;
+    for (; i + lanes <= length; i += lanes)
+      acc = FloatVector.fromArray(FLOAT_SPECIES, a, aOffset + i)
+          .fma(FloatVector.fromArray(FLOAT_SPECIES, b, bOffset + i), acc);
+    float s = acc.reduceLanes(VectorOperators.ADD);
+    for (; i < length; i++)
+      s += a[aOffset + i] * b[bOffset + i];
+    return s;
+  }
+
+  @Override
+  public void axpyFloat(final float alpha, final float[] x, final int xOffset, final float[] y, final int yOffset,
+      final int length) {
+    final int lanes = FLOAT_SPECIES.length();
+    final FloatVector va = FloatVector.broadcast(FLOAT_SPECIES, alpha);
+    int i = 0;
+    for (; i + lanes <= length; i += lanes)
+      FloatVector.fromArray(FLOAT_SPECIES, x, xOffset + i)
+          .fma(va, FloatVector.fromArray(FLOAT_SPECIES, y, yOffset + i))
+          .intoArray(y, yOffset + i);
+    for (; i < length; i++)
+      y[yOffset + i] += alpha * x[xOffset + i];
+  }
+
+  @Override
+  public void scaleFloat(final float[] data, final int offset, final int length, final float factor) {
+    final int lanes = FLOAT_SPECIES.length();
+    int i = 0;
+    for (; i + lanes <= length; i += lanes)
+      FloatVector.fromArray(FLOAT_SPECIES, data, offset + i).mul(factor).intoArray(data, offset + i);
+    for (; i < length; i++)
+      data[offset + i] *= factor;
+  }
+
   // ── Null mask extraction (scalar fallback) ─────────────────────────────
   // Bit-level addressing at arbitrary positions doesn't map to SIMD lanes.
 
@@ -87,6 +87,13 @@ public class LSMTreeIndex implements RangeIndex, IndexInternal {
   private final        List<LSMTreeIndexCompacted>   retiredCompactedIndexes = new CopyOnWriteArrayList<>();
   /** Cumulative dead (tombstone-resolved) keys skipped by scans since this index was loaded. */
   private final        AtomicLong                    statsDeadEntriesSkipped = new AtomicLong();
+  /** Compactions since this index was loaded, per level written: 1 = incremental rounds, 2 = full compactions. */
+  private final        AtomicLong                    statsLevel1Compactions  = new AtomicLong();
+  private final        AtomicLong                    statsLevel1CompactionMs = new AtomicLong();
+  private final        AtomicLong                    statsLevel2Compactions  = new AtomicLong();
+  private final        AtomicLong                    statsLevel2CompactionMs = new AtomicLong();
+  /** Key ranges the last full compaction was split into (1 = serial merge). */
+  private volatile     int                           statsLevel2CompactionRanges;
   private              TypeIndex                     typeIndex;
   private              boolean                       valid        = true;
   private              IndexMetadata                 metadata;
@@ -685,9 +692,31 @@ public class LSMTreeIndex implements RangeIndex, IndexInternal {
   public Map<String, Long> getStats() {
     final Map<String, Long> stats = mutable.getStats();
     stats.put("deadEntriesSkipped", statsDeadEntriesSkipped.get());
+    stats.put("level1Compactions", statsLevel1Compactions.get());
+    stats.put("level1CompactionMs", statsLevel1CompactionMs.get());
+    stats.put("level2Compactions", statsLevel2Compactions.get());
+    stats.put("level2CompactionMs", statsLevel2CompactionMs.get());
+    stats.put("level2CompactionRanges", (long) statsLevel2CompactionRanges);
     return stats;
   }
 
+  /**
+   * Accounts a finished compaction. Kept here rather than on the mutable file, which is replaced by every compaction.
+   *
+   * @param level  1 for an incremental round, 2 for a full compaction
+   * @param ranges key ranges a full compaction was merged in
+   */
+  void addCompaction(final int level, final long elapsedMs, final int ranges) {
+    if (level == 2) {
+      statsLevel2Compactions.incrementAndGet();
+      statsLevel2CompactionMs.addAndGet(elapsedMs);
+      statsLevel2CompactionRanges = ranges;
+    } else {
+      statsLevel1Compactions.incrementAndGet();
+      statsLevel1CompactionMs.addAndGet(elapsedMs);
+    }
+  }
+
   /**
    * Accumulates the dead (tombstone-resolved) keys a finished scan had to skip. A steadily growing value
    * signals tombstone build-up on a delete-heavy index: every range scan pays for the dead run until a full
@@ -839,7 +868,7 @@ public class LSMTreeIndex implements RangeIndex, IndexInternal {
         final LSMTreeIndexMutable newMutableIndex = new LSMTreeIndexMutable(this, database, newName, mutable.isUnique(),
             database.getDatabasePath() + File.separator + newName, mutable.getKeyTypes(), mutable.getStorageKeyTypes()
             , pageSize,
-            LSMTreeIndexMutable.CURRENT_VERSION, compactedIndex);
+            mutable.getVersion(), compactedIndex);
         newMutableIndex.setStoreTermFrequency(mutable.isStoreTermFrequency());
         database.getSchema().getEmbedded().registerFile(newMutableIndex);
 
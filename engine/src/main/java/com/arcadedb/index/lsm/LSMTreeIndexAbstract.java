@@ -59,6 +59,11 @@ import static com.arcadedb.database.Binary.INT_SERIALIZED_SIZE;
  * HEADER ROOT PAGE (1st) = [offsetFreeKeyValueContent(int:4),numberOfEntries(int:4),mutable(boolean:1),compactedPageNumberOfSeries(int:4),subIndexFileId(int:4),numberOfKeys(byte:1),keyType(byte:1)*]
  * <br>
  * HEADER Nst PAGE        = [offsetFreeKeyValueContent(int:4),numberOfEntries(int:4),mutable(boolean:1),compactedPageNumberOfSeries(int:4)]
+ * <br>
+ * From {@link #NORMALIZED_KEYS_VERSION} on, both headers end with prefixEntryPosition(int:4): the position of the first
+ * entry written in the page, whose key is the page prefix, or 0 while the page is empty. Keys are stored in the
+ * byte-comparable encoding of {@link LSMTreeIndexKeyEncoding} as [sharedWithPrefix(varint),restLength(varint),rest] so
+ * the binary search compares bytes instead of deserialized values.
  * <p>
  * <p>
  * The page content size and available space API are not valid in the index pages, because the whole page is used from start to end.
@@ -66,7 +71,12 @@ import static com.arcadedb.database.Binary.INT_SERIALIZED_SIZE;
 public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
   public enum NULL_STRATEGY {ERROR, SKIP, INDEX}
 
-  public static final int DEF_PAGE_SIZE = 262_144;
+  public static final int DEF_PAGE_SIZE           = 262_144;
+  /**
+   * First page format with byte-comparable, prefix-compressed keys. Indexes on key types {@link LSMTreeIndexKeyEncoding}
+   * cannot encode keep the format 1.
+   */
+  public static final int NORMALIZED_KEYS_VERSION = 2;
   public final        RID REMOVED_ENTRY_RID;
 
   protected static final LSMTreeIndexCompacted.LookupResult LOWER     = new LSMTreeIndexCompacted.LookupResult(false, true, 0,
@@ -95,6 +105,8 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
    * and {@code compareKeys} deserialize both operands and compare typed values, so key order is
    * {@link RID#compareTo}'s and is unaffected by how many bytes the RID took on the page. (The one byte-level
    * comparison, {@code comparator.compareBytes}, is the {@code TYPE_STRING} fast path, which no LINK column reaches.)
+   * From {@link #NORMALIZED_KEYS_VERSION} on, pages hold the {@link LSMTreeIndexKeyEncoding} of the key instead, which
+   * writes a RID as fixed-width bucket and position whatever the storage type, so its byte order is still RID order.
    * <p>
    * NOTE for anyone reading the HASH implementation alongside this one: the same two concepts are named the other
    * way round there. {@code HashIndexBucket.binaryKeyTypes} is the ON-PAGE encoding and its {@code declaredKeyTypes}
@@ -123,6 +135,23 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
    */
   private volatile boolean         storeTermFrequency = false;
 
+  /**
+   * A key encoded for the binary search in one page of the {@link #NORMALIZED_KEYS_VERSION} format, with the position of
+   * the page prefix and how many of its bytes the key shares: the comparison with an entry then only looks at the bytes
+   * after the shorter of the two shared runs.
+   */
+  static final class KeyProbe {
+    final byte[] bytes;
+    final int    prefixFrom;
+    final int    sharedWithPrefix;
+
+    KeyProbe(final byte[] bytes, final int prefixFrom, final int sharedWithPrefix) {
+      this.bytes = bytes;
+      this.prefixFrom = prefixFrom;
+      this.sharedWithPrefix = sharedWithPrefix;
+    }
+  }
+
   protected static class LookupResult {
     public final boolean found;
     public final boolean outside;
@@ -205,7 +234,7 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
    * @param purpose 0 = exists, 1 = retrieve, 2 = ascending iterator, 3 = descending iterator
    */
   protected abstract LookupResult compareKey(final Binary currentPageBuffer, final int startIndexArray,
-      final Object[] convertedKeys, int mid, final int count, final int purpose);
+      final Object[] convertedKeys, int mid, final int count, final int purpose, final KeyProbe probe);
 
   public PaginatedComponent getPaginatedComponent() {
     return this;
@@ -332,11 +361,12 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
     int high = count - 1;
 
     final int startIndexArray = getHeaderSize(pageNum);
+    final KeyProbe probe = newKeyProbe(currentPageBuffer, startIndexArray, convertedKeys);
 
     LookupResult result;
 
     // CHECK THE BOUNDARIES FIRST (LOWER THAN THE FIRST)
-    result = compareKey(currentPageBuffer, startIndexArray, convertedKeys, low, count, purpose);
+    result = compareKey(currentPageBuffer, startIndexArray, convertedKeys, low, count, purpose, probe);
     if (result == LOWER) {
       if (purpose == 2)
         // BROWSE ASCENDING
@@ -347,7 +377,7 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
       return result;
 
     // CHECK THE BOUNDARIES FIRST (HIGHER THAN THE LAST)
-    result = compareKey(currentPageBuffer, startIndexArray, convertedKeys, high, count, purpose);
+    result = compareKey(currentPageBuffer, startIndexArray, convertedKeys, high, count, purpose, probe);
     if (result == HIGHER) {
       if (purpose == 3)
         // BROWSE DESCENDING
@@ -361,7 +391,7 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
     while (low <= high) {
       mid = (low + high) >>> 1;
 
-      result = compareKey(currentPageBuffer, startIndexArray, convertedKeys, mid, count, purpose);
+      result = compareKey(currentPageBuffer, startIndexArray, convertedKeys, mid, count, purpose, probe);
 
       if (result == HIGHER)
         low = mid + 1;
@@ -380,7 +410,7 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
 
   protected void writeEntrySingleValue(final Binary buffer, final Object[] keys, final Object rid, final int pageUsableSpace) {
     buffer.clear();
-    writeKeys(buffer, keys);
+    writeEntryKeys(buffer, keys);
     writeEntryValue(buffer, rid);
 
     if (buffer.size() > pageUsableSpace)
@@ -408,7 +438,7 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
     // loop runs at most O(rids.length) times.
     do {
       buffer.clear();
-      writeKeys(buffer, keys);
+      writeEntryKeys(buffer, keys);
 
       if (buffer.size() > pageUsableSpace)
         throw new IndexException("Key size (" + FileUtils.getSizeAsString(buffer.size()) + ") is too big to fit in a single page ("
@@ -441,6 +471,14 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
    */
   protected int getSerializedKeySize(final Binary buffer, final int keyLength) {
     final int startsAt = buffer.position();
+    if (version >= NORMALIZED_KEYS_VERSION) {
+      // THE ENCODED KEY ALWAYS HOLDS ALL THE COMPONENTS
+      buffer.getUnsignedNumber();
+      final int restLength = (int) buffer.getUnsignedNumber();
+      buffer.position(buffer.position() + restLength);
+      return buffer.position() - startsAt;
+    }
+
     for (int keyIndex = 0; keyIndex < keyLength; ++keyIndex) {
       final boolean notNull = version < 1 || buffer.getByte() == 1;
       if (notNull)
@@ -451,6 +489,19 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
     return buffer.position() - startsAt;
   }
 
+  /**
+   * Returns where the values of the entry at {@code entryPosition} start, knowing the serialized key size of another
+   * entry with the same key. From {@link #NORMALIZED_KEYS_VERSION} on the size of a key also depends on how much of it
+   * the page prefix covers, and the entry that IS the prefix stores it whole, so it is read again.
+   */
+  protected int getEntryValuesPosition(final Binary buffer, final int entryPosition, final int sameKeySerializedSize) {
+    if (version < NORMALIZED_KEYS_VERSION)
+      return entryPosition + sameKeySerializedSize;
+
+    buffer.position(entryPosition);
+    return entryPosition + getSerializedKeySize(buffer, binaryKeyTypes.length);
+  }
+
   protected Object[] convertKeys(final Object[] keys, final byte[] keyTypes) {
     // Declared-type narrowing AND case-insensitive folding both happen here; this layers only the disk-storage
     // byte[]-for-String probe encoding on top, so a case-insensitive String is never folded twice.
@@ -520,23 +571,43 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
     final int startIndexArray = getHeaderSize(pageNum);
     final int contentPos = currentPageBuffer.getInt(startIndexArray + (position * INT_SERIALIZED_SIZE));
     currentPageBuffer.position(contentPos);
+    return readEntryKeys(currentPageBuffer, startIndexArray, storageKeyTypes);
+  }
 
-    final Object[] key = new Object[binaryKeyTypes.length];
+  /**
+   * Reads the key of the entry the buffer is positioned on, leaving the buffer on the entry values.
+   *
+   * @param startIndexArray the header size of the page, where its array of entry pointers starts
+   */
+  Object[] readEntryKeys(final Binary buffer, final int startIndexArray, final byte[] keyTypes) {
+    if (version >= NORMALIZED_KEYS_VERSION) {
+      final int shared = (int) buffer.getUnsignedNumber();
+      final int restLength = (int) buffer.getUnsignedNumber();
+      final int restFrom = buffer.position();
+
+      final byte[] encoded = new byte[shared + restLength];
+      if (shared > 0)
+        buffer.getByteArray(getPagePrefixFrom(buffer, startIndexArray), encoded, 0, shared);
+      buffer.getByteArray(restFrom, encoded, shared, restLength);
+      buffer.position(restFrom + restLength);
+
+      return LSMTreeIndexKeyEncoding.decode(database, encoded, keyTypes);
+    }
 
-    for (int keyIndex = 0; keyIndex < binaryKeyTypes.length; ++keyIndex) {
-      final boolean notNull = version < 1 || currentPageBuffer.getByte() == 1;
+    final Object[] key = new Object[keyTypes.length];
+    for (int keyIndex = 0; keyIndex < keyTypes.length; ++keyIndex) {
+      final boolean notNull = version < 1 || buffer.getByte() == 1;
       if (notNull)
         // Keys are serialized in clear (see writeKeys): read them back without decryption.
-        key[keyIndex] = serializer.deserializeValue(database, currentPageBuffer, storageKeyTypes[keyIndex], null, false);
+        key[keyIndex] = serializer.deserializeValue(database, buffer, keyTypes[keyIndex], null, false);
       else
         key[keyIndex] = null;
     }
-
     return key;
   }
 
   protected int compareKey(final Binary currentPageBuffer, final int startIndexArray, final Object[] keys, final int mid,
-      final int count) {
+      final int count, final KeyProbe probe) {
     final int contentPos = currentPageBuffer.getInt(startIndexArray + (mid * INT_SERIALIZED_SIZE));
     if (contentPos < startIndexArray + (count * INT_SERIALIZED_SIZE))
       throw new IndexException("Internal error: invalid content position " + contentPos + " is < of " + (startIndexArray + (count
@@ -544,6 +615,9 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
 
     currentPageBuffer.position(contentPos);
 
+    if (probe != null)
+      return compareEncodedKey(currentPageBuffer, probe);
+
     int result = 0;
     for (int keyIndex = 0; keyIndex < keys.length; ++keyIndex) {
       // GET THE KEY
@@ -586,9 +660,148 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
       // the same length, so this is a readability fix, not a behaviour change.
       size += INT_SERIALIZED_SIZE + BYTE_SERIALIZED_SIZE + storageKeyTypes.length;
 
+    if (version >= NORMALIZED_KEYS_VERSION)
+      // PREFIX ENTRY POSITION
+      size += INT_SERIALIZED_SIZE;
+
     return size;
   }
 
+  /**
+   * The page format a new file of an index with these key types is written with.
+   */
+  static int pageFormatVersion(final byte[] storageKeyTypes) {
+    return LSMTreeIndexKeyEncoding.isSupported(storageKeyTypes) ? NORMALIZED_KEYS_VERSION : 1;
+  }
+
+  static int pageFormatVersion(final Type[] keyTypes) {
+    final byte[] storageKeyTypes = new byte[keyTypes.length];
+    for (int i = 0; i < keyTypes.length; i++)
+      storageKeyTypes[i] = BinaryTypes.getIndexStorageType(keyTypes[i].getBinaryType());
+    return pageFormatVersion(storageKeyTypes);
+  }
+
+  /**
+   * Writes the empty prefix entry position at the end of a new page header. No-op before
+   * {@link #NORMALIZED_KEYS_VERSION}.
+   */
+  protected void initPagePrefix(final MutablePage page) {
+    if (version >= NORMALIZED_KEYS_VERSION)
+      page.writeInt(getHeaderSize(page.getPageId().getPageNumber()) - INT_SERIALIZED_SIZE, 0);
+  }
+
+  /**
+   * Rewrites the key of a serialized entry about to be added to a page as the number of bytes it shares with the page
+   * prefix plus the rest, which can only make it shorter. The first entry of a page is kept whole: once written, it is
+   * the page prefix (see {@link #onEntryWritten}). No-op before {@link #NORMALIZED_KEYS_VERSION}.
+   */
+  protected void compressEntryKey(final Binary pageBuffer, final int pageNum, final Binary entry) {
+    if (version < NORMALIZED_KEYS_VERSION)
+      return;
+
+    final int prefixFrom = getPagePrefixFrom(pageBuffer, getHeaderSize(pageNum));
+    if (prefixFrom < 0)
+      return;
+
+    final int prefixLength = getPagePrefixLength(pageBuffer, prefixFrom);
+
+    final byte[] content = entry.toByteArray();
+    final Binary reader = new Binary(content);
+    reader.getUnsignedNumber(); // ALWAYS 0: THE ENTRY IS WRITTEN WHOLE
+    final int keyLength = (int) reader.getUnsignedNumber();
+    final int keyFrom = reader.position();
+
+    final int shared = LSMTreeIndexKeyEncoding.commonPrefixLength(content, keyFrom, keyFrom + keyLength, pageBuffer.getContent(),
+        pageBuffer.getContentBeginOffset() + prefixFrom, pageBuffer.getContentBeginOffset() + prefixFrom + prefixLength);
+    if (shared == 0)
+      return;
+
+    entry.clear();
+    entry.putUnsignedNumber(shared);
+    entry.putUnsignedNumber(keyLength - shared);
+    entry.putByteArray(content, keyFrom + shared, content.length - keyFrom - shared);
+  }
+
+  /**
+   * Records the first entry written in a page as the page prefix. No-op before {@link #NORMALIZED_KEYS_VERSION}.
+   *
+   * @param countInPage number of entries in the page BEFORE this one
+   */
+  protected void onEntryWritten(final Binary pageBuffer, final int pageNum, final int countInPage, final int entryPosition) {
+    if (version >= NORMALIZED_KEYS_VERSION && countInPage == 0)
+      pageBuffer.putInt(getHeaderSize(pageNum) - INT_SERIALIZED_SIZE, entryPosition);
+  }
+
+  /**
+   * @return the position of the page prefix bytes, or -1 if the page is still empty
+   */
+  private int getPagePrefixFrom(final Binary pageBuffer, final int startIndexArray) {
+    final int prefixEntry = pageBuffer.getInt(startIndexArray - INT_SERIALIZED_SIZE);
+    if (prefixEntry == 0)
+      return -1;
+    // SKIP THE SHARED LENGTH (ALWAYS 0 FOR THE PREFIX ENTRY) AND THE KEY LENGTH
+    return prefixEntry + BYTE_SERIALIZED_SIZE + Binary.getUnsignedNumberSpace(readUnsignedNumber(pageBuffer,
+        prefixEntry + BYTE_SERIALIZED_SIZE));
+  }
+
+  private static int getPagePrefixLength(final Binary pageBuffer, final int prefixFrom) {
+    // THE KEY LENGTH IS THE VARINT RIGHT BEFORE THE PREFIX BYTES: WALK BACK OVER ITS CONTINUATION BYTES
+    int lengthFrom = prefixFrom - 1;
+    while ((pageBuffer.getByte(lengthFrom - 1) & 0x80) != 0)
+      --lengthFrom;
+    return (int) readUnsignedNumber(pageBuffer, lengthFrom);
+  }
+
+  private static long readUnsignedNumber(final Binary pageBuffer, final int position) {
+    final int saved = pageBuffer.position();
+    pageBuffer.position(position);
+    final long value = pageBuffer.getUnsignedNumber();
+    pageBuffer.position(saved);
+    return value;
+  }
+
+  private KeyProbe newKeyProbe(final Binary pageBuffer, final int startIndexArray, final Object[] convertedKeys) {
+    if (version < NORMALIZED_KEYS_VERSION)
+      return null;
+
+    final byte[] bytes = LSMTreeIndexKeyEncoding.encode(convertedKeys, storageKeyTypes);
+    final int prefixFrom = getPagePrefixFrom(pageBuffer, startIndexArray);
+    if (prefixFrom < 0)
+      return new KeyProbe(bytes, 0, 0);
+
+    final int prefixLength = getPagePrefixLength(pageBuffer, prefixFrom);
+    final int offset = pageBuffer.getContentBeginOffset();
+    final int shared = LSMTreeIndexKeyEncoding.commonPrefixLength(bytes, 0, bytes.length, pageBuffer.getContent(),
+        offset + prefixFrom, offset + prefixFrom + prefixLength);
+    return new KeyProbe(bytes, prefixFrom, shared);
+  }
+
+  /**
+   * Compares the probe with the encoded key the buffer is positioned on, leaving the buffer after the key. A probe with
+   * fewer components than the index matches every key it is a prefix of.
+   */
+  private static int compareEncodedKey(final Binary pageBuffer, final KeyProbe probe) {
+    final int shared = (int) pageBuffer.getUnsignedNumber();
+    final int restLength = (int) pageBuffer.getUnsignedNumber();
+    final int restFrom = pageBuffer.position();
+    pageBuffer.position(restFrom + restLength);
+
+    final byte[] content = pageBuffer.getContent();
+    final int offset = pageBuffer.getContentBeginOffset();
+    final byte[] bytes = probe.bytes;
+    final int probeShared = probe.sharedWithPrefix;
+
+    if (shared > probeShared) {
+      // THE PROBE DIVERGES FROM THE PREFIX FIRST, WHERE THE KEY STILL HOLDS THE PREFIX BYTE
+      if (probeShared == bytes.length)
+        return 0;
+      return Integer.compare(bytes[probeShared] & 0xFF, content[offset + probe.prefixFrom + probeShared] & 0xFF);
+    }
+
+    // THE FIRST shared BYTES ARE THE SAME ON BOTH SIDES: ONLY THE REST IS COMPARED
+    return LSMTreeIndexKeyEncoding.compare(bytes, shared, content, offset + restFrom, offset + restFrom + restLength);
+  }
+
   public static int compareKeys(final BinaryComparator comparator, final byte[] keyTypes, final Object[] keys1,
       final Object[] keys2) {
     final int minKeySize = Math.min(keys1.length, keys2.length);
@@ -826,45 +1039,56 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
     if (result.found) {
       // REAL ALL THE ENTRIES
       final List<RID> allValues = readAllValuesFromResult(currentPageBuffer, result);
+      return addValuesInResultset(allValues, originalKeys, convertedKeys, limit, set, removedKeys, deletedRIDs);
+    }
+    return true;
+  }
 
-      // #4945: deletedRIDs is threaded from the caller across pages and the compacted sub-index, exactly like
-      // removedKeys. For a non-unique index a per-RID tombstone and its ADD frequently live in different pages,
-      // so a page-local deletedRIDs set resurrected the deleted RID once the walk reached the older page.
-      final TransactionIndexContext.ComparableKey keys = new TransactionIndexContext.ComparableKey(convertedKeys);
-
-      // START FROM THE LAST ENTRY
-      for (int i = allValues.size() - 1; i > -1; --i) {
-        final RID rid = allValues.get(i);
-
-        if (rid.getBucketId() < 0) {
-          // This is a deletion marker - convert to original RID
-          final RID originalRID = getOriginalRID(rid);
-          deletedRIDs.add(originalRID);
-
-          // For unique indexes, also mark the entire key as removed
-          if (mainIndex.isUnique()) {
-            removedKeys.add(keys);
-          }
-          continue;
+  /**
+   * Adds the values found for one key to the result set, newest first, applying the deletion markers met on the way.
+   *
+   * @return false if the limit was reached
+   */
+  protected boolean addValuesInResultset(final List<RID> allValues, final Object[] originalKeys, final Object[] convertedKeys,
+      final int limit, final Set<IndexCursorEntry> set, final Set<TransactionIndexContext.ComparableKey> removedKeys,
+      final RidHashSet deletedRIDs) {
+    // #4945: deletedRIDs is threaded from the caller across pages and the compacted sub-index, exactly like
+    // removedKeys. For a non-unique index a per-RID tombstone and its ADD frequently live in different pages,
+    // so a page-local deletedRIDs set resurrected the deleted RID once the walk reached the older page.
+    final TransactionIndexContext.ComparableKey keys = new TransactionIndexContext.ComparableKey(convertedKeys);
+
+    // START FROM THE LAST ENTRY
+    for (int i = allValues.size() - 1; i > -1; --i) {
+      final RID rid = allValues.get(i);
+
+      if (rid.getBucketId() < 0) {
+        // This is a deletion marker - convert to original RID
+        final RID originalRID = getOriginalRID(rid);
+        deletedRIDs.add(originalRID);
+
+        // For unique indexes, also mark the entire key as removed
+        if (mainIndex.isUnique()) {
+          removedKeys.add(keys);
         }
+        continue;
+      }
 
-        // For unique indexes, check if the entire key has been removed
-        if (mainIndex.isUnique() && removedKeys.contains(keys)) {
-          // Skipping rid because key is in removedKeys (unique index)
-          continue;
-        }
+      // For unique indexes, check if the entire key has been removed
+      if (mainIndex.isUnique() && removedKeys.contains(keys)) {
+        // Skipping rid because key is in removedKeys (unique index)
+        continue;
+      }
 
-        // For all indexes, check if this specific RID has been deleted
-        if (deletedRIDs.contains(rid)) {
-          // Skipping rid because it is in deletedRIDs
-          continue;
-        }
+      // For all indexes, check if this specific RID has been deleted
+      if (deletedRIDs.contains(rid)) {
+        // Skipping rid because it is in deletedRIDs
+        continue;
+      }
 
-        set.add(new IndexCursorEntry(originalKeys, rid, 1));
+      set.add(new IndexCursorEntry(originalKeys, rid, 1));
 
-        if (limit > -1 && set.size() >= limit) {
-          return false;
-        }
+      if (limit > -1 && set.size() >= limit) {
+        return false;
       }
     }
     return true;
@@ -883,47 +1107,53 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
   }
 
   private int findEntryOfSameKey(final Binary currentPageBuffer, final Object[] keys, final int startIndexArray, int mid, int start,
-      int end, int step) {
+      int end, int step, KeyProbe probe) {
+    if (probe == null)
+      probe = newKeyProbe(currentPageBuffer, startIndexArray, keys);
+
     int result;
     for (int i = start; i != end; i += step) {
       currentPageBuffer.position(currentPageBuffer.getInt(startIndexArray + (i * INT_SERIALIZED_SIZE)));
 
       result = 1;
-      for (int keyIndex = 0; keyIndex < keys.length; ++keyIndex) {
-        final boolean notNull = version < 1 || currentPageBuffer.getByte() == 1;
-        if (!notNull) {
-          // #4947 (pre-existing corruption): the stored component is NULL. Breaking here with the PREVIOUS
-          // component's result (0 when the prefix matched) declared (k,null) the "same key" as (k,v), and
-          // the purpose-1 caller then applied MID's key size to every pointer of the run - (k,null)'s key
-          // is shorter, so its value position landed mid-bytes and the read underflowed. Same key only if
-          // the search component is null too; otherwise nulls sort LOW, matching compareKey().
-          result = keys[keyIndex] == null ? 0 : 1;
-          if (result != 0)
+      if (probe != null)
+        result = compareEncodedKey(currentPageBuffer, probe);
+      else
+        for (int keyIndex = 0; keyIndex < keys.length; ++keyIndex) {
+          final boolean notNull = version < 1 || currentPageBuffer.getByte() == 1;
+          if (!notNull) {
+            // #4947 (pre-existing corruption): the stored component is NULL. Breaking here with the PREVIOUS
+            // component's result (0 when the prefix matched) declared (k,null) the "same key" as (k,v), and
+            // the purpose-1 caller then applied MID's key size to every pointer of the run - (k,null)'s key
+            // is shorter, so its value position landed mid-bytes and the read underflowed. Same key only if
+            // the search component is null too; otherwise nulls sort LOW, matching compareKey().
+            result = keys[keyIndex] == null ? 0 : 1;
+            if (result != 0)
+              break;
+            continue;
+          }
+
+          if (keys[keyIndex] == null) {
+            // Search component null vs stored non-null: not the same key (nulls sort LOW). The old code fed
+            // the null into compareBytes/compare below - an NPE for string keys.
+            result = -1;
             break;
-          continue;
-        }
+          }
 
-        if (keys[keyIndex] == null) {
-          // Search component null vs stored non-null: not the same key (nulls sort LOW). The old code fed
-          // the null into compareBytes/compare below - an NPE for string keys.
-          result = -1;
-          break;
-        }
+          final byte keyType = binaryKeyTypes[keyIndex];
+          if (keyType == BinaryTypes.TYPE_STRING) {
+            // OPTIMIZATION: SPECIAL CASE, LAZY EVALUATE BYTE PER BYTE THE STRING
+            result = comparator.compareBytes((byte[]) keys[keyIndex], currentPageBuffer);
+          } else {
+            // Keys are serialized in clear (see writeKeys): read them back without decryption.
+            final Object key = serializer.deserializeValue(database, currentPageBuffer, storageKeyTypes[keyIndex], null, false);
+            result = comparator.compare(keys[keyIndex], keyType, key, keyType);
+          }
 
-        final byte keyType = binaryKeyTypes[keyIndex];
-        if (keyType == BinaryTypes.TYPE_STRING) {
-          // OPTIMIZATION: SPECIAL CASE, LAZY EVALUATE BYTE PER BYTE THE STRING
-          result = comparator.compareBytes((byte[]) keys[keyIndex], currentPageBuffer);
-        } else {
-          // Keys are serialized in clear (see writeKeys): read them back without decryption.
-          final Object key = serializer.deserializeValue(database, currentPageBuffer, storageKeyTypes[keyIndex], null, false);
-          result = comparator.compare(keys[keyIndex], keyType, key, keyType);
+          if (result != 0)
+            break;
         }
 
-        if (result != 0)
-          break;
-      }
-
       if (result == 0) {
         mid = i;
         statsAdjacentSteps.incrementAndGet();
@@ -934,12 +1164,17 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
   }
 
   protected int findFirstEntryOfSameKey(final Binary currentPageBuffer, final Object[] keys, final int startIndexArray, int mid) {
-    return findEntryOfSameKey(currentPageBuffer, keys, startIndexArray, mid, mid - 1, -1, -1);
+    return findFirstEntryOfSameKey(currentPageBuffer, keys, startIndexArray, mid, null);
+  }
+
+  protected int findFirstEntryOfSameKey(final Binary currentPageBuffer, final Object[] keys, final int startIndexArray, int mid,
+      final KeyProbe probe) {
+    return findEntryOfSameKey(currentPageBuffer, keys, startIndexArray, mid, mid - 1, -1, -1, probe);
   }
 
   protected int findLastEntryOfSameKey(final int count, final Binary currentPageBuffer, final Object[] keys,
-      final int startIndexArray, int mid) {
-    return findEntryOfSameKey(currentPageBuffer, keys, startIndexArray, mid, mid + 1, count, 1);
+      final int startIndexArray, int mid, final KeyProbe probe) {
+    return findEntryOfSameKey(currentPageBuffer, keys, startIndexArray, mid, mid + 1, count, 1, probe);
   }
 
   /**
@@ -994,6 +1229,22 @@ public abstract class LSMTreeIndexAbstract extends PaginatedComponent {
     return canonical;
   }
 
+  /**
+   * Writes the key of a page entry in the format of this file: {@link #writeKeys} before {@link #NORMALIZED_KEYS_VERSION},
+   * the whole encoded key (nothing shared with the page prefix yet, see {@link #compressEntryKey}) from then on.
+   */
+  private void writeEntryKeys(final Binary buffer, final Object[] keys) {
+    if (version < NORMALIZED_KEYS_VERSION) {
+      writeKeys(buffer, keys);
+      return;
+    }
+
+    final byte[] encoded = LSMTreeIndexKeyEncoding.encode(keys, storageKeyTypes);
+    buffer.putUnsignedNumber(0);
+    buffer.putUnsignedNumber(encoded.length);
+    buffer.putByteArray(encoded);
+  }
+
   private void writeKeys(final Binary buffer, final Object[] keys) {
     // WRITE KEYS
     for (int i = 0; i < binaryKeyTypes.length; ++i) {
@@ -289,11 +289,14 @@ public class LSMTreeIndexBloomFilter extends PaginatedComponent {
    * <p>
    * Never propagates a failure: the filter is an optimisation and a compaction that produced correct index pages must
    * not be failed by it. What it does NOT do on failure is publish a half-written filter.
+   * <p>
+   * Synchronized because the key ranges of a parallel full compaction finish their series concurrently, and each one
+   * allocates its filter pages at the end of this file.
    *
    * @param hashes the {@link #hashKey} of every key of the series, in any order, duplicates allowed
    * @param count  how many of {@code hashes} are populated
    */
-  void publish(final int seriesRootPage, final int seriesPages, final int seriesFingerprint, final long[] hashes,
+  synchronized void publish(final int seriesRootPage, final int seriesPages, final int seriesFingerprint, final long[] hashes,
       final int count, final double falsePositiveRate) {
     if (count < 1)
       return;
@@ -365,7 +368,7 @@ public class LSMTreeIndexBloomFilter extends PaginatedComponent {
    * ever grows, which is what lets a crash - and an HA follower, which receives a compaction as the page range each
    * file grew by - always see a directory that agrees with the bits around it.
    */
-  void rollbackFrom(final int seriesRootPageFloor) {
+  synchronized void rollbackFrom(final int seriesRootPageFloor) {
     final List<Entry> survivors = new ArrayList<>(directory.size());
     for (final Entry entry : directory.values())
       if (entry.seriesRootPage() < seriesRootPageFloor)
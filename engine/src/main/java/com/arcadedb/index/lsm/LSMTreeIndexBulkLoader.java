@@ -679,7 +679,8 @@ public final class LSMTreeIndexBulkLoader implements AutoCloseable {
       this.compactedIndex = mainIndex.getMutableIndex().createNewForCompaction();
       try {
         database.getSchema().getEmbedded().registerFile(compactedIndex);
-        this.streamWriter = new LSMTreeIndexCompactedStreamWriter(mainIndex, compactedIndex);
+        // A BULK-BUILT FILE HOLDS THE WHOLE INDEX WITHOUT TOMBSTONES: IT IS A BASE (LEVEL 2), LIKE A FULL COMPACTION'S
+        this.streamWriter = new LSMTreeIndexCompactedStreamWriter(mainIndex, compactedIndex).setLevel(2);
       } catch (final RuntimeException error) {
         try {
           database.getFileManager().dropFile(compactedIndex.getFileId());
@@ -38,6 +38,7 @@ import com.arcadedb.utility.RidHashSet;
 
 import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -54,6 +55,16 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
   public static final String UNIQUE_INDEX_EXT    = "uctidx";
   public static final String NOTUNIQUE_INDEX_EXT = "nuctidx";
 
+  /**
+   * Value of the root page's flag byte (the one marking mutable pages in a mutable file, always 0 here) for a series
+   * written by a full compaction. Such series form level 2, the base of the index; the series appended by incremental
+   * rounds after it, and every series written before levels existed, keep 0 and form level 1. Not 1, which is what a
+   * mutable page is recognized by.
+   */
+  static final byte BASE_LEVEL_MARKER    = 2;
+  /** Provisional number of the pages of a series built before its position is known, see {@link #newDetachedPage}. */
+  static final int  DETACHED_PAGE_NUMBER = 1;
+
   private static final int MAX_SERIES_CHECKED_ON_LOAD    = 2;
   private static final int MAX_PROBLEMS_REPORTED_ON_LOAD = 3;
 
@@ -143,8 +154,7 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
       final boolean unique, final String filePath,
       final Type[] keyTypes, final byte[] storageKeyTypes, final int pageSize) throws IOException {
     super(mainIndex, database, name, unique, filePath, unique ? UNIQUE_INDEX_EXT : NOTUNIQUE_INDEX_EXT, keyTypes, storageKeyTypes,
-        pageSize,
-        LSMTreeIndexMutable.CURRENT_VERSION);
+        pageSize, pageFormatVersion(storageKeyTypes));
   }
 
   /**
@@ -191,6 +201,19 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
       final TrackableBinary currentPageBuffer, final AtomicInteger compactedPageNumberOfSeries, final Object[] keys,
       final Object[] convertedKeys, final RID[] rids)
       throws IOException, InterruptedException {
+    return appendDuringCompactionConverted(keyValueContent, currentPage, currentPageBuffer, compactedPageNumberOfSeries,
+        keys, convertedKeys, rids, false);
+  }
+
+  /**
+   * @param detached true to build the new pages in RAM only, with a provisional page number (see
+   *                 {@link #newDetachedPage(int)}) and without flushing the filled ones: the caller places and writes
+   *                 them once the final position of the whole series is known
+   */
+  List<MutablePage> appendDuringCompactionConverted(final Binary keyValueContent, MutablePage currentPage,
+      final TrackableBinary currentPageBuffer, final AtomicInteger compactedPageNumberOfSeries, final Object[] keys,
+      final Object[] convertedKeys, final RID[] rids, final boolean detached)
+      throws IOException, InterruptedException {
     final List<MutablePage> newPages = new ArrayList<>();
 
     TrackableBinary pageBuffer = currentPageBuffer;
@@ -203,7 +226,9 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
 
     if (currentPage == null) {
       // CREATE A NEW PAGE
-      currentPage = createNewPage(compactedPageNumberOfSeries.getAndIncrement());
+      currentPage = detached ?
+            newDetachedPage(compactedPageNumberOfSeries.getAndIncrement()) :
+            createNewPage(compactedPageNumberOfSeries.getAndIncrement());
       newPages.add(currentPage);
       pageBuffer = currentPage.getTrackable();
     }
@@ -236,10 +261,14 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
       // continuation page, which is therefore flushed cleanly with just the previous keys' entries.
       if (writtenValues == 0 || (firstIteration && startedOnContinuation && writtenValues < values.length)) {
         // CREATE A NEW PAGE AND FLUSH TO THE DATABASE THE CURRENT ONE (NO WAL)
-        database.getPageManager().updatePageVersion(currentPage, true);
-        database.getPageManager().writePages(List.of(currentPage), true);
+        if (!detached) {
+          database.getPageManager().updatePageVersion(currentPage, true);
+          database.getPageManager().writePages(List.of(currentPage), true);
+        }
 
-        currentPage = createNewPage(compactedPageNumberOfSeries.getAndIncrement());
+        currentPage = detached ?
+            newDetachedPage(compactedPageNumberOfSeries.getAndIncrement()) :
+            createNewPage(compactedPageNumberOfSeries.getAndIncrement());
 
         newPages.add(currentPage);
 
@@ -258,6 +287,8 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
 
       firstIteration = false;
 
+      compressEntryKey(pageBuffer, pageNum, keyValueContent);
+
       keyValueFreePosition -= keyValueContent.size();
 
       // WRITE KEY/VALUE PAIR CONTENT
@@ -266,6 +297,7 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
 
       final int startPos = getHeaderSize(pageNum) + (count * INT_SERIALIZED_SIZE);
       pageBuffer.putInt(startPos, keyValueFreePosition);
+      onEntryWritten(pageBuffer, pageNum, count, keyValueFreePosition);
 
       setCount(currentPage, count + 1);
       setValuesFreePosition(currentPage, keyValueFreePosition);
@@ -281,10 +313,14 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
         assert values.length < prevLen : "compacted writeNewPages must shrink values each iteration to terminate";
 
         // NO SPACE LEFT, CREATE A NEW PAGE AND FLUSH TO THE DATABASE THE CURRENT ONE (NO WAL)
-        database.getPageManager().updatePageVersion(currentPage, true);
-        database.getPageManager().writePages(List.of(currentPage), true);
+        if (!detached) {
+          database.getPageManager().updatePageVersion(currentPage, true);
+          database.getPageManager().writePages(List.of(currentPage), true);
+        }
 
-        currentPage = createNewPage(compactedPageNumberOfSeries.getAndIncrement());
+        currentPage = detached ?
+            newDetachedPage(compactedPageNumberOfSeries.getAndIncrement()) :
+            createNewPage(compactedPageNumberOfSeries.getAndIncrement());
 
         newPages.add(currentPage);
 
@@ -352,10 +388,10 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
   }
 
   protected LookupResult compareKey(final Binary currentPageBuffer, final int startIndexArray, final Object[] convertedKeys,
-      final int mid, final int count,
-      final int purpose) {
+      int mid, final int count,
+      final int purpose, final KeyProbe probe) {
 
-    final int result = compareKey(currentPageBuffer, startIndexArray, convertedKeys, mid, count);
+    final int result = compareKey(currentPageBuffer, startIndexArray, convertedKeys, mid, count, probe);
 
     if (result > 0)
       return HIGHER;
@@ -376,16 +412,25 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
       final int keySerializedSize = getSerializedKeySize(currentPageBuffer, convertedKeys.length);
 
       // RETRIEVE ALL THE RESULTS
-      final int firstKeyPos = findFirstEntryOfSameKey(currentPageBuffer, convertedKeys, startIndexArray, mid);
-      final int lastKeyPos = findLastEntryOfSameKey(count, currentPageBuffer, convertedKeys, startIndexArray, mid);
+      final int firstKeyPos = findFirstEntryOfSameKey(currentPageBuffer, convertedKeys, startIndexArray, mid, probe);
+      final int lastKeyPos = findLastEntryOfSameKey(count, currentPageBuffer, convertedKeys, startIndexArray, mid, probe);
 
       final int[] positionsArray = new int[lastKeyPos - firstKeyPos + 1];
       for (int i = firstKeyPos; i <= lastKeyPos; ++i)
-        positionsArray[i - firstKeyPos] = currentPageBuffer.getInt(startIndexArray + (i * INT_SERIALIZED_SIZE)) + keySerializedSize;
+        positionsArray[i - firstKeyPos] = getEntryValuesPosition(currentPageBuffer,
+            currentPageBuffer.getInt(startIndexArray + (i * INT_SERIALIZED_SIZE)), keySerializedSize);
 
       return new LookupResult(true, false, lastKeyPos, positionsArray);
     }
 
+    if (convertedKeys.length < binaryKeyTypes.length) {
+      // PARTIAL MATCHING: A PREFIX CAN MATCH A RUN OF ENTRIES (OF LEAVES, ON A ROOT PAGE), START FROM ITS EDGE
+      if (purpose == 2)
+        mid = findFirstEntryOfSameKey(currentPageBuffer, convertedKeys, startIndexArray, mid, probe);
+      else if (purpose == 3)
+        mid = findLastEntryOfSameKey(count, currentPageBuffer, convertedKeys, startIndexArray, mid, probe);
+    }
+
     // TODO: SET CORRECT VALUE POSITION FOR PARTIAL KEYS
     return new LookupResult(true, false, mid, new int[] { currentPageBuffer.position() });
   }
@@ -394,7 +439,37 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
     // NEW FILE, CREATE HEADER PAGE
     final int txPageCounter = getTotalPages();
 
-    final MutablePage currentPage = new MutablePage(new PageId(database, getFileId(), txPageCounter), pageSize);
+    final MutablePage currentPage = newPage(txPageCounter, compactedPageNumberOfSeries);
+
+    updatePageCount(txPageCounter + 1);
+
+    return currentPage;
+  }
+
+  /**
+   * A data page of a series whose position in the file is not known yet. It carries the provisional page number
+   * {@link #DETACHED_PAGE_NUMBER}, whose header has the layout of any data page, and is never written as such: the
+   * caller copies it into its final page with {@link #placePage(MutablePage, int)}.
+   */
+  MutablePage newDetachedPage(final int compactedPageNumberOfSeries) {
+    return newPage(DETACHED_PAGE_NUMBER, compactedPageNumberOfSeries);
+  }
+
+  /** Copies the content of a detached page into a new page at its final position. */
+  MutablePage placePage(final MutablePage detachedPage, final int pageNumber) {
+    final MutablePage page = new MutablePage(new PageId(database, getFileId(), pageNumber), pageSize);
+    final ByteBuffer content = detachedPage.getContent();
+    content.rewind();
+    page.getContent().put(content);
+    return page;
+  }
+
+  /**
+   * Formats a compacted page at {@code pageNumber} without allocating it in the file. Page 0 also carries the file header,
+   * so it is the largest header a page of this file can have.
+   */
+  MutablePage newPage(final int pageNumber, final int compactedPageNumberOfSeries) {
+    final MutablePage currentPage = new MutablePage(new PageId(database, getFileId(), pageNumber), pageSize);
 
     int pos = 0;
     pos += currentPage.writeInt(pos, currentPage.getMaxContentSize());
@@ -402,7 +477,7 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
     pos += currentPage.writeByte(pos, (byte) 0); // IMMUTABLE PAGE
     pos += currentPage.writeInt(pos, compactedPageNumberOfSeries); // COMPACTED PAGE NUMBER OF SERIES
 
-    if (txPageCounter == 0) {
+    if (pageNumber == 0) {
       pos += currentPage.writeInt(pos, -1); // SUB-INDEX FILE ID
 
       // The STORAGE types, for the same reason as in LSMTreeIndexMutable.createNewPage: this is the encoding the
@@ -412,7 +487,7 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
         currentPage.writeByte(pos++, storageKeyTypes[i]);
     }
 
-    updatePageCount(txPageCounter + 1);
+    initPagePrefix(currentPage);
 
     return currentPage;
   }
@@ -528,11 +603,12 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
       int pageInSeries = resultInRootPage.keyIndex;
 
       if (resultInRootPage.found) {
-        if (ascendingOrder && !unique) {
+        if (ascendingOrder && (!unique || convertedFromKeys.length < binaryKeyTypes.length)) {
           // Start at the first matching leaf plus its possible shared predecessor. Legacy files can contain a key that began
           // on its predecessor and then overflowed; the bounded writer can also place a complete leading RID chunk there
           // before later chunks move to matching leaves. A non-matching predecessor advances to the next page below. Unique
-          // indexes are exempt: a unique key holds one value and cannot span leaves.
+          // indexes are exempt for a full key: a unique key holds one value and cannot span leaves, while a partial key
+          // matches the tail of the predecessor leaf on any index.
           final int firstMatchingRootEntry = resultInRootPage.valueBeginPositions != null
               ? resultInRootPage.keyIndex - resultInRootPage.valueBeginPositions.length + 1
               : resultInRootPage.keyIndex;
@@ -927,7 +1003,7 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
    * The filter component to publish into, adopting the one already registered for this index before creating a new
    * file - a second file for the same logical name would orphan the first and make the name ambiguous at load.
    */
-  LSMTreeIndexBloomFilter getOrCreateBloomFilter() throws IOException {
+  synchronized LSMTreeIndexBloomFilter getOrCreateBloomFilter() throws IOException {
     LSMTreeIndexBloomFilter filter = bloomFilter;
     if (filter == null) {
       attachBloomFilter();
@@ -1018,22 +1094,34 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
               + "could not be dropped until now. Please report this, the scan that opened them is leaking.", leaked, getName());
   }
 
+  /**
+   * A published series: its root page, how many data pages follow it and its level (1 = appended by an incremental
+   * round, 2 = written by a full compaction).
+   */
+  record Series(int rootPage, int dataPages, int level) {
+  }
+
   /**
    * Number of compacted series currently published (page 0's counter), walking the same root-page chain the
    * readers walk. Grows by at least one per incremental compaction round - more when the round is RAM-bound -
-   * and collapses back to one after a full compaction.
+   * and collapses back to the base series after a full compaction.
    */
   public int getSeriesCount() {
+    return getSeries().size();
+  }
+
+  /** The published series, oldest first, with the same tolerance as {@link #newIterators}. */
+  List<Series> getSeries() {
     final int totalPages = getTotalPages();
     if (totalPages < 1)
-      return 0;
+      return Collections.emptyList();
 
     try {
       final BasePage mainPage = database.getPageManager()
           .getImmutablePage(new PageId(database, file.getFileId(), 0), pageSize, false, true);
       final int effectivePageCount = Math.min(getCompactedPageNumberOfSeries(mainPage), totalPages);
 
-      int series = 0;
+      final List<Series> series = new ArrayList<>();
       for (int pageNumber = effectivePageCount - 1; pageNumber > 0; ) {
         final BasePage lastPage = database.getPageManager()
             .getImmutablePage(new PageId(database, file.getFileId(), pageNumber), pageSize, false, true);
@@ -1046,15 +1134,67 @@ public class LSMTreeIndexCompacted extends LSMTreeIndexAbstract {
         }
 
         pageNumber -= rootPageCount;
-        ++series;
+
+        final BasePage rootPage = pageNumber == 0 ? mainPage : database.getPageManager()
+            .getImmutablePage(new PageId(database, file.getFileId(), pageNumber), pageSize, false, true);
+        series.add(new Series(pageNumber, rootPageCount, getSeriesLevel(rootPage)));
         --pageNumber;
       }
+      Collections.reverse(series);
       return series;
     } catch (final IOException e) {
       throw new IndexException("Error on counting the series of compacted index '" + getName() + "'", e);
     }
   }
 
+  /**
+   * The first key of every data page of a series, in page order, read from its root page. A key whose values span more
+   * than one page appears once per page.
+   */
+  List<Object[]> getSeriesFirstKeys(final Series series) throws IOException {
+    final BasePage rootPage = database.getPageManager()
+        .getImmutablePage(new PageId(database, file.getFileId(), series.rootPage()), pageSize, false, true);
+    final Binary buffer = new Binary(rootPage.slice());
+    final int keyStartPosition = getHeaderSize(series.rootPage());
+    final int entries = Math.min(series.dataPages(), getCount(rootPage));
+
+    final List<Object[]> keys = new ArrayList<>(entries);
+    for (int i = 0; i < entries; ++i) {
+      buffer.position(buffer.getInt(keyStartPosition + i * INT_SERIALIZED_SIZE));
+      keys.add(readEntryKeys(buffer, keyStartPosition, storageKeyTypes));
+    }
+    return keys;
+  }
+
+  void setSeriesLevel(final MutablePage rootPage, final int level) {
+    rootPage.writeByte(INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE, level == 2 ? BASE_LEVEL_MARKER : (byte) 0);
+  }
+
+  private int getSeriesLevel(final BasePage rootPage) {
+    return rootPage.readByte(INT_SERIALIZED_SIZE + INT_SERIALIZED_SIZE) == BASE_LEVEL_MARKER ? 2 : 1;
+  }
+
+  /** Adds the series and data pages of level 1 (incremental series) and level 2 (base series) to {@code stats}. */
+  void putLevelStats(final Map<String, Long> stats) {
+    long level1Series = 0;
+    long level1Pages = 0;
+    long level2Series = 0;
+    long level2Pages = 0;
+    for (final Series series : getSeries()) {
+      if (series.level() == 2) {
+        ++level2Series;
+        level2Pages += series.dataPages();
+      } else {
+        ++level1Series;
+        level1Pages += series.dataPages();
+      }
+    }
+    stats.put("level1Series", level1Series);
+    stats.put("level1Pages", level1Pages);
+    stats.put("level2Series", level2Series);
+    stats.put("level2Pages", level2Pages);
+  }
+
   /**
    * Readers only see the pages page 0's series counter has published ({@link #newIterators} clamps to it):
    * an in-flight compaction flushes its series pages BEFORE bumping the counter, and a failed round leaves
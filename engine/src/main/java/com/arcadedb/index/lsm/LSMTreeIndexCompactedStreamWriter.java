@@ -65,6 +65,13 @@ final class LSMTreeIndexCompactedStreamWriter {
   private int     bloomKeyCount;
   private long    bloomLastHash;
 
+  /** Where the series go when their position is decided at the end (parallel key ranges), null to write them in place. */
+  private final SeriesPlacement placement;
+
+  private int                            level = 1;
+  private LSMTreeIndexCompactionThrottle throttle;
+  private long                           throttleBytesPerSecond;
+
   private MutablePage     rootPage;
   private TrackableBinary rootPageBuffer;
   private MutablePage     lastPage;
@@ -73,9 +80,22 @@ final class LSMTreeIndexCompactedStreamWriter {
   private Object[]        lastPageMaxKey;
   private Object[]        lastPageMaxConvertedKey;
   private List<MutablePage> newPagesInSeries;
+  /** Deferred placement only: the first key (original and converted) of every data page, for the root built at the end. */
+  private List<Object[][]>  firstKeysInSeries;
 
   LSMTreeIndexCompactedStreamWriter(final LSMTreeIndex mainIndex, final LSMTreeIndexCompacted compactedIndex) {
+    this(mainIndex, compactedIndex, null);
+  }
+
+  /**
+   * @param placement null to append every series at the end of the file as it is written. Otherwise the pages of a series
+   *                  are built in RAM and placed in a page range reserved from {@code placement} when the series is
+   *                  finished, which lets several writers fill the same file concurrently, each with whole series.
+   */
+  LSMTreeIndexCompactedStreamWriter(final LSMTreeIndex mainIndex, final LSMTreeIndexCompacted compactedIndex,
+      final SeriesPlacement placement) {
     this.mainIndex = mainIndex;
+    this.placement = placement;
     this.mutableIndex = mainIndex.getMutableIndex();
     this.compactedIndex = compactedIndex;
     this.database = mutableIndex.getDatabase();
@@ -84,6 +104,19 @@ final class LSMTreeIndexCompactedStreamWriter {
     this.bloomFalsePositiveRate = rate > 0 && rate < 1 ? rate : 0;
   }
 
+  /** Level the written series belong to: 1 for an incremental round, 2 for the base written by a full compaction. */
+  LSMTreeIndexCompactedStreamWriter setLevel(final int level) {
+    this.level = level;
+    return this;
+  }
+
+  /** Paces the written pages to {@code bytesPerSecond}, shared with whatever else charges the same throttle. */
+  LSMTreeIndexCompactedStreamWriter setThrottle(final LSMTreeIndexCompactionThrottle throttle, final long bytesPerSecond) {
+    this.throttle = throttle;
+    this.throttleBytesPerSecond = bytesPerSecond;
+    return this;
+  }
+
   MutablePage startSeries() {
     if (rootPage != null)
       throw new IllegalStateException("A compacted series is already active for index '" + mainIndex.getName() + "'");
@@ -92,7 +125,14 @@ final class LSMTreeIndexCompactedStreamWriter {
     bloomKeyCount = 0;
     bloomLastHash = 0;
 
-    rootPage = compactedIndex.createNewPage(0);
+    if (placement != null) {
+      // SIZED AS PAGE 0, THE LARGEST HEADER: THE ROOT CAN LAND ANYWHERE, PAGE 0 INCLUDED
+      rootPage = compactedIndex.newPage(0, 0);
+      firstKeysInSeries = new ArrayList<>();
+    } else {
+      rootPage = compactedIndex.createNewPage(0);
+      compactedIndex.setSeriesLevel(rootPage, level);
+    }
     rootPageBuffer = rootPage.getTrackable();
     lastPage = null;
     lastPageBuffer = null;
@@ -114,17 +154,22 @@ final class LSMTreeIndexCompactedStreamWriter {
 
     rememberForBloomFilter(convertedKeys);
 
+    final boolean detached = placement != null;
     final List<MutablePage> newPages = compactedIndex.appendDuringCompactionConverted(keyValueContent, lastPage,
-        lastPageBuffer, pageNumberInSeries, keys, convertedKeys, rids);
+        lastPageBuffer, pageNumberInSeries, keys, convertedKeys, rids, detached);
 
     if (!newPages.isEmpty()) {
       lastPage = newPages.getLast();
       lastPageBuffer = lastPage.getTrackable();
 
       for (final MutablePage newPage : newPages) {
-        final int newPageNumber = newPage.getPageId().getPageNumber();
+        // A DETACHED PAGE HAS NO NUMBER YET: RESERVE ROOT SPACE FOR THE LARGEST ONE, THE REAL ENTRY IS WRITTEN AT PLACEMENT
+        final int newPageNumber = detached ? Integer.MAX_VALUE : newPage.getPageId().getPageNumber();
+        if (detached)
+          firstKeysInSeries.add(new Object[][] { keys, convertedKeys });
+
         final List<MutablePage> newRootPages = compactedIndex.appendDuringCompactionConverted(keyValueContent, rootPage,
-            rootPageBuffer, pageNumberInSeries, keys, convertedKeys, new RID[] { new RID(0, newPageNumber) });
+            rootPageBuffer, pageNumberInSeries, keys, convertedKeys, new RID[] { new RID(0, newPageNumber) }, detached);
 
         LogManager.instance().log(mainIndex, Level.FINE,
             "- Creating a new entry in index '%s' root page %s->%d (entry in page=%d threadId=%d)", null, mutableIndex,
@@ -134,6 +179,7 @@ final class LSMTreeIndexCompactedStreamWriter {
           throw new UnsupportedOperationException("Root index page overflow");
       }
       newPagesInSeries.addAll(newPages);
+      throttle(newPages.size());
     }
 
     lastPageMaxKey = keys;
@@ -164,7 +210,7 @@ final class LSMTreeIndexCompactedStreamWriter {
           ROOT_SENTINEL);
       if (startsNewLeaf)
         requiredRootSpace += compactedIndex.requiredSpaceForEntry(sizingContent, rootPage, keys, convertedKeys,
-            new RID[] { new RID(0, compactedIndex.getTotalPages()) });
+            new RID[] { new RID(0, nextDataPageNumber()) });
 
       if ((startsNewLeaf && newPagesInSeries.size() >= maxDataPagesPerSeries)
           || requiredRootSpace > compactedIndex.availableSpaceForEntries(rootPage)) {
@@ -173,7 +219,7 @@ final class LSMTreeIndexCompactedStreamWriter {
         requiredRootSpace = compactedIndex.requiredSpaceForEntry(sizingContent, rootPage, keys, convertedKeys,
             ROOT_SENTINEL)
             + compactedIndex.requiredSpaceForEntry(sizingContent, rootPage, keys, convertedKeys,
-            new RID[] { new RID(0, compactedIndex.getTotalPages()) });
+            new RID[] { new RID(0, nextDataPageNumber()) });
         if (requiredRootSpace > compactedIndex.availableSpaceForEntries(rootPage))
           throw new IndexException(
               "Root entry for key " + Arrays.toString(keys) + " does not fit in an empty compacted series");
@@ -191,6 +237,23 @@ final class LSMTreeIndexCompactedStreamWriter {
     if (rootPage == null)
       throw new IllegalStateException("No compacted series is active for index '" + mainIndex.getName() + "'");
 
+    if (placement != null)
+      placeSeries();
+    else
+      writeSeries();
+
+    rootPage = null;
+    rootPageBuffer = null;
+    lastPage = null;
+    lastPageBuffer = null;
+    pageNumberInSeries = null;
+    lastPageMaxKey = null;
+    lastPageMaxConvertedKey = null;
+    newPagesInSeries = null;
+    firstKeysInSeries = null;
+  }
+
+  private void writeSeries() throws IOException, InterruptedException {
     if (lastPageMaxKey != null) {
       final List<MutablePage> overflow = compactedIndex.appendDuringCompactionConverted(keyValueContent, rootPage,
           rootPageBuffer, pageNumberInSeries, lastPageMaxKey, lastPageMaxConvertedKey, ROOT_SENTINEL);
@@ -211,19 +274,67 @@ final class LSMTreeIndexCompactedStreamWriter {
     final List<MutablePage> modifiedPages = new ArrayList<>(newPagesInSeries);
     modifiedPages.add(database.getPageManager().updatePageVersion(rootPage, true));
     database.getPageManager().writePages(modifiedPages, false);
+    throttle(1);
 
     // Only now that the series is on disk: a filter that reached the directory first would answer for pages a failed
     // write never produced.
     publishBloomFilter(seriesRootPage, seriesPages, seriesFingerprint);
+  }
 
-    rootPage = null;
-    rootPageBuffer = null;
-    lastPage = null;
-    lastPageBuffer = null;
-    pageNumberInSeries = null;
-    lastPageMaxKey = null;
-    lastPageMaxConvertedKey = null;
-    newPagesInSeries = null;
+  /**
+   * Deferred placement: reserves the page range of the finished series, rebuilds its root with the final page numbers and
+   * writes the root and the data pages there. The data pages are copied as they are - the header of a data page does
+   * not depend on its number - and the root entries take no more space than the provisional ones they were sized with.
+   */
+  private void placeSeries() throws IOException, InterruptedException {
+    final int seriesPages = newPagesInSeries.size();
+    final int seriesFingerprint = lastPage != null ? compactedIndex.seriesFingerprint(lastPage) : 0;
+
+    final int seriesRootPage = placement.reserve(1 + seriesPages);
+    compactedIndex.updatePageCount(seriesRootPage + 1 + seriesPages);
+
+    final MutablePage placedRoot = compactedIndex.newPage(seriesRootPage, 0);
+    compactedIndex.setSeriesLevel(placedRoot, level);
+    final TrackableBinary placedRootBuffer = placedRoot.getTrackable();
+    final AtomicInteger rootPageNumberInSeries = new AtomicInteger(0);
+
+    final List<MutablePage> modifiedPages = new ArrayList<>(seriesPages + 1);
+    for (int i = 0; i < seriesPages; ++i) {
+      final int dataPageNumber = seriesRootPage + 1 + i;
+      final Object[][] firstKey = firstKeysInSeries.get(i);
+      appendToPlacedRoot(placedRoot, placedRootBuffer, rootPageNumberInSeries, firstKey[0], firstKey[1],
+          new RID[] { new RID(0, dataPageNumber) });
+      modifiedPages.add(database.getPageManager()
+          .updatePageVersion(compactedIndex.placePage(newPagesInSeries.get(i), dataPageNumber), true));
+    }
+    if (lastPageMaxKey != null)
+      appendToPlacedRoot(placedRoot, placedRootBuffer, rootPageNumberInSeries, lastPageMaxKey, lastPageMaxConvertedKey,
+          ROOT_SENTINEL);
+
+    modifiedPages.add(database.getPageManager().updatePageVersion(placedRoot, true));
+    database.getPageManager().writePages(modifiedPages, false);
+    throttle(1);
+
+    publishBloomFilter(seriesRootPage, seriesPages, seriesFingerprint);
+  }
+
+  private void appendToPlacedRoot(final MutablePage placedRoot, final TrackableBinary placedRootBuffer,
+      final AtomicInteger rootPageNumberInSeries, final Object[] keys, final Object[] convertedKeys, final RID[] rids)
+      throws IOException, InterruptedException {
+    final List<MutablePage> overflow = compactedIndex.appendDuringCompactionConverted(keyValueContent, placedRoot,
+        placedRootBuffer, rootPageNumberInSeries, keys, convertedKeys, rids, true);
+    if (!overflow.isEmpty())
+      throw new UnsupportedOperationException("Root index page overflow");
+  }
+
+  /** The page number the next data page would get, or the largest one while the position of the series is not known. */
+  private int nextDataPageNumber() {
+    return placement != null ? Integer.MAX_VALUE : compactedIndex.getTotalPages();
+  }
+
+  private void throttle(final int pages) throws InterruptedException {
+    if (throttle != null)
+      throttle.acquire((long) pages * compactedIndex.getPageSize(), throttleBytesPerSecond);
   }
 
   void finishIfActive() throws IOException, InterruptedException {
@@ -235,6 +346,26 @@ final class LSMTreeIndexCompactedStreamWriter {
     return rootPage != null ? compactedIndex.getCount(rootPage) : 0;
   }
 
+  /**
+   * Hands out the page ranges of the series written concurrently into one compacted file. A range is reserved only when its
+   * series is complete, so the ranges are contiguous and the file has no holes whatever order the writers finish in.
+   */
+  static final class SeriesPlacement {
+    private final AtomicInteger nextPage;
+
+    SeriesPlacement(final int firstPage) {
+      this.nextPage = new AtomicInteger(firstPage);
+    }
+
+    int reserve(final int pages) {
+      return nextPage.getAndAdd(pages);
+    }
+
+    int getNextPage() {
+      return nextPage.get();
+    }
+  }
+
   /**
    * Records the key hash for the bloom filter of the series being written (#5517). Called for every key BEFORE it is
    * appended, so a key can never reach a page without reaching the filter - that asymmetry is the false negative the
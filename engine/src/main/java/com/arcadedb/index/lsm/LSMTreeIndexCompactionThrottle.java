@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.index.lsm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Paces the page I/O of the index compactions of one database to {@code arcadedb.indexCompactionIORate}, so a large merge
+ * running in the background does not take the disk away from the queries in the foreground. Shared by every compaction of
+ * the database, including the parallel ranges of a full compaction, so the configured rate is a budget for all of them
+ * together rather than per thread.
+ * <p>
+ * The limiter is a virtual clock: every acquired byte moves it forward by its cost at the configured rate and the caller
+ * sleeps until the clock catches up with the wall time. The clock never lags the wall time by more than one second, which
+ * is the burst a compaction may spend at full speed after being idle. With the rate at 0 nothing is ever paced and
+ * {@link #acquire(long, long)} returns without touching any shared state.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public final class LSMTreeIndexCompactionThrottle {
+  private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final LongAdder throttledNanos = new LongAdder();
+  private       long      clock        = Long.MIN_VALUE;
+
+  /**
+   * Charges {@code bytes} of compaction I/O and blocks until the configured rate allows them.
+   *
+   * @param bytesPerSecond the rate to respect, 0 or less for unlimited
+   */
+  public void acquire(final long bytes, final long bytesPerSecond) throws InterruptedException {
+    if (bytesPerSecond <= 0 || bytes <= 0)
+      return;
+
+    final long cost = (long) (bytes * (1_000_000_000D / bytesPerSecond));
+
+    final long now = System.nanoTime();
+    final long wait;
+    synchronized (this) {
+      if (clock == Long.MIN_VALUE || clock < now - BURST_NANOS)
+        clock = now - BURST_NANOS;
+      clock += cost;
+      wait = clock - now;
+    }
+
+    if (wait > 0) {
+      // SLEEP OUTSIDE THE LOCK: THE OTHER COMPACTIONS QUEUE THEIR OWN COST BEHIND THIS ONE MEANWHILE
+      throttledNanos.add(wait);
+      TimeUnit.NANOSECONDS.sleep(wait);
+    }
+  }
+
+  /** Total time compactions were held back to respect the rate, in milliseconds. */
+  public long getThrottledMs() {
+    return TimeUnit.NANOSECONDS.toMillis(throttledNanos.sum());
+  }
+
+  /** The configured rate in bytes per second, 0 for unlimited. */
+  static long toBytesPerSecond(final long megabytesPerSecond) {
+    return megabytesPerSecond > 0 ? megabytesPerSecond * 1024 * 1024 : 0;
+  }
+}
@@ -19,10 +19,13 @@
 package com.arcadedb.index.lsm;
 
 import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.DatabaseContext;
 import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.LocalDatabase;
 import com.arcadedb.database.RID;
 import com.arcadedb.engine.ImmutablePage;
 import com.arcadedb.engine.PageId;
+import com.arcadedb.index.IndexException;
 import com.arcadedb.log.LogManager;
 import com.arcadedb.schema.LocalSchema;
 import com.arcadedb.serializer.BinaryComparator;
@@ -31,12 +34,34 @@ import com.arcadedb.utility.FileUtils;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 public class LSMTreeIndexCompactor {
-  private static final ThreadLocal<CompactionTestHook> COMPACTION_TEST_HOOK = new ThreadLocal<>();
+  private static final ThreadLocal<CompactionTestHook> COMPACTION_TEST_HOOK       = new ThreadLocal<>();
+  private static final ThreadLocal<Integer>            MAX_DATA_PAGES_PER_SERIES = new ThreadLocal<>();
 
-  private boolean debug = false;
+  /**
+   * A key range of a parallel full compaction must cover at least this many series worth of input pages: below it the
+   * threads cost more than they save and the base ends up in needlessly small series.
+   */
+  private static final int MIN_SERIES_PER_RANGE = 4;
+
+  private final int                            maxDataPagesPerSeries;
+  private       boolean                        debug = false;
+  private       LSMTreeIndexCompactionThrottle throttle;
+  private       long                           ioBytesPerSecond;
+
+  public LSMTreeIndexCompactor() {
+    final Integer override = MAX_DATA_PAGES_PER_SERIES.get();
+    this.maxDataPagesPerSeries = override != null ? override : LSMTreeIndexCompactedStreamWriter.DEFAULT_MAX_DATA_PAGES_PER_SERIES;
+  }
 
   static void setCompactionTestHook(final CompactionTestHook hook) {
     if (hook == null)
@@ -45,6 +70,14 @@ public class LSMTreeIndexCompactor {
       COMPACTION_TEST_HOOK.set(hook);
   }
 
+  /** Caps the data pages of the series written by the compactors created on this thread, null to restore the default. */
+  static void setMaxDataPagesPerSeries(final Integer pages) {
+    if (pages == null)
+      MAX_DATA_PAGES_PER_SERIES.remove();
+    else
+      MAX_DATA_PAGES_PER_SERIES.set(pages);
+  }
+
   public LSMTreeIndexCompactor setDebug(final boolean debug) {
     this.debug = debug;
     return this;
@@ -65,6 +98,11 @@ public class LSMTreeIndexCompactor {
 
     final long startTime = System.currentTimeMillis();
 
+    if (database.getEmbedded() instanceof LocalDatabase localDatabase)
+      throttle = localDatabase.indexCompactionThrottle;
+    ioBytesPerSecond = LSMTreeIndexCompactionThrottle.toBytesPerSecond(
+        database.getConfiguration().getValueAsLong(GlobalConfiguration.INDEX_COMPACTION_IO_RATE));
+
     // reclaim compacted files retired by previous full compactions once their readers are gone
     mainIndex.dropRetiredCompactedIndexes();
 
@@ -124,9 +162,36 @@ public class LSMTreeIndexCompactor {
     }
   }
 
+  /**
+   * A full compaction rewrites the whole base (level 2) together with the incremental series appended after it (level 1).
+   * It is due once level 1 holds the configured number of series AND is large enough, compared to the base, for the
+   * rewrite to pay off: {@code level1Pages * ratio >= level2Pages}. The series count alone would rewrite a large base for
+   * every few small rounds - and since a full compaction of a large index writes several series itself, counting the base
+   * too would make every round after the first full one a full one. The deferral is bounded: at {@code threshold * ratio}
+   * incremental series the compaction runs anyway, as every lookup pays for each of them.
+   */
   private static boolean isFullCompactionDue(final DatabaseInternal database, final LSMTreeIndexCompacted compactedIndex) {
     final int threshold = database.getConfiguration().getValueAsInteger(GlobalConfiguration.INDEX_COMPACTION_FULL_SERIES);
-    return threshold > 0 && compactedIndex.getSeriesCount() >= threshold;
+    if (threshold <= 0)
+      return false;
+
+    long level1Series = 0;
+    long level1Pages = 0;
+    long level2Pages = 0;
+    for (final LSMTreeIndexCompacted.Series series : compactedIndex.getSeries()) {
+      if (series.level() == 2)
+        level2Pages += series.dataPages();
+      else {
+        ++level1Series;
+        level1Pages += series.dataPages();
+      }
+    }
+
+    if (level1Series < threshold)
+      return false;
+
+    final int ratio = database.getConfiguration().getValueAsInteger(GlobalConfiguration.INDEX_COMPACTION_LEVEL_RATIO);
+    return ratio <= 1 || level1Pages * ratio >= level2Pages || level1Series >= (long) threshold * ratio;
   }
 
   /**
@@ -171,7 +236,8 @@ public class LSMTreeIndexCompactor {
       }
     }
 
-    final int seriesCount = oldCompacted.getSeriesCount();
+    final List<LSMTreeIndexCompacted.Series> series = oldCompacted.getSeries();
+    final int seriesCount = series.size();
     final long ramNeeded = (seriesCount + lastImmutablePage + 1L) * pageSize;
     if (ramNeeded > indexCompactionRAM) {
       LogManager.instance().log(mainIndex, Level.INFO,
@@ -181,10 +247,138 @@ public class LSMTreeIndexCompactor {
       return null;
     }
 
+    long inputPages = lastImmutablePage + 1L;
+    for (final LSMTreeIndexCompacted.Series s : series)
+      inputPages += s.dataPages();
+
+    // KEY RANGES: THE BOUNDARIES ARE QUANTILES OF THE FIRST KEYS OF THE INPUT SERIES' DATA PAGES, SO EVERY RANGE READS
+    // ABOUT THE SAME SHARE OF THE BASE
+    final int[] rangeSeriesPages = new int[1];
+    final int plannedRanges = planRanges(database, inputPages, ramNeeded, indexCompactionRAM, pageSize, rangeSeriesPages);
+    List<List<Object[]>> seriesFirstKeys = null;
+    Object[][] boundaries = new Object[0][];
+    if (plannedRanges > 1) {
+      seriesFirstKeys = new ArrayList<>(seriesCount);
+      for (final LSMTreeIndexCompacted.Series s : series)
+        seriesFirstKeys.add(oldCompacted.getSeriesFirstKeys(s));
+      boundaries = rangeBoundaries(mutableIndex, seriesFirstKeys, plannedRanges);
+    }
+    final int ranges = boundaries.length + 1;
+
     LogManager.instance().log(mainIndex, Level.INFO,
-        "Full compaction of index '%s' (series=%d mutablePagesToCompact=%d threadId=%d)...", null, mainIndex.getName(),
-        seriesCount, lastImmutablePage + 1, Thread.currentThread().threadId());
+        "Full compaction of index '%s' (series=%d mutablePagesToCompact=%d keyRanges=%d threadId=%d)...", null,
+        mainIndex.getName(), seriesCount, lastImmutablePage + 1, ranges, Thread.currentThread().threadId());
+
+    final LSMTreeIndexCompacted newCompacted = mutableIndex.createNewForCompaction();
+    database.getSchema().getEmbedded().registerFile(newCompacted);
 
+    final MergeTotals totals;
+    try {
+      if (ranges == 1)
+        totals = mergeSerial(mainIndex, mutableIndex, oldCompacted, newCompacted, lastImmutablePage);
+      else
+        totals = mergeRanges(mainIndex, mutableIndex, oldCompacted, newCompacted, series, seriesFirstKeys, lastImmutablePage,
+            boundaries, rangeSeriesPages[0]);
+
+      final CompactionTestHook testHook = COMPACTION_TEST_HOOK.get();
+      if (testHook != null)
+        testHook.afterSeriesWritten(newCompacted);
+
+      mainIndex.splitIndex(lastImmutablePage + 1, newCompacted);
+
+      // Register the compacted-file migration so a transaction that resolved the OLD compacted file id
+      // before the swap converges transparently at commit: lockFilesInOrder re-resolves a locked-but-missing
+      // file through this mapping instead of failing with a ConcurrentModificationException (the same
+      // mechanism splitIndex uses for the mutable file). splitIndex just saved the schema, so the in-memory
+      // mapping suffices here.
+      ((LocalSchema) database.getSchema()).setMigratedFileId(oldCompacted.getFileId(), newCompacted.getFileId(), false);
+
+    } catch (final Throwable e) {
+      // mirror the incremental failure handling (#4946): drain in-flight flushes, then drop the
+      // aborted new file entirely so nothing of the failed merge survives
+      database.getPageManager().waitAllPagesOfDatabaseAreFlushed(database);
+      try {
+        final LSMTreeIndexBloomFilter bloomFilter = newCompacted.getBloomFilter();
+        if (bloomFilter != null)
+          bloomFilter.dropQuietly();
+        database.getSchema().getEmbedded().removeFile(newCompacted.getFileId());
+        database.getFileManager().dropFile(newCompacted.getFileId());
+      } catch (final Throwable cleanupError) {
+        e.addSuppressed(cleanupError);
+      }
+      throw e;
+    }
+
+    // the swap is published: no new cursor can reach the old file, but live ones may still read it
+    // lazily - defer the physical drop until they are gone
+    mainIndex.retireCompactedIndex(oldCompacted);
+
+    final long elapsed = System.currentTimeMillis() - startTime;
+    mainIndex.addCompaction(2, elapsed, ranges);
+
+    LogManager.instance().log(mainIndex, Level.INFO,
+        "Index '%s' fully compacted in %dms (keys=%d values=%d droppedKeys=%d droppedValues=%d mergedSeries=%d keyRanges=%d newFile=%s(%d) threadId=%d)".formatted(
+            mainIndex.getName(), elapsed, totals.keys, totals.values, totals.droppedKeys, totals.droppedValues,
+            seriesCount, ranges, newCompacted.getName(), newCompacted.getFileId(), Thread.currentThread().threadId()));
+
+    return true;
+  }
+
+  /**
+   * How many key ranges a full compaction is split into, within {@code arcadedb.indexCompactionParallelism}. Every range
+   * opens a cursor on every input (one page each, {@code ramNeeded}) and builds its series in RAM before placing them, so
+   * the series a range writes are capped to what its share of the RAM budget holds. A range must also cover at least
+   * {@link #MIN_SERIES_PER_RANGE} of those series worth of input pages.
+   *
+   * @param rangeSeriesPages receives the data pages per series the ranges write
+   */
+  private int planRanges(final DatabaseInternal database, final long inputPages, final long ramNeeded, final long ramBudget,
+      final int pageSize, final int[] rangeSeriesPages) {
+    int configured = database.getConfiguration().getValueAsInteger(GlobalConfiguration.INDEX_COMPACTION_PARALLELISM);
+    if (configured <= 0)
+      configured = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    for (int ranges = configured; ranges > 1; --ranges) {
+      final long seriesPages = Math.min(maxDataPagesPerSeries, (ramBudget / ranges - ramNeeded) / pageSize - 1);
+      if (seriesPages >= 1 && inputPages / ranges >= MIN_SERIES_PER_RANGE * seriesPages) {
+        rangeSeriesPages[0] = (int) seriesPages;
+        return ranges;
+      }
+    }
+    return 1;
+  }
+
+  /**
+   * Up to {@code ranges - 1} ascending, distinct boundaries: the quantiles of the first keys of every data page of the
+   * input series. Range {@code i} holds the keys in {@code [boundaries[i-1], boundaries[i])}. Fewer boundaries come back
+   * when the keys are too few or too repetitive to split that finely.
+   */
+  private static Object[][] rangeBoundaries(final LSMTreeIndexMutable mutableIndex, final List<List<Object[]>> seriesFirstKeys,
+      final int ranges) {
+    final BinaryComparator comparator = mutableIndex.getDatabase().getSerializer().getComparator();
+    final byte[] keyTypes = mutableIndex.getBinaryKeyTypes();
+
+    final List<Object[]> samples = new ArrayList<>();
+    for (final List<Object[]> keys : seriesFirstKeys)
+      samples.addAll(keys);
+    samples.sort((a, b) -> LSMTreeIndexMutable.compareKeys(comparator, keyTypes, a, b));
+
+    final List<Object[]> boundaries = new ArrayList<>(ranges - 1);
+    for (int i = 1; i < ranges && !samples.isEmpty(); ++i) {
+      final Object[] candidate = samples.get((int) ((long) samples.size() * i / ranges));
+      // THE FIRST RANGE MUST NOT BE EMPTY BY CONSTRUCTION AND THE BOUNDARIES MUST STRICTLY GROW
+      if (LSMTreeIndexMutable.compareKeys(comparator, keyTypes, candidate, samples.getFirst()) <= 0)
+        continue;
+      if (!boundaries.isEmpty() && LSMTreeIndexMutable.compareKeys(comparator, keyTypes, candidate, boundaries.getLast()) <= 0)
+        continue;
+      boundaries.add(candidate);
+    }
+    return boundaries.toArray(new Object[0][]);
+  }
+
+  private MergeTotals mergeSerial(final LSMTreeIndex mainIndex, final LSMTreeIndexMutable mutableIndex,
+      final LSMTreeIndexCompacted oldCompacted, final LSMTreeIndexCompacted newCompacted, final int lastImmutablePage)
+      throws IOException, InterruptedException {
     // INPUT CURSORS ORDERED OLDEST -> NEWEST: the compacted series first (newIterators returns them newest
     // first, so reverse), then the mutable immutable pages (page 0 is the oldest). The per-key merge below
     // consumes contributors in array order and moves duplicates to the end, so the LAST occurrence of a RID
@@ -192,46 +386,210 @@ public class LSMTreeIndexCompactor {
     final List<LSMTreeIndexUnderlyingCompactedSeriesCursor> seriesCursors = oldCompacted.newIterators(true, null, null);
     Collections.reverse(seriesCursors);
 
-    final int totalCursors = seriesCursors.size() + lastImmutablePage + 1;
-    final LSMTreeIndexUnderlyingAbstractCursor[] iterators = new LSMTreeIndexUnderlyingAbstractCursor[totalCursors];
-    for (int i = 0; i < seriesCursors.size(); ++i)
-      iterators[i] = seriesCursors.get(i);
-    for (int i = 0; i <= lastImmutablePage; ++i)
-      iterators[seriesCursors.size() + i] = mutableIndex.newPageIterator(i, -1, true);
+    final LSMTreeIndexUnderlyingAbstractCursor[] iterators =
+        new LSMTreeIndexUnderlyingAbstractCursor[seriesCursors.size() + lastImmutablePage + 1];
+    try {
+      for (int i = 0; i < seriesCursors.size(); ++i)
+        iterators[i] = seriesCursors.get(i);
+      for (int i = 0; i <= lastImmutablePage; ++i)
+        iterators[seriesCursors.size() + i] = mutableIndex.newPageIterator(i, -1, true);
+      throttle(lastImmutablePage + 1L, mutableIndex.getPageSize());
+    } catch (final Throwable e) {
+      closeAll(Arrays.asList(iterators));
+      throw e;
+    }
+
+    final LSMTreeIndexCompactedStreamWriter streamWriter = newStreamWriter(mainIndex, newCompacted, null);
+    streamWriter.startSeries();
+    final MergeTotals totals = mergeRange(mainIndex, mutableIndex, iterators, null, null, streamWriter,
+        maxDataPagesPerSeries);
+    streamWriter.finishSeries();
+    return totals;
+  }
+
+  /**
+   * Merges the key ranges delimited by {@code boundaries} in parallel, one thread per range. Ranges are disjoint and each
+   * one resolves the whole history of its keys, so they need nothing from each other: every range writes its own series,
+   * placed in the new file as they complete. The file is one chain of series whatever order the ranges finish in, and
+   * the readers already merge series by key.
+   * <p>
+   * The first failing range fails the compaction: the others are interrupted and the caller drops the new file.
+   */
+  private MergeTotals mergeRanges(final LSMTreeIndex mainIndex, final LSMTreeIndexMutable mutableIndex,
+      final LSMTreeIndexCompacted oldCompacted, final LSMTreeIndexCompacted newCompacted,
+      final List<LSMTreeIndexCompacted.Series> series, final List<List<Object[]>> seriesFirstKeys, final int lastImmutablePage,
+      final Object[][] boundaries, final int rangeSeriesPages) throws IOException, InterruptedException {
+    final DatabaseInternal database = mutableIndex.getDatabase();
+    final int ranges = boundaries.length + 1;
+    final LSMTreeIndexCompactedStreamWriter.SeriesPlacement placement =
+        new LSMTreeIndexCompactedStreamWriter.SeriesPlacement(newCompacted.getTotalPages());
+
+    final AtomicInteger threadCounter = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(ranges, task -> {
+      final Thread thread = new Thread(task, "arcadedb-index-compaction-" + threadCounter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    final CompletionService<MergeTotals> completion = new ExecutorCompletionService<>(executor);
+
+    try {
+      for (int r = 0; r < ranges; ++r) {
+        final Object[] lowerBound = r == 0 ? null : boundaries[r - 1];
+        final Object[] upperBound = r == ranges - 1 ? null : boundaries[r];
+        completion.submit(() -> {
+          DatabaseContext.INSTANCE.init(database);
+          try {
+            final LSMTreeIndexUnderlyingAbstractCursor[] iterators = openRangeCursors(mutableIndex, oldCompacted, series,
+                seriesFirstKeys, lastImmutablePage, lowerBound, upperBound);
+            final LSMTreeIndexCompactedStreamWriter streamWriter = newStreamWriter(mainIndex, newCompacted, placement);
+            final MergeTotals totals = mergeRange(mainIndex, mutableIndex, iterators, lowerBound, upperBound, streamWriter,
+                rangeSeriesPages);
+            streamWriter.finishIfActive();
+            return totals;
+          } finally {
+            DatabaseContext.INSTANCE.removeContext(database.getDatabasePath());
+          }
+        });
+      }
+
+      final MergeTotals totals = new MergeTotals();
+      for (int r = 0; r < ranges; ++r)
+        totals.add(completion.take().get());
+
+      if (placement.getNextPage() == 0) {
+        // EVERY KEY WAS DEAD: WRITE THE EMPTY SERIES A SERIAL MERGE WOULD HAVE WRITTEN, PAGE 0 CARRIES THE FILE HEADER
+        final LSMTreeIndexCompactedStreamWriter streamWriter = newStreamWriter(mainIndex, newCompacted, null);
+        streamWriter.startSeries();
+        streamWriter.finishSeries();
+      }
+      return totals;
+
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException ioException)
+        throw ioException;
+      if (cause instanceof InterruptedException interruptedException)
+        throw interruptedException;
+      if (cause instanceof RuntimeException runtimeException)
+        throw runtimeException;
+      if (cause instanceof Error error)
+        throw error;
+      throw new IndexException("Error on full compaction of index '" + mainIndex.getName() + "'", cause);
+    } finally {
+      // NO RANGE MAY STILL BE WRITING WHEN THE CALLER PUBLISHES OR DROPS THE NEW FILE
+      executor.shutdownNow();
+      while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+        LogManager.instance().log(mainIndex, Level.FINE, "Waiting for the key ranges of the full compaction of index '%s' to stop",
+            null, mainIndex.getName());
+    }
+  }
 
+  /**
+   * The cursors of one key range, ordered oldest to newest like the serial merge. A series cursor starts on the last data
+   * page whose first key is below the range, which is the first page that can hold a key of it; series entirely above the
+   * range are not opened.
+   */
+  private LSMTreeIndexUnderlyingAbstractCursor[] openRangeCursors(final LSMTreeIndexMutable mutableIndex,
+      final LSMTreeIndexCompacted oldCompacted, final List<LSMTreeIndexCompacted.Series> series,
+      final List<List<Object[]>> seriesFirstKeys, final int lastImmutablePage, final Object[] lowerBound,
+      final Object[] upperBound) throws IOException, InterruptedException {
+    final List<LSMTreeIndexUnderlyingAbstractCursor> cursors = new ArrayList<>(series.size() + lastImmutablePage + 1);
+    try {
+      openRangeCursors(mutableIndex, oldCompacted, series, seriesFirstKeys, lastImmutablePage, lowerBound, upperBound,
+          cursors);
+    } catch (final Throwable e) {
+      closeAll(cursors);
+      throw e;
+    }
+    return cursors.toArray(new LSMTreeIndexUnderlyingAbstractCursor[0]);
+  }
+
+  private void openRangeCursors(final LSMTreeIndexMutable mutableIndex, final LSMTreeIndexCompacted oldCompacted,
+      final List<LSMTreeIndexCompacted.Series> series, final List<List<Object[]>> seriesFirstKeys,
+      final int lastImmutablePage, final Object[] lowerBound, final Object[] upperBound,
+      final List<LSMTreeIndexUnderlyingAbstractCursor> cursors) throws IOException, InterruptedException {
+    final BinaryComparator comparator = mutableIndex.getDatabase().getSerializer().getComparator();
     final byte[] keyTypes = mutableIndex.getBinaryKeyTypes();
-    final Object[][] keys = new Object[totalCursors][];
 
-    long totalKeys = 0;
-    long totalValues = 0;
-    long droppedKeys = 0;
-    long droppedValues = 0;
+    for (int s = 0; s < series.size(); ++s) {
+      final List<Object[]> firstKeys = seriesFirstKeys.get(s);
+      if (firstKeys.isEmpty())
+        continue;
+      if (upperBound != null && LSMTreeIndexMutable.compareKeys(comparator, keyTypes, firstKeys.getFirst(), upperBound) >= 0)
+        continue;
+
+      int firstPage = 0;
+      if (lowerBound != null)
+        for (int page = firstKeys.size() - 1; page > 0; --page)
+          if (LSMTreeIndexMutable.compareKeys(comparator, keyTypes, firstKeys.get(page), lowerBound) < 0) {
+            firstPage = page;
+            break;
+          }
 
-    final LSMTreeIndexCompacted newCompacted = mutableIndex.createNewForCompaction();
-    database.getSchema().getEmbedded().registerFile(newCompacted);
+      final LSMTreeIndexCompacted.Series current = series.get(s);
+      cursors.add(new LSMTreeIndexUnderlyingCompactedSeriesCursor(oldCompacted, current.rootPage() + 1 + firstPage,
+          current.rootPage() + current.dataPages(), oldCompacted.storageKeyTypes, true, -1));
+    }
+    for (int i = 0; i <= lastImmutablePage; ++i)
+      cursors.add(mutableIndex.newPageIterator(i, -1, true));
+    throttle(lastImmutablePage + 1L, mutableIndex.getPageSize());
+  }
+
+  private static void closeAll(final Collection<LSMTreeIndexUnderlyingAbstractCursor> cursors) {
+    for (final LSMTreeIndexUnderlyingAbstractCursor cursor : cursors)
+      if (cursor != null)
+        cursor.close();
+  }
+
+  private LSMTreeIndexCompactedStreamWriter newStreamWriter(final LSMTreeIndex mainIndex,
+      final LSMTreeIndexCompacted newCompacted, final LSMTreeIndexCompactedStreamWriter.SeriesPlacement placement) {
+    return new LSMTreeIndexCompactedStreamWriter(mainIndex, newCompacted, placement).setLevel(2)
+        .setThrottle(throttle, ioBytesPerSecond);
+  }
+
+  /**
+   * Merges the keys in {@code [lowerBound, upperBound)} of the given cursors (null bounds are open), resolving each key's
+   * FULL history and writing only its live values. Every cursor is closed on return.
+   */
+  private MergeTotals mergeRange(final LSMTreeIndex mainIndex, final LSMTreeIndexMutable mutableIndex,
+      final LSMTreeIndexUnderlyingAbstractCursor[] iterators, final Object[] lowerBound, final Object[] upperBound,
+      final LSMTreeIndexCompactedStreamWriter streamWriter, final int maxDataPagesPerSeries)
+      throws IOException, InterruptedException {
+    final BinaryComparator comparator = mutableIndex.getDatabase().getSerializer().getComparator();
+    final byte[] keyTypes = mutableIndex.getBinaryKeyTypes();
+    final int pageSize = mutableIndex.getPageSize();
+    final int totalCursors = iterators.length;
+    final Object[][] keys = new Object[totalCursors][];
+    final PageId[] currentPages = new PageId[totalCursors];
+    final MergeTotals totals = new MergeTotals();
 
     try {
       for (int p = 0; p < totalCursors; ++p) {
-        if (iterators[p].hasNext()) {
+        // POSITION THE CURSOR ON ITS FIRST KEY OF THE RANGE
+        while (iterators[p].hasNext()) {
           iterators[p].next();
-          keys[p] = iterators[p].getKeys();
-        } else {
+          final Object[] key = iterators[p].getKeys();
+          if (lowerBound == null || LSMTreeIndexMutable.compareKeys(comparator, keyTypes, key, lowerBound) >= 0) {
+            keys[p] = key;
+            break;
+          }
+        }
+
+        if (keys[p] == null
+            || upperBound != null && LSMTreeIndexMutable.compareKeys(comparator, keyTypes, keys[p], upperBound) >= 0) {
           iterators[p].close();
           iterators[p] = null;
           keys[p] = null;
-        }
+        } else
+          currentPages[p] = iterators[p].getCurrentPageId();
       }
 
-      final BinaryComparator comparator = database.getSerializer().getComparator();
-      final LSMTreeIndexCompactedStreamWriter streamWriter = new LSMTreeIndexCompactedStreamWriter(mainIndex, newCompacted);
-
-      streamWriter.startSeries();
-
       final Set<RID> rids = new LinkedHashSet<>();
       final Set<RID> live = new LinkedHashSet<>();
 
-      for (boolean moreItems = true; moreItems; ) {
-        moreItems = false;
+      for (long mergedKeys = 1; ; ++mergedKeys) {
+        if ((mergedKeys & 1023) == 0 && Thread.currentThread().isInterrupted())
+          throw new InterruptedException("Full compaction of index '" + mainIndex.getName() + "' interrupted");
 
         Object[] minorKey = null;
         final List<Integer> minorKeyIndexes = new ArrayList<>();
@@ -239,7 +597,6 @@ public class LSMTreeIndexCompactor {
         for (int p = 0; p < totalCursors; ++p) {
           if (keys[p] == null)
             continue;
-          moreItems = true;
           if (minorKey == null) {
             minorKey = keys[p];
             minorKeyIndexes.add(p);
@@ -255,7 +612,7 @@ public class LSMTreeIndexCompactor {
           }
         }
 
-        if (!moreItems)
+        if (minorKey == null)
           break;
 
         // MERGE THE KEY'S FULL HISTORY, OLDEST TO NEWEST (same move-to-end discipline as the
@@ -276,9 +633,21 @@ public class LSMTreeIndexCompactor {
 
             if (iter.hasNext()) {
               iter.next();
+              if (iter.getCurrentPageId() != currentPages[idx]) {
+                // A SERIES CURSOR MOVED TO ITS NEXT PAGE
+                currentPages[idx] = iter.getCurrentPageId();
+                throttle(1, pageSize);
+              }
               keys[idx] = iter.getKeys();
-              if (LSMTreeIndexMutable.compareKeys(comparator, keyTypes, keys[idx], minorKey) != 0)
+              if (LSMTreeIndexMutable.compareKeys(comparator, keyTypes, keys[idx], minorKey) != 0) {
+                if (upperBound != null && LSMTreeIndexMutable.compareKeys(comparator, keyTypes, keys[idx], upperBound) >= 0) {
+                  // THE REST BELONGS TO THE NEXT RANGE
+                  iterators[idx].close();
+                  iterators[idx] = null;
+                  keys[idx] = null;
+                }
                 break;
+              }
             } else {
               iterators[idx].close();
               iterators[idx] = null;
@@ -305,62 +674,25 @@ public class LSMTreeIndexCompactor {
         }
 
         if (live.isEmpty()) {
-          ++droppedKeys;
-          droppedValues += rids.size();
+          ++totals.droppedKeys;
+          totals.droppedValues += rids.size();
         } else {
-          streamWriter.appendBounded(minorKey, live.toArray(new RID[0]),
-              LSMTreeIndexCompactedStreamWriter.DEFAULT_MAX_DATA_PAGES_PER_SERIES);
-          ++totalKeys;
-          totalValues += live.size();
-          droppedValues += rids.size() - live.size();
+          streamWriter.appendBounded(minorKey, live.toArray(new RID[0]), maxDataPagesPerSeries);
+          ++totals.keys;
+          totals.values += live.size();
+          totals.droppedValues += rids.size() - live.size();
         }
       }
+      return totals;
 
-      streamWriter.finishSeries();
-
-      final CompactionTestHook testHook = COMPACTION_TEST_HOOK.get();
-      if (testHook != null)
-        testHook.afterSeriesWritten(newCompacted);
-
-      mainIndex.splitIndex(lastImmutablePage + 1, newCompacted);
-
-      // Register the compacted-file migration so a transaction that resolved the OLD compacted file id
-      // before the swap converges transparently at commit: lockFilesInOrder re-resolves a locked-but-missing
-      // file through this mapping instead of failing with a ConcurrentModificationException (the same
-      // mechanism splitIndex uses for the mutable file). splitIndex just saved the schema, so the in-memory
-      // mapping suffices here.
-      ((LocalSchema) database.getSchema()).setMigratedFileId(oldCompacted.getFileId(), newCompacted.getFileId(), false);
-
-    } catch (final Throwable e) {
-      for (final LSMTreeIndexUnderlyingAbstractCursor iterator : iterators)
-        if (iterator != null)
-          iterator.close();
-
-      // mirror the incremental failure handling (#4946): drain in-flight flushes, then drop the
-      // aborted new file entirely so nothing of the failed merge survives
-      database.getPageManager().waitAllPagesOfDatabaseAreFlushed(database);
-      try {
-        final LSMTreeIndexBloomFilter bloomFilter = newCompacted.getBloomFilter();
-        if (bloomFilter != null)
-          bloomFilter.dropQuietly();
-        database.getSchema().getEmbedded().removeFile(newCompacted.getFileId());
-        database.getFileManager().dropFile(newCompacted.getFileId());
-      } catch (final Throwable cleanupError) {
-        e.addSuppressed(cleanupError);
-      }
-      throw e;
+    } finally {
+      closeAll(Arrays.asList(iterators));
     }
+  }
 
-    // the swap is published: no new cursor can reach the old file, but live ones may still read it
-    // lazily - defer the physical drop until they are gone
-    mainIndex.retireCompactedIndex(oldCompacted);
-
-    LogManager.instance().log(mainIndex, Level.INFO,
-        "Index '%s' fully compacted in %dms (keys=%d values=%d droppedKeys=%d droppedValues=%d mergedSeries=%d newFile=%s(%d) threadId=%d)".formatted(
-            mainIndex.getName(), System.currentTimeMillis() - startTime, totalKeys, totalValues, droppedKeys, droppedValues,
-            seriesCount, newCompacted.getName(), newCompacted.getFileId(), Thread.currentThread().threadId()));
-
-    return true;
+  private void throttle(final long pages, final int pageSize) throws InterruptedException {
+    if (throttle != null)
+      throttle.acquire(pages * pageSize, ioBytesPerSecond);
   }
 
   private boolean compactInternal(final LSMTreeIndex mainIndex, final LSMTreeIndexMutable mutableIndex,
@@ -387,7 +719,8 @@ public class LSMTreeIndexCompactor {
     long totalMergedKeys = 0;
     long totalMergedValues = 0;
 
-    final LSMTreeIndexCompactedStreamWriter streamWriter = new LSMTreeIndexCompactedStreamWriter(mainIndex, compactedIndex);
+    final LSMTreeIndexCompactedStreamWriter streamWriter = new LSMTreeIndexCompactedStreamWriter(mainIndex, compactedIndex)
+        .setThrottle(throttle, ioBytesPerSecond);
 
     int pagesToCompact;
     int compactedPages = 0;
@@ -435,6 +768,7 @@ public class LSMTreeIndexCompactor {
       final LSMTreeIndexUnderlyingPageCursor[] iterators = new LSMTreeIndexUnderlyingPageCursor[pagesToCompact];
       for (int i = 0; i < pagesToCompact; ++i)
         iterators[i] = mutableIndex.newPageIterator(pageIndex + i, -1, true);
+      throttle(pagesToCompact, mutableIndex.getPageSize());
 
       final Object[][] keys = new Object[pagesToCompact][keyTypes.length];
 
@@ -541,8 +875,7 @@ public class LSMTreeIndexCompactor {
           final RID[] ridsArray = new RID[rids.size()];
           rids.toArray(ridsArray);
 
-          streamWriter.appendBounded(minorKey, ridsArray,
-              LSMTreeIndexCompactedStreamWriter.DEFAULT_MAX_DATA_PAGES_PER_SERIES);
+          streamWriter.appendBounded(minorKey, ridsArray, maxDataPagesPerSeries);
 
           ++totalKeys;
           totalValues += rids.size();
@@ -576,6 +909,7 @@ public class LSMTreeIndexCompactor {
     final int oldMutableFileId = mutableIndex.getFileId();
 
     final LSMTreeIndexMutable newIndex = mainIndex.splitIndex(lastImmutablePage + 1, compactedIndex);
+    mainIndex.addCompaction(1, System.currentTimeMillis() - startTime, 1);
 
     LogManager.instance().log(mainIndex, Level.FINE,
         "Index '%s' compacted in %dms (keys=%d values=%d mutablePages=%d immutablePages=%d iterations=%d oldLevel0File=%s(%d) newLevel0File=%s(%d) newLevel1File=%s(%d) threadId=%d)".formatted(
@@ -593,6 +927,21 @@ public class LSMTreeIndexCompactor {
     return true;
   }
 
+  /** Outcome of a full merge, summed over its key ranges. */
+  private static final class MergeTotals {
+    private long keys;
+    private long values;
+    private long droppedKeys;
+    private long droppedValues;
+
+    private void add(final MergeTotals other) {
+      keys += other.keys;
+      values += other.values;
+      droppedKeys += other.droppedKeys;
+      droppedValues += other.droppedValues;
+    }
+  }
+
   @FunctionalInterface
   interface CompactionTestHook {
     void afterSeriesWritten(LSMTreeIndexCompacted compactedIndex) throws IOException;
@@ -0,0 +1,264 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.index.lsm;
+
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.Identifiable;
+import com.arcadedb.database.RID;
+import com.arcadedb.index.IndexException;
+import com.arcadedb.serializer.BinaryTypes;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Byte-comparable encoding of the keys of an LSM page, used from page format version 2 on
+ * ({@link LSMTreeIndexAbstract#NORMALIZED_KEYS_VERSION}). Two encoded keys compare, byte by byte as unsigned values,
+ * exactly as the index comparator compares the keys they come from, so the binary search in a page needs neither to
+ * deserialize the stored key nor to dispatch on its type, and an entry can be stored as the number of leading bytes it
+ * shares with the page prefix followed by the rest.
+ * <p>
+ * Each component is a presence byte (0 = null, sorting first as in the version 1 pages, 1 = present) followed by:
+ * <ul>
+ * <li>integers: big-endian, fixed width, with the sign bit flipped</li>
+ * <li>booleans: one byte, 0 or 1</li>
+ * <li>strings: the UTF-8 bytes, 0x00 escaped as 0x00 0xFF and terminated by 0x00 0x00, so a string sorts before the
+ * strings it is a prefix of and the next component never leaks into the comparison</li>
+ * <li>links: the bucket id and the position, as integers for the fixed-width link type and, for the compressed one,
+ * as a header byte holding the sign and the number of significant bytes followed by those bytes, so a small RID stays
+ * as narrow as its varint form while its bytes still sort in {@link RID#compareTo} order</li>
+ * </ul>
+ * Other key types have no encoding here: an index using any of them keeps the version 1 page format.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+final class LSMTreeIndexKeyEncoding {
+  private static final byte NULL_COMPONENT    = 0;
+  private static final byte PRESENT_COMPONENT = 1;
+  private static final byte ESCAPE            = 0;
+  private static final byte ESCAPED_ZERO      = (byte) 0xFF;
+  private static final int  VARIABLE_ZERO     = 9;
+
+  private LSMTreeIndexKeyEncoding() {
+  }
+
+  static boolean isSupported(final byte[] storageKeyTypes) {
+    for (final byte type : storageKeyTypes)
+      switch (type) {
+      case BinaryTypes.TYPE_STRING, BinaryTypes.TYPE_BYTE, BinaryTypes.TYPE_SHORT, BinaryTypes.TYPE_INT, BinaryTypes.TYPE_LONG,
+           BinaryTypes.TYPE_BOOLEAN, BinaryTypes.TYPE_COMPRESSED_RID, BinaryTypes.TYPE_RID -> {
+      }
+      default -> {
+        return false;
+      }
+      }
+    return true;
+  }
+
+  /**
+   * Encodes the first {@code keys.length} components: a partial key encodes to a prefix of the encoding of every full
+   * key it matches.
+   */
+  static byte[] encode(final Object[] keys, final byte[] storageKeyTypes) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(16 * keys.length);
+    for (int i = 0; i < keys.length; ++i) {
+      final Object value = keys[i];
+      if (value == null) {
+        out.write(NULL_COMPONENT);
+        continue;
+      }
+
+      out.write(PRESENT_COMPONENT);
+      switch (storageKeyTypes[i]) {
+      case BinaryTypes.TYPE_STRING -> {
+        final byte[] bytes = value instanceof byte[] b ? b : value.toString().getBytes(DatabaseFactory.getDefaultCharset());
+        for (final byte b : bytes) {
+          out.write(b);
+          if (b == ESCAPE)
+            out.write(ESCAPED_ZERO);
+        }
+        out.write(ESCAPE);
+        out.write(ESCAPE);
+      }
+      case BinaryTypes.TYPE_BYTE -> writeSigned(out, toLong(value), 1);
+      case BinaryTypes.TYPE_SHORT -> writeSigned(out, toLong(value), 2);
+      case BinaryTypes.TYPE_INT -> writeSigned(out, toLong(value), 4);
+      case BinaryTypes.TYPE_LONG -> writeSigned(out, toLong(value), 8);
+      case BinaryTypes.TYPE_BOOLEAN -> out.write((Boolean) value ? 1 : 0);
+      case BinaryTypes.TYPE_RID -> {
+        final RID rid = ((Identifiable) value).getIdentity();
+        writeSigned(out, rid.getBucketId(), 4);
+        writeSigned(out, rid.getPosition(), 8);
+      }
+      case BinaryTypes.TYPE_COMPRESSED_RID -> {
+        final RID rid = ((Identifiable) value).getIdentity();
+        writeVariable(out, rid.getBucketId());
+        writeVariable(out, rid.getPosition());
+      }
+      default -> throw new IndexException("Key type " + storageKeyTypes[i] + " has no byte-comparable encoding");
+      }
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Decodes a full key, returning the same Java types the binary serializer returns for the storage types.
+   */
+  static Object[] decode(final DatabaseInternal database, final byte[] bytes, final byte[] storageKeyTypes) {
+    final Object[] keys = new Object[storageKeyTypes.length];
+    int pos = 0;
+    for (int i = 0; i < storageKeyTypes.length; ++i) {
+      if (bytes[pos++] == NULL_COMPONENT)
+        continue;
+
+      switch (storageKeyTypes[i]) {
+      case BinaryTypes.TYPE_STRING -> {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+        while (true) {
+          final byte b = bytes[pos++];
+          if (b == ESCAPE) {
+            if (bytes[pos++] == ESCAPE)
+              break;
+            out.write(ESCAPE);
+          } else
+            out.write(b);
+        }
+        keys[i] = out.toString(DatabaseFactory.getDefaultCharset());
+      }
+      case BinaryTypes.TYPE_BYTE -> {
+        keys[i] = (byte) readSigned(bytes, pos, 1);
+        pos += 1;
+      }
+      case BinaryTypes.TYPE_SHORT -> {
+        keys[i] = (short) readSigned(bytes, pos, 2);
+        pos += 2;
+      }
+      case BinaryTypes.TYPE_INT -> {
+        keys[i] = (int) readSigned(bytes, pos, 4);
+        pos += 4;
+      }
+      case BinaryTypes.TYPE_LONG -> {
+        keys[i] = readSigned(bytes, pos, 8);
+        pos += 8;
+      }
+      case BinaryTypes.TYPE_BOOLEAN -> keys[i] = bytes[pos++] == 1;
+      case BinaryTypes.TYPE_RID -> {
+        final int bucketId = (int) readSigned(bytes, pos, 4);
+        final long position = readSigned(bytes, pos + 4, 8);
+        pos += 12;
+        keys[i] = RID.create(database, bucketId, position);
+      }
+      case BinaryTypes.TYPE_COMPRESSED_RID -> {
+        final int bucketId = (int) readVariable(bytes, pos);
+        pos += variableSize(bytes[pos]);
+        final long position = readVariable(bytes, pos);
+        pos += variableSize(bytes[pos]);
+        keys[i] = RID.create(database, bucketId, position);
+      }
+      default -> throw new IndexException("Key type " + storageKeyTypes[i] + " has no byte-comparable encoding");
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Compares {@code probe} against an encoded key, returning a negative number, zero or a positive number as the probe
+   * sorts before, equal or after it. A probe that is a prefix of the key (a partial key) is equal to it.
+   */
+  static int compare(final byte[] probe, final int probeFrom, final byte[] key, final int keyFrom, final int keyTo) {
+    final int probeTo = probe.length;
+    final int keyLength = keyTo - keyFrom;
+    final int probeLength = probeTo - probeFrom;
+    final int common = Math.min(probeLength, keyLength);
+    final int mismatch = Arrays.mismatch(probe, probeFrom, probeFrom + common, key, keyFrom, keyFrom + common);
+    if (mismatch > -1)
+      return Byte.toUnsignedInt(probe[probeFrom + mismatch]) - Byte.toUnsignedInt(key[keyFrom + mismatch]);
+    return probeLength <= keyLength ? 0 : 1;
+  }
+
+  static int commonPrefixLength(final byte[] a, final int aFrom, final int aTo, final byte[] b, final int bFrom, final int bTo) {
+    final int common = Math.min(aTo - aFrom, bTo - bFrom);
+    final int mismatch = Arrays.mismatch(a, aFrom, aFrom + common, b, bFrom, bFrom + common);
+    return mismatch > -1 ? mismatch : common;
+  }
+
+  private static long toLong(final Object value) {
+    if (value instanceof Number n)
+      return n.longValue();
+    if (value instanceof String string)
+      try {
+        return Long.parseLong(string);
+      } catch (final NumberFormatException e) {
+        // FALL THROUGH
+      }
+    throw new IndexException("Key component '" + value + "' is not a number");
+  }
+
+  private static void writeSigned(final ByteArrayOutputStream out, final long value, final int bytes) {
+    // FLIPPING THE SIGN BIT MAKES THE TWO'S COMPLEMENT ORDER MATCH THE UNSIGNED BYTE ORDER
+    final long flipped = value ^ (1L << (bytes * 8 - 1));
+    for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8)
+      out.write((int) (flipped >>> shift));
+  }
+
+  /**
+   * Writes a header byte, VARIABLE_ZERO plus the number of significant bytes for a non-negative value and minus it for a
+   * negative one, followed by those bytes big-endian: a longer positive value sorts after a shorter one, a longer
+   * negative value before, and values of the same length by their bytes.
+   */
+  private static void writeVariable(final ByteArrayOutputStream out, final long value) {
+    final int bytes = value >= 0 ? significantBytes(value) : significantBytes(~value);
+    out.write(value >= 0 ? VARIABLE_ZERO + bytes : VARIABLE_ZERO - 1 - bytes);
+    for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8)
+      out.write((int) (value >>> shift));
+  }
+
+  private static long readVariable(final byte[] bytes, final int pos) {
+    final int header = Byte.toUnsignedInt(bytes[pos]);
+    final boolean negative = header < VARIABLE_ZERO;
+    final int size = variableSize(bytes[pos]) - 1;
+    long value = negative ? -1L : 0L;
+    for (int i = 0; i < size; ++i)
+      value = (value << 8) | Byte.toUnsignedLong(bytes[pos + 1 + i]);
+    return value;
+  }
+
+  /**
+   * @return the bytes taken by a variable-length value, header included
+   */
+  private static int variableSize(final byte header) {
+    final int h = Byte.toUnsignedInt(header);
+    return 1 + (h >= VARIABLE_ZERO ? h - VARIABLE_ZERO : VARIABLE_ZERO - 1 - h);
+  }
+
+  private static int significantBytes(final long value) {
+    return (64 - Long.numberOfLeadingZeros(value) + 7) / 8;
+  }
+
+  private static long readSigned(final byte[] bytes, final int pos, final int size) {
+    long value = 0;
+    for (int i = 0; i < size; ++i)
+      value = (value << 8) | Byte.toUnsignedLong(bytes[pos + i]);
+    final int bits = size * 8;
+    value ^= 1L << (bits - 1);
+    // SIGN EXTENSION
+    return bits == 64 ? value : (value << (64 - bits)) >> (64 - bits);
+  }
+}
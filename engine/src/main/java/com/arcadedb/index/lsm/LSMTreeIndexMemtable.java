@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.index.lsm;
+
+import com.arcadedb.database.RID;
+import com.arcadedb.database.TransactionIndexContext;
+import com.arcadedb.engine.BasePage;
+import com.arcadedb.engine.PageId;
+import com.arcadedb.index.IndexCursorEntry;
+import com.arcadedb.serializer.BinaryTypes;
+import com.arcadedb.utility.RidHashSet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sorted in-memory copy of the SEALED pages of a {@link LSMTreeIndexMutable}, so a point lookup costs one skip-list probe
+ * plus a binary search of the few pages still being filled, instead of one binary search (and one key deserialization per
+ * probe) for every mutable page accumulated since the last compaction.
+ * <p>
+ * The pages stay the only durable copy: every put and remove is still written to the last page of the index within the
+ * transaction and reaches the WAL with it. What makes a page safe to copy is that only the LAST page of a mutable index is
+ * ever written, so every committed page before it is immutable until the compaction replaces the whole file (and this
+ * instance with it). {@link #catchUp()} copies those pages in order, from the committed image, and publishes how many it
+ * holds; a lookup reads the pages from that number on and asks the memtable for the rest.
+ * <p>
+ * The memtable is bounded by {@code arcadedb.indexMemtableMaxEntries}: once full it stops growing and the pages after it
+ * are read as before. It only serves full-key lookups on key types whose page encoding and declared type compare equal
+ * (integers, strings, booleans and links); partial keys, null keys and other types take the page path.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+final class LSMTreeIndexMemtable {
+  private final LSMTreeIndexMutable                     index;
+  private final int                                     maxEntries;
+  private final ConcurrentSkipListMap<Object[], Values> entries;
+  private final ReentrantLock                           absorbLock = new ReentrantLock();
+  private final AtomicLong                              lookups    = new AtomicLong();
+  private volatile int                                  absorbedPages;
+  private volatile boolean                              full;
+  private          int                                  totalValues;
+
+  /**
+   * The values of one key in page order, oldest first, with the page each one comes from. Replaced, never mutated, so a
+   * lookup always sees a consistent pair of arrays.
+   */
+  private record Values(RID[] rids, int[] pages) {
+    Values append(final Values other) {
+      final RID[] r = Arrays.copyOf(rids, rids.length + other.rids.length);
+      System.arraycopy(other.rids, 0, r, rids.length, other.rids.length);
+      final int[] p = Arrays.copyOf(pages, pages.length + other.pages.length);
+      System.arraycopy(other.pages, 0, p, pages.length, other.pages.length);
+      return new Values(r, p);
+    }
+
+    /**
+     * @return how many values come from pages before {@code pageLimit}: they are a prefix, values are appended in page
+     *     order
+     */
+    int countBefore(final int pageLimit) {
+      int n = pages.length;
+      while (n > 0 && pages[n - 1] >= pageLimit)
+        --n;
+      return n;
+    }
+  }
+
+  LSMTreeIndexMemtable(final LSMTreeIndexMutable index, final byte[] keyTypes, final int maxEntries) {
+    this.index = index;
+    this.maxEntries = maxEntries;
+    this.entries = new ConcurrentSkipListMap<>((a, b) -> LSMTreeIndexAbstract.compareKeys(index.comparator, keyTypes, a, b));
+  }
+
+  static boolean isSupported(final byte[] keyTypes) {
+    for (final byte type : keyTypes)
+      switch (type) {
+      case BinaryTypes.TYPE_STRING, BinaryTypes.TYPE_BYTE, BinaryTypes.TYPE_SHORT, BinaryTypes.TYPE_INT, BinaryTypes.TYPE_LONG,
+           BinaryTypes.TYPE_BOOLEAN, BinaryTypes.TYPE_COMPRESSED_RID, BinaryTypes.TYPE_RID -> {
+      }
+      default -> {
+        return false;
+      }
+      }
+    return true;
+  }
+
+  /**
+   * Copies the committed pages sealed since the last call. A thread that finds another one copying does not wait: it
+   * gets the number of pages published so far and reads the others itself.
+   *
+   * @return the number of pages, from page 0, the memtable answers for
+   */
+  int catchUp() throws IOException {
+    // THE LAST COMMITTED PAGE CAN STILL RECEIVE ENTRIES
+    final int sealed = index.getCommittedTotalPages() - 1;
+    if (absorbedPages >= sealed || full || !absorbLock.tryLock())
+      return absorbedPages;
+
+    try {
+      while (absorbedPages < sealed && !full)
+        if (absorb(absorbedPages))
+          absorbedPages = absorbedPages + 1;
+        else
+          break;
+      return absorbedPages;
+    } finally {
+      absorbLock.unlock();
+    }
+  }
+
+  /**
+   * Looks the key up in the pages before {@code pageLimit}, newest entry first, with the same semantics as a page by page
+   * walk: the values of a key are kept in the order the pages hold them. {@code typedKeys} are the keys in their declared
+   * type, {@code convertedKeys} the page probe form the caller shares its removed keys with.
+   *
+   * @return false if the limit was reached
+   */
+  boolean lookup(final Object[] originalKeys, final Object[] convertedKeys, final Object[] typedKeys, final int pageLimit,
+      final int limit, final Set<IndexCursorEntry> set, final Set<TransactionIndexContext.ComparableKey> removedKeys,
+      final RidHashSet deletedRIDs) {
+    lookups.incrementAndGet();
+    final Values values = entries.get(typedKeys);
+    if (values == null)
+      return true;
+
+    final int count = values.countBefore(pageLimit);
+    if (count == 0)
+      return true;
+
+    final List<RID> rids = Arrays.asList(values.rids()).subList(0, count);
+    return index.addValuesInResultset(rids, originalKeys, convertedKeys, limit, set, removedKeys, deletedRIDs);
+  }
+
+  int getAbsorbedPages() {
+    return absorbedPages;
+  }
+
+  long getLookups() {
+    return lookups.get();
+  }
+
+  int getKeys() {
+    return entries.size();
+  }
+
+  boolean isFull() {
+    return full;
+  }
+
+  private boolean absorb(final int pageNum) throws IOException {
+    final BasePage page = index.getDatabase().getPageManager()
+        .getImmutablePage(new PageId(index.getDatabase(), index.getFileId(), pageNum), index.getPageSize(), false, false);
+    if (page == null)
+      return false;
+
+    final int count = index.getCount(page);
+    if (count > 0 && index.isMutable(page))
+      // THE COMMITTED IMAGE IS NOT SEALED YET (THE PAGE COUNTER IS PUBLISHED BEFORE THE PAGES)
+      return false;
+
+    if (totalValues + count > maxEntries) {
+      full = true;
+      return false;
+    }
+
+    final LSMTreeIndexUnderlyingPageCursor cursor = new LSMTreeIndexUnderlyingPageCursor(index, page, -1,
+        index.getHeaderSize(pageNum), index.getStorageKeyTypes(), count, true);
+    while (cursor.hasNext()) {
+      cursor.next();
+      final Object[] keys = cursor.getKeys();
+      for (final Object k : keys)
+        if (k == null) {
+          // NULL KEYS ARE LOOKED UP ON THE PAGES: STOP HERE. WHAT WAS COPIED OF THIS PAGE IS IGNORED BY THE LOOKUPS
+          full = true;
+          return false;
+        }
+
+      final RID[] rids = cursor.getValue();
+      final int[] pages = new int[rids.length];
+      Arrays.fill(pages, pageNum);
+      entries.merge(keys, new Values(rids, pages), Values::append);
+      totalValues += rids.length;
+    }
+    return true;
+  }
+}
@@ -20,6 +20,7 @@ package com.arcadedb.index.lsm;
 
 import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.Binary;
+import com.arcadedb.database.Database;
 import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.database.Identifiable;
 import com.arcadedb.database.RID;
@@ -36,6 +37,7 @@ import com.arcadedb.index.IndexCursor;
 import com.arcadedb.index.IndexCursorEntry;
 import com.arcadedb.index.TempIndexCursor;
 import com.arcadedb.log.LogManager;
+import com.arcadedb.query.QueryResultCache;
 import com.arcadedb.schema.Type;
 import com.arcadedb.utility.RidHashSet;
 
@@ -48,12 +50,13 @@ import static com.arcadedb.database.Binary.BYTE_SERIALIZED_SIZE;
 import static com.arcadedb.database.Binary.INT_SERIALIZED_SIZE;
 
 public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
-  public static final int                   CURRENT_VERSION     = 1;
+  public static final int                   CURRENT_VERSION     = NORMALIZED_KEYS_VERSION;
   public static final String                UNIQUE_INDEX_EXT    = "umtidx";
   public static final String                NOTUNIQUE_INDEX_EXT = "numtidx";
   private             LSMTreeIndexCompacted subIndex            = null;
   private             int                   minPagesToScheduleACompaction;
   private             int                   currentMutablePages = 0;
+  private volatile    LSMTreeIndexMemtable  memtable;
 
   /**
    * Called at creation time.
@@ -62,7 +65,7 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
       final boolean unique, final String filePath, final ComponentFile.MODE mode, final Type[] keyTypes, final int pageSize,
       final NULL_STRATEGY nullStrategy) throws IOException {
     super(mainIndex, database, name, unique, filePath, unique ? UNIQUE_INDEX_EXT : NOTUNIQUE_INDEX_EXT, mode, keyTypes, pageSize,
-        CURRENT_VERSION, nullStrategy);
+        pageFormatVersion(keyTypes), nullStrategy);
     database.checkTransactionIsActive(database.isAutoTransaction());
     createNewPage();
     minPagesToScheduleACompaction = database.getConfiguration()
@@ -124,6 +127,8 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
         this.storageKeyTypes[i] = currentPage.readByte(pos++);
 
       this.binaryKeyTypes = declaredKeyTypes(this.storageKeyTypes);
+      // THE KEY TYPES CAN BE DIFFERENT AFTER A STRUCTURE CHANGE: START A NEW COPY
+      this.memtable = null;
 
       this.keyTypes = new Type[len];
       for (int i = 0; i < len; ++i)
@@ -290,6 +295,16 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
     final Map<String, Long> stats = new HashMap<>();
     stats.put("pages", (long) getTotalPages());
     stats.put("adjacentSteps", statsAdjacentSteps.get());
+    final LSMTreeIndexMemtable m = memtable;
+    if (m != null) {
+      stats.put("memtablePages", (long) m.getAbsorbedPages());
+      stats.put("memtableKeys", (long) m.getKeys());
+      stats.put("memtableLookups", m.getLookups());
+    }
+    // LEVEL 0 IS THIS FILE ("pages"), LEVELS 1 AND 2 ARE THE INCREMENTAL AND BASE SERIES OF THE COMPACTED SUB-INDEX
+    final LSMTreeIndexCompacted compacted = subIndex;
+    if (compacted != null)
+      compacted.putLevelStats(stats);
     return stats;
   }
 
@@ -300,9 +315,9 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
   }
 
   protected LookupResult compareKey(final Binary currentPageBuffer, final int startIndexArray, final Object[] convertedKeys,
-      int mid, final int count, final int purpose) {
+      int mid, final int count, final int purpose, final KeyProbe probe) {
 
-    final int result = compareKey(currentPageBuffer, startIndexArray, convertedKeys, mid, count);
+    final int result = compareKey(currentPageBuffer, startIndexArray, convertedKeys, mid, count, probe);
 
     if (result > 0)
       return HIGHER;
@@ -322,12 +337,13 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
       final int keySerializedSize = getSerializedKeySize(currentPageBuffer, convertedKeys.length);
 
       // RETRIEVE ALL THE RESULTS
-      final int firstKeyPos = findFirstEntryOfSameKey(currentPageBuffer, convertedKeys, startIndexArray, mid);
-      final int lastKeyPos = findLastEntryOfSameKey(count, currentPageBuffer, convertedKeys, startIndexArray, mid);
+      final int firstKeyPos = findFirstEntryOfSameKey(currentPageBuffer, convertedKeys, startIndexArray, mid, probe);
+      final int lastKeyPos = findLastEntryOfSameKey(count, currentPageBuffer, convertedKeys, startIndexArray, mid, probe);
 
       final int[] positionsArray = new int[lastKeyPos - firstKeyPos + 1];
       for (int i = firstKeyPos; i <= lastKeyPos; ++i)
-        positionsArray[i - firstKeyPos] = currentPageBuffer.getInt(startIndexArray + (i * INT_SERIALIZED_SIZE)) + keySerializedSize;
+        positionsArray[i - firstKeyPos] = getEntryValuesPosition(currentPageBuffer,
+            currentPageBuffer.getInt(startIndexArray + (i * INT_SERIALIZED_SIZE)), keySerializedSize);
 
       return new LookupResult(true, false, lastKeyPos, positionsArray);
     }
@@ -336,10 +352,10 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
       // PARTIAL MATCHING
       if (purpose == 2) {
         // ASCENDING ITERATOR: FIND THE MOST LEFT ITEM
-        mid = findFirstEntryOfSameKey(currentPageBuffer, convertedKeys, startIndexArray, mid);
+        mid = findFirstEntryOfSameKey(currentPageBuffer, convertedKeys, startIndexArray, mid, probe);
       } else if (purpose == 3) {
         // DESCENDING ITERATOR
-        mid = findLastEntryOfSameKey(count, currentPageBuffer, convertedKeys, startIndexArray, mid);
+        mid = findLastEntryOfSameKey(count, currentPageBuffer, convertedKeys, startIndexArray, mid, probe);
       }
     }
 
@@ -380,6 +396,8 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
         currentPage.writeByte(pos++, storageKeyTypes[i]);
     }
 
+    initPagePrefix(currentPage);
+
     ++currentMutablePages;
 
     return currentPage;
@@ -388,10 +406,13 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
   private void searchInNonCompactedIndex(final Object[] originalKeys, final Object[] convertedKeys, final int limit,
       final Set<IndexCursorEntry> set, final Set<TransactionIndexContext.ComparableKey> removedKeys,
       final RidHashSet deletedRIDs) throws IOException {
-    // SEARCH FROM THE LAST PAGE BACK
+    // SEARCH FROM THE LAST PAGE BACK, DOWN TO THE PAGES THE MEMTABLE ANSWERS FOR
     final int totalPages = getTotalPages();
 
-    for (int p = totalPages - 1; p > -1; --p) {
+    final LSMTreeIndexMemtable m = getMemtable(convertedKeys);
+    final int memtablePages = m != null ? Math.min(m.catchUp(), totalPages) : 0;
+
+    for (int p = totalPages - 1; p >= memtablePages; --p) {
       final BasePage currentPage = database.getTransaction().getPage(new PageId(database, file.getFileId(), p), pageSize);
       final Binary currentPageBuffer = new Binary(currentPage.slice());
       final int count = getCount(currentPage);
@@ -404,11 +425,60 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
         return;
     }
 
+    if (memtablePages > 0) {
+      QueryResultCache.trackRead(file.getFileId());
+      if (!m.lookup(originalKeys, convertedKeys, convertKeysToDeclaredTypes(originalKeys, binaryKeyTypes), memtablePages, limit,
+          set, removedKeys, deletedRIDs))
+        return;
+    }
+
     if (subIndex != null)
       // CONTINUE ON THE SUB-INDEX
       subIndex.searchInCompactedIndex(originalKeys, convertedKeys, limit, set, removedKeys, deletedRIDs);
   }
 
+  /**
+   * Returns the memtable when it can answer this lookup: full keys without nulls, on key types it supports, in a
+   * transaction that does not keep its own snapshot of the pages (REPEATABLE_READ could hold a page from before it was
+   * sealed, while the memtable has the sealed content).
+   */
+  private LSMTreeIndexMemtable getMemtable(final Object[] convertedKeys) {
+    if (convertedKeys == null || convertedKeys.length != binaryKeyTypes.length)
+      return null;
+
+    for (final Object k : convertedKeys)
+      if (k == null)
+        return null;
+
+    if (database.isTransactionActive()
+        && database.getTransaction().getIsolationLevel() == Database.TRANSACTION_ISOLATION_LEVEL.REPEATABLE_READ)
+      return null;
+
+    LSMTreeIndexMemtable m = memtable;
+    if (m == null) {
+      final int maxEntries = database.getConfiguration().getValueAsInteger(GlobalConfiguration.INDEX_MEMTABLE_MAX_ENTRIES);
+      if (maxEntries < 1 || !LSMTreeIndexMemtable.isSupported(binaryKeyTypes) || !LSMTreeIndexMemtable.isSupported(
+          storageKeyTypes))
+        return null;
+
+      synchronized (this) {
+        m = memtable;
+        if (m == null) {
+          m = new LSMTreeIndexMemtable(this, binaryKeyTypes, maxEntries);
+          memtable = m;
+        }
+      }
+    }
+    return m;
+  }
+
+  /**
+   * Number of pages committed, ignoring the pages the current transaction is adding.
+   */
+  int getCommittedTotalPages() {
+    return pageCount.get();
+  }
+
   protected void internalPut(final Object[] keys, final RID[] rids) {
     if (keys == null)
       throw new IllegalArgumentException("Keys parameter is null");
@@ -487,6 +557,8 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
               currentPage.getMaxContentSize() - getHeaderSize(pageNum), currentPage.getPageId());
         }
 
+        compressEntryKey(currentPageBuffer, pageNum, keyValueContent);
+
         keyValueFreePosition -= keyValueContent.size();
 
         // WRITE KEY/VALUE PAIR CONTENT
@@ -498,6 +570,7 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
           currentPageBuffer.move(startPos, startPos + INT_SERIALIZED_SIZE, (count - keyIndex) * INT_SERIALIZED_SIZE);
 
         currentPageBuffer.putInt(startPos, keyValueFreePosition);
+        onEntryWritten(currentPageBuffer, pageNum, count, keyValueFreePosition);
 
         setCount(currentPage, count + 1);
         setValuesFreePosition(currentPage, keyValueFreePosition);
@@ -638,6 +711,8 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
         keyValueFreePosition = currentPage.getMaxContentSize();
       }
 
+      compressEntryKey(currentPageBuffer, pageNum, keyValueContent);
+
       keyValueFreePosition -= keyValueContent.size();
 
       // WRITE KEY/VALUE PAIR CONTENT
@@ -649,6 +724,7 @@ public class LSMTreeIndexMutable extends LSMTreeIndexAbstract {
         currentPageBuffer.move(startPos, startPos + INT_SERIALIZED_SIZE, (count - keyIndex) * INT_SERIALIZED_SIZE);
 
       currentPageBuffer.putInt(startPos, keyValueFreePosition);
+      onEntryWritten(currentPageBuffer, pageNum, count, keyValueFreePosition);
 
       setCount(currentPage, count + 1);
       setValuesFreePosition(currentPage, keyValueFreePosition);
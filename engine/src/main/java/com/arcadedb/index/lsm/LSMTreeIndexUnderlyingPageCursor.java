@@ -77,27 +77,13 @@ public class LSMTreeIndexUnderlyingPageCursor extends LSMTreeIndexUnderlyingAbst
     if (!ascendingOrder) {
       int currentContentPos = buffer.getInt(keyStartPosition + (currentEntryIndex * INT_SERIALIZED_SIZE));
       buffer.position(currentContentPos);
-      final Object[] currentKey = new Object[keyTypes.length];
-      for (int k = 0; k < keyTypes.length; ++k) {
-        final boolean notNull = index.getVersion() < 1 || buffer.getByte() == 1;
-        if (notNull)
-          currentKey[k] = index.getDatabase().getSerializer().deserializeValue(index.getDatabase(), buffer, keyTypes[k], null, false);
-        else
-          currentKey[k] = null;
-      }
+      final Object[] currentKey = index.readEntryKeys(buffer, keyStartPosition, keyTypes);
 
       for (int pos = currentEntryIndex - 1; pos >= 0; --pos) {
         final int prevContentPos = buffer.getInt(keyStartPosition + (pos * INT_SERIALIZED_SIZE));
         buffer.position(prevContentPos);
 
-        final Object[] adjacentKeys = new Object[keyTypes.length];
-        for (int k = 0; k < keyTypes.length; ++k) {
-          final boolean notNull = index.getVersion() < 1 || buffer.getByte() == 1;
-          if (notNull)
-            adjacentKeys[k] = index.getDatabase().getSerializer().deserializeValue(index.getDatabase(), buffer, keyTypes[k], null, false);
-          else
-            adjacentKeys[k] = null;
-        }
+        final Object[] adjacentKeys = index.readEntryKeys(buffer, keyStartPosition, keyTypes);
 
         if (LSMTreeIndexMutable.compareKeys(index.comparator, keyTypes, currentKey, adjacentKeys) != 0)
           break;
@@ -109,14 +95,7 @@ public class LSMTreeIndexUnderlyingPageCursor extends LSMTreeIndexUnderlyingAbst
     int contentPos = buffer.getInt(keyStartPosition + (readPos * INT_SERIALIZED_SIZE));
     buffer.position(contentPos);
 
-    nextKeys = new Object[keyTypes.length];
-    for (int k = 0; k < keyTypes.length; ++k) {
-      final boolean notNull = index.getVersion() < 1 || buffer.getByte() == 1;
-      if (notNull)
-        nextKeys[k] = index.getDatabase().getSerializer().deserializeValue(index.getDatabase(), buffer, keyTypes[k], null, false);
-      else
-        nextKeys[k] = null;
-    }
+    nextKeys = index.readEntryKeys(buffer, keyStartPosition, keyTypes);
 
     valuePosition = buffer.position();
     nextValue = index.readEntryValues(buffer);
@@ -127,14 +106,7 @@ public class LSMTreeIndexUnderlyingPageCursor extends LSMTreeIndexUnderlyingAbst
       contentPos = buffer.getInt(keyStartPosition + (pos * INT_SERIALIZED_SIZE));
       buffer.position(contentPos);
 
-      final Object[] adjacentKeys = new Object[keyTypes.length];
-      for (int k = 0; k < keyTypes.length; ++k) {
-        final boolean notNull = index.getVersion() < 1 || buffer.getByte() == 1;
-        if (notNull)
-          adjacentKeys[k] = index.getDatabase().getSerializer().deserializeValue(index.getDatabase(), buffer, keyTypes[k], null, false);
-        else
-          adjacentKeys[k] = null;
-      }
+      final Object[] adjacentKeys = index.readEntryKeys(buffer, keyStartPosition, keyTypes);
 
       final int compare = LSMTreeIndexMutable.compareKeys(index.comparator, keyTypes, nextKeys, adjacentKeys);
       if (compare != 0)
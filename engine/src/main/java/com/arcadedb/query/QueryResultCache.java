@@ -0,0 +1,470 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Binary;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.Identifiable;
+import com.arcadedb.query.sql.executor.InternalResultSet;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.query.sql.executor.ResultSpillSerializer;
+import com.arcadedb.utility.IntHashSet;
+
+import java.lang.reflect.Array;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Memory-bounded LRU cache of read query results, keyed by language, normalized statement, current user and parameters.
+ * <p>
+ * While a missed query runs, every file (bucket or index) it reads is recorded through a thread-local read set fed by
+ * {@link #trackRead(int)} from the page read paths. The results are stored serialized with {@link ResultSpillSerializer},
+ * so every hit hands out its own copies and the size of an entry is exact. A committed transaction invalidates only the
+ * entries that read one of the files it modified ({@link #invalidate(Collection)}, called from the commit path of
+ * {@code TransactionContext}), a schema change invalidates everything.
+ * <p>
+ * The cache is enabled with {@link GlobalConfiguration#QUERY_RESULT_CACHE}. A single query can opt in or out with the
+ * {@code /*+ CACHE *}{@code /} and {@code /*+ NO_CACHE *}{@code /} hints anywhere in the statement. Only SQL and
+ * OpenCypher queries executed outside a transaction are cached; statements calling non-deterministic functions
+ * (current date/time, random values, sequences) and queries served by a graph analytical view are never cached.
+ */
+public class QueryResultCache {
+  private static final Pattern             HINT              = Pattern.compile("/\\*\\+\\s*(NO_CACHE|CACHE)\\s*\\*/",
+      Pattern.CASE_INSENSITIVE);
+  private static final String[]            NON_DETERMINISTIC = { "date(", "time(", "timestamp(", "now(", "rand(", "random(",
+      "uuid(", "sequence(", "metadata:", "schema:" };
+  private static final int                 ENTRY_OVERHEAD    = 128;
+  private static final Object              NOT_CACHEABLE     = new Object();
+  private static final AtomicInteger       ACTIVE_TRACKERS   = new AtomicInteger();
+  private static final ThreadLocal<ReadSet> CURRENT_READ_SET = new ThreadLocal<>();
+
+  private final DatabaseInternal          database;
+  private final ResultSpillSerializer     serializer;
+  private final boolean                   enabled;
+  private final long                      maxSize;
+  private final int                       maxRows;
+  private final LinkedHashMap<Key, Entry> entries              = new LinkedHashMap<>(64, 0.75f, true);
+  private final Map<Integer, Set<Key>>    byFile               = new HashMap<>();
+  private final Map<Integer, Long>        fileEpochs           = new HashMap<>();
+  private       long                      epoch                = 0;
+  private       long                      lastFullInvalidation = 0;
+  private final AtomicLong                hits                 = new AtomicLong();
+  private final AtomicLong                misses               = new AtomicLong();
+  private final AtomicLong                stored               = new AtomicLong();
+  private final AtomicLong                evictions            = new AtomicLong();
+  private final AtomicLong                invalidations        = new AtomicLong();
+  private final AtomicLong                bytes                = new AtomicLong();
+  private final AtomicInteger             size                 = new AtomicInteger();
+
+  private record Key(String language, String statement, String user, long limit, Object parameters) {
+  }
+
+  private record Entry(Key key, byte[] rows, int count, int[] files, long bytes) {
+  }
+
+  /**
+   * Files read by the query being materialized on the current thread. Nested queries push their own read set and merge it
+   * into the parent when done, so the outer query also depends on what the inner ones read.
+   */
+  private static final class ReadSet {
+    private final ReadSet    parent;
+    private final IntHashSet files = new IntHashSet();
+    private       boolean    uncacheable;
+
+    private ReadSet(final ReadSet parent) {
+      this.parent = parent;
+    }
+  }
+
+  public QueryResultCache(final DatabaseInternal database) {
+    this.database = database;
+    this.serializer = new ResultSpillSerializer(database);
+    this.enabled = database.getConfiguration().getValueAsBoolean(GlobalConfiguration.QUERY_RESULT_CACHE);
+    this.maxSize = database.getConfiguration().getValueAsLong(GlobalConfiguration.QUERY_RESULT_CACHE_MAX_SIZE);
+    this.maxRows = database.getConfiguration().getValueAsInteger(GlobalConfiguration.QUERY_RESULT_CACHE_MAX_ROWS);
+  }
+
+  /**
+   * Records that the query being cached on the current thread read the file. Called on every page read, so the check for
+   * the common case of no query being tracked is a single atomic read.
+   */
+  public static void trackRead(final int fileId) {
+    if (ACTIVE_TRACKERS.get() == 0)
+      return;
+    final ReadSet readSet = CURRENT_READ_SET.get();
+    if (readSet != null && fileId > -1)
+      readSet.files.add(fileId);
+  }
+
+  /**
+   * Marks the query being cached on the current thread as not cacheable, because it read data that is not tracked per file
+   * (e.g. an in-memory graph analytical view).
+   */
+  public static void markUncacheable() {
+    if (ACTIVE_TRACKERS.get() == 0)
+      return;
+    final ReadSet readSet = CURRENT_READ_SET.get();
+    if (readSet != null)
+      readSet.uncacheable = true;
+  }
+
+  /**
+   * Returns the cached results of the query, or executes it and caches the results if the query is cacheable.
+   *
+   * @param parameters null, an Object[] of positional parameters or a Map of named parameters
+   * @param executor   executes the query
+   */
+  public ResultSet execute(final String language, final String statement, final Object parameters,
+      final Supplier<ResultSet> executor) {
+    final Key key = getKey(language, statement, parameters);
+    if (key == null)
+      return executor.get();
+
+    final Entry cached;
+    synchronized (this) {
+      cached = entries.get(key);
+    }
+
+    if (cached != null) {
+      hits.incrementAndGet();
+      final ReadSet parent = CURRENT_READ_SET.get();
+      if (parent != null)
+        for (final int fileId : cached.files)
+          parent.files.add(fileId);
+      return toResultSet(cached);
+    }
+
+    misses.incrementAndGet();
+
+    final long startEpoch;
+    synchronized (this) {
+      startEpoch = epoch;
+    }
+
+    final ReadSet readSet = new ReadSet(CURRENT_READ_SET.get());
+    CURRENT_READ_SET.set(readSet);
+    ACTIVE_TRACKERS.incrementAndGet();
+
+    final List<Result> fetched = new ArrayList<>();
+    ResultSet resultSet = null;
+    boolean completed = false;
+    try {
+      resultSet = executor.get();
+      while (fetched.size() <= maxRows && resultSet.hasNext())
+        fetched.add(resultSet.next());
+      completed = true;
+    } finally {
+      ACTIVE_TRACKERS.decrementAndGet();
+      CURRENT_READ_SET.set(readSet.parent);
+      if (readSet.parent != null) {
+        readSet.files.forEach(readSet.parent.files::add);
+        if (readSet.uncacheable)
+          readSet.parent.uncacheable = true;
+      }
+      if (!completed && resultSet != null)
+        resultSet.close();
+    }
+
+    if (resultSet.hasNext())
+      // TOO MANY RESULTS TO CACHE: RETURN THE FETCHED ONES FOLLOWED BY THE REST OF THE ORIGINAL RESULT SET
+      return new PrefetchedResultSet(fetched, resultSet);
+
+    resultSet.close();
+
+    if (!readSet.uncacheable && fetched.size() <= maxRows)
+      put(key, fetched, readSet.files.toArray(), startEpoch);
+
+    final InternalResultSet result = new InternalResultSet();
+    for (final Result r : fetched)
+      result.add(r);
+    return result;
+  }
+
+  /**
+   * Invalidates the entries that read at least one of the files. Called after a transaction modifying the files has been
+   * committed.
+   */
+  public void invalidate(final Collection<Integer> fileIds) {
+    if (fileIds == null || fileIds.isEmpty() || (size.get() == 0 && ACTIVE_TRACKERS.get() == 0))
+      return;
+
+    synchronized (this) {
+      ++epoch;
+      for (final Integer fileId : fileIds) {
+        fileEpochs.put(fileId, epoch);
+        final Set<Key> keys = byFile.remove(fileId);
+        if (keys != null)
+          for (final Key key : keys) {
+            final Entry entry = entries.get(key);
+            if (entry != null) {
+              remove(entry);
+              invalidations.incrementAndGet();
+            }
+          }
+      }
+    }
+  }
+
+  /**
+   * Invalidates all the entries. Called on schema changes.
+   */
+  public synchronized void invalidate() {
+    ++epoch;
+    lastFullInvalidation = epoch;
+    invalidations.addAndGet(entries.size());
+    entries.clear();
+    byFile.clear();
+    fileEpochs.clear();
+    bytes.set(0);
+    size.set(0);
+  }
+
+  public Map<String, Object> getStats() {
+    final Map<String, Object> map = new HashMap<>();
+    map.put("queryResultCacheHits", hits.get());
+    map.put("queryResultCacheMisses", misses.get());
+    map.put("queryResultCacheStored", stored.get());
+    map.put("queryResultCacheEvictions", evictions.get());
+    map.put("queryResultCacheInvalidations", invalidations.get());
+    map.put("queryResultCacheEntries", size.get());
+    map.put("queryResultCacheBytes", bytes.get());
+    return map;
+  }
+
+  private synchronized void put(final Key key, final List<Result> results, final int[] files, final long startEpoch) {
+    // A TRANSACTION COMMITTED WHILE THE QUERY WAS RUNNING COULD HAVE MADE THE RESULTS STALE ALREADY
+    if (lastFullInvalidation > startEpoch)
+      return;
+    for (final int fileId : files) {
+      final Long fileEpoch = fileEpochs.get(fileId);
+      if (fileEpoch != null && fileEpoch > startEpoch)
+        return;
+    }
+
+    final Binary buffer = new Binary();
+    for (final Result r : results) {
+      if (!serializer.isSerializable(r))
+        return;
+      serializer.serialize(r, buffer);
+    }
+
+    final byte[] rows = buffer.toByteArray();
+    final long entryBytes = rows.length + key.statement.length() * 2L + files.length * 4L + ENTRY_OVERHEAD;
+    if (entryBytes > maxSize)
+      return;
+
+    final Entry previous = entries.get(key);
+    if (previous != null)
+      remove(previous);
+
+    final Entry entry = new Entry(key, rows, results.size(), files, entryBytes);
+    entries.put(key, entry);
+    for (final int fileId : files)
+      byFile.computeIfAbsent(fileId, k -> new HashSet<>()).add(key);
+    bytes.addAndGet(entryBytes);
+    size.incrementAndGet();
+    stored.incrementAndGet();
+
+    // EVICT THE LEAST RECENTLY USED ENTRIES
+    final Iterator<Entry> it = entries.values().iterator();
+    while (bytes.get() > maxSize && it.hasNext()) {
+      final Entry eldest = it.next();
+      it.remove();
+      unindex(eldest);
+      evictions.incrementAndGet();
+    }
+  }
+
+  private void remove(final Entry entry) {
+    entries.remove(entry.key);
+    unindex(entry);
+  }
+
+  private void unindex(final Entry entry) {
+    for (final int fileId : entry.files) {
+      final Set<Key> keys = byFile.get(fileId);
+      if (keys != null) {
+        keys.remove(entry.key);
+        if (keys.isEmpty())
+          byFile.remove(fileId);
+      }
+    }
+    bytes.addAndGet(-entry.bytes);
+    size.decrementAndGet();
+  }
+
+  private ResultSet toResultSet(final Entry entry) {
+    final Binary buffer = new Binary(entry.rows);
+    final InternalResultSet result = new InternalResultSet();
+    for (int i = 0; i < entry.count; i++)
+      result.add(serializer.deserialize(buffer));
+    return result;
+  }
+
+  /**
+   * Returns the cache key, or null if the query must not be cached.
+   */
+  private Key getKey(final String language, final String statement, final Object parameters) {
+    boolean cache = enabled;
+    if (statement.indexOf("/*+") > -1) {
+      final Matcher matcher = HINT.matcher(statement);
+      while (matcher.find())
+        cache = matcher.group(1).equalsIgnoreCase("CACHE");
+    }
+
+    if (!cache)
+      return null;
+
+    final String lang = language.toLowerCase(Locale.ENGLISH);
+    if (!lang.equals("sql") && !lang.equals("opencypher") && !lang.equals("cypher"))
+      return null;
+
+    if (database.isTransactionActive())
+      // THE TRANSACTION COULD HAVE CHANGES NOT VISIBLE TO OTHER THREADS
+      return null;
+
+    final String normalized = normalize(statement);
+    final String lowerCase = normalized.toLowerCase(Locale.ENGLISH);
+    for (final String function : NON_DETERMINISTIC)
+      if (lowerCase.contains(function))
+        return null;
+
+    final Object params = normalizeParameter(parameters);
+    if (params == NOT_CACHEABLE)
+      return null;
+
+    return new Key(lang, normalized, database.getCurrentUserName(), database.getResultSetLimit(), params);
+  }
+
+  /**
+   * Collapses the white spaces outside quoted strings, so the same statement formatted differently hits the same entry.
+   */
+  static String normalize(final String statement) {
+    final StringBuilder buffer = new StringBuilder(statement.length());
+    char quote = 0;
+    boolean space = false;
+    for (int i = 0; i < statement.length(); i++) {
+      final char c = statement.charAt(i);
+      if (quote != 0) {
+        buffer.append(c);
+        if (c == '\\' && i + 1 < statement.length())
+          buffer.append(statement.charAt(++i));
+        else if (c == quote)
+          quote = 0;
+      } else if (Character.isWhitespace(c))
+        space = true;
+      else {
+        if (space && !buffer.isEmpty())
+          buffer.append(' ');
+        space = false;
+        if (c == '\'' || c == '"' || c == '`')
+          quote = c;
+        buffer.append(c);
+      }
+    }
+    return buffer.toString();
+  }
+
+  /**
+   * Converts the parameters to a value with content based equals() and hashCode(). Returns NOT_CACHEABLE if a parameter
+   * cannot be part of a key (e.g. a document).
+   */
+  private static Object normalizeParameter(final Object value) {
+    if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+        || value instanceof Character || value instanceof Enum || value instanceof Date || value instanceof Temporal
+        || value instanceof UUID)
+      return value;
+    if (value instanceof Identifiable identifiable && !(value instanceof Document))
+      return identifiable.getIdentity();
+    if (value instanceof Map<?, ?> map) {
+      final Map<Object, Object> result = new HashMap<>(map.size());
+      for (final Map.Entry<?, ?> entry : map.entrySet()) {
+        final Object v = normalizeParameter(entry.getValue());
+        if (v == NOT_CACHEABLE)
+          return NOT_CACHEABLE;
+        result.put(entry.getKey(), v);
+      }
+      return result;
+    }
+    if (value instanceof Collection<?> collection)
+      return normalizeParameter(collection.toArray());
+    if (value.getClass().isArray()) {
+      final int length = Array.getLength(value);
+      final List<Object> result = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        final Object v = normalizeParameter(Array.get(value, i));
+        if (v == NOT_CACHEABLE)
+          return NOT_CACHEABLE;
+        result.add(v);
+      }
+      return result;
+    }
+    return NOT_CACHEABLE;
+  }
+
+  /**
+   * Returns the results already fetched while trying to cache the query, then the rest of the original result set.
+   */
+  private static class PrefetchedResultSet implements ResultSet {
+    private final List<Result> fetched;
+    private final ResultSet    rest;
+    private       int          next = 0;
+
+    private PrefetchedResultSet(final List<Result> fetched, final ResultSet rest) {
+      this.fetched = fetched;
+      this.rest = rest;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < fetched.size() || rest.hasNext();
+    }
+
+    @Override
+    public Result next() {
+      if (next < fetched.size())
+        return fetched.get(next++);
+      return rest.next();
+    }
+
+    @Override
+    public void close() {
+      rest.close();
+    }
+  }
+}
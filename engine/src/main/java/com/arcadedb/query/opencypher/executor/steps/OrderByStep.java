@@ -18,6 +18,8 @@
  */
 package com.arcadedb.query.opencypher.executor.steps;
 
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.exception.TimeoutException;
 import com.arcadedb.graph.Edge;
 import com.arcadedb.graph.Vertex;
@@ -29,6 +31,7 @@ import com.arcadedb.query.opencypher.temporal.*;
 import com.arcadedb.query.opencypher.traversal.TraversalPath;
 import com.arcadedb.query.sql.executor.AbstractExecutionStep;
 import com.arcadedb.query.sql.executor.CommandContext;
+import com.arcadedb.query.sql.executor.ExternalSortBuffer;
 import com.arcadedb.query.sql.executor.Result;
 import com.arcadedb.query.sql.executor.ResultSet;
 
@@ -36,12 +39,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.PriorityQueue;
 
 /**
  * Execution step for ORDER BY clause.
@@ -52,7 +54,8 @@ import java.util.PriorityQueue;
  * **Memory Optimization**: When LIMIT is specified, uses Top-K algorithm with a
  * bounded priority queue (O(K) memory) instead of materializing all results (O(N) memory).
  * <p>
- * Without LIMIT: Materializes all N results in memory for sorting.
+ * Without LIMIT: Materializes all N results in memory for sorting. With {@code arcadedb.querySpillToDisk} enabled, the
+ * results over the in-heap limit are written to disk as sorted runs and merged lazily (see {@link ExternalSortBuffer}).
  * With LIMIT K: Uses priority queue of size K, keeping only top K results.
  */
 public class OrderByStep extends AbstractExecutionStep {
@@ -90,15 +93,15 @@ public class OrderByStep extends AbstractExecutionStep {
     checkForPrevious("OrderByStep requires a previous step");
 
     return new ResultSet() {
-      private List<Result> sortedResults = null;
-      private int          currentIndex  = 0;
+      private Iterator<Result>   sortedResults = null;
+      private ExternalSortBuffer sortBuffer    = null;
 
       @Override
       public boolean hasNext() {
         if (sortedResults == null) {
           materializeAndSort();
         }
-        return currentIndex < sortedResults.size();
+        return sortedResults.hasNext();
       }
 
       @Override
@@ -106,12 +109,14 @@ public class OrderByStep extends AbstractExecutionStep {
         if (!hasNext()) {
           throw new NoSuchElementException();
         }
-        return sortedResults.get(currentIndex++);
+        return sortedResults.next();
       }
 
       /**
        * Materializes all results from previous step and sorts them.
        * Uses Top-K algorithm with bounded priority queue when LIMIT is present.
+       * When {@link GlobalConfiguration#QUERY_SPILL_TO_DISK} is enabled, results over the in-heap limit are spilled to disk
+       * as sorted runs and merged lazily.
        */
       private void materializeAndSort() {
         final long begin = context.isProfiling() ? System.nanoTime() : 0;
@@ -119,94 +124,31 @@ public class OrderByStep extends AbstractExecutionStep {
           if (context.isProfiling())
             rowCount++;
 
+          final DatabaseInternal database = (DatabaseInternal) context.getDatabase();
+          final boolean spill =
+              database != null && database.getConfiguration().getValueAsBoolean(GlobalConfiguration.QUERY_SPILL_TO_DISK);
+          // WITHOUT SPILLING THE SORT IS NOT CAPPED, AS IT ALWAYS HAS BEEN FOR CYPHER
+          final long maxInHeap = spill ?
+              database.getConfiguration().getValueAsLong(GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP) :
+              -1;
+
           // Top-K optimization: Use bounded priority queue when LIMIT is present
-          if (limit != null && limit > 0 && !orderByClause.isEmpty()) {
-            sortedResults = materializeTopK(limit);
-          } else {
-            // Standard sorting: materialize all results
-            sortedResults = new ArrayList<>();
-            final ResultSet prevResults = prev.syncPull(context, Integer.MAX_VALUE);
-            while (prevResults.hasNext()) {
-              sortedResults.add(prevResults.next());
-            }
+          final boolean topK = limit != null && limit > 0 && !orderByClause.isEmpty();
+          sortBuffer = new ExternalSortBuffer(database, createComparator(), maxInHeap, spill, topK ? limit : null, "ORDER BY");
 
-            // Sort results according to ORDER BY clause
-            if (!orderByClause.isEmpty()) {
-              sortedResults.sort(createComparator());
-            }
-          }
+          // CRITICAL: with a LIMIT, pull results in batches instead of Integer.MAX_VALUE to avoid causing upstream steps
+          // (like OptionalMatchStep) to materialize everything
+          final ResultSet prevResults = prev.syncPull(context, topK ? Math.max(1000, limit * 10) : Integer.MAX_VALUE);
+          while (prevResults.hasNext())
+            sortBuffer.add(prevResults.next());
+
+          sortedResults = sortBuffer.sorted();
         } finally {
           if (context.isProfiling())
             cost += System.nanoTime() - begin;
         }
       }
 
-      /**
-       * Top-K algorithm: Maintains a bounded priority queue of size K.
-       * Memory: O(K) instead of O(N) where K << N
-       *
-       * CRITICAL: Pulls results in batches instead of Integer.MAX_VALUE to avoid
-       * causing upstream steps (like OptionalMatchStep) to materialize everything.
-       *
-       * Algorithm:
-       * 1. Create max-heap (priority queue with reversed comparator) of size K
-       * 2. For each input row (pulled in batches):
-       *    - If heap size < K: add row
-       *    - If heap size = K: compare with top element
-       *      - If new row is better (smaller), remove top and add new row
-       *      - Otherwise, discard new row
-       * 3. Extract all K elements and reverse order (heap is max-heap for min-K)
-       *
-       * Example: ORDER BY score DESC LIMIT 10
-       * - Comparator orders DESC (high scores first)
-       * - Reversed comparator creates min-heap (low scores at top)
-       * - Keeps top 10 highest scores, discards rest
-       *
-       * @param k the limit value (top K results to return)
-       * @return list of top K results in correct sort order
-       */
-      private List<Result> materializeTopK(final int k) {
-        final Comparator<Result> comparator = createComparator();
-        // Reverse comparator for max-heap behavior (worst elements at top)
-        final Comparator<Result> reversedComparator = comparator.reversed();
-
-        // Priority queue with reversed comparator: worst elements bubble to top
-        final PriorityQueue<Result> topK = new PriorityQueue<>(Math.min(k + 1, 1000), reversedComparator);
-
-        // Pull all results and maintain a top-K heap
-        final int batchSize = Math.max(1000, k * 10);
-        final ResultSet prevResults = prev.syncPull(context, batchSize);
-
-        while (prevResults.hasNext()) {
-          final Result row = prevResults.next();
-
-          if (topK.size() < k) {
-            // Haven't reached K elements yet, add unconditionally
-            topK.offer(row);
-          } else {
-            // Heap is full, check if new element is better than worst element
-            final Result worst = topK.peek();
-            if (comparator.compare(row, worst) < 0) {
-              // New row is better than worst row, replace it
-              topK.poll();  // Remove worst
-              topK.offer(row);  // Add new
-            }
-            // Otherwise discard the row (it's worse than our current top K)
-          }
-        }
-
-        // Extract results from heap and reverse to get correct sort order
-        final List<Result> results = new ArrayList<>(topK.size());
-        while (!topK.isEmpty()) {
-          results.add(topK.poll());
-        }
-
-        // Heap extracts in reverse order, so reverse the list to get correct order
-        Collections.reverse(results);
-
-        return results;
-      }
-
       /**
        * Creates a comparator based on ORDER BY items.
        */
@@ -422,6 +364,8 @@ public class OrderByStep extends AbstractExecutionStep {
 
       @Override
       public void close() {
+        if (sortBuffer != null)
+          sortBuffer.close();
         OrderByStep.this.close();
       }
     };
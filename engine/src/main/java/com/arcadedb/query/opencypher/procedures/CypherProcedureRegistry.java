@@ -53,11 +53,15 @@ import com.arcadedb.query.opencypher.procedures.algo.AlgoLongestPathDAG;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoPreferentialAttachment;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoResourceAllocation;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoFastRP;
+import com.arcadedb.query.opencypher.procedures.algo.AlgoFastRPWrite;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoGraphSAGE;
+import com.arcadedb.query.opencypher.procedures.algo.AlgoGraphSAGEWrite;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoHashGNN;
+import com.arcadedb.query.opencypher.procedures.algo.AlgoHashGNNWrite;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoMaxKCut;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoMinSpanningArborescence;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoNode2Vec;
+import com.arcadedb.query.opencypher.procedures.algo.AlgoNode2VecWrite;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoSLPA;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoSameCommunity;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoSteinerTree;
@@ -77,11 +81,13 @@ import com.arcadedb.query.opencypher.procedures.algo.AlgoKCore;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoKShortestPaths;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoKTruss;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoLeiden;
+import com.arcadedb.query.opencypher.procedures.algo.AlgoLeidenWrite;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoPersonalizedPageRank;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoRichClub;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoKatz;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoLabelPropagation;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoLouvain;
+import com.arcadedb.query.opencypher.procedures.algo.AlgoLouvainWrite;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoMST;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoMaxFlow;
 import com.arcadedb.query.opencypher.procedures.algo.AlgoModularityScore;
@@ -320,6 +326,7 @@ public final class CypherProcedureRegistry {
     register(new AlgoBetweenness());
     register(new AlgoWCC());
     register(new AlgoLouvain());
+    register(new AlgoLouvainWrite());
     register(new AlgoLabelPropagation());
     register(new AlgoClosenessCentrality());
     register(new AlgoDegreeCentrality());
@@ -346,6 +353,7 @@ public final class CypherProcedureRegistry {
     register(new AlgoGraphSummary());
     register(new AlgoModularityScore());
     register(new AlgoLeiden());
+    register(new AlgoLeidenWrite());
     register(new AlgoPersonalizedPageRank());
     register(new AlgoKTruss());
     register(new AlgoAssortativity());
@@ -374,9 +382,13 @@ public final class CypherProcedureRegistry {
     register(new AlgoSLPA());
     register(new AlgoBiconnectedComponents());
     register(new AlgoFastRP());
+    register(new AlgoFastRPWrite());
     register(new AlgoNode2Vec());
+    register(new AlgoNode2VecWrite());
     register(new AlgoHashGNN());
+    register(new AlgoHashGNNWrite());
     register(new AlgoGraphSAGE());
+    register(new AlgoGraphSAGEWrite());
     register(new AlgoMinSpanningArborescence());
     register(new AlgoMaxKCut());
     register(new AlgoSteinerTree());
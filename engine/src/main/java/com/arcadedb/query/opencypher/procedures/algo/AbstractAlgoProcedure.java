@@ -31,9 +31,17 @@ import com.arcadedb.graph.GraphTraversalProviderRegistry;
 import com.arcadedb.graph.NeighborView;
 import com.arcadedb.graph.NodeEdgeWeights;
 import com.arcadedb.graph.Vertex;
+import com.arcadedb.graph.olap.CommunityDetection;
+import com.arcadedb.graph.olap.CommunityGraph;
+import com.arcadedb.graph.olap.GraphAlgorithms;
+import com.arcadedb.graph.olap.NodeEmbeddings;
+import com.arcadedb.index.TypeIndex;
+import com.arcadedb.index.vector.LSMVectorIndex;
 import com.arcadedb.query.opencypher.procedures.CypherProcedure;
 import com.arcadedb.query.sql.executor.CommandContext;
 import com.arcadedb.query.sql.executor.WorkGuard;
+import com.arcadedb.schema.DocumentType;
+import com.arcadedb.schema.VertexType;
 import com.arcadedb.utility.NumberUtils;
 
 import java.util.ArrayList;
@@ -43,6 +51,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntFunction;
 
 /**
  * Abstract base class for algorithm procedures.
@@ -98,6 +107,14 @@ public abstract class AbstractAlgoProcedure implements CypherProcedure {
     return list;
   }
 
+  /** Converts row {@code row} of a flat {@code float} matrix {@code dimension} wide to a {@code List<Double>}. */
+  protected static List<Double> toEmbeddingList(final float[] matrix, final int row, final int dimension) {
+    final List<Double> list = new ArrayList<>(dimension);
+    for (int i = row * dimension, end = i + dimension; i < end; i++)
+      list.add((double) matrix[i]);
+    return list;
+  }
+
   // ── Argument extractors ──────────────────────────────────────────────────
 
   /**
@@ -271,9 +288,12 @@ public abstract class AbstractAlgoProcedure implements CypherProcedure {
   /** Heap cost of one {@code int} array element, the entry type of the walk buffers and of SLPA's label memory. */
   protected static final long INT_BYTES = 4L;
 
-  /** Heap cost of one {@code double} array element, the entry type of every embedding and distance matrix. */
+  /** Heap cost of one {@code double} array element, the entry type of the distance and similarity matrices. */
   protected static final long DOUBLE_BYTES = 8L;
 
+  /** Heap cost of one {@code float} array element, the entry type of the flat node-embedding matrices. */
+  protected static final long FLOAT_BYTES = 4L;
+
   /** Heap cost of one {@code long} array element, the word type of the {@link java.util.BitSet} neighbour matrices. */
   protected static final long LONG_BYTES = 8L;
 
@@ -322,6 +342,14 @@ public abstract class AbstractAlgoProcedure implements CypherProcedure {
     return saturatingProduct(rows, saturatingSum(MATRIX_ROW_OVERHEAD_BYTES, saturatingProduct(columns, elementBytes)));
   }
 
+  /**
+   * Estimated heap footprint of a flat {@code new T[rows * columns]} matrix, the layout of the
+   * {@link NodeEmbeddings} kernels: one array, so no row headers, in saturating {@code long} arithmetic.
+   */
+  protected static long flatMatrixBytes(final long rows, final long columns, final long elementBytes) {
+    return saturatingProduct(saturatingProduct(rows, columns), elementBytes);
+  }
+
   /**
    * The heap an algorithm call is allowed to spend on the dense working set it builds beside the graph, as a
    * running total: walk buffers, {@code nodeCount x dimension} embedding matrices, {@code nodeCount x nodeCount}
@@ -510,6 +538,115 @@ public abstract class AbstractAlgoProcedure implements CypherProcedure {
     return WorkGuard.forCommand(context, getName() + "()");
   }
 
+  /**
+   * Reserves the per-thread working set of a source-parallel {@link GraphAlgorithms} kernel and returns how many
+   * threads it may use: as many as the cores allow and the budget still fits, at least one. Refused only when not even
+   * one thread's share fits.
+   *
+   * @param bytesPerNode the kernel's per-thread footprint per node, e.g. {@link GraphAlgorithms#BETWEENNESS_BYTES_PER_NODE}
+   */
+  protected int reserveSourceWorkers(final MemoryBudget memory, final int nodeCount, final long bytesPerNode) {
+    final long perWorker = saturatingProduct(nodeCount, bytesPerNode);
+    final int workers = (int) Math.max(1, Math.min(GraphAlgorithms.getParallelism(), memory.capacityFor(perWorker)));
+    memory.reserve(saturatingProduct(workers, perWorker), "the per-thread traversal state",
+        workers + " threads x " + nodeCount + " nodes x " + bytesPerNode + " bytes");
+    return workers;
+  }
+
+  /**
+   * The graph as a {@link CommunityGraph} for {@link CommunityDetection}: every edge listed from both endpoints, with
+   * its weight when {@code weightProperty} is set. The unweighted form shares the view's arrays; either way the
+   * detection's own working set - the per-node state and aggregated levels at most the size of this one - is reserved
+   * here, before the first level is built.
+   */
+  protected CommunityGraph loadCommunityGraph(final GraphData graph, final WorkGuard guard,
+      final String weightProperty, final String[] relTypes) {
+    final CommunityGraph communityGraph;
+    if (weightProperty == null)
+      communityGraph = new CommunityGraph(graph.packedNeighborView(Vertex.DIRECTION.BOTH, relTypes));
+    else {
+      final GraphData.WeightedAdjacency adjacency = graph.weightedAdjacency(guard, Vertex.DIRECTION.BOTH, weightProperty,
+          relTypes);
+      communityGraph = CommunityGraph.of(adjacency.neighbors(), adjacency.weights());
+    }
+
+    final long nodes = graph.nodeCount;
+    final long entries = communityGraph.entryCount();
+    graph.memory().reserve(saturatingSum(
+            saturatingProduct(nodes, CommunityDetection.BYTES_PER_NODE + CommunityGraph.BYTES_PER_NODE),
+            saturatingProduct(entries, CommunityGraph.BYTES_PER_ENTRY)), "the community detection levels",
+        nodes + " nodes, " + entries + " edge entries");
+    return communityGraph;
+  }
+
+  /**
+   * Writes {@code values[i]} into {@code property} of the vertex of every node, {@code batchSize} vertices per
+   * transaction, and returns how many were written.
+   *
+   * @see #writeNodeProperty(Database, GraphData, String, IntFunction, int, WorkGuard)
+   */
+  protected long writeNodeProperty(final Database db, final GraphData graph, final String property, final int[] values,
+      final int batchSize, final WorkGuard guard) {
+    return writeNodeProperty(db, graph, property, i -> values[i], batchSize, guard);
+  }
+
+  /**
+   * Writes row {@code i} of a flat {@code nodeCount x dimension} embedding matrix into {@code property} of the vertex
+   * of every node, as a {@code float[]}, and returns how many were written.
+   * <p>
+   * A {@code float[]} is what an {@code LSM_VECTOR} index takes as key, so when the property carries one the index
+   * is maintained by the same saves. Its dimension is checked against the embedding's before the first batch: the
+   * index would otherwise refuse the first vertex only after earlier batches had already been committed.
+   */
+  protected long writeNodeEmbedding(final Database db, final GraphData graph, final String property,
+      final float[] embeddings, final int dimension, final int batchSize, final WorkGuard guard) {
+    for (final DocumentType type : db.getSchema().getTypes()) {
+      if (!(type instanceof VertexType))
+        continue;
+      final TypeIndex index = type.getPolymorphicIndexByProperties(property);
+      if (index != null && index.getIndexesOnBuckets().length > 0
+          && index.getIndexesOnBuckets()[0] instanceof LSMVectorIndex vectorIndex
+          && vectorIndex.getDimensions() != dimension)
+        throw new IllegalArgumentException(
+            getName() + "(): the vector index on " + type.getName() + "." + property + " has " + vectorIndex.getDimensions()
+                + " dimensions, the embeddings " + dimension);
+    }
+    return writeNodeProperty(db, graph, property,
+        i -> Arrays.copyOfRange(embeddings, i * dimension, (i + 1) * dimension), batchSize, guard);
+  }
+
+  /**
+   * Writes {@code values.apply(i)} into {@code property} of the vertex of every node, {@code batchSize} vertices per
+   * transaction, and returns how many were written.
+   * <p>
+   * Each batch is a transaction of its own, nested when the caller already has one open, so a graph-wide write-back
+   * never holds more than one batch of modified vertices in memory and what was committed stays committed if a later
+   * batch fails or the command is aborted. Nodes whose vertex has been deleted since the graph was loaded are skipped.
+   */
+  protected long writeNodeProperty(final Database db, final GraphData graph, final String property,
+      final IntFunction<Object> values, final int batchSize, final WorkGuard guard) {
+    long written = 0;
+    final int[] batchWritten = new int[1];
+    for (int start = 0; start < graph.nodeCount; start += batchSize) {
+      guard.check();
+      final int from = start;
+      final int to = (int) Math.min(graph.nodeCount, (long) start + batchSize);
+      db.transaction(() -> {
+        // reset here and not outside: a retried batch must not count its first attempt
+        batchWritten[0] = 0;
+        for (int i = from; i < to; i++) {
+          final Vertex vertex = graph.getVertex(i);
+          if (vertex == null)
+            continue;
+          vertex.modify().set(property, values.apply(i)).save();
+          batchWritten[0]++;
+        }
+      }, false);
+      written += batchWritten[0];
+    }
+    return written;
+  }
+
   /** @see GraphEngine#getAllVertices(Database, String[]) */
   protected Iterator<Vertex> getAllVertices(final Database db, final String[] nodeLabels) {
     return GraphEngine.getAllVertices(db, nodeLabels);
@@ -557,6 +694,15 @@ public abstract class AbstractAlgoProcedure implements CypherProcedure {
   }
 
   /** @see GraphEngine#parseDirection(String) */
+  /** The direction that walks the same edges backwards: IN for OUT, OUT for IN, BOTH unchanged. */
+  protected static Vertex.DIRECTION reverse(final Vertex.DIRECTION dir) {
+    return switch (dir) {
+      case OUT -> Vertex.DIRECTION.IN;
+      case IN -> Vertex.DIRECTION.OUT;
+      case BOTH -> Vertex.DIRECTION.BOTH;
+    };
+  }
+
   protected Vertex.DIRECTION parseDirection(final String dir) {
     return GraphEngine.parseDirection(dir);
   }
@@ -758,6 +904,27 @@ public abstract class AbstractAlgoProcedure implements CypherProcedure {
       return provider != null ? provider.getNeighborView(dir, relTypes) : null;
     }
 
+    /**
+     * The adjacency as a {@link NeighborView} whatever the backing: the provider's own view when it has one, else the
+     * {@link #adjacency} rows packed into flat arrays, which the parallel {@link GraphAlgorithms} kernels index directly.
+     */
+    public NeighborView packedNeighborView(final Vertex.DIRECTION dir, final String... relTypes) {
+      final NeighborView view = neighborView(dir, relTypes);
+      if (view != null)
+        return view;
+
+      final int[][] adj = adjacency(dir, relTypes);
+      final int[] offsets = new int[nodeCount + 1];
+      for (int i = 0; i < nodeCount; i++)
+        offsets[i + 1] = offsets[i] + adj[i].length;
+      // the packed copy lives next to the rows while they are copied: priced like them, without row headers
+      reserveAdjacency(0, offsets[nodeCount] + (long) nodeCount + 1);
+      final int[] neighbors = new int[offsets[nodeCount]];
+      for (int i = 0; i < nodeCount; i++)
+        System.arraycopy(adj[i], 0, neighbors, offsets[i], adj[i].length);
+      return new NeighborView(nodeCount, offsets, neighbors);
+    }
+
     public Vertex getVertex(final int i) {
       if (provider != null) {
         final RID rid = provider.getRID(i);
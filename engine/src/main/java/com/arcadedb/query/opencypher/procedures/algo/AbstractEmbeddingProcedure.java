@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.opencypher.procedures.algo;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.query.sql.executor.CommandContext;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultInternal;
+import com.arcadedb.query.sql.executor.WorkGuard;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Base of the node-embedding procedures: a single optional config map in, one {@code (node, embedding)} row per
+ * vertex out. A subclass only parses its knobs and computes the flat {@code nodeCount x dimension} matrix, normally
+ * through a {@link com.arcadedb.graph.olap.NodeEmbeddings} kernel.
+ * <p>
+ * The {@code .write} variants call {@link #write} instead of streaming: the embeddings are stored as {@code float[]}
+ * into a vertex property, batch by batch, which also feeds an {@code LSM_VECTOR} index defined on that property.
+ * </p>
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public abstract class AbstractEmbeddingProcedure extends AbstractAlgoProcedure {
+  static final int DEFAULT_BATCH_SIZE = 10_000;
+
+  @Override
+  public int getMinArgs() {
+    return 0;
+  }
+
+  @Override
+  public int getMaxArgs() {
+    return 1;
+  }
+
+  @Override
+  public List<String> getYieldFields() {
+    return List.of("node", "embedding");
+  }
+
+  @Override
+  public Stream<Result> execute(final Object[] args, final Result inputRow, final CommandContext context) {
+    validateArgs(args);
+
+    final Map<String, Object> config = args.length > 0 ? extractMap(args[0], "config") : null;
+    final int dimension = dimension(config);
+    final WorkGuard guard = newWorkGuard(context);
+    final GraphData graph = loadGraph(context.getDatabase(), null,
+        config != null ? extractRelTypes(config.get("relTypes")) : null, context);
+    if (graph.nodeCount == 0)
+      return Stream.empty();
+
+    final float[] embeddings = embed(config, graph, guard);
+    return IntStream.range(0, graph.nodeCount).mapToObj(i -> {
+      final ResultInternal r = new ResultInternal();
+      r.setProperty("node", graph.getRID(i));
+      r.setProperty("embedding", toEmbeddingList(embeddings, i, dimension));
+      return (Result) r;
+    });
+  }
+
+  /**
+   * The write-back of the {@code .write} variants: the config of the streaming procedure plus {@code writeProperty}
+   * (required) and {@code batchSize} (default {@value #DEFAULT_BATCH_SIZE} vertices per transaction). Returns a single
+   * row with {@code nodePropertiesWritten} and {@code embeddingDimension}.
+   */
+  protected Stream<Result> write(final Object[] args, final CommandContext context) {
+    validateArgs(args);
+
+    final Map<String, Object> config = extractMap(args[0], "config");
+    final String writeProperty = config != null ? extractString(config.get("writeProperty"), "writeProperty") : null;
+    if (writeProperty == null || writeProperty.isBlank())
+      throw new IllegalArgumentException(getName() + "(): writeProperty is required");
+    final int batchSize = config.get("batchSize") instanceof Number n ? extractInt(n, "batchSize", 1) : DEFAULT_BATCH_SIZE;
+    final int dimension = dimension(config);
+
+    final Database db = context.getDatabase();
+    final WorkGuard guard = newWorkGuard(context);
+    final GraphData graph = loadGraph(db, null, extractRelTypes(config.get("relTypes")), context);
+
+    final long written = graph.nodeCount == 0 ? 0L :
+        writeNodeEmbedding(db, graph, writeProperty, embed(config, graph, guard), dimension, batchSize, guard);
+    final ResultInternal result = new ResultInternal();
+    result.setProperty("nodePropertiesWritten", written);
+    result.setProperty("embeddingDimension", dimension);
+    return Stream.of(result);
+  }
+
+  /** Width of the embeddings {@code config} asks for, validated. */
+  protected abstract int dimension(Map<String, Object> config);
+
+  /**
+   * Computes the embeddings of every node of {@code graph}: a flat matrix, row {@code i} at {@code i * dimension}.
+   * Reserves its working set through {@link GraphData#memory()} before allocating it.
+   */
+  protected abstract float[] embed(Map<String, Object> config, GraphData graph, WorkGuard guard);
+}
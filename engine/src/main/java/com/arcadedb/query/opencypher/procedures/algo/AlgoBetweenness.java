@@ -19,23 +19,17 @@
 package com.arcadedb.query.opencypher.procedures.algo;
 
 import com.arcadedb.database.Database;
-import com.arcadedb.exception.RecordNotFoundException;
-import com.arcadedb.graph.Edge;
-import com.arcadedb.graph.GhostEdgeReporter;
+import com.arcadedb.graph.NeighborView;
 import com.arcadedb.graph.Vertex;
+import com.arcadedb.graph.olap.GraphAlgorithms;
 import com.arcadedb.query.sql.executor.CommandContext;
 import com.arcadedb.query.sql.executor.Result;
 import com.arcadedb.query.sql.executor.ResultInternal;
 import com.arcadedb.query.sql.executor.WorkGuard;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -50,7 +44,12 @@ import java.util.stream.Stream;
  * Config map parameters (all optional):
  * <ul>
  *   <li>normalized (boolean, default true): whether to normalize scores by 2/((n-1)(n-2))</li>
+ *   <li>samplingSize (int, default 0): estimate the scores from this many random source nodes, scaled by
+ *   n/samplingSize; 0 computes them exactly from every node</li>
+ *   <li>samplingSeed (long, default random): seed of the source selection, for repeatable estimates</li>
  * </ul>
+ * Runs on the Graph Analytical View's CSR arrays when one covers the graph, and spreads the sources over the
+ * query-engine threads either way.
  * </p>
  * <p>
  * Example Cypher usage:
@@ -97,86 +96,23 @@ public class AlgoBetweenness extends AbstractAlgoProcedure {
 
     final Map<String, Object> config = args.length > 0 ? extractMap(args[0], "config") : null;
     final boolean normalized = config == null || !Boolean.FALSE.equals(config.get("normalized"));
+    final int samplingSize = config != null && config.get("samplingSize") instanceof Number k ?
+        extractInt(k, "samplingSize", 0) : 0;
+    final long samplingSeed = config != null && config.get("samplingSeed") instanceof Number seed ?
+        seed.longValue() : ThreadLocalRandom.current().nextLong();
 
     final Database db = context.getDatabase();
     final WorkGuard guard = newWorkGuard(context);
-    final List<Vertex> vertices = loadVertices(db, null, newMemoryBudget(db));
-    if (vertices.isEmpty())
+    final GraphData graph = loadGraph(db, null, null, context);
+    final int n = graph.nodeCount;
+    if (n == 0)
       return Stream.empty();
 
-    final int n = vertices.size();
-    final Map<Vertex, Integer> vertexIndex = new HashMap<>(n);
-    for (int i = 0; i < n; i++)
-      vertexIndex.put(vertices.get(i), i);
-
-    final double[] betweenness = new double[n];
-
-    // Brandes algorithm.
-    //
-    // A forward BFS and a backward accumulation per source node, so O(V x E) sized by nothing but the graph
-    // (issue #6302). The inner checkpoints keep the abort latency below one whole source's pass.
-    for (int s = 0; s < n; s++) {
-      guard.check();
-      final Vertex source = vertices.get(s);
-
-      final Deque<Integer> stack = new ArrayDeque<>();
-      final List<List<Integer>> predecessors = new ArrayList<>(n);
-      for (int i = 0; i < n; i++)
-        predecessors.add(new ArrayList<>());
-
-      final double[] sigma = new double[n];
-      final int[] dist = new int[n];
-      sigma[s] = 1.0;
-      for (int i = 0; i < n; i++)
-        dist[i] = -1;
-      dist[s] = 0;
-
-      final Queue<Integer> queue = new LinkedList<>();
-      queue.add(s);
-
-      int visited = 0;
-      while (!queue.isEmpty()) {
-        guard.checkPeriodically(visited++);
-        final int v = queue.poll();
-        stack.push(v);
-
-        final Vertex vVertex = vertices.get(v);
-        for (final Edge edge : vVertex.getEdges(Vertex.DIRECTION.OUT)) {
-          try {
-            final Vertex neighbor = edge.getInVertex();
-            final Integer w = vertexIndex.get(neighbor);
-            if (w == null)
-              continue;
-
-            // First time visiting w?
-            if (dist[w] < 0) {
-              queue.add(w);
-              dist[w] = dist[v] + 1;
-            }
-            // Shortest path to w via v?
-            if (dist[w] == dist[v] + 1) {
-              sigma[w] += sigma[v];
-              predecessors.get(w).add(v);
-            }
-          } catch (final RecordNotFoundException e) {
-            GhostEdgeReporter.reportSkipped(e);
-          }
-        }
-      }
-
-      // Back-propagation
-      final double[] delta = new double[n];
-      int accumulated = 0;
-      while (!stack.isEmpty()) {
-        guard.checkPeriodically(accumulated++);
-        final int w = stack.pop();
-        for (final int v : predecessors.get(w)) {
-          delta[v] += (sigma[v] / sigma[w]) * (1.0 + delta[w]);
-        }
-        if (w != s)
-          betweenness[w] += delta[w];
-      }
-    }
+    // Brandes, one BFS per source over the flat adjacency: O(V x E) sized by nothing but the graph (issue #6302),
+    // spread over the query-engine pool, and sampled down to the pivots when asked to
+    final NeighborView adj = graph.packedNeighborView(Vertex.DIRECTION.OUT);
+    final int workers = reserveSourceWorkers(graph.memory(), n, GraphAlgorithms.BETWEENNESS_BYTES_PER_NODE);
+    final double[] betweenness = GraphAlgorithms.betweenness(adj, samplingSize, samplingSeed, workers, guard::check);
 
     // Normalize
     if (normalized && n > 2) {
@@ -187,7 +123,7 @@ public class AlgoBetweenness extends AbstractAlgoProcedure {
 
     return IntStream.range(0, n).mapToObj(i -> {
       final ResultInternal result = new ResultInternal();
-      result.setProperty("node", vertices.get(i).getIdentity());
+      result.setProperty("node", graph.getRID(i));
       result.setProperty("score", betweenness[i]);
       return (Result) result;
     });
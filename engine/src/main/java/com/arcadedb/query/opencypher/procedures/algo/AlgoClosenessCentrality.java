@@ -19,19 +19,21 @@
 package com.arcadedb.query.opencypher.procedures.algo;
 
 import com.arcadedb.database.Database;
+import com.arcadedb.graph.NeighborView;
 import com.arcadedb.graph.Vertex;
+import com.arcadedb.graph.olap.GraphAlgorithms;
 import com.arcadedb.query.sql.executor.CommandContext;
 import com.arcadedb.query.sql.executor.Result;
 import com.arcadedb.query.sql.executor.ResultInternal;
 import com.arcadedb.query.sql.executor.WorkGuard;
 
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
- * Procedure: algo.closeness(relTypes?, direction?, normalized?)
+ * Procedure: algo.closeness(relTypes?, direction?, normalized?, samplingSize?, samplingSeed?)
  * <p>
  * Computes closeness centrality for every vertex: the reciprocal of the average shortest-path
  * distance to all other reachable vertices (BFS, unweighted). If {@code normalized=true}
@@ -45,6 +47,11 @@ import java.util.stream.Stream;
  * RETURN node.name, score ORDER BY score DESC
  * </pre>
  * </p>
+ * <p>
+ * A positive {@code samplingSize} below the vertex count estimates the scores from that many random pivots instead
+ * of a BFS from every vertex, seeded with {@code samplingSeed} for repeatable results. Either way the traversals run
+ * on the Graph Analytical View's CSR arrays when one covers the graph, spread over the query-engine threads.
+ * </p>
  *
  * @author Luca Garulli (l.garulli@arcadedata.com)
  */
@@ -63,7 +70,7 @@ public class AlgoClosenessCentrality extends AbstractAlgoProcedure {
 
   @Override
   public int getMaxArgs() {
-    return 3;
+    return 5;
   }
 
   @Override
@@ -83,60 +90,26 @@ public class AlgoClosenessCentrality extends AbstractAlgoProcedure {
     final String[] relTypes = args.length > 0 ? extractRelTypes(args[0]) : null;
     final Vertex.DIRECTION dir = args.length > 1 ? parseDirection(extractString(args[1], "direction")) : Vertex.DIRECTION.BOTH;
     final boolean normalized = args.length > 2 ? Boolean.parseBoolean(args[2].toString()) : true;
+    final int samplingSize = args.length > 3 && args[3] instanceof Number k ? extractInt(k, "samplingSize", 0) : 0;
+    final long samplingSeed = args.length > 4 && args[4] instanceof Number seed ? seed.longValue() :
+        ThreadLocalRandom.current().nextLong();
 
     final Database db = context.getDatabase();
     final WorkGuard guard = newWorkGuard(context);
 
     final GraphData graph = loadGraph(db, null, relTypes, context);
-
-
     final int n = graph.nodeCount;
     if (n == 0)
       return Stream.empty();
-    final int[][] adj = graph.adjacency(dir, relTypes);
-
-    // BFS from each vertex using primitive int[] queue (no boxing)
-    final int[] queue = new int[n];
-    final int[] dist = new int[n];
-    final double[] scores = new double[n];
-
-    for (int src = 0; src < n; src++) {
-      // One BFS per source is O(V + E), and it runs once per node: O(V x (V + E)) sized by nothing but the
-      // graph (issue #6302). The inner checkpoint is what keeps the abort latency below a whole traversal on a
-      // graph where one BFS is itself long.
-      guard.check();
-      Arrays.fill(dist, -1);
-      dist[src] = 0;
-      int head = 0, tail = 0;
-      queue[tail++] = src;
-      long sumDist = 0;
-      int reachable = 0;
-
-      while (head < tail) {
-        guard.checkPeriodically(head);
-        final int u = queue[head++];
-        final int[] neighbors = adj[u];
-        for (int k = 0; k < neighbors.length; k++) {
-          final int v = neighbors[k];
-          if (dist[v] == -1) {
-            dist[v] = dist[u] + 1;
-            sumDist += dist[v];
-            reachable++;
-            queue[tail++] = v;
-          }
-        }
-      }
 
-      if (reachable == 0 || sumDist == 0) {
-        scores[src] = 0.0;
-      } else {
-        scores[src] = (double) reachable / sumDist;
-        if (normalized && n > 1)
-          scores[src] *= (double) reachable / (n - 1);
-      }
-    }
+    // One BFS per source is O(V + E), and it runs once per node: O(V x (V + E)) sized by nothing but the graph
+    // (issue #6302). The kernel spreads the sources over the query-engine threads, or traverses only the sampled
+    // pivots, backwards, when asked to estimate.
+    final NeighborView adj = graph.packedNeighborView(dir, relTypes);
+    final NeighborView reverse = samplingSize > 0 && samplingSize < n ? graph.packedNeighborView(reverse(dir), relTypes) : null;
+    final int workers = reserveSourceWorkers(graph.memory(), n, GraphAlgorithms.DISTANCE_BFS_BYTES_PER_NODE);
+    final double[] scores = GraphAlgorithms.closeness(adj, reverse, normalized, samplingSize, samplingSeed, workers, guard::check);
 
-    // Build result stream
     return IntStream.range(0, n).mapToObj(i -> {
       final ResultInternal r = new ResultInternal();
       r.setProperty("node", graph.getRID(i));
@@ -19,13 +19,14 @@
 package com.arcadedb.query.opencypher.procedures.algo;
 
 import com.arcadedb.database.Database;
+import com.arcadedb.graph.NeighborView;
 import com.arcadedb.graph.Vertex;
+import com.arcadedb.graph.olap.GraphAlgorithms;
 import com.arcadedb.query.sql.executor.CommandContext;
 import com.arcadedb.query.sql.executor.Result;
 import com.arcadedb.query.sql.executor.ResultInternal;
 import com.arcadedb.query.sql.executor.WorkGuard;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -87,42 +88,15 @@ public class AlgoEccentricity extends AbstractAlgoProcedure {
     final WorkGuard guard = newWorkGuard(context);
 
     final GraphData graph = loadGraph(db, null, relTypes, context);
-
-
     final int n = graph.nodeCount;
     if (n == 0)
       return Stream.empty();
-    final int[][] adj = graph.adjacency(dir, relTypes);
-
-    final int[] ecc = new int[n];
-    final int[] queue = new int[n];
-    final int[] dist = new int[n];
-
-    for (int src = 0; src < n; src++) {
-      // One BFS per source is O(V + E), and it runs once per node: O(V x (V + E)) sized by nothing but the
-      // graph (issue #6302). The inner checkpoint is what keeps the abort latency below a whole traversal on a
-      // graph where one BFS is itself long.
-      guard.check();
-      Arrays.fill(dist, -1);
-      dist[src] = 0;
-      int head = 0, tail = 0;
-      queue[tail++] = src;
-      int maxDist = 0;
-
-      while (head < tail) {
-        guard.checkPeriodically(head);
-        final int u = queue[head++];
-        for (final int v : adj[u]) {
-          if (dist[v] == -1) {
-            dist[v] = dist[u] + 1;
-            if (dist[v] > maxDist)
-              maxDist = dist[v];
-            queue[tail++] = v;
-          }
-        }
-      }
-      ecc[src] = maxDist;
-    }
+
+    // One BFS per source is O(V + E), and it runs once per node: O(V x (V + E)) sized by nothing but the graph
+    // (issue #6302). The kernel spreads the sources over the query-engine threads.
+    final NeighborView adj = graph.packedNeighborView(dir, relTypes);
+    final int workers = reserveSourceWorkers(graph.memory(), n, GraphAlgorithms.DISTANCE_BFS_BYTES_PER_NODE);
+    final int[] ecc = GraphAlgorithms.eccentricity(adj, workers, guard::check);
 
     // Compute diameter and radius in a single pass
     int diameter = 0;
@@ -18,18 +18,11 @@
  */
 package com.arcadedb.query.opencypher.procedures.algo;
 
-import com.arcadedb.database.Database;
 import com.arcadedb.graph.Vertex;
-import com.arcadedb.query.sql.executor.CommandContext;
-import com.arcadedb.query.sql.executor.Result;
-import com.arcadedb.query.sql.executor.ResultInternal;
+import com.arcadedb.graph.olap.NodeEmbeddings;
 import com.arcadedb.query.sql.executor.WorkGuard;
 
-import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 /**
  * Procedure: algo.fastrp([config])
@@ -63,45 +56,34 @@ import java.util.stream.Stream;
  * </pre>
  * </p>
  *
- * <p>Working set: two {@code nodeCount x dimensions} matrices, reserved through
+ * <p>Runs the {@link NodeEmbeddings#fastRP} kernel: flat {@code float} rows, SIMD row arithmetic and parallel
+ * propagation rounds. {@link AlgoFastRPWrite algo.fastrp.write} stores the embeddings into a property instead.</p>
+ *
+ * <p>Working set: two flat {@code nodeCount x dimensions} float matrices, reserved through
  * {@link AbstractAlgoProcedure.MemoryBudget} before either is allocated.</p>
  *
  * @author Luca Garulli (l.garulli@arcadedata.com)
  */
-public class AlgoFastRP extends AbstractAlgoProcedure {
+public class AlgoFastRP extends AbstractEmbeddingProcedure {
 
   @Override
   public String getName() {
     return "algo.fastrp";
   }
 
-  @Override
-  public int getMinArgs() {
-    return 0;
-  }
-
-  @Override
-  public int getMaxArgs() {
-    return 1;
-  }
-
-
   @Override
   public String getDescription() {
     return "Generates dense node embeddings using Fast Random Projection by propagating sparse random projections through the graph topology";
   }
 
   @Override
-  public List<String> getYieldFields() {
-    return List.of("node", "embedding");
+  protected int dimension(final Map<String, Object> config) {
+    return config != null && config.get("dimensions") instanceof Number n ? extractEmbeddingDimension(n, "dimensions") : 128;
   }
 
   @Override
-  public Stream<Result> execute(final Object[] args, final Result inputRow, final CommandContext context) {
-    validateArgs(args);
-
-    final Map<String, Object> config = args.length > 0 ? extractMap(args[0], "config") : null;
-    final int dimensions = config != null && config.get("dimensions") instanceof Number n ? extractEmbeddingDimension(n, "dimensions") : 128;
+  protected float[] embed(final Map<String, Object> config, final GraphData graph, final WorkGuard guard) {
+    final int dimensions = dimension(config);
     final int iterations = config != null && config.get("iterations") instanceof Number n ? extractInt(n, "iterations", 1) : 4;
     final double normStrength = config != null && config.get("normalization") instanceof Number n ? n.doubleValue() : 0.0;
     final double selfInfluence = config != null && config.get("selfInfluence") instanceof Number n ? n.doubleValue() : 0.0;
@@ -109,91 +91,20 @@ public class AlgoFastRP extends AbstractAlgoProcedure {
     final String[] relTypes = config != null ? extractRelTypes(config.get("relTypes")) : null;
     final Vertex.DIRECTION dir = parseDirection(config != null ? (String) config.get("direction") : null);
 
-    final Database db = context.getDatabase();
-    final WorkGuard guard = newWorkGuard(context);
-    final GraphData graph = loadGraph(db, null, relTypes, context);
-
-    final int n = graph.nodeCount;
-    if (n == 0)
-      return Stream.empty();
-
     // The two nodeCount x dimensions matrices below are the whole working set of this procedure, and the only
     // allocation of any size it makes: it has no walk buffer, so nothing else would ever price them. `dimensions`
-    // is capped at MAX_EMBEDDING_DIMENSION, which bounds one embedding ROW at 32 KB and says nothing about the
-    // matrix - at the default of 128 the pair costs about 2 KB per node, 2 GB at a million nodes. The node count
-    // and the knob are all the estimate needs, so the reservation comes before the adjacency lists are
-    // materialised: a call that cannot afford its matrices should not first pay the O(edges) build.
-    graph.memory().reserve(saturatingProduct(2L, matrixBytes(n, dimensions, DOUBLE_BYTES)),
+    // is capped at MAX_EMBEDDING_DIMENSION, which bounds one embedding ROW at 16 KB and says nothing about the
+    // matrix - at the default of 128 the pair costs 1 KB per node, 1 GB at a million nodes. The node count and the
+    // knob are all the estimate needs, so the reservation comes before the adjacency is materialised: a call that
+    // cannot afford its matrices should not first pay the O(edges) build.
+    final int n = graph.nodeCount;
+    graph.memory().reserve(saturatingProduct(2L, flatMatrixBytes(n, dimensions, FLOAT_BYTES)),
         "the embedding matrices", "2 matrices of " + n + " nodes x dimensions=" + dimensions);
 
-    final int[][] adj = graph.adjacency(dir, relTypes);
-
-    final int[] degree = new int[n];
-    for (int i = 0; i < n; i++)
-      degree[i] = adj[i].length;
-
-    // Sparse ternary initialisation: +√3 with p=1/6, -√3 with p=1/6, 0 with p=2/3
-    // (Achlioptas 2003 — optimal sparse random projection)
-    final Random rng = seed >= 0 ? new Random(seed) : new Random();
-    final double val = Math.sqrt(3.0);
-    final double[][] embed = new double[n][dimensions];
-    for (int i = 0; i < n; i++) {
-      // nodeCount x dimensions draws, before the first propagation round - so the checkpoint inside that round
-      // never sees this phase (issue #6295). `dimensions` has a ceiling, the node count has none, and a bounded
-      // per-node cost times an unbounded node count is still unbounded.
-      guard.checkPeriodically(i);
-      for (int d = 0; d < dimensions; d++) {
-        final int r = rng.nextInt(6);
-        if (r == 0)
-          embed[i][d] = val;
-        else if (r == 1)
-          embed[i][d] = -val;
-        // else 0 (4/6 probability)
-      }
-      normalizeL2(embed[i]);
-    }
-
-    // Iterative neighbourhood propagation
-    final double[][] newEmbed = new double[n][dimensions];
-    for (int iter = 0; iter < iterations; iter++) {
-      // iterations is a caller-supplied knob and this kernel has no convergence test at all, so it always runs the
-      // full count: the guard is the only thing that can end a run the caller no longer wants.
-      guard.check();
-      for (int i = 0; i < n; i++) {
-        // A single propagation walks the whole graph, so on a large one the checkpoint belongs inside it too.
-        guard.checkPeriodically(i);
-        final int deg = degree[i];
-        // Self contribution
-        for (int d = 0; d < dimensions; d++)
-          newEmbed[i][d] = selfInfluence * embed[i][d];
-
-        if (deg > 0) {
-          final double degFactor = normStrength == 0.0 ? 1.0 : Math.pow(deg, normStrength);
-          final double nw = (1.0 - selfInfluence) / degFactor;
-          for (final int j : adj[i]) {
-            final double jFactor = normStrength == 0.0 ? 1.0 : (degree[j] > 0 ? Math.pow(degree[j], normStrength) : 1.0);
-            final double w = nw / jFactor;
-            for (int d = 0; d < dimensions; d++)
-              newEmbed[i][d] += w * embed[j][d];
-          }
-        } else {
-          // Isolated node: keep self embedding
-          System.arraycopy(embed[i], 0, newEmbed[i], 0, dimensions);
-        }
-        normalizeL2(newEmbed[i]);
-      }
-      // Swap buffers
-      for (int i = 0; i < n; i++) {
-        guard.checkPeriodically(i);
-        System.arraycopy(newEmbed[i], 0, embed[i], 0, dimensions);
-      }
-    }
-
-    return IntStream.range(0, n).mapToObj(i -> {
-      final ResultInternal r = new ResultInternal();
-      r.setProperty("node", graph.getRID(i));
-      r.setProperty("embedding", toEmbeddingList(embed[i]));
-      return (Result) r;
-    });
+    // iterations is a caller-supplied knob and this kernel has no convergence test at all, so it always runs the
+    // full count: the guard, polled inside the initialisation and inside every round too, is the only thing that
+    // can end a run the caller no longer wants.
+    return NodeEmbeddings.fastRP(graph.packedNeighborView(dir, relTypes), dimensions, iterations, normStrength,
+        selfInfluence, seed, guard::check);
   }
 }
@@ -18,19 +18,11 @@
  */
 package com.arcadedb.query.opencypher.procedures.algo;
 
-import com.arcadedb.database.Database;
 import com.arcadedb.graph.Vertex;
-import com.arcadedb.query.sql.executor.CommandContext;
-import com.arcadedb.query.sql.executor.Result;
-import com.arcadedb.query.sql.executor.ResultInternal;
+import com.arcadedb.graph.olap.NodeEmbeddings;
 import com.arcadedb.query.sql.executor.WorkGuard;
 
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
 /**
  * Procedure: algo.graphsage([config])
@@ -60,162 +52,63 @@ import java.util.stream.Stream;
  * </pre>
  * </p>
  *
+ * <p>Runs the {@link NodeEmbeddings#graphSage} kernel: flat {@code float} rows, SIMD projections and parallel
+ * layers. {@link AlgoGraphSAGEWrite algo.graphsage.write} stores the embeddings into a property instead.</p>
+ *
  * <p>Working set: the feature matrix a layer reads, the one it writes, and that layer's projection - a
  * per-layer peak, since each layer drops the matrix it read - reserved through
  * {@link AbstractAlgoProcedure.MemoryBudget} before the first is allocated.</p>
  *
  * @author Luca Garulli (l.garulli@arcadedata.com)
  */
-public class AlgoGraphSAGE extends AbstractAlgoProcedure {
+public class AlgoGraphSAGE extends AbstractEmbeddingProcedure {
 
   @Override
   public String getName() {
     return "algo.graphsage";
   }
 
-  @Override
-  public int getMinArgs() {
-    return 0;
-  }
-
-  @Override
-  public int getMaxArgs() {
-    return 1;
-  }
-
-
   @Override
   public String getDescription() {
     return "Computes inductive node embeddings using unsupervised GraphSAGE mean-aggregation with random linear projection and ReLU activation";
   }
 
   @Override
-  public List<String> getYieldFields() {
-    return List.of("node", "embedding");
+  protected int dimension(final Map<String, Object> config) {
+    return config != null && config.get("embeddingDimension") instanceof Number n ?
+        extractEmbeddingDimension(n, "embeddingDimension") : 64;
   }
 
   @Override
-  public Stream<Result> execute(final Object[] args, final Result inputRow, final CommandContext context) {
-    validateArgs(args);
-
-    final Map<String, Object> config = args.length > 0 ? extractMap(args[0], "config") : null;
-    final int outDim = config != null && config.get("embeddingDimension") instanceof Number n ? extractEmbeddingDimension(n, "embeddingDimension") : 64;
+  protected float[] embed(final Map<String, Object> config, final GraphData graph, final WorkGuard guard) {
+    final int outDim = dimension(config);
     final int layers = config != null && config.get("layers") instanceof Number n ? extractInt(n, "layers", 1) : 2;
     final long seed = config != null && config.get("seed") instanceof Number n ? n.longValue() : -1L;
     final String[] relTypes = config != null ? extractRelTypes(config.get("relTypes")) : null;
     final Vertex.DIRECTION dir = parseDirection(config != null ? (String) config.get("direction") : null);
 
-    final Database db = context.getDatabase();
-    final WorkGuard guard = newWorkGuard(context);
-    final GraphData graph = loadGraph(db, null, relTypes, context);
-
     final int n = graph.nodeCount;
-    if (n == 0)
-      return Stream.empty();
-
-    // Initial node features: [log-normalised degree, Gaussian noise x (inDim-1)]
-    final int initDim = Math.max(outDim, 16);
+    // Initial node features: [log-normalised degree, Gaussian noise x (initDim-1)]
+    final int initDim = NodeEmbeddings.graphSageInputDimension(outDim);
 
     // Peak working set: the feature matrix a layer reads, the one it writes, and that layer's projection.
     // Neither `layers` nor the matrices it walks through raise the peak - each layer drops the matrix it read -
     // so the estimate is per-layer rather than per-run. initDim >= outDim, so the widest projection is the one
     // of the first layer, whose concatenation is 2 x initDim wide. The node count and the knob are all the
-    // estimates need, so they are reserved before the adjacency lists are materialised: a call that cannot
-    // afford its matrices should not first pay the O(edges) build.
+    // estimates need, so they are reserved before the adjacency is materialised: a call that cannot afford its
+    // matrices should not first pay the O(edges) build.
     final MemoryBudget memory = graph.memory();
-    memory.reserve(matrixBytes(n, initDim, DOUBLE_BYTES), "the node feature matrix",
+    memory.reserve(flatMatrixBytes(n, initDim, FLOAT_BYTES), "the node feature matrix",
         n + " nodes x " + initDim + " initial features");
     // Unconditional since #6264 gave `layers` a minimum of 1: there is no longer a zero-layer call whose layer
     // matrices are never allocated, so guarding this would only be dead code.
-    memory.reserve(saturatingSum(matrixBytes(n, outDim, DOUBLE_BYTES), matrixBytes(outDim, 2L * initDim, DOUBLE_BYTES)),
+    memory.reserve(saturatingSum(flatMatrixBytes(n, outDim, FLOAT_BYTES), flatMatrixBytes(outDim, 2L * initDim, FLOAT_BYTES)),
         "the layer matrices", n + " nodes x embeddingDimension=" + outDim + " plus a projection of "
             + outDim + " x " + (2L * initDim));
 
-    final int[][] adj = graph.adjacency(dir, relTypes);
-
-    final int[] degree = new int[n];
-    int maxDeg = 0;
-    for (int i = 0; i < n; i++) {
-      degree[i] = adj[i].length;
-      if (degree[i] > maxDeg)
-        maxDeg = degree[i];
-    }
-    final double logMaxDeg = maxDeg > 0 ? Math.log1p(maxDeg) : 1.0;
-
-    final Random rng = seed >= 0 ? new Random(seed) : new Random();
-    double[][] embed = new double[n][initDim];
-    for (int i = 0; i < n; i++) {
-      // nodeCount x initDim Gaussian draws plus a normalisation each, and all of it before the first layer - so
-      // the checkpoint inside the layer loop never sees this phase (issue #6295).
-      guard.checkPeriodically(i);
-      embed[i][0] = Math.log1p(degree[i]) / logMaxDeg; // structural feature
-      for (int d = 1; d < initDim; d++)
-        embed[i][d] = rng.nextGaussian() * 0.1;
-      normalizeL2(embed[i]);
-    }
-
-    int curDim = initDim;
-
-    // Layer-wise aggregation
-    for (int layer = 0; layer < layers; layer++) {
-      // layers is a caller-supplied knob and this kernel has no convergence test at all, so it always runs the full
-      // count: the guard is the only thing that can end a run the caller no longer wants. The Xavier initialisation
-      // below carries no checkpoint of its own because both its bounds are embedding dimensions, capped at
-      // MAX_EMBEDDING_DIMENSION - it is bounded work whatever the caller asks for, unlike the per-node loop.
-      guard.check();
-      // Random projection: (2*curDim) → outDim with Xavier initialisation
-      final int concatDim = curDim * 2;
-      final double projScale = Math.sqrt(2.0 / (concatDim + outDim));
-      final double[][] W = new double[outDim][concatDim];
-      for (int o = 0; o < outDim; o++)
-        for (int j = 0; j < concatDim; j++)
-          W[o][j] = rng.nextGaussian() * projScale;
-
-      final double[][] nextEmbed = new double[n][outDim];
-      final double[] agg = new double[curDim];
-      final double[] concat = new double[concatDim];
-
-      for (int i = 0; i < n; i++) {
-        // A single layer walks the whole graph, so on a large one the checkpoint belongs inside the layer too.
-        guard.checkPeriodically(i);
-        // Mean aggregation over neighbours
-        final int deg = degree[i];
-        Arrays.fill(agg, 0.0);
-        if (deg > 0) {
-          for (final int j : adj[i])
-            for (int d = 0; d < curDim; d++)
-              agg[d] += embed[j][d];
-          for (int d = 0; d < curDim; d++)
-            agg[d] /= deg;
-        } else {
-          System.arraycopy(embed[i], 0, agg, 0, curDim);
-        }
-
-        // Concatenate self + aggregated
-        System.arraycopy(embed[i], 0, concat, 0, curDim);
-        System.arraycopy(agg, 0, concat, curDim, curDim);
-
-        // Linear projection + ReLU
-        for (int o = 0; o < outDim; o++) {
-          double sum = 0.0;
-          final double[] wo = W[o];
-          for (int j = 0; j < concatDim; j++)
-            sum += wo[j] * concat[j];
-          nextEmbed[i][o] = Math.max(0.0, sum);
-        }
-        normalizeL2(nextEmbed[i]);
-      }
-
-      embed = nextEmbed;
-      curDim = outDim;
-    }
-
-    final double[][] finalEmbed = embed;
-    return IntStream.range(0, n).mapToObj(i -> {
-      final ResultInternal r = new ResultInternal();
-      r.setProperty("node", graph.getRID(i));
-      r.setProperty("embedding", toEmbeddingList(finalEmbed[i]));
-      return (Result) r;
-    });
+    // layers is a caller-supplied knob and this kernel has no convergence test at all, so it always runs the full
+    // count: the guard, polled inside the initialisation and inside every layer too, is the only thing that can end
+    // a run the caller no longer wants.
+    return NodeEmbeddings.graphSage(graph.packedNeighborView(dir, relTypes), outDim, layers, seed, guard::check);
   }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.opencypher.procedures.algo;
+
+import com.arcadedb.query.sql.executor.CommandContext;
+import com.arcadedb.query.sql.executor.Result;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Procedure: algo.hashgnn.write(config)
+ * <p>
+ * Runs {@link AlgoHashGNN algo.hashgnn} and stores the embedding of every vertex into a property, as a {@code float[]},
+ * rather than streaming one row per vertex back. The write-back commits every {@code batchSize} vertices in a
+ * transaction of its own. An {@code LSM_VECTOR} index on the property is maintained by the same writes, so the
+ * embeddings are searchable by similarity as soon as the call returns; its dimension must match the embeddings'.
+ * Returns a single summary row.
+ * </p>
+ * <p>
+ * Config map parameters: those of {@code algo.hashgnn}, plus
+ * <ul>
+ *   <li>writeProperty (string, required): vertex property receiving the embedding</li>
+ *   <li>batchSize (int, default 10000): vertices written per transaction</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Example:
+ * <pre>
+ * CALL algo.hashgnn.write({embeddingDimension: 64, writeProperty: 'embedding'})
+ * YIELD nodePropertiesWritten, embeddingDimension
+ * RETURN nodePropertiesWritten, embeddingDimension
+ * </pre>
+ * </p>
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class AlgoHashGNNWrite extends AlgoHashGNN {
+  public static final String NAME = "algo.hashgnn.write";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public int getMinArgs() {
+    return 1;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Generates HashGNN node embeddings and writes them into a vertex property";
+  }
+
+  @Override
+  public List<String> getYieldFields() {
+    return List.of("nodePropertiesWritten", "embeddingDimension");
+  }
+
+  @Override
+  public boolean isWriteProcedure() {
+    return true;
+  }
+
+  @Override
+  public Stream<Result> execute(final Object[] args, final Result inputRow, final CommandContext context) {
+    return write(args, context);
+  }
+}
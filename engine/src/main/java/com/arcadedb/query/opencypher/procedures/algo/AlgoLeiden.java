@@ -18,15 +18,13 @@
  */
 package com.arcadedb.query.opencypher.procedures.algo;
 
-import com.arcadedb.database.Database;
-import com.arcadedb.graph.Vertex;
+import com.arcadedb.graph.olap.CommunityDetection;
+import com.arcadedb.graph.olap.CommunityGraph;
 import com.arcadedb.query.sql.executor.CommandContext;
 import com.arcadedb.query.sql.executor.Result;
 import com.arcadedb.query.sql.executor.ResultInternal;
 import com.arcadedb.query.sql.executor.WorkGuard;
 
-import com.arcadedb.utility.IntIntHashMap;
-
 import java.util.List;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -39,6 +37,11 @@ import java.util.stream.Stream;
  * controls community granularity.
  * </p>
  * <p>
+ * Runs in {@link CommunityDetection} over the flat CSR of the graph, {@code maxIterations} being the number of
+ * local-moving sweeps per level. {@link AlgoLeidenWrite algo.leiden.write} stores the communities into a vertex
+ * property instead.
+ * </p>
+ * <p>
  * Example:
  * <pre>
  * CALL algo.leiden('KNOWS', 10, 1.0)
@@ -52,6 +55,9 @@ import java.util.stream.Stream;
 public class AlgoLeiden extends AbstractAlgoProcedure {
   public static final String NAME = "algo.leiden";
 
+  static final int    MAX_LEVELS = 10;
+  static final double TOLERANCE  = 0.0001;
+
   @Override
   public String getName() {
     return NAME;
@@ -85,152 +91,24 @@ public class AlgoLeiden extends AbstractAlgoProcedure {
     final int maxIterations = args.length > 1 && args[1] instanceof Number n ? extractInt(n, "maxIterations", 1) : 10;
     final double resolution = args.length > 2 && args[2] instanceof Number n ? n.doubleValue() : 1.0;
 
-    final Database db = context.getDatabase();
     final WorkGuard guard = newWorkGuard(context);
-
-    final GraphData graph = loadGraph(db, null, relTypes, context);
-
-
-    final int n = graph.nodeCount;
-    if (n == 0)
+    final GraphData graph = loadGraph(context.getDatabase(), null, relTypes, context);
+    if (graph.nodeCount == 0)
       return Stream.empty();
-    final int[][] adj = graph.adjacency(Vertex.DIRECTION.BOTH, relTypes);
-
-    // Compute total edges (m) and node degrees
-    final int[] degree = new int[n];
-    long totalEdges = 0;
-    for (int i = 0; i < n; i++) {
-      degree[i] = adj[i].length;
-      totalEdges += degree[i];
-    }
-    // Each undirected edge counted twice
-    final double m = totalEdges / 2.0;
-    if (m == 0.0) {
-      // Isolated nodes: each in its own community
-      return buildResults(graph, initCommunities(n));
-    }
-
-    // Phase 1: Initialize each node in its own community
-    final int[] community = initCommunities(n);
-    final double[] communityWeight = new double[n]; // sum of internal edge weights
-    final long[] communityDegree = new long[n];     // sum of degrees of nodes in community
-    for (int i = 0; i < n; i++)
-      communityDegree[i] = degree[i];
-
-    for (int iter2 = 0; iter2 < maxIterations; iter2++) {
-      // maxIterations is a caller-supplied knob and the "nothing moved" break only fires if the graph settles, so
-      // the outer loop carries the checkpoint. One iteration is two passes over every edge.
-      guard.check();
-      boolean changed = false;
-
-      // Phase 1: Local moves (greedy modularity optimization)
-      for (int i = 0; i < n; i++) {
-        // A single pass walks the whole graph, so on a large one the checkpoint belongs inside the pass too.
-        guard.checkPeriodically(i);
-        final int currentComm = community[i];
-        final long ki = degree[i];
-
-        // Count weights to each neighboring community
-        final IntIntHashMap commWeights = new IntIntHashMap();
-        for (final int j : adj[i])
-          commWeights.increment(community[j]);
-
-        int bestComm = currentComm;
-        final double[] bestGain = { 0.0 };
-        final int[] bestCommHolder = { currentComm };
-
-        commWeights.forEach((candidateComm, weight) -> {
-          if (candidateComm == currentComm)
-            return;
-
-          final double eIc = weight;
-          final double dc = communityDegree[candidateComm];
-          // Modularity gain = [e_ic / m] - γ * [k_i * d_c / (2m²)]
-          final double gain = eIc / m - resolution * ki * dc / (2.0 * m * m);
 
-          if (gain > bestGain[0]) {
-            bestGain[0] = gain;
-            bestCommHolder[0] = candidateComm;
-          }
-        });
-        bestComm = bestCommHolder[0];
-
-        if (bestComm != currentComm) {
-          communityDegree[currentComm] -= ki;
-          communityDegree[bestComm] += ki;
-          community[i] = bestComm;
-          changed = true;
-        }
-      }
-
-      // Phase 2: Refinement — within each community, try to split into sub-communities
-      // by re-running local moves restricted to same community
-      if (changed) {
-        boolean refined = false;
-        for (int i = 0; i < n; i++) {
-          guard.checkPeriodically(i);
-          final int currentComm = community[i];
-          final long ki = degree[i];
-
-          final IntIntHashMap sameCommWeights = new IntIntHashMap();
-          for (final int j : adj[i]) {
-            if (community[j] == currentComm)
-              sameCommWeights.increment(community[j]);
-          }
-
-          // Try removing from current community
-          final int internalEdges = sameCommWeights.get(currentComm, 0);
-          final double removeGain = -(internalEdges / m - resolution * ki * communityDegree[currentComm] / (2.0 * m * m));
-
-          if (removeGain > 0.0) {
-            // Move to its own community (use index as community ID)
-            final int newComm = i;
-            if (newComm != currentComm) {
-              communityDegree[currentComm] -= ki;
-              communityDegree[newComm] = ki;
-              community[i] = newComm;
-              refined = true;
-            }
-          }
-        }
-
-        if (!refined)
-          break;
-      } else {
-        break;
-      }
-    }
-
-    // Remap communities to sequential IDs
-    final IntIntHashMap remap = new IntIntHashMap();
-    int nextId = 0;
-    for (int i = 0; i < n; i++) {
-      if (!remap.containsKey(community[i]))
-        remap.put(community[i], nextId++);
-    }
-
-    return IntStream.range(0, n).mapToObj(i -> {
+    final int[] communities = detect(graph, guard, relTypes, maxIterations, resolution).communities();
+    return IntStream.range(0, graph.nodeCount).mapToObj(i -> {
       final ResultInternal r = new ResultInternal();
       r.setProperty("nodeId", graph.getRID(i));
-      r.setProperty("community", remap.get(community[i], -1));
+      r.setProperty("community", communities[i]);
       return (Result) r;
     });
   }
 
-  private int[] initCommunities(final int n) {
-    final int[] c = new int[n];
-    for (int i = 0; i < n; i++)
-      c[i] = i;
-    return c;
-  }
-
-  private Stream<Result> buildResults(final GraphData graph, final int[] community) {
-    final int n = graph.nodeCount;
-    return IntStream.range(0, n).mapToObj(i -> {
-      final ResultInternal r = new ResultInternal();
-      r.setProperty("nodeId", graph.getRID(i));
-      r.setProperty("community", community[i]);
-      return (Result) r;
-    });
+  protected CommunityDetection.Partition detect(final GraphData graph, final WorkGuard guard, final String[] relTypes,
+      final int maxIterations, final double resolution) {
+    // maxIterations is a caller-supplied knob: the guard runs before every level, sweep and color of the run
+    final CommunityGraph communityGraph = loadCommunityGraph(graph, guard, null, relTypes);
+    return CommunityDetection.leiden(communityGraph, MAX_LEVELS, maxIterations, TOLERANCE, resolution, guard::check);
   }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.opencypher.procedures.algo;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.graph.olap.CommunityDetection;
+import com.arcadedb.query.sql.executor.CommandContext;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultInternal;
+import com.arcadedb.query.sql.executor.WorkGuard;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Procedure: algo.leiden.write(writeProperty, relTypes?, maxIterations?, resolution?, batchSize?)
+ * <p>
+ * Runs {@link AlgoLeiden algo.leiden} and stores the community of every vertex into {@code writeProperty}, committing
+ * every {@code batchSize} vertices (default 10000) in a transaction of its own. Returns a single summary row.
+ * </p>
+ * <p>
+ * Example:
+ * <pre>
+ * CALL algo.leiden.write('community', 'KNOWS')
+ * YIELD nodePropertiesWritten, communityCount, modularity
+ * RETURN nodePropertiesWritten, communityCount, modularity
+ * </pre>
+ * </p>
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class AlgoLeidenWrite extends AlgoLeiden {
+  public static final String NAME = "algo.leiden.write";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public int getMinArgs() {
+    return 1;
+  }
+
+  @Override
+  public int getMaxArgs() {
+    return 5;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Detects communities with the Leiden algorithm and writes them into a vertex property";
+  }
+
+  @Override
+  public List<String> getYieldFields() {
+    return List.of("nodePropertiesWritten", "communityCount", "modularity", "levels");
+  }
+
+  @Override
+  public boolean isWriteProcedure() {
+    return true;
+  }
+
+  @Override
+  public Stream<Result> execute(final Object[] args, final Result inputRow, final CommandContext context) {
+    validateArgs(args);
+
+    final String writeProperty = extractString(args[0], "writeProperty");
+    if (writeProperty == null || writeProperty.isBlank())
+      throw new IllegalArgumentException(getName() + "(): writeProperty is required");
+    final String[] relTypes = args.length > 1 ? extractRelTypes(args[1]) : null;
+    final int maxIterations = args.length > 2 && args[2] instanceof Number n ? extractInt(n, "maxIterations", 1) : 10;
+    final double resolution = args.length > 3 && args[3] instanceof Number n ? n.doubleValue() : 1.0;
+    final int batchSize = args.length > 4 && args[4] instanceof Number n ?
+        extractInt(n, "batchSize", 1) : AlgoLouvainWrite.DEFAULT_BATCH_SIZE;
+
+    final Database db = context.getDatabase();
+    final WorkGuard guard = newWorkGuard(context);
+    final GraphData graph = loadGraph(db, null, relTypes, context);
+
+    final ResultInternal result = new ResultInternal();
+    if (graph.nodeCount == 0) {
+      result.setProperty("nodePropertiesWritten", 0L);
+      result.setProperty("communityCount", 0);
+      result.setProperty("modularity", 0.0);
+      result.setProperty("levels", 0);
+      return Stream.of(result);
+    }
+
+    final CommunityDetection.Partition partition = detect(graph, guard, relTypes, maxIterations, resolution);
+    result.setProperty("nodePropertiesWritten",
+        writeNodeProperty(db, graph, writeProperty, partition.communities(), batchSize, guard));
+    result.setProperty("communityCount", partition.communityCount());
+    result.setProperty("modularity", partition.modularity());
+    result.setProperty("levels", partition.levels());
+    return Stream.of(result);
+  }
+}
@@ -19,18 +19,13 @@
 package com.arcadedb.query.opencypher.procedures.algo;
 
 import com.arcadedb.database.Database;
-import com.arcadedb.exception.RecordNotFoundException;
-import com.arcadedb.graph.Edge;
-import com.arcadedb.graph.GhostEdgeReporter;
-import com.arcadedb.graph.Vertex;
+import com.arcadedb.graph.olap.CommunityDetection;
+import com.arcadedb.graph.olap.CommunityGraph;
 import com.arcadedb.query.sql.executor.CommandContext;
 import com.arcadedb.query.sql.executor.Result;
 import com.arcadedb.query.sql.executor.ResultInternal;
 import com.arcadedb.query.sql.executor.WorkGuard;
 
-import com.arcadedb.utility.IntIntHashMap;
-
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.IntStream;
@@ -45,11 +40,20 @@ import java.util.stream.Stream;
  * and customer segmentation.
  * </p>
  * <p>
+ * The graph is loaded once into a flat CSR (the Graph Analytical View's own arrays when one covers it) and the
+ * levels run in {@link CommunityDetection}: parallel local moving on large levels, each level aggregated into a
+ * new in-memory CSR. {@link AlgoLouvainWrite algo.louvain.write} runs the same detection and stores the
+ * community ids into a vertex property instead of returning them.
+ * </p>
+ * <p>
  * Config map parameters (all optional):
  * <ul>
- *   <li>maxIterations (int, default 10): maximum number of optimization iterations</li>
- *   <li>tolerance (double, default 0.0001): minimum modularity improvement to continue</li>
+ *   <li>maxIterations (int, default 10): maximum number of local-moving sweeps per level</li>
+ *   <li>maxLevels (int, default 10): maximum number of aggregation levels</li>
+ *   <li>tolerance (double, default 0.0001): minimum modularity improvement of a sweep to continue</li>
+ *   <li>resolution (double, default 1.0): higher values yield smaller communities</li>
  *   <li>weightProperty (string, default null): edge property to use as weight</li>
+ *   <li>relTypes (string or list, default all): edge types to consider</li>
  * </ul>
  * </p>
  * <p>
@@ -96,181 +100,42 @@ public class AlgoLouvain extends AbstractAlgoProcedure {
     validateArgs(args);
 
     final Map<String, Object> config = args.length > 0 ? extractMap(args[0], "config") : null;
-    final int maxIterations = config != null && config.get("maxIterations") instanceof Number n ?
-        extractInt(n, "maxIterations", 1) : 10;
-    final double tolerance = config != null && config.get("tolerance") instanceof Number n ?
-        n.doubleValue() : 0.0001;
-    final String weightProperty = config != null ? (String) config.get("weightProperty") : null;
-
-    final Database db = context.getDatabase();
     final WorkGuard guard = newWorkGuard(context);
-    final List<Vertex> vertices = loadVertices(db, null, newMemoryBudget(db));
-    if (vertices.isEmpty())
+    final GraphData graph = loadGraph(context.getDatabase(), null,
+        config != null ? extractRelTypes(config.get("relTypes")) : null, context);
+    if (graph.nodeCount == 0)
       return Stream.empty();
 
-    final int n = vertices.size();
-    final Map<Vertex, Integer> vertexIndex = new HashMap<>(n);
-    for (int i = 0; i < n; i++)
-      vertexIndex.put(vertices.get(i), i);
-
-    // Initialize: each node in its own community
-    final int[] community = new int[n];
-    for (int i = 0; i < n; i++)
-      community[i] = i;
-
-    // Precompute total edge weight for modularity calculation
-    double totalWeight = 0.0;
-    final double[] nodeDegree = new double[n];
-    for (int i = 0; i < n; i++) {
-      final Vertex v = vertices.get(i);
-      for (final Edge edge : v.getEdges(Vertex.DIRECTION.BOTH)) {
-        try {
-          double w = 1.0;
-          if (weightProperty != null) {
-            final Object wObj = edge.get(weightProperty);
-            if (wObj instanceof Number num)
-              w = num.doubleValue();
-          }
-          nodeDegree[i] += w;
-          totalWeight += w;
-        } catch (final RecordNotFoundException e) {
-          GhostEdgeReporter.reportSkipped(e);
-        }
-      }
-    }
-    totalWeight /= 2.0; // Each edge counted twice
-
-    double prevModularity = computeModularity(vertices, community, vertexIndex, nodeDegree, totalWeight, weightProperty);
-
-    // Phase 1: Modularity optimization
-    for (int iter = 0; iter < maxIterations; iter++) {
-      // maxIterations is a caller-supplied knob and the "nothing moved" break only fires if the graph settles, so
-      // the outer loop carries the checkpoint. One iteration walks every edge, plus a modularity pass.
-      guard.check();
-      boolean changed = false;
-
-      for (int i = 0; i < n; i++) {
-        // One node is already O(deg x n) - getCommunityDegree() scans every node once per candidate community -
-        // so the per-node checkpoint is unthrottled: 1024 of these would be 1024 whole-graph scans of latency.
-        guard.check();
-        final Vertex v = vertices.get(i);
-        final int currentCommunity = community[i];
-
-        // Compute neighbor community weights
-        final Map<Integer, Double> neighborCommunityWeight = new HashMap<>();
-        for (final Edge edge : v.getEdges(Vertex.DIRECTION.BOTH)) {
-          try {
-            final Vertex neighbor = edge.getOut().equals(v.getIdentity()) ?
-                edge.getInVertex() : edge.getOutVertex();
-            final Integer neighborIdx = vertexIndex.get(neighbor);
-            if (neighborIdx == null)
-              continue;
-
-            double w = 1.0;
-            if (weightProperty != null) {
-              final Object wObj = edge.get(weightProperty);
-              if (wObj instanceof Number num)
-                w = num.doubleValue();
-            }
-            final int neighborComm = community[neighborIdx];
-            neighborCommunityWeight.merge(neighborComm, w, Double::sum);
-          } catch (final RecordNotFoundException e) {
-            GhostEdgeReporter.reportSkipped(e);
-          }
-        }
-
-        // Find best community to move to
-        int bestCommunity = currentCommunity;
-        double bestGain = 0.0;
-
-        for (final Map.Entry<Integer, Double> entry : neighborCommunityWeight.entrySet()) {
-          final int candidateCommunity = entry.getKey();
-          if (candidateCommunity == currentCommunity)
-            continue;
-
-          // Modularity gain = 2 * w_ic - k_i * sum_c / m
-          final double communityTotalDegree = getCommunityDegree(community, nodeDegree, candidateCommunity, n);
-          final double gain = entry.getValue() - nodeDegree[i] * communityTotalDegree / (2.0 * totalWeight);
-
-          if (gain > bestGain) {
-            bestGain = gain;
-            bestCommunity = candidateCommunity;
-          }
-        }
-
-        if (bestCommunity != currentCommunity) {
-          community[i] = bestCommunity;
-          changed = true;
-        }
-      }
-
-      if (!changed)
-        break;
-
-      final double newModularity = computeModularity(vertices, community, vertexIndex, nodeDegree, totalWeight, weightProperty);
-      if (Math.abs(newModularity - prevModularity) < tolerance)
-        break;
-      prevModularity = newModularity;
-    }
-
-    final double finalModularity = computeModularity(vertices, community, vertexIndex, nodeDegree, totalWeight, weightProperty);
-
-    // Remap community IDs to be sequential starting from 0
-    final IntIntHashMap communityRemap = new IntIntHashMap();
-    int nextId = 0;
-    for (int i = 0; i < n; i++) {
-      if (!communityRemap.containsKey(community[i]))
-        communityRemap.put(community[i], nextId++);
-    }
-
-    return IntStream.range(0, n).mapToObj(i -> {
+    final CommunityDetection.Partition partition = detect(config, graph, guard);
+    final int[] communities = partition.communities();
+    return IntStream.range(0, graph.nodeCount).mapToObj(i -> {
       final ResultInternal result = new ResultInternal();
-      result.setProperty("node", vertices.get(i).getIdentity());
-      result.setProperty("communityId", communityRemap.get(community[i], -1));
-      result.setProperty("modularity", finalModularity);
+      result.setProperty("node", graph.getRID(i));
+      result.setProperty("communityId", communities[i]);
+      result.setProperty("modularity", partition.modularity());
       return (Result) result;
     });
   }
 
-  private double getCommunityDegree(final int[] community, final double[] nodeDegree, final int targetCommunity, final int n) {
-    double total = 0.0;
-    for (int i = 0; i < n; i++) {
-      if (community[i] == targetCommunity)
-        total += nodeDegree[i];
-    }
-    return total;
-  }
-
-  private double computeModularity(final List<Vertex> vertices, final int[] community,
-      final Map<Vertex, Integer> vertexIndex, final double[] nodeDegree,
-      final double totalWeight, final String weightProperty) {
-    if (totalWeight == 0.0)
-      return 0.0;
-
-    double modularity = 0.0;
-    final int n = vertices.size();
-
-    for (int i = 0; i < n; i++) {
-      final Vertex v = vertices.get(i);
-      for (final Edge edge : v.getEdges(Vertex.DIRECTION.OUT)) {
-        try {
-          final Vertex neighbor = edge.getInVertex();
-          final Integer j = vertexIndex.get(neighbor);
-          if (j == null || community[i] != community[j])
-            continue;
+  /**
+   * Runs the detection configured by {@code config} over {@code graph}.
+   */
+  protected CommunityDetection.Partition detect(final Map<String, Object> config, final GraphData graph,
+      final WorkGuard guard) {
+    final int maxIterations = config != null && config.get("maxIterations") instanceof Number n ?
+        extractInt(n, "maxIterations", 1) : 10;
+    final int maxLevels = config != null && config.get("maxLevels") instanceof Number n ?
+        extractInt(n, "maxLevels", 1) : 10;
+    final double tolerance = config != null && config.get("tolerance") instanceof Number n ?
+        n.doubleValue() : 0.0001;
+    final double resolution = config != null && config.get("resolution") instanceof Number n ?
+        n.doubleValue() : 1.0;
+    final String weightProperty = config != null ? (String) config.get("weightProperty") : null;
+    final String[] relTypes = config != null ? extractRelTypes(config.get("relTypes")) : null;
 
-          double w = 1.0;
-          if (weightProperty != null) {
-            final Object wObj = edge.get(weightProperty);
-            if (wObj instanceof Number num)
-              w = num.doubleValue();
-          }
-          modularity += w - (nodeDegree[i] * nodeDegree[j]) / (2.0 * totalWeight);
-        } catch (final RecordNotFoundException e) {
-          GhostEdgeReporter.reportSkipped(e);
-        }
-      }
-    }
-    return modularity / (2.0 * totalWeight);
+    // the guard runs before the first level, sweep and color, so the whole run - maxIterations sweeps per level,
+    // maxLevels levels - stays abortable whatever the two knobs say
+    final CommunityGraph communityGraph = loadCommunityGraph(graph, guard, weightProperty, relTypes);
+    return CommunityDetection.louvain(communityGraph, maxLevels, maxIterations, tolerance, resolution, guard::check);
   }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.opencypher.procedures.algo;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.graph.olap.CommunityDetection;
+import com.arcadedb.query.sql.executor.CommandContext;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultInternal;
+import com.arcadedb.query.sql.executor.WorkGuard;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Procedure: algo.louvain.write(config)
+ * <p>
+ * Runs {@link AlgoLouvain algo.louvain} and stores the community id of every vertex into a property rather than
+ * streaming one row per vertex back. The write-back commits every {@code batchSize} vertices in a transaction of its
+ * own, so the size of the graph never becomes the size of a transaction. Returns a single summary row.
+ * </p>
+ * <p>
+ * Config map parameters: those of {@code algo.louvain}, plus
+ * <ul>
+ *   <li>writeProperty (string, required): vertex property receiving the community id</li>
+ *   <li>batchSize (int, default 10000): vertices written per transaction</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Example:
+ * <pre>
+ * CALL algo.louvain.write({writeProperty: 'community'})
+ * YIELD nodePropertiesWritten, communityCount, modularity
+ * RETURN nodePropertiesWritten, communityCount, modularity
+ * </pre>
+ * </p>
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class AlgoLouvainWrite extends AlgoLouvain {
+  public static final String NAME = "algo.louvain.write";
+
+  static final int DEFAULT_BATCH_SIZE = 10_000;
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public int getMinArgs() {
+    return 1;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Detects communities with the Louvain algorithm and writes the community ids into a vertex property";
+  }
+
+  @Override
+  public List<String> getYieldFields() {
+    return List.of("nodePropertiesWritten", "communityCount", "modularity", "levels");
+  }
+
+  @Override
+  public boolean isWriteProcedure() {
+    return true;
+  }
+
+  @Override
+  public Stream<Result> execute(final Object[] args, final Result inputRow, final CommandContext context) {
+    validateArgs(args);
+
+    final Map<String, Object> config = extractMap(args[0], "config");
+    final String writeProperty = config != null ? extractString(config.get("writeProperty"), "writeProperty") : null;
+    if (writeProperty == null || writeProperty.isBlank())
+      throw new IllegalArgumentException(getName() + "(): writeProperty is required");
+    final int batchSize = config.get("batchSize") instanceof Number n ?
+        extractInt(n, "batchSize", 1) : DEFAULT_BATCH_SIZE;
+
+    final Database db = context.getDatabase();
+    final WorkGuard guard = newWorkGuard(context);
+    final GraphData graph = loadGraph(db, null, extractRelTypes(config.get("relTypes")), context);
+
+    final ResultInternal result = new ResultInternal();
+    if (graph.nodeCount == 0) {
+      result.setProperty("nodePropertiesWritten", 0L);
+      result.setProperty("communityCount", 0);
+      result.setProperty("modularity", 0.0);
+      result.setProperty("levels", 0);
+      return Stream.of(result);
+    }
+
+    final CommunityDetection.Partition partition = detect(config, graph, guard);
+    result.setProperty("nodePropertiesWritten",
+        writeNodeProperty(db, graph, writeProperty, partition.communities(), batchSize, guard));
+    result.setProperty("communityCount", partition.communityCount());
+    result.setProperty("modularity", partition.modularity());
+    result.setProperty("levels", partition.levels());
+    return Stream.of(result);
+  }
+}
@@ -20,6 +20,7 @@ package com.arcadedb.query.opencypher.procedures.algo;
 
 import com.arcadedb.database.Database;
 import com.arcadedb.graph.Vertex;
+import com.arcadedb.graph.olap.CommunityGraph;
 import com.arcadedb.query.sql.executor.CommandContext;
 import com.arcadedb.query.sql.executor.Result;
 import com.arcadedb.query.sql.executor.ResultInternal;
@@ -39,6 +40,10 @@ import java.util.stream.Stream;
  * and m = total number of edges.
  * </p>
  * <p>
+ * Edges are taken as undirected, as {@code algo.louvain} and {@code algo.leiden} optimize them, so the score of the
+ * partition one of them wrote back is the modularity it reported. It is computed over the same flat CSR they run on.
+ * </p>
+ * <p>
  * Example:
  * <pre>
  * CALL algo.modularityScore('community', 'KNOWS')
@@ -97,7 +102,7 @@ public class AlgoModularityScore extends AbstractAlgoProcedure {
       r.setProperty("edgeCount", 0L);
       return Stream.of(r);
     }
-    final int[][] adjOut = graph.adjacency(Vertex.DIRECTION.OUT, relTypes);
+    final CommunityGraph communityGraph = new CommunityGraph(graph.packedNeighborView(Vertex.DIRECTION.BOTH, relTypes));
 
     // Map community label (Object) to a compact integer index
     final Map<Object, Integer> communityToIdx = new HashMap<>();
@@ -105,7 +110,8 @@ public class AlgoModularityScore extends AbstractAlgoProcedure {
     int numCommunities = 0;
 
     for (int i = 0; i < n; i++) {
-      final Object communityLabel = graph.getVertex(i).get(communityProperty);
+      final Vertex vertex = graph.getVertex(i);
+      final Object communityLabel = vertex != null ? vertex.get(communityProperty) : null;
       final Object key = communityLabel != null ? communityLabel : "__null__";
       Integer idx = communityToIdx.get(key);
       if (idx == null) {
@@ -115,40 +121,9 @@ public class AlgoModularityScore extends AbstractAlgoProcedure {
       vertexCommunity[i] = idx;
     }
 
-    // L_c[c] = number of edges within community c (directed: both endpoints in c)
-    // d_c[c] = sum of out-degrees of nodes in community c
-    final long[] internalEdges = new long[numCommunities];
-    final long[] totalDegree   = new long[numCommunities];
-    long totalEdges = 0L;
-
-    for (int i = 0; i < n; i++) {
-      final int ci = vertexCommunity[i];
-      final int deg = adjOut[i].length;
-      totalDegree[ci] += deg;
-      totalEdges += deg;
-      for (final int j : adjOut[i]) {
-        if (vertexCommunity[j] == ci)
-          internalEdges[ci]++;
-      }
-    }
-
-    // m = total edges (directed count)
-    final long m = totalEdges;
-    if (m == 0) {
-      final ResultInternal r = new ResultInternal();
-      r.setProperty("modularity", 0.0);
-      r.setProperty("communities", numCommunities);
-      r.setProperty("edgeCount", 0L);
-      return Stream.of(r);
-    }
-
-    // Q = sum_c [ L_c/m - (d_c/(2m))^2 ]
-    double modularity = 0.0;
-    for (int c = 0; c < numCommunities; c++) {
-      final double lc = internalEdges[c];
-      final double dc = totalDegree[c];
-      modularity += (lc / m) - (dc / (2.0 * m)) * (dc / (2.0 * m));
-    }
+    // every edge is listed from both of its endpoints
+    final long m = communityGraph.entryCount() / 2;
+    final double modularity = communityGraph.modularity(vertexCommunity, 1.0);
 
     final ResultInternal result = new ResultInternal();
     result.setProperty("modularity", modularity);
@@ -19,6 +19,7 @@
 package com.arcadedb.query.opencypher.procedures.algo;
 
 import com.arcadedb.database.Database;
+import com.arcadedb.graph.NeighborView;
 import com.arcadedb.graph.Vertex;
 import com.arcadedb.query.sql.executor.CommandContext;
 import com.arcadedb.query.sql.executor.Result;
@@ -26,7 +27,7 @@ import com.arcadedb.query.sql.executor.ResultInternal;
 import com.arcadedb.query.sql.executor.WorkGuard;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -130,7 +131,8 @@ public class AlgoSLPA extends AbstractAlgoProcedure {
       throw new IllegalArgumentException(getName() + "(): iterations=" + iterations + " needs " + rowCapacity
           + " label entries per node, more than the " + Integer.MAX_VALUE + " a Java array can hold");
 
-    final int[][] adj = graph.adjacency(Vertex.DIRECTION.BOTH);
+    final NeighborView adj = graph.packedNeighborView(Vertex.DIRECTION.BOTH);
+    final int[] neighbors = adj.neighbors();
 
     final int[][] memory     = new int[n][];
     final int[]   memorySize = new int[n];
@@ -146,6 +148,7 @@ public class AlgoSLPA extends AbstractAlgoProcedure {
     }
 
     // Propagation rounds
+    int[] heard = new int[16];
     final int[] order = new int[n];
     for (int i = 0; i < n; i++)
       order[i] = i;
@@ -165,47 +168,50 @@ public class AlgoSLPA extends AbstractAlgoProcedure {
         // A single round walks the whole graph, so on a large one the checkpoint belongs inside the round too.
         guard.checkPeriodically(idx);
         final int listener = order[idx];
-        if (adj[listener].length == 0)
+        final int start = adj.offset(listener);
+        final int degree = adj.offsetEnd(listener) - start;
+        if (degree == 0)
           continue;
 
-        // Each neighbour speaks its most-frequent label (with ties broken randomly)
-        final int[] heard = new int[adj[listener].length];
-        int heardCount = 0;
-        for (final int speaker : adj[listener]) {
-          // Speaker picks a random label from its memory (uniform)
-          final int pick = memory[speaker][rng.nextInt(memorySize[speaker])];
-          heard[heardCount++] = pick;
+        // Each neighbour speaks a label picked uniformly from its memory; one buffer serves every listener
+        if (heard.length < degree)
+          heard = new int[Math.max(degree, heard.length * 2)];
+        for (int j = 0; j < degree; j++) {
+          final int speaker = neighbors[start + j];
+          heard[j] = memory[speaker][rng.nextInt(memorySize[speaker])];
         }
 
         // Listener adds the most-frequent heard label to its memory
-        final int mostFreq = mostFrequent(heard, heardCount, rng, guard);
+        final int mostFreq = mostFrequent(heard, degree, rng);
         memory[listener][memorySize[listener]++] = mostFreq;
       }
     }
 
     // Post-processing: keep only labels with relative frequency >= threshold
-    // Pre-compute communities for all nodes (pure int/map work, no vertex loading)
+    // Pre-compute communities for all nodes (pure int work, no vertex loading): sorting a node's memory in place
+    // turns the label frequencies into runs, counted without a map or a boxed count
     //
     // Outside the propagation rounds, so the checkpoint inside them never sees this: nodeCount x (iterations + 1)
-    // boxed map merges, which is the same product the label memory is priced on. The budget bounds the heap that
-    // product costs and says nothing about the time, so at a raised arcadedb.cypher.algoMaxWorkingMemory this
-    // grows without any checkpoint behind it (issue #6295). The counter spans both loops for the same reason it
-    // does in algo.hashgnn: a per-node check is too coarse when one node remembers a million labels.
+    // labels, which is the same product the label memory is priced on. The budget bounds the heap that product
+    // costs and says nothing about the time, so at a raised arcadedb.cypher.algoMaxWorkingMemory this grows
+    // without any checkpoint behind it (issue #6295). The checkpoint is per node: the sort of one row is
+    // O(iterations log iterations), a bounded step between two of them.
     @SuppressWarnings("unchecked")
     final List<Long>[] allCommunities = new List[n];
-    int postStep = 0;
     for (int i = 0; i < n; i++) {
-      final Map<Integer, Integer> freq = new HashMap<>();
-      for (int j = 0; j < memorySize[i]; j++) {
-        guard.checkPeriodically(postStep++);
-        final int label = memory[i][j];
-        freq.merge(label, 1, Integer::sum);
-      }
+      guard.checkPeriodically(i);
+      final int[] labels = memory[i];
+      final int size = memorySize[i];
+      Arrays.sort(labels, 0, size);
 
       final List<Long> communities = new ArrayList<>();
-      for (final Map.Entry<Integer, Integer> e : freq.entrySet()) {
-        if ((double) e.getValue() / memorySize[i] >= threshold)
-          communities.add((long) e.getKey());
+      for (int j = 0; j < size; ) {
+        int end = j + 1;
+        while (end < size && labels[end] == labels[j])
+          end++;
+        if ((double) (end - j) / size >= threshold)
+          communities.add((long) labels[j]);
+        j = end;
       }
       if (communities.isEmpty())
         communities.add((long) i); // keep at least the initial label
@@ -221,26 +227,26 @@ public class AlgoSLPA extends AbstractAlgoProcedure {
   }
 
   /**
-   * Returns the most-frequent element in arr[0..len), breaking ties randomly.
-   * <p>
-   * The scan is O(len²) in the listener's degree, so one supernode's turn is a whole quadratic pass between two
-   * of the caller's per-node checkpoints - 4e8 comparisons at degree 20 000. The guard comes in with the array
-   * for that reason (issue #6295): the checkpoint on the outer scan bounds the abort latency by 1024 x len
-   * rather than by len², and costs one flag test per candidate where each candidate already costs a full pass.
+   * Returns the most-frequent element in arr[0..len), breaking ties uniformly at random. Sorts the array in place,
+   * then counts the runs: O(len log len) for one listener, where comparing every pair was quadratic in its degree and
+   * needed a checkpoint of its own on a supernode (issue #6295).
    */
-  private int mostFrequent(final int[] arr, final int len, final Random rng, final WorkGuard guard) {
-    // Frequency map using arrays (avoid HashMap allocation for small len)
-    int bestLabel = arr[0], bestCount = 0;
-    // Simple O(len^2) scan — len = number of neighbours, typically small
-    for (int i = 0; i < len; i++) {
-      guard.checkPeriodically(i);
-      int count = 0;
-      for (int j = 0; j < len; j++)
-        if (arr[j] == arr[i]) count++;
-      if (count > bestCount || (count == bestCount && rng.nextBoolean())) {
+  private int mostFrequent(final int[] arr, final int len, final Random rng) {
+    Arrays.sort(arr, 0, len);
+    int bestLabel = arr[0], bestCount = 0, ties = 0;
+    for (int i = 0; i < len; ) {
+      int end = i + 1;
+      while (end < len && arr[end] == arr[i])
+        end++;
+      final int count = end - i;
+      if (count > bestCount) {
         bestCount = count;
         bestLabel = arr[i];
-      }
+        ties = 1;
+      } else if (count == bestCount && rng.nextInt(++ties) == 0)
+        // reservoir sampling over the tied labels: each is kept with the same probability
+        bestLabel = arr[i];
+      i = end;
     }
     return bestLabel;
   }
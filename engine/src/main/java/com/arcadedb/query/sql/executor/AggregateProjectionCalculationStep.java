@@ -20,6 +20,7 @@ package com.arcadedb.query.sql.executor;
 
 import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.exception.CommandExecutionException;
 import com.arcadedb.query.sql.parser.Expression;
 import com.arcadedb.query.sql.parser.GroupBy;
@@ -71,12 +72,21 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
   private final long    timeoutMillis;
   private final long    limit;
   private final long    maxGroupsAllowed;
+  private final boolean spill;
+  private final int     spillPartitions;
 
   //the key is the GROUP BY key, the value is the (partially) aggregated value
   private final Map<GroupByKey, ResultInternal> aggregateResults = new LinkedHashMap<>();
-  private       List<ResultInternal>            finalResults     = null;
+  private       Iterator<ResultInternal>        finalResults     = null;
 
-  private int nextItem = 0;
+  // SPILL TO DISK: GROUPS NOT FITTING IN HEAP ARE AGGREGATED LATER, ONE HASH PARTITION AT A TIME
+  private final Deque<SpillPartitions> spilled          = new ArrayDeque<>();
+  private       SpillPartitions        overflow         = null;
+  private       SpillPartitions        currentSpill     = null;
+  private       int                    currentPartition = 0;
+  private       long                   spilledRows      = 0;
+
+  private long returned = 0;
 
   public AggregateProjectionCalculationStep(final Projection projection, final GroupBy groupBy, final long limit,
       final CommandContext context,
@@ -91,6 +101,8 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
     this.maxGroupsAllowed = db == null ?
         GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong() :
         db.getConfiguration().getValueAsLong(GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP);
+    this.spill = db != null && db.getConfiguration().getValueAsBoolean(GlobalConfiguration.QUERY_SPILL_TO_DISK);
+    this.spillPartitions = db == null ? 1 : Math.max(2, db.getConfiguration().getValueAsInteger(GlobalConfiguration.QUERY_SPILL_PARTITIONS));
   }
 
   @Override
@@ -101,25 +113,36 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
 
     return new ResultSet() {
       int localNext = 0;
+      ResultInternal nextGroup = null;
 
       @Override
       public boolean hasNext() {
-        return localNext < nRecords && nextItem < finalResults.size();
+        if (localNext >= nRecords)
+          return false;
+        if (nextGroup == null)
+          nextGroup = fetchNextGroup(context);
+        return nextGroup != null;
       }
 
       @Override
       public Result next() {
-        if (localNext >= nRecords || nextItem >= finalResults.size()) {
+        if (!hasNext()) {
           throw new NoSuchElementException();
         }
-        final Result result = finalResults.get(nextItem);
-        nextItem++;
+        final Result result = nextGroup;
+        nextGroup = null;
         localNext++;
         return result;
       }
     };
   }
 
+  @Override
+  public void close() {
+    closeSpills();
+    super.close();
+  }
+
   private void executeAggregation(final CommandContext context, final int nRecords) {
     final long timeoutBegin = System.currentTimeMillis();
 
@@ -130,14 +153,59 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
       if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis()) {
         sendTimeout();
       }
-      aggregate(lastRs.next(), context);
+      aggregate(lastRs.next(), context, aggregateResults, 0);
       if (!lastRs.hasNext()) {
         lastRs = prevStep.syncPull(context, nRecords);
       }
     }
-    finalResults = new ArrayList<>(aggregateResults.values());
-    aggregateResults.clear();
-    for (final ResultInternal item : finalResults) {
+    if (overflow != null) {
+      spilled.addLast(overflow);
+      overflow = null;
+    }
+    finalResults = finalizeGroups(aggregateResults, timeoutBegin);
+  }
+
+  /**
+   * Returns the next group: first the ones aggregated in heap, then the ones of each spilled partition, aggregated when
+   * reached so only one partition at a time is in heap.
+   */
+  private ResultInternal fetchNextGroup(final CommandContext context) {
+    if (limit > 0 && returned >= limit && spilledRows > 0)
+      return null;
+
+    while (!finalResults.hasNext()) {
+      if (currentSpill != null && currentPartition >= currentSpill.getPartitions()) {
+        currentSpill.close();
+        currentSpill = null;
+      }
+      if (currentSpill == null) {
+        currentSpill = spilled.pollFirst();
+        currentPartition = 0;
+        if (currentSpill == null)
+          return null;
+      }
+
+      final long begin = System.currentTimeMillis();
+      final Map<GroupByKey, ResultInternal> groups = new LinkedHashMap<>();
+      for (final Iterator<Result> rows = currentSpill.read(currentPartition++); rows.hasNext(); ) {
+        if (timeoutMillis > 0 && begin + timeoutMillis < System.currentTimeMillis())
+          sendTimeout();
+        aggregate(rows.next(), context, groups, currentSpill.getDepth() + 1);
+      }
+      if (overflow != null) {
+        spilled.addLast(overflow);
+        overflow = null;
+      }
+      finalResults = finalizeGroups(groups, begin);
+    }
+    ++returned;
+    return finalResults.next();
+  }
+
+  private Iterator<ResultInternal> finalizeGroups(final Map<GroupByKey, ResultInternal> groups, final long timeoutBegin) {
+    final List<ResultInternal> results = new ArrayList<>(groups.values());
+    groups.clear();
+    for (final ResultInternal item : results) {
       if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis()) {
         sendTimeout();
       }
@@ -148,9 +216,11 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
         }
       }
     }
+    return results.iterator();
   }
 
-  private void aggregate(final Result next, final CommandContext context) {
+  private void aggregate(final Result next, final CommandContext context, final Map<GroupByKey, ResultInternal> groups,
+      final int depth) {
     final long begin = context.isProfiling() ? System.nanoTime() : 0;
     try {
       // Memory optimization: Use Object[] instead of ArrayList to reduce object allocation overhead
@@ -166,15 +236,26 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
         // No GROUP BY means single aggregation group
         key = new GroupByKey(new Object[0]);
       }
-      ResultInternal preAggr = aggregateResults.get(key);
+      ResultInternal preAggr = groups.get(key);
       if (preAggr == null) {
         // Query LIMIT optimization: stop processing once we have enough groups
-        if (limit > 0 && aggregateResults.size() >= limit)
+        if (limit > 0 && depth == 0 && groups.size() >= limit)
           return;
 
         // Memory safety: enforce memory limit for GROUP BY operations
-        if (maxGroupsAllowed > 0 && aggregateResults.size() >= maxGroupsAllowed) {
-          aggregateResults.clear();
+        if (maxGroupsAllowed > 0 && groups.size() >= maxGroupsAllowed) {
+          if (spill) {
+            // NEW GROUPS GO TO DISK: A KEY IS EITHER IN HEAP OR IN ONE PARTITION, NEVER SPLIT BETWEEN THE TWO
+            if (overflow == null)
+              overflow = depth == 0 ?
+                  new SpillPartitions((DatabaseInternal) context.getDatabase(), spillPartitions, 0, "GROUP BY") :
+                  currentSpill.nextDepth();
+            overflow.add(key.hashCode(), next);
+            ++spilledRows;
+            return;
+          }
+
+          groups.clear();
           throw new CommandExecutionException(
               "Limit of allowed groups for in-heap GROUP BY in a single query exceeded (" + maxGroupsAllowed
                   + "). You can set " + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey()
@@ -188,7 +269,7 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
           if (!proj.isAggregate(context))
             preAggr.setProperty(alias, proj.execute(next, context));
         }
-        aggregateResults.put(key, preAggr);
+        groups.put(key, preAggr);
       }
 
       for (final ProjectionItem proj : this.projection.getItems()) {
@@ -215,6 +296,18 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
     }
   }
 
+  private void closeSpills() {
+    if (overflow != null)
+      overflow.close();
+    if (currentSpill != null)
+      currentSpill.close();
+    for (final SpillPartitions partitions : spilled)
+      partitions.close();
+    overflow = null;
+    currentSpill = null;
+    spilled.clear();
+  }
+
   @Override
   public String prettyPrint(final int depth, final int indent) {
     final String spaces = ExecutionStepInternal.getIndent(depth, indent);
@@ -223,6 +316,8 @@ public class AggregateProjectionCalculationStep extends ProjectionCalculationSte
       result += " (" + getCostFormatted() + ")";
 
     result += "\n" + spaces + "      " + projection.toString() + (groupBy == null ? "" : (spaces + "\n  " + groupBy));
+    if (spilledRows > 0)
+      result += "\n" + spaces + "  (spilled rows: " + spilledRows + ")";
     return result;
   }
 
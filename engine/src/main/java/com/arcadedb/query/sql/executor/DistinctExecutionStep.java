@@ -20,6 +20,7 @@ package com.arcadedb.query.sql.executor;
 
 import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.database.RID;
 import com.arcadedb.exception.CommandExecutionException;
 import com.arcadedb.exception.TimeoutException;
@@ -72,7 +73,18 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
   final RidSet           pastRids;
   ResultSet lastResult = null;
   Result    nextValue;
-  private final long maxElementsAllowed;
+  private final long    maxElementsAllowed;
+  private final boolean spill;
+  private final int     spillPartitions;
+
+  // SPILL TO DISK: UNSEEN ROWS OVER THE HEAP LIMIT ARE DEDUPLICATED LATER, ONE HASH PARTITION AT A TIME
+  private final Deque<SpillPartitions> spilled          = new ArrayDeque<>();
+  private       SpillPartitions        overflow         = null;
+  private       SpillPartitions        currentSpill     = null;
+  private       int                    currentPartition = 0;
+  private       Iterator<Result>       currentRows      = null;
+  private final Set<DistinctKey>       partitionItems   = new HashSet<>();
+  private       long                   spilledRows      = 0;
 
   public DistinctExecutionStep(final CommandContext context) {
     super(context);
@@ -81,6 +93,8 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
     maxElementsAllowed = db == null ?
         GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong() :
         db.getConfiguration().getValueAsLong(GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP);
+    spill = db != null && db.getConfiguration().getValueAsBoolean(GlobalConfiguration.QUERY_SPILL_TO_DISK);
+    spillPartitions = db == null ? 1 : Math.max(2, db.getConfiguration().getValueAsInteger(GlobalConfiguration.QUERY_SPILL_PARTITIONS));
   }
 
   @Override
@@ -126,19 +140,18 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
       if (nextValue != null) {
         return;
       }
-      if (lastResult == null || !lastResult.hasNext()) {
+      if (currentRows == null && (lastResult == null || !lastResult.hasNext())) {
         lastResult = getPrev().syncPull(context, nRecords);
       }
-      if (lastResult == null || !lastResult.hasNext()) {
+      if (currentRows != null || lastResult == null || !lastResult.hasNext()) {
+        nextValue = fetchNextSpilled();
         return;
       }
       final long begin = context.isProfiling() ? System.nanoTime() : 0;
       try {
         nextValue = lastResult.next();
-        if (alreadyVisited(nextValue)) {
+        if (alreadyVisited(nextValue) || !markAsVisited(nextValue)) {
           nextValue = null;
-        } else {
-          markAsVisited(nextValue);
         }
       } finally {
         if (context.isProfiling()) {
@@ -148,19 +161,75 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
     }
   }
 
-  private void markAsVisited(final Result nextValue) {
+  /**
+   * Once the input is exhausted, returns the next distinct row among the spilled ones. The rows of a key all land in the
+   * same partition and never in heap, so each partition is deduplicated on its own.
+   */
+  private Result fetchNextSpilled() {
+    while (true) {
+      if (currentRows != null && currentRows.hasNext()) {
+        final Result row = currentRows.next();
+        final DistinctKey key = new DistinctKey(row);
+        if (partitionItems.contains(key))
+          continue;
+        if (maxElementsAllowed > 0 && partitionItems.size() >= maxElementsAllowed) {
+          if (overflow == null)
+            overflow = currentSpill.nextDepth();
+          overflow.add(key.hashCode(), row);
+          continue;
+        }
+        partitionItems.add(key);
+        return row;
+      }
+
+      // CURRENT PARTITION COMPLETED
+      partitionItems.clear();
+      currentRows = null;
+      if (overflow != null) {
+        spilled.addLast(overflow);
+        overflow = null;
+      }
+
+      if (currentSpill != null && currentPartition >= currentSpill.getPartitions()) {
+        currentSpill.close();
+        currentSpill = null;
+      }
+      if (currentSpill == null) {
+        currentSpill = spilled.pollFirst();
+        currentPartition = 0;
+        if (currentSpill == null)
+          return null;
+      }
+      currentRows = currentSpill.read(currentPartition++);
+    }
+  }
+
+  /**
+   * @return true if the row has been marked as visited and can be returned, false if it has been spilled to disk
+   */
+  private boolean markAsVisited(final Result nextValue) {
     if (canUseRidFastPath(nextValue)) {
       pastRids.add(nextValue.getElement().get().getIdentity());
-      return;
+      return true;
     }
     // Store only the property values, not the full Result object
-    pastItems.add(new DistinctKey(nextValue));
-    if (maxElementsAllowed > 0 && maxElementsAllowed < pastItems.size()) {
+    final DistinctKey key = new DistinctKey(nextValue);
+    if (maxElementsAllowed > 0 && maxElementsAllowed <= pastItems.size()) {
+      if (spill) {
+        if (overflow == null)
+          overflow = new SpillPartitions((DatabaseInternal) context.getDatabase(), spillPartitions, 0, "DISTINCT");
+        overflow.add(key.hashCode(), nextValue);
+        ++spilledRows;
+        return false;
+      }
+
       this.pastItems.clear();
       throw new CommandExecutionException(
           "Limit of allowed elements for in-heap DISTINCT in a single query exceeded (" + maxElementsAllowed + ") . You can set "
               + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey() + " to increase this limit");
     }
+    pastItems.add(key);
+    return true;
   }
 
   private boolean alreadyVisited(final Result nextValue) {
@@ -196,6 +265,17 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
 
   @Override
   public void close() {
+    if (overflow != null)
+      overflow.close();
+    if (currentSpill != null)
+      currentSpill.close();
+    for (final SpillPartitions partitions : spilled)
+      partitions.close();
+    overflow = null;
+    currentSpill = null;
+    currentRows = null;
+    spilled.clear();
+
     if (prev != null)
       prev.close();
   }
@@ -205,6 +285,8 @@ public class DistinctExecutionStep extends AbstractExecutionStep {
     String result = ExecutionStepInternal.getIndent(depth, indent) + "+ DISTINCT";
     if (context.isProfiling())
       result += " (" + getCostFormatted() + ")";
+    if (spilledRows > 0)
+      result += "\n" + ExecutionStepInternal.getIndent(depth, indent) + "  (spilled rows: " + spilledRows + ")";
     return result;
   }
 
@@ -0,0 +1,308 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Binary;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.exception.CommandExecutionException;
+import com.arcadedb.log.LogManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+
+/**
+ * Sort buffer for ORDER BY. With a LIMIT that fits in the heap budget it keeps a bounded heap of the best N results. Otherwise
+ * it accumulates the results in heap and, once the budget ({@link GlobalConfiguration#QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP})
+ * is exceeded, either fails (legacy behavior) or, if {@link GlobalConfiguration#QUERY_SPILL_TO_DISK} is enabled, writes the
+ * buffer as a sorted run in the database's temporary directory. The runs are k-way merged lazily while the results are
+ * fetched. The sort is stable: results comparing as equal are returned in the order they were added.
+ */
+public class ExternalSortBuffer implements AutoCloseable {
+  public static final String TEMP_DIRECTORY = "temp";
+
+  private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+  private final DatabaseInternal     database;
+  private final Comparator<Result>   comparator;
+  private final long                 maxInHeap;
+  private final boolean              spill;
+  private final Integer              limit;
+  private final String               operation;
+  private       List<Result>         buffer = new ArrayList<>();
+  private       PriorityQueue<Entry> topN;
+  private       long                 sequence;
+  private final List<File>           runs      = new ArrayList<>();
+  private final List<Long>           runSizes  = new ArrayList<>();
+  private final List<RunReader>      readers   = new ArrayList<>();
+  private       ResultSpillSerializer spillSerializer;
+
+  private record Entry(Result result, long sequence) {
+  }
+
+  /**
+   * @param maxInHeap maximum number of results kept in heap, 0 or negative means no limit
+   * @param spill     true to spill to disk when maxInHeap is exceeded, false to throw a {@link CommandExecutionException}
+   * @param limit     maximum number of results to return, null for all
+   * @param operation name of the operation reported in the error messages, like "ORDER BY"
+   */
+  public ExternalSortBuffer(final DatabaseInternal database, final Comparator<Result> comparator, final long maxInHeap,
+      final boolean spill, final Integer limit, final String operation) {
+    this.database = database;
+    this.comparator = comparator;
+    this.maxInHeap = maxInHeap;
+    this.spill = spill && database != null;
+    this.limit = limit;
+    this.operation = operation;
+
+    if (limit != null && (maxInHeap <= 0 || limit <= maxInHeap)) {
+      // WORST ENTRY ON TOP: A NEW RESULT REPLACES IT ONLY IF STRICTLY BETTER, SO EARLIER RESULTS WIN THE TIES
+      final Comparator<Entry> entryComparator = (a, b) -> {
+        final int cmp = comparator.compare(a.result, b.result);
+        return cmp != 0 ? cmp : Long.compare(a.sequence, b.sequence);
+      };
+      this.topN = new PriorityQueue<>(Math.min(limit + 1, 1024), entryComparator.reversed());
+      this.buffer = null;
+    }
+  }
+
+  public void add(final Result result) {
+    if (topN != null) {
+      if (limit == 0)
+        return;
+      if (topN.size() < limit)
+        topN.offer(new Entry(result, sequence++));
+      else if (comparator.compare(result, topN.peek().result) < 0) {
+        topN.poll();
+        topN.offer(new Entry(result, sequence++));
+      }
+      return;
+    }
+
+    buffer.add(result);
+    if (maxInHeap > 0 && buffer.size() > maxInHeap) {
+      if (!spill) {
+        buffer.clear();
+        throw new CommandExecutionException(
+            "Limit of allowed elements for in-heap " + operation + " in a single query exceeded (" + maxInHeap + ") . You can set "
+                + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey() + " to increase this limit or set "
+                + GlobalConfiguration.QUERY_SPILL_TO_DISK.getKey() + " to true to use the disk");
+      }
+      spillRun();
+    }
+  }
+
+  /**
+   * Returns the number of sorted runs written to disk so far.
+   */
+  public int getSpilledRuns() {
+    return runs.size();
+  }
+
+  /**
+   * Completes the sort and returns the results in order. Must be called once, after all the results have been added.
+   */
+  public Iterator<Result> sorted() {
+    if (topN != null) {
+      final List<Result> results = new ArrayList<>(topN.size());
+      while (!topN.isEmpty())
+        results.add(topN.poll().result);
+      Collections.reverse(results);
+      topN = null;
+      return results.iterator();
+    }
+
+    buffer.sort(comparator);
+
+    if (runs.isEmpty()) {
+      final List<Result> results = limit != null && limit < buffer.size() ? buffer.subList(0, limit) : buffer;
+      return results.iterator();
+    }
+
+    return new MergeIterator();
+  }
+
+  @Override
+  public void close() {
+    for (final RunReader reader : readers)
+      reader.close();
+    readers.clear();
+
+    for (final File run : runs)
+      if (run.exists() && !run.delete())
+        LogManager.instance().log(this, Level.WARNING, "Cannot delete temporary file '%s'", run);
+    runs.clear();
+    runSizes.clear();
+    buffer = null;
+    topN = null;
+  }
+
+  private void spillRun() {
+    if (spillSerializer == null)
+      spillSerializer = new ResultSpillSerializer(database);
+
+    for (final Result result : buffer)
+      if (!spillSerializer.isSerializable(result))
+        throw new CommandExecutionException(
+            "Cannot spill " + operation + " to disk because a result cannot be serialized (" + result + "). You can set "
+                + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey() + " to increase the in-heap limit");
+
+    buffer.sort(comparator);
+
+    try {
+      final File directory = new File(database.getDatabasePath(), TEMP_DIRECTORY);
+      if (!directory.exists() && !directory.mkdirs() && !directory.exists())
+        throw new IOException("Cannot create directory " + directory);
+
+      final File run = Files.createTempFile(directory.toPath(), "sort-", ".run").toFile();
+      runs.add(run);
+
+      final Binary binary = new Binary(8192);
+      try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), IO_BUFFER_SIZE))) {
+        for (final Result result : buffer) {
+          binary.clear();
+          spillSerializer.serialize(result, binary);
+          out.writeInt(binary.size());
+          out.write(binary.getContent(), 0, binary.size());
+        }
+      }
+      runSizes.add((long) buffer.size());
+    } catch (final IOException e) {
+      close();
+      throw new CommandExecutionException("Error on spilling " + operation + " results to disk", e);
+    }
+
+    buffer = new ArrayList<>();
+  }
+
+  private class RunReader {
+    private final DataInputStream in;
+    private final int             index;
+    private       long            remaining;
+    private       Result          current;
+
+    RunReader(final File file, final long size, final int index) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), IO_BUFFER_SIZE));
+      this.remaining = size;
+      this.index = index;
+    }
+
+    boolean advance() {
+      if (remaining <= 0) {
+        current = null;
+        close();
+        return false;
+      }
+      try {
+        final byte[] content = new byte[in.readInt()];
+        in.readFully(content);
+        current = spillSerializer.deserialize(new Binary(content));
+        --remaining;
+        return true;
+      } catch (final IOException e) {
+        throw new CommandExecutionException("Error on reading " + operation + " results spilled to disk", e);
+      }
+    }
+
+    void close() {
+      try {
+        in.close();
+      } catch (final IOException e) {
+        // IGNORE IT
+      }
+    }
+  }
+
+  /**
+   * K-way merge of the runs on disk plus the last run still in heap. Ties are resolved by run order, runs are written in
+   * insertion order, so the merge stays stable.
+   */
+  private class MergeIterator implements Iterator<Result> {
+    private final PriorityQueue<RunReader> queue;
+    private final Iterator<Result>         inHeap;
+    private       Result                   inHeapCurrent;
+    private       long                     returned;
+
+    MergeIterator() {
+      queue = new PriorityQueue<>(runs.size() + 1, (a, b) -> {
+        final int cmp = comparator.compare(a.current, b.current);
+        return cmp != 0 ? cmp : Integer.compare(a.index, b.index);
+      });
+
+      try {
+        for (int i = 0; i < runs.size(); i++) {
+          final RunReader reader = new RunReader(runs.get(i), runSizes.get(i), i);
+          readers.add(reader);
+          if (reader.advance())
+            queue.offer(reader);
+        }
+      } catch (final IOException e) {
+        close();
+        throw new CommandExecutionException("Error on reading " + operation + " results spilled to disk", e);
+      }
+
+      inHeap = buffer.iterator();
+      inHeapCurrent = inHeap.hasNext() ? inHeap.next() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (limit != null && returned >= limit)
+        return false;
+      return inHeapCurrent != null || !queue.isEmpty();
+    }
+
+    @Override
+    public Result next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      ++returned;
+
+      final RunReader head = queue.peek();
+      if (inHeapCurrent != null && (head == null || comparator.compare(inHeapCurrent, head.current) < 0)) {
+        // THE IN-HEAP RUN IS THE LAST ONE: IT WINS ONLY IF STRICTLY SMALLER
+        final Result result = inHeapCurrent;
+        inHeapCurrent = inHeap.hasNext() ? inHeap.next() : null;
+        return result;
+      }
+
+      queue.poll();
+      final Result result = head.current;
+      if (head.advance())
+        queue.offer(head);
+      return result;
+    }
+  }
+}
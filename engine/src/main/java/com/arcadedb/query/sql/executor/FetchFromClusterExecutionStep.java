@@ -237,6 +237,10 @@ public class FetchFromClusterExecutionStep extends AbstractExecutionStep {
     return result;
   }
 
+  public int getBucketId() {
+    return bucketId;
+  }
+
   public void setOrder(final Object order) {
     this.order = order;
   }
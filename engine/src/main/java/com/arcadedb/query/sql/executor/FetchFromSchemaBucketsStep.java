@@ -25,6 +25,7 @@ import com.arcadedb.schema.Schema;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -64,9 +65,15 @@ public class FetchFromSchemaBucketsStep extends AbstractExecutionStep {
           r.setProperty("records", context.getDatabase().countBucket(bucketName));
           // The bucket's purpose lets tooling (Studio etc.) hide or label internal buckets like paired
           // external-property buckets. Filter via `WHERE purpose = 'PRIMARY'` to see only user-targetable ones.
-          if (bucket instanceof LocalBucket lb)
+          if (bucket instanceof LocalBucket lb) {
             r.setProperty("purpose", lb.getPurpose().name());
 
+            final Map<String, Object> compression = lb.getComponentFile().getCompressionStats();
+            if (compression != null)
+              for (final Map.Entry<String, Object> entry : compression.entrySet())
+                r.setProperty(entry.getKey(), entry.getValue());
+          }
+
           context.setVariable("current", r);
         }
       } finally {
@@ -27,6 +27,7 @@ import com.arcadedb.exception.CommandExecutionException;
 import com.arcadedb.exception.TimeoutException;
 import com.arcadedb.log.LogManager;
 import com.arcadedb.query.ParallelScanProducerPool;
+import com.arcadedb.query.QueryResultCache;
 import com.arcadedb.query.sql.parser.AndBlock;
 import com.arcadedb.query.sql.parser.BetweenCondition;
 import com.arcadedb.query.sql.parser.BinaryCondition;
@@ -361,6 +362,10 @@ public class FetchFromTypeExecutionStep extends AbstractExecutionStep {
         // value copy() carried over: restore it so profiled parallel scans keep per-worker metrics.
         workerContext.setProfiling(context.isProfiling());
 
+        // The producer reads its bucket on a pool thread: record it here, on the thread of the query, for the result cache
+        if (step instanceof FetchFromClusterExecutionStep bucketStep)
+          QueryResultCache.trackRead(bucketStep.getBucketId());
+
         final Future<?> future = scanExecutor.submit(() -> {
           // Initialize DatabaseContext for this worker thread so that
           // BucketIterator and other components find the correct database
@@ -19,12 +19,11 @@
 package com.arcadedb.query.sql.executor;
 
 import com.arcadedb.GlobalConfiguration;
-import com.arcadedb.exception.CommandExecutionException;
+import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.exception.TimeoutException;
 import com.arcadedb.query.sql.parser.OrderBy;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
@@ -35,8 +34,8 @@ public class OrderByStep extends AbstractExecutionStep {
   private       Integer maxResults;
   private final long    timeoutMillis;
 
-  List<Result> cachedResult = null;
-  int          nextElement  = 0;
+  private ExternalSortBuffer sortBuffer    = null;
+  private Iterator<Result>   sortedResults = null;
 
   public OrderByStep(final OrderBy orderBy, final CommandContext context, final long timeoutMillis) {
     this(orderBy, null, context, timeoutMillis);
@@ -54,22 +53,19 @@ public class OrderByStep extends AbstractExecutionStep {
 
   @Override
   public ResultSet syncPull(final CommandContext context, final int nRecords) throws TimeoutException {
-    if (cachedResult == null) {
-      cachedResult = new ArrayList<>();
-      if (prev != null)
-        init(prev, context);
+    if (sortedResults == null) {
+      init(prev, context);
     }
 
     return new ResultSet() {
       private int currentBatchReturned = 0;
-      private final int offset = nextElement;
 
       @Override
       public boolean hasNext() {
         if (currentBatchReturned >= nRecords) {
           return false;
         }
-        return cachedResult.size() > nextElement;
+        return sortedResults.hasNext();
       }
 
       @Override
@@ -79,11 +75,7 @@ public class OrderByStep extends AbstractExecutionStep {
           if (currentBatchReturned >= nRecords) {
             throw new NoSuchElementException();
           }
-          if (cachedResult.size() <= nextElement) {
-            throw new NoSuchElementException();
-          }
-          final Result result = cachedResult.get(offset + currentBatchReturned);
-          nextElement++;
+          final Result result = sortedResults.next();
           currentBatchReturned++;
           return result;
         } finally {
@@ -101,70 +93,54 @@ public class OrderByStep extends AbstractExecutionStep {
     };
   }
 
+  @Override
+  public void close() {
+    if (sortBuffer != null)
+      sortBuffer.close();
+    super.close();
+  }
+
   private void init(final ExecutionStepInternal p, final CommandContext context) {
     final long timeoutBegin = System.currentTimeMillis();
     final long maxElementsAllowed = GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getValueAsLong();
-    boolean sorted = true;
-    do {
-      final ResultSet lastBatch = p.syncPull(context, DEFAULT_FETCH_RECORDS_PER_PULL);
-      if (!lastBatch.hasNext())
-        break;
+    final DatabaseInternal database = (DatabaseInternal) context.getDatabase();
+    final boolean spill = database != null && database.getConfiguration().getValueAsBoolean(GlobalConfiguration.QUERY_SPILL_TO_DISK);
 
-      while (lastBatch.hasNext()) {
-        if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis())
-          sendTimeout();
+    // WITH A LIMIT, A BOUNDED HEAP KEEPS ONLY THE BEST maxResults. OTHERWISE THE RESULTS SPILL TO DISK (IF ENABLED) ONCE OVER THE HEAP LIMIT
+    sortBuffer = new ExternalSortBuffer(database, (a, b) -> orderBy.compare(a, b, context), maxElementsAllowed, spill, maxResults,
+        "ORDER BY");
 
-        if (this.timedOut)
+    if (p != null)
+      do {
+        final ResultSet lastBatch = p.syncPull(context, DEFAULT_FETCH_RECORDS_PER_PULL);
+        if (!lastBatch.hasNext())
           break;
 
-        final Result item = lastBatch.next();
-        final long begin = context.isProfiling() ? System.nanoTime() : 0;
-        try {
-          cachedResult.add(item);
-          if (maxElementsAllowed > 0 && cachedResult.size() > maxElementsAllowed) {
-            this.cachedResult.clear();
-            throw new CommandExecutionException(
-                "Limit of allowed elements for in-heap ORDER BY in a single query exceeded (" + maxElementsAllowed + ") . You can set "
-                    + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey() + " to increase this limit");
-          }
-          sorted = false;
-          // compact, only at twice as the buffer, to avoid to do it at each add
-          if (this.maxResults != null) {
-            final long compactThreshold = 2L * maxResults;
-            if (compactThreshold < cachedResult.size()) {
-              cachedResult.sort((a, b) -> orderBy.compare(a, b, context));
-              cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
-              sorted = true;
+        while (lastBatch.hasNext()) {
+          if (timeoutMillis > 0 && timeoutBegin + timeoutMillis < System.currentTimeMillis())
+            sendTimeout();
+
+          if (this.timedOut)
+            break;
+
+          final Result item = lastBatch.next();
+          final long begin = context.isProfiling() ? System.nanoTime() : 0;
+          try {
+            sortBuffer.add(item);
+          } finally {
+            if( context.isProfiling() ) {
+              cost += System.nanoTime() - begin;
             }
           }
-        } finally {
-          if( context.isProfiling() ) {
-            cost += System.nanoTime() - begin;
-          }
-        }
-      }
-      if (timedOut) {
-        break;
-      }
-      final long begin = context.isProfiling() ? System.nanoTime() : 0;
-      try {
-        // compact at each batch, if needed
-        if (!sorted && this.maxResults != null && maxResults < cachedResult.size()) {
-          cachedResult.sort((a, b) -> orderBy.compare(a, b, context));
-          cachedResult = new ArrayList<>(cachedResult.subList(0, maxResults));
-          sorted = true;
         }
-      } finally {
-        if( context.isProfiling() ) {
-          cost += System.nanoTime() - begin;
+        if (timedOut) {
+          break;
         }
-      }
-    } while (true);
+      } while (true);
+
     final long begin = context.isProfiling() ? System.nanoTime() : 0;
     try {
-      if (!sorted) {
-        cachedResult.sort((a, b) -> orderBy.compare(a, b, context));
-      }
+      sortedResults = sortBuffer.sorted();
     } finally {
       if( context.isProfiling() ) {
         cost += System.nanoTime() - begin;
@@ -179,6 +155,8 @@ public class OrderByStep extends AbstractExecutionStep {
       result += " (" + getCostFormatted() + ")";
     }
     result += maxResults != null ? "\n  (buffer size: " + maxResults + ")" : "";
+    if (sortBuffer != null && sortBuffer.getSpilledRuns() > 0)
+      result += "\n  (spilled runs: " + sortBuffer.getSpilledRuns() + ")";
     return result;
   }
 
@@ -0,0 +1,269 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.database.Binary;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.RID;
+import com.arcadedb.database.Record;
+import com.arcadedb.serializer.BinarySerializer;
+import com.arcadedb.serializer.BinaryTypes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serializes query results to a {@link Binary} buffer so memory-intensive operations can spill them to disk. Values are
+ * written with the database {@link BinarySerializer}; persistent records (as the result element or nested in a property) are
+ * written as their RID and reloaded when read back, so vertices and edges come back as records. Only plain
+ * {@link ResultInternal} instances are supported: {@link #isSerializable(Result)} tells if a result can be spilled.
+ */
+public class ResultSpillSerializer {
+  private static final byte TAG_NULL   = 0;
+  private static final byte TAG_RECORD = 1;
+  private static final byte TAG_RESULT = 2;
+  private static final byte TAG_MAP    = 3;
+  private static final byte TAG_LIST   = 4;
+  private static final byte TAG_VALUE  = 5;
+
+  private static final byte HAS_ELEMENT    = 1;
+  private static final byte HAS_VALUE      = 1 << 1;
+  private static final byte HAS_CONTENT    = 1 << 2;
+  private static final byte HAS_TEMPORARY  = 1 << 3;
+  private static final byte HAS_METADATA   = 1 << 4;
+  private static final byte HAS_TOMBSTONES = 1 << 5;
+
+  private final DatabaseInternal database;
+  private final BinarySerializer serializer;
+
+  public ResultSpillSerializer(final DatabaseInternal database) {
+    this.database = database;
+    this.serializer = database.getSerializer();
+  }
+
+  /**
+   * Returns true if the result and all its values can be written by {@link #serialize(Result, Binary)}.
+   */
+  public boolean isSerializable(final Result result) {
+    if (result.getClass() != ResultInternal.class)
+      return false;
+
+    final ResultInternal r = (ResultInternal) result;
+    if (r.element != null && !isPersistent(r.element))
+      return false;
+    return isSerializableValue(r.value) && isSerializableMap(r.content) && isSerializableMap(r.temporaryContent)
+        && isSerializableMap(r.metadata);
+  }
+
+  public void serialize(final Result result, final Binary buffer) {
+    final ResultInternal r = (ResultInternal) result;
+
+    byte flags = 0;
+    if (r.element != null)
+      flags |= HAS_ELEMENT;
+    if (r.value != null)
+      flags |= HAS_VALUE;
+    if (r.content != null)
+      flags |= HAS_CONTENT;
+    if (r.temporaryContent != null && !r.temporaryContent.isEmpty())
+      flags |= HAS_TEMPORARY;
+    if (r.metadata != null && !r.metadata.isEmpty())
+      flags |= HAS_METADATA;
+    if (r.tombstones != null && !r.tombstones.isEmpty())
+      flags |= HAS_TOMBSTONES;
+
+    buffer.putByte(flags);
+
+    if (r.element != null)
+      writeRID(r.element.getIdentity(), buffer);
+    if (r.value != null)
+      writeValue(r.value, buffer);
+    if (r.content != null)
+      writeMap(r.content, buffer);
+    if ((flags & HAS_TEMPORARY) != 0)
+      writeMap(r.temporaryContent, buffer);
+    if ((flags & HAS_METADATA) != 0)
+      writeMap(r.metadata, buffer);
+    if ((flags & HAS_TOMBSTONES) != 0) {
+      buffer.putUnsignedNumber(r.tombstones.size());
+      for (final String name : r.tombstones)
+        buffer.putString(name);
+    }
+  }
+
+  public Result deserialize(final Binary buffer) {
+    final byte flags = buffer.getByte();
+
+    final Document element = (flags & HAS_ELEMENT) != 0 ? (Document) readRecord(buffer) : null;
+    final Object value = (flags & HAS_VALUE) != 0 ? readValue(buffer) : null;
+
+    final ResultInternal result = value != null ? new ResultInternal(value) : new ResultInternal(database);
+    result.element = element;
+    result.content = (flags & HAS_CONTENT) != 0 ? readMap(buffer) : null;
+    if ((flags & HAS_TEMPORARY) != 0)
+      result.temporaryContent = new HashMap<>(readMap(buffer));
+    if ((flags & HAS_METADATA) != 0)
+      result.metadata = new HashMap<>(readMap(buffer));
+    if ((flags & HAS_TOMBSTONES) != 0) {
+      final int size = (int) buffer.getUnsignedNumber();
+      result.tombstones = new HashSet<>(size);
+      for (int i = 0; i < size; i++)
+        result.tombstones.add(buffer.getString());
+    }
+    return result;
+  }
+
+  private boolean isSerializableMap(final Map<String, Object> map) {
+    if (map != null)
+      for (final Object v : map.values())
+        if (!isSerializableValue(v))
+          return false;
+    return true;
+  }
+
+  private boolean isSerializableValue(final Object value) {
+    switch (value) {
+    case null -> {
+      return true;
+    }
+    case Document document -> {
+      return isPersistent(document) || document.getIdentity() == null;
+    }
+    case Result result -> {
+      return isSerializable(result);
+    }
+    case Map<?, ?> map -> {
+      for (final Map.Entry<?, ?> entry : map.entrySet())
+        if (!(entry.getKey() instanceof String) || !isSerializableValue(entry.getValue()))
+          return false;
+      return true;
+    }
+    case Collection<?> collection -> {
+      for (final Object v : collection)
+        if (!isSerializableValue(v))
+          return false;
+      return true;
+    }
+    case Object[] array -> {
+      for (final Object v : array)
+        if (!isSerializableValue(v))
+          return false;
+      return true;
+    }
+    default -> {
+      return BinaryTypes.getTypeFromValue(value, null) != -1;
+    }
+    }
+  }
+
+  private static boolean isPersistent(final Document document) {
+    final RID rid = document.getIdentity();
+    return rid != null && rid.isValid();
+  }
+
+  private void writeValue(final Object value, final Binary buffer) {
+    switch (value) {
+    case null -> buffer.putByte(TAG_NULL);
+    case Document document when isPersistent(document) -> {
+      buffer.putByte(TAG_RECORD);
+      writeRID(document.getIdentity(), buffer);
+    }
+    case Result result -> {
+      buffer.putByte(TAG_RESULT);
+      serialize(result, buffer);
+    }
+    case Map<?, ?> map -> {
+      buffer.putByte(TAG_MAP);
+      writeMap((Map<String, Object>) map, buffer);
+    }
+    case Collection<?> collection -> {
+      buffer.putByte(TAG_LIST);
+      buffer.putUnsignedNumber(collection.size());
+      for (final Object v : collection)
+        writeValue(v, buffer);
+    }
+    case Object[] array -> {
+      buffer.putByte(TAG_LIST);
+      buffer.putUnsignedNumber(array.length);
+      for (final Object v : array)
+        writeValue(v, buffer);
+    }
+    default -> {
+      final byte type = BinaryTypes.getTypeFromValue(value, null);
+      buffer.putByte(TAG_VALUE);
+      buffer.putByte(type);
+      serializer.serializeValue(database, buffer, type, value);
+    }
+    }
+  }
+
+  private Object readValue(final Binary buffer) {
+    final byte tag = buffer.getByte();
+    return switch (tag) {
+      case TAG_NULL -> null;
+      case TAG_RECORD -> readRecord(buffer);
+      case TAG_RESULT -> deserialize(buffer);
+      case TAG_MAP -> readMap(buffer);
+      case TAG_LIST -> {
+        final int size = (int) buffer.getUnsignedNumber();
+        final List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+          list.add(readValue(buffer));
+        yield list;
+      }
+      case TAG_VALUE -> serializer.deserializeValue(database, buffer, buffer.getByte(), null);
+      default -> throw new IllegalStateException("Invalid tag " + tag + " in spilled result");
+    };
+  }
+
+  private void writeMap(final Map<String, Object> map, final Binary buffer) {
+    buffer.putUnsignedNumber(map.size());
+    for (final Map.Entry<String, Object> entry : map.entrySet()) {
+      buffer.putString(entry.getKey());
+      writeValue(entry.getValue(), buffer);
+    }
+  }
+
+  private Map<String, Object> readMap(final Binary buffer) {
+    final int size = (int) buffer.getUnsignedNumber();
+    final Map<String, Object> map = new LinkedHashMap<>(size);
+    for (int i = 0; i < size; i++) {
+      final String key = buffer.getString();
+      map.put(key, readValue(buffer));
+    }
+    return map;
+  }
+
+  private static void writeRID(final RID rid, final Binary buffer) {
+    buffer.putNumber(rid.getBucketId());
+    buffer.putNumber(rid.getPosition());
+  }
+
+  private Record readRecord(final Binary buffer) {
+    final RID rid = new RID((int) buffer.getNumber(), buffer.getNumber());
+    return database.lookupByRID(rid, true);
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql.executor;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.database.Binary;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.exception.CommandExecutionException;
+import com.arcadedb.log.LogManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+
+/**
+ * Hash partitions on disk used by GROUP BY and DISTINCT once their in-heap budget is exhausted. Rows are routed by the hash
+ * of their key, so all the rows of a key end up in the same partition and each partition can be aggregated (or deduplicated)
+ * on its own, without merging partial states. A partition that still does not fit is partitioned again at the next depth,
+ * with a different hash seed.
+ */
+public class SpillPartitions implements AutoCloseable {
+  public static final int MAX_DEPTH = 4;
+
+  private static final int IO_BUFFER_SIZE = 16 * 1024;
+
+  private final DatabaseInternal      database;
+  private final ResultSpillSerializer serializer;
+  private final int                   depth;
+  private final String                operation;
+  private final File[]                files;
+  private final DataOutputStream[]    writers;
+  private final long[]                counts;
+  private final Binary                buffer = new Binary(8192);
+  private       long                  spilledRows;
+
+  public SpillPartitions(final DatabaseInternal database, final int partitions, final int depth, final String operation) {
+    this.database = database;
+    this.serializer = new ResultSpillSerializer(database);
+    this.depth = depth;
+    this.operation = operation;
+    this.files = new File[partitions];
+    this.writers = new DataOutputStream[partitions];
+    this.counts = new long[partitions];
+  }
+
+  /**
+   * Returns a new instance for the next depth if there is room for one, otherwise throws a
+   * {@link CommandExecutionException}.
+   */
+  public SpillPartitions nextDepth() {
+    if (depth + 1 >= MAX_DEPTH)
+      throw new CommandExecutionException(
+          "Cannot spill " + operation + " to disk: a partition still exceeds the in-heap limit after " + MAX_DEPTH
+              + " levels of partitioning. You can set " + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey()
+              + " or " + GlobalConfiguration.QUERY_SPILL_PARTITIONS.getKey() + " to a higher value");
+    return new SpillPartitions(database, files.length, depth + 1, operation);
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public int getPartitions() {
+    return files.length;
+  }
+
+  public long getSpilledRows() {
+    return spilledRows;
+  }
+
+  public void add(final int keyHash, final Result row) {
+    if (!serializer.isSerializable(row))
+      throw new CommandExecutionException(
+          "Cannot spill " + operation + " to disk because a result cannot be serialized (" + row + "). You can set "
+              + GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.getKey() + " to increase the in-heap limit");
+
+    final int partition = partitionOf(keyHash);
+    try {
+      DataOutputStream out = writers[partition];
+      if (out == null) {
+        final File directory = new File(database.getDatabasePath(), ExternalSortBuffer.TEMP_DIRECTORY);
+        if (!directory.exists() && !directory.mkdirs() && !directory.exists())
+          throw new IOException("Cannot create directory " + directory);
+
+        files[partition] = Files.createTempFile(directory.toPath(), "partition-", ".run").toFile();
+        out = writers[partition] = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(files[partition]), IO_BUFFER_SIZE));
+      }
+
+      buffer.clear();
+      serializer.serialize(row, buffer);
+      out.writeInt(buffer.size());
+      out.write(buffer.getContent(), 0, buffer.size());
+      ++counts[partition];
+      ++spilledRows;
+    } catch (final IOException e) {
+      close();
+      throw new CommandExecutionException("Error on spilling " + operation + " results to disk", e);
+    }
+  }
+
+  /**
+   * Returns the rows of a partition. The partition file is deleted once all its rows have been read.
+   */
+  public Iterator<Result> read(final int partition) {
+    if (files[partition] == null)
+      return Collections.emptyIterator();
+
+    final File file = files[partition];
+    final long count = counts[partition];
+    final DataInputStream in;
+    try {
+      closeWriter(partition);
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), IO_BUFFER_SIZE * 4));
+    } catch (final IOException e) {
+      close();
+      throw new CommandExecutionException("Error on reading " + operation + " results spilled to disk", e);
+    }
+
+    return new Iterator<>() {
+      private long read = 0;
+
+      @Override
+      public boolean hasNext() {
+        if (read < count)
+          return true;
+        release();
+        return false;
+      }
+
+      @Override
+      public Result next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+        try {
+          final byte[] content = new byte[in.readInt()];
+          in.readFully(content);
+          ++read;
+          return serializer.deserialize(new Binary(content));
+        } catch (final IOException e) {
+          release();
+          throw new CommandExecutionException("Error on reading " + operation + " results spilled to disk", e);
+        }
+      }
+
+      private void release() {
+        try {
+          in.close();
+        } catch (final IOException e) {
+          // IGNORE IT
+        }
+        deleteFile(partition);
+      }
+    };
+  }
+
+  @Override
+  public void close() {
+    for (int i = 0; i < files.length; i++) {
+      try {
+        closeWriter(i);
+      } catch (final IOException e) {
+        // IGNORE IT
+      }
+      deleteFile(i);
+    }
+  }
+
+  private int partitionOf(final int keyHash) {
+    // RE-MIX WITH A SEED PER DEPTH: THE ROWS OF A PARTITION ALL SHARE THE SAME LOW BITS AT THE PREVIOUS DEPTH
+    int h = keyHash ^ (depth * 0x9E3779B9);
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return Math.floorMod(h, files.length);
+  }
+
+  private void closeWriter(final int partition) throws IOException {
+    final DataOutputStream out = writers[partition];
+    if (out != null) {
+      writers[partition] = null;
+      out.close();
+    }
+  }
+
+  private void deleteFile(final int partition) {
+    final File file = files[partition];
+    if (file != null) {
+      files[partition] = null;
+      if (file.exists() && !file.delete())
+        LogManager.instance().log(this, Level.WARNING, "Cannot delete temporary file '%s'", file);
+    }
+  }
+}
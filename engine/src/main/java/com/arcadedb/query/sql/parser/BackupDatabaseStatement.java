@@ -113,12 +113,14 @@ public class BackupDatabaseStatement extends SimpleExecStatement {
                 .invoke(backup, parseIntSetting("compressionThreads", stringValue));
             case "maxMBPerSecond" -> clazz.getMethod("setMaxMBPerSecond", Integer.TYPE)
                 .invoke(backup, parseIntSetting("maxMBPerSecond", stringValue));
+            case "format" -> clazz.getMethod("setFormat", String.class).invoke(backup, stringValue);
+            case "base" -> clazz.getMethod("setBase", String.class).invoke(backup, stringValue);
             // AN UNRECOGNISED NAME USED TO BE DROPPED IN SILENCE, WHICH IS THE SAME FAILURE MODE AS THE toString() BUG
             // ABOVE AND JUST AS DANGEROUS: 'WITH encryptionkey = ...' (WRONG CASE, OR ANY TYPO) WOULD HAVE WRITTEN A
             // CLEARTEXT ARCHIVE WHILE LOOKING LIKE IT ASKED FOR AN ENCRYPTED ONE. NOTHING IS LOST BY REFUSING: UNTIL
             // THE FIX ABOVE, EVERY SETTING WAS IGNORED, SO NO WORKING STATEMENT DEPENDS ON ONE BEING ACCEPTED
             default -> throw new CommandExecutionException(
-                "Unsupported backup setting '%s'. Supported settings are: compressionLevel, compressionThreads, encryptionAlgorithm, encryptionKey, maxMBPerSecond".formatted(
+                "Unsupported backup setting '%s'. Supported settings are: base, compressionLevel, compressionThreads, encryptionAlgorithm, encryptionKey, format, maxMBPerSecond".formatted(
                     settingName));
             }
           } catch (final InvocationTargetException e) {
@@ -35,6 +35,7 @@ import com.arcadedb.engine.ComponentFactory;
 import com.arcadedb.engine.ComponentFile;
 import com.arcadedb.engine.Dictionary;
 import com.arcadedb.engine.LocalBucket;
+import com.arcadedb.engine.PageCodec;
 import com.arcadedb.engine.timeseries.TimeSeriesBucket;
 import com.arcadedb.engine.timeseries.TimeSeriesMaintenanceScheduler;
 import com.arcadedb.engine.timeseries.TimeSeriesTagDictionary;
@@ -540,6 +541,16 @@ public class LocalSchema implements Schema {
    * heavy payloads; everything else uses {@link LocalBucket#CURRENT_VERSION}.
    */
   public LocalBucket createBucket(final String bucketName, final int pageSize, final String parentDirectory, final int version) {
+    return createBucket(bucketName, pageSize, parentDirectory, version,
+        PageCodec.getByName(database.getConfiguration().getValueAsString(GlobalConfiguration.BUCKET_PAGE_COMPRESSION)));
+  }
+
+  /**
+   * Creates a bucket whose pages are written to disk with {@code pageCodec} (see {@link PageCodec}). The codec is stored in
+   * the bucket file, so it is fixed for the whole life of the bucket.
+   */
+  public LocalBucket createBucket(final String bucketName, final int pageSize, final String parentDirectory, final int version,
+      final PageCodec pageCodec) {
     database.checkPermissionsOnDatabase(SecurityDatabaseUser.DATABASE_ACCESS.UPDATE_SCHEMA);
 
     checkValidBucketName(bucketName);
@@ -571,6 +582,7 @@ public class LocalSchema implements Schema {
           throw new SchemaException("Cannot create directory '" + dir + "' for bucket '" + bucketName + "'");
         final LocalBucket bucket = new LocalBucket(database, bucketName, dir + File.separator + bucketName,
             ComponentFile.MODE.READ_WRITE, pageSize, version);
+        bucket.getComponentFile().setPageCodec(pageCodec);
         registerFile((Component) bucket);
         bucketMap.put(bucketName, bucket);
 
@@ -2589,6 +2601,7 @@ public class LocalSchema implements Schema {
     // update() path - must flush it too. The Cypher statement cache holds only the syntactic AST and
     // is schema-independent, so it is intentionally left untouched (same as SQL's statement cache).
     database.getCypherPlanCache().invalidate();
+    database.getQueryResultCache().invalidate();
   }
 
   protected <RET> RET recordFileChanges(final Callable<Object> callback) {
@@ -2628,6 +2641,8 @@ public class LocalSchema implements Schema {
       // no longer exists), so flush it on every local schema change. The Cypher statement (AST) cache
       // is syntactic and schema-independent, so it is deliberately not flushed here.
       database.getCypherPlanCache().invalidate();
+      // Cached query results depend on the types, buckets and indexes the schema defines.
+      database.getQueryResultCache().invalidate();
 
       return result;
 
@@ -134,6 +134,12 @@ public class MaterializedViewBuilder {
           database, name, query, name, sourceTypeNames,
           refreshMode, simple, refreshInterval);
       view.setStatus(MaterializedViewStatus.BUILDING);
+
+      // The backing type is still empty, so the index the deltas look rows up with costs nothing to build now
+      final MaterializedViewIncrementalPlan plan = view.getIncrementalPlan();
+      if (plan != null)
+        plan.createTrackingIndex(schema.getType(name));
+
       schema.materializedViews.put(name, view);
       schema.saveConfiguration();
 
@@ -26,6 +26,9 @@ import com.arcadedb.event.AfterRecordDeleteListener;
 import com.arcadedb.event.AfterRecordUpdateListener;
 import com.arcadedb.log.LogManager;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.logging.Level;
 
 public class MaterializedViewChangeListener
@@ -34,6 +37,10 @@ public class MaterializedViewChangeListener
   private final MaterializedViewImpl view;
   private final DatabaseInternal database;
   private final String callbackKey;
+  // The delta of each transaction still running. Weak keys: a transaction that rolls back never fires its callback,
+  // and its entry must not outlive it
+  private final Map<TransactionContext, MaterializedViewDelta> pendingDeltas =
+      Collections.synchronizedMap(new WeakHashMap<>());
 
   public MaterializedViewChangeListener(final DatabaseInternal database, final MaterializedViewImpl view) {
     this.database = database;
@@ -43,30 +50,53 @@ public class MaterializedViewChangeListener
 
   @Override
   public void onAfterCreate(final Record record) {
-    schedulePostCommitRefresh();
+    final MaterializedViewDelta delta = schedulePostCommitRefresh();
+    if (delta != null)
+      delta.recordCreate(record);
   }
 
   @Override
   public void onAfterUpdate(final Record record) {
-    schedulePostCommitRefresh();
+    final MaterializedViewDelta delta = schedulePostCommitRefresh();
+    if (delta != null)
+      delta.recordUpdate(database, record);
   }
 
   @Override
   public void onAfterDelete(final Record record) {
-    schedulePostCommitRefresh();
+    final MaterializedViewDelta delta = schedulePostCommitRefresh();
+    if (delta != null)
+      delta.recordDelete(record);
   }
 
-  private void schedulePostCommitRefresh() {
+  /**
+   * Registers the post-commit refresh on the first change of a transaction and returns the delta collecting the
+   * transaction's changes, or {@code null} if there is no transaction or the view cannot be maintained incrementally,
+   * in which case the refresh re-runs the defining query.
+   */
+  private MaterializedViewDelta schedulePostCommitRefresh() {
     if (!database.isTransactionActive())
-      return;
+      return null;
 
     final TransactionContext tx = database.getTransaction();
-    // NOTE: currently always performs a full refresh even for simple queries.
-    // Per-record incremental updates for simple queries (using _sourceRID tracking)
-    // is a future optimization — see MaterializedViewQueryClassifier.isSimple().
+    if (tx.hasCallbackKey(callbackKey))
+      return pendingDeltas.get(tx);
+
+    // The key is checked rather than the map: a transaction context can be reused after a rollback, and the
+    // rolled-back transaction's delta left in the map must not be carried into the next one
+    final MaterializedViewDelta delta = view.newDelta();
+    if (delta != null)
+      pendingDeltas.put(tx, delta);
+    else
+      pendingDeltas.remove(tx);
+
     tx.addAfterCommitCallbackIfAbsent(callbackKey, () -> {
+      pendingDeltas.remove(tx);
       try {
-        MaterializedViewRefresher.fullRefresh(database, view);
+        if (delta != null)
+          MaterializedViewRefresher.incrementalRefresh(database, view, delta);
+        else
+          MaterializedViewRefresher.fullRefresh(database, view);
       } catch (final Exception e) {
         view.setStatus(MaterializedViewStatus.STALE);
         LogManager.instance().log(this, Level.WARNING,
@@ -74,6 +104,7 @@ public class MaterializedViewChangeListener
             e, view.getName(), e.getMessage());
       }
     });
+    return delta;
   }
 
   public MaterializedViewImpl getView() {
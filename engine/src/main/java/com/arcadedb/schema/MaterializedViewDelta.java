@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.schema;
+
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.LocalDatabase;
+import com.arcadedb.database.RID;
+import com.arcadedb.database.Record;
+import com.arcadedb.query.sql.executor.CommandContext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The source records one transaction changed, as seen by one INCREMENTAL materialized view. Collected by
+ * {@link MaterializedViewChangeListener} while the transaction runs and applied by {@link MaterializedViewRefresher}
+ * once it commits; a transaction that rolls back simply never hands its delta over.
+ * <p>
+ * A {@link MaterializedViewIncrementalPlan.Kind#SOURCE} view only needs to know which records changed, because it
+ * re-reads them. A {@link MaterializedViewIncrementalPlan.Kind#GROUP} view needs each record's state before the
+ * transaction and after it, to withdraw the first from its group and add the second: the "before" is taken at the
+ * record's first change in the transaction, and for an update that is the committed version, which
+ * {@link LocalDatabase#getOriginalDocument(Record)} still holds because the record is only re-serialized at commit.
+ * <p>
+ * Past {@code arcadedb.materializedViewIncrementalMaxChanges} records the delta stops collecting and asks for a full
+ * refresh instead: a bulk transaction is cheaper to answer with one re-run of the defining query than with a delta
+ * holding a copy of every record it touched.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+final class MaterializedViewDelta {
+  private final    long                            openSequence;
+  private final    boolean                         snapshots;
+  private final    int                             maxChanges;
+  private final    Map<RID, Map<String, Object>[]> changes = new LinkedHashMap<>();
+  private          boolean                         overflow;
+  private volatile long                            enqueueSequence;
+
+  MaterializedViewDelta(final long openSequence, final boolean snapshots, final int maxChanges) {
+    this.openSequence = openSequence;
+    this.snapshots = snapshots;
+    this.maxChanges = maxChanges;
+  }
+
+  void recordCreate(final Record record) {
+    final Map<String, Object>[] change = change(record.getIdentity(), null);
+    if (change != null && snapshots)
+      change[1] = snapshot(record);
+  }
+
+  void recordUpdate(final DatabaseInternal database, final Record record) {
+    final Map<String, Object>[] change = change(record.getIdentity(), () -> {
+      try {
+        return snapshot(((LocalDatabase) database.getEmbedded()).getOriginalDocument(record));
+      } catch (final IllegalStateException e) {
+        // The committed version is not available: nothing left to withdraw from the group with
+        overflow();
+        return null;
+      }
+    });
+    if (change != null && snapshots)
+      change[1] = snapshot(record);
+  }
+
+  void recordDelete(final Record record) {
+    final Map<String, Object>[] change = change(record.getIdentity(), () -> snapshot(record));
+    if (change != null)
+      change[1] = null;
+  }
+
+  /** Whether the transaction changed too much, or something this delta cannot express, to be applied as a delta. */
+  boolean isOverflow() {
+    return overflow;
+  }
+
+  Set<RID> getChangedRecords() {
+    return changes.keySet();
+  }
+
+  /** Adds the net effect of every changed record to the group changes of {@code plan}. */
+  void contributeTo(final MaterializedViewIncrementalPlan plan,
+      final Map<String, MaterializedViewIncrementalPlan.GroupChange> groups, final CommandContext context) {
+    for (final Map<String, Object>[] change : changes.values()) {
+      plan.contribute(change[0], -1, groups, context);
+      plan.contribute(change[1], 1, groups, context);
+    }
+  }
+
+  /** Taken when the first change of the transaction was recorded, so before it committed. */
+  long getOpenSequence() {
+    return openSequence;
+  }
+
+  /** Taken when the delta was handed to the view, so after the transaction committed. */
+  long getEnqueueSequence() {
+    return enqueueSequence;
+  }
+
+  void setEnqueueSequence(final long enqueueSequence) {
+    this.enqueueSequence = enqueueSequence;
+  }
+
+  /**
+   * Returns the before/after pair of the record, registering it on its first change with the "before" state
+   * {@code before} supplies ({@code null} when absent, as for a create). Returns {@code null} once the delta has
+   * overflowed.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<String, Object>[] change(final RID rid, final Supplier<Map<String, Object>> before) {
+    if (overflow)
+      return null;
+
+    Map<String, Object>[] change = changes.get(rid);
+    if (change == null) {
+      if (changes.size() >= maxChanges) {
+        overflow();
+        return null;
+      }
+      change = new Map[2];
+      if (snapshots && before != null)
+        change[0] = before.get();
+      if (overflow)
+        return null;
+      changes.put(rid, change);
+    }
+    return change;
+  }
+
+  private void overflow() {
+    overflow = true;
+    changes.clear();
+  }
+
+  private static Map<String, Object> snapshot(final Record record) {
+    return record instanceof Document document ? document.toMap(false) : null;
+  }
+}
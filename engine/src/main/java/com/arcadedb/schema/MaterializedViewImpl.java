@@ -18,6 +18,7 @@
  */
 package com.arcadedb.schema;
 
+import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.Database;
 import com.arcadedb.serializer.json.JSONArray;
 import com.arcadedb.serializer.json.JSONObject;
@@ -25,6 +26,9 @@ import com.arcadedb.serializer.json.JSONObject;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -49,6 +53,16 @@ public class MaterializedViewImpl implements MaterializedView {
   private volatile MaterializedViewChangeListener changeListener;
   private final AtomicInteger refreshState = new AtomicInteger(REFRESH_IDLE);
 
+  // Incremental maintenance state (not persisted). A view starts out asking for a full refresh, which is what brings
+  // rows written before it was loaded, or by a different refresh mode, in line with the tracking columns of its plan
+  private volatile MaterializedViewIncrementalPlan incrementalPlan;
+  private volatile boolean                         incrementalPlanResolved;
+  private final    Queue<MaterializedViewDelta>    pendingDeltas        = new ConcurrentLinkedQueue<>();
+  private final    AtomicBoolean                   fullRefreshRequested = new AtomicBoolean(true);
+  private final    AtomicLong                      deltaSequence        = new AtomicLong(0);
+  private volatile long                            fullRefreshStartSequence;
+  private volatile long                            fullRefreshEndSequence;
+
   // Runtime metrics (not persisted)
   private final AtomicLong refreshCount         = new AtomicLong(0);
   private final AtomicLong refreshTotalTimeMs   = new AtomicLong(0);
@@ -219,6 +233,74 @@ public class MaterializedViewImpl implements MaterializedView {
     }
   }
 
+  /**
+   * Returns how this view applies deltas, or {@code null} if it is not INCREMENTAL or its defining query is not one of
+   * the shapes {@link MaterializedViewIncrementalPlan} maintains.
+   */
+  MaterializedViewIncrementalPlan getIncrementalPlan() {
+    if (!incrementalPlanResolved) {
+      if (refreshMode == MaterializedViewRefreshMode.INCREMENTAL)
+        incrementalPlan = MaterializedViewIncrementalPlan.of(database, query);
+      incrementalPlanResolved = true;
+    }
+    return incrementalPlan;
+  }
+
+  /** Opens the delta of a transaction's changes, or returns {@code null} if the view has no incremental plan. */
+  MaterializedViewDelta newDelta() {
+    final MaterializedViewIncrementalPlan plan = getIncrementalPlan();
+    if (plan == null)
+      return null;
+    return new MaterializedViewDelta(deltaSequence.incrementAndGet(),
+        plan.getKind() == MaterializedViewIncrementalPlan.Kind.GROUP,
+        database.getConfiguration().getValueAsInteger(GlobalConfiguration.MATERIALIZED_VIEW_INCREMENTAL_MAX_CHANGES));
+  }
+
+  void enqueueDelta(final MaterializedViewDelta delta) {
+    delta.setEnqueueSequence(deltaSequence.incrementAndGet());
+    pendingDeltas.add(delta);
+  }
+
+  List<MaterializedViewDelta> drainDeltas() {
+    final List<MaterializedViewDelta> drained = new ArrayList<>();
+    MaterializedViewDelta delta;
+    while ((delta = pendingDeltas.poll()) != null)
+      drained.add(delta);
+    return drained;
+  }
+
+  /** Drops the deltas a full refresh started at {@code sequence} already read, their commits having preceded it. */
+  void discardDeltasEnqueuedBefore(final long sequence) {
+    pendingDeltas.removeIf(delta -> delta.getEnqueueSequence() < sequence);
+  }
+
+  /** Makes the next refresh pass re-run the defining query instead of applying the pending deltas. */
+  void requestFullRefresh() {
+    fullRefreshRequested.set(true);
+  }
+
+  boolean consumeFullRefreshRequest() {
+    return fullRefreshRequested.getAndSet(false);
+  }
+
+  /** Advances the sequence deltas are ordered against the full refreshes with. */
+  long nextSequence() {
+    return deltaSequence.incrementAndGet();
+  }
+
+  void fullRefreshCompleted(final long startSequence, final long endSequence) {
+    fullRefreshStartSequence = startSequence;
+    fullRefreshEndSequence = endSequence;
+  }
+
+  long getFullRefreshStartSequence() {
+    return fullRefreshStartSequence;
+  }
+
+  long getFullRefreshEndSequence() {
+    return fullRefreshEndSequence;
+  }
+
   @Override
   public long getRefreshCount() {
     return refreshCount.get();
@@ -0,0 +1,462 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.schema;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.Identifiable;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.database.RID;
+import com.arcadedb.query.sql.executor.BasicCommandContext;
+import com.arcadedb.query.sql.executor.CommandContext;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultInternal;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.query.sql.parser.BaseExpression;
+import com.arcadedb.query.sql.parser.BaseIdentifier;
+import com.arcadedb.query.sql.parser.Expression;
+import com.arcadedb.query.sql.parser.FromItem;
+import com.arcadedb.query.sql.parser.FunctionCall;
+import com.arcadedb.query.sql.parser.Projection;
+import com.arcadedb.query.sql.parser.ProjectionItem;
+import com.arcadedb.query.sql.parser.SelectStatement;
+import com.arcadedb.query.sql.parser.SimpleNode;
+import com.arcadedb.query.sql.parser.Statement;
+import com.arcadedb.query.sql.parser.WhereClause;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * How an INCREMENTAL materialized view applies a committed transaction's changes without re-running its defining query
+ * over the whole source type. Only two shapes of query are maintained this way; {@link #of(Database, String)} returns
+ * {@code null} for anything else and the view keeps rebuilding itself with a full refresh after every commit.
+ * <ul>
+ * <li>{@link Kind#SOURCE}: a projection and/or filter over a single type. Every view row carries the RID of the
+ * source record it was projected from in {@value #SOURCE_RID_PROPERTY}, so a changed record is re-projected on its
+ * own and written over the rows it produced before. Re-reading the record's current state makes the apply idempotent:
+ * it does not matter how many commits it folds together, or in which order.</li>
+ * <li>{@link Kind#GROUP}: a {@code GROUP BY} over a single type whose aggregates are only {@code count(*)},
+ * {@code count(<expr>)} and {@code sum(<expr>)}. Every group row carries its encoded key in
+ * {@value #GROUP_KEY_PROPERTY} and its number of source records in {@value #GROUP_COUNT_PROPERTY}. A change
+ * withdraws the record's previous contribution from its group and adds its new one, the group row is dropped when its
+ * count reaches zero and created when a record lands in a group that did not exist.</li>
+ * </ul>
+ * {@code min()}, {@code max()} and {@code avg()} are left to the full refresh on purpose: withdrawing the current
+ * minimum needs the rest of the group, which is the scan this class exists to avoid.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+final class MaterializedViewIncrementalPlan {
+  static final String SOURCE_RID_PROPERTY  = "_sourceRID";
+  static final String GROUP_KEY_PROPERTY   = "_groupKey";
+  static final String GROUP_COUNT_PROPERTY = "_groupCount";
+
+  enum Kind {SOURCE, GROUP}
+
+  private enum AggregateKind {COUNT_ALL, COUNT, SUM}
+
+  private record Key(String column, Expression expression) {
+  }
+
+  private record Aggregate(String column, AggregateKind kind, Expression argument) {
+  }
+
+  private final Kind            kind;
+  private final String          refreshQuery;
+  private final String          sourceQuery;
+  private final WhereClause     where;
+  private final List<Key>       keys;
+  private final List<Aggregate> aggregates;
+
+  private MaterializedViewIncrementalPlan(final Kind kind, final String refreshQuery, final String sourceQuery,
+      final WhereClause where, final List<Key> keys, final List<Aggregate> aggregates) {
+    this.kind = kind;
+    this.refreshQuery = refreshQuery;
+    this.sourceQuery = sourceQuery;
+    this.where = where;
+    this.keys = keys;
+    this.aggregates = aggregates;
+  }
+
+  /**
+   * Returns the plan for the defining query, or {@code null} if the query cannot be maintained incrementally.
+   */
+  static MaterializedViewIncrementalPlan of(final Database database, final String query) {
+    final Statement parsed;
+    try {
+      parsed = ((DatabaseInternal) database).getStatementCache().get(query);
+    } catch (final Exception e) {
+      return null;
+    }
+    if (!(parsed instanceof SelectStatement select))
+      return null;
+
+    if (select.getTarget() == null || select.getTarget().getItem() == null)
+      return null;
+    final FromItem from = select.getTarget().getItem();
+    if (from.getIdentifier() == null || from.getStatement() != null || from.getFunctionCall() != null
+        || from.getModifier() != null)
+      return null;
+
+    // Anything that makes a row depend on more than the one source record it comes from, or on its position among
+    // the others, cannot be recomputed from that record alone
+    if (select.getLetClause() != null || select.getUnwind() != null || select.getSkip() != null
+        || select.getLimit() != null)
+      return null;
+
+    final Projection projection = select.getProjection();
+    if (projection != null && projection.isDistinct())
+      return null;
+    if (projection != null && !isSelfContained(projection, true))
+      return null;
+
+    final WhereClause where = select.getWhereClause();
+    final String target = select.getTarget().toString();
+    final String filter = where != null ? " WHERE " + where : "";
+
+    final BasicCommandContext context = new BasicCommandContext();
+    context.setDatabase((DatabaseInternal) database);
+
+    boolean aggregated = false;
+    if (projection != null && projection.getItems() != null)
+      for (final ProjectionItem item : projection.getItems()) {
+        if (item.isExpand() || (!item.isAll() && isHiddenColumn(item.getProjectionAliasAsString())))
+          return null;
+        if (item.isAggregate(context))
+          aggregated = true;
+      }
+
+    if (select.getGroupBy() == null && !aggregated) {
+      if (where != null && !isSelfContained(where, true))
+        return null;
+
+      // The ORDER BY is dropped: the rows of a view have no order, only the query reading them does
+      final String columns = (projection == null || projection.getItems() == null || projection.getItems().isEmpty() ?
+          "*" :
+          projection.toString()) + ", @rid AS " + SOURCE_RID_PROPERTY;
+      return new MaterializedViewIncrementalPlan(Kind.SOURCE,//
+          "SELECT " + columns + " FROM " + target + filter,//
+          "SELECT " + columns + " FROM :sourceRIDs" + filter, null, null, null);
+    }
+
+    // A group's contribution is computed from a snapshot of the source record's properties, so the keys, the
+    // aggregated expressions and the filter must read nothing but those properties
+    if (select.getGroupBy() == null || projection == null || projection.getItems() == null)
+      return null;
+    if (where != null && !isSelfContained(where, false))
+      return null;
+
+    final List<Key> keys = new ArrayList<>();
+    final List<Aggregate> aggregates = new ArrayList<>();
+    for (final ProjectionItem item : projection.getItems()) {
+      if (item.isAll() || !isSelfContained(item, false))
+        return null;
+      if (item.isAggregate(context)) {
+        final Aggregate aggregate = aggregateOf(item);
+        if (aggregate == null)
+          return null;
+        aggregates.add(aggregate);
+      } else
+        keys.add(new Key(item.getProjectionAliasAsString(), item.getExpression()));
+    }
+
+    // Every group-by expression must be one of the projected keys and vice versa: a group the view cannot tell apart
+    // from another by its columns cannot be found again to be updated
+    final List<Expression> groupBy = select.getGroupBy().getItems();
+    if (keys.isEmpty() || aggregates.isEmpty() || groupBy.size() != keys.size())
+      return null;
+    final boolean[] matched = new boolean[keys.size()];
+    final StringBuilder groupByText = new StringBuilder();
+    for (final Expression expression : groupBy) {
+      final String text = expression.toString();
+      int found = -1;
+      for (int i = 0; i < keys.size() && found < 0; i++)
+        if (!matched[i] && (text.equals(keys.get(i).expression().toString()) || text.equals(keys.get(i).column())))
+          found = i;
+      if (found < 0)
+        return null;
+      matched[found] = true;
+      if (!groupByText.isEmpty())
+        groupByText.append(", ");
+      groupByText.append(text);
+    }
+
+    return new MaterializedViewIncrementalPlan(Kind.GROUP,//
+        "SELECT " + projection + ", count(*) AS " + GROUP_COUNT_PROPERTY + " FROM " + target + filter + " GROUP BY "
+            + groupByText, null, where, List.copyOf(keys), List.copyOf(aggregates));
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  /** The defining query extended with the tracking columns, used by a full refresh of the view. */
+  String getRefreshQuery() {
+    return refreshQuery;
+  }
+
+  /**
+   * Creates the tracking property and the index the deltas look view rows up with. Called on the empty backing type
+   * when the view is created: a view without it is still maintained correctly, just by scanning.
+   */
+  void createTrackingIndex(final DocumentType backingType) {
+    final String property = kind == Kind.SOURCE ? SOURCE_RID_PROPERTY : GROUP_KEY_PROPERTY;
+    if (!backingType.existsProperty(property))
+      backingType.createProperty(property, kind == Kind.SOURCE ? Type.LINK : Type.STRING);
+    if (backingType.getPolymorphicIndexByProperties(property) == null)
+      backingType.createTypeIndex(Schema.INDEX_TYPE.LSM_TREE, false, property);
+  }
+
+  /** Completes a row written by a full refresh with the tracking columns the query cannot compute. */
+  void decorate(final MutableDocument doc, final Result row) {
+    if (kind != Kind.GROUP)
+      return;
+    final Object[] values = new Object[keys.size()];
+    for (int i = 0; i < values.length; i++)
+      values[i] = row.getProperty(keys.get(i).column());
+    doc.set(GROUP_KEY_PROPERTY, encodeKey(values));
+  }
+
+  /**
+   * Re-projects the changed source records and writes the result over the view rows each of them produced before,
+   * creating or deleting the difference. A record that no longer exists, or no longer passes the filter, simply
+   * projects to no rows. Must run inside a transaction.
+   */
+  void applySourceChanges(final Database database, final String backingTypeName, final Collection<RID> changed) {
+    final Map<RID, List<Result>> projected = new HashMap<>();
+    try (final ResultSet rs = database.query("sql", sourceQuery, Map.of("sourceRIDs", new ArrayList<>(changed)))) {
+      while (rs.hasNext()) {
+        final Result row = rs.next();
+        if (row.getProperty(SOURCE_RID_PROPERTY) instanceof Identifiable source)
+          projected.computeIfAbsent(source.getIdentity(), k -> new ArrayList<>()).add(row);
+      }
+    }
+
+    for (final RID source : changed) {
+      final List<Document> current = viewRows(database, backingTypeName, SOURCE_RID_PROPERTY, source);
+      final List<Result> rows = projected.getOrDefault(source, List.of());
+
+      for (int i = 0; i < rows.size(); i++) {
+        final MutableDocument doc = i < current.size() ?
+            current.get(i).modify() :
+            database.newDocument(backingTypeName);
+        MaterializedViewRefresher.applyRow(doc, rows.get(i));
+        doc.save();
+      }
+
+      for (int i = rows.size(); i < current.size(); i++)
+        current.get(i).delete();
+    }
+  }
+
+  /**
+   * Adds what one state of a source record contributes to its group, negated when {@code sign} is negative. A
+   * {@code null} snapshot, the state before a create or after a delete, contributes nothing.
+   */
+  void contribute(final Map<String, Object> snapshot, final int sign, final Map<String, GroupChange> changes,
+      final CommandContext context) {
+    if (snapshot == null)
+      return;
+
+    final ResultInternal record = new ResultInternal(snapshot);
+    if (where != null && !Boolean.TRUE.equals(where.matchesFilters(record, context)))
+      return;
+
+    final Object[] values = new Object[keys.size()];
+    for (int i = 0; i < values.length; i++)
+      values[i] = keys.get(i).expression().execute(record, context);
+
+    final GroupChange change = changes.computeIfAbsent(encodeKey(values), k -> new GroupChange(values, aggregates.size()));
+    change.count += sign;
+    for (int i = 0; i < aggregates.size(); i++) {
+      final Aggregate aggregate = aggregates.get(i);
+      final Number value = switch (aggregate.kind()) {
+        case COUNT_ALL -> 1L;
+        case COUNT -> aggregate.argument().execute(record, context) != null ? 1L : null;
+        case SUM -> aggregate.argument().execute(record, context) instanceof Number n ? n : null;
+      };
+      if (value != null)
+        change.add(i, sign, value);
+    }
+  }
+
+  /**
+   * Folds the accumulated group changes into the view. Returns {@code false} if the view does not hold what the
+   * changes expect - a group to withdraw from that is missing, or one that would go below zero records - in which case
+   * the caller must rebuild the view with a full refresh. Must run inside a transaction.
+   */
+  boolean applyGroupChanges(final Database database, final String backingTypeName,
+      final Map<String, GroupChange> changes) {
+    for (final Map.Entry<String, GroupChange> entry : changes.entrySet()) {
+      final GroupChange change = entry.getValue();
+      if (change.isEmpty())
+        continue;
+
+      final List<Document> current = viewRows(database, backingTypeName, GROUP_KEY_PROPERTY, entry.getKey());
+      if (current.size() > 1)
+        return false;
+
+      if (current.isEmpty()) {
+        if (change.count <= 0)
+          return false;
+
+        final MutableDocument doc = database.newDocument(backingTypeName);
+        for (int i = 0; i < keys.size(); i++)
+          doc.set(keys.get(i).column(), change.keyValues[i]);
+        for (int i = 0; i < aggregates.size(); i++) {
+          final Number delta = change.deltas[i];
+          doc.set(aggregates.get(i).column(), delta != null ? delta : aggregates.get(i).kind() == AggregateKind.SUM ? 0 : 0L);
+        }
+        doc.set(GROUP_KEY_PROPERTY, entry.getKey());
+        doc.set(GROUP_COUNT_PROPERTY, change.count);
+        doc.save();
+        continue;
+      }
+
+      final Document existing = current.getFirst();
+      if (!(existing.get(GROUP_COUNT_PROPERTY) instanceof Number previousCount))
+        return false;
+
+      final long count = previousCount.longValue() + change.count;
+      if (count < 0)
+        return false;
+      if (count == 0) {
+        existing.delete();
+        continue;
+      }
+
+      final MutableDocument doc = existing.modify();
+      for (int i = 0; i < aggregates.size(); i++) {
+        final Number delta = change.deltas[i];
+        if (delta == null)
+          continue;
+        if (!(doc.get(aggregates.get(i).column()) instanceof Number previous))
+          return false;
+        doc.set(aggregates.get(i).column(), Type.increment(previous, delta));
+      }
+      doc.set(GROUP_COUNT_PROPERTY, count);
+      doc.save();
+    }
+    return true;
+  }
+
+  /** The net change of one group: its key values, its record count and the delta of each aggregate. */
+  static final class GroupChange {
+    private final Object[] keyValues;
+    private final Number[] deltas;
+    private       long     count;
+
+    private GroupChange(final Object[] keyValues, final int aggregates) {
+      this.keyValues = keyValues;
+      this.deltas = new Number[aggregates];
+    }
+
+    private void add(final int aggregate, final int sign, final Number value) {
+      final Number previous = deltas[aggregate];
+      if (sign > 0)
+        deltas[aggregate] = previous == null ? value : Type.increment(previous, value);
+      else
+        deltas[aggregate] = Type.decrement(previous == null ? 0 : previous, value);
+    }
+
+    private boolean isEmpty() {
+      if (count != 0)
+        return false;
+      for (final Number delta : deltas)
+        if (delta != null && delta.doubleValue() != 0)
+          return false;
+      return true;
+    }
+  }
+
+  private static List<Document> viewRows(final Database database, final String backingTypeName, final String property,
+      final Object value) {
+    final List<Document> rows = new ArrayList<>(1);
+    try (final ResultSet rs = database.query("sql", "SELECT FROM `" + backingTypeName + "` WHERE " + property + " = ?",
+        value)) {
+      while (rs.hasNext())
+        rs.next().getRecord().ifPresent(r -> rows.add((Document) r));
+    }
+    return rows;
+  }
+
+  /**
+   * Encodes a group's key values as one string, tagging each with its class and length so that neither {@code 1} and
+   * {@code "1"} nor {@code ("a,b")} and {@code ("a", "b")} collide.
+   */
+  static String encodeKey(final Object[] values) {
+    final StringBuilder key = new StringBuilder();
+    for (final Object value : values) {
+      if (value == null) {
+        key.append("n;");
+        continue;
+      }
+      final String text = value instanceof Identifiable identifiable ? identifiable.getIdentity().toString() : value.toString();
+      key.append(value instanceof Identifiable ? "RID" : value.getClass().getSimpleName()).append(':').append(text.length())
+          .append(':').append(text).append(';');
+    }
+    return key.toString();
+  }
+
+  private static Aggregate aggregateOf(final ProjectionItem item) {
+    final Expression expression = item.getExpression();
+    if (expression == null || !(expression.mathExpression instanceof BaseExpression base) || base.modifier != null)
+      return null;
+    final BaseIdentifier identifier = base.identifier;
+    if (identifier == null || identifier.suffix != null || identifier.levelZero == null
+        || identifier.levelZero.functionCall == null)
+      return null;
+
+    final FunctionCall call = identifier.levelZero.functionCall;
+    final List<Expression> params = call.getParams();
+    final String column = item.getProjectionAliasAsString();
+    switch (call.getName().getStringValue().toLowerCase(Locale.ENGLISH)) {
+    case "count":
+      if (call.isStar() || params.isEmpty())
+        return new Aggregate(column, AggregateKind.COUNT_ALL, null);
+      if (params.size() == 1 && params.getFirst().toString().equals("*"))
+        return new Aggregate(column, AggregateKind.COUNT_ALL, null);
+      return params.size() == 1 ? new Aggregate(column, AggregateKind.COUNT, params.getFirst()) : null;
+    case "sum":
+      return params.size() == 1 && !call.isStar() ? new Aggregate(column, AggregateKind.SUM, params.getFirst()) : null;
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * Whether an expression reads nothing but the current record: no sub-query, no context variable, no parameter, and
+   * unless {@code allowAttributes}, no record attribute either, since a property snapshot does not carry them.
+   */
+  private static boolean isSelfContained(final SimpleNode node, final boolean allowAttributes) {
+    final String text = node.toString().toLowerCase(Locale.ENGLISH);
+    return !text.contains("select") && !text.contains("$") && !text.contains("?") && !text.contains(":")
+        && (allowAttributes || !text.contains("@"));
+  }
+
+  private static boolean isHiddenColumn(final String column) {
+    return SOURCE_RID_PROPERTY.equals(column) || GROUP_KEY_PROPERTY.equals(column) || GROUP_COUNT_PROPERTY.equals(column);
+  }
+}
@@ -19,22 +19,42 @@
 package com.arcadedb.schema;
 
 import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.database.Document;
 import com.arcadedb.database.MutableDocument;
 import com.arcadedb.database.RID;
 import com.arcadedb.log.LogManager;
+import com.arcadedb.query.sql.executor.BasicCommandContext;
 import com.arcadedb.query.sql.executor.Result;
 import com.arcadedb.query.sql.executor.ResultSet;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 
 public class MaterializedViewRefresher {
 
   public static void fullRefresh(final Database database, final MaterializedViewImpl view) {
+    view.requestFullRefresh();
+    maintain(database, view);
+  }
+
+  /**
+   * Hands a committed transaction's delta to the view and brings the view up to date. If a refresh is already running
+   * the delta is left queued for the further pass requested from it, so concurrent commits fold into one apply.
+   */
+  static void incrementalRefresh(final Database database, final MaterializedViewImpl view,
+      final MaterializedViewDelta delta) {
+    view.enqueueDelta(delta);
+    maintain(database, view);
+  }
+
+  private static void maintain(final Database database, final MaterializedViewImpl view) {
     if (!view.tryBeginRefresh()) {
       // A refresh is already running. Hand it our request so it makes a further pass over the
       // now-newer source data: simply returning here left the view reflecting a snapshot taken
@@ -54,7 +74,7 @@ public class MaterializedViewRefresher {
         view.setStatus(MaterializedViewStatus.BUILDING);
         final long startNs = System.nanoTime();
 
-        refreshOnce(database, view);
+        runPass(database, view);
 
         view.recordRefreshSuccess((System.nanoTime() - startNs) / 1_000_000);
         view.updateLastRefreshTime();
@@ -70,6 +90,8 @@ public class MaterializedViewRefresher {
       // reported as failed and the Error still propagates to the caller; what changes is that the next one can run.
       view.recordRefreshError();
       view.setStatus(MaterializedViewStatus.ERROR);
+      // Whatever deltas the failed pass drained are gone: only re-running the query can account for them
+      view.requestFullRefresh();
       // Ownership is released here rather than in a finally: the success path already released it,
       // atomically with the check for a pending request. This release is a CAS too, so a request
       // registered during the failing pass is discarded deliberately rather than clobbered - the
@@ -88,6 +110,72 @@ public class MaterializedViewRefresher {
     }
   }
 
+  /**
+   * One refresh pass: applies the queued deltas when the view has an incremental plan and nothing asked for more,
+   * otherwise re-runs the defining query.
+   */
+  private static void runPass(final Database database, final MaterializedViewImpl view) {
+    final MaterializedViewIncrementalPlan plan = view.getIncrementalPlan();
+    if (plan != null && !view.consumeFullRefreshRequest() && applyDeltas(database, view, plan, view.drainDeltas()))
+      return;
+
+    final long startSequence = view.nextSequence();
+    refreshOnce(database, view, plan);
+    view.fullRefreshCompleted(startSequence, view.nextSequence());
+    view.discardDeltasEnqueuedBefore(startSequence);
+  }
+
+  /**
+   * Applies the deltas in one transaction. Returns {@code false} if they cannot be applied and the pass must fall
+   * back to a full refresh.
+   * <p>
+   * A SOURCE delta re-reads the records it names, so applying it is idempotent and it needs no ordering against the
+   * full refreshes. A GROUP delta adds and withdraws contributions, and applying one the last full refresh already
+   * saw would count it twice. The sequence numbers tell: a delta enqueued - after its commit - before that refresh
+   * started is already in the view and is skipped, a delta whose transaction opened after that refresh ended is not
+   * and is applied. One in between may or may not have been read, and only another full refresh resolves it.
+   */
+  private static boolean applyDeltas(final Database database, final MaterializedViewImpl view,
+      final MaterializedViewIncrementalPlan plan, final List<MaterializedViewDelta> deltas) {
+    if (deltas.isEmpty())
+      return true;
+
+    final String backingTypeName = view.getBackingTypeName();
+    final boolean[] applied = { true };
+
+    if (plan.getKind() == MaterializedViewIncrementalPlan.Kind.SOURCE) {
+      final Set<RID> changed = new LinkedHashSet<>();
+      for (final MaterializedViewDelta delta : deltas) {
+        if (delta.isOverflow())
+          return false;
+        changed.addAll(delta.getChangedRecords());
+      }
+      if (!changed.isEmpty())
+        database.transaction(() -> plan.applySourceChanges(database, backingTypeName, changed), false);
+      return true;
+    }
+
+    final BasicCommandContext context = new BasicCommandContext();
+    context.setDatabase((DatabaseInternal) database);
+    final Map<String, MaterializedViewIncrementalPlan.GroupChange> groups = new LinkedHashMap<>();
+    for (final MaterializedViewDelta delta : deltas) {
+      if (delta.getEnqueueSequence() < view.getFullRefreshStartSequence())
+        continue;
+      if (delta.isOverflow() || delta.getOpenSequence() <= view.getFullRefreshEndSequence())
+        return false;
+      delta.contributeTo(plan, groups, context);
+    }
+
+    if (!groups.isEmpty())
+      database.transaction(() -> applied[0] = plan.applyGroupChanges(database, backingTypeName, groups), false);
+
+    if (!applied[0])
+      LogManager.instance().log(MaterializedViewRefresher.class, Level.WARNING,
+          "Materialized view '%s' does not hold the groups its delta expects, rebuilding it with a full refresh", null,
+          view.getName());
+    return applied[0];
+  }
+
   /**
    * Replaces the backing type's contents with the defining query's rows, as ONE transaction.
    * <p>
@@ -141,8 +229,10 @@ public class MaterializedViewRefresher {
    * ceiling - the repopulate was already a single unbounded transaction, so a view too large to refresh in one
    * transaction was already too large to refresh.
    */
-  private static void refreshOnce(final Database database, final MaterializedViewImpl view) {
+  private static void refreshOnce(final Database database, final MaterializedViewImpl view,
+      final MaterializedViewIncrementalPlan plan) {
     final String backingTypeName = view.getBackingTypeName();
+    final String query = plan != null ? plan.getRefreshQuery() : view.getQuery();
 
     // Use joinCurrentTx=false to always create a dedicated transaction for the refresh.
     // This ensures changes are committed immediately even when called from an async context
@@ -154,13 +244,15 @@ public class MaterializedViewRefresher {
       int reused = 0;
 
       // Execute the defining query and write its rows over the previous snapshot's records
-      try (final ResultSet rs = database.query("sql", view.getQuery())) {
+      try (final ResultSet rs = database.query("sql", query)) {
         while (rs.hasNext()) {
           final Result result = rs.next();
           final MutableDocument doc = reused < previousSnapshot.size ?
               ((Document) database.lookupByRID(previousSnapshot.get(reused++), true)).modify() :
               database.newDocument(backingTypeName);
           applyRow(doc, result);
+          if (plan != null)
+            plan.decorate(doc, result);
           doc.save();
         }
       }
@@ -172,7 +264,7 @@ public class MaterializedViewRefresher {
   }
 
   /** Copies one query row onto a document, dropping any property the row does not carry. */
-  private static void applyRow(final MutableDocument doc, final Result row) {
+  static void applyRow(final MutableDocument doc, final Result row) {
     // A reused document still holds the columns of the row it used to carry, and whatever this row does not
     // reproduce has to go. Snapshot the names first: getPropertyNames() is a live view of the document, so both
     // the writes below and the removals after would otherwise mutate what is being iterated. A newly created
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the buckets whose pages are compressed at rest ({@link GlobalConfiguration#BUCKET_PAGE_COMPRESSION}): the records
+ * must survive updates, deletes and restarts, and the file on disk must be smaller than the logical pages it holds.
+ */
+class BucketPageCompressionTest extends TestHelper {
+  private static final int RECORDS = 5_000;
+
+  @AfterEach
+  void resetCompression() {
+    GlobalConfiguration.BUCKET_PAGE_COMPRESSION.reset();
+  }
+
+  @Test
+  void lz4BucketSurvivesRestart() throws IOException {
+    createAndCheck("lz4", PageCodec.LZ4);
+  }
+
+  @Test
+  void dictionaryBucketSurvivesRestart() throws IOException {
+    createAndCheck("dictionary", PageCodec.DICTIONARY);
+  }
+
+  @Test
+  void codecIsFixedAtBucketCreation() {
+    database.getSchema().createDocumentType("Plain");
+
+    GlobalConfiguration.BUCKET_PAGE_COMPRESSION.setValue("lz4");
+    database.getSchema().createDocumentType("Packed");
+
+    assertThat(codecOf("Plain")).isEqualTo(PageCodec.NONE);
+    assertThat(codecOf("Packed")).isEqualTo(PageCodec.LZ4);
+
+    GlobalConfiguration.BUCKET_PAGE_COMPRESSION.reset();
+    reopenDatabase();
+
+    assertThat(codecOf("Plain")).isEqualTo(PageCodec.NONE);
+    assertThat(codecOf("Packed")).isEqualTo(PageCodec.LZ4);
+  }
+
+  private void createAndCheck(final String setting, final PageCodec expected) throws IOException {
+    GlobalConfiguration.BUCKET_PAGE_COMPRESSION.setValue(setting);
+    database.getSchema().buildDocumentType().withName("Customer").withTotalBuckets(1).create();
+
+    database.transaction(() -> {
+      for (int i = 0; i < RECORDS; i++)
+        newCustomer(i).save();
+    });
+
+    final LocalBucket bucket = bucketOf("Customer");
+    assertThat(bucket.getComponentFile().getPageCodec()).isEqualTo(expected);
+
+    reopenDatabase();
+    assertThat(database.countType("Customer", false)).isEqualTo(RECORDS);
+
+    // REWRITE HALF OF THE RECORDS AND DELETE A TENTH: THE PAGES ARE WRITTEN AGAIN WITH A DIFFERENT COMPRESSED SIZE
+    database.transaction(() -> {
+      database.iterateType("Customer", false).forEachRemaining(r -> {
+        final int id = r.asDocument().getInteger("id");
+        if (id % 10 == 0)
+          r.asDocument().delete();
+        else if (id % 2 == 0)
+          r.asDocument().modify().set("notes", "updated " + id + " ".repeat(id % 50)).save();
+      });
+    });
+
+    // CLOSING FLUSHES ALL THE PAGES: FROM THEN ON THE CHECKSUM OF THE LOGICAL CONTENT MUST NOT CHANGE ACROSS RESTARTS
+    reopenDatabase();
+    final long checksum = bucketOf("Customer").getComponentFile().calculateChecksum();
+    reopenDatabase();
+    assertThat(bucketOf("Customer").getComponentFile().calculateChecksum()).isEqualTo(checksum);
+
+    assertThat(database.countType("Customer", false)).isEqualTo(RECORDS - RECORDS / 10);
+    database.iterateType("Customer", false).forEachRemaining(r -> {
+      final int id = r.asDocument().getInteger("id");
+      assertThat(id % 10).isNotZero();
+      assertThat(r.asDocument().getString("email")).isEqualTo("customer" + id + "@example.com");
+      if (id % 2 == 0)
+        assertThat(r.asDocument().getString("notes")).startsWith("updated " + id);
+    });
+
+    final Map<String, Object> stats = bucketOf("Customer").getComponentFile().getCompressionStats();
+    assertThat(stats.get("pageCompression")).isEqualTo(setting);
+    assertThat((Long) stats.get("physicalSize")).isLessThan((Long) stats.get("logicalSize"));
+    assertThat(((Number) stats.get("compressionRatio")).doubleValue()).isGreaterThan(1.5);
+
+    try (final ResultSet rs = database.query("sql", "select from schema:buckets where name = ?", bucketOf("Customer").getName())) {
+      final Result row = rs.next();
+      assertThat(row.<String>getProperty("pageCompression")).isEqualTo(setting);
+      assertThat(row.<Long>getProperty("physicalSize")).isLessThan(row.<Long>getProperty("logicalSize"));
+    }
+  }
+
+  private MutableDocument newCustomer(final int id) {
+    return database.newDocument("Customer")//
+        .set("id", id)//
+        .set("name", "Customer number " + id)//
+        .set("email", "customer" + id + "@example.com")//
+        .set("country", id % 3 == 0 ? "Italy" : "United States")//
+        .set("notes", "Regular customer, prefers email contact and monthly invoices");
+  }
+
+  private LocalBucket bucketOf(final String typeName) {
+    return (LocalBucket) database.getSchema().getType(typeName).getBuckets(false).getFirst();
+  }
+
+  private PageCodec codecOf(final String typeName) {
+    return bucketOf(typeName).getComponentFile().getPageCodec();
+  }
+}
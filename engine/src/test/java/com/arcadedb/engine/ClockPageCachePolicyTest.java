@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.TestHelper;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the scan resistance and the bookkeeping of the {@link ClockPageCachePolicy} in isolation: the policy is given
+ * its own map, so nothing here touches the JVM-wide read cache.
+ */
+class ClockPageCachePolicyTest extends TestHelper {
+  private static final int PAGE_SIZE = 1024;
+
+  private final ConcurrentMap<PageId, CachedPage> cache = new ConcurrentHashMap<>();
+
+  @Test
+  void hotPagesSurviveFullScan() {
+    final ClockPageCachePolicy policy = new ClockPageCachePolicy(cache, 128);
+
+    // 64 HOT PAGES, READ SEVERAL TIMES
+    for (int i = 0; i < 64; i++)
+      insert(policy, i);
+    for (int round = 0; round < 3; round++)
+      for (int i = 0; i < 64; i++) {
+        policy.recordAccess(pageId(i));
+        policy.onHit(cache.get(pageId(i)));
+      }
+
+    // A SCAN OF 1000 PAGES READ ONCE EACH, WITH THE CACHE FULL: THE POLICY IS ASKED BEFORE EVERY INSERT
+    int admitted = 0;
+    for (int i = 1_000; i < 2_000; i++) {
+      final CachedPage page = newPage(i);
+      policy.recordAccess(page.getPageId());
+      if (policy.admit(page)) {
+        ++admitted;
+        insert(policy, page);
+        policy.evict(PAGE_SIZE, cache.values(), this::evict);
+      }
+    }
+
+    assertThat(admitted).isLessThan(100);
+    assertThat(policy.getRejections()).isEqualTo(1_000 - admitted);
+    for (int i = 0; i < 64; i++)
+      assertThat(cache).containsKey(pageId(i));
+  }
+
+  @Test
+  void evictionPrefersPagesWithoutReferences() {
+    final ClockPageCachePolicy policy = new ClockPageCachePolicy(cache, 128);
+    for (int i = 0; i < 100; i++)
+      insert(policy, i);
+    for (int round = 0; round < ClockPageCachePolicy.MAX_REFERENCES; round++)
+      for (int i = 0; i < 50; i++)
+        policy.onHit(cache.get(pageId(i)));
+
+    final long freed = policy.evict(40L * PAGE_SIZE, cache.values(), this::evict);
+
+    assertThat(freed).isGreaterThanOrEqualTo(40L * PAGE_SIZE);
+    assertThat(policy.getSecondChances()).isGreaterThan(0);
+    for (int i = 0; i < 50; i++)
+      assertThat(cache).containsKey(pageId(i));
+  }
+
+  @Test
+  void replacedPageKeepsItsSlotAndReferences() {
+    final ClockPageCachePolicy policy = new ClockPageCachePolicy(cache, 128);
+    insert(policy, 1);
+    policy.onHit(cache.get(pageId(1)));
+
+    // A NEW VERSION REPLACES THE CACHED ONE WITHOUT A NEW INSERT, AS PageManager.putPageInReadCache DOES
+    final CachedPage newer = new CachedPage(new MutablePage(pageId(1), PAGE_SIZE, new byte[PAGE_SIZE], 2, 0), false);
+    newer.inheritReferences(cache.get(pageId(1)));
+    cache.put(pageId(1), newer);
+
+    assertThat(policy.evict(PAGE_SIZE, cache.values(), this::evict)).isEqualTo(PAGE_SIZE);
+    assertThat(policy.getSecondChances()).isEqualTo(1);
+    assertThat(cache).isEmpty();
+  }
+
+  @Test
+  void stalePageIdsAreDiscarded() {
+    final ClockPageCachePolicy policy = new ClockPageCachePolicy(cache, 128);
+    for (int i = 0; i < 10; i++)
+      insert(policy, i);
+
+    // REMOVED BY ANOTHER PATH, AS A DROPPED FILE DOES
+    for (int i = 0; i < 5; i++)
+      cache.remove(pageId(i));
+
+    assertThat(policy.evict(10L * PAGE_SIZE, cache.values(), this::evict)).isEqualTo(5L * PAGE_SIZE);
+    assertThat(cache).isEmpty();
+
+    insert(policy, 20);
+    policy.removeAllPagesOfDatabase(database);
+    cache.clear();
+    assertThat(policy.evict(PAGE_SIZE, cache.values(), this::evict)).isZero();
+  }
+
+  private long evict(final CachedPage page) {
+    return cache.remove(page.getPageId(), page) ? page.getPhysicalSize() : 0L;
+  }
+
+  private void insert(final ClockPageCachePolicy policy, final int pageNumber) {
+    insert(policy, newPage(pageNumber));
+  }
+
+  private void insert(final ClockPageCachePolicy policy, final CachedPage page) {
+    cache.put(page.getPageId(), page);
+    policy.onInsert(page);
+  }
+
+  private CachedPage newPage(final int pageNumber) {
+    return new CachedPage(new MutablePage(pageId(pageNumber), PAGE_SIZE, new byte[PAGE_SIZE], 1, 0), false);
+  }
+
+  private PageId pageId(final int pageNumber) {
+    return new PageId(database, 0, pageNumber);
+  }
+}
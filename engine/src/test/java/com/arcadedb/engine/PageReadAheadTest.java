@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.TestHelper;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.RID;
+import com.arcadedb.database.Record;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Read-ahead of sequential scans ({@link PageReadAhead}): a cold bucket scan gets its next pages read in the background,
+ * while lookups scattered over the bucket do not trigger any batch.
+ */
+class PageReadAheadTest extends TestHelper {
+  private static final int RECORDS   = 5_000;
+  private static final int PAGE_SIZE = 16384;
+
+  @Test
+  void coldSequentialScanIsReadAhead() {
+    populate();
+    reopenDatabase();
+
+    final PageManager.PPageManagerStats before = PageManager.INSTANCE.getStats();
+    assertThat(before.readAheadMaxPages).isGreaterThan(0);
+
+    final Iterator<Record> it = database.iterateType("Doc", false);
+    int count = 0;
+    while (it.hasNext()) {
+      final Document doc = it.next().asDocument();
+      assertThat(doc.getInteger("id")).isNotNull();
+      ++count;
+    }
+    assertThat(count).isEqualTo(RECORDS);
+
+    Awaitility.await("the read-ahead batches of the scan complete")
+        .atMost(Duration.ofSeconds(30))
+        .pollInterval(Duration.ofMillis(20))
+        .until(() -> PageManager.INSTANCE.getStats().readAheadBatches > before.readAheadBatches);
+
+    final PageManager.PPageManagerStats after = PageManager.INSTANCE.getStats();
+    assertThat(after.readAheadPages).isGreaterThan(before.readAheadPages);
+    assertThat(after.readAheadHits + after.readAheadMisses).isGreaterThan(before.readAheadHits + before.readAheadMisses);
+  }
+
+  @Test
+  void scatteredLookupsAreNotReadAhead() {
+    final List<RID> rids = populate();
+    reopenDatabase();
+
+    final PageManager.PPageManagerStats before = PageManager.INSTANCE.getStats();
+
+    // ONE RECORD EVERY 500: NO TWO LOOKUPS LAND ON ADJACENT PAGES
+    for (int i = 0; i < RECORDS; i += 500)
+      assertThat(database.lookupByRID(rids.get(i), true).asDocument().getInteger("id")).isEqualTo(i);
+
+    final PageManager.PPageManagerStats after = PageManager.INSTANCE.getStats();
+    assertThat(after.readAheadHits + after.readAheadMisses).isEqualTo(before.readAheadHits + before.readAheadMisses);
+    assertThat(after.readAheadPages).isEqualTo(before.readAheadPages);
+  }
+
+  private List<RID> populate() {
+    database.getSchema().createDocumentType("Doc", 1, PAGE_SIZE);
+    final List<RID> rids = new ArrayList<>(RECORDS);
+    database.transaction(() -> {
+      for (int i = 0; i < RECORDS; i++)
+        rids.add(database.newDocument("Doc").set("id", i).set("text", "record number " + i + " of the scan").save()
+            .getIdentity());
+    });
+    assertThat(((LocalBucket) database.getSchema().getType("Doc").getBuckets(false).getFirst()).getTotalPages())
+        .isGreaterThan(20);
+    return rids;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.Document;
+import com.arcadedb.index.IndexCursor;
+import com.arcadedb.schema.Schema;
+import com.arcadedb.schema.Type;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadOnlyMemoryMappedTest extends TestHelper {
+  private static final int TOTAL = 20_000;
+
+  @Test
+  void readOnlyDatabaseReadsThroughTheMapping() {
+    database.getSchema().createDocumentType("Doc").createProperty("id", Type.INTEGER);
+    database.getSchema().createTypeIndex(Schema.INDEX_TYPE.LSM_TREE, true, "Doc", "id");
+    database.transaction(() -> {
+      for (int i = 0; i < TOTAL; i++)
+        database.newDocument("Doc").set("id", i).set("name", "doc-" + i).save();
+    });
+
+    GlobalConfiguration.READ_ONLY_MEMORY_MAPPED.setValue(true);
+    reopenDatabaseInReadOnlyMode();
+    try {
+      checkMappedReads();
+    } finally {
+      // THE INTEGRITY CHECK AT THE END OF THE TEST NEEDS WRITE ACCESS
+      reopenDatabase();
+    }
+  }
+
+  private void checkMappedReads() {
+    final LocalBucket bucket = (LocalBucket) database.getSchema().getType("Doc").getBuckets(false).getFirst();
+    assertThat(((DatabaseInternal) database).getFileManager().getFile(bucket.getFileId()))
+        .isInstanceOfSatisfying(PaginatedComponentFile.class, file -> assertThat(file.isMemoryMapped()).isTrue());
+
+    int count = 0;
+    for (final Iterator<Document> it = database.iterateType("Doc", false); it.hasNext(); ) {
+      final Document doc = it.next();
+      assertThat(doc.getString("name")).isEqualTo("doc-" + doc.getInteger("id"));
+      ++count;
+    }
+    assertThat(count).isEqualTo(TOTAL);
+
+    for (int i = 0; i < TOTAL; i += 97) {
+      final IndexCursor cursor = database.lookupByKey("Doc", "id", i);
+      assertThat(cursor.hasNext()).isTrue();
+      assertThat(cursor.next().asDocument().getString("name")).isEqualTo("doc-" + i);
+    }
+  }
+
+  @Test
+  void readWriteDatabaseIsNotMapped() {
+    database.getSchema().createDocumentType("Doc");
+    database.transaction(() -> database.newDocument("Doc").set("id", 1).save());
+
+    GlobalConfiguration.READ_ONLY_MEMORY_MAPPED.setValue(true);
+    reopenDatabase();
+
+    final LocalBucket bucket = (LocalBucket) database.getSchema().getType("Doc").getBuckets(false).getFirst();
+    assertThat(((PaginatedComponentFile) ((DatabaseInternal) database).getFileManager().getFile(bucket.getFileId())).isMemoryMapped())
+        .isFalse();
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.database.Binary;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent appends to the same {@link WALFile}: every record must be in the file exactly once, and the file must read as
+ * an ordered log with no hole between the records, as the recovery expects.
+ */
+class WALFileConcurrentAppendTest {
+  private static final int THREADS            = 16;
+  private static final int RECORDS_PER_THREAD = 300;
+
+  @Test
+  void concurrentAppendsProduceContiguousLog() throws Exception {
+    final File tempFile = File.createTempFile("wal-concurrent-", ".wal");
+    tempFile.deleteOnExit();
+    final WALFile walFile = new WALFile(tempFile.getAbsolutePath());
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      final AtomicReference<Throwable> error = new AtomicReference<>();
+      final List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        final int thread = t;
+        threads.add(Thread.ofPlatform().start(() -> {
+          try {
+            start.await();
+            for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+              final long txId = (long) thread * RECORDS_PER_THREAD + i;
+              final Binary record = buildTransaction(txId);
+              assertThat(walFile.acquire(() -> {
+                final long end = walFile.appendTransaction(Collections.emptyList(), txId, record);
+                // WHEN THE APPEND RETURNS, THE RECORD IS ALREADY IN THE FILE
+                assertThat(walFile.getSize()).isGreaterThanOrEqualTo(end);
+                return null;
+              })).isTrue();
+            }
+          } catch (final Throwable e) {
+            error.compareAndSet(null, e);
+          }
+        }));
+      }
+      start.countDown();
+      for (final Thread thread : threads)
+        thread.join();
+
+      assertThat(error.get()).isNull();
+
+      final Set<Long> txIds = new HashSet<>();
+      long pos = 0;
+      WALFile.WALTransaction tx;
+      while ((tx = walFile.getTransaction(pos)) != null) {
+        assertThat(txIds.add(tx.txId)).isTrue();
+        assertThat(tx.pages).hasSize(1);
+        assertThat(tx.pages[0].currentContent.size()).isEqualTo(deltaSize(tx.txId));
+        pos = tx.endPositionInLog;
+      }
+
+      assertThat(txIds).hasSize(THREADS * RECORDS_PER_THREAD);
+      assertThat(pos).isEqualTo(walFile.getSize());
+      assertThat(walFile.findNextValidTransactionPosition(pos)).isEqualTo(-1L);
+      assertThat(walFile.isFailed()).isFalse();
+    } finally {
+      walFile.drop();
+    }
+  }
+
+  @Test
+  void inactiveFileRefusesAppends() throws Exception {
+    final File tempFile = File.createTempFile("wal-inactive-", ".wal");
+    tempFile.deleteOnExit();
+    final WALFile walFile = new WALFile(tempFile.getAbsolutePath());
+    try {
+      assertThat(walFile.acquire(() -> walFile.appendTransaction(Collections.emptyList(), 1, buildTransaction(1)))).isTrue();
+      walFile.setActive(false);
+      assertThat(walFile.acquire(() -> walFile.appendTransaction(Collections.emptyList(), 2, buildTransaction(2)))).isFalse();
+
+      assertThat(walFile.getTransaction(0).txId).isEqualTo(1L);
+      assertThat(walFile.getTransaction(walFile.getTransaction(0).endPositionInLog)).isNull();
+    } finally {
+      walFile.drop();
+    }
+  }
+
+  private static int deltaSize(final long txId) {
+    return 1 + (int) (txId % 200);
+  }
+
+  /**
+   * Builds a single-page transaction record whose size depends on the transaction id, so the records of the threads have
+   * different lengths.
+   */
+  private static Binary buildTransaction(final long txId) {
+    final int deltaSize = deltaSize(txId);
+    final int segmentSize = 24 + deltaSize;
+    final ByteBuffer buffer = ByteBuffer.allocate(24 + segmentSize + 12);
+    buffer.putLong(txId);
+    buffer.putLong(System.currentTimeMillis());
+    buffer.putInt(1);
+    buffer.putInt(segmentSize);
+    buffer.putInt(1);                 // fileId
+    buffer.putInt((int) txId);        // pageNumber
+    buffer.putInt(0);                 // changesFrom
+    buffer.putInt(deltaSize - 1);     // changesTo
+    buffer.putInt(1);                 // currentPageVersion
+    buffer.putInt(65536);             // currentPageSize
+    buffer.put(new byte[deltaSize]);
+    buffer.putInt(segmentSize);
+    buffer.putLong(WALFile.MAGIC_NUMBER);
+    return new Binary(buffer.array());
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.engine;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import com.arcadedb.database.DatabaseInternal;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WALGroupCommitTest extends TestHelper {
+  private static final int THREADS = 8;
+  private static final int TX_PER_THREAD = 200;
+
+  @Test
+  void concurrentCommitsShareTheFsync() throws Exception {
+    GlobalConfiguration.TX_WAL_GROUP_COMMIT.setValue(true);
+    GlobalConfiguration.TX_WAL_FLUSH.setValue(1);
+    GlobalConfiguration.TX_WAL_FILES.setValue(1);
+    reopenDatabase();
+
+    database.getSchema().createDocumentType("Doc");
+
+    final List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final int threadId = t;
+      threads.add(Thread.ofPlatform().start(() -> {
+        for (int i = 0; i < TX_PER_THREAD; i++) {
+          final int id = i;
+          database.transaction(() -> database.newDocument("Doc").set("thread", threadId).set("id", id).save());
+        }
+      }));
+    }
+    for (final Thread thread : threads)
+      thread.join();
+
+    assertThat(database.countType("Doc", false)).isEqualTo(THREADS * TX_PER_THREAD);
+
+    final Map<String, Object> stats = ((DatabaseInternal) database).getTransactionManager().getStats();
+    assertThat(stats.get("groupCommit")).isEqualTo(true);
+    final long commits = (Long) stats.get("groupCommitCommits");
+    final long forces = (Long) stats.get("groupCommitForces");
+    assertThat(commits).isGreaterThanOrEqualTo(THREADS * TX_PER_THREAD);
+    assertThat(forces).isPositive().isLessThanOrEqualTo(commits);
+    assertThat((Map<String, Long>) stats.get("groupCommitBatchSizeHistogram")).isNotEmpty();
+    assertThat((Map<String, Long>) stats.get("groupCommitWaitTimeMicrosHistogram")).isNotEmpty();
+
+    reopenDatabase();
+    assertThat(database.countType("Doc", false)).isEqualTo(THREADS * TX_PER_THREAD);
+  }
+
+  @Test
+  void noFlushBypassesTheGroup() {
+    GlobalConfiguration.TX_WAL_GROUP_COMMIT.setValue(true);
+    GlobalConfiguration.TX_WAL_FLUSH.setValue(0);
+    reopenDatabase();
+
+    database.getSchema().createDocumentType("Doc");
+    database.transaction(() -> database.newDocument("Doc").set("id", 1).save());
+
+    final Map<String, Object> stats = ((DatabaseInternal) database).getTransactionManager().getStats();
+    assertThat(stats.get("groupCommitForces")).isEqualTo(0L);
+  }
+
+  @Test
+  void histogramBuckets() {
+    assertThat(WALGroupCommitStats.bucket(0)).isEqualTo(0);
+    assertThat(WALGroupCommitStats.bucket(1)).isEqualTo(0);
+    assertThat(WALGroupCommitStats.bucket(2)).isEqualTo(1);
+    assertThat(WALGroupCommitStats.bucket(3)).isEqualTo(2);
+    assertThat(WALGroupCommitStats.bucket(4)).isEqualTo(2);
+    assertThat(WALGroupCommitStats.bucket(5)).isEqualTo(3);
+    assertThat(WALGroupCommitStats.bucket(Long.MAX_VALUE)).isEqualTo(15);
+
+    final WALGroupCommitStats stats = new WALGroupCommitStats();
+    stats.recordBatch(1);
+    stats.recordBatch(6);
+    stats.recordBatch(7);
+    assertThat(stats.getForces()).isEqualTo(3);
+    assertThat(stats.getBatchSizeHistogram()).containsEntry("<=1", 1L).containsEntry("<=8", 2L);
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.graph.olap;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the Louvain and Leiden kernels of {@link CommunityDetection} and the levels of {@link CommunityGraph}.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+class CommunityDetectionTest {
+
+  @Test
+  void twoTrianglesJoinedByABridge() {
+    final CommunityGraph graph = graph(6, null, 0, 1, 1, 2, 2, 0, 3, 4, 4, 5, 5, 3, 1, 3);
+
+    for (final CommunityDetection.Partition partition : List.of(
+        CommunityDetection.louvain(graph, 10, 10, 0.0001, 1.0, WorkCheckpoint.NONE),
+        CommunityDetection.leiden(graph, 10, 10, 0.0001, 1.0, WorkCheckpoint.NONE))) {
+      assertThat(partition.communities()).containsExactly(0, 0, 0, 1, 1, 1);
+      assertThat(partition.communityCount()).isEqualTo(2);
+      // 2 x (3/7 - (7/14)^2)
+      assertThat(partition.modularity()).isCloseTo(6.0 / 7 - 0.5, Offset.offset(1e-12));
+    }
+  }
+
+  @Test
+  void weightsDecideWhichPairsGoTogether() {
+    // the same 4-cycle twice, heavy on opposite pairs of edges
+    final CommunityGraph heavyOnEvenEdges = graph(4, new double[] { 10, 1, 10, 1 }, 0, 1, 1, 2, 2, 3, 3, 0);
+    final CommunityGraph heavyOnOddEdges = graph(4, new double[] { 1, 10, 1, 10 }, 0, 1, 1, 2, 2, 3, 3, 0);
+
+    assertThat(CommunityDetection.louvain(heavyOnEvenEdges, 10, 10, 0.0001, 1.0, WorkCheckpoint.NONE).communities())
+        .containsExactly(0, 0, 1, 1);
+    assertThat(CommunityDetection.louvain(heavyOnOddEdges, 10, 10, 0.0001, 1.0, WorkCheckpoint.NONE).communities())
+        .containsExactly(0, 1, 1, 0);
+  }
+
+  @Test
+  void aggregationKeepsTheModularityOfThePartition() {
+    final CommunityGraph graph = ringOfCliques(6, 5);
+    final int[] byClique = new int[graph.nodeCount()];
+    for (int v = 0; v < byClique.length; v++)
+      byClique[v] = v / 5;
+
+    final CommunityGraph level = graph.aggregate(byClique, 6);
+
+    assertThat(level.nodeCount()).isEqualTo(6);
+    assertThat(level.totalWeight()).isEqualTo(graph.totalWeight());
+    // each clique node: a self-loop with its 10 internal edges counted both ways, plus its two ring neighbours
+    assertThat(level.entryCount()).isEqualTo(6 * 3);
+    assertThat(level.modularity(new int[] { 0, 1, 2, 3, 4, 5 }, 1.0))
+        .isCloseTo(graph.modularity(byClique, 1.0), Offset.offset(1e-12));
+  }
+
+  /**
+   * Above {@link CommunityDetection#PARALLEL_MOVE_THRESHOLD} nodes the local moving runs colored and in parallel. On a
+   * ring of cliques no clique may be split, whichever way the cliques are then merged, and the reported modularity has
+   * to be the one of the returned partition on the original graph, however many levels were aggregated to reach it.
+   */
+  @Test
+  void largeRingOfCliquesKeepsEveryCliqueTogether() {
+    final int cliques = 1024;
+    final int size = 10;
+    final CommunityGraph graph = ringOfCliques(cliques, size);
+    assertThat(graph.nodeCount()).isGreaterThanOrEqualTo(CommunityDetection.PARALLEL_MOVE_THRESHOLD);
+
+    for (final boolean leiden : new boolean[] { false, true }) {
+      final CommunityDetection.Partition partition = leiden ?
+          CommunityDetection.leiden(graph, 10, 10, 0.0001, 1.0, WorkCheckpoint.NONE) :
+          CommunityDetection.louvain(graph, 10, 10, 0.0001, 1.0, WorkCheckpoint.NONE);
+      final int[] communities = partition.communities();
+
+      for (int c = 0; c < cliques; c++)
+        for (int v = c * size + 1; v < (c + 1) * size; v++)
+          assertThat(communities[v]).as("clique %d split", c).isEqualTo(communities[c * size]);
+      assertThat(partition.communityCount()).isLessThan(cliques);
+      assertThat(partition.levels()).isGreaterThan(1);
+      assertThat(partition.modularity()).isGreaterThan(0.85)
+          .isCloseTo(graph.modularity(communities, 1.0), Offset.offset(1e-9));
+      assertConnected(graph, communities, partition.communityCount());
+    }
+  }
+
+  @Test
+  void higherResolutionGivesSmallerCommunities() {
+    final CommunityGraph graph = ringOfCliques(64, 6);
+
+    final int coarse = CommunityDetection.louvain(graph, 10, 10, 0.0001, 0.5, WorkCheckpoint.NONE).communityCount();
+    final int fine = CommunityDetection.louvain(graph, 10, 10, 0.0001, 4.0, WorkCheckpoint.NONE).communityCount();
+
+    assertThat(fine).isGreaterThan(coarse);
+  }
+
+  @Test
+  void graphWithoutEdgesLeavesEveryNodeAlone() {
+    final CommunityDetection.Partition partition = CommunityDetection.leiden(graph(3, null), 10, 10, 0.0001, 1.0,
+        WorkCheckpoint.NONE);
+
+    assertThat(partition.communities()).containsExactly(0, 1, 2);
+    assertThat(partition.modularity()).isZero();
+    assertThat(partition.levels()).isZero();
+  }
+
+  @Test
+  void checkpointAbortsTheRun() {
+    final CommunityGraph graph = ringOfCliques(16, 4);
+    final int[] calls = new int[1];
+
+    assertThatThrownBy(() -> CommunityDetection.louvain(graph, 10, 10, 0.0001, 1.0, () -> {
+      if (++calls[0] == 2)
+        throw new IllegalStateException("aborted");
+    })).isInstanceOf(IllegalStateException.class).hasMessage("aborted");
+  }
+
+  // --- Helpers ---
+
+  /** Undirected graph over edge pairs {@code a0, b0, a1, b1, ...}, with {@code weights[i]} on the i-th edge. */
+  private static CommunityGraph graph(final int n, final double[] weights, final int... edges) {
+    final List<List<int[]>> rows = new ArrayList<>();
+    for (int v = 0; v < n; v++)
+      rows.add(new ArrayList<>());
+    for (int e = 0; e < edges.length / 2; e++) {
+      rows.get(edges[2 * e]).add(new int[] { edges[2 * e + 1], e });
+      rows.get(edges[2 * e + 1]).add(new int[] { edges[2 * e], e });
+    }
+
+    final int[][] neighbors = new int[n][];
+    final double[][] rowWeights = new double[n][];
+    for (int v = 0; v < n; v++) {
+      final List<int[]> row = rows.get(v);
+      neighbors[v] = new int[row.size()];
+      rowWeights[v] = new double[row.size()];
+      for (int j = 0; j < row.size(); j++) {
+        neighbors[v][j] = row.get(j)[0];
+        rowWeights[v][j] = weights != null ? weights[row.get(j)[1]] : 1.0;
+      }
+    }
+    return CommunityGraph.of(neighbors, rowWeights);
+  }
+
+  /** {@code cliques} complete graphs of {@code size} nodes, the first node of each linked to the next clique's. */
+  private static CommunityGraph ringOfCliques(final int cliques, final int size) {
+    final List<Integer> edges = new ArrayList<>();
+    for (int c = 0; c < cliques; c++) {
+      final int base = c * size;
+      for (int a = 0; a < size; a++)
+        for (int b = a + 1; b < size; b++) {
+          edges.add(base + a);
+          edges.add(base + b);
+        }
+      edges.add(base);
+      edges.add(((c + 1) % cliques) * size);
+    }
+    return graph(cliques * size, null, edges.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  private static void assertConnected(final CommunityGraph graph, final int[] communities, final int count) {
+    final BitSet seen = new BitSet(graph.nodeCount());
+    final BitSet started = new BitSet(count);
+    final int[] stack = new int[graph.nodeCount()];
+    for (int s = 0; s < graph.nodeCount(); s++) {
+      if (seen.get(s))
+        continue;
+      assertThat(started.get(communities[s])).as("community %d is disconnected", communities[s]).isFalse();
+      started.set(communities[s]);
+      int top = 0;
+      stack[top++] = s;
+      seen.set(s);
+      while (top > 0) {
+        final int v = stack[--top];
+        for (int j = graph.offset(v); j < graph.offsetEnd(v); j++) {
+          final int u = graph.neighbor(j);
+          if (!seen.get(u) && communities[u] == communities[v]) {
+            seen.set(u);
+            stack[top++] = u;
+          }
+        }
+      }
+    }
+  }
+}
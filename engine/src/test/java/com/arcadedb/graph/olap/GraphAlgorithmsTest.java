@@ -20,12 +20,17 @@ package com.arcadedb.graph.olap;
 
 import com.arcadedb.TestHelper;
 import com.arcadedb.graph.MutableVertex;
+import com.arcadedb.graph.NeighborView;
 import com.arcadedb.graph.Vertex;
 
 import org.assertj.core.data.Offset;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Tests for graph algorithms operating on the CSR-based GraphAnalyticalView.
@@ -697,6 +702,133 @@ class GraphAlgorithmsTest extends TestHelper {
     gav.drop();
   }
 
+  // --- Centrality ---
+
+  @Test
+  void betweennessOnChain() {
+    // A -> B -> C -> D: B lies on A->C and A->D, C on A->D and B->D
+    database.getSchema().createVertexType("Node");
+    database.getSchema().createEdgeType("LINK");
+
+    database.begin();
+    final MutableVertex a = database.newVertex("Node").set("name", "A").save();
+    final MutableVertex b = database.newVertex("Node").set("name", "B").save();
+    final MutableVertex c = database.newVertex("Node").set("name", "C").save();
+    final MutableVertex d = database.newVertex("Node").set("name", "D").save();
+    a.newEdge("LINK", b);
+    b.newEdge("LINK", c);
+    c.newEdge("LINK", d);
+    database.commit();
+
+    final GraphAnalyticalView gav = GraphAnalyticalView.builder(database)
+        .withVertexTypes("Node")
+        .withEdgeTypes("LINK")
+        .build();
+
+    final double[] scores = GraphAlgorithms.betweenness(gav.getNeighborView(Vertex.DIRECTION.OUT, "LINK"), 0, 0L, 4,
+        WorkCheckpoint.NONE);
+    assertThat(scores[gav.getNodeId(a.getIdentity())]).isEqualTo(0.0);
+    assertThat(scores[gav.getNodeId(b.getIdentity())]).isEqualTo(2.0);
+    assertThat(scores[gav.getNodeId(c.getIdentity())]).isEqualTo(2.0);
+    assertThat(scores[gav.getNodeId(d.getIdentity())]).isEqualTo(0.0);
+
+    gav.drop();
+  }
+
+  @Test
+  void centralitiesAreTheSameOnOneThreadAndOnMany() {
+    // large enough for the sources to be spread over threads
+    final NeighborView adj = randomGraph(3_000, 4, 42L);
+    final NeighborView reverse = reverse(adj);
+
+    assertThat(GraphAlgorithms.betweenness(adj, 0, 0L, 4, WorkCheckpoint.NONE))
+        .containsExactly(GraphAlgorithms.betweenness(adj, 0, 0L, 1, WorkCheckpoint.NONE), Offset.offset(1e-6));
+    assertThat(GraphAlgorithms.closeness(adj, reverse, true, 0, 0L, 4, WorkCheckpoint.NONE))
+        .containsExactly(GraphAlgorithms.closeness(adj, reverse, true, 0, 0L, 1, WorkCheckpoint.NONE));
+    assertThat(GraphAlgorithms.harmonic(adj, reverse, true, 0, 0L, 4, WorkCheckpoint.NONE))
+        .containsExactly(GraphAlgorithms.harmonic(adj, reverse, true, 0, 0L, 1, WorkCheckpoint.NONE));
+    assertThat(GraphAlgorithms.eccentricity(adj, 4, WorkCheckpoint.NONE))
+        .containsExactly(GraphAlgorithms.eccentricity(adj, 1, WorkCheckpoint.NONE));
+  }
+
+  @Test
+  void sampledCentralitiesAreUnbiasedOnARing() {
+    // every node of a ring sees the same graph, so whichever pivots are drawn the estimates sum to the exact total
+    final int n = 1_001;
+    final int[] offsets = new int[n + 1];
+    final int[] neighbors = new int[2 * n];
+    for (int v = 0; v < n; v++) {
+      offsets[v + 1] = 2 * (v + 1);
+      neighbors[2 * v] = (v + n - 1) % n;
+      neighbors[2 * v + 1] = (v + 1) % n;
+    }
+    final NeighborView ring = new NeighborView(n, offsets, neighbors);
+
+    final double[] exactBetweenness = GraphAlgorithms.betweenness(ring, 0, 0L, 4, WorkCheckpoint.NONE);
+    final double[] sampledBetweenness = GraphAlgorithms.betweenness(ring, 50, 7L, 4, WorkCheckpoint.NONE);
+    assertThat(sum(sampledBetweenness)).isCloseTo(sum(exactBetweenness), Offset.offset(sum(exactBetweenness) * 1e-9));
+
+    final double[] exactHarmonic = GraphAlgorithms.harmonic(ring, ring, false, 0, 0L, 4, WorkCheckpoint.NONE);
+    final double[] sampledHarmonic = GraphAlgorithms.harmonic(ring, ring, false, 50, 7L, 4, WorkCheckpoint.NONE);
+    assertThat(sum(sampledHarmonic)).isCloseTo(sum(exactHarmonic), Offset.offset(sum(exactHarmonic) * 1e-9));
+
+    // every node is as close as any other, and the estimate comes near it
+    final double[] exactCloseness = GraphAlgorithms.closeness(ring, ring, true, 0, 0L, 4, WorkCheckpoint.NONE);
+    final double[] sampledCloseness = GraphAlgorithms.closeness(ring, ring, true, 200, 7L, 4, WorkCheckpoint.NONE);
+    for (int v = 0; v < n; v++)
+      assertThat(sampledCloseness[v]).isCloseTo(exactCloseness[0], Offset.offset(exactCloseness[0] * 0.25));
+
+    assertThat(GraphAlgorithms.samplePivots(n, 50, 7L)).hasSize(50).doesNotHaveDuplicates().isSorted();
+    assertThat(GraphAlgorithms.samplePivots(n, n, 7L)).isNull();
+  }
+
+  @Test
+  void centralityAbortStopsEveryThread() {
+    final NeighborView adj = randomGraph(3_000, 4, 42L);
+    final int[] calls = { 0 };
+    final WorkCheckpoint abortAfter100 = () -> {
+      if (++calls[0] > 100)
+        throw new IllegalStateException("aborted");
+    };
+
+    assertThatThrownBy(() -> GraphAlgorithms.betweenness(adj, 0, 0L, 4, abortAfter100))
+        .isInstanceOf(IllegalStateException.class).hasMessage("aborted");
+  }
+
+  private static NeighborView randomGraph(final int n, final int outDegree, final long seed) {
+    final Random random = new Random(seed);
+    final int[] offsets = new int[n + 1];
+    final int[] neighbors = new int[n * outDegree];
+    for (int v = 0; v < n; v++) {
+      offsets[v + 1] = offsets[v] + outDegree;
+      for (int j = 0; j < outDegree; j++)
+        neighbors[offsets[v] + j] = random.nextInt(n);
+    }
+    return new NeighborView(n, offsets, neighbors);
+  }
+
+  private static NeighborView reverse(final NeighborView adj) {
+    final int n = adj.nodeCount();
+    final int[] offsets = new int[n + 1];
+    for (final int w : adj.neighbors())
+      offsets[w + 1]++;
+    for (int v = 0; v < n; v++)
+      offsets[v + 1] += offsets[v];
+    final int[] position = Arrays.copyOf(offsets, n);
+    final int[] neighbors = new int[adj.edgeCount()];
+    for (int v = 0; v < n; v++)
+      for (int j = adj.offset(v); j < adj.offsetEnd(v); j++)
+        neighbors[position[adj.neighbors()[j]]++] = v;
+    return new NeighborView(n, offsets, neighbors);
+  }
+
+  private static double sum(final double[] values) {
+    double total = 0.0;
+    for (final double value : values)
+      total += value;
+    return total;
+  }
+
   @Test
   void compactionThresholdBuilder() {
     database.getSchema().createVertexType("Node");
@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.graph.olap;
+
+import com.arcadedb.graph.NeighborView;
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the {@link NodeEmbeddings} kernels.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+class NodeEmbeddingsTest {
+
+  /**
+   * A ring large enough for the rows to be swept in parallel: with per-node random streams the seeded result must not
+   * depend on how the rows were split across threads, and every row comes out unit length.
+   */
+  @Test
+  void fastRPOnAParallelSweepIsReproducible() {
+    final NeighborView ring = ring(10_000);
+
+    final float[] first = NodeEmbeddings.fastRP(ring, 16, 3, 0.5, 0.2, 7L, WorkCheckpoint.NONE);
+    final float[] second = NodeEmbeddings.fastRP(ring, 16, 3, 0.5, 0.2, 7L, WorkCheckpoint.NONE);
+
+    assertThat(second).containsExactly(first);
+    for (int i = 0; i < ring.nodeCount(); i += 997)
+      assertThat(norm(first, i, 16)).isCloseTo(1.0, Offset.offset(1e-5));
+  }
+
+  @Test
+  void hashGnnGivesEveryNodeTheSameSketchOnceItHasSeenTheWholeGraph() {
+    // a star has diameter 2: after two rounds every node holds the union of all the feature sets
+    final NeighborView star = undirected(5, 0, 1, 0, 2, 0, 3, 0, 4);
+
+    final float[] oneRound = NodeEmbeddings.hashGnn(star, 8, 1, 3L, WorkCheckpoint.NONE);
+    final float[] twoRounds = NodeEmbeddings.hashGnn(star, 8, 2, 3L, WorkCheckpoint.NONE);
+
+    for (int v = 1; v < 5; v++)
+      assertThat(row(twoRounds, v, 8)).containsExactly(row(twoRounds, 0, 8));
+    assertThat(row(oneRound, 1, 8)).isNotEqualTo(row(oneRound, 2, 8));
+  }
+
+  @Test
+  void walksOnlyFollowEdges() {
+    final NeighborView graph = undirected(6, 0, 1, 1, 2, 2, 0, 2, 3, 3, 4);
+
+    final int[][] walks = NodeEmbeddings.randomWalks(graph, 3, 12, 0.5, 2.0, 11L, WorkCheckpoint.NONE);
+
+    assertThat(walks).hasNumberOfRows(18);
+    for (int w = 0; w < walks.length; w++) {
+      final int[] walk = walks[w];
+      assertThat(walk).hasSize(12);
+      assertThat(walk[0]).isEqualTo(w / 3);
+      for (int step = 1; step < walk.length; step++)
+        if (graph.degree(walk[step - 1]) == 0)
+          assertThat(walk[step]).isEqualTo(walk[step - 1]);
+        else
+          assertThat(isEdge(graph, walk[step - 1], walk[step])).as("walk %d, step %d", w, step).isTrue();
+    }
+  }
+
+  @Test
+  void returnParameterDecidesHowOftenAWalkBacktracks() {
+    // on a ring every node has two neighbours: the one the walk came from, and one further away
+    final NeighborView ring = ring(64);
+
+    assertThat(backtrackRate(NodeEmbeddings.randomWalks(ring, 4, 40, 0.01, 1.0, 5L, WorkCheckpoint.NONE)))
+        .isGreaterThan(0.9);
+    assertThat(backtrackRate(NodeEmbeddings.randomWalks(ring, 4, 40, 100.0, 1.0, 5L, WorkCheckpoint.NONE)))
+        .isLessThan(0.1);
+  }
+
+  @Test
+  void skipGramPullsNodesThatShareWalksTogether() {
+    // two 5-cliques with no edge between them: walks never leave their clique
+    final List<Integer> edges = new ArrayList<>();
+    for (int c = 0; c < 2; c++)
+      for (int a = 0; a < 5; a++)
+        for (int b = a + 1; b < 5; b++) {
+          edges.add(c * 5 + a);
+          edges.add(c * 5 + b);
+        }
+    final NeighborView graph = undirected(10, edges.stream().mapToInt(Integer::intValue).toArray());
+
+    final int[][] walks = NodeEmbeddings.randomWalks(graph, 20, 20, 1.0, 1.0, 1L, WorkCheckpoint.NONE);
+    final float[] embeddings = NodeEmbeddings.skipGram(10, walks, 16, 5, 4, 2, 0.025, 1L, WorkCheckpoint.NONE);
+
+    double within = 0, across = 0;
+    for (int a = 0; a < 10; a++)
+      for (int b = a + 1; b < 10; b++)
+        if (a / 5 == b / 5)
+          within += cosine(embeddings, a, b, 16) / 20;
+        else
+          across += cosine(embeddings, a, b, 16) / 25;
+    assertThat(within).isGreaterThan(across);
+  }
+
+  @Test
+  void graphSageRowsAreUnitLengthAndSeeded() {
+    final NeighborView graph = undirected(6, 0, 1, 1, 2, 2, 0, 2, 3, 3, 4);
+
+    final float[] first = NodeEmbeddings.graphSage(graph, 8, 2, 9L, WorkCheckpoint.NONE);
+
+    assertThat(first).hasSize(6 * 8);
+    assertThat(NodeEmbeddings.graphSage(graph, 8, 2, 9L, WorkCheckpoint.NONE)).containsExactly(first);
+    for (int v = 0; v < 6; v++) {
+      final double norm = norm(first, v, 8);
+      // ReLU can zero a whole row, which normalisation leaves at zero
+      assertThat(norm == 0.0 || Math.abs(norm - 1.0) < 1e-5).as("norm of row %d: %f", v, norm).isTrue();
+    }
+  }
+
+  @Test
+  void checkpointAbortsAParallelSweep() {
+    final int[] calls = new int[1];
+
+    assertThatThrownBy(() -> NodeEmbeddings.fastRP(ring(20_000), 8, 1000, 0.0, 0.0, 1L, () -> {
+      if (++calls[0] == 3)
+        throw new IllegalStateException("aborted");
+    })).isInstanceOf(IllegalStateException.class).hasMessage("aborted");
+    assertThat(calls[0]).isEqualTo(3);
+  }
+
+  @Test
+  void matrixLengthRefusesWhatAnArrayCannotHold() {
+    assertThat(NodeEmbeddings.matrixLength(1_000, 128)).isEqualTo(128_000);
+    assertThatThrownBy(() -> NodeEmbeddings.matrixLength(1_000_000, 4096))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("4096000000 entries");
+  }
+
+  // --- Helpers ---
+
+  private static double backtrackRate(final int[][] walks) {
+    int back = 0, steps = 0;
+    for (final int[] walk : walks)
+      for (int step = 2; step < walk.length; step++, steps++)
+        if (walk[step] == walk[step - 2])
+          back++;
+    return (double) back / steps;
+  }
+
+  private static boolean isEdge(final NeighborView graph, final int from, final int to) {
+    for (int k = graph.offset(from); k < graph.offsetEnd(from); k++)
+      if (graph.neighbors()[k] == to)
+        return true;
+    return false;
+  }
+
+  private static float[] row(final float[] matrix, final int row, final int dimension) {
+    final float[] result = new float[dimension];
+    System.arraycopy(matrix, row * dimension, result, 0, dimension);
+    return result;
+  }
+
+  private static double norm(final float[] matrix, final int row, final int dimension) {
+    double sum = 0;
+    for (int d = 0; d < dimension; d++)
+      sum += matrix[row * dimension + d] * matrix[row * dimension + d];
+    return Math.sqrt(sum);
+  }
+
+  private static double cosine(final float[] matrix, final int a, final int b, final int dimension) {
+    double dot = 0;
+    for (int d = 0; d < dimension; d++)
+      dot += matrix[a * dimension + d] * matrix[b * dimension + d];
+    return dot / (norm(matrix, a, dimension) * norm(matrix, b, dimension));
+  }
+
+  private static NeighborView ring(final int n) {
+    final int[] edges = new int[2 * n];
+    for (int v = 0; v < n; v++) {
+      edges[2 * v] = v;
+      edges[2 * v + 1] = (v + 1) % n;
+    }
+    return undirected(n, edges);
+  }
+
+  /** Undirected graph over edge pairs {@code a0, b0, a1, b1, ...}. */
+  private static NeighborView undirected(final int n, final int... edges) {
+    final int[] offsets = new int[n + 1];
+    for (final int v : edges)
+      offsets[v + 1]++;
+    for (int v = 0; v < n; v++)
+      offsets[v + 1] += offsets[v];
+    final int[] fill = offsets.clone();
+    final int[] neighbors = new int[edges.length];
+    for (int e = 0; e < edges.length; e += 2) {
+      neighbors[fill[edges[e]]++] = edges[e + 1];
+      neighbors[fill[edges[e + 1]]++] = edges[e];
+    }
+    return new NeighborView(n, offsets, neighbors);
+  }
+}
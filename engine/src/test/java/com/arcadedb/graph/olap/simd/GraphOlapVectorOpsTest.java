@@ -301,6 +301,57 @@ class GraphOlapVectorOpsTest {
     }
   }
 
+  // ── Dense float tests ──────────────────────────────────────────────────
+
+  @ParameterizedTest
+  @MethodSource("implementations")
+  void dotFloatWithOffsets(final GraphOlapVectorOps ops) {
+    // 37 entries: whole SIMD lanes plus a scalar tail whatever the lane width
+    final float[] a = new float[40];
+    final float[] b = new float[45];
+    float expected = 0;
+    for (int i = 0; i < 37; i++) {
+      a[3 + i] = i * 0.5f;
+      b[8 + i] = 2f - i;
+      expected += a[3 + i] * b[8 + i];
+    }
+
+    assertThat(ops.dotFloat(a, 3, b, 8, 37)).isCloseTo(expected, within(1e-2f));
+  }
+
+  @ParameterizedTest
+  @MethodSource("implementations")
+  void axpyFloatOnlyTouchesTheRange(final GraphOlapVectorOps ops) {
+    final float[] x = new float[37];
+    final float[] y = new float[41];
+    Arrays.fill(y, 1f);
+    for (int i = 0; i < x.length; i++)
+      x[i] = i;
+
+    ops.axpyFloat(0.5f, x, 0, y, 2, 37);
+
+    assertThat(y[0]).isEqualTo(1f);
+    assertThat(y[1]).isEqualTo(1f);
+    for (int i = 0; i < 37; i++)
+      assertThat(y[2 + i]).isEqualTo(1f + 0.5f * i);
+    assertThat(y[39]).isEqualTo(1f);
+    assertThat(y[40]).isEqualTo(1f);
+  }
+
+  @ParameterizedTest
+  @MethodSource("implementations")
+  void scaleFloatWithOffset(final GraphOlapVectorOps ops) {
+    final float[] data = new float[20];
+    Arrays.fill(data, 3f);
+
+    ops.scaleFloat(data, 1, 17, 2f);
+
+    assertThat(data[0]).isEqualTo(3f);
+    for (int i = 1; i < 18; i++)
+      assertThat(data[i]).isEqualTo(6f);
+    assertThat(data[18]).isEqualTo(3f);
+  }
+
   // ── Null mask extraction tests ─────────────────────────────────────────
 
   @ParameterizedTest
@@ -58,8 +58,10 @@ class Issue5214MultiSeriesRangeTest extends TestHelper {
   private static final int    PAGE_SIZE  = 256 * 1024;
   private static final String KEY_PAD    = "x".repeat(64);
 
+  // The pad follows the varying digits: leading it, it would be shared by every key of a page and stored once, and the
+  // pages would no longer fill up enough to give the compaction several series.
   private static String key(final int i) {
-    return "K" + KEY_PAD + String.format("%08d", i);
+    return "K" + String.format("%08d", i) + KEY_PAD;
   }
 
   @Override
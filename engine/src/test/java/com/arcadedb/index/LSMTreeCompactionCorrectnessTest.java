@@ -224,7 +224,8 @@ class LSMTreeCompactionCorrectnessTest extends TestHelper {
 
     database.transaction(() -> {
       for (int i = 0; i < totalKeys; i++)
-        database.newDocument(TYPE_NAME).set("email", "K" + "x".repeat(64) + String.format("%08d", i)).save();
+        // the pad follows the digits, or the page prefix compression would store it once per page
+        database.newDocument(TYPE_NAME).set("email", "K" + String.format("%08d", i) + "x".repeat(64)).save();
     });
 
     final TypeIndex typeIndex = database.getSchema().getType(TYPE_NAME).getIndexesByProperties("email").getFirst();
@@ -56,7 +56,8 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
  * <p>
  * The narrower encoding is safe for an ORDERED index only because the LSM tree never compares raw key bytes: it
  * deserializes both sides and compares typed values ({@code LSMTreeIndexAbstract.compareKey}), so key order comes
- * from {@link RID#compareTo} and not from the byte layout. These tests pin that down - order, range bounds and
+ * from {@link RID#compareTo} and not from the byte layout (the normalized page format does compare bytes, of an
+ * encoding built to sort in that same order). These tests pin that down - order, range bounds and
  * lookups over LINK keys must be identical to what the fixed-width encoding produced - plus the two traps the
  * sibling HASH fix (#5677) already hit:
  * <ul>
@@ -356,5 +357,12 @@ class Issue5703LsmLinkKeyCompressedRidTest extends TestHelper {
       file.seek(keyTypesOffset);
       file.writeByte(BinaryTypes.TYPE_RID);
     }
+
+    // An engine that old also wrote the version 1 page format. The still empty page 0 reads the same under both
+    // formats: the normalized one only appends the page prefix position to the header.
+    final String versionTag = ".v" + LSMTreeIndexAbstract.NORMALIZED_KEYS_VERSION + ".";
+    assertThat(candidates[0].getName()).contains(versionTag);
+    assertThat(candidates[0].renameTo(new File(candidates[0].getParentFile(), candidates[0].getName().replace(versionTag, ".v1."))))
+        .isTrue();
   }
 }
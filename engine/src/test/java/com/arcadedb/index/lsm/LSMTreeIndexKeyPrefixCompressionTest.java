@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.index.lsm;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.Identifiable;
+import com.arcadedb.index.IndexCursor;
+import com.arcadedb.index.TypeIndex;
+import com.arcadedb.schema.DocumentType;
+import com.arcadedb.schema.Schema;
+import com.arcadedb.schema.Type;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Indexes on encodable key types write their pages with byte-comparable, prefix-compressed keys
+ * ({@link LSMTreeIndexAbstract#NORMALIZED_KEYS_VERSION}): lookups, partial keys, ranges, compaction and reload have to
+ * behave as with the version 1 pages, which the indexes on the other key types keep using.
+ */
+class LSMTreeIndexKeyPrefixCompressionTest extends TestHelper {
+  private static final String TYPE    = "Item";
+  private static final int    TENANTS = 4;
+  private static final int    ITEMS   = 2_000;
+  private static final String PATH    = "/warehouse/region-eu-west/building-07/floor-03/shelf-";
+
+  @Override
+  protected void beginTest() {
+    GlobalConfiguration.INDEX_COMPACTION_MIN_PAGES_SCHEDULE.setValue(0);
+
+    database.transaction(() -> {
+      final DocumentType type = database.getSchema().createDocumentType(TYPE, 1);
+      type.createProperty("tenant", Type.STRING);
+      type.createProperty("path", Type.STRING);
+      type.createProperty("weight", Type.DOUBLE);
+      database.getSchema().buildTypeIndex(TYPE, new String[] { "tenant", "path" }).withType(Schema.INDEX_TYPE.LSM_TREE)
+          .withUnique(false).withPageSize(4_096).create();
+      database.getSchema().buildTypeIndex(TYPE, new String[] { "weight" }).withType(Schema.INDEX_TYPE.LSM_TREE)
+          .withUnique(false).withPageSize(4_096).create();
+    });
+
+    for (int t = 0; t < TENANTS; t++) {
+      final int tenant = t;
+      database.transaction(() -> {
+        for (int i = 0; i < ITEMS; i++)
+          database.newDocument(TYPE).set("tenant", "t" + tenant).set("path", path(i)).set("weight", i / 10D).save();
+      });
+    }
+  }
+
+  @Test
+  void newIndexesOnEncodableKeysUseTheNormalizedFormat() {
+    final LSMTreeIndexMutable composite = mutableIndex("tenant,path");
+    assertThat(composite.getVersion()).isEqualTo(LSMTreeIndexAbstract.NORMALIZED_KEYS_VERSION);
+    assertThat(mutableIndex("weight").getVersion()).isEqualTo(1);
+
+    // EVERY VERSION 1 ENTRY STORES THE WHOLE PATH: SHARING IT WITH THE PAGE PREFIX NEEDS FAR FEWER PAGES
+    final long uncompressedBytes = (long) TENANTS * ITEMS * (PATH.length() + 5);
+    assertThat((long) composite.getTotalPages() * composite.getPageSize()).isLessThan(uncompressedBytes);
+
+    assertLookups();
+  }
+
+  @Test
+  void compactionAndReloadKeepTheResults() throws Exception {
+    final LSMTreeIndex index = (LSMTreeIndex) typeIndex("tenant,path").getIndexesOnBuckets()[0];
+    assertThat(index.scheduleCompaction()).isTrue();
+    assertThat(index.compact()).isTrue();
+    assertThat(index.getMutableIndex().getSubIndex().getVersion()).isEqualTo(LSMTreeIndexAbstract.NORMALIZED_KEYS_VERSION);
+
+    assertLookups();
+
+    reopenDatabase();
+
+    assertLookups();
+    assertThat(mutableIndex("tenant,path").getVersion()).isEqualTo(LSMTreeIndexAbstract.NORMALIZED_KEYS_VERSION);
+    assertThat(mutableIndex("weight").getVersion()).isEqualTo(1);
+  }
+
+  @Test
+  void deletionsAreApplied() {
+    database.transaction(() -> {
+      for (int i = 0; i < ITEMS; i += 2)
+        database.lookupByKey(TYPE, new String[] { "tenant", "path" }, new Object[] { "t1", path(i) }).next().asDocument()
+            .delete();
+    });
+
+    database.transaction(() -> {
+      assertThat(database.lookupByKey(TYPE, new String[] { "tenant", "path" }, new Object[] { "t1", path(10) }).hasNext())
+          .isFalse();
+      assertThat(database.lookupByKey(TYPE, new String[] { "tenant", "path" }, new Object[] { "t1", path(11) }).hasNext())
+          .isTrue();
+      assertThat(count(tenant("t1"))).isEqualTo(ITEMS / 2);
+      assertThat(count(tenant("t2"))).isEqualTo(ITEMS);
+    });
+  }
+
+  private void assertLookups() {
+    database.transaction(() -> {
+      for (int t = 0; t < TENANTS; t++)
+        for (int i = 0; i < ITEMS; i += 37) {
+          final IndexCursor cursor = database.lookupByKey(TYPE, new String[] { "tenant", "path" },
+              new Object[] { "t" + t, path(i) });
+          assertThat(cursor.hasNext()).as("t%d %s", t, path(i)).isTrue();
+          final Document doc = cursor.next().asDocument();
+          assertThat(doc.getString("tenant")).isEqualTo("t" + t);
+          assertThat(doc.getString("path")).isEqualTo(path(i));
+          assertThat(cursor.hasNext()).isFalse();
+        }
+
+      assertThat(database.lookupByKey(TYPE, new String[] { "tenant", "path" }, new Object[] { "t9", path(1) }).hasNext()).isFalse();
+      assertThat(database.lookupByKey(TYPE, new String[] { "tenant", "path" }, new Object[] { "t1", PATH }).hasNext()).isFalse();
+
+      // PARTIAL KEY
+      assertThat(count(tenant("t2"))).isEqualTo(ITEMS);
+
+      // RANGES, BOTH DIRECTIONS
+      final TypeIndex index = typeIndex("tenant,path");
+      final List<String> ascending = paths(
+          index.range(true, new Object[] { "t1", path(100) }, true, new Object[] { "t1", path(199) }, true));
+      assertThat(ascending).hasSize(100).isSorted();
+      assertThat(ascending.getFirst()).isEqualTo(path(100));
+
+      final List<String> descending = paths(
+          index.range(false, new Object[] { "t3", path(1_999) }, true, new Object[] { "t3", path(1_900) }, false));
+      assertThat(descending).hasSize(99);
+      assertThat(descending.getFirst()).isEqualTo(path(1_999));
+
+      assertThat(count(typeIndex("weight").get(new Object[] { 12.3D }))).isEqualTo(TENANTS);
+    });
+  }
+
+  private IndexCursor tenant(final String tenant) {
+    return typeIndex("tenant,path").range(true, new Object[] { tenant }, true, new Object[] { tenant }, true);
+  }
+
+  private static String path(final int i) {
+    return PATH + String.format("%05d", i);
+  }
+
+  private static int count(final IndexCursor cursor) {
+    int count = 0;
+    while (cursor.hasNext()) {
+      cursor.next();
+      ++count;
+    }
+    return count;
+  }
+
+  private static List<String> paths(final IndexCursor cursor) {
+    final List<String> result = new ArrayList<>();
+    while (cursor.hasNext()) {
+      final Identifiable next = cursor.next();
+      result.add(next.asDocument().getString("path"));
+    }
+    return result;
+  }
+
+  private TypeIndex typeIndex(final String properties) {
+    return (TypeIndex) database.getSchema().getIndexByName(TYPE + "[" + properties + "]");
+  }
+
+  private LSMTreeIndexMutable mutableIndex(final String properties) {
+    return ((LSMTreeIndex) typeIndex(properties).getIndexesOnBuckets()[0]).getMutableIndex();
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.index.lsm;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.database.Document;
+import com.arcadedb.database.LocalDatabase;
+import com.arcadedb.database.RID;
+import com.arcadedb.database.Record;
+import com.arcadedb.index.IndexCursor;
+import com.arcadedb.index.TypeIndex;
+import com.arcadedb.schema.DocumentType;
+import com.arcadedb.schema.Schema;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Leveled compaction: incremental rounds append level 1 series, a full compaction rewrites them together with the level 2
+ * base and is deferred until level 1 is worth the rewrite ({@link GlobalConfiguration#INDEX_COMPACTION_LEVEL_RATIO}). A large
+ * full compaction is merged in parallel key ranges ({@link GlobalConfiguration#INDEX_COMPACTION_PARALLELISM}) and every
+ * compaction is paced by {@link GlobalConfiguration#INDEX_COMPACTION_IO_RATE}.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+class LSMTreeIndexLeveledCompactionTest extends TestHelper {
+  private static final String TYPE_NAME = "Doc";
+
+  @Override
+  public void beginTest() {
+    // no automatic compaction: every round is explicit
+    database.getConfiguration().setValue(GlobalConfiguration.INDEX_COMPACTION_MIN_PAGES_SCHEDULE, 0);
+    database.getConfiguration().setValue(GlobalConfiguration.INDEX_COMPACTION_FULL_SERIES, 1);
+    database.getConfiguration().setValue(GlobalConfiguration.INDEX_COMPACTION_LEVEL_RATIO, 10);
+    database.getConfiguration().setValue(GlobalConfiguration.INDEX_COMPACTION_PARALLELISM, 1);
+  }
+
+  @Test
+  void fullCompactionIsDeferredUntilLevel1IsWorthTheRewrite() throws Exception {
+    final LSMTreeIndex index = createTypeAndIndex();
+
+    insert(0, 50_000);
+    compact(index); // incremental: the first series, level 1
+    assertThat(stats(index)).containsEntry("level1Series", 1L).containsEntry("level2Series", 0L);
+
+    insert(50_000, 51_000);
+    compact(index); // full: no base yet, so the series threshold alone decides
+    Map<String, Long> stats = stats(index);
+    assertThat(stats).containsEntry("level1Series", 0L).containsEntry("level2Compactions", 1L);
+    assertThat(stats.get("level2Series")).isGreaterThan(0L);
+    final long basePages = stats.get("level2Pages");
+
+    insert(51_000, 52_000);
+    compact(index); // incremental: level 1 was empty
+    insert(52_000, 53_000);
+    compact(index); // still incremental: 2 small series are far below 1/10 of the base
+    stats = stats(index);
+    assertThat(stats).containsEntry("level1Series", 2L).containsEntry("level2Compactions", 1L)
+        .containsEntry("level2Pages", basePages);
+    assertThat(stats.get("level1Compactions")).isEqualTo(3L);
+    assertThat(stats.get("level1Pages") * 10).isLessThan(basePages);
+
+    database.getConfiguration().setValue(GlobalConfiguration.INDEX_COMPACTION_LEVEL_RATIO, 0);
+    insert(53_000, 54_000);
+    compact(index); // ratio disabled: the series threshold triggers the full compaction again
+    assertThat(stats(index)).containsEntry("level1Series", 0L).containsEntry("level2Compactions", 2L);
+
+    assertThat(countRange(0, 54_000)).isEqualTo(54_000);
+  }
+
+  @Test
+  void parallelFullCompactionMergesDisjointKeyRanges() throws Exception {
+    database.getConfiguration().setValue(GlobalConfiguration.INDEX_COMPACTION_PARALLELISM, 4);
+    database.getConfiguration().setValue(GlobalConfiguration.INDEX_COMPACTION_LEVEL_RATIO, 0);
+    final LSMTreeIndex index = createTypeAndIndex();
+
+    // small series, so a test-sized index is large enough to be split
+    LSMTreeIndexCompactor.setMaxDataPagesPerSeries(4);
+    try {
+      insert(0, 20_000);
+      compact(index);
+      deleteRange(0, 2_000);
+      insert(20_000, 21_000);
+      compact(index); // full, in key ranges
+    } finally {
+      LSMTreeIndexCompactor.setMaxDataPagesPerSeries(null);
+    }
+
+    final Map<String, Long> stats = stats(index);
+    assertThat(stats.get("level2CompactionRanges")).as("the merge must have been split").isGreaterThan(1L);
+    assertThat(stats).containsEntry("level1Series", 0L);
+    assertThat(stats.get("level2Series")).isGreaterThan(1L);
+    assertThat(index.getMutableIndex().getSubIndex().checkRootPagesKeyOrder(Integer.MAX_VALUE, 10)).isEmpty();
+
+    verifyContent(2_000, 21_000);
+
+    reopenDatabase();
+    verifyContent(2_000, 21_000);
+  }
+
+  @Test
+  void throttlePacesCompactionIO() throws Exception {
+    final LSMTreeIndexCompactionThrottle throttle = new LSMTreeIndexCompactionThrottle();
+
+    final long begin = System.nanoTime();
+    throttle.acquire(10_000_000, 0); // unlimited
+    throttle.acquire(1_000_000, 1_000_000); // the burst credit
+    assertThat(System.nanoTime() - begin).isLessThan(500_000_000L);
+    assertThat(throttle.getThrottledMs()).isZero();
+
+    for (int i = 0; i < 10; ++i)
+      throttle.acquire(100_000, 1_000_000);
+    assertThat((System.nanoTime() - begin) / 1_000_000).isGreaterThanOrEqualTo(800);
+    assertThat(throttle.getThrottledMs()).isGreaterThanOrEqualTo(800);
+
+    // a compaction under a rate still completes, and the database reports the time it was held back
+    database.getConfiguration().setValue(GlobalConfiguration.INDEX_COMPACTION_IO_RATE, 1L);
+    final LSMTreeIndex index = createTypeAndIndex();
+    insert(0, 2_000);
+    compact(index);
+    assertThat(countRange(0, 2_000)).isEqualTo(2_000);
+    assertThat(((LocalDatabase) ((DatabaseInternal) database).getEmbedded()).getStats())
+        .containsKey("indexCompactionThrottledMs");
+  }
+
+  // ---------------------------------------------------------------------------------------------
+
+  private void verifyContent(final int firstLive, final int toExclusive) {
+    assertThat(countRange(0, toExclusive)).isEqualTo(toExclusive - firstLive);
+
+    database.transaction(() -> {
+      // ascending and descending scans cross every range boundary in order
+      int expected = firstLive;
+      final IndexCursor ascending = index().iterator(true);
+      while (ascending.hasNext()) {
+        ascending.next();
+        assertThat(ascending.getKeys()[0]).isEqualTo(expected++);
+      }
+      assertThat(expected).isEqualTo(toExclusive);
+
+      final IndexCursor descending = index().iterator(false);
+      while (descending.hasNext()) {
+        descending.next();
+        assertThat(descending.getKeys()[0]).isEqualTo(--expected);
+      }
+      assertThat(expected).isEqualTo(firstLive);
+
+      for (int key = 0; key < toExclusive; key += 7)
+        assertThat(index().get(new Object[] { key }).hasNext()).as("key %d", key).isEqualTo(key >= firstLive);
+    });
+  }
+
+  private LSMTreeIndex createTypeAndIndex() {
+    final DocumentType type = database.getSchema().buildDocumentType().withName(TYPE_NAME).withTotalBuckets(1).create();
+    type.createProperty("id", Integer.class);
+    database.getSchema().buildTypeIndex(TYPE_NAME, new String[] { "id" })
+        .withType(Schema.INDEX_TYPE.LSM_TREE).withUnique(true).withPageSize(4_096).create();
+
+    if (database.isTransactionActive())
+      database.commit();
+
+    return index();
+  }
+
+  private void insert(final int fromInclusive, final int toExclusive) {
+    database.transaction(() -> {
+      for (int i = fromInclusive; i < toExclusive; ++i)
+        database.newDocument(TYPE_NAME).set("id", i).save();
+    });
+  }
+
+  private void deleteRange(final int fromInclusive, final int toExclusive) {
+    final List<RID> toDelete = new ArrayList<>();
+    database.transaction(() -> {
+      for (final Iterator<Record> it = database.iterateType(TYPE_NAME, false); it.hasNext(); ) {
+        final Document doc = (Document) it.next();
+        final Integer id = doc.getInteger("id");
+        if (id >= fromInclusive && id < toExclusive)
+          toDelete.add(doc.getIdentity());
+      }
+    });
+    database.transaction(() -> {
+      for (final RID rid : toDelete)
+        database.deleteRecord(rid.getRecord());
+    });
+  }
+
+  private void compact(final LSMTreeIndex index) throws Exception {
+    assertThat(index.scheduleCompaction()).isTrue();
+    assertThat(index.compact()).isTrue();
+  }
+
+  private Map<String, Long> stats(final LSMTreeIndex index) {
+    return index.getStats();
+  }
+
+  private int countRange(final int fromInclusive, final int toExclusive) {
+    final int[] count = { 0 };
+    database.transaction(() -> {
+      final IndexCursor cursor = index().range(true, new Object[] { fromInclusive }, true, new Object[] { toExclusive }, true);
+      while (cursor.hasNext())
+        if (cursor.next() != null)
+          count[0]++;
+    });
+    return count[0];
+  }
+
+  private LSMTreeIndex index() {
+    return (LSMTreeIndex) database.getSchema().getType(TYPE_NAME).getAllIndexes(false).iterator().next()
+        .getIndexesOnBuckets()[0];
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.index.lsm;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.database.RID;
+import com.arcadedb.exception.DuplicatedKeyException;
+import com.arcadedb.index.IndexCursor;
+import com.arcadedb.index.TypeIndex;
+import com.arcadedb.schema.DocumentType;
+import com.arcadedb.schema.Schema;
+import com.arcadedb.schema.Type;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The sealed pages of a mutable index are answered from {@link LSMTreeIndexMemtable}: lookups, uniqueness checks, deletions
+ * and re-insertions have to give the same results as the page by page walk.
+ */
+class LSMTreeIndexMemtableTest extends TestHelper {
+  private static final String TYPE    = "Account";
+  private static final int    RECORDS = 20_000;
+
+  @Override
+  protected void beginTest() {
+    // NO COMPACTION: ALL THE ENTRIES STAY IN THE MUTABLE PAGES
+    GlobalConfiguration.INDEX_COMPACTION_MIN_PAGES_SCHEDULE.setValue(0);
+
+    database.transaction(() -> {
+      final DocumentType type = database.getSchema().createDocumentType(TYPE, 1);
+      type.createProperty("id", Type.LONG);
+      type.createProperty("group", Type.STRING);
+      database.getSchema().buildTypeIndex(TYPE, new String[] { "id" }).withType(Schema.INDEX_TYPE.LSM_TREE).withUnique(true)
+          .withPageSize(4_096).create();
+      database.getSchema().buildTypeIndex(TYPE, new String[] { "group" }).withType(Schema.INDEX_TYPE.LSM_TREE)
+          .withUnique(false).withPageSize(4_096).create();
+    });
+
+    for (int tx = 0; tx < 10; tx++) {
+      final int base = tx * RECORDS / 10;
+      database.transaction(() -> {
+        for (int i = base; i < base + RECORDS / 10; i++)
+          database.newDocument(TYPE).set("id", (long) i).set("group", "g" + (i % 10)).save();
+      });
+    }
+  }
+
+  @Test
+  void pointLookupsAreAnsweredFromTheMemtable() {
+    database.transaction(() -> {
+      for (long i = 0; i < RECORDS; i += 97) {
+        final IndexCursor cursor = database.lookupByKey(TYPE, "id", i);
+        assertThat(cursor.hasNext()).as("key %d", i).isTrue();
+        assertThat(cursor.next().asDocument().getLong("id")).isEqualTo(i);
+        assertThat(cursor.hasNext()).isFalse();
+      }
+      assertThat(database.lookupByKey(TYPE, "id", (long) RECORDS).hasNext()).isFalse();
+      assertThat(database.lookupByKey(TYPE, "id", -1L).hasNext()).isFalse();
+    });
+
+    final Map<String, Long> stats = mutableIndex("id").getStats();
+    assertThat(stats.get("memtablePages")).isGreaterThan(1L);
+    assertThat(stats.get("memtableLookups")).isGreaterThan(0L);
+  }
+
+  @Test
+  void valuesOfTheSameKeyAcrossPagesAreAllReturned() {
+    database.transaction(() -> {
+      final Set<RID> rids = new HashSet<>();
+      database.lookupByKey(TYPE, "group", "g3").forEachRemaining(r -> rids.add(r.getIdentity()));
+      assertThat(rids).hasSize(RECORDS / 10);
+    });
+
+    assertThat(mutableIndex("group").getStats().get("memtablePages")).isGreaterThan(1L);
+  }
+
+  @Test
+  void uniquenessDeletionsAndReinsertionsAreHonoured() {
+    assertThatThrownBy(() -> database.transaction(() -> database.newDocument(TYPE).set("id", 10L).save())).isInstanceOf(
+        DuplicatedKeyException.class);
+
+    database.transaction(() -> database.lookupByKey(TYPE, "id", 10L).next().asDocument().delete());
+    database.transaction(() -> assertThat(database.lookupByKey(TYPE, "id", 10L).hasNext()).isFalse());
+
+    final RID[] reinserted = new RID[1];
+    database.transaction(() -> {
+      final MutableDocument doc = database.newDocument(TYPE).set("id", 10L).set("group", "g0");
+      doc.save();
+      reinserted[0] = doc.getIdentity();
+    });
+
+    // MORE ENTRIES SEAL THE PAGES WITH THE DELETION AND THE RE-INSERTION, SO THE MEMTABLE ABSORBS THEM TOO
+    database.transaction(() -> {
+      for (long i = RECORDS; i < RECORDS + 5_000; i++)
+        database.newDocument(TYPE).set("id", i).set("group", "g" + (i % 10)).save();
+    });
+
+    database.transaction(() -> {
+      final IndexCursor cursor = database.lookupByKey(TYPE, "id", 10L);
+      assertThat(cursor.next().getIdentity()).isEqualTo(reinserted[0]);
+      assertThat(cursor.hasNext()).isFalse();
+
+      assertThat(database.lookupByKey(TYPE, "id", (long) RECORDS + 4_999).hasNext()).isTrue();
+    });
+
+    assertThatThrownBy(() -> database.transaction(() -> database.newDocument(TYPE).set("id", 10L).save())).isInstanceOf(
+        DuplicatedKeyException.class);
+  }
+
+  private LSMTreeIndexMutable mutableIndex(final String property) {
+    final TypeIndex index = (TypeIndex) database.getSchema().getIndexByName(TYPE + "[" + property + "]");
+    return ((LSMTreeIndex) index.getIndexesOnBuckets()[0]).getMutableIndex();
+  }
+}
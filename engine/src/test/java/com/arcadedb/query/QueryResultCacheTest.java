@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Results of repeated read queries served from the cache until a commit touches what they read.
+ */
+class QueryResultCacheTest extends TestHelper {
+
+  @AfterEach
+  void resetCache() {
+    GlobalConfiguration.QUERY_RESULT_CACHE.reset();
+    GlobalConfiguration.QUERY_RESULT_CACHE_MAX_ROWS.reset();
+  }
+
+  private void createData() {
+    database.getSchema().createVertexType("Order");
+    database.getSchema().createDocumentType("Customer");
+    database.transaction(() -> {
+      for (int i = 0; i < 100; i++)
+        database.newVertex("Order").set("status", i % 2 == 0 ? "open" : "closed").set("amount", i).save();
+      database.newDocument("Customer").set("name", "Jay").save();
+    });
+  }
+
+  private void enableCache() {
+    GlobalConfiguration.QUERY_RESULT_CACHE.setValue(true);
+    reopenDatabase();
+  }
+
+  private long stat(final String name) {
+    return ((Number) database.getStats().get(name)).longValue();
+  }
+
+  private long sumOpen() {
+    try (final ResultSet rs = database.query("sql", "SELECT sum(amount) AS total FROM Order WHERE status = ?", "open")) {
+      return ((Number) rs.next().getProperty("total")).longValue();
+    }
+  }
+
+  @Test
+  void repeatedQueryIsServedFromTheCacheUntilACommitTouchesItsBuckets() {
+    createData();
+    enableCache();
+
+    assertThat(sumOpen()).isEqualTo(2450L);
+    assertThat(stat("queryResultCacheMisses")).isEqualTo(1L);
+    assertThat(stat("queryResultCacheEntries")).isEqualTo(1L);
+    assertThat(stat("queryResultCacheBytes")).isPositive();
+
+    for (int i = 0; i < 10; i++)
+      assertThat(sumOpen()).isEqualTo(2450L);
+    assertThat(stat("queryResultCacheHits")).isEqualTo(10L);
+
+    // A COMMIT ON AN UNRELATED TYPE KEEPS THE ENTRY
+    database.transaction(() -> database.newDocument("Customer").set("name", "Luca").save());
+    assertThat(sumOpen()).isEqualTo(2450L);
+    assertThat(stat("queryResultCacheHits")).isEqualTo(11L);
+
+    // A COMMIT ON THE QUERIED TYPE INVALIDATES IT
+    database.transaction(() -> database.newVertex("Order").set("status", "open").set("amount", 1000).save());
+    assertThat(stat("queryResultCacheInvalidations")).isEqualTo(1L);
+    assertThat(sumOpen()).isEqualTo(3450L);
+    assertThat(stat("queryResultCacheMisses")).isEqualTo(2L);
+
+    // DIFFERENT PARAMETERS ARE A DIFFERENT ENTRY
+    try (final ResultSet rs = database.query("sql", "SELECT sum(amount) AS total FROM Order WHERE status = ?", "closed")) {
+      assertThat(((Number) rs.next().getProperty("total")).longValue()).isEqualTo(2500L);
+    }
+    assertThat(stat("queryResultCacheMisses")).isEqualTo(3L);
+  }
+
+  @Test
+  void countAndCypherAreInvalidatedByCommits() {
+    createData();
+    enableCache();
+
+    for (int i = 0; i < 2; i++)
+      try (final ResultSet rs = database.query("sql", "SELECT count(*) AS c FROM Order")) {
+        assertThat(((Number) rs.next().getProperty("c")).longValue()).isEqualTo(100L);
+      }
+    for (int i = 0; i < 2; i++)
+      try (final ResultSet rs = database.query("opencypher", "MATCH (o:Order) WHERE o.amount >= $min RETURN o.amount AS a",
+          Map.of("min", 98))) {
+        assertThat(rs.stream().map(r -> r.<Integer>getProperty("a")).toList()).containsExactlyInAnyOrder(98, 99);
+      }
+    assertThat(stat("queryResultCacheHits")).isEqualTo(2L);
+
+    database.transaction(() -> database.command("sql", "DELETE FROM Order WHERE amount = 99"));
+
+    try (final ResultSet rs = database.query("sql", "SELECT count(*) AS c FROM Order")) {
+      assertThat(((Number) rs.next().getProperty("c")).longValue()).isEqualTo(99L);
+    }
+    try (final ResultSet rs = database.query("opencypher", "MATCH (o:Order) WHERE o.amount >= $min RETURN o.amount AS a",
+        Map.of("min", 98))) {
+      assertThat(rs.stream().map(r -> r.<Integer>getProperty("a")).toList()).containsExactly(98);
+    }
+    assertThat(stat("queryResultCacheHits")).isEqualTo(2L);
+  }
+
+  @Test
+  void recordsAreReturnedAsCopiesAndSchemaChangesInvalidateEverything() {
+    createData();
+    enableCache();
+
+    for (int i = 0; i < 2; i++)
+      try (final ResultSet rs = database.query("sql", "SELECT FROM Customer")) {
+        final Result row = rs.next();
+        assertThat(row.isElement()).isTrue();
+        assertThat(row.<String>getProperty("name")).isEqualTo("Jay");
+        assertThat(rs.hasNext()).isFalse();
+      }
+    assertThat(stat("queryResultCacheHits")).isEqualTo(1L);
+
+    database.getSchema().createDocumentType("Invoice");
+    assertThat(stat("queryResultCacheEntries")).isZero();
+  }
+
+  @Test
+  void hintsAndLimits() {
+    createData();
+
+    // DISABLED: ONLY HINTED QUERIES ARE CACHED
+    for (int i = 0; i < 2; i++)
+      database.query("sql", "SELECT count(*) FROM Order WHERE amount > 10").close();
+    for (int i = 0; i < 2; i++)
+      database.query("sql", "/*+ CACHE */ SELECT count(*) FROM Order WHERE amount > 10").close();
+    assertThat(stat("queryResultCacheMisses")).isEqualTo(1L);
+    assertThat(stat("queryResultCacheHits")).isEqualTo(1L);
+
+    GlobalConfiguration.QUERY_RESULT_CACHE_MAX_ROWS.setValue(10);
+    enableCache();
+
+    for (int i = 0; i < 2; i++)
+      database.query("sql", "SELECT /*+ NO_CACHE */ count(*) FROM Order WHERE amount > 10").close();
+    assertThat(stat("queryResultCacheMisses")).isZero();
+
+    // WHITE SPACES ARE NORMALIZED
+    database.query("sql", "SELECT   count(*)\n FROM Order").close();
+    database.query("sql", "SELECT count(*) FROM Order").close();
+    assertThat(stat("queryResultCacheHits")).isEqualTo(1L);
+
+    // TOO MANY ROWS: NOT CACHED, BUT ALL RETURNED
+    for (int i = 0; i < 2; i++)
+      try (final ResultSet rs = database.query("sql", "SELECT FROM Order")) {
+        assertThat(rs.stream().count()).isEqualTo(100L);
+      }
+    assertThat(stat("queryResultCacheEntries")).isEqualTo(1L);
+
+    // NON-DETERMINISTIC AND IN-TRANSACTION QUERIES ARE NEVER CACHED
+    for (int i = 0; i < 2; i++)
+      database.query("sql", "SELECT sysdate() AS now FROM Customer").close();
+    database.transaction(() -> {
+      for (int i = 0; i < 2; i++)
+        database.query("sql", "SELECT FROM Customer").close();
+    });
+    assertThat(stat("queryResultCacheHits")).isEqualTo(1L);
+    assertThat(stat("queryResultCacheEntries")).isEqualTo(1L);
+  }
+}
@@ -143,4 +143,26 @@ class AlgoBetweennessTest {
     // At least one node should have score > 1 (not normalized)
     assertThat(scores.stream().anyMatch(s -> s > 1.0)).isTrue();
   }
+
+  @Test
+  void sampledBetweennessScalesThePivotsScores() {
+    // three of the four nodes as pivots, and a fixed seed makes the estimate repeatable
+    final List<Double> first = scores("CALL algo.betweenness({samplingSize: 3, samplingSeed: 11, normalized: false}) "
+        + "YIELD node, score RETURN node.name AS name, score ORDER BY name");
+    final List<Double> second = scores("CALL algo.betweenness({samplingSize: 3, samplingSeed: 11, normalized: false}) "
+        + "YIELD node, score RETURN node.name AS name, score ORDER BY name");
+    assertThat(first).hasSize(4).isEqualTo(second);
+    // A and D are never between two nodes, whichever pivots are drawn
+    assertThat(first.get(0)).isEqualTo(0.0);
+    assertThat(first.get(3)).isEqualTo(0.0);
+    assertThat(first.get(1) + first.get(2)).isGreaterThan(0.0);
+  }
+
+  private List<Double> scores(final String query) {
+    final List<Double> scores = new ArrayList<>();
+    final ResultSet rs = database.query("opencypher", query);
+    while (rs.hasNext())
+      scores.add(((Number) rs.next().getProperty("score")).doubleValue());
+    return scores;
+  }
 }
@@ -31,6 +31,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Tests for the algo.fastrp Cypher procedure.
@@ -116,4 +117,39 @@ class AlgoFastRPTest {
     for (final List<?> e : run1)
       assertThat(run2).contains(e);
   }
+
+  @Test
+  void fastRPWriteFeedsTheVectorIndexOnTheProperty() {
+    database.command("sql", "CREATE PROPERTY Node.embedding ARRAY_OF_FLOATS");
+    database.command("sql", "CREATE INDEX ON Node (embedding) LSM_VECTOR METADATA {dimensions: 8, similarity: 'COSINE'}");
+
+    final Result summary = database.command("opencypher", """
+        CALL algo.fastrp.write({dimensions: 8, seed: 5, writeProperty: 'embedding', batchSize: 2}) \
+        YIELD nodePropertiesWritten, embeddingDimension \
+        RETURN nodePropertiesWritten, embeddingDimension""").next();
+    assertThat(((Number) summary.getProperty("nodePropertiesWritten")).longValue()).isEqualTo(3L);
+    assertThat(((Number) summary.getProperty("embeddingDimension")).intValue()).isEqualTo(8);
+
+    final Result a = database.query("sql", "SELECT embedding FROM Node WHERE name = 'A'").next();
+    final float[] embedding = a.getProperty("embedding");
+    assertThat(embedding).hasSize(8);
+
+    // the stored row is its own nearest neighbour
+    final ResultSet nearest = database.query("sql",
+        "SELECT name FROM (SELECT expand(vectorNeighbors('Node[embedding]', ?, 1)))", (Object) embedding);
+    assertThat(nearest.next().<String>getProperty("name")).isEqualTo("A");
+  }
+
+  @Test
+  void fastRPWriteRefusesAVectorIndexOfAnotherDimension() {
+    database.command("sql", "CREATE PROPERTY Node.embedding ARRAY_OF_FLOATS");
+    database.command("sql", "CREATE INDEX ON Node (embedding) LSM_VECTOR METADATA {dimensions: 4, similarity: 'COSINE'}");
+
+    assertThatThrownBy(() -> database.command("opencypher",
+        "CALL algo.fastrp.write({dimensions: 8, writeProperty: 'embedding'}) YIELD nodePropertiesWritten RETURN nodePropertiesWritten")
+        .next())
+        .hasStackTraceContaining("the vector index on Node.embedding has 4 dimensions, the embeddings 8");
+    assertThat(database.query("sql", "SELECT count(*) AS c FROM Node WHERE embedding IS NOT NULL").next()
+        .<Number>getProperty("c").longValue()).isZero();
+  }
 }
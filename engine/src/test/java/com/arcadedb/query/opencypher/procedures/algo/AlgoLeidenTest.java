@@ -178,4 +178,24 @@ class AlgoLeidenTest {
     assertThat(rs.hasNext()).isFalse();
     emptyDb.drop();
   }
+
+  @Test
+  void leidenWriteStoresTheCommunities() {
+    final Result summary = database.command("opencypher", """
+        CALL algo.leiden.write('community', 'KNOWS', 10, 1.0, 2) \
+        YIELD nodePropertiesWritten, communityCount RETURN nodePropertiesWritten, communityCount""").next();
+
+    assertThat(((Number) summary.getProperty("nodePropertiesWritten")).longValue()).isEqualTo(6L);
+    assertThat(((Number) summary.getProperty("communityCount")).intValue()).isEqualTo(2);
+
+    final Set<Object> first = new HashSet<>();
+    final Set<Object> second = new HashSet<>();
+    final ResultSet rs = database.query("sql", "SELECT name, community FROM Node");
+    while (rs.hasNext()) {
+      final Result row = rs.next();
+      ("ABC".contains(row.getProperty("name")) ? first : second).add(row.getProperty("community"));
+    }
+    assertThat(first).hasSize(1);
+    assertThat(second).hasSize(1).doesNotContainAnyElementsOf(first);
+  }
 }
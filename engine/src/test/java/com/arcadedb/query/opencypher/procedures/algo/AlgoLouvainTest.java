@@ -27,12 +27,17 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import org.assertj.core.data.Offset;
+
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Tests for the algo.louvain Cypher procedure.
@@ -149,4 +154,63 @@ class AlgoLouvainTest {
     for (int i = 1; i < ids.size(); i++)
       assertThat(ids.get(i)).isEqualTo(ids.get(i - 1) + 1);
   }
+
+  @Test
+  void louvainFindsTheTwoTriangles() {
+    final Map<String, Integer> communities = new HashMap<>();
+    final ResultSet rs = database.query("opencypher",
+        "CALL algo.louvain() YIELD node, communityId RETURN node.name AS name, communityId");
+    while (rs.hasNext()) {
+      final Result row = rs.next();
+      communities.put(row.getProperty("name"), ((Number) row.getProperty("communityId")).intValue());
+    }
+
+    assertThat(communities.get("A")).isEqualTo(communities.get("B")).isEqualTo(communities.get("C"));
+    assertThat(communities.get("D")).isEqualTo(communities.get("E")).isEqualTo(communities.get("F"));
+    assertThat(communities.get("A")).isNotEqualTo(communities.get("D"));
+  }
+
+  /**
+   * The write variant stores what the streaming one returns, in batches smaller than the graph, and the score of the
+   * stored partition is the modularity the detection reported.
+   */
+  @Test
+  void louvainWriteStoresTheCommunityOfEveryVertex() {
+    final Result summary = database.command("opencypher", """
+        CALL algo.louvain.write({writeProperty: 'community', batchSize: 4}) \
+        YIELD nodePropertiesWritten, communityCount, modularity, levels \
+        RETURN nodePropertiesWritten, communityCount, modularity, levels""").next();
+
+    assertThat(((Number) summary.getProperty("nodePropertiesWritten")).longValue()).isEqualTo(6L);
+    assertThat(((Number) summary.getProperty("communityCount")).intValue()).isEqualTo(2);
+    assertThat(((Number) summary.getProperty("levels")).intValue()).isGreaterThanOrEqualTo(1);
+
+    final Map<Object, Object> streamed = new HashMap<>();
+    final ResultSet rs = database.query("opencypher",
+        "CALL algo.louvain() YIELD node, communityId RETURN node.name AS name, communityId");
+    while (rs.hasNext()) {
+      final Result row = rs.next();
+      streamed.put(row.getProperty("name"), row.getProperty("communityId"));
+    }
+    final ResultSet stored = database.query("sql", "SELECT name, community FROM Node");
+    int rows = 0;
+    while (stored.hasNext()) {
+      final Result row = stored.next();
+      assertThat(row.<Object>getProperty("community")).isEqualTo(streamed.get(row.getProperty("name")));
+      rows++;
+    }
+    assertThat(rows).isEqualTo(6);
+
+    final double score = ((Number) database.query("opencypher",
+            "CALL algo.modularityScore('community') YIELD modularity RETURN modularity").next().getProperty("modularity"))
+        .doubleValue();
+    assertThat(score).isCloseTo(((Number) summary.getProperty("modularity")).doubleValue(), Offset.offset(1e-9));
+  }
+
+  @Test
+  void louvainWriteRequiresAProperty() {
+    assertThatThrownBy(() -> database.command("opencypher",
+        "CALL algo.louvain.write({batchSize: 10}) YIELD nodePropertiesWritten RETURN nodePropertiesWritten").next())
+        .hasStackTraceContaining("algo.louvain.write(): writeProperty is required");
+  }
 }
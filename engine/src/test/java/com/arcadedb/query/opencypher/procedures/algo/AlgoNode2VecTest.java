@@ -115,4 +115,23 @@ class AlgoNode2VecTest {
     }
     assertThat(count).isEqualTo(4);
   }
+
+  @Test
+  void node2vecWithBiasedWalksWritesAnEmbeddingPerVertex() {
+    final Result summary = database.command("opencypher", """
+        CALL algo.node2vec.write({embeddingDimension: 8, walkLength: 6, walksPerNode: 3, p: 0.5, q: 2.0, seed: 3, \
+        writeProperty: 'vec'}) YIELD nodePropertiesWritten RETURN nodePropertiesWritten""").next();
+    assertThat(((Number) summary.getProperty("nodePropertiesWritten")).longValue()).isEqualTo(4L);
+
+    final ResultSet rs = database.query("sql", "SELECT vec FROM Node");
+    int rows = 0;
+    while (rs.hasNext()) {
+      final float[] vec = rs.next().getProperty("vec");
+      assertThat(vec).hasSize(8);
+      for (final float v : vec)
+        assertThat(Float.isFinite(v)).isTrue();
+      rows++;
+    }
+    assertThat(rows).isEqualTo(4);
+  }
 }
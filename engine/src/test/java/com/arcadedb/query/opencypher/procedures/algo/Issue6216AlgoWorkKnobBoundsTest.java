@@ -285,7 +285,8 @@ class Issue6216AlgoWorkKnobBoundsTest {
         assertThat(Double.isFinite(v)).as("every component must be finite").isTrue();
         squaredNorm += v * v;
       }
-      assertThat(Math.sqrt(squaredNorm)).as("embeddings are returned L2 normalised").isCloseTo(1.0, within(1e-9));
+      // within float precision: the model is trained in float matrices
+      assertThat(Math.sqrt(squaredNorm)).as("embeddings are returned L2 normalised").isCloseTo(1.0, within(1e-6));
     }
   }
 
@@ -94,12 +94,12 @@ class Issue6263AlgoWorkingMemoryBudgetTest {
   @Test
   void fastRpRejectsEmbeddingMatricesLargerThanTheWorkingMemoryBudget() {
     // algo.fastrp is the procedure with nothing else to price: it has no walk buffer, so before this change no
-    // budget of any kind applied to it. Two matrices of 4 nodes x 128 doubles are 8448 bytes with row headers.
+    // budget of any kind applied to it. Two flat matrices of 4 nodes x 128 floats are 4096 bytes.
     database.getConfiguration().setValue(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY, 1024L);
 
     assertThatThrownBy(() -> drain("CALL algo.fastrp({seed: 42}) YIELD node RETURN node"))
         .as("embedding matrices over the budget must be refused before allocating")
-        .hasStackTraceContaining("the embedding matrices would need 8448 bytes (2 matrices of 4 nodes x dimensions=128)")
+        .hasStackTraceContaining("the embedding matrices would need 4096 bytes (2 matrices of 4 nodes x dimensions=128)")
         .hasStackTraceContaining("more than the 1024 bytes allowed")
         .hasStackTraceContaining(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY.getKey());
   }
@@ -123,55 +123,55 @@ class Issue6263AlgoWorkingMemoryBudgetTest {
   @Test
   void node2VecChargesTheEmbeddingMatricesOnTopOfTheWalkBuffer() {
     // The reason the budget accumulates rather than checking each component alone. On this graph the default
-    // knobs need 14240 bytes of walk buffers and 8448 bytes of embedding matrices, and both are alive at the
-    // same time - the walks are what the Skip-gram trains over. A budget of 20000 fits either one on its own
-    // and neither pair, so a per-component check would let the call through at 22688 bytes.
-    database.getConfiguration().setValue(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY, 20000L);
+    // knobs need 14240 bytes of walk buffers and 4096 bytes of embedding matrices, and both are alive at the
+    // same time - the walks are what the Skip-gram trains over. A budget of 18000 fits either one on its own
+    // and not the pair, so a per-component check would let the call through at 18720 bytes.
+    database.getConfiguration().setValue(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY, 18000L);
 
     assertThatThrownBy(() -> drain("CALL algo.node2vec({seed: 42}) YIELD node RETURN node"))
         .as("the working set of the call is the sum of its components, not its largest one")
         .hasStackTraceContaining(
-            "the embedding matrices would need 8448 bytes (2 matrices of 4 nodes x embeddingDimension=128)")
+            "the embedding matrices would need 4096 bytes (2 matrices of 4 nodes x embeddingDimension=128)")
         // 14624 rather than 14240: since #6317 the graph itself is priced, and the 4-node fixture costs 384 bytes.
         .hasStackTraceContaining("on top of the 14624 bytes this call already reserved")
-        .hasStackTraceContaining("more than the 20000 bytes allowed");
+        .hasStackTraceContaining("more than the 18000 bytes allowed");
   }
 
   @Test
   void node2VecRejectsAnOversizedEmbeddingEvenWhenTheWalkBufferFits() {
     // The dimension is the knob #6065 capped at 4096, which bounds one embedding row at 32 KB and the matrix at
-    // nothing: here the walk buffer of a single 2-step walk per node costs 176 bytes and the embeddings 262400.
+    // nothing: here the walk buffer of a single 2-step walk per node costs 176 bytes and the embeddings 131072.
     // The reservation is made before phase 1 rather than next to the allocation it covers, so a run that cannot
     // afford its embeddings does not first spend the time to generate walks it will throw away.
     database.getConfiguration().setValue(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY, 100_000L);
 
     assertThatThrownBy(() -> drain("CALL algo.node2vec({embeddingDimension: 4096, walksPerNode: 1, walkLength: 2, "
         + "seed: 42}) YIELD node RETURN node"))
-        .hasStackTraceContaining("the embedding matrices would need 262400 bytes")
+        .hasStackTraceContaining("the embedding matrices would need 131072 bytes")
         .hasStackTraceContaining("embeddingDimension=4096");
   }
 
   @Test
   void hashGnnRejectsFeatureMatricesLargerThanTheBudget() {
-    // The feature matrices, not the embedding one, are the larger pair here: they are four times as wide, so
-    // even stored as booleans they cost half a byte per dimension per node against the embedding's eight.
-    database.getConfiguration().setValue(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY, 1024L);
+    // The feature matrices are reserved first. They are four times as wide as the embedding but stored as bit
+    // sets, so the pair costs 512 bytes here: with the 384 bytes of the loaded graph that is over 800.
+    database.getConfiguration().setValue(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY, 800L);
 
     assertThatThrownBy(() -> drain("CALL algo.hashgnn({seed: 42}) YIELD node RETURN node"))
         .hasStackTraceContaining(
-            "the feature matrices would need 4352 bytes (2 matrices of 4 nodes x 512 features (embeddingDimension=128 x 4))")
+            "the feature matrices would need 512 bytes (2 matrices of 4 nodes x 512 features (embeddingDimension=128 x 4))")
         .hasStackTraceContaining(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY.getKey());
   }
 
   @Test
   void hashGnnChargesTheEmbeddingMatrixOnTopOfTheFeatureMatrices() {
-    // 4352 bytes of feature matrices fit a 6000-byte budget; the 4224-byte embedding matrix on top does not.
-    database.getConfiguration().setValue(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY, 6000L);
+    // 512 bytes of feature matrices fit a 2000-byte budget; the 2048-byte embedding matrix on top does not.
+    database.getConfiguration().setValue(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY, 2000L);
 
     assertThatThrownBy(() -> drain("CALL algo.hashgnn({seed: 42}) YIELD node RETURN node"))
-        .hasStackTraceContaining("the embedding matrix would need 4224 bytes (4 nodes x embeddingDimension=128)")
-        // 4736 rather than 4352: the 384 bytes of the loaded graph, priced since #6317.
-        .hasStackTraceContaining("on top of the 4736 bytes this call already reserved");
+        .hasStackTraceContaining("the embedding matrix would need 2048 bytes (4 nodes x embeddingDimension=128)")
+        // 896 rather than 512: the 384 bytes of the loaded graph, priced since #6317.
+        .hasStackTraceContaining("on top of the 896 bytes this call already reserved");
   }
 
   @Test
@@ -179,22 +179,22 @@ class Issue6263AlgoWorkingMemoryBudgetTest {
     database.getConfiguration().setValue(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY, 1024L);
 
     assertThatThrownBy(() -> drain("CALL algo.graphsage({seed: 42}) YIELD node RETURN node"))
-        .hasStackTraceContaining("the node feature matrix would need 2176 bytes (4 nodes x 64 initial features)")
+        .hasStackTraceContaining("the node feature matrix would need 1024 bytes (4 nodes x 64 initial features)")
         .hasStackTraceContaining(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY.getKey());
   }
 
   @Test
   void graphSageChargesTheLayerMatricesOnTopOfTheNodeFeatures() {
-    // The projection matrix is the surprise in this one: outDim x 2*initDim doubles is 67584 bytes at the
+    // The projection matrix is the surprise in this one: outDim x 2*initDim floats is 32768 bytes at the
     // defaults, dwarfing both node-scaled matrices on a graph this small. Peak is per-layer, not per-run: each
     // layer drops the matrix it read, so `layers` does not multiply the reservation.
     database.getConfiguration().setValue(GlobalConfiguration.CYPHER_ALGO_MAX_WORKING_MEMORY, 3000L);
 
     assertThatThrownBy(() -> drain("CALL algo.graphsage({layers: 2, seed: 42}) YIELD node RETURN node"))
-        .hasStackTraceContaining("the layer matrices would need 69760 bytes "
+        .hasStackTraceContaining("the layer matrices would need 33792 bytes "
             + "(4 nodes x embeddingDimension=64 plus a projection of 64 x 128)")
-        // 2560 rather than 2176: the 384 bytes of the loaded graph, priced since #6317.
-        .hasStackTraceContaining("on top of the 2560 bytes this call already reserved");
+        // 1408 rather than 1024: the 384 bytes of the loaded graph, priced since #6317.
+        .hasStackTraceContaining("on top of the 1408 bytes this call already reserved");
   }
 
   // ── The square matrices, which no knob sizes at all ──────────────────────
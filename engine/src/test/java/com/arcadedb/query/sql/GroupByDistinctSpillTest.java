@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.query.sql;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.TestHelper;
+import com.arcadedb.exception.CommandExecutionException;
+import com.arcadedb.query.sql.executor.ExternalSortBuffer;
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * GROUP BY and DISTINCT spilling their groups over the in-heap limit to hash partitions on disk.
+ */
+class GroupByDistinctSpillTest extends TestHelper {
+  private static final int KEYS          = 1_000;
+  private static final int ROWS_PER_KEY  = 3;
+
+  @AfterEach
+  void resetSpill() {
+    GlobalConfiguration.QUERY_SPILL_TO_DISK.reset();
+    GlobalConfiguration.QUERY_SPILL_PARTITIONS.reset();
+    GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.reset();
+  }
+
+  private void createEvents() {
+    database.getSchema().createDocumentType("Event");
+    database.transaction(() -> {
+      for (int r = 0; r < ROWS_PER_KEY; r++)
+        for (int i = 0; i < KEYS; i++)
+          database.newDocument("Event").set("k", "key-" + i).set("v", i).save();
+    });
+  }
+
+  private void enableSpill() {
+    GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(50);
+    GlobalConfiguration.QUERY_SPILL_TO_DISK.setValue(true);
+    // 8 PARTITIONS OF ~120 KEYS DO NOT FIT 50: FORCES A SECOND LEVEL OF PARTITIONING
+    GlobalConfiguration.QUERY_SPILL_PARTITIONS.setValue(8);
+    reopenDatabase();
+  }
+
+  @Test
+  void groupBySpillsAndAggregatesEveryGroup() {
+    createEvents();
+    enableSpill();
+
+    final Map<String, Long> counts = new HashMap<>();
+    try (final ResultSet rs = database.query("sql", "SELECT k, count(*) AS c, sum(v) AS s FROM Event GROUP BY k")) {
+      while (rs.hasNext()) {
+        final Result row = rs.next();
+        final String key = row.getProperty("k");
+        final int i = Integer.parseInt(key.substring("key-".length()));
+        assertThat(counts.put(key, ((Number) row.getProperty("c")).longValue())).as("duplicated group " + key).isNull();
+        assertThat(((Number) row.getProperty("s")).longValue()).isEqualTo((long) i * ROWS_PER_KEY);
+      }
+    }
+    assertThat(counts).hasSize(KEYS);
+    assertThat(counts.values()).containsOnly((long) ROWS_PER_KEY);
+    assertThat(temporaryFiles()).isZero();
+  }
+
+  @Test
+  void distinctSpillsAndDeduplicates() {
+    createEvents();
+    enableSpill();
+
+    final Set<String> keys = new HashSet<>();
+    try (final ResultSet rs = database.query("sql", "SELECT DISTINCT k FROM Event")) {
+      while (rs.hasNext())
+        assertThat(keys.add(rs.next().getProperty("k"))).isTrue();
+    }
+    assertThat(keys).hasSize(KEYS);
+    assertThat(temporaryFiles()).isZero();
+  }
+
+  @Test
+  void withoutSpillTheLimitStillFails() {
+    createEvents();
+    GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(50);
+    reopenDatabase();
+
+    assertThatThrownBy(() -> {
+      try (final ResultSet rs = database.query("sql", "SELECT k, count(*) FROM Event GROUP BY k")) {
+        rs.forEachRemaining(r -> {
+        });
+      }
+    }).isInstanceOf(CommandExecutionException.class).hasMessageContaining("in-heap GROUP BY");
+  }
+
+  private int temporaryFiles() {
+    final File[] files = new File(database.getDatabasePath(), ExternalSortBuffer.TEMP_DIRECTORY).listFiles();
+    return files == null ? 0 : files.length;
+  }
+}
@@ -21,8 +21,11 @@ package com.arcadedb.query.sql.executor;
 import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.TestHelper;
 import com.arcadedb.exception.CommandExecutionException;
+import com.arcadedb.graph.Vertex;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -350,4 +353,74 @@ class OrderByStepTest extends TestHelper {
 
     result.close();
   }
+
+  @Test
+  void shouldSpillToDiskWhenEnabled() {
+    GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(100);
+    GlobalConfiguration.QUERY_SPILL_TO_DISK.setValue(true);
+    try {
+      database.getSchema().createDocumentType("TestOrderSpill");
+      database.transaction(() -> {
+        for (int i = 0; i < 1_000; i++)
+          database.newDocument("TestOrderSpill").set("value", (i * 7919) % 1_000).set("group", i % 3).save();
+      });
+
+      try (final ResultSet result = database.query("sql", "SELECT FROM TestOrderSpill ORDER BY value ASC")) {
+        int expected = 0;
+        while (result.hasNext()) {
+          final Result item = result.next();
+          assertThat(item.isElement()).isTrue();
+          assertThat((int) item.getProperty("value")).isEqualTo(expected++);
+        }
+        assertThat(expected).isEqualTo(1_000);
+      }
+
+      // PROJECTIONS, STABLE ON TIES AND A LIMIT OVER THE HEAP LIMIT
+      try (final ResultSet result = database.query("sql",
+          "SELECT group, value, 'v' + value as label FROM TestOrderSpill ORDER BY group DESC LIMIT 500")) {
+        int count = 0;
+        int previousGroup = Integer.MAX_VALUE;
+        while (result.hasNext()) {
+          final Result item = result.next();
+          final int group = item.getProperty("group");
+          assertThat(group).isLessThanOrEqualTo(previousGroup);
+          assertThat((String) item.getProperty("label")).isEqualTo("v" + item.getProperty("value"));
+          previousGroup = group;
+          count++;
+        }
+        assertThat(count).isEqualTo(500);
+      }
+
+      final File[] runs = new File(database.getDatabasePath(), ExternalSortBuffer.TEMP_DIRECTORY).listFiles();
+      assertThat(runs == null ? 0 : runs.length).isZero();
+    } finally {
+      GlobalConfiguration.QUERY_SPILL_TO_DISK.reset();
+      GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.reset();
+    }
+  }
+
+  @Test
+  void shouldSpillCypherOrderBy() {
+    GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.setValue(50);
+    GlobalConfiguration.QUERY_SPILL_TO_DISK.setValue(true);
+    try {
+      database.getSchema().createVertexType("SpillPerson");
+      database.transaction(() -> {
+        for (int i = 0; i < 300; i++)
+          database.newVertex("SpillPerson").set("age", 300 - i).save();
+      });
+
+      try (final ResultSet result = database.query("opencypher", "MATCH (p:SpillPerson) RETURN p ORDER BY p.age")) {
+        int expected = 1;
+        while (result.hasNext()) {
+          final Vertex person = (Vertex) result.next().getProperty("p");
+          assertThat(person.getInteger("age")).isEqualTo(expected++);
+        }
+        assertThat(expected).isEqualTo(301);
+      }
+    } finally {
+      GlobalConfiguration.QUERY_SPILL_TO_DISK.reset();
+      GlobalConfiguration.QUERY_MAX_HEAP_ELEMENTS_ALLOWED_PER_OP.reset();
+    }
+  }
 }
@@ -53,6 +53,7 @@ import com.arcadedb.graph.MutableVertex;
 import com.arcadedb.graph.Vertex;
 import com.arcadedb.index.IndexCursor;
 import com.arcadedb.query.QueryEngine;
+import com.arcadedb.query.QueryResultCache;
 import com.arcadedb.query.opencypher.optimizer.statistics.GraphStatisticsCache;
 import com.arcadedb.query.opencypher.query.CypherPlanCache;
 import com.arcadedb.query.opencypher.query.CypherStatementCache;
@@ -350,6 +351,11 @@ class SQLMethodTransformTest {
         return null;
       }
 
+      @Override
+      public QueryResultCache getQueryResultCache() {
+        return null;
+      }
+
       @Override
       public GraphStatisticsCache getGraphStatisticsCache() {
         return null;
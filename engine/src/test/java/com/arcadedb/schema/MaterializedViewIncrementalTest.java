@@ -18,12 +18,15 @@
  */
 package com.arcadedb.schema;
 
+import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.TestHelper;
 import com.arcadedb.database.MutableDocument;
 import com.arcadedb.query.sql.executor.Result;
 import com.arcadedb.query.sql.executor.ResultSet;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 class MaterializedViewIncrementalTest extends TestHelper {
@@ -276,4 +279,175 @@ class MaterializedViewIncrementalTest extends TestHelper {
       assertThat(rs.stream().count()).isEqualTo(3);
     }
   }
+
+  @Test
+  void groupByCountAndSumAppliedAsDelta() {
+    database.transaction(() -> database.getSchema().createDocumentType("Order"));
+
+    database.transaction(() -> {
+      database.newDocument("Order").set("product", "A").set("amount", 10).save();
+      database.newDocument("Order").set("product", "A").set("amount", 20).save();
+      database.newDocument("Order").set("product", "B").set("amount", 30).save();
+    });
+
+    database.transaction(() ->
+      database.getSchema().buildMaterializedView()
+          .withName("OrderTotals")
+          .withQuery("SELECT product, count(*) AS orders, sum(amount) AS total FROM Order GROUP BY product")
+          .withRefreshMode(MaterializedViewRefreshMode.INCREMENTAL)
+          .create());
+
+    final MaterializedViewImpl view = (MaterializedViewImpl) database.getSchema().getMaterializedView("OrderTotals");
+    assertThat(view.getIncrementalPlan().getKind()).isEqualTo(MaterializedViewIncrementalPlan.Kind.GROUP);
+    assertGroup("OrderTotals", "A", 2, 30);
+    assertGroup("OrderTotals", "B", 1, 30);
+
+    // Tamper with group B directly: a delta touching only group A must leave it alone, a full refresh would not
+    database.transaction(() -> {
+      try (final ResultSet rs = database.query("sql", "SELECT FROM OrderTotals WHERE product = 'B'")) {
+        rs.next().toElement().modify().set("total", 999).save();
+      }
+    });
+
+    database.transaction(() -> database.newDocument("Order").set("product", "A").set("amount", 5).save());
+    assertGroup("OrderTotals", "A", 3, 35);
+    assertGroup("OrderTotals", "B", 1, 999);
+
+    // Move a record between groups and create a new one in the same transaction
+    database.transaction(() -> {
+      database.command("sql", "UPDATE Order SET product = 'C', amount = 7 WHERE amount = 20");
+      database.newDocument("Order").set("product", "C").set("amount", 1).save();
+    });
+    assertGroup("OrderTotals", "A", 2, 15);
+    assertGroup("OrderTotals", "C", 2, 8);
+
+    // Emptying a group removes its row
+    database.transaction(() -> database.command("sql", "DELETE FROM Order WHERE product = 'C'"));
+    try (final ResultSet rs = database.query("sql", "SELECT FROM OrderTotals WHERE product = 'C'")) {
+      assertThat(rs.hasNext()).isFalse();
+    }
+    assertGroup("OrderTotals", "A", 2, 15);
+    assertThat(view.getStatus()).isEqualTo("VALID");
+
+    // A manual refresh re-runs the query and agrees with the deltas, except for the tampered group
+    view.refresh();
+    assertGroup("OrderTotals", "A", 2, 15);
+    assertGroup("OrderTotals", "B", 1, 30);
+  }
+
+  @Test
+  void filteredProjectionAppliedPerSourceRecord() {
+    database.transaction(() -> database.getSchema().createDocumentType("Member"));
+
+    database.transaction(() -> {
+      database.newDocument("Member").set("name", "Alice").set("active", true).save();
+      database.newDocument("Member").set("name", "Bob").set("active", true).save();
+      database.newDocument("Member").set("name", "Carol").set("active", false).save();
+    });
+
+    database.transaction(() ->
+      database.getSchema().buildMaterializedView()
+          .withName("ActiveMembers")
+          .withQuery("SELECT name FROM Member WHERE active = true")
+          .withRefreshMode(MaterializedViewRefreshMode.INCREMENTAL)
+          .create());
+
+    final MaterializedViewImpl view = (MaterializedViewImpl) database.getSchema().getMaterializedView("ActiveMembers");
+    assertThat(view.getIncrementalPlan().getKind()).isEqualTo(MaterializedViewIncrementalPlan.Kind.SOURCE);
+    assertThat(view.getBackingType().getPolymorphicIndexByProperties(MaterializedViewIncrementalPlan.SOURCE_RID_PROPERTY))
+        .isNotNull();
+    assertThat(names("ActiveMembers")).containsExactlyInAnyOrder("Alice", "Bob");
+
+    // Tamper with Bob's row: changes to other members must not touch it
+    database.transaction(() -> database.command("sql", "UPDATE ActiveMembers SET name = 'Robert' WHERE name = 'Bob'"));
+
+    database.transaction(() -> {
+      database.command("sql", "UPDATE Member SET active = true WHERE name = 'Carol'");
+      database.command("sql", "UPDATE Member SET name = 'Alicia' WHERE name = 'Alice'");
+    });
+    assertThat(names("ActiveMembers")).containsExactlyInAnyOrder("Alicia", "Robert", "Carol");
+
+    database.transaction(() -> {
+      database.command("sql", "UPDATE Member SET active = false WHERE name = 'Alicia'");
+      database.command("sql", "DELETE FROM Member WHERE name = 'Carol'");
+      database.newDocument("Member").set("name", "Dave").set("active", true).save();
+    });
+    assertThat(names("ActiveMembers")).containsExactlyInAnyOrder("Robert", "Dave");
+    assertThat(view.getStatus()).isEqualTo("VALID");
+  }
+
+  @Test
+  void unsupportedShapeFallsBackToFullRefresh() {
+    database.transaction(() -> database.getSchema().createDocumentType("Reading"));
+
+    database.transaction(() -> {
+      database.newDocument("Reading").set("sensor", "s1").set("value", 10).save();
+      database.newDocument("Reading").set("sensor", "s1").set("value", 20).save();
+    });
+
+    database.transaction(() ->
+      database.getSchema().buildMaterializedView()
+          .withName("ReadingStats")
+          .withQuery("SELECT sensor, max(value) AS peak FROM Reading GROUP BY sensor")
+          .withRefreshMode(MaterializedViewRefreshMode.INCREMENTAL)
+          .create());
+
+    final MaterializedViewImpl view = (MaterializedViewImpl) database.getSchema().getMaterializedView("ReadingStats");
+    assertThat(view.getIncrementalPlan()).isNull();
+
+    database.transaction(() -> database.command("sql", "DELETE FROM Reading WHERE value = 20"));
+    try (final ResultSet rs = database.query("sql", "SELECT FROM ReadingStats")) {
+      final Result row = rs.next();
+      assertThat(row.<Integer>getProperty("peak")).isEqualTo(10);
+      assertThat(row.getPropertyNames()).doesNotContain(MaterializedViewIncrementalPlan.GROUP_COUNT_PROPERTY);
+    }
+  }
+
+  @Test
+  void largeTransactionFallsBackToFullRefresh() {
+    database.getConfiguration().setValue(GlobalConfiguration.MATERIALIZED_VIEW_INCREMENTAL_MAX_CHANGES, 2);
+    try {
+      database.transaction(() -> database.getSchema().createDocumentType("Event"));
+
+      database.transaction(() ->
+        database.getSchema().buildMaterializedView()
+            .withName("EventCounts")
+            .withQuery("SELECT kind, count(*) AS events FROM Event GROUP BY kind")
+            .withRefreshMode(MaterializedViewRefreshMode.INCREMENTAL)
+            .create());
+
+      database.transaction(() -> {
+        for (int i = 0; i < 5; i++)
+          database.newDocument("Event").set("kind", i % 2 == 0 ? "even" : "odd").save();
+      });
+
+      try (final ResultSet rs = database.query("sql", "SELECT FROM EventCounts WHERE kind = 'even'")) {
+        assertThat(rs.next().<Long>getProperty("events")).isEqualTo(3L);
+      }
+
+      // Back under the limit, the next transaction is applied as a delta on top of the rebuilt view
+      database.transaction(() -> database.newDocument("Event").set("kind", "odd").save());
+      try (final ResultSet rs = database.query("sql", "SELECT FROM EventCounts WHERE kind = 'odd'")) {
+        assertThat(rs.next().<Long>getProperty("events")).isEqualTo(3L);
+      }
+    } finally {
+      database.getConfiguration().setValue(GlobalConfiguration.MATERIALIZED_VIEW_INCREMENTAL_MAX_CHANGES,
+          GlobalConfiguration.MATERIALIZED_VIEW_INCREMENTAL_MAX_CHANGES.getDefValue());
+    }
+  }
+
+  private void assertGroup(final String view, final String product, final long count, final int total) {
+    try (final ResultSet rs = database.query("sql", "SELECT FROM " + view + " WHERE product = ?", product)) {
+      final Result row = rs.next();
+      assertThat(((Number) row.getProperty("orders")).longValue()).isEqualTo(count);
+      assertThat(((Number) row.getProperty("total")).intValue()).isEqualTo(total);
+      assertThat(rs.hasNext()).isFalse();
+    }
+  }
+
+  private List<String> names(final String view) {
+    try (final ResultSet rs = database.query("sql", "SELECT name FROM " + view)) {
+      return rs.stream().map(r -> r.<String>getProperty("name")).toList();
+    }
+  }
 }
@@ -77,6 +77,7 @@ import com.arcadedb.index.IndexCursor;
 import com.arcadedb.log.LogManager;
 import com.arcadedb.network.binary.ServerIsNotTheLeaderException;
 import com.arcadedb.query.QueryEngine;
+import com.arcadedb.query.QueryResultCache;
 import com.arcadedb.query.opencypher.optimizer.statistics.GraphStatisticsCache;
 import com.arcadedb.query.opencypher.query.CypherPlanCache;
 import com.arcadedb.query.opencypher.query.CypherStatementCache;
@@ -1107,6 +1108,11 @@ public class RaftReplicatedDatabase implements DatabaseInternal, HAReplicatedDat
     return proxied.getCypherPlanCache();
   }
 
+  @Override
+  public QueryResultCache getQueryResultCache() {
+    return proxied.getQueryResultCache();
+  }
+
   @Override
   public GraphStatisticsCache getGraphStatisticsCache() {
     return proxied.getGraphStatisticsCache();
@@ -22,7 +22,9 @@ import com.arcadedb.database.Database;
 import com.arcadedb.database.DatabaseFactory;
 import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.integration.backup.format.AbstractBackupFormat;
+import com.arcadedb.integration.backup.format.BackupManifest;
 import com.arcadedb.integration.backup.format.FullBackupFormat;
+import com.arcadedb.integration.backup.format.IncrementalBackupFormat;
 import com.arcadedb.integration.importer.ConsoleLogger;
 
 import java.util.Locale;
@@ -106,6 +108,24 @@ public class Backup {
     return this;
   }
 
+  /**
+   * {@code full} (the default), {@code incremental} (only the pages changed since the previous backup) or
+   * {@code differential} (only the pages changed since the last full backup).
+   */
+  public Backup setFormat(final String format) {
+    settings.format = format.toLowerCase(Locale.ENGLISH);
+    return this;
+  }
+
+  /**
+   * Archive an incremental or differential backup is taken against, in the same directory. When not set, the newest
+   * suitable archive of the database in the backup directory is used.
+   */
+  public Backup setBase(final String base) {
+    settings.base = base;
+    return this;
+  }
+
   public Backup setVerboseLevel(final int verboseLevel) {
     settings.verboseLevel = verboseLevel;
     return this;
@@ -165,6 +185,10 @@ public class Backup {
     case "full":
       return new FullBackupFormat(database, settings, logger);
 
+    case BackupManifest.TYPE_INCREMENTAL:
+    case BackupManifest.TYPE_DIFFERENTIAL:
+      return new IncrementalBackupFormat(database, settings, logger, settings.format.toLowerCase(Locale.ENGLISH));
+
     default:
       throw new BackupException("Format '" + settings.format + "' not supported");
     }
@@ -48,6 +48,11 @@ public class BackupSettings {
   public       String              encryptionKey;
   public final Map<String, String> options             = new HashMap<>();
   public       String              databaseName;
+  /**
+   * Base archive of an incremental or differential backup. {@code null} picks the newest suitable archive of the
+   * database in the backup directory.
+   */
+  public       String              base;
   /**
    * Deflate level, 0 (store) to 9 (smallest). {@code null} defers to {@link com.arcadedb.GlobalConfiguration#BACKUP_COMPRESSION_LEVEL}.
    */
@@ -87,9 +92,10 @@ public class BackupSettings {
 
     if (file == null)
       // ASSIGN DEFAULT FILENAME
-      if ("full".equals(format)) {
+      if ("full".equals(format) || "incremental".equals(format) || "differential".equals(format)) {
         final DateFormat dateFormat = new SimpleDateFormat("yyyyMMdd-HHmmssSSS");
-        file = "%s-backup-%s.zip".formatted(databaseName, dateFormat.format(System.currentTimeMillis()));
+        file = "%s-backup-%s%s.zip".formatted(databaseName, dateFormat.format(System.currentTimeMillis()),
+            "full".equals(format) ? "" : "-" + format);
       }
   }
 
@@ -97,6 +103,7 @@ public class BackupSettings {
     switch (name) {
     case "encryptionAlgorithm" -> encryptionAlgorithm = value;
     case "encryptionKey" -> encryptionKey = value;
+    case "base" -> base = value;
     case "compressionLevel" -> compressionLevel = parseIntSetting(name, value, 0, 9);
     case "compressionThreads" -> compressionThreads = parseIntSetting(name, value, -1, MAX_COMPRESSION_THREADS);
     case "maxMBPerSecond" -> maxMBPerSecond = parseIntSetting(name, value, 0, Integer.MAX_VALUE);
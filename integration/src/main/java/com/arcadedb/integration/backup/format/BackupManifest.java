@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.integration.backup.format;
+
+import com.arcadedb.integration.backup.BackupException;
+import com.arcadedb.serializer.json.JSONObject;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.spec.KeySpec;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Identity of one backup archive and its place in a backup chain, stored as the FIRST entry of the archive so that a
+ * restore can walk a chain back to its full backup by reading one small entry per archive, even through the cipher
+ * stream of an encrypted one.
+ * <p>
+ * A chain is a full backup followed by any number of archives that only carry the pages changed since their base:
+ * <ul>
+ * <li>{@code incremental}: the base is the previous backup of any type, so each archive holds one interval of
+ * changes and a restore applies every archive of the chain in order;</li>
+ * <li>{@code differential}: the base is the last full backup, so each archive holds everything changed since then and
+ * a restore applies only the full backup and that one archive.</li>
+ * </ul>
+ * What the pages are compared against is the {@link BackupPageMap} of the base, stored as the LAST entry of every
+ * archive, full ones included.
+ * <p>
+ * Archives written before chains existed have no manifest. They restore exactly as before, but cannot be the base of
+ * an incremental or differential backup.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class BackupManifest {
+  public static final String MANIFEST_ENTRY     = "backup-manifest.json";
+  public static final String PAGE_MAP_ENTRY     = "backup-pages.bin";
+  /** Prefix of the entries holding only the changed pages of a file, followed by the file name. */
+  public static final String PAGES_ENTRY_PREFIX = "pages/";
+
+  public static final String TYPE_FULL         = "full";
+  public static final String TYPE_INCREMENTAL  = "incremental";
+  public static final String TYPE_DIFFERENTIAL = "differential";
+
+  private final String type;
+  private final String backupId;
+  private final String databaseName;
+  private final long   createdOn;
+  private final String baseBackupId;
+  private final String baseFile;
+
+  public BackupManifest(final String type, final String databaseName, final String baseBackupId, final String baseFile) {
+    this(type, UUID.randomUUID().toString(), databaseName, System.currentTimeMillis(), baseBackupId, baseFile);
+  }
+
+  private BackupManifest(final String type, final String backupId, final String databaseName, final long createdOn,
+      final String baseBackupId, final String baseFile) {
+    this.type = type;
+    this.backupId = backupId;
+    this.databaseName = databaseName;
+    this.createdOn = createdOn;
+    this.baseBackupId = baseBackupId;
+    this.baseFile = baseFile;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public boolean isFull() {
+    return TYPE_FULL.equals(type);
+  }
+
+  public String getBackupId() {
+    return backupId;
+  }
+
+  public String getDatabaseName() {
+    return databaseName;
+  }
+
+  public long getCreatedOn() {
+    return createdOn;
+  }
+
+  /** The {@link #getBackupId()} of the base archive, {@code null} for a full backup. */
+  public String getBaseBackupId() {
+    return baseBackupId;
+  }
+
+  /** File name of the base archive, expected in the same directory as this one. {@code null} for a full backup. */
+  public String getBaseFile() {
+    return baseFile;
+  }
+
+  /** Whether an archive entry is backup metadata rather than a database file. */
+  public static boolean isMetadataEntry(final String entryName) {
+    return MANIFEST_ENTRY.equals(entryName) || PAGE_MAP_ENTRY.equals(entryName);
+  }
+
+  public JSONObject toJSON() {
+    final JSONObject json = new JSONObject();
+    json.put("type", type);
+    json.put("backupId", backupId);
+    json.put("databaseName", databaseName);
+    json.put("createdOn", createdOn);
+    if (baseBackupId != null) {
+      json.put("baseBackupId", baseBackupId);
+      json.put("baseFile", baseFile);
+    }
+    return json;
+  }
+
+  public static BackupManifest fromJSON(final JSONObject json) {
+    return new BackupManifest(json.getString("type"), json.getString("backupId"), json.getString("databaseName", null),
+        json.getLong("createdOn", 0), json.getString("baseBackupId", null), json.getString("baseFile", null));
+  }
+
+  /**
+   * Reads the manifest of an archive, or returns {@code null} if the archive has none because it predates backup
+   * chains. Only the first entry is read.
+   */
+  public static BackupManifest read(final File archive, final String encryptionAlgorithm, final String encryptionKey)
+      throws IOException {
+    try (final ZipInputStream zip = openArchive(archive, encryptionAlgorithm, encryptionKey)) {
+      final ZipEntry first = zip.getNextEntry();
+      if (first == null || !MANIFEST_ENTRY.equals(first.getName()))
+        return null;
+      return fromJSON(new JSONObject(new String(zip.readAllBytes(), StandardCharsets.UTF_8)));
+    }
+  }
+
+  /**
+   * Reads the page map of an archive, or returns {@code null} if it has none. A plain archive is read by random
+   * access; an encrypted one can only be decrypted front to back, so it is walked to its last entry.
+   */
+  public static BackupPageMap readPageMap(final File archive, final String encryptionAlgorithm,
+      final String encryptionKey) throws IOException {
+    if (encryptionKey == null) {
+      try (final ZipFile zip = new ZipFile(archive, StandardCharsets.UTF_8)) {
+        final ZipEntry entry = zip.getEntry(PAGE_MAP_ENTRY);
+        if (entry == null)
+          return null;
+        try (final InputStream in = zip.getInputStream(entry)) {
+          return BackupPageMap.read(in);
+        }
+      }
+    }
+
+    try (final ZipInputStream zip = openArchive(archive, encryptionAlgorithm, encryptionKey)) {
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry())
+        if (PAGE_MAP_ENTRY.equals(entry.getName()))
+          return BackupPageMap.read(zip);
+      return null;
+    }
+  }
+
+  /** Opens an archive for a front-to-back walk, decrypting it when a key is given. */
+  public static ZipInputStream openArchive(final File archive, final String encryptionAlgorithm,
+      final String encryptionKey) throws IOException {
+    final InputStream in = new BufferedInputStream(new FileInputStream(archive), 256 * 1024);
+    try {
+      return new ZipInputStream(encryptionKey != null ? decrypt(in, encryptionAlgorithm, encryptionKey) : in,
+          StandardCharsets.UTF_8);
+    } catch (final IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Wraps the stream of an encrypted archive: a 16-byte PBKDF2 salt, a 16-byte IV, then the archive under
+   * {@code <algorithm>/CTR/NoPadding}, the layout {@code FullBackupFormat} writes.
+   */
+  public static InputStream decrypt(final InputStream in, final String encryptionAlgorithm, final String encryptionKey)
+      throws IOException {
+    final byte[] salt = new byte[16];
+    if (in.readNBytes(salt, 0, salt.length) != salt.length)
+      throw new IOException("Unable to read salt from encrypted file");
+
+    final byte[] iv = new byte[16];
+    if (in.readNBytes(iv, 0, iv.length) != iv.length)
+      throw new IOException("Unable to read IV from encrypted file");
+
+    try {
+      final SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+      final KeySpec spec = new PBEKeySpec(encryptionKey.toCharArray(), salt, 65536, 256);
+      final SecretKey secretKey = new SecretKeySpec(factory.generateSecret(spec).getEncoded(), encryptionAlgorithm);
+
+      final Cipher cipher = Cipher.getInstance(encryptionAlgorithm + "/CTR/NoPadding");
+      cipher.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(iv));
+      return new CipherInputStream(in, cipher);
+    } catch (final Exception e) {
+      throw new BackupException("Cannot decrypt backup archive", e);
+    }
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.integration.backup.format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Per-page watermark of every file in a backup archive: the page version (the int every page carries at offset 0,
+ * bumped on each modification) and a CRC32 of the page content. An incremental or differential backup reads the page
+ * map of its base and archives only the pages whose watermark moved.
+ * <p>
+ * The version alone is not enough: a file dropped and recreated under the same name restarts its pages from version
+ * 0, so a page can come back with a version the base already holds and different content. The CRC catches that; the
+ * version keeps the comparison honest for the pages whose content happens to collide.
+ * <p>
+ * Files that are not paginated (the configuration files) are listed with a page size of 0 and are always archived
+ * whole.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class BackupPageMap {
+  private static final int MAGIC          = 0x41425047; // "ABPG"
+  private static final int FORMAT_VERSION = 1;
+
+  private final Map<String, FileEntry> files = new LinkedHashMap<>();
+
+  public static final class FileEntry {
+    public final String name;
+    public final int    pageSize;
+    private      int    pageCount;
+    private      int[]  versions;
+    private      int[]  crcs;
+
+    private FileEntry(final String name, final int pageSize, final int pageCount) {
+      this.name = name;
+      this.pageSize = pageSize;
+      this.pageCount = pageCount;
+      this.versions = new int[pageCount];
+      this.crcs = new int[pageCount];
+    }
+
+    public boolean isPaginated() {
+      return pageSize > 0;
+    }
+
+    public int getPageCount() {
+      return pageCount;
+    }
+
+    /** Whether the page differs from this entry, or is beyond its end. */
+    public boolean isChanged(final int pageNumber, final int version, final int crc) {
+      return pageNumber >= pageCount || versions[pageNumber] != version || crcs[pageNumber] != crc;
+    }
+
+    private void set(final int pageNumber, final int version, final int crc) {
+      if (pageNumber >= versions.length) {
+        final int newLength = Math.max(pageNumber + 1, versions.length * 2);
+        versions = Arrays.copyOf(versions, newLength);
+        crcs = Arrays.copyOf(crcs, newLength);
+      }
+      versions[pageNumber] = version;
+      crcs[pageNumber] = crc;
+      pageCount = Math.max(pageCount, pageNumber + 1);
+    }
+  }
+
+  public FileEntry get(final String fileName) {
+    return files.get(fileName);
+  }
+
+  public Collection<FileEntry> getFiles() {
+    return files.values();
+  }
+
+  /** Records a file archived whole, without page information. */
+  public synchronized void addWholeFile(final String fileName) {
+    files.put(fileName, new FileEntry(fileName, 0, 0));
+  }
+
+  /**
+   * Wraps the logical page stream of a file (exactly {@code pageCount * pageSize} bytes) so that each page is recorded
+   * as it is read.
+   * <p>
+   * With no {@code base} the stream passes every byte through unchanged, which is what a full backup archives. With a
+   * base it emits only the pages that changed since the base, in the format {@link #readPages} parses: an int page
+   * size, then an int page number followed by the page bytes for each changed page. Every page is still read (there is
+   * no other way to learn its version), but only the changed ones are compressed and written.
+   */
+  public InputStream record(final String fileName, final int pageSize, final InputStream source, final FileEntry base) {
+    final FileEntry entry = new FileEntry(fileName, pageSize, 0);
+    synchronized (this) {
+      files.put(fileName, entry);
+    }
+    return new PageRecordingInputStream(entry, source, base);
+  }
+
+  public byte[] toByteArray() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(files.size());
+    for (final FileEntry entry : files.values()) {
+      out.writeUTF(entry.name);
+      out.writeInt(entry.pageSize);
+      out.writeInt(entry.pageCount);
+      for (int i = 0; i < entry.pageCount; i++) {
+        out.writeInt(entry.versions[i]);
+        out.writeInt(entry.crcs[i]);
+      }
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  public static BackupPageMap read(final InputStream input) throws IOException {
+    final DataInputStream in = new DataInputStream(input);
+    if (in.readInt() != MAGIC)
+      throw new IOException("Invalid backup page map");
+    final int formatVersion = in.readInt();
+    if (formatVersion != FORMAT_VERSION)
+      throw new IOException("Unsupported backup page map version " + formatVersion);
+
+    final BackupPageMap map = new BackupPageMap();
+    final int fileCount = in.readInt();
+    for (int f = 0; f < fileCount; f++) {
+      final String name = in.readUTF();
+      final int pageSize = in.readInt();
+      final int pageCount = in.readInt();
+      final FileEntry entry = new FileEntry(name, pageSize, pageCount);
+      for (int i = 0; i < pageCount; i++) {
+        entry.versions[i] = in.readInt();
+        entry.crcs[i] = in.readInt();
+      }
+      map.files.put(name, entry);
+    }
+    return map;
+  }
+
+  /** Callback of {@link #readPages}. */
+  public interface PageConsumer {
+    void page(int pageSize, int pageNumber, byte[] content) throws IOException;
+  }
+
+  /** Parses a changed-pages entry written by {@link #record} with a base, handing each page to the consumer. */
+  public static void readPages(final InputStream input, final PageConsumer consumer) throws IOException {
+    final DataInputStream in = new DataInputStream(input);
+    final int pageSize = in.readInt();
+    final byte[] page = new byte[pageSize];
+    while (true) {
+      final int pageNumber;
+      try {
+        pageNumber = in.readInt();
+      } catch (final EOFException e) {
+        return;
+      }
+      in.readFully(page);
+      consumer.page(pageSize, pageNumber, page);
+    }
+  }
+
+  private static final class PageRecordingInputStream extends InputStream {
+    private final FileEntry   entry;
+    private final InputStream source;
+    private final FileEntry   base;
+    private final byte[]      page;
+    private final CRC32       crc = new CRC32();
+    // BYTES READY TO BE HANDED TO THE READER: ONE PAGE, PRECEDED BY ITS NUMBER (AND THE HEADER FOR THE FIRST) IN DELTA MODE
+    private       byte[]      pending;
+    private       int         pendingPos;
+    private       int         pendingLength;
+    private       int         pageNumber;
+    private       boolean     eof;
+
+    private PageRecordingInputStream(final FileEntry entry, final InputStream source, final FileEntry base) {
+      this.entry = entry;
+      this.source = source;
+      this.base = base;
+      this.page = new byte[entry.pageSize];
+      this.pending = new byte[entry.pageSize + 8];
+      if (base != null) {
+        writeInt(pending, 0, entry.pageSize);
+        pendingLength = 4;
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      final byte[] one = new byte[1];
+      return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (len == 0)
+        return 0;
+      while (pendingPos >= pendingLength) {
+        if (eof || !nextPage())
+          return -1;
+      }
+      final int n = Math.min(len, pendingLength - pendingPos);
+      System.arraycopy(pending, pendingPos, b, off, n);
+      pendingPos += n;
+      return n;
+    }
+
+    private boolean nextPage() throws IOException {
+      pendingPos = 0;
+      pendingLength = 0;
+      while (true) {
+        final int read = source.readNBytes(page, 0, page.length);
+        if (read == 0) {
+          eof = true;
+          return false;
+        }
+        if (read < page.length)
+          throw new IOException("Truncated page " + pageNumber + " of file '" + entry.name + "'");
+
+        crc.reset();
+        crc.update(page, 0, page.length);
+        final int version = readInt(page, 0);
+        final int pageCrc = (int) crc.getValue();
+        final int current = pageNumber++;
+        entry.set(current, version, pageCrc);
+
+        if (base == null) {
+          System.arraycopy(page, 0, pending, 0, page.length);
+          pendingLength = page.length;
+          return true;
+        }
+        if (base.isChanged(current, version, pageCrc)) {
+          writeInt(pending, 0, current);
+          System.arraycopy(page, 0, pending, 4, page.length);
+          pendingLength = page.length + 4;
+          return true;
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      source.close();
+    }
+
+    private static int readInt(final byte[] b, final int off) {
+      return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+
+    private static void writeInt(final byte[] b, final int off, final int value) {
+      b[off] = (byte) (value >>> 24);
+      b[off + 1] = (byte) (value >>> 16);
+      b[off + 2] = (byte) (value >>> 8);
+      b[off + 3] = (byte) value;
+    }
+  }
+}
@@ -39,11 +39,13 @@ import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.security.spec.KeySpec;
 import java.util.ArrayList;
@@ -52,6 +54,11 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class FullBackupFormat extends AbstractBackupFormat {
+  /** Identity of the archive being written, set by {@link #prepareManifest(File)}. */
+  protected BackupManifest manifest;
+  /** Page map of the base archive, or {@code null} when every file is archived whole. */
+  protected BackupPageMap  basePageMap;
+
   private interface BackupCallback {
     void backup(BackupArchiveWriter archive) throws Exception;
   }
@@ -86,12 +93,14 @@ public class FullBackupFormat extends AbstractBackupFormat {
     if (database.isTransactionActive() && database.getTransaction().hasChanges())
       throw new BackupException("Transaction in progress found");
 
+    prepareManifest(backupFile);
+
     final int compressionLevel = resolveSetting(settings.compressionLevel, GlobalConfiguration.BACKUP_COMPRESSION_LEVEL);
     final int compressionThreads = resolveThreads();
     final int maxMBPerSecond = resolveSetting(settings.maxMBPerSecond, GlobalConfiguration.BACKUP_MAX_MB_PER_SECOND);
 
-    logger.logLine(0, "Executing full backup of database to '%s' (compression level %d, %s%s)...", backupFile,
-        compressionLevel, compressionThreads > 0 ? compressionThreads + " threads" : "single threaded",
+    logger.logLine(0, "Executing %s backup of database to '%s' (compression level %d, %s%s)...", manifest.getType(),
+        backupFile, compressionLevel, compressionThreads > 0 ? compressionThreads + " threads" : "single threaded",
         maxMBPerSecond > 0 ? ", throttled at " + maxMBPerSecond + "MB/s" : "");
 
     final long beginTime = System.currentTimeMillis();
@@ -153,7 +162,8 @@ public class FullBackupFormat extends AbstractBackupFormat {
     final long origSize = databaseOrigSize.get();
     final long databaseCompressedSize = backupFile.length();
 
-    logger.logLine(0, "Full backup completed in %d seconds %s -> %s (%,d%% compressed)", elapsedInSecs,
+    logger.logLine(0, "%s backup completed in %d seconds %s -> %s (%,d%% compressed)",
+        Character.toUpperCase(manifest.getType().charAt(0)) + manifest.getType().substring(1), elapsedInSecs,
         FileUtils.getSizeAsString(origSize), FileUtils.getSizeAsString(databaseCompressedSize),
         origSize > 0 ? (origSize - databaseCompressedSize) * 100 / origSize : 0);
   }
@@ -170,11 +180,21 @@ public class FullBackupFormat extends AbstractBackupFormat {
   private long backupFromSnapshot(final BackupArchiveWriter archive) throws Exception {
     long origSize = 0L;
     try (final PageSnapshot snapshot = database.getPageManager().openSnapshot(database)) {
-      origSize += compressFile(archive, ((LocalDatabase) database.getEmbedded()).getConfigurationFile());
-      origSize += compressFile(archive, ((LocalSchema) database.getSchema()).getConfigurationFile());
-
-      for (final PageSnapshot.SnapshotFile file : snapshot.getFiles())
-        origSize += compressEntry(archive, file.fileName(), file.lastModified(), snapshot.newInputStream(file.fileId()));
+      final BackupPageMap pageMap = new BackupPageMap();
+      writeManifest(archive);
+      origSize += compressConfigurationFiles(archive, pageMap);
+
+      for (final PageSnapshot.SnapshotFile file : snapshot.getFiles()) {
+        final BackupPageMap.FileEntry base = basePageMap != null ? basePageMap.get(file.fileName()) : null;
+        if (base != null && base.pageSize == file.pageSize())
+          // ONLY THE PAGES THAT MOVED SINCE THE BASE. A FILE THE BASE DOES NOT KNOW, OR KNEW WITH ANOTHER PAGE SIZE, IS
+          // NEW AS FAR AS THE CHAIN IS CONCERNED AND GOES WHOLE
+          origSize += compressEntry(archive, BackupManifest.PAGES_ENTRY_PREFIX + file.fileName(), file.lastModified(),
+              pageMap.record(file.fileName(), file.pageSize(), snapshot.newInputStream(file.fileId()), base));
+        else
+          origSize += compressEntry(archive, file.fileName(), file.lastModified(),
+              pageMap.record(file.fileName(), file.pageSize(), snapshot.newInputStream(file.fileId()), null));
+      }
 
       // ANY PAGE READ ABOVE COULD HAVE BEEN THE ONE THAT BREACHED THE SHADOW CAP, AND A STREAM THAT ALREADY FAILED
       // WOULD HAVE THROWN - BUT RE-CHECKING HERE ALSO CATCHES A WINDOW INVALIDATED AFTER ITS LAST BYTE WAS READ,
@@ -184,25 +204,71 @@ public class FullBackupFormat extends AbstractBackupFormat {
       logger.logLine(2, "- Snapshot at txId=%d shadowed %d page(s), %s (%s spilled to disk)", snapshot.getLastTxId(),
           snapshot.getShadowedPages(), FileUtils.getSizeAsString(snapshot.getShadowSizeInBytes()),
           FileUtils.getSizeAsString(snapshot.getShadowSpilledBytes()));
+
+      writePageMap(archive, pageMap);
     }
     return origSize;
   }
 
-  /** The historical path: the data files are frozen by suspending page flushing and copied straight off the disk. */
+  /**
+   * The historical path: the data files are frozen by suspending page flushing and copied straight off the disk. The
+   * on-disk image of a page file is not always its logical page sequence (compressed page files relocate their
+   * slots), so this path archives every file whole and records no page information - an incremental backup that falls
+   * back here is as large as a full one, and the next one in the chain compares against nothing.
+   */
   private long backupFromFrozenFiles(final BackupArchiveWriter archive) throws IOException {
-    long origSize = 0L;
-    origSize += compressFile(archive, ((LocalDatabase) database.getEmbedded()).getConfigurationFile());
-    origSize += compressFile(archive, ((LocalSchema) database.getSchema()).getConfigurationFile());
+    final BackupPageMap pageMap = new BackupPageMap();
+    writeManifest(archive);
+
+    long origSize = compressConfigurationFiles(archive, pageMap);
 
     final Collection<ComponentFile> files = database.getFileManager().getFiles();
 
     for (final ComponentFile file : new ArrayList<>(files))
-      if (file != null)
+      if (file != null) {
         origSize += compressFile(archive, file.getOSFile());
+        pageMap.addWholeFile(file.getOSFile().getName());
+      }
 
+    writePageMap(archive, pageMap);
     return origSize;
   }
 
+  /**
+   * Decides what kind of archive this is. A full backup has no base; {@link IncrementalBackupFormat} looks one up and
+   * loads its page map into {@link #basePageMap}.
+   */
+  protected void prepareManifest(final File backupFile) throws IOException {
+    manifest = new BackupManifest(BackupManifest.TYPE_FULL, database.getName(), null, null);
+  }
+
+  private long compressConfigurationFiles(final BackupArchiveWriter archive, final BackupPageMap pageMap)
+      throws IOException {
+    final File databaseConfiguration = ((LocalDatabase) database.getEmbedded()).getConfigurationFile();
+    final File schemaConfiguration = ((LocalSchema) database.getSchema()).getConfigurationFile();
+
+    long origSize = compressFile(archive, databaseConfiguration);
+    if (databaseConfiguration.exists())
+      pageMap.addWholeFile(databaseConfiguration.getName());
+
+    origSize += compressFile(archive, schemaConfiguration);
+    if (schemaConfiguration.exists())
+      pageMap.addWholeFile(schemaConfiguration.getName());
+    return origSize;
+  }
+
+  /** The manifest goes FIRST, so a restore walking a chain reads one small entry per archive. */
+  private void writeManifest(final BackupArchiveWriter archive) throws IOException {
+    archive.addEntry(BackupManifest.MANIFEST_ENTRY, manifest.getCreatedOn(),
+        new ByteArrayInputStream(manifest.toJSON().toString().getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /** The page map goes LAST: it is only complete once every page file has been streamed through it. */
+  private void writePageMap(final BackupArchiveWriter archive, final BackupPageMap pageMap) throws IOException {
+    archive.addEntry(BackupManifest.PAGE_MAP_ENTRY, System.currentTimeMillis(),
+        new ByteArrayInputStream(pageMap.toByteArray()));
+  }
+
   private long compressEntry(final BackupArchiveWriter archive, final String name, final long lastModified,
       final InputStream input) throws IOException {
     logger.log(2, "- File '%s'...", name);
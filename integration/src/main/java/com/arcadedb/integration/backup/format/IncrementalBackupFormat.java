@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.integration.backup.format;
+
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.integration.backup.BackupException;
+import com.arcadedb.integration.backup.BackupSettings;
+import com.arcadedb.integration.importer.ConsoleLogger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Incremental and differential backups: the same archive as {@link FullBackupFormat}, except that a page file the base
+ * archive already holds is stored as a {@code pages/<file>} entry carrying only the pages whose version or CRC moved
+ * since the base (see {@link BackupPageMap}).
+ * <p>
+ * The base is the archive named by the {@code base} setting or, when none is given, the newest archive of the same
+ * database in the target directory: any type for an incremental backup, a full one for a differential backup. With no
+ * usable base the backup is taken as a full one, so a schedule that starts with an incremental still produces a
+ * restorable chain.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class IncrementalBackupFormat extends FullBackupFormat {
+  private final String type;
+
+  public IncrementalBackupFormat(final DatabaseInternal database, final BackupSettings settings,
+      final ConsoleLogger logger, final String type) {
+    super(database, settings, logger);
+    if (!BackupManifest.TYPE_INCREMENTAL.equals(type) && !BackupManifest.TYPE_DIFFERENTIAL.equals(type))
+      throw new IllegalArgumentException("Unsupported backup type '" + type + "'");
+    this.type = type;
+  }
+
+  @Override
+  protected void prepareManifest(final File backupFile) throws IOException {
+    final File baseFile = resolveBaseFile(backupFile);
+    if (baseFile == null) {
+      logger.logLine(0, "No base backup found for the %s backup: executing a full backup", type);
+      super.prepareManifest(backupFile);
+      return;
+    }
+
+    final BackupManifest base = BackupManifest.read(baseFile, settings.encryptionAlgorithm, settings.encryptionKey);
+    if (base == null)
+      throw new BackupException(
+          "Backup '%s' was written by a version without page maps and cannot be the base of a %s backup".formatted(
+              baseFile, type));
+    if (BackupManifest.TYPE_DIFFERENTIAL.equals(type) && !base.isFull())
+      throw new BackupException("The base of a differential backup must be a full backup, '%s' is %s".formatted(baseFile,
+          base.getType()));
+    if (base.getDatabaseName() != null && !base.getDatabaseName().equals(database.getName()))
+      throw new BackupException(
+          "Backup '%s' belongs to database '%s', not '%s'".formatted(baseFile, base.getDatabaseName(), database.getName()));
+
+    basePageMap = BackupManifest.readPageMap(baseFile, settings.encryptionAlgorithm, settings.encryptionKey);
+    if (basePageMap == null)
+      throw new BackupException("Backup '%s' has no page map".formatted(baseFile));
+
+    manifest = new BackupManifest(type, database.getName(), base.getBackupId(), baseFile.getName());
+    logger.logLine(1, "Base of the %s backup: '%s' (%s)", type, baseFile, base.getType());
+  }
+
+  private File resolveBaseFile(final File backupFile) throws IOException {
+    final String explicitBase = settings.base;
+    if (explicitBase != null) {
+      final String path = explicitBase.startsWith("file://") ? explicitBase.substring("file://".length()) : explicitBase;
+      File file = new File(path);
+      if (!file.isAbsolute() && !file.exists())
+        file = new File(backupFile.getAbsoluteFile().getParentFile(), path);
+      file = file.getAbsoluteFile();
+      if (!file.exists())
+        throw new BackupException("Base backup '%s' not found".formatted(explicitBase));
+      if (!file.getParentFile().equals(backupFile.getAbsoluteFile().getParentFile()))
+        // THE CHAIN IS FOLLOWED BY FILE NAME AT RESTORE TIME, SO ALL ITS ARCHIVES MUST SIT SIDE BY SIDE
+        throw new BackupException("Base backup '%s' must be in the same directory as '%s'".formatted(file, backupFile));
+      return file;
+    }
+
+    final File directory = backupFile.getAbsoluteFile().getParentFile();
+    final File[] candidates = directory != null ?
+        directory.listFiles(
+            f -> f.isFile() && f.getName().startsWith(database.getName() + "-backup-") && f.getName().endsWith(".zip")
+                && !f.equals(backupFile.getAbsoluteFile())) :
+        null;
+    if (candidates == null)
+      return null;
+
+    File newest = null;
+    long newestCreatedOn = Long.MIN_VALUE;
+    for (final File candidate : candidates) {
+      final BackupManifest candidateManifest;
+      try {
+        candidateManifest = BackupManifest.read(candidate, settings.encryptionAlgorithm, settings.encryptionKey);
+      } catch (final Exception e) {
+        // NOT READABLE WITH THIS KEY, OR NOT AN ARCHIVE AT ALL: IT CANNOT BE THE BASE EITHER WAY
+        continue;
+      }
+      if (candidateManifest == null)
+        continue;
+      if (BackupManifest.TYPE_DIFFERENTIAL.equals(type) && !candidateManifest.isFull())
+        continue;
+      if (candidateManifest.getCreatedOn() > newestCreatedOn) {
+        newest = candidate;
+        newestCreatedOn = candidateManifest.getCreatedOn();
+      }
+    }
+    return newest;
+  }
+}
@@ -20,6 +20,8 @@ package com.arcadedb.integration.restore.format;
 
 import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.integration.backup.format.BackupManifest;
+import com.arcadedb.integration.backup.format.BackupPageMap;
 import com.arcadedb.integration.importer.ConsoleLogger;
 import com.arcadedb.integration.restore.RestoreException;
 import com.arcadedb.integration.restore.RestoreSettings;
@@ -28,18 +30,12 @@ import com.arcadedb.utility.IPAddressBlocklist;
 import com.arcadedb.utility.SafeHttpFetcher;
 
 import java.io.*;
-
-import javax.crypto.Cipher;
-import javax.crypto.CipherInputStream;
-import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.PBEKeySpec;
-import javax.crypto.spec.SecretKeySpec;
-
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
-import java.security.spec.KeySpec;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -82,7 +78,14 @@ public class FullRestoreFormat extends AbstractRestoreFormat {
   public void restoreDatabase() throws Exception {
     settings.validate();
 
-    final RestoreInputSource inputSource = openInputFile();
+    final RestoreInputSource requestedSource = openInputFile();
+
+    // AN INCREMENTAL OR DIFFERENTIAL ARCHIVE ONLY HOLDS THE PAGES THAT CHANGED: THE RESTORE STARTS FROM THE FULL BACKUP
+    // AT THE HEAD OF ITS CHAIN AND REPLAYS THE REST OF THE CHAIN ON TOP OF IT, OLDEST FIRST
+    final List<File> chain = resolveChain(requestedSource);
+    final RestoreInputSource inputSource = chain.isEmpty() ?
+        requestedSource :
+        new RestoreInputSource(chain.getFirst(), null, chain.getFirst().length());
 
     final File databaseDirectory = new File(settings.databaseDirectory);
     if (databaseDirectory.exists()) {
@@ -105,8 +108,9 @@ public class FullRestoreFormat extends AbstractRestoreFormat {
     final File randomAccessArchive = settings.encryptionKey == null ? inputSource.randomAccessArchive() : null;
     final boolean parallel = threads > 0 && randomAccessArchive != null;
 
-    logger.logLine(0, "Executing full restore of database from file '%s' to '%s' (%s)...", settings.inputFileURL,
-        settings.databaseDirectory, parallel ? threads + " threads" : "single threaded");
+    logger.logLine(0, "Executing full restore of database from file '%s' to '%s' (%s)...",
+        chain.isEmpty() ? settings.inputFileURL : chain.getFirst(), settings.databaseDirectory,
+        parallel ? threads + " threads" : "single threaded");
 
     final long beginTime = System.currentTimeMillis();
 
@@ -119,6 +123,9 @@ public class FullRestoreFormat extends AbstractRestoreFormat {
     if (stats.files() == 0)
       throw new RestoreException("Unable to perform restore");
 
+    for (final File increment : chain.subList(Math.min(1, chain.size()), chain.size()))
+      applyIncrement(increment, databaseDirectory);
+
     logger.logLine(0, "Full restore completed in %d seconds %s -> %s (%,d%% compression)", elapsedInSecs,
         FileUtils.getSizeAsString(inputSource.fileSize()), FileUtils.getSizeAsString(stats.uncompressedSize()),
         stats.uncompressedSize() > 0 ? (stats.uncompressedSize() - inputSource.fileSize()) * 100 / stats.uncompressedSize() : 0);
@@ -143,9 +150,17 @@ public class FullRestoreFormat extends AbstractRestoreFormat {
 
       ZipEntry compressedFile = zipFile.getNextEntry();
       while (compressedFile != null) {
-        databaseOrigSize += uncompressFile(zipFile, compressedFile, databaseDirectory);
+        if (compressedFile.getName().startsWith(BackupManifest.PAGES_ENTRY_PREFIX))
+          // ONLY REACHABLE FROM A REMOTE INPUT: A LOCAL ONE HAD ITS CHAIN RESOLVED BEFORE GETTING HERE
+          throw new RestoreException(
+              "'%s' is an incremental or differential backup: it can only be restored from a local file, next to the other backups of its chain".formatted(
+                  settings.inputFileURL));
+
+        if (!BackupManifest.isMetadataEntry(compressedFile.getName())) {
+          databaseOrigSize += uncompressFile(zipFile, compressedFile, databaseDirectory);
+          ++restoredFiles;
+        }
         compressedFile = zipFile.getNextEntry();
-        ++restoredFiles;
       }
 
       zipFile.close();
@@ -154,6 +169,117 @@ public class FullRestoreFormat extends AbstractRestoreFormat {
     });
   }
 
+  /**
+   * The archives to restore, full backup first, when the input is an incremental or differential backup; an empty
+   * list when it is a full one. Each archive names its base, which must sit in the same directory, and the base must
+   * carry the backup id the archive was taken against - a base that was replaced by another backup with the same name
+   * would otherwise be replayed under pages it never produced. Every archive of the chain is read with the same key.
+   */
+  private List<File> resolveChain(final RestoreInputSource inputSource) throws IOException {
+    final File archive = inputSource.randomAccessArchive();
+    if (archive == null)
+      return List.of();
+
+    BackupManifest manifest = BackupManifest.read(archive, settings.encryptionAlgorithm, settings.encryptionKey);
+    if (manifest == null || manifest.isFull())
+      return List.of();
+
+    final LinkedList<File> chain = new LinkedList<>();
+    final Set<String> visited = new HashSet<>();
+    File current = archive.getAbsoluteFile();
+    while (!manifest.isFull()) {
+      if (!visited.add(manifest.getBackupId()))
+        throw new RestoreException("Backup chain of '%s' contains a cycle at '%s'".formatted(archive, current));
+      chain.addFirst(current);
+
+      final String baseName = manifest.getBaseFile();
+      if (baseName == null || !new File(baseName).getName().equals(baseName))
+        throw new RestoreException("Backup '%s' has an invalid base '%s'".formatted(current, baseName));
+
+      final File base = new File(current.getParentFile(), baseName);
+      if (!base.isFile())
+        throw new RestoreException("Backup chain broken: base '%s' of '%s' not found".formatted(base, current));
+
+      final BackupManifest baseManifest = BackupManifest.read(base, settings.encryptionAlgorithm,
+          settings.encryptionKey);
+      if (baseManifest == null || !baseManifest.getBackupId().equals(manifest.getBaseBackupId()))
+        throw new RestoreException(
+            "Backup chain broken: '%s' is not the backup '%s' was taken against".formatted(base, current));
+
+      current = base;
+      manifest = baseManifest;
+    }
+    chain.addFirst(current);
+
+    logger.logLine(1, "Restoring a chain of %d backups ending with '%s'", chain.size(), archive);
+    return chain;
+  }
+
+  /**
+   * Replays one incremental or differential archive over the restored directory: whole entries replace their file,
+   * {@code pages/} entries are written at their page offsets, and once the page map (the last entry) is read, every
+   * page file is cut to its page count and the files the database no longer had are deleted.
+   */
+  private void applyIncrement(final File increment, final File databaseDirectory) throws IOException {
+    logger.logLine(0, "Applying backup '%s'...", increment);
+
+    BackupPageMap pageMap = null;
+    try (final ZipInputStream zipFile = BackupManifest.openArchive(increment, settings.encryptionAlgorithm,
+        settings.encryptionKey)) {
+      for (ZipEntry entry = zipFile.getNextEntry(); entry != null; entry = zipFile.getNextEntry()) {
+        final String name = entry.getName();
+        if (BackupManifest.MANIFEST_ENTRY.equals(name))
+          continue;
+        if (BackupManifest.PAGE_MAP_ENTRY.equals(name))
+          pageMap = BackupPageMap.read(zipFile);
+        else if (name.startsWith(BackupManifest.PAGES_ENTRY_PREFIX))
+          applyPages(zipFile, name.substring(BackupManifest.PAGES_ENTRY_PREFIX.length()), databaseDirectory);
+        else
+          uncompressFile(zipFile, entry, databaseDirectory);
+      }
+    }
+
+    if (pageMap == null)
+      throw new RestoreException("Backup '%s' has no page map".formatted(increment));
+
+    final Set<String> expected = new HashSet<>();
+    for (final BackupPageMap.FileEntry file : pageMap.getFiles()) {
+      expected.add(file.name);
+      if (file.isPaginated())
+        try (final RandomAccessFile raf = new RandomAccessFile(resolveFile(databaseDirectory, file.name), "rw")) {
+          raf.setLength((long) file.getPageCount() * file.pageSize);
+        }
+    }
+
+    final File[] existing = databaseDirectory.listFiles(File::isFile);
+    if (existing != null)
+      for (final File file : existing)
+        if (!expected.contains(file.getName()) && !file.delete())
+          throw new RestoreException("Cannot delete file '%s' dropped since the base backup".formatted(file));
+  }
+
+  private void applyPages(final InputStream input, final String fileName, final File databaseDirectory)
+      throws IOException {
+    logger.log(2, "- Pages of file '%s'...", fileName);
+    final int[] pages = new int[1];
+    try (final RandomAccessFile raf = new RandomAccessFile(resolveFile(databaseDirectory, fileName), "rw")) {
+      BackupPageMap.readPages(input, (pageSize, pageNumber, content) -> {
+        raf.seek((long) pageNumber * pageSize);
+        raf.write(content, 0, pageSize);
+        ++pages[0];
+      });
+    }
+    logger.logLine(2, " %d page(s)", pages[0]);
+  }
+
+  private static File resolveFile(final File databaseDirectory, final String fileName) throws IOException {
+    FileUtils.checkValidName(fileName);
+    final File file = new File(databaseDirectory, fileName);
+    if (!file.toPath().normalize().startsWith(databaseDirectory.toPath().normalize()))
+      throw new IOException("Bad zip entry");
+    return file;
+  }
+
   /**
    * -1 sizes the pool automatically, 0 selects the sequential walk, N a pool of N. The setting is read from the JVM
    * configuration rather than from a database one because a restore has no database to read it from: the database it
@@ -251,38 +377,9 @@ public class FullRestoreFormat extends AbstractRestoreFormat {
 
   private ParallelZipExtractor.ExtractStats decryptFile(final InputStream fis,
       final FullRestoreFormat.RestoreCallback callback) throws Exception {
-    final ZipInputStream zipFile;
-    if (settings.encryptionKey != null) {
-      // Read salt from the beginning of the file (16 bytes)
-      final byte[] salt = new byte[16];
-      if (fis.read(salt) != salt.length) {
-        throw new IOException("Unable to read salt from encrypted file");
-      }
-
-      // Derive the key using PBKDF2 with the salt
-      final SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-      final KeySpec spec = new PBEKeySpec(settings.encryptionKey.toCharArray(), salt, 65536,
-          256);
-      final SecretKey tmp = factory.generateSecret(spec);
-      final byte[] keyBytes = tmp.getEncoded();
-
-      final SecretKey secretKey = new SecretKeySpec(keyBytes, settings.encryptionAlgorithm);
-      // Read IV from the beginning of the file
-      final byte[] iv = new byte[16];
-      if (fis.read(iv) != iv.length) {
-        throw new IOException("Unable to read IV from encrypted file");
-      }
-      final IvParameterSpec ivSpec = new IvParameterSpec(iv);
-
-      // Initialize cipher for decryption
-      final Cipher cipher = Cipher.getInstance(settings.encryptionAlgorithm + "/CTR/NoPadding");
-      cipher.init(Cipher.DECRYPT_MODE, secretKey, ivSpec);
-
-      // Wrap the input stream with CipherInputStream
-      final CipherInputStream cis = new CipherInputStream(fis, cipher);
-      zipFile = new ZipInputStream(cis, StandardCharsets.UTF_8);
-    } else
-      zipFile = new ZipInputStream(fis, StandardCharsets.UTF_8);
+    final ZipInputStream zipFile = new ZipInputStream(settings.encryptionKey != null ?
+        BackupManifest.decrypt(fis, settings.encryptionAlgorithm, settings.encryptionKey) :
+        fis, StandardCharsets.UTF_8);
 
     try {
       return callback.restore(zipFile);
@@ -18,6 +18,7 @@
  */
 package com.arcadedb.integration.restore.format;
 
+import com.arcadedb.integration.backup.format.BackupManifest;
 import com.arcadedb.integration.importer.ConsoleLogger;
 import com.arcadedb.integration.restore.RestoreException;
 import com.arcadedb.utility.FileUtils;
@@ -125,8 +126,12 @@ public class ParallelZipExtractor {
     try (final ZipFile zipFile = new ZipFile(archive, StandardCharsets.UTF_8)) {
       final List<ZipEntry> entries = new ArrayList<>();
       final Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
-      while (enumeration.hasMoreElements())
-        entries.add(enumeration.nextElement());
+      while (enumeration.hasMoreElements()) {
+        final ZipEntry entry = enumeration.nextElement();
+        // THE MANIFEST AND THE PAGE MAP DESCRIBE THE ARCHIVE, THEY ARE NOT PART OF THE DATABASE
+        if (!BackupManifest.isMetadataEntry(entry.getName()))
+          entries.add(entry);
+      }
 
       // VALIDATE EVERY NAME BEFORE ANY THREAD HAS WRITTEN ANYTHING, SO A HOSTILE ARCHIVE IS REFUSED WITHOUT LEAVING
       // BEHIND THE FILES THAT PRECEDED THE BAD ENTRY. THE SEQUENTIAL PATH CANNOT DO THIS - IT ONLY LEARNS AN ENTRY'S
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.integration.backup;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseComparator;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.MutableDocument;
+import com.arcadedb.engine.ComponentFile;
+import com.arcadedb.integration.backup.format.BackupManifest;
+import com.arcadedb.integration.restore.Restore;
+import com.arcadedb.integration.restore.RestoreException;
+import com.arcadedb.schema.Schema;
+import com.arcadedb.schema.Type;
+import com.arcadedb.utility.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IncrementalBackupTest {
+  private static final String DATABASE_PATH = "target/databases/incremental";
+  private static final String BACKUP_DIR    = "target/incremental-backups";
+  private static final String RESTORED_PATH = "target/databases/incremental_restored";
+
+  private Database database;
+
+  @BeforeEach
+  void setUp() {
+    FileUtils.deleteRecursively(new File(DATABASE_PATH));
+    FileUtils.deleteRecursively(new File(BACKUP_DIR));
+    FileUtils.deleteRecursively(new File(RESTORED_PATH));
+
+    database = new DatabaseFactory(DATABASE_PATH).create();
+    database.getSchema().createDocumentType("Customer").createProperty("id", Type.INTEGER).createIndex(Schema.INDEX_TYPE.LSM_TREE, true);
+    insert("Customer", 0, 50_000);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (database != null && database.isOpen())
+      database.drop();
+    FileUtils.deleteRecursively(new File(BACKUP_DIR));
+    FileUtils.deleteRecursively(new File(RESTORED_PATH));
+  }
+
+  @Test
+  void incrementalChainRestoresTheLatestState() throws Exception {
+    final File full = backup("incremental-backup-1.zip", "full");
+
+    database.transaction(() -> database.command("sql", "update Customer set name = 'changed' where id < 100"));
+    insert("Customer", 50_000, 50_100);
+    final File first = backup("incremental-backup-2-incremental.zip", "incremental");
+
+    assertThat(first.length()).isLessThan(full.length() / 2);
+    assertThat(BackupManifest.read(first, null, null).getBaseFile()).isEqualTo(full.getName());
+    restoreAndCompare(first);
+
+    // A NEW TYPE CREATES FILES THE BASE DOES NOT HAVE, A DROPPED ONE REMOVES FILES THE BASE STILL HAS
+    database.getSchema().createDocumentType("Order");
+    insert("Order", 0, 100);
+    database.transaction(() -> database.command("sql", "delete from Customer where id >= 49000"));
+    final File second = backup("incremental-backup-3-incremental.zip", "incremental");
+
+    assertThat(BackupManifest.read(second, null, null).getBaseFile()).isEqualTo(first.getName());
+    restoreAndCompare(second);
+
+    database.getSchema().dropType("Order");
+    final File differential = backup("incremental-backup-4-differential.zip", "differential");
+
+    // A DIFFERENTIAL BACKUP SKIPS THE INCREMENTAL ONES AND GOES STRAIGHT TO THE FULL BACKUP
+    assertThat(BackupManifest.read(differential, null, null).getBaseFile()).isEqualTo(full.getName());
+    restoreAndCompare(differential);
+  }
+
+  @Test
+  void encryptedIncrementalChain() throws Exception {
+    final String key = "AnotherTestWithHard2GuessPassword";
+    new Backup(database, "incremental-backup-1.zip").setDirectory(BACKUP_DIR).setEncryptionKey(key).backupDatabase();
+
+    insert("Customer", 50_000, 50_500);
+    new Backup(database, "incremental-backup-2-incremental.zip").setDirectory(BACKUP_DIR).setEncryptionKey(key)
+        .setFormat("incremental").backupDatabase();
+
+    final Restore restore = new Restore(
+        ("-f " + BACKUP_DIR + "/incremental-backup-2-incremental.zip -d " + RESTORED_PATH
+            + " -o -encryptionKey " + key).split(" "));
+    restore.restoreDatabase();
+    compareWithRestored();
+  }
+
+  @Test
+  void incrementalWithoutBaseIsTakenAsFull() throws Exception {
+    final File file = backup("incremental-backup-1-incremental.zip", "incremental");
+
+    assertThat(BackupManifest.read(file, null, null).isFull()).isTrue();
+    restoreAndCompare(file);
+  }
+
+  @Test
+  void brokenChainIsRefused() throws Exception {
+    final File full = backup("incremental-backup-1.zip", "full");
+    insert("Customer", 50_000, 50_100);
+    final File incremental = backup("incremental-backup-2-incremental.zip", "incremental");
+
+    // A DIFFERENT BACKUP UNDER THE SAME NAME IS NOT THE BASE THE INCREMENTAL ONE WAS TAKEN AGAINST
+    assertThat(full.delete()).isTrue();
+    backup("incremental-backup-1.zip", "full");
+
+    assertThatThrownBy(() -> new Restore(incremental.getPath(), RESTORED_PATH).restoreDatabase())//
+        .isInstanceOf(RestoreException.class)//
+        .rootCause().hasMessageContaining("Backup chain broken");
+  }
+
+  private File backup(final String fileName, final String format) {
+    new Backup(database, fileName).setDirectory(BACKUP_DIR).setFormat(format).setVerboseLevel(1).backupDatabase();
+    final File file = new File(BACKUP_DIR, fileName);
+    assertThat(file).exists();
+    return file;
+  }
+
+  private void restoreAndCompare(final File archive) {
+    FileUtils.deleteRecursively(new File(RESTORED_PATH));
+    new Restore(archive.getPath(), RESTORED_PATH).setVerboseLevel(1).restoreDatabase();
+    compareWithRestored();
+  }
+
+  private void compareWithRestored() {
+    try (final Database restored = new DatabaseFactory(RESTORED_PATH).open(ComponentFile.MODE.READ_ONLY)) {
+      new DatabaseComparator().compare(database, restored);
+    }
+  }
+
+  private void insert(final String type, final int from, final int to) {
+    database.transaction(() -> {
+      for (int i = from; i < to; i++) {
+        final MutableDocument doc = database.newDocument(type);
+        doc.set("id", i);
+        doc.set("name", "customer-" + i);
+        doc.save();
+      }
+    });
+  }
+}
@@ -0,0 +1,593 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.mongo;
+
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.parser.Identifier;
+import de.bwaldvogel.mongo.backend.Utils;
+import de.bwaldvogel.mongo.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Translates a MongoDB aggregation pipeline into one SQL SELECT, so the stages run inside the query engine and the result is
+ * streamed instead of every document of the collection being loaded and aggregated in memory. The supported subset is
+ * {@code $match}, {@code $project}, {@code $group}, {@code $sort}, {@code $skip}, {@code $limit}, {@code $unwind} and
+ * {@code $count}. A stage that cannot be mapped exactly makes the whole pipeline untranslatable, and the caller falls back to
+ * the in-memory aggregation.
+ * <p>
+ * Each stage is folded into the current SELECT when the clause it maps to is evaluated after every clause already used,
+ * otherwise the current SELECT becomes the target of a new one. A {@code $match} after a {@code $group}, for instance, ends up
+ * as {@code SELECT FROM (SELECT ... GROUP BY ...) WHERE ...}.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+final class MongoDBAggregationTranslator {
+  // CLAUSES IN THE ORDER THE SQL EXECUTOR EVALUATES THEM WHEN THE STATEMENT CONTAINS AN UNWIND OR A GROUP BY
+  private static final int LEVEL_WHERE      = 1;
+  private static final int LEVEL_PROJECTION = 2;
+  private static final int LEVEL_UNWIND     = 3;
+  private static final int LEVEL_ORDER      = 4;
+  private static final int LEVEL_SKIP       = 5;
+  private static final int LEVEL_LIMIT      = 6;
+
+  private static final String      GROUP_KEY_PREFIX = "__id_";
+  private static final Set<String> FIELD_OPERATORS  = Set.of("$in", "$nin", "$eq", "$ne", "$lt", "$lte", "$gt", "$gte", "$exists",
+      "$size");
+
+  /**
+   * The statement to execute and the conversion of each of its rows. The converter returns {@code null} for a row that has no
+   * counterpart in the MongoDB result.
+   */
+  record Translation(String sql, Map<String, Object> params, Function<Result, Document> converter) {
+  }
+
+  private enum Shape {RECORD, PROJECTED, GROUPED, COUNT}
+
+  private final Map<String, Object> params       = new HashMap<>();
+  private       Select              select;
+  private       Shape               shape        = Shape.RECORD;
+  // OUTPUT FIELD NAME -> COLUMN NAME IN THE STATEMENT, FOR THE PROJECTED AND GROUPED SHAPES
+  private final Map<String, String> fields       = new LinkedHashMap<>();
+  // GROUPED SHAPE: THE CONSTANT _id WHEN THE PIPELINE GROUPS THE WHOLE INPUT, OR THE KEYS OF A COMPOSITE _id
+  private       Object              groupIdConstant;
+  private       List<String>        groupIdKeys;
+  private       boolean             groupIdVisible;
+  private final List<String>        accumulators = new ArrayList<>();
+  private       String              countField;
+
+  private MongoDBAggregationTranslator(final String collectionName) {
+    this.select = new Select(Identifier.quote(collectionName));
+  }
+
+  /**
+   * @return the translation, or {@code null} if the pipeline uses a stage or a stage form outside the supported subset
+   */
+  static Translation translate(final String collectionName, final List<Document> pipeline) {
+    final MongoDBAggregationTranslator translator = new MongoDBAggregationTranslator(collectionName);
+    for (final Document stage : pipeline)
+      if (stage.size() != 1 || !translator.addStage(stage.keySet().iterator().next(), stage.values().iterator().next()))
+        return null;
+
+    // VALUES ARE BOUND AS STORED: AN OBJECT ID IS KEPT AS ITS HEX STRING AND AN EMBEDDED DOCUMENT AS A MAP
+    translator.params.replaceAll((name, value) -> MongoDBDatabaseWrapper.toMapValue(value));
+    return new Translation(translator.select.toSql(), translator.params, translator.converter());
+  }
+
+  private boolean addStage(final String name, final Object spec) {
+    if (shape == Shape.COUNT)
+      // THE ONLY DOCUMENT LEFT IS THE COUNT: NOT WORTH A STATEMENT OF ITS OWN
+      return false;
+
+    return switch (name) {
+      case "$match" -> spec instanceof Document document && match(document);
+      case "$project" -> spec instanceof Document document && project(document);
+      case "$group" -> spec instanceof Document document && group(document);
+      case "$sort" -> spec instanceof Document document && sort(document);
+      case "$skip" -> spec instanceof Number number && skip(number.longValue());
+      case "$limit" -> spec instanceof Number number && limit(number.longValue());
+      case "$unwind" -> unwind(spec);
+      case "$count" -> spec instanceof String string && count(string);
+      default -> false;
+    };
+  }
+
+  private boolean match(final Document query) {
+    final Document condition = normalizeCondition(query);
+    if (condition == null)
+      return false;
+
+    if (select.level > LEVEL_WHERE)
+      wrap();
+
+    final StringBuilder buffer = new StringBuilder();
+    try {
+      MongoDBToSqlTranslator.buildExpression(buffer, params, condition);
+    } catch (final IllegalArgumentException e) {
+      return false;
+    }
+    select.where.add(buffer.toString());
+    select.level = LEVEL_WHERE;
+    return true;
+  }
+
+  private boolean project(final Document spec) {
+    if (shape == Shape.GROUPED)
+      return filterGroupFields(spec);
+
+    boolean includeId = true;
+    final Map<String, String> projected = new LinkedHashMap<>();
+    for (final Map.Entry<String, Object> entry : spec.entrySet()) {
+      final String field = entry.getKey();
+      final Object value = entry.getValue();
+      if (field.startsWith("$") || field.indexOf('.') > -1)
+        return false;
+
+      if (value instanceof Boolean || value instanceof Number) {
+        if (Utils.isTrue(value))
+          projected.put(field, field);
+        else if ("_id".equals(field))
+          includeId = false;
+        else
+          // AN EXCLUSION KEEPS EVERY OTHER FIELD, WHICH A PROJECTION LIST CANNOT EXPRESS
+          return false;
+      } else if (value instanceof String string && isFieldPath(string) && !"_id".equals(field))
+        projected.put(field, string.substring(1));
+      else
+        return false;
+    }
+
+    if (projected.isEmpty())
+      return false;
+
+    if (select.level > LEVEL_WHERE || shape != Shape.RECORD)
+      wrap();
+
+    final Map<String, String> output = new LinkedHashMap<>();
+    if (includeId && !projected.containsKey("_id"))
+      output.put("_id", "_id");
+    output.putAll(projected);
+
+    fields.clear();
+    for (final Map.Entry<String, String> entry : output.entrySet()) {
+      select.projection.add(MongoDBToSqlTranslator.quoteFieldPath(entry.getValue()) + " AS " + Identifier.quote(entry.getKey()));
+      select.aliases.add(entry.getKey());
+      fields.put(entry.getKey(), entry.getKey());
+    }
+    select.level = LEVEL_PROJECTION;
+    shape = Shape.PROJECTED;
+    return true;
+  }
+
+  /**
+   * A {@code $project} after a {@code $group} can only keep or drop the fields the group produced: the statement is left as it
+   * is and the fields are removed while converting the rows.
+   */
+  private boolean filterGroupFields(final Document spec) {
+    final Set<String> included = new HashSet<>();
+    final Set<String> excluded = new HashSet<>();
+    for (final Map.Entry<String, Object> entry : spec.entrySet()) {
+      if (!(entry.getValue() instanceof Boolean) && !(entry.getValue() instanceof Number))
+        return false;
+      (Utils.isTrue(entry.getValue()) ? included : excluded).add(entry.getKey());
+    }
+
+    final boolean keepId = groupIdVisible && !excluded.contains("_id");
+    excluded.remove("_id");
+    if (!included.isEmpty() && !excluded.isEmpty())
+      return false;
+
+    if (included.isEmpty())
+      accumulators.removeAll(excluded);
+    else
+      accumulators.retainAll(included);
+
+    if (!keepId) {
+      groupIdVisible = false;
+      fields.keySet().removeIf(field -> field.equals("_id") || field.startsWith("_id."));
+    }
+    fields.keySet().removeIf(field -> !field.equals("_id") && !field.startsWith("_id.") && !accumulators.contains(field));
+    return true;
+  }
+
+  private boolean group(final Document spec) {
+    if (shape != Shape.RECORD && shape != Shape.PROJECTED)
+      return false;
+
+    final List<String> projection = new ArrayList<>();
+    final List<String> groupBy = new ArrayList<>();
+    final Map<String, String> groupFields = new LinkedHashMap<>();
+    final Object id = spec.get("_id");
+    List<String> idKeys = null;
+    Object idConstant = null;
+
+    if (id instanceof String string && isFieldPath(string)) {
+      final String path = MongoDBToSqlTranslator.quoteFieldPath(string.substring(1));
+      projection.add(path + " AS " + Identifier.quote("_id"));
+      groupBy.add(path);
+      groupFields.put("_id", "_id");
+    } else if (id instanceof Document document && !document.isEmpty()) {
+      idKeys = new ArrayList<>();
+      for (final Map.Entry<String, Object> entry : document.entrySet()) {
+        if (!(entry.getValue() instanceof String string) || !isFieldPath(string) || !isPlainName(entry.getKey()))
+          return false;
+        final String path = MongoDBToSqlTranslator.quoteFieldPath(string.substring(1));
+        final String alias = GROUP_KEY_PREFIX + entry.getKey();
+        projection.add(path + " AS " + Identifier.quote(alias));
+        // GROUPED BY THE ALIASES: WITH MORE THAN ONE KEY, GROUPING BY THE PROJECTED PROPERTIES IS RESOLVED ON THE LAST ONE ONLY
+        groupBy.add(Identifier.quote(alias));
+        groupFields.put("_id." + entry.getKey(), alias);
+        idKeys.add(entry.getKey());
+      }
+    } else if (id == null || id instanceof Number || (id instanceof String string && !string.startsWith("$")))
+      idConstant = id;
+    else
+      return false;
+
+    final List<String> groupAccumulators = new ArrayList<>();
+    for (final Map.Entry<String, Object> entry : spec.entrySet()) {
+      final String field = entry.getKey();
+      if ("_id".equals(field))
+        continue;
+      if (!isPlainName(field) || field.startsWith(GROUP_KEY_PREFIX) || !(entry.getValue() instanceof Document accumulator)
+          || accumulator.size() != 1)
+        return false;
+
+      final String expression = accumulator(accumulator.keySet().iterator().next(), accumulator.values().iterator().next());
+      if (expression == null)
+        return false;
+
+      projection.add(expression + " AS " + Identifier.quote(field));
+      groupFields.put(field, field);
+      groupAccumulators.add(field);
+    }
+
+    if (projection.isEmpty())
+      return false;
+
+    if (select.level > LEVEL_WHERE || shape != Shape.RECORD)
+      wrap();
+
+    select.projection.addAll(projection);
+    select.groupBy.addAll(groupBy);
+    select.aliases.addAll(groupFields.values());
+    select.level = LEVEL_PROJECTION;
+
+    shape = Shape.GROUPED;
+    fields.clear();
+    fields.putAll(groupFields);
+    groupIdKeys = idKeys;
+    groupIdConstant = idConstant;
+    groupIdVisible = true;
+    accumulators.addAll(groupAccumulators);
+    return true;
+  }
+
+  /**
+   * Maps a group accumulator onto the SQL aggregate function computing the same value.
+   *
+   * @return the expression, or {@code null} if the accumulator has no exact counterpart. {@code $push} and {@code $addToSet}
+   * have none: {@code list()} flattens a value that is itself an array.
+   */
+  private static String accumulator(final String operator, final Object argument) {
+    final String path = argument instanceof String string && isFieldPath(string) ?
+        MongoDBToSqlTranslator.quoteFieldPath(string.substring(1)) :
+        null;
+
+    return switch (operator) {
+      case "$sum" -> path != null ? "sum(" + path + ")" : isOne(argument) ? "count(*)" : null;
+      case "$count" -> argument instanceof Document document && document.isEmpty() ? "count(*)" : null;
+      case "$avg" -> path != null ? "avg(" + path + ")" : null;
+      case "$min" -> path != null ? "min(" + path + ")" : null;
+      case "$max" -> path != null ? "max(" + path + ")" : null;
+      default -> null;
+    };
+  }
+
+  private boolean sort(final Document spec) {
+    if (spec.isEmpty())
+      return false;
+
+    final List<String> orderBy = new ArrayList<>();
+    final List<String> columns = new ArrayList<>();
+    for (final Map.Entry<String, Object> entry : spec.entrySet()) {
+      if (!(entry.getValue() instanceof Number direction) || Math.abs(direction.intValue()) != 1)
+        return false;
+
+      final String column = column(entry.getKey());
+      if (column == null)
+        return false;
+
+      columns.add(column);
+      orderBy.add(MongoDBToSqlTranslator.quoteFieldPath(column) + (direction.intValue() > 0 ? " ASC" : " DESC"));
+    }
+
+    // IN THE SAME STATEMENT THE ORDER CAN ONLY REFER TO WHAT THE PROJECTION PRODUCES, ANYTHING ELSE WOULD BE READ FROM THE RECORD
+    if (select.level >= LEVEL_ORDER || (!select.aliases.isEmpty() && !select.aliases.containsAll(columns)))
+      wrap();
+
+    select.orderBy.addAll(orderBy);
+    select.level = LEVEL_ORDER;
+    return true;
+  }
+
+  private boolean skip(final long skip) {
+    if (skip < 0)
+      return false;
+
+    if (select.level >= LEVEL_SKIP)
+      wrap();
+
+    select.skip = skip;
+    select.level = LEVEL_SKIP;
+    return true;
+  }
+
+  private boolean limit(final long limit) {
+    if (limit <= 0)
+      return false;
+
+    if (select.level >= LEVEL_LIMIT)
+      wrap();
+
+    select.limit = limit;
+    select.level = LEVEL_LIMIT;
+    return true;
+  }
+
+  private boolean unwind(final Object spec) {
+    final Object path;
+    if (spec instanceof Document document) {
+      // includeArrayIndex AND preserveNullAndEmptyArrays HAVE NO COUNTERPART IN SQL UNWIND
+      if (document.size() != 1)
+        return false;
+      path = document.get("path");
+    } else
+      path = spec;
+
+    if (!(path instanceof String string) || !isFieldPath(string) || !isPlainName(string.substring(1)))
+      return false;
+
+    final String field = string.substring(1);
+    if (shape == Shape.PROJECTED) {
+      if (!fields.containsKey(field))
+        return false;
+    } else if (shape != Shape.RECORD)
+      return false;
+
+    // THE CONDITION IS EVALUATED BEFORE THE UNWIND, AGAINST THE SAME FIELD: NO PROJECTION CAN SIT IN BETWEEN
+    if (select.level > LEVEL_WHERE || shape != Shape.RECORD)
+      wrap();
+
+    // MONGODB DROPS A DOCUMENT WHOSE ARRAY IS MISSING, NULL OR EMPTY, SQL UNWIND KEEPS IT AS IT IS
+    final String column = Identifier.quote(field);
+    select.where.add(column + ".size() > 0");
+    select.unwind = column;
+    select.level = LEVEL_UNWIND;
+    return true;
+  }
+
+  private boolean count(final String field) {
+    if (!isPlainName(field))
+      return false;
+
+    if (select.level > LEVEL_WHERE || shape != Shape.RECORD)
+      wrap();
+
+    select.projection.add("count(*) AS " + Identifier.quote(field));
+    select.level = LEVEL_PROJECTION;
+    shape = Shape.COUNT;
+    countField = field;
+    return true;
+  }
+
+  private void wrap() {
+    select = new Select("(" + select.toSql() + ")");
+  }
+
+  /**
+   * @return the name to use in the statement for an output field, or {@code null} if the field is unknown after a projection or
+   * a group
+   */
+  private String column(final String field) {
+    if (shape == Shape.RECORD)
+      return field;
+    return fields.get(field);
+  }
+
+  /**
+   * Rewrites a {@code $match} condition in the form {@link MongoDBToSqlTranslator#buildExpression} translates: field names are
+   * renamed to the columns they come from, and sibling conditions are joined with an explicit {@code $and}.
+   *
+   * @return the rewritten condition, or {@code null} if it uses an operator or a value outside the supported subset
+   */
+  private Document normalizeCondition(final Document query) {
+    final List<Document> conditions = new ArrayList<>();
+    for (final Map.Entry<String, Object> entry : query.entrySet()) {
+      final String key = entry.getKey();
+      final Object value = entry.getValue();
+
+      if ("$or".equals(key) || "$and".equals(key)) {
+        if (!(value instanceof List<?> list) || list.isEmpty())
+          return null;
+        final List<Document> normalized = new ArrayList<>(list.size());
+        for (final Object item : list) {
+          if (!(item instanceof Document document))
+            return null;
+          final Document condition = normalizeCondition(document);
+          if (condition == null)
+            return null;
+          normalized.add(condition);
+        }
+        conditions.add(new Document(key, normalized));
+      } else if (key.startsWith("$"))
+        return null;
+      else {
+        final String column = column(key);
+        if (column == null || !isSupportedValue(value))
+          return null;
+        conditions.add(new Document(column, value));
+      }
+    }
+
+    if (conditions.isEmpty())
+      return null;
+    return conditions.size() == 1 ? conditions.getFirst() : new Document("$and", conditions);
+  }
+
+  private static boolean isSupportedValue(final Object value) {
+    if (value == null || value instanceof List)
+      // MONGODB MATCHES A MISSING FIELD ON NULL AND AN ARRAY ELEMENT-WISE: NEITHER MAPS ONTO "="
+      return false;
+
+    if (value instanceof Document document) {
+      if (document.isEmpty())
+        return false;
+      for (final Map.Entry<String, Object> entry : document.entrySet()) {
+        final String operator = entry.getKey();
+        if (!FIELD_OPERATORS.contains(operator))
+          return false;
+        if ("$exists".equals(operator) && !Utils.isTrue(entry.getValue()))
+          return false;
+        if (("$in".equals(operator) || "$nin".equals(operator)) && !(entry.getValue() instanceof Collection))
+          return false;
+        if (entry.getValue() == null || entry.getValue() instanceof Document)
+          return false;
+      }
+    }
+    return true;
+  }
+
+  private Function<Result, Document> converter() {
+    return switch (shape) {
+      case RECORD -> MongoDBToSqlTranslator::convertDocumentToMongoDB;
+      case PROJECTED -> {
+        final List<String> output = new ArrayList<>(fields.keySet());
+        yield row -> {
+          final Document document = new Document();
+          for (final String field : output) {
+            final Object value = row.getProperty(field);
+            // A FIELD THE DOCUMENT DOES NOT HAVE IS LEFT OUT, AS MONGODB DOES, INSTEAD OF BEING RETURNED AS NULL
+            if (value != null)
+              document.put(field, "_id".equals(field) && value instanceof String string ?
+                  MongoDBToSqlTranslator.getObjectId(string) :
+                  MongoDBToSqlTranslator.toBsonValue(value));
+          }
+          return document;
+        };
+      }
+      case GROUPED -> {
+        final boolean idVisible = groupIdVisible;
+        final List<String> idKeys = groupIdKeys;
+        final Object idConstant = groupIdConstant;
+        final boolean idFromField = fields.containsKey("_id");
+        final List<String> output = new ArrayList<>(accumulators);
+        yield row -> {
+          final Document document = new Document();
+          if (idVisible) {
+            if (idKeys != null) {
+              final Document id = new Document();
+              for (final String key : idKeys)
+                id.put(key, MongoDBToSqlTranslator.toBsonValue(row.getProperty(GROUP_KEY_PREFIX + key)));
+              document.put("_id", id);
+            } else if (idFromField)
+              document.put("_id", MongoDBToSqlTranslator.toBsonValue(row.getProperty("_id")));
+            else
+              document.put("_id", idConstant);
+          }
+          for (final String field : output)
+            document.put(field, MongoDBToSqlTranslator.toBsonValue(row.getProperty(field)));
+          return document;
+        };
+      }
+      case COUNT -> {
+        final String field = countField;
+        yield row -> {
+          // A COUNT OF NOTHING PRODUCES NO DOCUMENT IN MONGODB
+          final Object value = row.getProperty(field);
+          return value instanceof Number number && number.longValue() > 0 ? new Document(field, value) : null;
+        };
+      }
+    };
+  }
+
+  private static boolean isFieldPath(final String value) {
+    return value.length() > 1 && value.charAt(0) == '$' && value.charAt(1) != '$';
+  }
+
+  private static boolean isPlainName(final String name) {
+    return !name.isEmpty() && !name.startsWith("$") && name.indexOf('.') < 0;
+  }
+
+  private static boolean isOne(final Object value) {
+    return value instanceof Number number && number.doubleValue() == 1D;
+  }
+
+  private static final class Select {
+    private final String       target;
+    private final List<String> projection = new ArrayList<>();
+    private final List<String> where      = new ArrayList<>();
+    private final List<String> groupBy    = new ArrayList<>();
+    private final List<String> orderBy    = new ArrayList<>();
+    // NAMES THE PROJECTION PRODUCES, EMPTY WHEN THE STATEMENT RETURNS THE RECORDS THEMSELVES
+    private final Set<String>  aliases    = new HashSet<>();
+    private       String       unwind;
+    private       long         skip       = -1;
+    private       long         limit      = -1;
+    private       int          level;
+
+    private Select(final String target) {
+      this.target = target;
+    }
+
+    private String toSql() {
+      final StringBuilder sql = new StringBuilder("SELECT ");
+      if (!projection.isEmpty())
+        sql.append(String.join(", ", projection)).append(' ');
+      sql.append("FROM ").append(target);
+      if (!where.isEmpty()) {
+        sql.append(" WHERE ");
+        for (int i = 0; i < where.size(); i++) {
+          if (i > 0)
+            sql.append(" AND ");
+          sql.append('(').append(where.get(i)).append(')');
+        }
+      }
+      if (!groupBy.isEmpty())
+        sql.append(" GROUP BY ").append(String.join(", ", groupBy));
+      if (!orderBy.isEmpty())
+        sql.append(" ORDER BY ").append(String.join(", ", orderBy));
+      if (unwind != null)
+        sql.append(" UNWIND ").append(unwind);
+      if (skip > -1)
+        sql.append(" SKIP ").append(skip);
+      if (limit > -1)
+        sql.append(" LIMIT ").append(limit);
+      return sql.toString();
+    }
+  }
+}
@@ -25,6 +25,7 @@ import com.arcadedb.server.security.ServerSecurityException;
 import com.arcadedb.server.security.ServerSecurityUser;
 import de.bwaldvogel.mongo.MongoDatabase;
 import de.bwaldvogel.mongo.backend.AbstractMongoBackend;
+import de.bwaldvogel.mongo.backend.CursorRegistry;
 import de.bwaldvogel.mongo.backend.Utils;
 import de.bwaldvogel.mongo.bson.BinData;
 import de.bwaldvogel.mongo.bson.Document;
@@ -120,6 +121,15 @@ public class MongoDBBackend extends AbstractMongoBackend {
     super.handleClose(channel);
   }
 
+  /**
+   * Re-declared to make the registry visible to {@link MongoDBDatabaseWrapper}: a cursor it registers here is served by the
+   * {@code getMore} and {@code killCursors} commands the base backend implements.
+   */
+  @Override
+  protected CursorRegistry getCursorRegistry() {
+    return super.getCursorRegistry();
+  }
+
   /**
    * A user (real) database is anything that is not one of MongoDB's virtual administrative databases.
    * Only these carry stored data, so only these require authorization and principal binding.
@@ -18,6 +18,7 @@
  */
 package com.arcadedb.mongo;
 
+import com.arcadedb.GlobalConfiguration;
 import com.arcadedb.database.Database;
 import com.arcadedb.database.MutableDocument;
 import com.arcadedb.database.ProtocolContext;
@@ -60,12 +61,13 @@ import java.util.logging.Level;
 import static de.bwaldvogel.mongo.backend.Utils.markOkay;
 
 public class MongoDBDatabaseWrapper implements MongoDatabase {
-  protected final Database                           database;
-  protected final MongoDBProtocolPlugin              plugin;
-  protected final MongoBackend                       backend;
-  protected final Map<String, MongoCollection<Long>> collections    = new ConcurrentHashMap();
-  protected final Map<Channel, List<Document>>       lastResults    = new ConcurrentHashMap();
-  protected final CursorRegistry                     cursorRegistry = new CursorRegistry();
+  protected final Database                                  database;
+  protected final MongoDBProtocolPlugin                     plugin;
+  protected final MongoBackend                              backend;
+  protected final Map<String, MongoCollection<Long>>        collections    = new ConcurrentHashMap();
+  protected final Map<Channel, List<Document>>              lastResults    = new ConcurrentHashMap();
+  protected final CursorRegistry                            cursorRegistry = new CursorRegistry();
+  protected final Map<Channel, Set<MongoDBResultSetCursor>> openCursors    = new ConcurrentHashMap<>();
 
   public MongoDBDatabaseWrapper(final Database database, final MongoDBProtocolPlugin plugin, final MongoBackend backend) {
     this.database = database;
@@ -101,6 +103,14 @@ public class MongoDBDatabaseWrapper implements MongoDatabase {
     // NEED IT. ONLY THE CLOSING CHANNEL'S STATE MUST BE REMOVED: THE COLLECTION CACHE AND OTHER CONNECTIONS' RESULTS ARE
     // SHARED ACROSS ALL CLIENTS (THIS WRAPPER IS CACHED PER-DATABASE IN THE BACKEND).
     lastResults.remove(channel);
+
+    final Set<MongoDBResultSetCursor> cursors = openCursors.remove(channel);
+    if (cursors != null)
+      for (final MongoDBResultSetCursor cursor : cursors) {
+        if (backend instanceof MongoDBBackend mongoDBBackend)
+          mongoDBBackend.getCursorRegistry().remove(cursor);
+        cursor.close();
+      }
   }
 
   @Override
@@ -122,7 +132,7 @@ public class MongoDBDatabaseWrapper implements MongoDatabase {
       else if ("update".equalsIgnoreCase(command))
         return updateDocuments(document);
       else if ("aggregate".equalsIgnoreCase(command))
-        return aggregateCollection(command, document, opLog);
+        return aggregateCollection(channel, document, opLog);
       else if ("createIndexes".equalsIgnoreCase(command))
         return createIndexes(document);
       else {
@@ -242,7 +252,7 @@ public class MongoDBDatabaseWrapper implements MongoDatabase {
     };
   }
 
-  private Document aggregateCollection(final String command, final Document document, final Oplog oplog)
+  private Document aggregateCollection(final Channel channel, final Document document, final Oplog oplog)
       throws MongoServerException {
     final String collectionName = document.get("aggregate").toString();
     database.countType(collectionName, false);
@@ -263,7 +273,48 @@ public class MongoDBDatabaseWrapper implements MongoDatabase {
     final Aggregation aggregation = Aggregation.fromPipeline(pipeline, plugin, this, collection, oplog);
     aggregation.validate(document);
 
-    return firstBatchCursorResponse(collectionName, "firstBatch", aggregation.computeResult(), 0);
+    final MongoDBAggregationTranslator.Translation translation = MongoDBAggregationTranslator.translate(collectionName, pipeline);
+    if (translation == null)
+      return firstBatchCursorResponse(collectionName, "firstBatch", aggregation.computeResult(), 0);
+
+    return aggregateWithSQL(channel, collectionName, document, translation);
+  }
+
+  /**
+   * Runs a pipeline translated to SQL and returns its first batch. The rest of the result stays in the engine behind a cursor
+   * the client drains with {@code getMore}; the cursor is bound to the channel, so whatever the client leaves open is released
+   * when the connection closes.
+   */
+  private Document aggregateWithSQL(final Channel channel, final String collectionName, final Document document,
+      final MongoDBAggregationTranslator.Translation translation) {
+    final ResultSet resultSet = database.query("sql", translation.sql(), translation.params());
+
+    if (!(backend instanceof MongoDBBackend mongoDBBackend)) {
+      // NO BACKEND TO SERVE getMore: RETURN EVERYTHING AT ONCE
+      final MongoDBResultSetCursor cursor = new MongoDBResultSetCursor(0, resultSet, translation.converter());
+      return firstBatchCursorResponse(collectionName, "firstBatch", cursor.takeDocuments(0), 0);
+    }
+
+    final CursorRegistry registry = mongoDBBackend.getCursorRegistry();
+    final MongoDBResultSetCursor cursor = new MongoDBResultSetCursor(registry.generateCursorId(), resultSet,
+        translation.converter());
+    final List<Document> firstBatch = cursor.takeDocuments(getBatchSize(document));
+    if (cursor.isEmpty())
+      return firstBatchCursorResponse(collectionName, "firstBatch", firstBatch, 0);
+
+    registry.add(cursor);
+    final Set<MongoDBResultSetCursor> channelCursors = openCursors.computeIfAbsent(channel, c -> ConcurrentHashMap.newKeySet());
+    // CURSORS DRAINED BY getMore ARE ALREADY CLOSED: FORGET THEM HERE INSTEAD OF HOLDING THEM UNTIL THE CONNECTION CLOSES
+    channelCursors.removeIf(MongoDBResultSetCursor::isEmpty);
+    channelCursors.add(cursor);
+    return firstBatchCursorResponse(collectionName, "firstBatch", firstBatch, cursor.getId());
+  }
+
+  private int getBatchSize(final Document document) {
+    if (document.get("cursor") instanceof Document cursorDocument && cursorDocument.get("batchSize") instanceof Number batchSize
+        && batchSize.intValue() > 0)
+      return batchSize.intValue();
+    return database.getConfiguration().getValueAsInteger(GlobalConfiguration.MONGO_BATCH_SIZE);
   }
 
   private Document firstBatchCursorResponse(final String ns, final String key, final List<Document> documents,
@@ -740,7 +791,7 @@ public class MongoDBDatabaseWrapper implements MongoDatabase {
     return map;
   }
 
-  private static Object toMapValue(final Object value) {
+  static Object toMapValue(final Object value) {
     if (value instanceof Document document)
       return documentToMap(document);
     else if (value instanceof List<?> list) {
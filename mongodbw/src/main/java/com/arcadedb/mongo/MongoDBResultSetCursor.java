@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.mongo;
+
+import com.arcadedb.query.sql.executor.Result;
+import com.arcadedb.query.sql.executor.ResultSet;
+import de.bwaldvogel.mongo.backend.AbstractCursor;
+import de.bwaldvogel.mongo.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Cursor over a SQL result set that converts and hands out rows only when a batch is requested, so a large result is never
+ * materialized: the first batch goes with the command response and the rest is pulled by the client with {@code getMore}.
+ * The result set is closed as soon as it is exhausted, or by {@link #close()} when the connection goes away first.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+class MongoDBResultSetCursor extends AbstractCursor {
+  private final ResultSet                  resultSet;
+  private final Function<Result, Document> converter;
+  private       Document                   next;
+  private       boolean                    closed;
+
+  MongoDBResultSetCursor(final long id, final ResultSet resultSet, final Function<Result, Document> converter) {
+    super(id);
+    this.resultSet = resultSet;
+    this.converter = converter;
+    fetchNext();
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return next == null;
+  }
+
+  /**
+   * @param numberToReturn maximum number of documents to return, 0 or negative to return all the remaining ones
+   */
+  @Override
+  public synchronized List<Document> takeDocuments(final int numberToReturn) {
+    final List<Document> documents = new ArrayList<>(numberToReturn > 0 ? numberToReturn : 16);
+    while (next != null && (numberToReturn <= 0 || documents.size() < numberToReturn)) {
+      documents.add(next);
+      fetchNext();
+    }
+    return documents;
+  }
+
+  synchronized void close() {
+    next = null;
+    closeResultSet();
+  }
+
+  /**
+   * Looks one document ahead, so {@link #isEmpty()} is exact right after a batch and the server can drop the cursor without
+   * the client asking for an empty last batch.
+   */
+  private void fetchNext() {
+    next = null;
+    try {
+      while (next == null && resultSet.hasNext())
+        next = converter.apply(resultSet.next());
+    } catch (final RuntimeException e) {
+      closeResultSet();
+      throw e;
+    }
+    if (next == null)
+      closeResultSet();
+  }
+
+  private void closeResultSet() {
+    if (!closed) {
+      closed = true;
+      resultSet.close();
+    }
+  }
+}
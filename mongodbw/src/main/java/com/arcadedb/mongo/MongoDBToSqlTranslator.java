@@ -245,7 +245,7 @@ public class MongoDBToSqlTranslator {
    * The engine anchors a stored date to UTC, so the conversion uses the same offset and is exact.
    */
   @SuppressWarnings("unchecked")
-  private static Object toBsonValue(final Object value) {
+  protected static Object toBsonValue(final Object value) {
     if (value instanceof Instant)
       return value;
     else if (value instanceof LocalDateTime dateTime)
@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.mongo;
+
+import com.arcadedb.database.Database;
+import com.arcadedb.database.DatabaseFactory;
+import com.arcadedb.database.DatabaseInternal;
+import com.arcadedb.query.sql.executor.ResultSet;
+import com.arcadedb.utility.FileUtils;
+import de.bwaldvogel.mongo.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongoDBAggregationTranslatorTest {
+  private Database database;
+
+  @BeforeEach
+  void beginTest() {
+    FileUtils.deleteRecursively(new File("./target/databases/aggregation"));
+
+    database = new DatabaseFactory("./target/databases/aggregation").create();
+    database.getSchema().createDocumentType("Orders");
+
+    database.transaction(() -> {
+      database.newDocument("Orders").set("customer", "alice", "amount", 10, "status", "paid", "tags", List.of("a", "b")).save();
+      database.newDocument("Orders").set("customer", "bob", "amount", 20, "status", "paid", "tags", List.of()).save();
+      database.newDocument("Orders").set("customer", "alice", "amount", 30, "status", "pending", "tags", List.of("c")).save();
+      database.newDocument("Orders").set("customer", "carol", "amount", 40, "status", "paid").save();
+      database.newDocument("Orders").set("customer", "bob", "amount", 50, "status", "paid", "tags", List.of("a")).save();
+    });
+  }
+
+  @AfterEach
+  void endTest() {
+    if (database != null) {
+      if (database.isTransactionActive())
+        database.rollback();
+      ((DatabaseInternal) database).getEmbedded().drop();
+    }
+  }
+
+  @Test
+  void matchSortLimitInOneStatement() {
+    final MongoDBAggregationTranslator.Translation translation = MongoDBAggregationTranslator.translate("Orders",
+        List.of(new Document("$match", new Document("status", "paid")), new Document("$sort", new Document("amount", -1)),
+            new Document("$limit", 2)));
+
+    assertThat(translation.sql()).doesNotContain("(SELECT");
+    assertThat(run(translation)).extracting(d -> d.get("amount")).containsExactly(50, 40);
+  }
+
+  @Test
+  void groupSortedByAccumulator() {
+    final List<Document> result = run(List.of(//
+        new Document("$match", new Document("status", "paid")),//
+        new Document("$group",
+            new Document("_id", "$customer").append("total", new Document("$sum", "$amount")).append("orders", new Document("$sum", 1))),
+        new Document("$sort", new Document("total", -1))));
+
+    assertThat(result).containsExactly(//
+        new Document("_id", "bob").append("total", 70).append("orders", 2L),//
+        new Document("_id", "carol").append("total", 40).append("orders", 1L),//
+        new Document("_id", "alice").append("total", 10).append("orders", 1L));
+  }
+
+  @Test
+  void matchAfterGroupFiltersTheGroups() {
+    final MongoDBAggregationTranslator.Translation translation = MongoDBAggregationTranslator.translate("Orders", List.of(//
+        new Document("$group", new Document("_id", "$customer").append("total", new Document("$sum", "$amount"))),//
+        new Document("$match", new Document("total", new Document("$gte", 50))),//
+        new Document("$sort", new Document("_id", 1))));
+
+    assertThat(translation.sql()).contains("FROM (SELECT");
+    assertThat(run(translation)).extracting(d -> d.get("_id")).containsExactly("bob");
+  }
+
+  @Test
+  void compositeGroupKey() {
+    final List<Document> result = run(List.of(//
+        new Document("$group", new Document("_id", new Document("c", "$customer").append("s", "$status")).append("n",
+            new Document("$count", new Document()))),//
+        new Document("$sort", new Document("_id.c", 1).append("_id.s", 1))));
+
+    assertThat(result).extracting(d -> d.get("_id")).containsExactly(//
+        new Document("c", "alice").append("s", "paid"),//
+        new Document("c", "alice").append("s", "pending"),//
+        new Document("c", "bob").append("s", "paid"),//
+        new Document("c", "carol").append("s", "paid"));
+  }
+
+  @Test
+  void groupOfTheWholeCollection() {
+    assertThat(run(List.of(new Document("$group", new Document("_id", null).append("total", new Document("$sum", "$amount"))))))//
+        .containsExactly(new Document("_id", null).append("total", 150));
+
+    assertThat(run(List.of(new Document("$match", new Document("customer", "zed")),
+        new Document("$group", new Document("_id", "$customer").append("total", new Document("$sum", "$amount")))))).isEmpty();
+  }
+
+  @Test
+  void unwindDropsMissingAndEmptyArrays() {
+    assertThat(run(List.of(new Document("$unwind", "$tags"), new Document("$sort", new Document("tags", 1)))))//
+        .extracting(d -> d.get("tags")).containsExactly("a", "a", "b", "c");
+
+    // GROUPING THE UNWOUND VALUES NEEDS THE UNWIND TO RUN FIRST, IN AN INNER STATEMENT
+    assertThat(run(List.of(new Document("$unwind", new Document("path", "$tags")),
+        new Document("$group", new Document("_id", "$tags").append("n", new Document("$sum", 1))),
+        new Document("$sort", new Document("_id", 1)))))//
+        .containsExactly(new Document("_id", "a").append("n", 2L), new Document("_id", "b").append("n", 1L),
+            new Document("_id", "c").append("n", 1L));
+  }
+
+  @Test
+  void projectionIncludesAndRenames() {
+    final List<Document> result = run(List.of(//
+        new Document("$match", new Document("status", "paid")),//
+        new Document("$project", new Document("_id", 0).append("customer", 1).append("spent", "$amount")),//
+        new Document("$sort", new Document("spent", 1)),//
+        new Document("$skip", 1)));
+
+    assertThat(result).containsExactly(//
+        new Document("customer", "bob").append("spent", 20),//
+        new Document("customer", "carol").append("spent", 40),//
+        new Document("customer", "bob").append("spent", 50));
+  }
+
+  @Test
+  void groupFieldsCanBeDroppedByProjection() {
+    assertThat(run(List.of(//
+        new Document("$group", new Document("_id", "$status").append("total", new Document("$sum", "$amount")).append("top",
+            new Document("$max", "$amount"))),//
+        new Document("$project", new Document("_id", 0).append("top", 1)),//
+        new Document("$sort", new Document("top", -1)))))//
+        .containsExactly(new Document("top", 50), new Document("top", 30));
+  }
+
+  @Test
+  void countProducesNoDocumentWhenNothingMatches() {
+    assertThat(run(List.of(new Document("$match", new Document("customer", "alice")), new Document("$count", "n"))))//
+        .containsExactly(new Document("n", 2L));
+    assertThat(run(List.of(new Document("$match", new Document("customer", "zed")), new Document("$count", "n")))).isEmpty();
+  }
+
+  @Test
+  void unsupportedStagesAreNotTranslated() {
+    assertThat(MongoDBAggregationTranslator.translate("Orders",
+        List.of(new Document("$lookup", new Document("from", "Customers"))))).isNull();
+    assertThat(MongoDBAggregationTranslator.translate("Orders",
+        List.of(new Document("$group", new Document("_id", "$customer").append("all", new Document("$push", "$amount")))))).isNull();
+    assertThat(MongoDBAggregationTranslator.translate("Orders",
+        List.of(new Document("$unwind", new Document("path", "$tags").append("includeArrayIndex", "i"))))).isNull();
+    assertThat(MongoDBAggregationTranslator.translate("Orders",
+        List.of(new Document("$match", new Document("customer", new Document("$regex", "^a")))))).isNull();
+    assertThat(MongoDBAggregationTranslator.translate("Orders",
+        List.of(new Document("$match", new Document("tags", null))))).isNull();
+  }
+
+  private List<Document> run(final List<Document> pipeline) {
+    return run(MongoDBAggregationTranslator.translate("Orders", pipeline));
+  }
+
+  private List<Document> run(final MongoDBAggregationTranslator.Translation translation) {
+    assertThat(translation).isNotNull();
+
+    final List<Document> documents = new ArrayList<>();
+    try (final ResultSet resultSet = database.query("sql", translation.sql(), translation.params())) {
+      while (resultSet.hasNext()) {
+        final Document document = translation.converter().apply(resultSet.next());
+        if (document != null)
+          documents.add(document);
+      }
+    }
+    return documents;
+  }
+}
@@ -26,12 +26,18 @@ import com.mongodb.MongoCredential;
 import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Sorts;
 import org.bson.BsonDocument;
 import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.arcadedb.schema.Property.CAT_PROPERTY;
 import static com.arcadedb.schema.Property.RID_PROPERTY;
 import static com.arcadedb.schema.Property.TYPE_PROPERTY;
@@ -130,4 +136,20 @@ public class MongoDBServerTest extends BaseGraphServerTest {
       assertThat(doc.get("id")).isEqualTo(i);
     }
   }
+
+  @Test
+  void aggregateStreamsBatches() {
+    // 10 DOCUMENTS IN BATCHES OF 3: THE FIRST ONE COMES WITH THE COMMAND, THE OTHERS THROUGH getMore
+    final List<Object> ids = new ArrayList<>();
+    for (final Document doc : collection.aggregate(List.of(Aggregates.match(eq("name", "Jay")), Aggregates.sort(Sorts.descending("id"))))
+        .batchSize(3))
+      ids.add(doc.get("id"));
+    assertThat(ids).containsExactly(9, 8, 7, 6, 5, 4, 3, 2, 1, 0);
+
+    final Document total = collection.aggregate(
+        List.of(Aggregates.group("$name", Accumulators.sum("total", "$id"), Accumulators.sum("count", 1)))).first();
+    assertThat(total.get("_id")).isEqualTo("Jay");
+    assertThat(total.get("total")).isEqualTo(45);
+    assertThat(((Number) total.get("count")).intValue()).isEqualTo(10);
+  }
 }
@@ -0,0 +1,792 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.postgres;
+
+import com.arcadedb.database.Binary;
+import com.arcadedb.exception.CommandParsingException;
+import com.arcadedb.exception.ValidationException;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A parsed {@code COPY} statement and the row codecs of its three wire formats (text, CSV and binary), as
+ * PostgreSQL defines them in the COPY reference page. Only the client-side forms are supported -
+ * {@code COPY ... FROM STDIN} and {@code COPY ... TO STDOUT} - because a server-side file path would let a
+ * client read and write files on the database host.
+ * <p>
+ * Both the modern option list ({@code WITH (FORMAT csv, HEADER true)}) and the pre-9.0 keyword syntax
+ * ({@code WITH CSV HEADER}) are accepted, since psql and most drivers still emit the latter.
+ * <p>
+ * This class only knows the statement and the byte layout of a row: the executor owns the protocol messages,
+ * the schema and the transactions.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+final class PostgresCopy {
+  enum Direction {FROM, TO}
+
+  enum Format {TEXT, CSV, BINARY}
+
+  /**
+   * A row reader over the payload of the client's CopyData messages. {@link #next()} answers the raw fields of
+   * the next row - a {@code String} for text and CSV, a {@code byte[]} for binary, null for a NULL field - or
+   * null at the end of the data.
+   */
+  interface RowReader {
+    Object[] next() throws IOException;
+  }
+
+  /**
+   * The client gave up on a {@code COPY FROM STDIN} by sending CopyFail.
+   */
+  static final class ClientAbortException extends RuntimeException {
+    ClientAbortException(final String message) {
+      super(message);
+    }
+  }
+
+  /** The 11-byte signature that opens every binary COPY stream. */
+  static final byte[] BINARY_SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+  final Direction    direction;
+  /** The type to load or unload; null for {@code COPY (query) TO STDOUT}. */
+  final String       typeName;
+  /** The query to unload; null when a type is the target. */
+  final String       query;
+  /** The explicit column list, empty when the statement has none. */
+  final List<String> columns;
+  final Format       format;
+  final char         delimiter;
+  final String       nullString;
+  final boolean      header;
+  final char         quote;
+  final char         escape;
+
+  private final Binary scratch = new Binary(256);
+
+  private PostgresCopy(final Direction direction, final String typeName, final String query, final List<String> columns,
+      final Format format, final Character delimiter, final String nullString, final boolean header, final Character quote,
+      final Character escape) {
+    this.direction = direction;
+    this.typeName = typeName;
+    this.query = query;
+    this.columns = columns;
+    this.format = format;
+    this.delimiter = delimiter != null ? delimiter : format == Format.CSV ? ',' : '\t';
+    this.nullString = nullString != null ? nullString : format == Format.CSV ? "" : "\\N";
+    this.header = header;
+    this.quote = quote != null ? quote : '"';
+    this.escape = escape != null ? escape : this.quote;
+  }
+
+  static boolean isCopyStatement(final String statement) {
+    return statement.regionMatches(true, 0, "COPY", 0, 4) && statement.length() > 4 && //
+        (Character.isWhitespace(statement.charAt(4)) || statement.charAt(4) == '(');
+  }
+
+  /**
+   * Parses a {@code COPY} statement.
+   *
+   * @throws CommandParsingException if the statement is malformed or asks for something unsupported, such as a
+   *                                 server-side file
+   */
+  static PostgresCopy parse(final String statement) {
+    final Lexer lexer = new Lexer(statement);
+    lexer.expectKeyword("COPY");
+
+    String typeName = null;
+    String query = null;
+    List<String> columns = Collections.emptyList();
+    if (lexer.peek() == '(')
+      query = lexer.parenthesised();
+    else {
+      typeName = lexer.identifier();
+      if (lexer.peek() == '(') {
+        lexer.expect('(');
+        columns = new ArrayList<>();
+        do {
+          columns.add(lexer.identifier());
+        } while (lexer.accept(','));
+        lexer.expect(')');
+      }
+    }
+
+    final Direction direction;
+    final String keyword = lexer.word();
+    if ("FROM".equals(keyword)) {
+      direction = Direction.FROM;
+      if (query != null)
+        throw new CommandParsingException("COPY (query) is only supported with TO STDOUT");
+      if (!"STDIN".equals(lexer.word()))
+        throw new CommandParsingException("COPY FROM only supports STDIN: server-side files are not accessible to clients");
+    } else if ("TO".equals(keyword)) {
+      direction = Direction.TO;
+      if (!"STDOUT".equals(lexer.word()))
+        throw new CommandParsingException("COPY TO only supports STDOUT: server-side files are not accessible to clients");
+    } else
+      throw new CommandParsingException("Expected FROM or TO in COPY statement, found '" + keyword + "'");
+
+    Format format = Format.TEXT;
+    Character delimiter = null;
+    String nullString = null;
+    boolean header = false;
+    Character quote = null;
+    Character escape = null;
+
+    lexer.acceptKeyword("WITH");
+    if (lexer.peek() == '(') {
+      // MODERN SYNTAX: WITH (FORMAT csv, DELIMITER ';', ...)
+      lexer.expect('(');
+      do {
+        final String option = lexer.word();
+        switch (option) {
+        case "FORMAT" -> format = formatOf(lexer.word());
+        case "DELIMITER" -> delimiter = singleChar(option, lexer.literal());
+        case "NULL" -> nullString = lexer.literal();
+        case "HEADER" -> header = lexer.peek() == ',' || lexer.peek() == ')' || booleanOf(lexer.word());
+        case "QUOTE" -> quote = singleChar(option, lexer.literal());
+        case "ESCAPE" -> escape = singleChar(option, lexer.literal());
+        case "ENCODING" -> checkEncoding(lexer.literal());
+        case "FREEZE" -> {
+          if (lexer.peek() != ',' && lexer.peek() != ')')
+            lexer.word();
+        }
+        default -> throw new CommandParsingException("COPY option '" + option + "' is not supported");
+        }
+      } while (lexer.accept(','));
+      lexer.expect(')');
+    } else {
+      // LEGACY SYNTAX: [WITH] [BINARY] [DELIMITER [AS] 'c'] [NULL [AS] 'str'] [CSV [HEADER] [QUOTE [AS] 'c'] ...]
+      while (!lexer.atEnd()) {
+        final String option = lexer.word();
+        switch (option) {
+        case "BINARY" -> format = Format.BINARY;
+        case "CSV" -> format = Format.CSV;
+        case "HEADER" -> header = true;
+        case "DELIMITER" -> {
+          lexer.acceptKeyword("AS");
+          delimiter = singleChar(option, lexer.literal());
+        }
+        case "NULL" -> {
+          lexer.acceptKeyword("AS");
+          nullString = lexer.literal();
+        }
+        case "QUOTE" -> {
+          lexer.acceptKeyword("AS");
+          quote = singleChar(option, lexer.literal());
+        }
+        case "ESCAPE" -> {
+          lexer.acceptKeyword("AS");
+          escape = singleChar(option, lexer.literal());
+        }
+        case "ENCODING" -> checkEncoding(lexer.literal());
+        default -> throw new CommandParsingException("COPY option '" + option + "' is not supported");
+        }
+      }
+    }
+
+    if (!lexer.atEnd())
+      throw new CommandParsingException("Unexpected content at the end of the COPY statement: '" + lexer.rest() + "'");
+
+    if (format == Format.BINARY && (delimiter != null || nullString != null || header))
+      throw new CommandParsingException("Cannot specify DELIMITER, NULL or HEADER in BINARY mode");
+    if (format != Format.CSV && (quote != null || escape != null))
+      throw new CommandParsingException("COPY QUOTE and ESCAPE are only available using CSV format");
+    if (delimiter != null && (delimiter == '\n' || delimiter == '\r' || delimiter == '\\' && format == Format.TEXT))
+      throw new CommandParsingException("COPY delimiter cannot be newline, carriage return or backslash");
+
+    return new PostgresCopy(direction, typeName, query, columns, format, delimiter, nullString, header, quote, escape);
+  }
+
+  /**
+   * Opens a reader of the rows in {@code in}.
+   *
+   * @param maxRowSize the longest row (text and CSV, in characters) or field (binary, in bytes) accepted, so a
+   *                   client cannot make the server buffer an unbounded row
+   */
+  RowReader openReader(final InputStream in, final int maxRowSize) {
+    return switch (format) {
+      case TEXT -> {
+        final CharSource source = new CharSource(in, maxRowSize);
+        yield () -> {
+          final String line = source.readLine();
+          return line == null || "\\.".equals(line) ? null : decodeTextLine(line);
+        };
+      }
+      case CSV -> {
+        final CharSource source = new CharSource(in, maxRowSize);
+        yield () -> readCsvRow(source);
+      }
+      case BINARY -> binaryReader(new DataInputStream(in), maxRowSize);
+    };
+  }
+
+  /**
+   * Encodes the opening of the output stream, if the format has one: the signature of a binary stream or the
+   * header line of a text or CSV stream asked for with {@code HEADER}. Answers false if there is none.
+   */
+  boolean encodeHeader(final Binary target, final List<String> columnNames) {
+    if (format == Format.BINARY) {
+      target.putByteArray(BINARY_SIGNATURE);
+      target.putInt(0); // FLAGS
+      target.putInt(0); // HEADER EXTENSION LENGTH
+      return true;
+    }
+    if (!header)
+      return false;
+    encodeLine(target, columnNames.toArray());
+    return true;
+  }
+
+  /**
+   * Encodes one row. {@code types} drives the textual form of each value (booleans as {@code t}/{@code f}, blobs
+   * as {@code \x...} and so on) exactly as a DataRow of the same column would carry it.
+   */
+  void encodeRow(final Binary target, final Object[] values, final PostgresType[] types) {
+    if (format == Format.BINARY) {
+      target.putShort((short) values.length);
+      for (int i = 0; i < values.length; i++)
+        types[i].serializeAsBinary(types[i], target, values[i]);
+      return;
+    }
+
+    final Object[] texts = new Object[values.length];
+    for (int i = 0; i < values.length; i++)
+      texts[i] = values[i] == null ? null : textOf(types[i], values[i]);
+    encodeLine(target, texts);
+  }
+
+  /**
+   * Encodes the trailer a binary stream ends with; text and CSV streams have none.
+   */
+  boolean encodeTrailer(final Binary target) {
+    if (format != Format.BINARY)
+      return false;
+    target.putShort((short) -1);
+    return true;
+  }
+
+  private String textOf(final PostgresType type, final Object value) {
+    scratch.clear();
+    type.serializeAsText(type, scratch, value);
+    final int length = scratch.getInt(0);
+    return length < 0 ? null : new String(scratch.getContent(), scratch.getContentBeginOffset() + 4, length, StandardCharsets.UTF_8);
+  }
+
+  private void encodeLine(final Binary target, final Object[] texts) {
+    final StringBuilder line = new StringBuilder();
+    for (int i = 0; i < texts.length; i++) {
+      if (i > 0)
+        line.append(delimiter);
+      final String text = (String) texts[i];
+      if (format == Format.CSV)
+        appendCsvField(line, text);
+      else
+        appendTextField(line, text);
+    }
+    line.append('\n');
+    target.putByteArray(line.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void appendTextField(final StringBuilder line, final String text) {
+    if (text == null) {
+      line.append(nullString);
+      return;
+    }
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      switch (c) {
+      case '\\' -> line.append("\\\\");
+      case '\n' -> line.append("\\n");
+      case '\r' -> line.append("\\r");
+      case '\t' -> line.append("\\t");
+      case '\b' -> line.append("\\b");
+      case '\f' -> line.append("\\f");
+      case 0x0B -> line.append("\\v");
+      default -> {
+        if (c == delimiter)
+          line.append('\\');
+        line.append(c);
+      }
+      }
+    }
+  }
+
+  private void appendCsvField(final StringBuilder line, final String text) {
+    if (text == null) {
+      line.append(nullString);
+      return;
+    }
+
+    boolean quoted = text.equals(nullString) || text.equals("\\.");
+    for (int i = 0; i < text.length() && !quoted; i++) {
+      final char c = text.charAt(i);
+      quoted = c == delimiter || c == quote || c == '\n' || c == '\r';
+    }
+    if (!quoted) {
+      line.append(text);
+      return;
+    }
+
+    line.append(quote);
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (c == quote || c == escape)
+        line.append(escape);
+      line.append(c);
+    }
+    line.append(quote);
+  }
+
+  /**
+   * Splits a line of the text format into its fields. A field is NULL when its raw, still-escaped content is the
+   * NULL string; otherwise its backslash sequences are decoded.
+   */
+  Object[] decodeTextLine(final String line) {
+    final List<Object> fields = new ArrayList<>();
+    final StringBuilder field = new StringBuilder();
+    int fieldStart = 0;
+    for (int i = 0; i <= line.length(); i++) {
+      if (i == line.length() || line.charAt(i) == delimiter) {
+        fields.add(line.regionMatches(fieldStart, nullString, 0, nullString.length()) && i - fieldStart == nullString.length() ?
+            null :
+            field.toString());
+        field.setLength(0);
+        fieldStart = i + 1;
+        continue;
+      }
+
+      final char c = line.charAt(i);
+      if (c != '\\' || i + 1 == line.length()) {
+        field.append(c);
+        continue;
+      }
+
+      final char next = line.charAt(++i);
+      switch (next) {
+      case 'b' -> field.append('\b');
+      case 'f' -> field.append('\f');
+      case 'n' -> field.append('\n');
+      case 'r' -> field.append('\r');
+      case 't' -> field.append('\t');
+      case 'v' -> field.append((char) 0x0B);
+      case 'x' -> {
+        int end = i + 1;
+        while (end < line.length() && end < i + 3 && Character.digit(line.charAt(end), 16) >= 0)
+          end++;
+        if (end == i + 1)
+          field.append('x');
+        else {
+          field.append((char) Integer.parseInt(line.substring(i + 1, end), 16));
+          i = end - 1;
+        }
+      }
+      default -> {
+        if (next >= '0' && next <= '7') {
+          int end = i + 1;
+          while (end < line.length() && end < i + 3 && line.charAt(end) >= '0' && line.charAt(end) <= '7')
+            end++;
+          field.append((char) Integer.parseInt(line.substring(i, end), 8));
+          i = end - 1;
+        } else
+          field.append(next);
+      }
+      }
+    }
+    return fields.toArray();
+  }
+
+  private Object[] readCsvRow(final CharSource source) throws IOException {
+    int c = source.read();
+    if (c == -1)
+      return null;
+
+    final List<Object> fields = new ArrayList<>();
+    final StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    boolean inQuotes = false;
+    while (true) {
+      if (c == -1) {
+        if (inQuotes)
+          throw new ValidationException("Unterminated CSV quoted field");
+        break;
+      }
+
+      if (inQuotes) {
+        if (c == escape && escape != quote) {
+          final int next = source.read();
+          if (next == quote || next == escape)
+            field.append((char) next);
+          else {
+            field.append((char) c);
+            source.unread(next);
+          }
+        } else if (c == quote && escape == quote) {
+          // A DOUBLED QUOTE IS A LITERAL QUOTE, A SINGLE ONE CLOSES THE FIELD
+          final int next = source.read();
+          if (next == quote)
+            field.append(quote);
+          else {
+            inQuotes = false;
+            source.unread(next);
+          }
+        } else if (c == quote)
+          inQuotes = false;
+        else
+          field.append((char) c);
+      } else if (c == quote) {
+        inQuotes = true;
+        quoted = true;
+      } else if (c == delimiter) {
+        fields.add(!quoted && field.toString().equals(nullString) ? null : field.toString());
+        field.setLength(0);
+        quoted = false;
+      } else if (c == '\n')
+        break;
+      else if (c == '\r') {
+        final int next = source.read();
+        if (next != '\n')
+          source.unread(next);
+        break;
+      } else
+        field.append((char) c);
+
+      source.countRowChar();
+      c = source.read();
+    }
+    source.endRow();
+
+    if (fields.isEmpty() && !quoted && "\\.".contentEquals(field))
+      // END-OF-DATA MARKER
+      return null;
+
+    fields.add(!quoted && field.toString().equals(nullString) ? null : field.toString());
+    return fields.toArray();
+  }
+
+  private static RowReader binaryReader(final DataInputStream in, final int maxFieldSize) {
+    return new RowReader() {
+      private boolean started;
+      private boolean ended;
+
+      @Override
+      public Object[] next() throws IOException {
+        if (ended)
+          return null;
+
+        if (!started) {
+          started = true;
+          final byte[] signature = new byte[BINARY_SIGNATURE.length];
+          in.readFully(signature);
+          if (!Arrays.equals(signature, BINARY_SIGNATURE))
+            throw new ValidationException("COPY file signature not recognized");
+          final int flags = in.readInt();
+          // BITS 0-15 ARE CRITICAL AND BIT 16 ANNOUNCES OIDS, WHICH NO TYPE HERE HAS: BITS 17-31 CAN BE IGNORED
+          if ((flags & 0x1FFFF) != 0)
+            throw new ValidationException("Unrecognized critical flags in COPY file header");
+          in.skipNBytes(in.readInt());
+        }
+
+        final short fieldCount = in.readShort();
+        if (fieldCount == -1) {
+          ended = true;
+          return null;
+        }
+
+        final Object[] fields = new Object[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+          final int length = in.readInt();
+          if (length == -1)
+            continue;
+          if (length < 0 || length > maxFieldSize)
+            throw new ValidationException("Invalid COPY field size " + length + " (max " + maxFieldSize + ")");
+          final byte[] value = new byte[length];
+          in.readFully(value);
+          fields[i] = value;
+        }
+        return fields;
+      }
+    };
+  }
+
+  private static Format formatOf(final String name) {
+    return switch (name) {
+      case "TEXT" -> Format.TEXT;
+      case "CSV" -> Format.CSV;
+      case "BINARY" -> Format.BINARY;
+      default -> throw new CommandParsingException("COPY format '" + name + "' is not recognized");
+    };
+  }
+
+  private static boolean booleanOf(final String value) {
+    return switch (value) {
+      case "TRUE", "ON", "1" -> true;
+      case "FALSE", "OFF", "0" -> false;
+      default -> throw new CommandParsingException("COPY HEADER requires a Boolean value, found '" + value + "'");
+    };
+  }
+
+  private static Character singleChar(final String option, final String value) {
+    if (value.length() != 1)
+      throw new CommandParsingException("COPY " + option + " must be a single one-byte character");
+    return value.charAt(0);
+  }
+
+  private static void checkEncoding(final String encoding) {
+    final String normalized = encoding.replace("-", "").replace("_", "").toUpperCase(Locale.ENGLISH);
+    if (!"UTF8".equals(normalized) && !"UNICODE".equals(normalized))
+      throw new CommandParsingException("COPY encoding '" + encoding + "' is not supported: only UTF8 is");
+  }
+
+  /**
+   * Characters of a text or CSV stream, decoded as UTF-8, with one character of push-back and a cap on the
+   * length of a row.
+   */
+  private static final class CharSource {
+    private final BufferedReader reader;
+    private final int            maxRowSize;
+    private       int            pushedBack = -2;
+    private       int            rowSize;
+
+    private CharSource(final InputStream in, final int maxRowSize) {
+      this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+      this.maxRowSize = maxRowSize;
+    }
+
+    int read() throws IOException {
+      if (pushedBack != -2) {
+        final int c = pushedBack;
+        pushedBack = -2;
+        return c;
+      }
+      return reader.read();
+    }
+
+    void unread(final int c) {
+      pushedBack = c;
+    }
+
+    void countRowChar() {
+      if (++rowSize > maxRowSize)
+        throw new ValidationException("COPY row exceeds the maximum size of " + maxRowSize + " characters");
+    }
+
+    void endRow() {
+      rowSize = 0;
+    }
+
+    /**
+     * Reads a line ended by LF, CR or CR LF, without its terminator. Null at the end of the stream.
+     */
+    String readLine() throws IOException {
+      int c = read();
+      if (c == -1)
+        return null;
+
+      final StringBuilder line = new StringBuilder();
+      while (c != -1 && c != '\n') {
+        if (c == '\r') {
+          final int next = read();
+          if (next != '\n')
+            unread(next);
+          break;
+        }
+        line.append((char) c);
+        countRowChar();
+        c = read();
+      }
+      endRow();
+      return line.toString();
+    }
+  }
+
+  /**
+   * A minimal tokenizer for the COPY grammar. Keywords come back upper-cased; identifiers keep their case and
+   * may be quoted with double quotes or back-ticks (the quoted-identifier rewrite turns the former into the
+   * latter before the statement gets here).
+   */
+  private static final class Lexer {
+    private final String text;
+    private       int    pos;
+
+    private Lexer(final String text) {
+      this.text = text;
+    }
+
+    char peek() {
+      skipWhitespace();
+      return pos < text.length() ? text.charAt(pos) : 0;
+    }
+
+    boolean atEnd() {
+      return peek() == 0;
+    }
+
+    String rest() {
+      return text.substring(pos);
+    }
+
+    boolean accept(final char c) {
+      if (peek() != c)
+        return false;
+      pos++;
+      return true;
+    }
+
+    void expect(final char c) {
+      if (!accept(c))
+        throw new CommandParsingException("Expected '" + c + "' at position " + pos + " of COPY statement");
+    }
+
+    void expectKeyword(final String keyword) {
+      if (!keyword.equals(word()))
+        throw new CommandParsingException("Expected " + keyword + " in COPY statement");
+    }
+
+    void acceptKeyword(final String keyword) {
+      skipWhitespace();
+      final int start = pos;
+      if (!keyword.equals(wordOrNull()))
+        pos = start;
+    }
+
+    String word() {
+      final String word = wordOrNull();
+      if (word == null)
+        throw new CommandParsingException("Unexpected " + (atEnd() ? "end" : "'" + rest() + "'") + " in COPY statement");
+      return word;
+    }
+
+    private String wordOrNull() {
+      skipWhitespace();
+      final int start = pos;
+      while (pos < text.length() && isWordChar(text.charAt(pos)))
+        pos++;
+      return pos == start ? null : text.substring(start, pos).toUpperCase(Locale.ENGLISH);
+    }
+
+    String identifier() {
+      final char c = peek();
+      if (c == '"' || c == '`') {
+        final int end = text.indexOf(c, pos + 1);
+        if (end < 0)
+          throw new CommandParsingException("Unterminated quoted identifier in COPY statement");
+        final String identifier = text.substring(pos + 1, end);
+        pos = end + 1;
+        return identifier;
+      }
+      final int start = pos;
+      while (pos < text.length() && (isWordChar(text.charAt(pos)) || text.charAt(pos) == '@'))
+        pos++;
+      if (pos == start)
+        throw new CommandParsingException("Expected an identifier at position " + pos + " of COPY statement");
+      return text.substring(start, pos);
+    }
+
+    /**
+     * A string literal, either standard ({@code 'it''s'}) or with C-style escapes ({@code E'\t'}).
+     */
+    String literal() {
+      boolean escapes = false;
+      char c = peek();
+      if ((c == 'E' || c == 'e') && pos + 1 < text.length() && text.charAt(pos + 1) == '\'') {
+        escapes = true;
+        pos++;
+        c = '\'';
+      }
+      if (c != '\'')
+        throw new CommandParsingException("Expected a quoted string at position " + pos + " of COPY statement");
+
+      final StringBuilder value = new StringBuilder();
+      for (pos++; pos < text.length(); pos++) {
+        final char ch = text.charAt(pos);
+        if (ch == '\'') {
+          if (pos + 1 < text.length() && text.charAt(pos + 1) == '\'') {
+            value.append('\'');
+            pos++;
+            continue;
+          }
+          pos++;
+          return value.toString();
+        }
+        if (escapes && ch == '\\' && pos + 1 < text.length()) {
+          final char next = text.charAt(++pos);
+          value.append(switch (next) {
+            case 't' -> '\t';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            default -> next;
+          });
+        } else
+          value.append(ch);
+      }
+      throw new CommandParsingException("Unterminated quoted string in COPY statement");
+    }
+
+    /**
+     * The text between a parenthesis at the current position and the one that balances it, skipping the
+     * parentheses inside string literals and quoted identifiers.
+     */
+    String parenthesised() {
+      expect('(');
+      final int start = pos;
+      int depth = 1;
+      char quoteChar = 0;
+      for (; pos < text.length(); pos++) {
+        final char c = text.charAt(pos);
+        if (quoteChar != 0) {
+          if (c == quoteChar)
+            quoteChar = 0;
+        } else if (c == '\'' || c == '"' || c == '`')
+          quoteChar = c;
+        else if (c == '(')
+          depth++;
+        else if (c == ')' && --depth == 0) {
+          final String inner = text.substring(start, pos).trim();
+          pos++;
+          if (inner.isEmpty())
+            throw new CommandParsingException("Empty query in COPY statement");
+          return inner;
+        }
+      }
+      throw new CommandParsingException("Unbalanced parenthesis in COPY statement");
+    }
+
+    private void skipWhitespace() {
+      while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+        pos++;
+    }
+
+    private static boolean isWordChar(final char c) {
+      return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+    }
+  }
+}
@@ -26,6 +26,7 @@ import com.arcadedb.database.DatabaseContext;
 import com.arcadedb.database.DatabaseFactory;
 import com.arcadedb.database.DatabaseInternal;
 import com.arcadedb.database.Document;
+import com.arcadedb.database.MutableDocument;
 import com.arcadedb.database.ProtocolContext;
 import com.arcadedb.database.QueryMetricsRecorder;
 import com.arcadedb.exception.ArithmeticErrorException;
@@ -33,6 +34,7 @@ import com.arcadedb.exception.CauseChain;
 import com.arcadedb.exception.CommandParsingException;
 import com.arcadedb.exception.DatabaseOperationException;
 import com.arcadedb.exception.ErrorCategory;
+import com.arcadedb.exception.ValidationException;
 import com.arcadedb.graph.Edge;
 import com.arcadedb.graph.Vertex;
 import com.arcadedb.log.LogManager;
@@ -56,12 +58,15 @@ import com.arcadedb.query.sql.parser.SelectStatement;
 import com.arcadedb.query.sql.parser.Statement;
 import com.arcadedb.query.sql.parser.WhereClause;
 import com.arcadedb.schema.DocumentType;
+import com.arcadedb.schema.EdgeType;
 import com.arcadedb.schema.Property;
 import com.arcadedb.schema.Type;
+import com.arcadedb.schema.VertexType;
 import com.arcadedb.server.ArcadeDBServer;
 import com.arcadedb.server.monitor.QueryProfile;
 import com.arcadedb.server.monitor.ServerQueryProfiler;
 import com.arcadedb.server.network.PreAuthConnectionGate;
+import com.arcadedb.server.network.WireProtocolConnections;
 import com.arcadedb.server.security.ServerSecurityException;
 import com.arcadedb.server.security.ServerSecurityUser;
 import io.micrometer.core.instrument.Metrics;
@@ -71,12 +76,14 @@ import com.arcadedb.utility.Pair;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.Socket;
 import java.net.SocketException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -102,7 +109,7 @@ import static com.arcadedb.schema.Property.TYPE_PROPERTY;
  *
  * @author Luca Garulli (l.garulli@arcadedata.com)
  */
-public class PostgresNetworkExecutor extends Thread {
+public class PostgresNetworkExecutor implements Runnable {
   public enum ERROR_SEVERITY {FATAL, ERROR}
 
   public static final String PG_SERVER_VERSION = "12.0";
@@ -135,6 +142,8 @@ public class PostgresNetworkExecutor extends Thread {
    * listener that caps them.
    */
   private final PreAuthConnectionGate.Ticket preAuthTicket;
+  /** The listener's connection layer, which accounts for every request; null outside a listener. */
+  private final WireProtocolConnections     connections;
 
   private Database database;
   private int      nextByte                   = 0;
@@ -161,11 +170,16 @@ public class PostgresNetworkExecutor extends Thread {
 
   public PostgresNetworkExecutor(final ArcadeDBServer server, final Socket socket, final Database database,
       final PreAuthConnectionGate.Ticket preAuthTicket) throws IOException {
-    setName(Constants.PRODUCT + "-postgres/" + socket.getInetAddress());
+    this(server, socket, database, preAuthTicket, null);
+  }
+
+  public PostgresNetworkExecutor(final ArcadeDBServer server, final Socket socket, final Database database,
+      final PreAuthConnectionGate.Ticket preAuthTicket, final WireProtocolConnections connections) throws IOException {
     this.server = server;
     this.channel = new ChannelBinaryServer(socket, server.getConfiguration());
     this.database = database;
     this.preAuthTicket = preAuthTicket;
+    this.connections = connections;
 
     // Bound the pre-authentication window (issue #6377). One thread and one file descriptor are committed
     // per accepted connection, before anyone has proved who they are, and the listener caps neither; without
@@ -267,21 +281,23 @@ public class PostgresNetworkExecutor extends Thread {
             if (!readMessage("any", (type, length) -> {
               consecutiveErrors = 0;
 
-              switch (type) {
-              case 'P' -> parseCommand();
-              case 'B' -> bindCommand();
-              case 'E' -> executeCommand();
-              case 'Q' -> queryCommand();
-              case 'S' -> syncCommand();
-              case 'D' -> describeCommand();
-              case 'C' -> closeCommand();
-              case 'H' -> flushCommand();
-              case 'X' -> {
-                // TERMINATE
-                shutdown = true;
-                return;
-              }
-              default -> throw new PostgresProtocolException("Message '" + type + "' not managed");
+              try (final WireProtocolConnections.Request ignored = WireProtocolConnections.beginRequest(connections)) {
+                switch (type) {
+                case 'P' -> parseCommand();
+                case 'B' -> bindCommand();
+                case 'E' -> executeCommand();
+                case 'Q' -> queryCommand();
+                case 'S' -> syncCommand();
+                case 'D' -> describeCommand();
+                case 'C' -> closeCommand();
+                case 'H' -> flushCommand();
+                case 'X' -> {
+                  // TERMINATE
+                  shutdown = true;
+                  return;
+                }
+                default -> throw new PostgresProtocolException("Message '" + type + "' not managed");
+                }
               }
 
             }, 'P', 'B', 'E', 'Q', 'S', 'D', 'C', 'H', 'X'))
@@ -595,6 +611,13 @@ public class PostgresNetworkExecutor extends Thread {
       if (DEBUG)
         LogManager.instance().log(this, Level.INFO, "PSQL: query -> %s ", query);
 
+      if (PostgresCopy.isCopyStatement(query.query)) {
+        final long engineStart = System.nanoTime();
+        copyCommand(PostgresCopy.parse(query.query), query.language, queryText);
+        profile.addEngineNanos(System.nanoTime() - engineStart);
+        return;
+      }
+
       // Reused below for both the schema-fallback and the target-type resolution, but only set in the one
       // branch that reaches database.command(...) below: none of SET/SAVEPOINT/RELEASE/ROLLBACK TO/SHOW/a
       // system query/BEGIN are valid SQL productions (no bare "SET"/"SHOW" statement exists in SQLParser.g4),
@@ -659,6 +682,9 @@ public class PostgresNetworkExecutor extends Thread {
       // See the note on the same arm in executeCommand about the "Syntax error" wording.
       setErrorInTx();
       writeError(ERROR_SEVERITY.ERROR, "Syntax error on executing query: " + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()), sqlStateFor(e));
+    } catch (final PostgresCopy.ClientAbortException e) {
+      setErrorInTx();
+      writeError(ERROR_SEVERITY.ERROR, e.getMessage(), "57014"); // query_canceled, as PostgreSQL answers a CopyFail
     } catch (final Exception e) {
       setErrorInTx();
       writeError(ERROR_SEVERITY.ERROR, "Error on executing query: " + e.getMessage(), sqlStateFor(e));
@@ -672,6 +698,315 @@ public class PostgresNetworkExecutor extends Thread {
     }
   }
 
+  /**
+   * Runs a {@code COPY} statement received through the simple-query protocol, which is where psql's
+   * {@code \copy} and PgJDBC's {@code CopyManager} send it. Both directions stream: rows loaded from STDIN are
+   * saved as they are decoded, and rows unloaded to STDOUT are encoded straight off the result set, so neither
+   * side holds the whole data set in memory.
+   */
+  private void copyCommand(final PostgresCopy copy, final String language, final String queryText) throws IOException {
+    final long rows = copy.direction == PostgresCopy.Direction.FROM ? copyFromStdin(copy) : copyToStdout(copy, language);
+    writeCommandComplete(queryText, (int) Math.min(rows, Integer.MAX_VALUE));
+  }
+
+  /**
+   * {@code COPY type [(columns)] FROM STDIN}. Each row becomes a new document or vertex of the type; a column
+   * whose property is declared is decoded with that property's Postgres type, an undeclared one is stored as
+   * text (or, in binary format, as UTF-8 text). Without a column list the columns are the header of a stream
+   * that has one, or else the declared properties of the type in declaration order.
+   * <p>
+   * Outside an explicit transaction the rows are committed every {@link GlobalConfiguration#POSTGRES_COPY_BATCH_SIZE}
+   * rows, so a large load neither builds one giant transaction nor pays a commit per row; a failure rolls back
+   * the batch in progress only. Inside {@code BEGIN ... COMMIT} the rows join the client's transaction.
+   * <p>
+   * After a failure the rest of the client's data is read and discarded up to its CopyDone or CopyFail, as
+   * PostgreSQL does, so the connection stays aligned on message boundaries.
+   */
+  private long copyFromStdin(final PostgresCopy copy) throws IOException {
+    final DocumentType type = database.getSchema().getType(copy.typeName);
+    if (type instanceof EdgeType)
+      throw new ValidationException("COPY FROM STDIN cannot load edge type '" + copy.typeName + "': edges need their vertices");
+
+    List<String> columns = copy.columns.isEmpty() && !copy.header ? declaredColumnsOf(type) : copy.columns;
+    if (columns.isEmpty() && !copy.header)
+      throw new ValidationException(
+          "COPY FROM STDIN into type '" + copy.typeName + "' needs a column list: the type declares no properties");
+
+    final int columnCount = columns.size();
+    final byte overallFormat = (byte) (copy.format == PostgresCopy.Format.BINARY ? 1 : 0);
+    writeMessage("copy in response", () -> {
+      channel.writeByte(overallFormat);
+      channel.writeShort((short) columnCount);
+      for (int i = 0; i < columnCount; i++)
+        channel.writeShort(overallFormat);
+    }, 'G', 4 + 1 + 2 + 2L * columnCount);
+
+    final CopyInStream in = new CopyInStream();
+    final boolean batched = !explicitTransactionStarted;
+    final int batchSize = Math.max(1, server.getConfiguration().getValueAsInteger(GlobalConfiguration.POSTGRES_COPY_BATCH_SIZE));
+    final boolean vertices = type instanceof VertexType;
+    long rows = 0;
+    try {
+      final PostgresCopy.RowReader reader = copy.openReader(in,
+          server.getConfiguration().getValueAsInteger(GlobalConfiguration.POSTGRES_MAX_PARAM_SIZE));
+
+      if (copy.header) {
+        final Object[] headerRow = reader.next();
+        if (columns.isEmpty() && headerRow != null) {
+          columns = new ArrayList<>(headerRow.length);
+          for (final Object name : headerRow)
+            columns.add(name instanceof String s ? s : String.valueOf(name));
+        }
+      }
+
+      final String[] names = columns.toArray(new String[0]);
+      final PostgresType[] declared = new PostgresType[names.length];
+      for (int i = 0; i < names.length; i++) {
+        final Property property = type.getPolymorphicPropertyIfExists(names[i]);
+        declared[i] = property != null ? PostgresType.getTypeFromArcade(property.getType(), property.getOfType()) : null;
+      }
+
+      if (batched)
+        database.begin();
+
+      for (Object[] fields = reader.next(); fields != null; fields = reader.next()) {
+        if (fields.length != names.length)
+          throw new ValidationException(
+              "COPY row " + (rows + 1) + " has " + fields.length + " field(s), but " + names.length + " column(s) were expected");
+
+        final MutableDocument record = vertices ? database.newVertex(copy.typeName) : database.newDocument(copy.typeName);
+        for (int i = 0; i < names.length; i++)
+          if (fields[i] != null)
+            record.set(names[i], copyValueOf(fields[i], declared[i]));
+        record.save();
+
+        if (++rows % batchSize == 0 && batched) {
+          database.commit();
+          database.begin();
+        }
+      }
+
+      if (batched)
+        database.commit();
+
+      in.drain();
+      return rows;
+
+    } catch (final PostgresCopy.ClientAbortException | PostgresProtocolException e) {
+      // NOTHING LEFT TO DRAIN: THE CLIENT ENDED THE STREAM, OR THE CONNECTION IS ABOUT TO BE CLOSED
+      if (batched && database.isTransactionActive())
+        database.rollback();
+      throw e;
+    } catch (final RuntimeException | IOException e) {
+      if (batched && database.isTransactionActive())
+        database.rollback();
+      in.drainQuietly();
+      if (rows >= batchSize && batched)
+        LogManager.instance().log(this, Level.WARNING, "PSQL: COPY FROM STDIN into '%s' failed after %d row(s), of which the "
+            + "ones in completed batches of %d were committed", copy.typeName, rows, batchSize);
+      throw e;
+    }
+  }
+
+  /**
+   * {@code COPY type [(columns)] TO STDOUT} and {@code COPY (query) TO STDOUT}. Rows are encoded and written as
+   * one CopyData message each while the result set is iterated; the column set is the explicit list, the
+   * declared properties of the type or, failing both, the properties of the first row.
+   */
+  private long copyToStdout(final PostgresCopy copy, final String language) throws IOException {
+    final DocumentType type = copy.typeName != null ? database.getSchema().getType(copy.typeName) : null;
+    final ResultSet resultSet = type != null ?
+        database.query("sql", "SELECT FROM `" + type.getName() + "`", server.getConfiguration()) :
+        database.query(language, copy.query, server.getConfiguration());
+
+    try (resultSet) {
+      Result first = null;
+      while (first == null && resultSet.hasNext())
+        first = resultSet.next();
+
+      List<String> columns = copy.columns;
+      if (columns.isEmpty() && type != null)
+        columns = declaredColumnsOf(type);
+      if (columns.isEmpty() && first != null)
+        columns = new ArrayList<>(first.isElement() ? first.getElement().get().getPropertyNames() : first.getPropertyNames());
+
+      final String[] names = columns.toArray(new String[0]);
+      final PostgresType[] types = new PostgresType[names.length];
+      for (int i = 0; i < names.length; i++) {
+        final Property property = type != null ? type.getPolymorphicPropertyIfExists(names[i]) : null;
+        if (property != null)
+          types[i] = PostgresType.getTypeFromArcade(property.getType(), property.getOfType());
+        else {
+          final Object sample = first != null ? copyValueOf(first, names[i]) : null;
+          types[i] = sample != null ? PostgresType.getTypeForValue(sample) : PostgresType.VARCHAR;
+        }
+      }
+
+      final byte overallFormat = (byte) (copy.format == PostgresCopy.Format.BINARY ? 1 : 0);
+      writeMessage("copy out response", () -> {
+        channel.writeByte(overallFormat);
+        channel.writeShort((short) names.length);
+        for (int i = 0; i < names.length; i++)
+          channel.writeShort(overallFormat);
+      }, 'H', 4 + 1 + 2 + 2L * names.length);
+
+      final Binary payload = new Binary();
+      if (copy.encodeHeader(payload, columns))
+        writeCopyData(payload);
+
+      long rows = 0;
+      final Object[] values = new Object[names.length];
+      for (Result row = first; row != null; row = resultSet.hasNext() ? resultSet.next() : null) {
+        for (int i = 0; i < names.length; i++)
+          values[i] = copyValueOf(row, names[i]);
+        copy.encodeRow(payload, values, types);
+        writeCopyData(payload);
+        ++rows;
+      }
+
+      if (copy.encodeTrailer(payload))
+        writeCopyData(payload);
+
+      writeMessage("copy done", null, 'c', 4);
+      return rows;
+    }
+  }
+
+  /**
+   * Writes the content of {@code payload} as one CopyData message and clears it for the next row. The channel
+   * is not flushed here: its buffer writes through as it fills, and the CopyDone that ends the stream flushes.
+   */
+  private void writeCopyData(final Binary payload) throws IOException {
+    payload.flip();
+    channel.writeByte((byte) 'd');
+    channel.writeUnsignedInt(4 + payload.size());
+    channel.writeBuffer(payload.getByteBuffer());
+    payload.clear();
+  }
+
+  /**
+   * The declared properties of a type, including the inherited ones, in declaration order.
+   */
+  private static List<String> declaredColumnsOf(final DocumentType type) {
+    final List<Property> properties = new ArrayList<>();
+    for (final String name : type.getPolymorphicPropertyNames())
+      properties.add(type.getPolymorphicProperty(name));
+    properties.sort(Comparator.comparingInt(Property::getId));
+
+    final List<String> names = new ArrayList<>(properties.size());
+    for (final Property property : properties)
+      names.add(property.getName());
+    return names;
+  }
+
+  /**
+   * Decodes a raw COPY field: a String from text or CSV, a byte[] from binary.
+   */
+  private static Object copyValueOf(final Object raw, final PostgresType declared) {
+    if (raw instanceof byte[] bytes)
+      return declared != null ?
+          PostgresType.deserialize(declared.code, 1, bytes) :
+          new String(bytes, StandardCharsets.UTF_8);
+
+    if (declared == null || declared == PostgresType.VARCHAR || declared == PostgresType.TEXT)
+      return raw;
+    return PostgresType.deserialize(declared.code, 0, ((String) raw).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Object copyValueOf(final Result row, final String column) {
+    if (row.isElement()) {
+      final Document record = row.getElement().get();
+      if (RID_PROPERTY.equals(column))
+        return record.getIdentity();
+      if (TYPE_PROPERTY.equals(column))
+        return record.getTypeName();
+    }
+    Object value = row.getProperty(column);
+    if (value == null && row.isElement())
+      value = row.getElement().get().get(column);
+    return value;
+  }
+
+  /**
+   * The payload of the client's CopyData messages as one byte stream, ending at its CopyDone. Flush and Sync
+   * are ignored while copying in, as the protocol requires; CopyFail ends the stream with a
+   * {@link PostgresCopy.ClientAbortException}.
+   */
+  private final class CopyInStream extends InputStream {
+    private long    remaining;
+    private boolean done;
+
+    @Override
+    public int read() throws IOException {
+      final byte[] one = new byte[1];
+      return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] target, final int offset, final int length) throws IOException {
+      if (length == 0)
+        return 0;
+      while (remaining == 0) {
+        if (done)
+          return -1;
+        nextMessage();
+      }
+      final int chunk = (int) Math.min(length, remaining);
+      channel.getDataInput().readFully(target, offset, chunk);
+      remaining -= chunk;
+      return chunk;
+    }
+
+    private void nextMessage() throws IOException {
+      final char type = (char) channel.readUnsignedByte();
+      final long length = channel.readUnsignedInt() - 4;
+      switch (type) {
+      case 'd' -> remaining = length;
+      case 'c' -> {
+        readBytes((int) length);
+        done = true;
+      }
+      case 'f' -> {
+        final byte[] message = new byte[(int) length];
+        channel.readBytes(message);
+        done = true;
+        final int end = message.length > 0 && message[message.length - 1] == 0 ? message.length - 1 : message.length;
+        throw new PostgresCopy.ClientAbortException("COPY from stdin failed: " + new String(message, 0, end, StandardCharsets.UTF_8));
+      }
+      case 'H', 'S' -> readBytes((int) length);
+      default -> {
+        readBytes((int) length);
+        throw new PostgresProtocolException("Unexpected message type '" + type + "' during COPY FROM STDIN");
+      }
+      }
+    }
+
+    /**
+     * Reads up to the end of the client's data, which must be consumed before answering.
+     */
+    void drain() throws IOException {
+      while (!done) {
+        if (remaining > 0) {
+          readBytes((int) remaining);
+          remaining = 0;
+        }
+        if (!done)
+          nextMessage();
+      }
+    }
+
+    /**
+     * {@link #drain()} after a failure, where a CopyFail from the client is no news.
+     */
+    void drainQuietly() throws IOException {
+      try {
+        drain();
+      } catch (final PostgresCopy.ClientAbortException e) {
+        // THE STATEMENT ALREADY FAILED: THE ORIGINAL ERROR IS THE ONE REPORTED
+      }
+    }
+  }
+
   private void recordPostgresProfile(final QueryProfile profile, final String language, final String queryText) {
     Metrics.counter("postgres.query").increment();
     Metrics.timer("postgres.query.deserialization").record(profile.getDeserializationNanos(), TimeUnit.NANOSECONDS);
@@ -2323,6 +2658,8 @@ public class PostgresNetworkExecutor extends Thread {
       return "DELETE " + resultSetCount;
     } else if ("BEGIN".equals(upperCaseText) || "BEGIN TRANSACTION".equals(upperCaseText)) {
       return "BEGIN";
+    } else if (PostgresCopy.isCopyStatement(upperCaseText)) {
+      return "COPY " + resultSetCount;
     } else {
       return "";
     }
@@ -18,12 +18,14 @@
  */
 package com.arcadedb.postgres;
 
+import com.arcadedb.Constants;
 import com.arcadedb.exception.ArcadeDBException;
 import com.arcadedb.log.LogManager;
 import com.arcadedb.server.ArcadeDBServer;
 import com.arcadedb.server.ServerException;
 import com.arcadedb.server.network.PreAuthConnectionGate;
 import com.arcadedb.server.network.ServerSocketFactory;
+import com.arcadedb.server.network.WireProtocolConnections;
 
 import java.io.IOException;
 import java.net.*;
@@ -34,6 +36,7 @@ public class PostgresNetworkListener extends Thread {
   private final    ServerSocketFactory    socketFactory;
   /** Bounds how many accepted connections can sit un-authenticated at once (issue #6412). */
   private final    PreAuthConnectionGate  preAuthGate     = new PreAuthConnectionGate("PSQL");
+  private final    WireProtocolConnections connections    = new WireProtocolConnections("postgres");
   private          ServerSocket        serverSocket;
   private volatile boolean             active          = true;
   private final    int                 protocolVersion = -1;
@@ -78,8 +81,8 @@ public class PostgresNetworkListener extends Thread {
           try {
             // CREATE A NEW PROTOCOL INSTANCE
             // TODO: OPEN A DATABASE
-            final PostgresNetworkExecutor connection = new PostgresNetworkExecutor(server, socket, null, ticket);
-            connection.start();
+            final PostgresNetworkExecutor connection = new PostgresNetworkExecutor(server, socket, null, ticket, connections);
+            connections.start(Constants.PRODUCT + "-postgres/" + socket.getInetAddress(), connection);
           } catch (final Exception e) {
             // The executor never started, so nothing will hand the permit back for it.
             ticket.release();
@@ -111,6 +114,10 @@ public class PostgresNetworkListener extends Thread {
       }
   }
 
+  public WireProtocolConnections getConnections() {
+    return connections;
+  }
+
   @Override
   public String toString() {
     return serverSocket.getLocalSocketAddress().toString();
@@ -47,4 +47,8 @@ public class PostgresProtocolPlugin implements ServerPlugin {
     if (listener != null)
       listener.close();
   }
+
+  PostgresNetworkListener getListener() {
+    return listener;
+  }
 }
@@ -18,6 +18,7 @@
  */
 package com.arcadedb.postgres;
 
+import com.arcadedb.server.ServerPlugin;
 import org.junit.jupiter.api.Test;
 
 import java.io.DataInputStream;
@@ -192,15 +193,18 @@ public class Issue6410IdleConnectionIT extends PostgresWireProtocolTestBase {
     return buffer.toString();
   }
 
-  private static Set<Thread> executorThreads() {
+  private Set<Thread> executorThreads() {
+    // Connections run on virtual threads, which Thread.getAllStackTraces() does not list: ask the listener.
     final Set<Thread> threads = new HashSet<>();
-    for (final Thread thread : Thread.getAllStackTraces().keySet())
-      if (thread.getName().startsWith(EXECUTOR_THREAD))
-        threads.add(thread);
+    for (final ServerPlugin plugin : getServer(0).getPlugins())
+      if (plugin instanceof PostgresProtocolPlugin postgres)
+        for (final Thread thread : postgres.getListener().getConnections().getConnectionThreads())
+          if (thread.getName().startsWith(EXECUTOR_THREAD))
+            threads.add(thread);
     return threads;
   }
 
-  private static Thread newExecutorThread(final Set<Thread> before) {
+  private Thread newExecutorThread(final Set<Thread> before) {
     final Set<Thread> now = executorThreads();
     now.removeAll(before);
     assertThat(now).as("the connection must have its own executor thread on the server").hasSize(1);
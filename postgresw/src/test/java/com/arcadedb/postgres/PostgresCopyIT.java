@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.postgres;
+
+import com.arcadedb.GlobalConfiguration;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.util.PSQLException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@code COPY ... FROM STDIN} and {@code COPY ... TO STDOUT} driven through PgJDBC's {@link CopyManager}, the
+ * bulk path psql's {@code \copy} and most ETL tools use.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class PostgresCopyIT extends PostgresWireProtocolTestBase {
+
+  @Test
+  void csvWithHeaderLoadsVerticesAcrossSeveralBatches() throws Exception {
+    GlobalConfiguration.POSTGRES_COPY_BATCH_SIZE.setValue(7);
+    try (final Connection connection = openJdbcConnection()) {
+      createPersonType(connection, "VERTEX");
+
+      final StringBuilder csv = new StringBuilder("name,age\n");
+      for (int i = 0; i < 50; i++)
+        csv.append("\"person, ").append(i).append("\",").append(i).append('\n');
+
+      final long loaded = copyManager(connection).copyIn("COPY Copier FROM STDIN WITH (FORMAT csv, HEADER)",
+          new StringReader(csv.toString()));
+      assertThat(loaded).isEqualTo(50);
+
+      try (final Statement statement = connection.createStatement();
+          final ResultSet resultSet = statement.executeQuery("SELECT count(*) AS total, sum(age) AS ages FROM Copier")) {
+        assertThat(resultSet.next()).isTrue();
+        assertThat(resultSet.getLong("total")).isEqualTo(50);
+        assertThat(resultSet.getLong("ages")).isEqualTo(49 * 50 / 2);
+      }
+    } finally {
+      GlobalConfiguration.POSTGRES_COPY_BATCH_SIZE.reset();
+    }
+  }
+
+  @Test
+  void textFormatLoadsDeclaredColumnsAndNulls() throws Exception {
+    try (final Connection connection = openJdbcConnection()) {
+      createPersonType(connection, "DOCUMENT");
+
+      final long loaded = copyManager(connection).copyIn("COPY Copier (name, age) FROM STDIN",
+          new StringReader("tab\\there\t1\nnobody\t\\N\n"));
+      assertThat(loaded).isEqualTo(2);
+
+      try (final Statement statement = connection.createStatement();
+          final ResultSet resultSet = statement.executeQuery("SELECT name, age FROM Copier ORDER BY name")) {
+        assertThat(resultSet.next()).isTrue();
+        assertThat(resultSet.getString("name")).isEqualTo("nobody");
+        resultSet.getInt("age");
+        assertThat(resultSet.wasNull()).isTrue();
+        assertThat(resultSet.next()).isTrue();
+        assertThat(resultSet.getString("name")).isEqualTo("tab\there");
+        assertThat(resultSet.getInt("age")).isEqualTo(1);
+      }
+    }
+  }
+
+  @Test
+  void copyOutOfAQueryStreamsCsv() throws Exception {
+    try (final Connection connection = openJdbcConnection()) {
+      createPersonType(connection, "DOCUMENT");
+      try (final Statement statement = connection.createStatement()) {
+        statement.execute("INSERT INTO Copier SET name = 'Ada, Countess', age = 36");
+        statement.execute("INSERT INTO Copier SET name = 'Alan', age = 41");
+      }
+
+      final StringWriter out = new StringWriter();
+      final long unloaded = copyManager(connection).copyOut(
+          "COPY (SELECT name, age FROM Copier ORDER BY name) TO STDOUT WITH (FORMAT csv, HEADER)", out);
+      assertThat(unloaded).isEqualTo(2);
+      assertThat(out.toString()).isEqualTo("name,age\n\"Ada, Countess\",36\nAlan,41\n");
+    }
+  }
+
+  @Test
+  void binaryRoundTripsFromOneTypeToAnother() throws Exception {
+    try (final Connection connection = openJdbcConnection()) {
+      createPersonType(connection, "DOCUMENT");
+      try (final Statement statement = connection.createStatement()) {
+        statement.execute("CREATE DOCUMENT TYPE CopierClone");
+        statement.execute("CREATE PROPERTY CopierClone.name STRING");
+        statement.execute("CREATE PROPERTY CopierClone.age INTEGER");
+        for (int i = 0; i < 20; i++)
+          statement.execute("INSERT INTO Copier SET name = 'p" + i + "', age = " + i);
+      }
+
+      final CopyManager copyManager = copyManager(connection);
+      final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+      assertThat(copyManager.copyOut("COPY Copier (name, age) TO STDOUT (FORMAT binary)", binary)).isEqualTo(20);
+      assertThat(copyManager.copyIn("COPY CopierClone (name, age) FROM STDIN (FORMAT binary)",
+          new ByteArrayInputStream(binary.toByteArray()))).isEqualTo(20);
+
+      try (final Statement statement = connection.createStatement();
+          final ResultSet resultSet = statement.executeQuery("SELECT sum(age) AS ages FROM CopierClone WHERE name LIKE 'p%'")) {
+        assertThat(resultSet.next()).isTrue();
+        assertThat(resultSet.getLong("ages")).isEqualTo(19 * 20 / 2);
+      }
+    }
+  }
+
+  @Test
+  void aBadRowFailsTheCopyAndLeavesTheConnectionUsable() throws Exception {
+    try (final Connection connection = openJdbcConnection()) {
+      createPersonType(connection, "DOCUMENT");
+
+      assertThatThrownBy(() -> copyManager(connection).copyIn("COPY Copier (name, age) FROM STDIN",
+          new StringReader("ok\t1\nmissing-a-field\n" + "later\t3\n".repeat(1000))))
+          .isInstanceOf(PSQLException.class)
+          .hasMessageContaining("field(s)");
+
+      assertThat(countCopiers(connection)).isZero();
+    }
+  }
+
+  @Test
+  void aCopyFailFromTheClientRollsBackTheRowsSentSoFar() throws Exception {
+    try (final Connection connection = openJdbcConnection()) {
+      createPersonType(connection, "DOCUMENT");
+
+      final CopyIn copyIn = copyManager(connection).copyIn("COPY Copier (name, age) FROM STDIN");
+      final byte[] row = "abandoned\t1\n".getBytes(StandardCharsets.UTF_8);
+      copyIn.writeToCopy(row, 0, row.length);
+      // PgJDBC sends CopyFail and expects the error response it provokes: it only throws if none comes back.
+      copyIn.cancelCopy();
+
+      assertThat(countCopiers(connection)).isZero();
+    }
+  }
+
+  private static long countCopiers(final Connection connection) throws Exception {
+    try (final Statement statement = connection.createStatement();
+        final ResultSet resultSet = statement.executeQuery("SELECT count(*) AS total FROM Copier")) {
+      assertThat(resultSet.next()).isTrue();
+      return resultSet.getLong("total");
+    }
+  }
+
+  private static void createPersonType(final Connection connection, final String kind) throws Exception {
+    try (final Statement statement = connection.createStatement()) {
+      statement.execute("CREATE " + kind + " TYPE Copier");
+      statement.execute("CREATE PROPERTY Copier.name STRING");
+      statement.execute("CREATE PROPERTY Copier.age INTEGER");
+    }
+  }
+
+  private static CopyManager copyManager(final Connection connection) throws Exception {
+    return connection.unwrap(PGConnection.class).getCopyAPI();
+  }
+
+  private Connection openJdbcConnection() throws Exception {
+    Class.forName("org.postgresql.Driver");
+    final Properties properties = new Properties();
+    properties.setProperty("user", "root");
+    properties.setProperty("password", DEFAULT_PASSWORD_FOR_TESTS);
+    properties.setProperty("ssl", "false");
+    properties.setProperty("sslMode", "disable");
+    return DriverManager.getConnection("jdbc:postgresql://localhost:5432/" + getDatabaseName(), properties);
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.postgres;
+
+import com.arcadedb.database.Binary;
+import com.arcadedb.exception.CommandParsingException;
+import com.arcadedb.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Parsing of the {@code COPY} statement and the text, CSV and binary row codecs of {@link PostgresCopy}.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+class PostgresCopyTest {
+
+  @Test
+  void parsesTheModernOptionList() {
+    final PostgresCopy copy = PostgresCopy.parse(
+        "COPY Person (name, `age`) FROM STDIN WITH (FORMAT csv, HEADER true, DELIMITER ';', NULL 'n/a', QUOTE '''')");
+    assertThat(copy.direction).isEqualTo(PostgresCopy.Direction.FROM);
+    assertThat(copy.typeName).isEqualTo("Person");
+    assertThat(copy.columns).containsExactly("name", "age");
+    assertThat(copy.format).isEqualTo(PostgresCopy.Format.CSV);
+    assertThat(copy.header).isTrue();
+    assertThat(copy.delimiter).isEqualTo(';');
+    assertThat(copy.nullString).isEqualTo("n/a");
+    assertThat(copy.quote).isEqualTo('\'');
+    assertThat(copy.escape).isEqualTo('\'');
+  }
+
+  @Test
+  void parsesTheLegacyKeywordSyntax() {
+    final PostgresCopy copy = PostgresCopy.parse("copy Person to stdout with csv header delimiter as '|'");
+    assertThat(copy.direction).isEqualTo(PostgresCopy.Direction.TO);
+    assertThat(copy.columns).isEmpty();
+    assertThat(copy.format).isEqualTo(PostgresCopy.Format.CSV);
+    assertThat(copy.header).isTrue();
+    assertThat(copy.delimiter).isEqualTo('|');
+  }
+
+  @Test
+  void parsesAQueryWithParenthesesAndStringsInside() {
+    final PostgresCopy copy = PostgresCopy.parse("COPY (SELECT name, (age + 1) AS next FROM Person WHERE name <> ')') TO STDOUT (FORMAT binary)");
+    assertThat(copy.typeName).isNull();
+    assertThat(copy.query).isEqualTo("SELECT name, (age + 1) AS next FROM Person WHERE name <> ')'");
+    assertThat(copy.format).isEqualTo(PostgresCopy.Format.BINARY);
+  }
+
+  @Test
+  void textDefaultsAreTabAndBackslashN() {
+    final PostgresCopy copy = PostgresCopy.parse("COPY Person FROM STDIN");
+    assertThat(copy.format).isEqualTo(PostgresCopy.Format.TEXT);
+    assertThat(copy.delimiter).isEqualTo('\t');
+    assertThat(copy.nullString).isEqualTo("\\N");
+    assertThat(PostgresCopy.parse("COPY Person FROM STDIN WITH (DELIMITER E'\\t')").delimiter).isEqualTo('\t');
+  }
+
+  @Test
+  void rejectsServerSideFilesAndUnsupportedCombinations() {
+    assertThatThrownBy(() -> PostgresCopy.parse("COPY Person FROM '/etc/passwd'")).isInstanceOf(CommandParsingException.class);
+    assertThatThrownBy(() -> PostgresCopy.parse("COPY Person TO '/tmp/out.csv'")).isInstanceOf(CommandParsingException.class);
+    assertThatThrownBy(() -> PostgresCopy.parse("COPY (SELECT FROM Person) FROM STDIN")).isInstanceOf(CommandParsingException.class);
+    assertThatThrownBy(() -> PostgresCopy.parse("COPY Person FROM STDIN (FORMAT binary, HEADER)"))
+        .isInstanceOf(CommandParsingException.class);
+    assertThatThrownBy(() -> PostgresCopy.parse("COPY Person FROM STDIN (QUOTE '\"')")).isInstanceOf(CommandParsingException.class);
+    assertThatThrownBy(() -> PostgresCopy.parse("COPY Person FROM STDIN (FORCE_NULL (name))"))
+        .isInstanceOf(CommandParsingException.class);
+  }
+
+  @Test
+  void recognisesOnlyCopyStatements() {
+    assertThat(PostgresCopy.isCopyStatement("COPY Person FROM STDIN")).isTrue();
+    assertThat(PostgresCopy.isCopyStatement("copy(select 1) to stdout")).isTrue();
+    assertThat(PostgresCopy.isCopyStatement("COPYRIGHT")).isFalse();
+    assertThat(PostgresCopy.isCopyStatement("SELECT FROM Copy")).isFalse();
+  }
+
+  @Test
+  void textFormatDecodesEscapesAndNulls() throws Exception {
+    final PostgresCopy copy = PostgresCopy.parse("COPY Person FROM STDIN");
+    final List<Object[]> rows = readAll(copy, "a\\tb\t\\N\tc\\\\d\\nx\n\\101\\x42\t\t\\N\\N\r\n\\.\nignored\n");
+    assertThat(rows).hasSize(2);
+    assertThat(rows.get(0)).containsExactly("a\tb", null, "c\\d\nx");
+    assertThat(rows.get(1)).containsExactly("AB", "", "NN");
+  }
+
+  @Test
+  void csvFormatHandlesQuotesEmbeddedNewlinesAndNulls() throws Exception {
+    final PostgresCopy copy = PostgresCopy.parse("COPY Person FROM STDIN (FORMAT csv)");
+    final List<Object[]> rows = readAll(copy, "plain,\"with, comma\",\"multi\nline\"\r\n,\"\",\"say \"\"hi\"\"\"\n");
+    assertThat(rows).hasSize(2);
+    assertThat(rows.get(0)).containsExactly("plain", "with, comma", "multi\nline");
+    assertThat(rows.get(1)).containsExactly(null, "", "say \"hi\"");
+  }
+
+  @Test
+  void csvRejectsAnUnterminatedQuote() {
+    final PostgresCopy copy = PostgresCopy.parse("COPY Person FROM STDIN (FORMAT csv)");
+    assertThatThrownBy(() -> readAll(copy, "\"open,field\n")).isInstanceOf(ValidationException.class);
+  }
+
+  @Test
+  void rowsLongerThanTheLimitAreRejected() {
+    final PostgresCopy copy = PostgresCopy.parse("COPY Person FROM STDIN");
+    final PostgresCopy.RowReader reader = copy.openReader(
+        new ByteArrayInputStream("0123456789\n".getBytes(StandardCharsets.UTF_8)), 5);
+    assertThatThrownBy(reader::next).isInstanceOf(ValidationException.class);
+  }
+
+  @Test
+  void textAndCsvEncodingRoundTrip() throws Exception {
+    final Object[] values = { "tab\there", null, "quote\"and,comma", "" };
+    final PostgresType[] types = { PostgresType.VARCHAR, PostgresType.VARCHAR, PostgresType.VARCHAR, PostgresType.VARCHAR };
+
+    for (final String statement : List.of("COPY Person TO STDOUT", "COPY Person TO STDOUT (FORMAT csv)")) {
+      final PostgresCopy copy = PostgresCopy.parse(statement);
+      final Binary encoded = new Binary();
+      copy.encodeRow(encoded, values, types);
+      encoded.flip();
+
+      final List<Object[]> rows = readAll(copy, new String(encoded.toByteArray(), StandardCharsets.UTF_8));
+      assertThat(rows).hasSize(1);
+      assertThat(rows.get(0)).as(statement).containsExactly(values);
+    }
+  }
+
+  @Test
+  void binaryEncodingRoundTrip() throws Exception {
+    final PostgresCopy copy = PostgresCopy.parse("COPY Person TO STDOUT (FORMAT binary)");
+    final Binary encoded = new Binary();
+    assertThat(copy.encodeHeader(encoded, List.of("name", "age"))).isTrue();
+    copy.encodeRow(encoded, new Object[] { "Ada", 36 }, new PostgresType[] { PostgresType.VARCHAR, PostgresType.INTEGER });
+    copy.encodeRow(encoded, new Object[] { null, 7 }, new PostgresType[] { PostgresType.VARCHAR, PostgresType.INTEGER });
+    assertThat(copy.encodeTrailer(encoded)).isTrue();
+    encoded.flip();
+
+    final PostgresCopy.RowReader reader = copy.openReader(new ByteArrayInputStream(encoded.toByteArray()), 1024);
+    final Object[] first = reader.next();
+    assertThat(new String((byte[]) first[0], StandardCharsets.UTF_8)).isEqualTo("Ada");
+    assertThat(PostgresType.deserialize(PostgresType.INTEGER.code, 1, (byte[]) first[1])).isEqualTo(36);
+    final Object[] second = reader.next();
+    assertThat(second[0]).isNull();
+    assertThat(PostgresType.deserialize(PostgresType.INTEGER.code, 1, (byte[]) second[1])).isEqualTo(7);
+    assertThat(reader.next()).isNull();
+  }
+
+  @Test
+  void binaryRejectsAForeignSignature() {
+    final PostgresCopy copy = PostgresCopy.parse("COPY Person FROM STDIN (FORMAT binary)");
+    final PostgresCopy.RowReader reader = copy.openReader(
+        new ByteArrayInputStream("NOTACOPYFILE-----".getBytes(StandardCharsets.UTF_8)), 1024);
+    assertThatThrownBy(reader::next).isInstanceOf(ValidationException.class);
+  }
+
+  private static List<Object[]> readAll(final PostgresCopy copy, final String data) throws Exception {
+    final PostgresCopy.RowReader reader = copy.openReader(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), 1024);
+    final List<Object[]> rows = new ArrayList<>();
+    for (Object[] row = reader.next(); row != null; row = reader.next())
+      rows.add(row);
+    return rows;
+  }
+}
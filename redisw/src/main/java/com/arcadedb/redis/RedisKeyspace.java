@@ -0,0 +1,434 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.redis;
+
+import com.arcadedb.GlobalConfiguration;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * The keyspace Redis RAM commands use for keys that are not bound to a database. One instance is shared by all the
+ * connections of a listener, so a key set on one connection is visible to the others, as in Redis.
+ * <p>
+ * Keys can expire. An expired key is dropped lazily, by the first access that finds it expired, and actively, by
+ * every write, which first removes the keys whose deadline has passed from the head of an index sorted by
+ * deadline. A key nobody touches again still leaves the keyspace on time.
+ * <p>
+ * The keyspace has a memory budget ({@link GlobalConfiguration#REDIS_MAX_MEMORY}), accounted on an estimate of
+ * each entry's footprint. Past the budget, victims are picked the way Redis does it: among a few sampled keys
+ * ({@link GlobalConfiguration#REDIS_EVICTION_SAMPLES}), the least recently used one, or the least frequently used
+ * one by a logarithmic, decaying access counter. Sampling walks the map with a cursor that carries over from one
+ * eviction to the next, so every key is a candidate in turn and no eviction scans the whole keyspace.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class RedisKeyspace {
+  /** What happens to a write once the memory budget is reached. */
+  public enum EvictionPolicy {
+    LRU, LFU, NOEVICTION;
+
+    public static EvictionPolicy parse(final String value) {
+      return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    }
+  }
+
+  /** The condition a SET is subject to: none, only if the key is absent (NX), only if it is present (XX). */
+  public enum SetCondition {
+    ALWAYS, IF_ABSENT, IF_PRESENT
+  }
+
+  /** Deadline meaning "never expires". */
+  public static final long NO_EXPIRATION = -1L;
+
+  // A rough per-entry overhead: the map node, the Entry object and the key String header. Keys and String values
+  // are counted as UTF-16 chars, boxed numbers as a fixed size.
+  private static final int  ENTRY_OVERHEAD        = 96;
+  private static final int  STRING_OVERHEAD       = 40;
+  private static final int  NUMBER_SIZE           = 24;
+  // Bounds the work one write spends on active expiration, so a burst of deadlines is spread over several writes.
+  private static final int  MAX_EXPIRED_PER_WRITE = 64;
+  // LFU counter, as in Redis: new keys start at LFU_INIT so they are not evicted straight away, the counter grows
+  // logarithmically (LFU_LOG_FACTOR) and loses one point per LFU_DECAY_MILLIS without accesses.
+  private static final int  LFU_INIT              = 5;
+  private static final int  LFU_MAX               = 255;
+  private static final int  LFU_LOG_FACTOR        = 10;
+  private static final long LFU_DECAY_MILLIS      = 60_000L;
+
+  private final Map<String, Entry>                    entries          = new ConcurrentHashMap<>();
+  private final ConcurrentSkipListMap<Deadline, String> deadlines      = new ConcurrentSkipListMap<>();
+  private final AtomicLong                            deadlineSequence = new AtomicLong();
+  private final AtomicLong                            usedMemory       = new AtomicLong();
+  private final AtomicLong                            expiredKeys      = new AtomicLong();
+  private final AtomicLong                            evictedKeys      = new AtomicLong();
+  private final Object                                evictionLock     = new Object();
+  private final long                                  maxMemory;
+  private final EvictionPolicy                        policy;
+  private final int                                   samples;
+  private final LongSupplier                          clock;
+  private       Iterator<Map.Entry<String, Entry>>    evictionCursor;
+
+  private record Deadline(long expiresAt, long sequence) implements Comparable<Deadline> {
+    @Override
+    public int compareTo(final Deadline other) {
+      final int cmp = Long.compare(expiresAt, other.expiresAt);
+      return cmp != 0 ? cmp : Long.compare(sequence, other.sequence);
+    }
+  }
+
+  private static final class Entry {
+    private final    Object   value;
+    private final    Deadline deadline;
+    private final    long     size;
+    private volatile long     lastAccess;
+    private volatile int      frequency;
+
+    private Entry(final Object value, final Deadline deadline, final long size, final long now, final int frequency) {
+      this.value = value;
+      this.deadline = deadline;
+      this.size = size;
+      this.lastAccess = now;
+      this.frequency = frequency;
+    }
+
+    private boolean isExpired(final long now) {
+      return deadline != null && deadline.expiresAt <= now;
+    }
+
+    private long expiresAt() {
+      return deadline != null ? deadline.expiresAt : NO_EXPIRATION;
+    }
+
+    private int decayedFrequency(final long now) {
+      final long periods = (now - lastAccess) / LFU_DECAY_MILLIS;
+      return periods >= frequency ? 0 : frequency - (int) periods;
+    }
+
+    private void touch(final long now) {
+      int counter = decayedFrequency(now);
+      if (counter < LFU_MAX) {
+        final double base = Math.max(0, counter - LFU_INIT);
+        if (ThreadLocalRandom.current().nextDouble() < 1.0 / (base * LFU_LOG_FACTOR + 1))
+          ++counter;
+      }
+      frequency = counter;
+      lastAccess = now;
+    }
+  }
+
+  public RedisKeyspace() {
+    this(GlobalConfiguration.REDIS_MAX_MEMORY.getValueAsLong(),
+        EvictionPolicy.parse(GlobalConfiguration.REDIS_EVICTION_POLICY.getValueAsString()),
+        GlobalConfiguration.REDIS_EVICTION_SAMPLES.getValueAsInteger());
+  }
+
+  public RedisKeyspace(final long maxMemory, final EvictionPolicy policy, final int samples) {
+    this(maxMemory, policy, samples, System::currentTimeMillis);
+  }
+
+  RedisKeyspace(final long maxMemory, final EvictionPolicy policy, final int samples, final LongSupplier clock) {
+    this.maxMemory = maxMemory;
+    this.policy = policy;
+    this.samples = Math.max(1, samples);
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the value of a key, or null if it does not exist or has expired.
+   */
+  public Object get(final String key) {
+    final Entry entry = liveEntry(key);
+    return entry != null ? entry.value : null;
+  }
+
+  public boolean contains(final String key) {
+    return liveEntry(key) != null;
+  }
+
+  /**
+   * Removes a key, returning its value or null if it did not exist.
+   */
+  public Object remove(final String key) {
+    final long now = clock.getAsLong();
+    final Object[] removed = new Object[1];
+    entries.computeIfPresent(key, (k, entry) -> {
+      if (!entry.isExpired(now))
+        removed[0] = entry.value;
+      dropped(entry);
+      return null;
+    });
+    return removed[0];
+  }
+
+  /**
+   * Sets a key.
+   *
+   * @param expiresAt absolute deadline in epoch milliseconds, or {@link #NO_EXPIRATION}
+   * @param keepTtl   keeps the deadline of the value being replaced, ignoring {@code expiresAt}
+   *
+   * @return false if the condition prevented the write
+   */
+  public boolean set(final String key, final Object value, final long expiresAt, final SetCondition condition,
+      final boolean keepTtl) {
+    final long now = beforeWrite();
+    final boolean[] written = new boolean[1];
+    entries.compute(key, (k, current) -> {
+      final Entry live = current != null && !current.isExpired(now) ? current : null;
+      if ((condition == SetCondition.IF_ABSENT && live != null) || (condition == SetCondition.IF_PRESENT && live == null)) {
+        if (current != null && live == null) {
+          dropped(current);
+          return null;
+        }
+        return current;
+      }
+
+      written[0] = true;
+      final long deadline = keepTtl && live != null ? live.expiresAt() : expiresAt;
+      return replace(k, current, value, deadline, now);
+    });
+    afterWrite();
+    return written[0];
+  }
+
+  /**
+   * Atomically replaces the value of a key with {@code update} applied to the current one (null if the key does
+   * not exist), keeping the key's deadline, as INCR and its variants do. An exception thrown by {@code update}
+   * leaves the key untouched.
+   */
+  public Object update(final String key, final UnaryOperator<Object> update) {
+    final long now = beforeWrite();
+    final Object[] result = new Object[1];
+    entries.compute(key, (k, current) -> {
+      final Entry live = current != null && !current.isExpired(now) ? current : null;
+      result[0] = update.apply(live != null ? live.value : null);
+      return replace(k, current, result[0], live != null ? live.expiresAt() : NO_EXPIRATION, now);
+    });
+    afterWrite();
+    return result[0];
+  }
+
+  /**
+   * Sets the deadline of an existing key.
+   *
+   * @param expiresAt absolute deadline in epoch milliseconds. A deadline in the past deletes the key.
+   *
+   * @return false if the key does not exist
+   */
+  public boolean expire(final String key, final long expiresAt) {
+    final long now = beforeWrite();
+    final boolean[] found = new boolean[1];
+    entries.computeIfPresent(key, (k, current) -> {
+      if (current.isExpired(now) || expiresAt <= now) {
+        found[0] = !current.isExpired(now);
+        dropped(current);
+        return null;
+      }
+      found[0] = true;
+      return replace(k, current, current.value, expiresAt, now);
+    });
+    return found[0];
+  }
+
+  /**
+   * Removes the deadline of a key.
+   *
+   * @return false if the key does not exist or had no deadline
+   */
+  public boolean persist(final String key) {
+    final long now = clock.getAsLong();
+    final boolean[] persisted = new boolean[1];
+    entries.computeIfPresent(key, (k, current) -> {
+      if (current.isExpired(now)) {
+        dropped(current);
+        return null;
+      }
+      if (current.deadline == null)
+        return current;
+      persisted[0] = true;
+      return replace(k, current, current.value, NO_EXPIRATION, now);
+    });
+    return persisted[0];
+  }
+
+  /**
+   * Returns the milliseconds a key has left to live: -1 if it has no deadline, -2 if it does not exist.
+   */
+  public long ttl(final String key) {
+    final long now = clock.getAsLong();
+    final Entry entry = liveEntry(key);
+    if (entry == null)
+      return -2;
+    return entry.deadline == null ? -1 : Math.max(0, entry.deadline.expiresAt - now);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /** Estimated bytes held by the keyspace. */
+  public long getUsedMemory() {
+    return usedMemory.get();
+  }
+
+  public long getMaxMemory() {
+    return maxMemory;
+  }
+
+  public EvictionPolicy getEvictionPolicy() {
+    return policy;
+  }
+
+  public long getExpiredKeys() {
+    return expiredKeys.get();
+  }
+
+  public long getEvictedKeys() {
+    return evictedKeys.get();
+  }
+
+  /**
+   * Removes the keys whose deadline has passed, up to {@code max}, starting from the earliest.
+   */
+  int expireDue(final int max) {
+    final long now = clock.getAsLong();
+    int expired = 0;
+    while (expired < max) {
+      final Map.Entry<Deadline, String> first = deadlines.firstEntry();
+      if (first == null || first.getKey().expiresAt > now)
+        break;
+
+      final Deadline deadline = first.getKey();
+      entries.computeIfPresent(first.getValue(), (k, entry) -> {
+        if (entry.deadline != deadline)
+          return entry;
+        dropped(entry);
+        expiredKeys.incrementAndGet();
+        return null;
+      });
+      // The entry may already have been replaced, which unlinked this deadline too: remove it anyway.
+      deadlines.remove(deadline);
+      ++expired;
+    }
+    return expired;
+  }
+
+  private Entry liveEntry(final String key) {
+    final Entry entry = entries.get(key);
+    if (entry == null)
+      return null;
+
+    final long now = clock.getAsLong();
+    if (entry.isExpired(now)) {
+      entries.computeIfPresent(key, (k, current) -> {
+        if (current != entry)
+          return current;
+        dropped(current);
+        expiredKeys.incrementAndGet();
+        return null;
+      });
+      return null;
+    }
+
+    entry.touch(now);
+    return entry;
+  }
+
+  private Entry replace(final String key, final Entry current, final Object value, final long expiresAt, final long now) {
+    final Deadline deadline = expiresAt != NO_EXPIRATION ? new Deadline(expiresAt, deadlineSequence.incrementAndGet()) : null;
+    final Entry replacement = new Entry(value, deadline, sizeOf(key, value), now,
+        current != null ? current.frequency : LFU_INIT);
+    if (deadline != null)
+      deadlines.put(deadline, key);
+    if (current != null)
+      dropped(current);
+    replacement.touch(now);
+    usedMemory.addAndGet(replacement.size);
+    return replacement;
+  }
+
+  /** Releases the accounting of an entry that is leaving the map. */
+  private void dropped(final Entry entry) {
+    usedMemory.addAndGet(-entry.size);
+    if (entry.deadline != null)
+      deadlines.remove(entry.deadline);
+  }
+
+  private long beforeWrite() {
+    expireDue(MAX_EXPIRED_PER_WRITE);
+    if (policy == EvictionPolicy.NOEVICTION && maxMemory > 0 && usedMemory.get() >= maxMemory)
+      throw new RedisOutOfMemoryException("command not allowed when used memory > 'maxmemory'");
+    return clock.getAsLong();
+  }
+
+  private void afterWrite() {
+    if (policy != EvictionPolicy.NOEVICTION && maxMemory > 0 && usedMemory.get() > maxMemory)
+      evict();
+  }
+
+  private void evict() {
+    synchronized (evictionLock) {
+      while (usedMemory.get() > maxMemory && !entries.isEmpty()) {
+        final long now = clock.getAsLong();
+
+        Map.Entry<String, Entry> victim = null;
+        for (int i = 0; i < samples; i++) {
+          if (evictionCursor == null || !evictionCursor.hasNext()) {
+            evictionCursor = entries.entrySet().iterator();
+            if (!evictionCursor.hasNext())
+              break;
+          }
+          final Map.Entry<String, Entry> candidate = evictionCursor.next();
+          if (victim == null || isColder(candidate.getValue(), victim.getValue(), now))
+            victim = candidate;
+        }
+
+        if (victim == null)
+          break;
+
+        final Entry entry = victim.getValue();
+        if (entries.remove(victim.getKey(), entry)) {
+          dropped(entry);
+          evictedKeys.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  private boolean isColder(final Entry candidate, final Entry victim, final long now) {
+    if (policy == EvictionPolicy.LFU) {
+      final int candidateFrequency = candidate.decayedFrequency(now);
+      final int victimFrequency = victim.decayedFrequency(now);
+      if (candidateFrequency != victimFrequency)
+        return candidateFrequency < victimFrequency;
+    }
+    return candidate.lastAccess < victim.lastAccess;
+  }
+
+  private static long sizeOf(final String key, final Object value) {
+    final long valueSize = value instanceof CharSequence text ? STRING_OVERHEAD + 2L * text.length() : NUMBER_SIZE;
+    return ENTRY_OVERHEAD + 2L * key.length() + valueSize;
+  }
+}
@@ -36,6 +36,7 @@ import com.arcadedb.serializer.json.JSONArray;
 import com.arcadedb.serializer.json.JSONObject;
 import com.arcadedb.server.ArcadeDBServer;
 import com.arcadedb.server.network.PreAuthConnectionGate;
+import com.arcadedb.server.network.WireProtocolConnections;
 import com.arcadedb.server.security.ServerSecurityException;
 import com.arcadedb.server.security.ServerSecurityUser;
 import com.arcadedb.utility.NumberUtils;
@@ -48,12 +49,12 @@ import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 
-public class RedisNetworkExecutor extends Thread {
+public class RedisNetworkExecutor implements Runnable {
   private final    ArcadeDBServer      server;
   private final    ChannelBinaryServer channel;
   private volatile boolean             shutdown         = false;
@@ -61,7 +62,10 @@ public class RedisNetworkExecutor extends Thread {
   private final    StringBuilder       value            = new StringBuilder();
   private final    byte[]              buffer           = new byte[32 * 1024];
   private          int                 bytesRead        = 0;
-  private final    Map<String, Object> defaultBucket    = new ConcurrentHashMap<>();
+  /** Where RAM commands keep the keys not bound to a database: shared by the listener's connections. */
+  private final    RedisKeyspace       keyspace;
+  /** True once a reply was written and not flushed yet: see {@link #readNext()}. */
+  private          boolean             replyPending     = false;
   private          String              selectedDatabaseName = null;
   private          ServerSecurityUser  authenticatedUser    = null;
   /**
@@ -69,6 +73,8 @@ public class RedisNetworkExecutor extends Thread {
    * or when it goes away without ever doing so (issue #6412).
    */
   private final    PreAuthConnectionGate.Ticket preAuthTicket;
+  /** The listener's connection layer, which accounts for every command; null outside a listener. */
+  private final    WireProtocolConnections connections;
   private final    int                 maxMultiBulkDepth;
   private final    int                 maxMultiBulkLength;
   private final    int                 maxBulkLength;
@@ -85,6 +91,11 @@ public class RedisNetworkExecutor extends Thread {
   // since those only fire once a token has actually been parsed (issue #5895 review, round 6).
   private static final int MAX_TOKEN_LENGTH = 64;
 
+  // Bounds how long, and how much, a connection closed on a protocol error keeps reading what the client is still
+  // sending (see drainInputBeforeClose()).
+  private static final int DRAIN_TIMEOUT_MS  = 1_000;
+  private static final int MAX_DRAINED_BYTES = 4 * 1024 * 1024;
+
   /**
    * Holds the resolved key and database from key resolution.
    */
@@ -97,8 +108,20 @@ public class RedisNetworkExecutor extends Thread {
 
   public RedisNetworkExecutor(final ArcadeDBServer server, final Socket socket,
       final PreAuthConnectionGate.Ticket preAuthTicket) throws IOException {
+    this(server, socket, preAuthTicket, null);
+  }
+
+  public RedisNetworkExecutor(final ArcadeDBServer server, final Socket socket,
+      final PreAuthConnectionGate.Ticket preAuthTicket, final WireProtocolConnections connections) throws IOException {
+    this(server, socket, preAuthTicket, connections, new RedisKeyspace());
+  }
+
+  public RedisNetworkExecutor(final ArcadeDBServer server, final Socket socket,
+      final PreAuthConnectionGate.Ticket preAuthTicket, final WireProtocolConnections connections,
+      final RedisKeyspace keyspace) throws IOException {
     this.preAuthTicket = preAuthTicket;
-    setName(Constants.PRODUCT + "-redis/" + socket.getInetAddress());
+    this.connections = connections;
+    this.keyspace = keyspace;
     this.server = server;
     this.channel = new ChannelBinaryServer(socket, server.getConfiguration());
     this.maxMultiBulkDepth = sanitizedLimit(GlobalConfiguration.REDIS_MAX_MULTIBULK_DEPTH, 2);
@@ -126,7 +149,7 @@ public class RedisNetworkExecutor extends Thread {
         this.selectedDatabaseName = defaultDbName;
       else
         LogManager.instance().log(this, Level.WARNING,
-            "Redis wrapper: Default database '%s' not found, will use connection-local storage", defaultDbName);
+            "Redis wrapper: Default database '%s' not found, will use the shared keyspace", defaultDbName);
     }
   }
 
@@ -160,9 +183,15 @@ public class RedisNetworkExecutor extends Thread {
     try {
       while (!shutdown) {
         try {
-          executeCommand(parseNext());
+          final Object command = parseNext();
+
+          try (final WireProtocolConnections.Request ignored = WireProtocolConnections.beginRequest(connections)) {
+            executeCommand(command);
 
-          replyToClient(value);
+            // Not flushed here: a pipelining client sends a batch of commands before reading any reply, so the
+            // replies are flushed together once the commands already received are drained (see readNext()).
+            writeReply(value);
+          }
 
         } catch (final EOFException | SocketException e) {
           LogManager.instance().log(this, Level.FINE, "Redis wrapper: Error on reading request", e);
@@ -185,6 +214,7 @@ public class RedisNetworkExecutor extends Thread {
             value.append("-ERR ").append(respErrorMessage(e));
             appendCrLf();
             replyToClient(value);
+            drainInputBeforeClose();
           } catch (final IOException ignored) {
             // the connection is already gone; nothing left to notify
           }
@@ -202,16 +232,48 @@ public class RedisNetworkExecutor extends Thread {
   }
 
   public void replyToClient(final StringBuilder response) throws IOException {
+    writeReply(response);
+    flushReplies();
+  }
+
+  private void writeReply(final StringBuilder response) throws IOException {
     LogManager.instance().log(this, Level.FINE, "Redis wrapper: Sending response back to the client '%s'...", response);
 
     final byte[] buffer = response.toString().getBytes(DatabaseFactory.getDefaultCharset());
 
     channel.outStream.write(buffer);
-    channel.flush();
+    replyPending = true;
 
     response.setLength(0);
   }
 
+  private void flushReplies() throws IOException {
+    if (replyPending) {
+      channel.flush();
+      replyPending = false;
+    }
+  }
+
+  /**
+   * Reads and discards what the client is still sending before a connection rejected on a protocol error is closed.
+   * The client may be in the middle of writing the offending message, and closing a socket with unread input makes
+   * the kernel answer with a reset: the client then fails on its write without ever seeing the error reply. The
+   * output is shut down first, so the client reads the reply followed by the end of the stream.
+   */
+  private void drainInputBeforeClose() throws IOException {
+    channel.socket.shutdownOutput();
+    channel.socket.setSoTimeout(DRAIN_TIMEOUT_MS);
+
+    final long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+    long drained = bytesRead - posInBuffer;
+    while (drained < MAX_DRAINED_BYTES && System.currentTimeMillis() < deadline) {
+      final int read = channel.inStream.read(buffer);
+      if (read < 0)
+        break;
+      drained += read;
+    }
+  }
+
   public void close() {
     shutdown = true;
     releasePreAuthTicket();
@@ -251,7 +313,7 @@ public class RedisNetworkExecutor extends Thread {
       // below is written to expect one as an argument (issue #5911 made it reachable here at all, since the
       // $ branch used to desync instead of returning null). Reject it uniformly, with a clean protocol
       // error, rather than letting whichever handler happens to touch it first crash with a raw
-      // NullPointerException it wasn't written to expect - e.g. defaultBucket is a ConcurrentHashMap, whose
+      // NullPointerException it wasn't written to expect - e.g. the keyspace is a ConcurrentHashMap, whose
       // put/get reject a null key or value outright, so "SET key $-1" or "GET $-1" would otherwise NPE deep
       // inside setVariable/getVariable instead of getting a clear, single reply.
       // Deliberately checks only top-level (depth-1) arguments: a $-1 nested inside a multibulk argument
@@ -306,6 +368,18 @@ public class RedisNetworkExecutor extends Thread {
             decrBy(list);
             break;
 
+          case "DEL":
+            del(list);
+            break;
+
+          case "EXPIRE":
+            expire(list, 1000L, false);
+            break;
+
+          case "EXPIREAT":
+            expire(list, 1000L, true);
+            break;
+
           case "GET":
             get(list);
             break;
@@ -351,6 +425,26 @@ public class RedisNetworkExecutor extends Thread {
             incrBy(list, true);
             break;
 
+          case "MGET":
+            mGet(list);
+            break;
+
+          case "MSET":
+            mSet(list);
+            break;
+
+          case "PERSIST":
+            persist(list);
+            break;
+
+          case "PEXPIRE":
+            expire(list, 1L, false);
+            break;
+
+          case "PEXPIREAT":
+            expire(list, 1L, true);
+            break;
+
           case "PING":
             ping(list);
             break;
@@ -359,10 +453,26 @@ public class RedisNetworkExecutor extends Thread {
             select(list);
             break;
 
+          case "PSETEX":
+            setEx(list, 1L);
+            break;
+
+          case "PTTL":
+            ttl(list, 1L);
+            break;
+
           case "SET":
             set(list);
             break;
 
+          case "SETEX":
+            setEx(list, 1000L);
+            break;
+
+          case "TTL":
+            ttl(list, 1000L);
+            break;
+
           default:
             value.append("-Command not found");
         }
@@ -392,8 +502,12 @@ public class RedisNetworkExecutor extends Thread {
    * {@code TRYAGAIN} is the closest RESP2 offers, but in real Redis it is a cluster-mode error, so several client
    * libraries will not auto-retry on it. The retry hint is therefore weaker here than Postgres' {@code 40001} or
    * Bolt's transient status - it is the best signal the protocol has, not an equivalent one.
+   * <p>
+   * A write refused by a full keyspace answers {@code OOM}, as Redis does.
    */
   static String respErrorPrefix(final Throwable error) {
+    if (error instanceof RedisOutOfMemoryException)
+      return "OOM";
     return switch (ErrorCategory.of(error)) {
       case RETRY -> "TRYAGAIN";
       case SECURITY -> "NOPERM";
@@ -416,22 +530,20 @@ public class RedisNetworkExecutor extends Thread {
     final String k = (String) list.get(1);
     final int by = list.size() > 2 ? Integer.parseInt((String) list.get(2)) : 1;
 
-    Object number = getVariable(k);
-    if (number == null) {
-      number = 0L;
-    } else if (!(number instanceof Number)) {
-      if (NumberUtils.isIntegerNumber(number.toString()))
-        number = Long.parseLong(number.toString());
-      else
-        throw new RedisException("Key '" + k + "' is not a number");
-    }
-
-    final Number newValue = Type.decrement((Number) number, by);
-    setVariable(k, newValue);
+    final Object newValue = updateVariable(k, current -> Type.decrement(toNumber(k, current), by));
     value.append(":");
     value.append(newValue);
   }
 
+  private void del(final List<Object> list) {
+    checkArguments(list, 2, "del");
+    int total = 0;
+    for (int i = 1; i < list.size(); i++)
+      total += removeVariable((String) list.get(i)) != null ? 1 : 0;
+
+    respondValue(total, false);
+  }
+
   private void exists(final List<Object> list) {
     int total = 0;
     for (int i = 1; i < list.size(); i++)
@@ -643,30 +755,158 @@ public class RedisNetworkExecutor extends Thread {
     } else
       by = 1;
 
-    Object number = getVariable(k);
-    if (number == null) {
-      number = 0L;
-    } else if (!(number instanceof Number)) {
-      if (NumberUtils.isIntegerNumber(number.toString()))
-        number = Long.parseLong(number.toString());
-      else
-        throw new RedisException("Key '" + k + "' is not a number");
-    }
-
-    final Number newValue = Type.increment((Number) number, by);
-    setVariable(k, newValue);
+    final Object newValue = updateVariable(k, current -> Type.increment(toNumber(k, current), by));
     value.append(newValue instanceof Long ? ":" : "+");
     value.append(newValue);
   }
 
+  /**
+   * The numeric value of a key for INCR/DECR and their variants: 0 for a missing key, the parsed value for a
+   * string holding an integer.
+   */
+  private static Number toNumber(final String k, final Object number) {
+    if (number == null)
+      return 0L;
+    if (number instanceof Number n)
+      return n;
+    if (NumberUtils.isIntegerNumber(number.toString()))
+      return Long.parseLong(number.toString());
+    throw new RedisException("Key '" + k + "' is not a number");
+  }
+
+  private void mGet(final List<Object> list) {
+    checkArguments(list, 2, "mget");
+    value.append("*");
+    value.append(list.size() - 1);
+
+    for (int i = 1; i < list.size(); i++) {
+      appendCrLf();
+      respondValue(getVariable((String) list.get(i)), true);
+    }
+  }
+
+  private void mSet(final List<Object> list) {
+    if (list.size() < 3 || list.size() % 2 == 0)
+      throw new RedisException("wrong number of arguments for 'mset' command");
+
+    for (int i = 1; i < list.size(); i += 2)
+      setVariable((String) list.get(i), list.get(i + 1));
+    value.append("+");
+    value.append("OK");
+  }
+
+  /**
+   * {@code SET key value [NX | XX] [EX seconds | PX milliseconds | EXAT unix-time-seconds |
+   * PXAT unix-time-milliseconds | KEEPTTL]}. Answers {@code OK}, or a null bulk string when the NX/XX condition
+   * prevented the write.
+   */
   private void set(final List<Object> list) {
+    checkArguments(list, 3, "set");
     final String k = (String) list.get(1);
     final String v = (String) list.get(2);
-    setVariable(k, v);
+
+    long expiresAt = RedisKeyspace.NO_EXPIRATION;
+    RedisKeyspace.SetCondition condition = RedisKeyspace.SetCondition.ALWAYS;
+    boolean keepTtl = false;
+    for (int i = 3; i < list.size(); i++) {
+      final String option = ((String) list.get(i)).toUpperCase(Locale.ENGLISH);
+      switch (option) {
+        case "NX" -> condition = RedisKeyspace.SetCondition.IF_ABSENT;
+        case "XX" -> condition = RedisKeyspace.SetCondition.IF_PRESENT;
+        case "KEEPTTL" -> keepTtl = true;
+        case "EX", "PX", "EXAT", "PXAT" -> {
+          if (++i >= list.size())
+            throw new RedisException("syntax error");
+          final long amount = parseInteger((String) list.get(i));
+          if (amount <= 0)
+            throw new RedisException("invalid expire time in 'set' command");
+          expiresAt = deadlineOf(amount, option.startsWith("P") ? 1L : 1000L, option.endsWith("AT"));
+        }
+        default -> throw new RedisException("syntax error");
+      }
+    }
+    if (keepTtl && expiresAt != RedisKeyspace.NO_EXPIRATION)
+      throw new RedisException("syntax error");
+
+    if (setVariable(k, v, expiresAt, condition, keepTtl)) {
+      value.append("+");
+      value.append("OK");
+    } else
+      respondValue(null, true);
+  }
+
+  /**
+   * {@code SETEX key seconds value} and {@code PSETEX key milliseconds value}.
+   */
+  private void setEx(final List<Object> list, final long unitMillis) {
+    checkArguments(list, 4, unitMillis == 1L ? "psetex" : "setex");
+    final long amount = parseInteger((String) list.get(2));
+    if (amount <= 0)
+      throw new RedisException("invalid expire time in '" + (unitMillis == 1L ? "psetex" : "setex") + "' command");
+
+    setVariable((String) list.get(1), list.get(3), deadlineOf(amount, unitMillis, false), RedisKeyspace.SetCondition.ALWAYS,
+        false);
     value.append("+");
     value.append("OK");
   }
 
+  /**
+   * {@code EXPIRE}, {@code PEXPIRE}, {@code EXPIREAT} and {@code PEXPIREAT}. A deadline already in the past deletes
+   * the key, as in Redis.
+   */
+  private void expire(final List<Object> list, final long unitMillis, final boolean absolute) {
+    checkArguments(list, 3, "expire");
+    final long expiresAt = deadlineOf(parseInteger((String) list.get(2)), unitMillis, absolute);
+    respondValue(expireVariable((String) list.get(1), expiresAt) ? 1 : 0, false);
+  }
+
+  /**
+   * {@code TTL} and {@code PTTL}: the time a key has left to live, -1 if it has no deadline, -2 if it does not exist.
+   */
+  private void ttl(final List<Object> list, final long unitMillis) {
+    checkArguments(list, 2, unitMillis == 1L ? "pttl" : "ttl");
+    final ResolvedKey resolved = resolveKeyAndDatabase((String) list.get(1));
+
+    final long remaining;
+    if (resolved.database() != null)
+      // Database global variables never expire.
+      remaining = resolved.database().getGlobalVariable(resolved.key()) != null ? -1 : -2;
+    else {
+      final long millis = keyspace.ttl(resolved.key());
+      remaining = millis < 0 ? millis : (millis + unitMillis / 2) / unitMillis;
+    }
+    respondValue(remaining, false);
+  }
+
+  private void persist(final List<Object> list) {
+    checkArguments(list, 2, "persist");
+    final ResolvedKey resolved = resolveKeyAndDatabase((String) list.get(1));
+    respondValue(resolved.database() == null && keyspace.persist(resolved.key()) ? 1 : 0, false);
+  }
+
+  private static long deadlineOf(final long amount, final long unitMillis, final boolean absolute) {
+    final long millis;
+    try {
+      millis = Math.multiplyExact(amount, unitMillis);
+      return absolute ? millis : Math.addExact(System.currentTimeMillis(), millis);
+    } catch (final ArithmeticException e) {
+      throw new RedisException("invalid expire time");
+    }
+  }
+
+  private static long parseInteger(final String text) {
+    try {
+      return Long.parseLong(text);
+    } catch (final NumberFormatException e) {
+      throw new RedisException("value is not an integer or out of range");
+    }
+  }
+
+  private static void checkArguments(final List<Object> list, final int min, final String command) {
+    if (list.size() < min)
+      throw new RedisException("wrong number of arguments for '" + command + "' command");
+  }
+
   private void ping(final List<Object> list) {
     final String response = list.size() > 1 ? (String) list.get(1) : "PONG";
     value.append("+");
@@ -786,7 +1026,7 @@ public class RedisNetworkExecutor extends Thread {
     appendHelloEntry("server", Constants.PRODUCT.toLowerCase(Locale.ENGLISH));
     appendHelloEntry("version", Constants.getVersion());
     appendHelloEntry("proto", 2L);
-    appendHelloEntry("id", threadId());
+    appendHelloEntry("id", Thread.currentThread().threadId());
     appendHelloEntry("mode", "standalone");
     appendHelloEntry("role", "master");
     // "modules" maps to an empty array.
@@ -835,10 +1075,10 @@ public class RedisNetworkExecutor extends Thread {
 
   /**
    * Resolves the database and actual key from a potentially prefixed key.
-   * Priority: key prefix (dbname.key) > SELECT > default config > connection-local bucket.
+   * Priority: key prefix (dbname.key) > SELECT > default config > the listener's shared keyspace.
    *
    * @param key the key which may contain a database prefix (e.g., "mydb.mykey")
-   * @return ResolvedKey containing the resolved key and database (database may be null if using local bucket)
+   * @return ResolvedKey containing the resolved key and database (database may be null if using the shared keyspace)
    */
   private ResolvedKey resolveKeyAndDatabase(final String key) {
     // Check for database prefix (dbname.key)
@@ -865,17 +1105,53 @@ public class RedisNetworkExecutor extends Thread {
     if (resolved.database() != null) {
       return resolved.database().getGlobalVariable(resolved.key());
     }
-    return defaultBucket.get(resolved.key());
+    return keyspace.get(resolved.key());
   }
 
   private void setVariable(final String key, final Object value) {
+    setVariable(key, value, RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+  }
+
+  private boolean setVariable(final String key, final Object value, final long expiresAt,
+      final RedisKeyspace.SetCondition condition, final boolean keepTtl) {
     final ResolvedKey resolved = resolveKeyAndDatabase(key);
 
     if (resolved.database() != null) {
+      if (expiresAt != RedisKeyspace.NO_EXPIRATION)
+        throw new RedisException("Key expiration is not supported on database global variables");
+
+      if (condition != RedisKeyspace.SetCondition.ALWAYS) {
+        final boolean exists = resolved.database().getGlobalVariable(resolved.key()) != null;
+        if (exists != (condition == RedisKeyspace.SetCondition.IF_PRESENT))
+          return false;
+      }
       resolved.database().setGlobalVariable(resolved.key(), value);
-    } else {
-      defaultBucket.put(resolved.key(), value);
+      return true;
     }
+    return keyspace.set(resolved.key(), value, expiresAt, condition, keepTtl);
+  }
+
+  /**
+   * Replaces the value of a key with {@code update} applied to the current one. Atomic on the shared keyspace, where
+   * several connections may update the same counter at once.
+   */
+  private Object updateVariable(final String key, final UnaryOperator<Object> update) {
+    final ResolvedKey resolved = resolveKeyAndDatabase(key);
+
+    if (resolved.database() != null) {
+      final Object newValue = update.apply(resolved.database().getGlobalVariable(resolved.key()));
+      resolved.database().setGlobalVariable(resolved.key(), newValue);
+      return newValue;
+    }
+    return keyspace.update(resolved.key(), update);
+  }
+
+  private boolean expireVariable(final String key, final long expiresAt) {
+    final ResolvedKey resolved = resolveKeyAndDatabase(key);
+
+    if (resolved.database() != null)
+      throw new RedisException("Key expiration is not supported on database global variables");
+    return keyspace.expire(resolved.key(), expiresAt);
   }
 
   private Object removeVariable(final String key) {
@@ -885,7 +1161,7 @@ public class RedisNetworkExecutor extends Thread {
       // Use setGlobalVariable which atomically returns the previous value
       return resolved.database().setGlobalVariable(resolved.key(), null);
     }
-    return defaultBucket.remove(resolved.key());
+    return keyspace.remove(resolved.key());
   }
 
   private boolean containsVariable(final String key) {
@@ -894,7 +1170,7 @@ public class RedisNetworkExecutor extends Thread {
     if (resolved.database() != null) {
       return resolved.database().getGlobalVariable(resolved.key()) != null;
     }
-    return defaultBucket.containsKey(resolved.key());
+    return keyspace.contains(resolved.key());
   }
 
   private Object parseNext() throws IOException {
@@ -1071,6 +1347,9 @@ public class RedisNetworkExecutor extends Thread {
 
     posInBuffer = 0;
 
+    // Every command received so far has been answered: flush the replies before blocking for more input.
+    flushReplies();
+
     do {
       bytesRead = channel.inStream.read(buffer);
 
@@ -18,12 +18,14 @@
  */
 package com.arcadedb.redis;
 
+import com.arcadedb.Constants;
 import com.arcadedb.exception.ArcadeDBException;
 import com.arcadedb.log.LogManager;
 import com.arcadedb.server.ArcadeDBServer;
 import com.arcadedb.server.ServerException;
 import com.arcadedb.server.network.PreAuthConnectionGate;
 import com.arcadedb.server.network.ServerSocketFactory;
+import com.arcadedb.server.network.WireProtocolConnections;
 
 import java.io.IOException;
 import java.net.*;
@@ -38,6 +40,9 @@ public class RedisNetworkListener extends Thread {
   private              ClientConnected     callback;
   /** Bounds how many accepted connections can sit un-authenticated at once (issue #6412). */
   private final        PreAuthConnectionGate preAuthGate = new PreAuthConnectionGate("Redis wrapper");
+  private final        WireProtocolConnections connections = new WireProtocolConnections("redis");
+  /** The keys RAM commands set outside a database, shared by all the connections of this listener. */
+  private final        RedisKeyspace       keyspace    = new RedisKeyspace();
 
   public interface ClientConnected {
     void connected();
@@ -78,8 +83,8 @@ public class RedisNetworkListener extends Thread {
 
           try {
             // CREATE A NEW PROTOCOL INSTANCE
-            final RedisNetworkExecutor connection = new RedisNetworkExecutor(server, socket, ticket);
-            connection.start();
+            final RedisNetworkExecutor connection = new RedisNetworkExecutor(server, socket, ticket, connections, keyspace);
+            connections.start(Constants.PRODUCT + "-redis/" + socket.getInetAddress(), connection);
           } catch (final Exception e) {
             // The executor never started, so nothing will hand the permit back for it.
             ticket.release();
@@ -114,6 +119,14 @@ public class RedisNetworkListener extends Thread {
       }
   }
 
+  public WireProtocolConnections getConnections() {
+    return connections;
+  }
+
+  public RedisKeyspace getKeyspace() {
+    return keyspace;
+  }
+
   public void setCallback(final ClientConnected callback) {
     this.callback = callback;
   }
@@ -0,0 +1,31 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.redis;
+
+/**
+ * Thrown when a write would grow the Redis keyspace past {@code arcadedb.redis.maxMemory} and the eviction policy
+ * is {@code noeviction}. Answered with an {@code OOM} error reply, as Redis does.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class RedisOutOfMemoryException extends RedisException {
+  public RedisOutOfMemoryException(final String message) {
+    super(message);
+  }
+}
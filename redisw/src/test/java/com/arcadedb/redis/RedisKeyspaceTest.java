@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.redis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the shared Redis keyspace: expiration, memory budget and eviction, on a controlled clock.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+class RedisKeyspaceTest {
+  private final AtomicLong now = new AtomicLong(1_000_000L);
+
+  @Test
+  void aKeyExpiresAtItsDeadline() {
+    final RedisKeyspace keyspace = new RedisKeyspace(0, RedisKeyspace.EvictionPolicy.LRU, 5, now::get);
+    keyspace.set("session", "data", now.get() + 1_000, RedisKeyspace.SetCondition.ALWAYS, false);
+
+    assertThat(keyspace.get("session")).isEqualTo("data");
+    assertThat(keyspace.ttl("session")).isEqualTo(1_000);
+
+    now.addAndGet(999);
+    assertThat(keyspace.contains("session")).isTrue();
+
+    now.addAndGet(1);
+    assertThat(keyspace.get("session")).isNull();
+    assertThat(keyspace.ttl("session")).isEqualTo(-2);
+    assertThat(keyspace.size()).isZero();
+    assertThat(keyspace.getUsedMemory()).isZero();
+  }
+
+  @Test
+  void writesRemoveExpiredKeysNobodyReadsAgain() {
+    final RedisKeyspace keyspace = new RedisKeyspace(0, RedisKeyspace.EvictionPolicy.LRU, 5, now::get);
+    for (int i = 0; i < 10; i++)
+      keyspace.set("short" + i, "v", now.get() + 10, RedisKeyspace.SetCondition.ALWAYS, false);
+    keyspace.set("long", "v", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+
+    now.addAndGet(10);
+    keyspace.set("other", "v", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+
+    assertThat(keyspace.size()).isEqualTo(2);
+    assertThat(keyspace.getExpiredKeys()).isEqualTo(10);
+  }
+
+  @Test
+  void overwritingAKeyClearsItsDeadlineUnlessKeepTtl() {
+    final RedisKeyspace keyspace = new RedisKeyspace(0, RedisKeyspace.EvictionPolicy.LRU, 5, now::get);
+    keyspace.set("k", "1", now.get() + 500, RedisKeyspace.SetCondition.ALWAYS, false);
+    keyspace.set("k", "2", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, true);
+    assertThat(keyspace.ttl("k")).isEqualTo(500);
+
+    keyspace.set("k", "3", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+    assertThat(keyspace.ttl("k")).isEqualTo(-1);
+
+    // The deadline of the first write must not expire the key later on.
+    now.addAndGet(1_000);
+    keyspace.set("other", "v", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+    assertThat(keyspace.get("k")).isEqualTo("3");
+  }
+
+  @Test
+  void expireAndPersist() {
+    final RedisKeyspace keyspace = new RedisKeyspace(0, RedisKeyspace.EvictionPolicy.LRU, 5, now::get);
+    assertThat(keyspace.expire("missing", now.get() + 100)).isFalse();
+
+    keyspace.set("k", "v", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+    assertThat(keyspace.persist("k")).isFalse();
+    assertThat(keyspace.expire("k", now.get() + 100)).isTrue();
+    assertThat(keyspace.persist("k")).isTrue();
+    assertThat(keyspace.ttl("k")).isEqualTo(-1);
+
+    // A deadline in the past deletes the key.
+    assertThat(keyspace.expire("k", now.get() - 1)).isTrue();
+    assertThat(keyspace.contains("k")).isFalse();
+  }
+
+  @Test
+  void setConditions() {
+    final RedisKeyspace keyspace = new RedisKeyspace(0, RedisKeyspace.EvictionPolicy.LRU, 5, now::get);
+    assertThat(keyspace.set("k", "1", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.IF_PRESENT, false)).isFalse();
+    assertThat(keyspace.set("k", "1", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.IF_ABSENT, false)).isTrue();
+    assertThat(keyspace.set("k", "2", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.IF_ABSENT, false)).isFalse();
+    assertThat(keyspace.set("k", "3", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.IF_PRESENT, false)).isTrue();
+    assertThat(keyspace.get("k")).isEqualTo("3");
+  }
+
+  @Test
+  void updateIsAtomicAndKeepsTheDeadline() throws Exception {
+    final RedisKeyspace keyspace = new RedisKeyspace(0, RedisKeyspace.EvictionPolicy.LRU, 5, now::get);
+    keyspace.set("counter", 0L, now.get() + 10_000, RedisKeyspace.SetCondition.ALWAYS, false);
+
+    final Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 1_000; i++)
+          keyspace.update("counter", current -> (Long) current + 1);
+      });
+      threads[t].start();
+    }
+    for (final Thread thread : threads)
+      thread.join();
+
+    assertThat(keyspace.get("counter")).isEqualTo(4_000L);
+    assertThat(keyspace.ttl("counter")).isEqualTo(10_000);
+  }
+
+  @Test
+  void theLeastRecentlyUsedKeysAreEvictedPastTheBudget() {
+    final RedisKeyspace probe = new RedisKeyspace(0, RedisKeyspace.EvictionPolicy.LRU, 5, now::get);
+    probe.set("key00", "value", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+    final long entrySize = probe.getUsedMemory();
+
+    // Room for 10 entries; sampling every key makes the choice exact.
+    final RedisKeyspace keyspace = new RedisKeyspace(entrySize * 10, RedisKeyspace.EvictionPolicy.LRU, 100, now::get);
+    for (int i = 0; i < 10; i++) {
+      keyspace.set("key%02d".formatted(i), "value", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+      now.incrementAndGet();
+    }
+    // key00 is read, so key01 becomes the least recently used.
+    keyspace.get("key00");
+    now.incrementAndGet();
+
+    keyspace.set("key10", "value", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+
+    assertThat(keyspace.size()).isEqualTo(10);
+    assertThat(keyspace.getUsedMemory()).isLessThanOrEqualTo(keyspace.getMaxMemory());
+    assertThat(keyspace.getEvictedKeys()).isEqualTo(1);
+    assertThat(keyspace.contains("key00")).isTrue();
+    assertThat(keyspace.contains("key01")).isFalse();
+  }
+
+  @Test
+  void theLeastFrequentlyUsedKeysAreEvictedPastTheBudget() {
+    final RedisKeyspace probe = new RedisKeyspace(0, RedisKeyspace.EvictionPolicy.LFU, 5, now::get);
+    probe.set("key00", "value", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+    final long entrySize = probe.getUsedMemory();
+
+    final RedisKeyspace keyspace = new RedisKeyspace(entrySize * 3, RedisKeyspace.EvictionPolicy.LFU, 100, now::get);
+    keyspace.set("hot", "value", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+    keyspace.set("warm", "value", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+    keyspace.set("cold", "value", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+    for (int i = 0; i < 1_000; i++) {
+      keyspace.get("hot");
+      keyspace.get("warm");
+    }
+    // "cold" is the most recently used key, but the least frequently used one.
+    keyspace.get("cold");
+
+    keyspace.set("new", "value", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+
+    assertThat(keyspace.contains("hot")).isTrue();
+    assertThat(keyspace.contains("warm")).isTrue();
+    assertThat(keyspace.getEvictedKeys()).isEqualTo(1);
+  }
+
+  @Test
+  void noEvictionRejectsWritesOnceFull() {
+    final RedisKeyspace keyspace = new RedisKeyspace(1, RedisKeyspace.EvictionPolicy.NOEVICTION, 5, now::get);
+    keyspace.set("first", "value", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false);
+
+    assertThatThrownBy(() -> keyspace.set("second", "value", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false))
+        .isInstanceOf(RedisOutOfMemoryException.class);
+    assertThat(RedisNetworkExecutor.respErrorPrefix(new RedisOutOfMemoryException("full"))).isEqualTo("OOM");
+
+    // Deletes are still allowed, and free the budget.
+    assertThat(keyspace.remove("first")).isEqualTo("value");
+    assertThat(keyspace.set("second", "value", RedisKeyspace.NO_EXPIRATION, RedisKeyspace.SetCondition.ALWAYS, false)).isTrue();
+  }
+}
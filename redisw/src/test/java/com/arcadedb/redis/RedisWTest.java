@@ -27,8 +27,11 @@ import com.arcadedb.serializer.json.JSONObject;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.SetParams;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -529,6 +532,78 @@ public class RedisWTest extends BaseGraphServerTest {
     assertThat(results.get(3)).isNull();
   }
 
+  @Test
+  void keyspaceIsSharedAcrossConnections() {
+    try (final Jedis writer = new Jedis("localhost", DEF_PORT); final Jedis reader = new Jedis("localhost", DEF_PORT)) {
+      writer.auth("root", DEFAULT_PASSWORD_FOR_TESTS);
+      reader.auth("root", DEFAULT_PASSWORD_FOR_TESTS);
+
+      writer.set("session:1", "alice");
+      assertThat(reader.get("session:1")).isEqualTo("alice");
+
+      writer.incr("visits");
+      reader.incr("visits");
+      assertThat(writer.get("visits")).isEqualTo("2");
+
+      assertThat(reader.del("session:1", "visits", "missing")).isEqualTo(2);
+      assertThat(writer.exists("session:1")).isFalse();
+    }
+  }
+
+  @Test
+  void keysExpire() throws Exception {
+    try (final Jedis jedis = new Jedis("localhost", DEF_PORT)) {
+      jedis.auth("root", DEFAULT_PASSWORD_FOR_TESTS);
+
+      assertThat(jedis.set("short", "v", SetParams.setParams().px(100))).isEqualTo("OK");
+      assertThat(jedis.pttl("short")).isBetween(1L, 100L);
+      assertThat(jedis.set("short", "other", SetParams.setParams().nx())).isNull();
+
+      jedis.setex("medium", 100, "v");
+      assertThat(jedis.ttl("medium")).isBetween(99L, 100L);
+      assertThat(jedis.persist("medium")).isEqualTo(1);
+      assertThat(jedis.ttl("medium")).isEqualTo(-1);
+      assertThat(jedis.ttl("missing")).isEqualTo(-2);
+
+      jedis.set("later", "v");
+      assertThat(jedis.pexpire("later", 100)).isEqualTo(1);
+
+      Thread.sleep(200);
+      assertThat(jedis.get("short")).isNull();
+      assertThat(jedis.exists("later")).isFalse();
+      assertThat(jedis.get("medium")).isEqualTo("v");
+
+      // Database global variables have no expiration.
+      try {
+        jedis.set(getDatabaseName() + ".expiring", "v", SetParams.setParams().ex(10));
+        fail("Expected an error setting a deadline on a database key");
+      } catch (final JedisDataException e) {
+        assertThat(e.getMessage()).contains("not supported");
+      }
+    }
+  }
+
+  @Test
+  void multiKeyCommandsAndPipelining() {
+    try (final Jedis jedis = new Jedis("localhost", DEF_PORT)) {
+      jedis.auth("root", DEFAULT_PASSWORD_FOR_TESTS);
+
+      assertThat(jedis.mset("m1", "a", "m2", "b", "m3", "c")).isEqualTo("OK");
+      assertThat(jedis.mget("m1", "missing", "m3")).containsExactly("a", null, "c");
+
+      final Pipeline pipeline = jedis.pipelined();
+      for (int i = 0; i < 1_000; i++)
+        pipeline.set("pipelined" + i, String.valueOf(i));
+      final Response<List<String>> values = pipeline.mget("pipelined0", "pipelined999");
+      final Response<Long> counter = pipeline.incrBy("pipelinedCounter", 5);
+      pipeline.sync();
+
+      assertThat(values.get()).containsExactly("0", "999");
+      assertThat(counter.get()).isEqualTo(5);
+      assertThat(jedis.get("pipelined500")).isEqualTo("500");
+    }
+  }
+
   @Override
   protected void populateDatabase() {
   }
@@ -53,6 +53,7 @@ import com.arcadedb.graph.MutableVertex;
 import com.arcadedb.graph.Vertex;
 import com.arcadedb.index.IndexCursor;
 import com.arcadedb.query.QueryEngine;
+import com.arcadedb.query.QueryResultCache;
 import com.arcadedb.query.opencypher.optimizer.statistics.GraphStatisticsCache;
 import com.arcadedb.query.opencypher.query.CypherPlanCache;
 import com.arcadedb.query.opencypher.query.CypherStatementCache;
@@ -657,6 +658,11 @@ public class ServerDatabase implements DatabaseInternal {
     return wrapped.getCypherPlanCache();
   }
 
+  @Override
+  public QueryResultCache getQueryResultCache() {
+    return wrapped.getQueryResultCache();
+  }
+
   @Override
   public GraphStatisticsCache getGraphStatisticsCache() {
     return wrapped.getGraphStatisticsCache();
@@ -43,12 +43,16 @@ import java.util.regex.Pattern;
  * - Weekly: Keep N most recent weekly backups (oldest backup per week)
  * - Monthly: Keep N most recent monthly backups (oldest backup per month)
  * - Yearly: Keep N most recent yearly backups (oldest backup per year)
+ * <p>
+ * Incremental and differential backups are only restorable together with the backups they were taken against, so the
+ * keep set is closed over chains: an incremental backup keeps the backup before it, a differential backup keeps the
+ * last full backup before it, and so on back to a full backup.
  *
  * @author Luca Garulli (l.garulli@arcadedata.com)
  */
 public class BackupRetentionManager {
   private static final Pattern           BACKUP_FILENAME_PATTERN =
-      Pattern.compile(".*-backup-(\\d{8})-(\\d{6})\\.zip$");
+      Pattern.compile(".*-backup-(\\d{8})-(\\d{6})(-incremental|-differential)?\\.zip$");
   private static final DateTimeFormatter TIMESTAMP_PARSER        =
       DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
   private static final FilenameFilter    BACKUP_FILE_FILTER      =
@@ -110,6 +114,8 @@ public class BackupRetentionManager {
     // restore point would otherwise be discarded seconds after creation.
     filesToKeep.add(backupFiles.get(backupFiles.size() - 1).file);
 
+    keepChains(backupFiles, filesToKeep);
+
     // Delete files not in the keep set
     int deletedCount = 0;
     int failedCount = 0;
@@ -162,7 +168,7 @@ public class BackupRetentionManager {
     for (final File file : files) {
       final LocalDateTime timestamp = parseBackupTimestamp(file.getName());
       if (timestamp != null)
-        backupFiles.add(new BackupFileInfo(file, timestamp));
+        backupFiles.add(new BackupFileInfo(file, timestamp, getBackupType(file.getName())));
     }
 
     // Sort by timestamp (oldest first)
@@ -177,6 +183,41 @@ public class BackupRetentionManager {
     return backupFiles;
   }
 
+  /**
+   * The type of backup a file name denotes: {@code full}, {@code incremental} or {@code differential}, or {@code null}
+   * when the name is not one of a backup. The type is part of the name so that retention and the choice of the next
+   * backup's type never have to open an archive.
+   */
+  static String getBackupType(final String filename) {
+    final Matcher matcher = BACKUP_FILENAME_PATTERN.matcher(filename);
+    if (!matcher.matches())
+      return null;
+    final String suffix = matcher.group(3);
+    return suffix != null ? suffix.substring(1) : DatabaseBackupConfig.MODE_FULL;
+  }
+
+  /**
+   * Adds to the keep set the base of every kept incremental or differential backup, transitively. Walking from the
+   * newest backup back means a base added here is visited afterwards and pulls in its own base in turn. A chain whose
+   * full backup is already gone keeps what is left of it: deleting the rest would not make it restorable again.
+   */
+  private void keepChains(final List<BackupFileInfo> backupFiles, final Set<File> filesToKeep) {
+    for (int i = backupFiles.size() - 1; i > 0; i--) {
+      final BackupFileInfo info = backupFiles.get(i);
+      if (!filesToKeep.contains(info.file) || DatabaseBackupConfig.MODE_FULL.equals(info.type))
+        continue;
+
+      if (DatabaseBackupConfig.MODE_INCREMENTAL.equals(info.type))
+        filesToKeep.add(backupFiles.get(i - 1).file);
+      else
+        for (int j = i - 1; j >= 0; j--)
+          if (DatabaseBackupConfig.MODE_FULL.equals(backupFiles.get(j).type)) {
+            filesToKeep.add(backupFiles.get(j).file);
+            break;
+          }
+    }
+  }
+
   /**
    * Parses the timestamp from a backup filename.
    */
@@ -405,10 +446,12 @@ public class BackupRetentionManager {
   private static class BackupFileInfo {
     final File          file;
     final LocalDateTime timestamp;
+    final String        type;
 
-    BackupFileInfo(final File file, final LocalDateTime timestamp) {
+    BackupFileInfo(final File file, final LocalDateTime timestamp, final String type) {
       this.file = file;
       this.timestamp = timestamp;
+      this.type = type;
     }
   }
 }
@@ -24,6 +24,7 @@ import com.arcadedb.server.ArcadeDBServer;
 import com.arcadedb.server.event.ServerEventLog;
 import com.arcadedb.server.HAServerPlugin;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -34,6 +35,7 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.logging.Level;
 
 /**
@@ -52,6 +54,7 @@ public class BackupTask implements Runnable {
   private static volatile Method                       setCompressionLevelMethod;
   private static volatile Method                       setCompressionThreadsMethod;
   private static volatile Method                       setMaxMBPerSecondMethod;
+  private static volatile Method                       setFormatMethod;
   private static volatile Method                       backupDatabaseMethod;
   private static volatile boolean                      reflectionInitialized;
   private static final    Object                       REFLECTION_LOCK = new Object();
@@ -174,10 +177,6 @@ public class BackupTask implements Runnable {
   private String performBackup() throws Exception {
     final Database database = server.getDatabase(databaseName);
 
-    // Generate backup filename
-    final String timestamp = LocalDateTime.now().format(BACKUP_TIMESTAMP_FORMAT);
-    final String backupFileName = databaseName + "-backup-" + timestamp + ".zip";
-
     // Prepare backup directory for this database - use Files.createDirectories to avoid TOCTOU
     final Path dbBackupPath = Paths.get(backupDirectory, databaseName);
     try {
@@ -187,6 +186,12 @@ public class BackupTask implements Runnable {
     }
     final String dbBackupDir = dbBackupPath.toString();
 
+    // Generate backup filename: the type is part of it, retention reads the chains from the names
+    final String backupType = selectBackupType(dbBackupPath.toFile());
+    final String timestamp = LocalDateTime.now().format(BACKUP_TIMESTAMP_FORMAT);
+    final String backupFileName = databaseName + "-backup-" + timestamp + (
+        DatabaseBackupConfig.MODE_FULL.equals(backupType) ? "" : "-" + backupType) + ".zip";
+
     // Perform backup using cached reflection for better performance
     try {
       initializeReflection();
@@ -194,6 +199,10 @@ public class BackupTask implements Runnable {
       final Object backup = backupConstructor.newInstance(database, backupFileName);
       setDirectoryMethod.invoke(backup, dbBackupDir);
       setVerboseLevelMethod.invoke(backup, 1);
+      if (!DatabaseBackupConfig.MODE_FULL.equals(backupType))
+        // THE BASE IS NOT PASSED: THE BACKUP PICKS THE NEWEST SUITABLE ARCHIVE IN THE DIRECTORY, WHICH IS THE ONE THE
+        // NAMES BELOW WERE COUNTED FROM
+        setFormatMethod.invoke(backup, backupType);
       applyCompressionOverrides(backup);
 
       return (String) backupDatabaseMethod.invoke(backup);
@@ -207,6 +216,37 @@ public class BackupTask implements Runnable {
     }
   }
 
+  /**
+   * The type of the next backup. In incremental and differential mode a chain starts with a full backup and holds
+   * {@code fullBackupEvery} backups, the full one included, before the next full backup starts a new chain: a chain
+   * that grew forever would make every restore replay all of it, and retention could never drop its head.
+   * <p>
+   * Package-private so the chain arithmetic can be tested against a directory of empty files.
+   */
+  String selectBackupType(final File dbBackupDir) {
+    final String mode = config.getMode();
+    if (DatabaseBackupConfig.MODE_FULL.equals(mode))
+      return mode;
+
+    final String[] names = dbBackupDir.list((dir, name) -> name.startsWith(databaseName + "-backup-"));
+    if (names == null)
+      return DatabaseBackupConfig.MODE_FULL;
+
+    // THE TIMESTAMP FOLLOWS A COMMON PREFIX, SO THE NAME ORDER IS THE CHRONOLOGICAL ORDER
+    Arrays.sort(names);
+    int sinceLastFull = 0;
+    for (int i = names.length - 1; i >= 0; i--) {
+      final String type = BackupRetentionManager.getBackupType(names[i]);
+      if (type == null)
+        continue;
+      ++sinceLastFull;
+      if (DatabaseBackupConfig.MODE_FULL.equals(type))
+        return sinceLastFull >= config.getFullBackupEvery() ? DatabaseBackupConfig.MODE_FULL : mode;
+    }
+    // NO FULL BACKUP TO BUILD ON
+    return DatabaseBackupConfig.MODE_FULL;
+  }
+
   /**
    * Pushes this database's compression overrides onto the {@code Backup} instance, skipping any the configuration left
    * unset so the corresponding {@code GlobalConfiguration} default still applies. A mixed fleet can then give a large,
@@ -246,6 +286,7 @@ public class BackupTask implements Runnable {
             setCompressionLevelMethod = backupClass.getMethod("setCompressionLevel", Integer.TYPE);
             setCompressionThreadsMethod = backupClass.getMethod("setCompressionThreads", Integer.TYPE);
             setMaxMBPerSecondMethod = backupClass.getMethod("setMaxMBPerSecond", Integer.TYPE);
+            setFormatMethod = backupClass.getMethod("setFormat", String.class);
             backupDatabaseMethod = backupClass.getMethod("backupDatabase");
             reflectionInitialized = true;
           } catch (final ClassNotFoundException | NoSuchMethodException e) {
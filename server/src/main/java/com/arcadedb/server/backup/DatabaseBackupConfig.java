@@ -21,6 +21,7 @@ package com.arcadedb.server.backup;
 import com.arcadedb.serializer.json.JSONObject;
 
 import java.time.LocalTime;
+import java.util.Locale;
 
 /**
  * Configuration for a specific database backup, can override server-level defaults.
@@ -41,6 +42,12 @@ public class DatabaseBackupConfig {
   public static final int MAX_COMPRESSION_THREADS = 256;
   public static final int MIN_MAX_MB_PER_SECOND   = 0;
 
+  /** Backup modes, the names the integration module's {@code Backup.setFormat} accepts. */
+  public static final String MODE_FULL                 = "full";
+  public static final String MODE_INCREMENTAL          = "incremental";
+  public static final String MODE_DIFFERENTIAL         = "differential";
+  public static final int    DEFAULT_FULL_BACKUP_EVERY = 7;
+
   private final String          databaseName;
   private       boolean         enabled     = true;
   private       String          runOnServer = "$leader";
@@ -62,6 +69,16 @@ public class DatabaseBackupConfig {
    * {@code GlobalConfiguration.BACKUP_MAX_MB_PER_SECOND}.
    */
   private       Integer         maxMBPerSecond;
+  /**
+   * {@code full}, {@code incremental} or {@code differential}. {@code null} means full, inheriting the server default
+   * first.
+   */
+  private       String          mode;
+  /**
+   * In incremental and differential mode, how many backups a chain holds before the next one is full again, the full
+   * one included. {@code null} means {@link #DEFAULT_FULL_BACKUP_EVERY}.
+   */
+  private       Integer         fullBackupEvery;
 
   public DatabaseBackupConfig(final String databaseName) {
     this.databaseName = databaseName;
@@ -92,6 +109,12 @@ public class DatabaseBackupConfig {
     if (json.has("maxMBPerSecond"))
       config.maxMBPerSecond = json.getInt("maxMBPerSecond");
 
+    if (json.has("mode"))
+      config.mode = json.getString("mode").toLowerCase(Locale.ENGLISH);
+
+    if (json.has("fullBackupEvery"))
+      config.fullBackupEvery = json.getInt("fullBackupEvery");
+
     // Validate the configuration
     config.validate();
 
@@ -113,6 +136,11 @@ public class DatabaseBackupConfig {
     checkRange("compressionLevel", compressionLevel, MIN_COMPRESSION_LEVEL, MAX_COMPRESSION_LEVEL);
     checkRange("compressionThreads", compressionThreads, MIN_COMPRESSION_THREADS, MAX_COMPRESSION_THREADS);
     checkRange("maxMBPerSecond", maxMBPerSecond, MIN_MAX_MB_PER_SECOND, Integer.MAX_VALUE);
+
+    if (mode != null && !MODE_FULL.equals(mode) && !MODE_INCREMENTAL.equals(mode) && !MODE_DIFFERENTIAL.equals(mode))
+      throw new IllegalArgumentException(
+          "Backup mode must be one of 'full', 'incremental' or 'differential', found '%s'".formatted(mode));
+    checkRange("fullBackupEvery", fullBackupEvery, 1, Integer.MAX_VALUE);
   }
 
   /**
@@ -148,6 +176,10 @@ public class DatabaseBackupConfig {
       this.compressionThreads = defaults.compressionThreads;
     if (this.maxMBPerSecond == null)
       this.maxMBPerSecond = defaults.maxMBPerSecond;
+    if (this.mode == null)
+      this.mode = defaults.mode;
+    if (this.fullBackupEvery == null)
+      this.fullBackupEvery = defaults.fullBackupEvery;
   }
 
   public String getDatabaseName() {
@@ -210,6 +242,23 @@ public class DatabaseBackupConfig {
     this.maxMBPerSecond = maxMBPerSecond;
   }
 
+  /** The backup mode, {@link #MODE_FULL} when none was configured. */
+  public String getMode() {
+    return mode != null ? mode : MODE_FULL;
+  }
+
+  public void setMode(final String mode) {
+    this.mode = mode != null ? mode.toLowerCase(Locale.ENGLISH) : null;
+  }
+
+  public int getFullBackupEvery() {
+    return fullBackupEvery != null ? fullBackupEvery : DEFAULT_FULL_BACKUP_EVERY;
+  }
+
+  public void setFullBackupEvery(final Integer fullBackupEvery) {
+    this.fullBackupEvery = fullBackupEvery;
+  }
+
   /**
    * Converts this configuration to a JSON object.
    */
@@ -235,6 +284,12 @@ public class DatabaseBackupConfig {
     if (maxMBPerSecond != null)
       json.put("maxMBPerSecond", maxMBPerSecond);
 
+    if (mode != null)
+      json.put("mode", mode);
+
+    if (fullBackupEvery != null)
+      json.put("fullBackupEvery", fullBackupEvery);
+
     return json;
   }
 
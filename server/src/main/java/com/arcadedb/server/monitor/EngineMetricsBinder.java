@@ -83,6 +83,12 @@ public final class EngineMetricsBinder implements MeterBinder {
   public void bindTo(final MeterRegistry registry) {
     counter(registry, "arcadedb.engine.page.cache.hits", "Page cache hits", "pageCacheHits");
     counter(registry, "arcadedb.engine.page.cache.misses", "Page cache misses", "pageCacheMiss");
+    // What the page cache policy did with the pages read while the cache was full: a scan-heavy workload shows up as
+    // rejections, which is the policy keeping the hot pages cached rather than a drop in the hit ratio.
+    counter(registry, "arcadedb.engine.page.cache.admissions", "Pages admitted to the full page cache", "pageCacheAdmissions");
+    counter(registry, "arcadedb.engine.page.cache.rejections", "Pages kept out of the full page cache", "pageCacheRejections");
+    counter(registry, "arcadedb.engine.page.cache.second.chances", "Cached pages spared by the eviction hand",
+        "pageCacheSecondChances");
     counter(registry, "arcadedb.engine.pages.read", "Pages read from disk", "pagesRead");
     counter(registry, "arcadedb.engine.pages.written", "Pages written to disk", "pagesWritten");
     counter(registry, "arcadedb.engine.wal.bytes.written", "WAL bytes written", "walBytesWritten");
@@ -0,0 +1,201 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.network;
+
+import com.arcadedb.GlobalConfiguration;
+import com.arcadedb.log.LogManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * The connection-handling layer shared by the binary wire-protocol listeners (Postgres, Redis, BOLT).
+ * <p>
+ * Each listener used to start one platform thread per accepted socket, and a client pool keeps its connections
+ * open and mostly idle, so thousands of pooled connections cost thousands of thread stacks doing nothing. A
+ * connection now runs on a virtual thread ({@link GlobalConfiguration#NETWORK_VIRTUAL_THREADS}): the blocking
+ * read an idle connection sits in parks the virtual thread and releases its carrier, and what is left is a
+ * small heap object. The executors keep their blocking, one-thread-per-connection style - and with it the
+ * thread-bound database context every request relies on - which an NIO selector with a worker pool would have
+ * had to rebuild from scratch.
+ * <p>
+ * Cheap connections move the limit to the requests: {@link GlobalConfiguration#NETWORK_MAX_CONCURRENT_REQUESTS}
+ * bounds how many requests of one listener execute at once, and a request past the cap waits in
+ * {@link #beginRequest()}. Per protocol, the layer publishes:
+ * <ul>
+ * <li>{@code <protocol>.connections.active} and {@code <protocol>.connections.accepted}</li>
+ * <li>{@code <protocol>.requests.active} and {@code <protocol>.requests.queued}, the queue depth</li>
+ * <li>{@code <protocol>.request.wait} and {@code <protocol>.request.latency}, the time spent queued and the
+ * time spent executing</li>
+ * </ul>
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+public class WireProtocolConnections {
+  private static final Request NO_REQUEST = () -> {
+  };
+
+  private final String        protocol;
+  private final boolean       virtualThreads;
+  private final int           maxConcurrentRequests;
+  private final Semaphore     requestPermits;
+  private final Set<Thread>   connectionThreads = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger activeConnections = new AtomicInteger();
+  private final AtomicInteger activeRequests    = new AtomicInteger();
+  private final AtomicInteger queuedRequests    = new AtomicInteger();
+  private final Counter       acceptedCounter;
+  private final Timer         waitTimer;
+  private final Timer         latencyTimer;
+
+  /**
+   * One request of a connection, from the moment it was read to the moment its answer was written. Closing it
+   * gives the slot back.
+   */
+  public interface Request extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  public WireProtocolConnections(final String protocol) {
+    this(protocol, GlobalConfiguration.NETWORK_VIRTUAL_THREADS.getValueAsBoolean(),
+        GlobalConfiguration.NETWORK_MAX_CONCURRENT_REQUESTS.getValueAsInteger());
+  }
+
+  public WireProtocolConnections(final String protocol, final boolean virtualThreads, final int maxConcurrentRequests) {
+    this.protocol = protocol;
+    this.virtualThreads = virtualThreads;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.requestPermits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests, true) : null;
+
+    Metrics.gauge(protocol + ".connections.active", activeConnections);
+    Metrics.gauge(protocol + ".requests.active", activeRequests);
+    Metrics.gauge(protocol + ".requests.queued", queuedRequests);
+    this.acceptedCounter = Metrics.counter(protocol + ".connections.accepted");
+    this.waitTimer = Metrics.timer(protocol + ".request.wait");
+    this.latencyTimer = Metrics.timer(protocol + ".request.latency");
+  }
+
+  /**
+   * Starts serving a connection on its own thread, virtual unless configured otherwise. The connection counts
+   * as active until {@code connection} returns.
+   *
+   * @return the thread serving the connection
+   */
+  public Thread start(final String name, final Runnable connection) {
+    final Runnable tracked = () -> {
+      connectionThreads.add(Thread.currentThread());
+      try {
+        connection.run();
+      } catch (final Throwable t) {
+        LogManager.instance().log(this, Level.SEVERE, "%s: connection '%s' terminated with an error", t, protocol, name);
+      } finally {
+        connectionThreads.remove(Thread.currentThread());
+        activeConnections.decrementAndGet();
+      }
+    };
+
+    activeConnections.incrementAndGet();
+    try {
+      final Thread thread = virtualThreads ? Thread.ofVirtual().name(name).unstarted(tracked) : Thread.ofPlatform().name(name).unstarted(tracked);
+      thread.start();
+      acceptedCounter.increment();
+      return thread;
+    } catch (final RuntimeException | Error e) {
+      activeConnections.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /**
+   * Marks the start of a request, waiting for a free slot first when the listener is already executing as many
+   * requests as {@link GlobalConfiguration#NETWORK_MAX_CONCURRENT_REQUESTS} allows. Use it in a
+   * try-with-resources around the execution of one protocol message.
+   */
+  public Request beginRequest() {
+    final long queuedAt = System.nanoTime();
+    if (requestPermits != null && !requestPermits.tryAcquire()) {
+      queuedRequests.incrementAndGet();
+      try {
+        requestPermits.acquireUninterruptibly();
+      } finally {
+        queuedRequests.decrementAndGet();
+      }
+    }
+
+    final long startedAt = System.nanoTime();
+    waitTimer.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+    activeRequests.incrementAndGet();
+    return () -> {
+      activeRequests.decrementAndGet();
+      if (requestPermits != null)
+        requestPermits.release();
+      latencyTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    };
+  }
+
+  /**
+   * {@link #beginRequest()} on {@code connections}, or a request nobody tracks when an executor was created
+   * outside a listener.
+   */
+  public static Request beginRequest(final WireProtocolConnections connections) {
+    return connections != null ? connections.beginRequest() : NO_REQUEST;
+  }
+
+  public String getProtocol() {
+    return protocol;
+  }
+
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  /** Connections currently being served. */
+  public int getActiveConnections() {
+    return activeConnections.get();
+  }
+
+  /**
+   * The threads serving the connections right now. Virtual threads do not show up in
+   * {@link Thread#getAllStackTraces()}, so this is the way to reach them.
+   */
+  public Set<Thread> getConnectionThreads() {
+    return Set.copyOf(connectionThreads);
+  }
+
+  /** Requests currently executing. */
+  public int getActiveRequests() {
+    return activeRequests.get();
+  }
+
+  /** Requests waiting for a slot: the queue depth. */
+  public int getQueuedRequests() {
+    return queuedRequests.get();
+  }
+}
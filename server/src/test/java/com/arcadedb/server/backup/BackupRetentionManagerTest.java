@@ -261,6 +261,62 @@ class BackupRetentionManagerTest {
     assertThat(new File(dbBackupDir, "config.json").exists()).isTrue();
   }
 
+  /**
+   * An incremental backup is useless without every backup before it back to the full one, a differential one without
+   * its full backup: retention must keep whole chains even when the policy alone would keep only their tail.
+   */
+  @Test
+  void maxFilesRetentionKeepsWholeChains() throws Exception {
+    final LocalDateTime start = LocalDateTime.now().minusDays(1);
+    final File oldFull = createBackupFile(start, "");
+    final File oldIncremental = createBackupFile(start.plusHours(1), "-incremental");
+    final File full = createBackupFile(start.plusHours(2), "");
+    final File incremental1 = createBackupFile(start.plusHours(3), "-incremental");
+    final File incremental2 = createBackupFile(start.plusHours(4), "-incremental");
+    final File differential = createBackupFile(start.plusHours(5), "-differential");
+
+    final DatabaseBackupConfig config = new DatabaseBackupConfig(DATABASE_NAME);
+    final DatabaseBackupConfig.RetentionConfig retention = new DatabaseBackupConfig.RetentionConfig();
+    retention.setMaxFiles(2);
+    config.setRetention(retention);
+    retentionManager.registerDatabase(DATABASE_NAME, config);
+
+    assertThat(retentionManager.applyRetention(DATABASE_NAME)).isEqualTo(2);
+
+    // THE POLICY KEPT incremental2 AND differential; THE CHAINS PULL IN incremental1 AND full
+    assertThat(differential).exists();
+    assertThat(incremental2).exists();
+    assertThat(incremental1).exists();
+    assertThat(full).exists();
+    assertThat(oldIncremental).doesNotExist();
+    assertThat(oldFull).doesNotExist();
+  }
+
+  @Test
+  void nextBackupTypeFollowsTheChainLength() throws Exception {
+    final DatabaseBackupConfig config = new DatabaseBackupConfig(DATABASE_NAME);
+    final BackupTask task = new BackupTask(null, DATABASE_NAME, config, tempDir.toString(), null);
+
+    // FULL MODE NEVER STARTS A CHAIN
+    assertThat(task.selectBackupType(dbBackupDir)).isEqualTo("full");
+
+    config.setMode("incremental");
+    config.setFullBackupEvery(3);
+
+    // NOTHING TO BUILD ON YET
+    assertThat(task.selectBackupType(dbBackupDir)).isEqualTo("full");
+
+    final LocalDateTime start = LocalDateTime.now().minusDays(1);
+    createBackupFile(start, "");
+    assertThat(task.selectBackupType(dbBackupDir)).isEqualTo("incremental");
+
+    createBackupFile(start.plusHours(1), "-incremental");
+    assertThat(task.selectBackupType(dbBackupDir)).isEqualTo("incremental");
+
+    createBackupFile(start.plusHours(2), "-incremental");
+    assertThat(task.selectBackupType(dbBackupDir)).isEqualTo("full");
+  }
+
   /**
    * Creates backup files with timestamps starting from the given date.
    */
@@ -277,7 +333,11 @@ class BackupRetentionManagerTest {
    * Creates a single backup file with the given timestamp.
    */
   private File createBackupFile(final LocalDateTime timestamp) throws IOException {
-    final String filename = DATABASE_NAME + "-backup-" + timestamp.format(BACKUP_FORMAT) + ".zip";
+    return createBackupFile(timestamp, "");
+  }
+
+  private File createBackupFile(final LocalDateTime timestamp, final String typeSuffix) throws IOException {
+    final String filename = DATABASE_NAME + "-backup-" + timestamp.format(BACKUP_FORMAT) + typeSuffix + ".zip";
     final File file = new File(dbBackupDir, filename);
     Files.write(file.toPath(), "test backup content".getBytes());
     return file;
@@ -903,6 +903,45 @@ class DatabaseBackupConfigTest {
    * code; the bounds are repeated in {@link DatabaseBackupConfig} instead. This is the guard that they never drift -
    * without it, a config accepted here could still be refused by {@code Backup.setCompressionThreads} at 3am.
    */
+  @Test
+  void backupModeRoundTripsAndInheritsTheServerDefault() {
+    final DatabaseBackupConfig config = DatabaseBackupConfig.fromJSON("mydb",
+        new JSONObject().put("mode", "Incremental").put("fullBackupEvery", 5));
+
+    assertThat(config.getMode()).isEqualTo("incremental");
+    assertThat(config.getFullBackupEvery()).isEqualTo(5);
+
+    final DatabaseBackupConfig roundTrip = DatabaseBackupConfig.fromJSON("mydb", config.toJSON());
+    assertThat(roundTrip.getMode()).isEqualTo("incremental");
+    assertThat(roundTrip.getFullBackupEvery()).isEqualTo(5);
+
+    // UNSET STAYS UNSET IN THE FILE AND RESOLVES TO A FULL BACKUP EVERY TIME
+    final DatabaseBackupConfig legacy = new DatabaseBackupConfig("legacydb");
+    assertThat(legacy.getMode()).isEqualTo("full");
+    assertThat(legacy.getFullBackupEvery()).isEqualTo(DatabaseBackupConfig.DEFAULT_FULL_BACKUP_EVERY);
+    assertThat(legacy.toJSON().has("mode")).isFalse();
+
+    legacy.mergeWithDefaults(config);
+    assertThat(legacy.getMode()).isEqualTo("incremental");
+    assertThat(legacy.getFullBackupEvery()).isEqualTo(5);
+
+    // EVERY MODE THE CONFIGURATION ACCEPTS IS ONE THE BACKUP ACCEPTS
+    final Backup backup = new Backup((Database) null, "modes.zip");
+    for (final String mode : new String[] { DatabaseBackupConfig.MODE_FULL, DatabaseBackupConfig.MODE_INCREMENTAL,
+        DatabaseBackupConfig.MODE_DIFFERENTIAL }) {
+      backup.setFormat(mode);
+      assertThat(backup.getSettings().format).isEqualTo(mode);
+    }
+  }
+
+  @Test
+  void invalidBackupModeIsRefused() {
+    assertThatThrownBy(() -> DatabaseBackupConfig.fromJSON("mydb", new JSONObject().put("mode", "snapshot")))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("snapshot");
+    assertThatThrownBy(() -> DatabaseBackupConfig.fromJSON("mydb", new JSONObject().put("fullBackupEvery", 0)))
+        .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("fullBackupEvery");
+  }
+
   @Test
   void compressionOverrideBoundsMatchTheBackupApi() {
     assertThat(DatabaseBackupConfig.MAX_COMPRESSION_THREADS).isEqualTo(BackupSettings.MAX_COMPRESSION_THREADS);
@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2021-present Arcade Data Ltd (info@arcadedata.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-FileCopyrightText: 2021-present Arcade Data Ltd (info@arcadedata.com)
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.arcadedb.server.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the connection layer the binary wire-protocol listeners share.
+ *
+ * @author Luca Garulli (l.garulli@arcadedata.com)
+ */
+class WireProtocolConnectionsTest {
+
+  @Test
+  void connectionsRunOnVirtualThreadsAndAreCountedWhileServed() throws Exception {
+    final WireProtocolConnections connections = new WireProtocolConnections("test-virtual", true, 0);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicBoolean virtual = new AtomicBoolean();
+
+    final Thread thread = connections.start("test-connection", () -> {
+      virtual.set(Thread.currentThread().isVirtual());
+      await(release);
+    });
+
+    assertThat(thread.getName()).isEqualTo("test-connection");
+    waitUntil(() -> connections.getActiveConnections() == 1);
+
+    release.countDown();
+    thread.join(10_000);
+    assertThat(virtual).isTrue();
+    assertThat(connections.getActiveConnections()).isZero();
+  }
+
+  @Test
+  void platformThreadsCanBeConfiguredBack() throws Exception {
+    final WireProtocolConnections connections = new WireProtocolConnections("test-platform", false, 0);
+    final AtomicBoolean virtual = new AtomicBoolean(true);
+
+    connections.start("test-connection", () -> virtual.set(Thread.currentThread().isVirtual())).join(10_000);
+
+    assertThat(virtual).isFalse();
+    assertThat(connections.getActiveConnections()).isZero();
+  }
+
+  @Test
+  void aConnectionThatThrowsIsStillAccountedFor() throws Exception {
+    final WireProtocolConnections connections = new WireProtocolConnections("test-failure", true, 0);
+
+    connections.start("test-connection", () -> {
+      throw new IllegalStateException("boom");
+    }).join(10_000);
+
+    assertThat(connections.getActiveConnections()).isZero();
+  }
+
+  @Test
+  void requestsPastTheCapAreQueuedUntilASlotFreesUp() throws Exception {
+    final WireProtocolConnections connections = new WireProtocolConnections("test-queue", true, 1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch secondStarted = new CountDownLatch(1);
+
+    final WireProtocolConnections.Request first = connections.beginRequest();
+    assertThat(connections.getActiveRequests()).isEqualTo(1);
+
+    final Thread waiting = connections.start("queued", () -> {
+      try (final WireProtocolConnections.Request ignored = connections.beginRequest()) {
+        secondStarted.countDown();
+        await(release);
+      }
+    });
+
+    waitUntil(() -> connections.getQueuedRequests() == 1);
+    assertThat(secondStarted.getCount()).as("the second request must wait for the first").isEqualTo(1);
+
+    first.close();
+    assertThat(secondStarted.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(connections.getQueuedRequests()).isZero();
+
+    release.countDown();
+    waiting.join(10_000);
+    assertThat(connections.getActiveRequests()).isZero();
+  }
+
+  @Test
+  void anExecutorOutsideAListenerGetsAnUntrackedRequest() {
+    try (final WireProtocolConnections.Request request = WireProtocolConnections.beginRequest(null)) {
+      assertThat(request).isNotNull();
+    }
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void waitUntil(final BooleanSupplier condition) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 10_000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+      Thread.sleep(10);
+    assertThat(condition.getAsBoolean()).isTrue();
+  }
+}